@@ -137,7 +137,20 @@ public class BeanTable implements List, RandomAccess, Serializable, Cloneable{
      * @param isSynchronized 同期化するかどうか。同期化する場合は、true
      */
     public BeanTable(Class elementClass, boolean isSynchronized){
-        indexManager = new BeanTableIndexManager(elementClass, isSynchronized);
+        this(elementClass, isSynchronized, false);
+    }
+    
+    /**
+     * 指定されたBeanクラスを格納するテーブルを作成する。<p>
+     * 同期化する場合に、インデックスを並行モードにすると、インデックス検索中もレコードの追加や削除がブロックされない。<br>
+     *
+     * @param elementClass テーブルに格納するレコードとなるBeanのクラスオブジェクト
+     * @param isSynchronized 同期化するかどうか。同期化する場合は、true
+     * @param isConcurrentIndex インデックスを並行モードにするかどうか。並行モードにする場合は、true
+     * @see BeanTableIndexManager#BeanTableIndexManager(Class, boolean, boolean)
+     */
+    public BeanTable(Class elementClass, boolean isSynchronized, boolean isConcurrentIndex){
+        indexManager = new BeanTableIndexManager(elementClass, isSynchronized, isConcurrentIndex);
         this.isSynchronized = isSynchronized;
         list = isSynchronized ? Collections.synchronizedList(new ArrayList()) : new ArrayList();
     }
@@ -435,7 +448,7 @@ public class BeanTable implements List, RandomAccess, Serializable, Cloneable{
         }catch(CloneNotSupportedException e){
         }
         clone.list = isSynchronized ? Collections.synchronizedList(new ArrayList()) : new ArrayList();
-        clone.indexManager = new BeanTableIndexManager(getElementClass(), isSynchronized);
+        clone.indexManager = new BeanTableIndexManager(getElementClass(), isSynchronized, indexManager.isConcurrent());
         clone.addAll(this);
         return clone;
     }
@@ -35,10 +35,13 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.NavigableMap;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.lang.reflect.InvocationTargetException;
 import java.io.Externalizable;
 import java.io.ObjectOutput;
@@ -50,6 +53,8 @@ import jp.ossc.nimbus.beans.dataset.Record;
 
 /**
  * Beanテーブルインデックス。<p>
+ * 並行モードで生成した場合は、インデックスを{@link ConcurrentSkipListMap}で保持し、検索はロックを取得せずに行う。<br>
+ * 更新同士は同期化されるが、検索は更新をブロックせず、更新にブロックされることもない。但し、検索結果は、検索中に行われた更新を反映する場合と反映しない場合がある。<br>
  *
  * @author M.Takata
  */
@@ -57,10 +62,23 @@ public class BeanTableIndex implements Externalizable, Cloneable{
     
     private static final long serialVersionUID = -1133271083255739920L;
     
+    /**
+     * 直列化形式で、同期化されている事を示すフラグ。<p>
+     * 並行モードが追加される前の形式では、同期化されているかどうかをbooleanで書き込んでいたため、その値と互換性がある。<br>
+     */
+    static final byte MODE_SYNCHRONIZED = 0x01;
+    
+    /**
+     * 直列化形式で、並行モードである事を示すフラグ。<p>
+     * 並行モードが追加される前の形式には存在しないため、古い形式を読み込んだ場合は、並行モードにならない。古い実装で読み込んだ場合は、同期化されたインデックスになる。<br>
+     */
+    static final byte MODE_CONCURRENT = 0x02;
+    
     protected String name;
     protected Class elementClass;
     protected boolean isSynchronized;
-    protected TreeMap indexValueMap = new TreeMap(new ComparableComparator());
+    protected boolean isConcurrent;
+    protected NavigableMap indexValueMap = new TreeMap(new ComparableComparator());
     protected Set nullValueSet = new HashSet();
     protected Set linkedIndex = new HashSet();
     protected BeanTableIndexKeyFactory indexKeyFactory;
@@ -73,20 +91,65 @@ public class BeanTableIndex implements Externalizable, Cloneable{
     }
     
     public BeanTableIndex(String name, boolean isSynchronized, Class elementClass, String[] propNames) throws NoSuchPropertyException{
+        this(name, isSynchronized, false, elementClass, propNames);
+    }
+    
+    /**
+     * インスタンスを生成する。<p>
+     *
+     * @param name インデックス名
+     * @param isSynchronized 同期化するかどうか。同期化する場合は、true
+     * @param isConcurrent 並行モードにするかどうか。並行モードにする場合は、true。trueの場合は、isSynchronizedの指定に関わらず同期化される
+     * @param elementClass 要素の型
+     * @param propNames インデックスを張るプロパティ名の配列
+     * @exception NoSuchPropertyException 指定されたプロパティが要素の型に存在しない場合
+     */
+    public BeanTableIndex(String name, boolean isSynchronized, boolean isConcurrent, Class elementClass, String[] propNames) throws NoSuchPropertyException{
         if(propNames == null || propNames.length == 0){
             new IllegalArgumentException("propNames is empty.");
         }
         this.name = name;
-        this.isSynchronized = isSynchronized;
         this.elementClass = elementClass;
         indexKeyFactory = new DefaultBeanTableIndexKeyFactory(elementClass, propNames);
+        init(isSynchronized, isConcurrent);
     }
     
     public BeanTableIndex(String name, boolean isSynchronized, Class elementClass, BeanTableIndexKeyFactory keyFactory){
+        this(name, isSynchronized, false, elementClass, keyFactory);
+    }
+    
+    /**
+     * インスタンスを生成する。<p>
+     *
+     * @param name インデックス名
+     * @param isSynchronized 同期化するかどうか。同期化する場合は、true
+     * @param isConcurrent 並行モードにするかどうか。並行モードにする場合は、true。trueの場合は、isSynchronizedの指定に関わらず同期化される
+     * @param elementClass 要素の型
+     * @param keyFactory インデックスキーファクトリ
+     */
+    public BeanTableIndex(String name, boolean isSynchronized, boolean isConcurrent, Class elementClass, BeanTableIndexKeyFactory keyFactory){
         this.name = name;
-        this.isSynchronized = isSynchronized;
         this.elementClass = elementClass;
         indexKeyFactory = keyFactory;
+        init(isSynchronized, isConcurrent);
+    }
+    
+    private void init(boolean isSynchronized, boolean isConcurrent){
+        this.isSynchronized = isSynchronized || isConcurrent;
+        this.isConcurrent = isConcurrent;
+        if(isConcurrent){
+            indexValueMap = new ConcurrentSkipListMap(new ComparableComparator());
+            nullValueSet = ConcurrentHashMap.newKeySet();
+        }
+    }
+    
+    /**
+     * 並行モードかどうかを判定する。<p>
+     *
+     * @return trueの場合、並行モード
+     */
+    public boolean isConcurrent(){
+        return isConcurrent;
     }
     
     public String getName(){
@@ -126,7 +189,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         }else{
             Set elements = (Set)indexValueMap.get(indexKey);
             if(elements == null){
-                elements = new HashSet();
+                elements = isConcurrent ? ConcurrentHashMap.newKeySet() : new HashSet();
                 indexValueMap.put(indexKey, elements);
             }
             elements.add(element);
@@ -187,7 +250,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         return searchKeyElement(null);
     }
     public Set searchKeyElement(Set result){
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchKeyElementInternal(result);
             }
@@ -201,8 +264,10 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         }
         Iterator itr = indexValueMap.values().iterator();
         while(itr.hasNext()){
-            Set elements = (Set)itr.next();
-            result.add(elements.iterator().next());
+            Iterator elements = ((Set)itr.next()).iterator();
+            if(elements.hasNext()){
+                result.add(elements.next());
+            }
         }
         return result;
     }
@@ -211,7 +276,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         return searchNull(null);
     }
     public Set searchNull(Set result){
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchNullInternal(result);
             }
@@ -235,7 +300,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         return searchNotNull(null);
     }
     public Set searchNotNull(Set result){
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchNotNullInternal(result);
             }
@@ -258,7 +323,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
     }
     
     public Object searchByPrimaryElement(Object element) throws IndexPropertyAccessException{
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchByPrimaryElementInternal(element);
             }
@@ -271,16 +336,16 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         Set elements = (Set)indexValueMap.get(indexKey);
         if(elements == null){
             return null;
-        }else{
-            return elements.iterator().next();
         }
+        Iterator itr = elements.iterator();
+        return itr.hasNext() ? itr.next() : null;
     }
     
     public Set searchByElement(Object element) throws IndexPropertyAccessException{
         return searchByElement(element, null);
     }
     public Set searchByElement(Object element, Set result) throws IndexPropertyAccessException{
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchByElementInternal(element, result);
             }
@@ -310,7 +375,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         return searchInElement(null, elements);
     }
     public Set searchInElement(Set result, Object[] elements) throws IndexPropertyAccessException{
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchInElementInternal(result, elements);
             }
@@ -337,7 +402,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         return searchBy(value, null);
     }
     public Set searchBy(Object value, Set result){
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchByInternal(value, result);
             }
@@ -369,7 +434,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         return searchIn(null, values);
     }
     public Set searchIn(Set result, Object[] values){
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchInInternal(result, values);
             }
@@ -398,7 +463,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         return searchBy(keys, null);
     }
     public Set searchBy(Map keys, Set result) throws IllegalArgumentException{
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchByInternal(keys, result);
             }
@@ -427,7 +492,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         return searchIn(null, keys);
     }
     public Set searchIn(Set result, Map[] keys) throws IllegalArgumentException{
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchInInternal(result, keys);
             }
@@ -465,7 +530,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         return searchFrom(from, null);
     }
     public Set searchFrom(Object from, Set result){
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchFromInternal(from, result);
             }
@@ -505,7 +570,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         return searchTo(to, null);
     }
     public Set searchTo(Object to, Set result){
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchToInternal(to, result);
             }
@@ -546,7 +611,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         return searchRange(from, to, null);
     }
     public Set searchRange(Object from, Object to, Set result){
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchRangeInternal(from, to, result);
             }
@@ -593,7 +658,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         return searchFrom(from, inclusive, null);
     }
     public Set searchFrom(Object from,  boolean inclusive, Set result){
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchFromInternal(from, inclusive, result);
             }
@@ -633,7 +698,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         return searchTo(to, inclusive, null);
     }
     public Set searchTo(Object to,  boolean inclusive, Set result){
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchToInternal(to, inclusive, result);
             }
@@ -674,7 +739,7 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         return searchRange(from, fromInclusive, to, toInclusive, null);
     }
     public Set searchRange(Object from,  boolean fromInclusive, Object to,  boolean toInclusive, Set result){
-        if(isSynchronized){
+        if(isSynchronized && !isConcurrent){
             synchronized(this){
                 return searchRangeInternal(from, fromInclusive, to, toInclusive, result);
             }
@@ -711,14 +776,18 @@ public class BeanTableIndex implements Externalizable, Cloneable{
     public void writeExternal(ObjectOutput out, boolean writeValue) throws IOException{
         out.writeObject(name);
         out.writeObject(elementClass);
-        out.writeBoolean(isSynchronized);
+        out.writeByte(toMode(isSynchronized, isConcurrent));
         out.writeObject(indexKeyFactory);
         if(isSynchronized){
             synchronized(this){
                 out.writeObject(linkedIndex);
                 if(writeValue){
-                    out.writeObject(indexValueMap);
-                    out.writeObject(nullValueSet);
+                    if(isConcurrent){
+                        writeConcurrentValue(out);
+                    }else{
+                        out.writeObject(indexValueMap);
+                        out.writeObject(nullValueSet);
+                    }
                 }
             }
         }else{
@@ -729,18 +798,64 @@ public class BeanTableIndex implements Externalizable, Cloneable{
             }
         }
     }
+    
+    /**
+     * 同期化と並行モードの指定を、直列化形式のフラグに変換する。<p>
+     *
+     * @param isSynchronized 同期化されている場合true
+     * @param isConcurrent 並行モードの場合true
+     * @return 直列化形式のフラグ
+     */
+    static byte toMode(boolean isSynchronized, boolean isConcurrent){
+        byte mode = 0;
+        if(isSynchronized){
+            mode |= MODE_SYNCHRONIZED;
+        }
+        if(isConcurrent){
+            mode |= MODE_CONCURRENT;
+        }
+        return mode;
+    }
+    
+    /**
+     * 並行モードのインデックスを、並行モードでないインデックスと同じ形式で直列化する。<p>
+     *
+     * @param out 出力ストリーム
+     * @exception IOException 書き込みに失敗した場合
+     */
+    private void writeConcurrentValue(ObjectOutput out) throws IOException{
+        final TreeMap map = new TreeMap(indexValueMap.comparator());
+        final Iterator entries = indexValueMap.entrySet().iterator();
+        while(entries.hasNext()){
+            final Map.Entry entry = (Map.Entry)entries.next();
+            final Set elements = (Set)entry.getValue();
+            if(elements.size() != 0){
+                map.put(entry.getKey(), new HashSet(elements));
+            }
+        }
+        out.writeObject(map);
+        out.writeObject(new HashSet(nullValueSet));
+    }
+    
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
         readExternal(in, true);
     }
     public void readExternal(ObjectInput in, boolean readValue) throws IOException, ClassNotFoundException{
         name = (String)in.readObject();
         elementClass = (Class)in.readObject();
-        isSynchronized = in.readBoolean();
+        final byte mode = in.readByte();
+        isSynchronized = (mode & MODE_SYNCHRONIZED) != 0;
+        isConcurrent = (mode & MODE_CONCURRENT) != 0;
         indexKeyFactory = (BeanTableIndexKeyFactory)in.readObject();
         linkedIndex = (Set)in.readObject();
         if(readValue){
             indexValueMap = (TreeMap)in.readObject();
             nullValueSet = (Set)in.readObject();
+            if(isConcurrent){
+                toConcurrentValue();
+            }
+        }else if(isConcurrent){
+            init(isSynchronized, isConcurrent);
         }
     }
     
@@ -751,13 +866,33 @@ public class BeanTableIndex implements Externalizable, Cloneable{
         }catch(CloneNotSupportedException e){
             return null;
         }
-        clone.isSynchronized = isSynchronized;
-        clone.indexValueMap = new TreeMap(new ComparableComparator());
-        clone.nullValueSet = new HashSet();
+        clone.isSynchronized = isSynchronized || isConcurrent;
+        if(isConcurrent){
+            clone.indexValueMap = new ConcurrentSkipListMap(new ComparableComparator());
+            clone.nullValueSet = ConcurrentHashMap.newKeySet();
+        }else{
+            clone.indexValueMap = new TreeMap(new ComparableComparator());
+            clone.nullValueSet = new HashSet();
+        }
         clone.linkedIndex = new HashSet();
         return clone;
     }
     
+    private void toConcurrentValue(){
+        final ConcurrentSkipListMap map = new ConcurrentSkipListMap(new ComparableComparator());
+        final Iterator entries = indexValueMap.entrySet().iterator();
+        while(entries.hasNext()){
+            final Map.Entry entry = (Map.Entry)entries.next();
+            final Set elements = ConcurrentHashMap.newKeySet();
+            elements.addAll((Set)entry.getValue());
+            map.put(entry.getKey(), elements);
+        }
+        indexValueMap = map;
+        final Set nullSet = ConcurrentHashMap.newKeySet();
+        nullSet.addAll(nullValueSet);
+        nullValueSet = nullSet;
+    }
+    
     protected static class DefaultBeanTableIndexKeyFactory implements BeanTableIndexKeyFactory, Externalizable{
         protected List indexedProperties = new ArrayList();
         protected Set indexedPropertyNames = new HashSet();
@@ -53,10 +53,12 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
     
     protected Class elementClass;
     protected boolean isSynchronized;
+    protected boolean isConcurrent;
     protected Map nameIndexMap = new HashMap();
     protected Map singleIndexMap = new HashMap();
     protected Map complexIndexMap = new HashMap();
     protected Set valueSet = new HashSet();
+    protected ElementIdMap elementIdMap = new ElementIdMap();
     
     public BeanTableIndexManager(){
     }
@@ -69,12 +71,35 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
         this.isSynchronized = isSynchronized;
     }
     
+    /**
+     * インスタンスを生成する。<p>
+     * isConcurrentがtrueの場合、インデックスを{@link BeanTableIndex#isConcurrent() 並行モード}で生成し、インデックスの検索が要素の追加や削除をブロックしないようにする。<br>
+     * 並行モードは、同期化する場合のみ有効で、直列化しても引き継がれない。<br>
+     *
+     * @param elementClass 要素の型
+     * @param isSynchronized 同期化するかどうか。同期化する場合は、true
+     * @param isConcurrent インデックスを並行モードにするかどうか。並行モードにする場合は、true
+     */
+    public BeanTableIndexManager(Class elementClass, boolean isSynchronized, boolean isConcurrent){
+        this(elementClass, isSynchronized);
+        this.isConcurrent = isSynchronized && isConcurrent;
+    }
+    
+    /**
+     * インデックスを並行モードで生成するかどうかを判定する。<p>
+     *
+     * @return trueの場合、並行モード
+     */
+    public boolean isConcurrent(){
+        return isConcurrent;
+    }
+    
     public Class getElementClass(){
         return elementClass;
     }
     
     public void setIndex(String name, String[] props) throws NoSuchPropertyException{
-        BeanTableIndex index = new BeanTableIndex(name, isSynchronized, elementClass, props);
+        BeanTableIndex index = new BeanTableIndex(name, isSynchronized, isConcurrent, elementClass, props);
         if(isSynchronized){
             synchronized(this){
                 setIndexInternal(name, index, false);
@@ -84,7 +109,7 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
         }
     }
     public void setIndex(String name, BeanTableIndexKeyFactory keyFactory){
-        BeanTableIndex index = new BeanTableIndex(name, isSynchronized, elementClass, keyFactory);
+        BeanTableIndex index = new BeanTableIndex(name, isSynchronized, isConcurrent, elementClass, keyFactory);
         try{
             if(isSynchronized){
                 synchronized(this){
@@ -123,7 +148,7 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
                 BeanTableIndex singleIndex = (BeanTableIndex)singleIndexMap.get(propName);
                 if(singleIndex == null){
                     try{
-                        singleIndex = new BeanTableIndex(isSynchronized, elementClass, new String[]{propName});
+                        singleIndex = new BeanTableIndex(null, isSynchronized, isConcurrent, elementClass, new String[]{propName});
                     }catch(NoSuchPropertyException e){
                         if(containsDummyProp){
                             continue;
@@ -243,6 +268,7 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
         if(!valueSet.add(element)){
             return false;
         }
+        elementIdMap.add(element);
         Iterator itr = singleIndexMap.values().iterator();
         while(itr.hasNext()){
             BeanTableIndex index = (BeanTableIndex)itr.next();
@@ -277,6 +303,7 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
             index.remove(element);
         }
         valueSet.remove(element);
+        elementIdMap.remove(element);
     }
     
     public void replace(Object oldElement, Object newElement) throws IndexPropertyAccessException{
@@ -301,6 +328,8 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
         }
         valueSet.remove(oldElement);
         valueSet.add(newElement);
+        elementIdMap.remove(oldElement);
+        elementIdMap.add(newElement);
     }
     
     public boolean addAll(Collection c){
@@ -318,6 +347,7 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
         while(itr.hasNext()){
             Object element = itr.next();
             if(valueSet.add(element)){
+                elementIdMap.add(element);
                 Iterator itr2 = singleIndexMap.values().iterator();
                 while(itr2.hasNext()){
                     BeanTableIndex index = (BeanTableIndex)itr2.next();
@@ -359,6 +389,7 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
                     index.remove(element);
                 }
                 elements.remove();
+                elementIdMap.remove(element);
             }
         }
     }
@@ -384,6 +415,7 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
             index.clear();
         }
         valueSet.clear();
+        elementIdMap.clear();
     }
     
     public Set elements(){
@@ -406,6 +438,35 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
         return result;
     }
     
+    /**
+     * 指定されたビットマップが表す要素の集合を取得する。<p>
+     *
+     * @param bitmap {@link #elementBitmap()}または{@link #toElementBitmap(Collection)}で取得したビットマップ
+     * @return 要素の集合
+     */
+    public Set toElements(ElementBitmap bitmap){
+        return elementIdMap.toSet(bitmap, null);
+    }
+    
+    /**
+     * 全ての要素を表すビットマップを取得する。<p>
+     *
+     * @return ビットマップ
+     */
+    public ElementBitmap elementBitmap(){
+        return elementIdMap.bitmap();
+    }
+    
+    /**
+     * 指定された要素の集合をビットマップに変換する。<p>
+     *
+     * @param elements 要素の集合
+     * @return ビットマップ
+     */
+    public ElementBitmap toElementBitmap(Collection elements){
+        return elementIdMap.toBitmap(elements);
+    }
+    
     public Set searchNull(String indexName, String propName) throws IndexNotFoundException{
         return searchNull(null, indexName, propName);
     }
@@ -888,7 +949,7 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
     }
     public void writeExternal(ObjectOutput out, boolean writeValue) throws IOException{
         out.writeObject(elementClass);
-        out.writeBoolean(isSynchronized);
+        out.writeByte(BeanTableIndex.toMode(isSynchronized, isConcurrent));
         if(isSynchronized){
             synchronized(this){
                 out.writeInt(nameIndexMap.size());
@@ -918,7 +979,9 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
     }
     public void readExternal(ObjectInput in, boolean readValue) throws IOException, ClassNotFoundException{
         elementClass = (Class)in.readObject();
-        isSynchronized = in.readBoolean();
+        final byte mode = in.readByte();
+        isSynchronized = (mode & BeanTableIndex.MODE_SYNCHRONIZED) != 0;
+        isConcurrent = (mode & BeanTableIndex.MODE_CONCURRENT) != 0;
         nameIndexMap = new HashMap();
         singleIndexMap = new HashMap();
         complexIndexMap = new HashMap();
@@ -937,6 +1000,8 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
         }else{
             valueSet = new HashSet();
         }
+        elementIdMap = new ElementIdMap();
+        elementIdMap.addAll(valueSet);
     }
     
     public BeanTableIndexManager cloneEmpty(boolean isSynchronized){
@@ -947,6 +1012,7 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
             return null;
         }
         clone.isSynchronized = isSynchronized;
+        clone.isConcurrent = isSynchronized && isConcurrent;
         clone.nameIndexMap = new HashMap();
         clone.singleIndexMap = new HashMap();
         clone.complexIndexMap = new HashMap();
@@ -960,6 +1026,7 @@ public class BeanTableIndexManager implements Externalizable, Cloneable{
             // 発生しないはず
         }
         clone.valueSet = new HashSet();
+        clone.elementIdMap = new ElementIdMap();
         return clone;
     }
 }
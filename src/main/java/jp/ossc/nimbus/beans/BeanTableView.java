@@ -69,7 +69,7 @@ public class BeanTableView implements Cloneable{
     protected static final int OPERATOR_CNIMP = 10;
     
     protected BeanTableIndexManager indexManager;
-    protected Set resultSet;
+    protected ElementBitmap resultBitmap;
     protected int operator = OPERATOR_AND;
     
     /**
@@ -87,7 +87,7 @@ public class BeanTableView implements Cloneable{
      * @return 検索結果のBean集合
      */
     public Set getResultSet(){
-        return resultSet == null ? indexManager.elements() : resultSet;
+        return resultBitmap == null ? indexManager.elements() : indexManager.toElements(resultBitmap);
     }
     
     /**
@@ -96,7 +96,7 @@ public class BeanTableView implements Cloneable{
      * @return 検索結果のBeanリスト
      */
     public List getResultList(){
-        return new ArrayList(resultSet == null ? indexManager.elements() : resultSet);
+        return new ArrayList(getResultSet());
     }
     
     /**
@@ -120,7 +120,7 @@ public class BeanTableView implements Cloneable{
      */
     public List getResultList(String[] propNames, boolean[] isAsc) throws IndexPropertyAccessException{
         List result = new ArrayList();
-        result.addAll(resultSet == null ? indexManager.elements() : resultSet);
+        result.addAll(getResultSet());
         if(result.size() < 2 || propNames == null || propNames.length == 0){
             return result;
         }
@@ -159,7 +159,7 @@ public class BeanTableView implements Cloneable{
         SimpleProperty prop = new SimpleProperty(propName);
         Set distinctSet = new HashSet();
         try{
-            Set elements = resultSet == null ? indexManager.elements() : resultSet;
+            Set elements = getResultSet();
             Iterator itr = elements.iterator();
             while(itr.hasNext()){
                 Object element = itr.next();
@@ -366,63 +366,57 @@ public class BeanTableView implements Cloneable{
     }
     
     protected void operate(Set elements){
-        if(elements == null){
-            elements = new HashSet(0);
+        final ElementBitmap bitmap = elements == null ? new ElementBitmap() : indexManager.toElementBitmap(elements);
+        if(resultBitmap == null){
+            resultBitmap = bitmap;
+            return;
         }
         switch(operator){
         case OPERATOR_OR:
-            resultSet.addAll(elements);
+            resultBitmap.or(bitmap);
             break;
         case OPERATOR_NAND:
-            resultSet.retainAll(elements);
-            Set all = indexManager.elements();
-            all.removeAll(resultSet);
-            resultSet = all;
+            resultBitmap = indexManager.elementBitmap().andNot(resultBitmap.and(bitmap));
             break;
         case OPERATOR_NOR:
-            resultSet.addAll(elements);
-            all = indexManager.elements();
-            all.removeAll(resultSet);
-            resultSet = all;
+            resultBitmap = indexManager.elementBitmap().andNot(resultBitmap.or(bitmap));
             break;
         case OPERATOR_XOR:
-            Set tmpSet = new HashSet(resultSet);
-            tmpSet.retainAll(elements);
-            resultSet.addAll(elements);
-            resultSet.removeAll(tmpSet);
+            resultBitmap.xor(bitmap);
             break;
         case OPERATOR_XNOR:
-            tmpSet = new HashSet(resultSet);
-            tmpSet.retainAll(elements);
-            resultSet.addAll(elements);
-            resultSet.removeAll(tmpSet);
-            tmpSet = indexManager.elements();
-            tmpSet.removeAll(resultSet);
-            resultSet = tmpSet;
+            resultBitmap = indexManager.elementBitmap().andNot(resultBitmap.xor(bitmap));
             break;
         case OPERATOR_IMP:
-            all = indexManager.elements();
-            all.removeAll(resultSet);
-            all.addAll(elements);
-            resultSet = all;
+            resultBitmap = indexManager.elementBitmap().andNot(resultBitmap).or(bitmap);
             break;
         case OPERATOR_NIMP:
-            resultSet.removeAll(elements);
+            resultBitmap.andNot(bitmap);
             break;
         case OPERATOR_CIMP:
-            all = indexManager.elements();
-            all.removeAll(elements);
-            all.addAll(resultSet);
-            resultSet = all;
+            resultBitmap = indexManager.elementBitmap().andNot(bitmap).or(resultBitmap);
             break;
         case OPERATOR_CNIMP:
-            Set targetSet = new HashSet(elements);
-            targetSet.removeAll(resultSet);
-            resultSet = targetSet;
+            resultBitmap = bitmap.andNot(resultBitmap);
             break;
         case OPERATOR_AND:
         default:
-            resultSet.retainAll(elements);
+            resultBitmap.and(bitmap);
+        }
+    }
+    
+    /**
+     * 指定された検索ビューの検索結果を、このビューのインデックス管理のビットマップとして取得する。<p>
+     * 同じインデックス管理の検索ビューの場合は、要素集合を経由せずにビットマップを複製する。<br>
+     *
+     * @param view 検索ビュー
+     * @return 検索結果のビットマップ
+     */
+    protected ElementBitmap toElementBitmap(BeanTableView view){
+        if(view.indexManager == indexManager){
+            return view.resultBitmap == null ? indexManager.elementBitmap() : (ElementBitmap)view.resultBitmap.clone();
+        }else{
+            return indexManager.toElementBitmap(view.getResultSet());
         }
     }
     
@@ -432,12 +426,10 @@ public class BeanTableView implements Cloneable{
      * @return 逆集合をとった結果のこのビュー
      */
     public BeanTableView not(){
-        if(resultSet == null){
-            resultSet = new HashSet();
+        if(resultBitmap == null){
+            resultBitmap = new ElementBitmap();
         }else{
-            Set all = indexManager.elements();
-            all.removeAll(resultSet);
-            resultSet = all;
+            resultBitmap = indexManager.elementBitmap().andNot(resultBitmap);
         }
         return this;
     }
@@ -449,10 +441,10 @@ public class BeanTableView implements Cloneable{
      * @return 連結された結果のこのビュー
      */
     public BeanTableView and(BeanTableView view){
-        if(resultSet == null){
-            resultSet = indexManager.elements();
+        if(resultBitmap == null){
+            resultBitmap = indexManager.elementBitmap();
         }
-        resultSet.retainAll(view.getResultSet());
+        resultBitmap.and(toElementBitmap(view));
         return this;
     }
     
@@ -463,10 +455,10 @@ public class BeanTableView implements Cloneable{
      * @return 連結された結果のこのビュー
      */
     public BeanTableView or(BeanTableView view){
-        if(resultSet == null){
-            resultSet = indexManager.elements();
+        if(resultBitmap == null){
+            resultBitmap = indexManager.elementBitmap();
         }
-        resultSet.addAll(view.getResultSet());
+        resultBitmap.or(toElementBitmap(view));
         return this;
     }
     
@@ -477,13 +469,10 @@ public class BeanTableView implements Cloneable{
      * @return 結果となるこのビュー
      */
     public BeanTableView nand(BeanTableView view){
-        if(resultSet == null){
-            resultSet = indexManager.elements();
+        if(resultBitmap == null){
+            resultBitmap = indexManager.elementBitmap();
         }
-        resultSet.retainAll(view.getResultSet());
-        Set all = indexManager.elements();
-        all.removeAll(resultSet);
-        resultSet = all;
+        resultBitmap = indexManager.elementBitmap().andNot(resultBitmap.and(toElementBitmap(view)));
         return this;
     }
     
@@ -494,13 +483,10 @@ public class BeanTableView implements Cloneable{
      * @return 結果となるこのビュー
      */
     public BeanTableView nor(BeanTableView view){
-        if(resultSet == null){
-            resultSet = indexManager.elements();
+        if(resultBitmap == null){
+            resultBitmap = indexManager.elementBitmap();
         }
-        resultSet.addAll(view.getResultSet());
-        Set all = indexManager.elements();
-        all.removeAll(resultSet);
-        resultSet = all;
+        resultBitmap = indexManager.elementBitmap().andNot(resultBitmap.or(toElementBitmap(view)));
         return this;
     }
     
@@ -511,13 +497,10 @@ public class BeanTableView implements Cloneable{
      * @return 結果となるこのビュー
      */
     public BeanTableView xor(BeanTableView view){
-        if(resultSet == null){
-            resultSet = indexManager.elements();
+        if(resultBitmap == null){
+            resultBitmap = indexManager.elementBitmap();
         }
-        Set andSet = new HashSet(resultSet);
-        andSet.retainAll(view.getResultSet());
-        resultSet.addAll(view.getResultSet());
-        resultSet.removeAll(andSet);
+        resultBitmap.xor(toElementBitmap(view));
         return this;
     }
     
@@ -528,16 +511,10 @@ public class BeanTableView implements Cloneable{
      * @return 結果となるこのビュー
      */
     public BeanTableView xnor(BeanTableView view){
-        if(resultSet == null){
-            resultSet = indexManager.elements();
+        if(resultBitmap == null){
+            resultBitmap = indexManager.elementBitmap();
         }
-        Set tmpSet = new HashSet(resultSet);
-        tmpSet.retainAll(view.getResultSet());
-        resultSet.addAll(view.getResultSet());
-        resultSet.removeAll(tmpSet);
-        tmpSet = indexManager.elements();
-        tmpSet.removeAll(resultSet);
-        resultSet = tmpSet;
+        resultBitmap = indexManager.elementBitmap().andNot(resultBitmap.xor(toElementBitmap(view)));
         return this;
     }
     
@@ -548,15 +525,13 @@ public class BeanTableView implements Cloneable{
      * @return 結果となるこのビュー
      */
     public BeanTableView imp(BeanTableView view){
-        Set all = null;
-        if(resultSet == null){
-            all = new HashSet();
+        ElementBitmap all = null;
+        if(resultBitmap == null){
+            all = new ElementBitmap();
         }else{
-            all = indexManager.elements();
-            all.removeAll(resultSet);
+            all = indexManager.elementBitmap().andNot(resultBitmap);
         }
-        all.addAll(view.getResultSet());
-        resultSet = all;
+        resultBitmap = all.or(toElementBitmap(view));
         return this;
     }
     
@@ -567,10 +542,10 @@ public class BeanTableView implements Cloneable{
      * @return 結果となるこのビュー
      */
     public BeanTableView nimp(BeanTableView view){
-        if(resultSet == null){
-            resultSet = indexManager.elements();
+        if(resultBitmap == null){
+            resultBitmap = indexManager.elementBitmap();
         }
-        resultSet.removeAll(view.getResultSet());
+        resultBitmap.andNot(toElementBitmap(view));
         return this;
     }
     
@@ -581,12 +556,11 @@ public class BeanTableView implements Cloneable{
      * @return 結果となるこのビュー
      */
     public BeanTableView cimp(BeanTableView view){
-        Set all = indexManager.elements();
-        all.removeAll(view.getResultSet());
-        if(resultSet != null){
-            all.addAll(resultSet);
+        ElementBitmap all = indexManager.elementBitmap().andNot(toElementBitmap(view));
+        if(resultBitmap != null){
+            all.or(resultBitmap);
         }
-        resultSet = all;
+        resultBitmap = all;
         return this;
     }
     
@@ -597,13 +571,13 @@ public class BeanTableView implements Cloneable{
      * @return 結果となるこのビュー
      */
     public BeanTableView cnimp(BeanTableView view){
-        Set targetSet = new HashSet(view.getResultSet());
-        if(resultSet == null){
-            targetSet.removeAll(indexManager.elements());
+        ElementBitmap target = toElementBitmap(view);
+        if(resultBitmap == null){
+            target.andNot(indexManager.elementBitmap());
         }else{
-            targetSet.removeAll(resultSet);
+            target.andNot(resultBitmap);
         }
-        resultSet = targetSet;
+        resultBitmap = target;
         return this;
     }
     
@@ -617,14 +591,7 @@ public class BeanTableView implements Cloneable{
      * @exception IndexNotFoundException 該当するインデックスが存在しないか、または複合インデックスの場合
      */
     public BeanTableView searchKeyElement(String indexName, String[] propNames) throws IndexNotFoundException{
-        if(resultSet == null){
-            resultSet = indexManager.searchKeyElement(resultSet, indexName, propNames);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchKeyElement(indexName, propNames));
-        }
+        operate(indexManager.searchKeyElement(indexName, propNames));
         return this;
     }
     
@@ -638,14 +605,7 @@ public class BeanTableView implements Cloneable{
      * @exception IndexNotFoundException 該当するインデックスが存在しないか、または複合インデックスの場合
      */
     public BeanTableView searchNull(String indexName, String propName) throws IndexNotFoundException{
-        if(resultSet == null){
-            resultSet = indexManager.searchNull(new HashSet(), indexName, propName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchNull(indexName, propName));
-        }
+        operate(indexManager.searchNull(indexName, propName));
         return this;
     }
     
@@ -659,14 +619,7 @@ public class BeanTableView implements Cloneable{
      * @exception IndexNotFoundException 該当するインデックスが存在しないか、または複合インデックスの場合
      */
     public BeanTableView searchNotNull(String indexName, String propName) throws IndexNotFoundException{
-        if(resultSet == null){
-            resultSet = indexManager.searchNotNull(new HashSet(), indexName, propName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchNotNull(indexName, propName));
-        }
+        operate(indexManager.searchNotNull(indexName, propName));
         return this;
     }
     
@@ -686,14 +639,7 @@ public class BeanTableView implements Cloneable{
         String indexName,
         String[] propNames
     ) throws IndexNotFoundException, IndexPropertyAccessException{
-        if(resultSet == null){
-            resultSet = indexManager.searchByElement(new HashSet(), element, indexName, propNames);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchByElement(element, indexName, propNames));
-        }
+        operate(indexManager.searchByElement(element, indexName, propNames));
         return this;
     }
     
@@ -713,14 +659,7 @@ public class BeanTableView implements Cloneable{
         String[] propNames,
         Object[] elements
     ) throws IndexNotFoundException, IndexPropertyAccessException{
-        if(resultSet == null){
-            resultSet = indexManager.searchInElement(resultSet, indexName, propNames, elements);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchInElement(indexName, propNames, elements));
-        }
+        operate(indexManager.searchInElement(indexName, propNames, elements));
         return this;
     }
     
@@ -739,14 +678,7 @@ public class BeanTableView implements Cloneable{
         String indexName,
         String propName
     ){
-        if(resultSet == null){
-            resultSet = indexManager.searchBy(new HashSet(), value, indexName, propName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchBy(value, indexName, propName));
-        }
+        operate(indexManager.searchBy(value, indexName, propName));
         return this;
     }
     
@@ -765,14 +697,7 @@ public class BeanTableView implements Cloneable{
         String propName,
         Object[] values
     ){
-        if(resultSet == null){
-            resultSet = indexManager.searchIn(resultSet, indexName, propName, values);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchIn(indexName, propName, values));
-        }
+        operate(indexManager.searchIn(indexName, propName, values));
         return this;
     }
     
@@ -790,14 +715,7 @@ public class BeanTableView implements Cloneable{
         Map keys,
         String indexName
     ) throws IndexNotFoundException, IllegalArgumentException{
-        if(resultSet == null){
-            resultSet = indexManager.searchBy(new HashSet(), keys, indexName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchBy(keys, indexName));
-        }
+        operate(indexManager.searchBy(keys, indexName));
         return this;
     }
     
@@ -815,14 +733,7 @@ public class BeanTableView implements Cloneable{
         String indexName,
         Map[] keys
     ) throws IndexNotFoundException, IllegalArgumentException{
-        if(resultSet == null){
-            resultSet = indexManager.searchIn(resultSet, indexName, keys);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchIn(indexName, keys));
-        }
+        operate(indexManager.searchIn(indexName, keys));
         return this;
     }
     
@@ -841,7 +752,7 @@ public class BeanTableView implements Cloneable{
             throw indexName == null ? new IndexNotFoundException(propNames) : new IndexNotFoundException(indexName);
         }
         index = index.cloneEmpty(false);
-        Iterator itr = resultSet.iterator();
+        Iterator itr = getResultSet().iterator();
         while(itr.hasNext()){
             Object element = itr.next();
             index.add(element);
@@ -865,14 +776,7 @@ public class BeanTableView implements Cloneable{
         String indexName,
         String propName
     ) throws IndexNotFoundException, IndexPropertyAccessException{
-        if(resultSet == null){
-            resultSet = indexManager.searchFromElement(from, indexName, propName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchFromElement(from, indexName, propName));
-        }
+        operate(indexManager.searchFromElement(from, indexName, propName));
         return this;
     }
     
@@ -895,14 +799,7 @@ public class BeanTableView implements Cloneable{
         String indexName,
         String propName
     ) throws IndexNotFoundException, IndexPropertyAccessException{
-        if(resultSet == null){
-            resultSet = indexManager.searchFromElement(from, inclusive, indexName, propName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchFromElement(from, inclusive, indexName, propName));
-        }
+        operate(indexManager.searchFromElement(from, inclusive, indexName, propName));
         return this;
     }
 
@@ -922,14 +819,7 @@ public class BeanTableView implements Cloneable{
         String indexName,
         String propName
     ) throws IndexNotFoundException{
-        if(resultSet == null){
-            resultSet = indexManager.searchFrom(from, indexName, propName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchFrom(from, indexName, propName));
-        }
+        operate(indexManager.searchFrom(from, indexName, propName));
         return this;
     }
     
@@ -951,14 +841,7 @@ public class BeanTableView implements Cloneable{
         String indexName,
         String propName
     ) throws IndexNotFoundException{
-        if(resultSet == null){
-            resultSet = indexManager.searchFrom(from, inclusive, indexName, propName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchFrom(from, inclusive, indexName, propName));
-        }
+        operate(indexManager.searchFrom(from, inclusive, indexName, propName));
         return this;
     }
 
@@ -979,14 +862,7 @@ public class BeanTableView implements Cloneable{
         String indexName,
         String propName
     ) throws IndexNotFoundException, IndexPropertyAccessException{
-        if(resultSet == null){
-            resultSet = indexManager.searchToElement(to, indexName, propName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchToElement(to, indexName, propName));
-        }
+        operate(indexManager.searchToElement(to, indexName, propName));
         return this;
     }
     
@@ -1009,14 +885,7 @@ public class BeanTableView implements Cloneable{
         String indexName,
         String propName
     ) throws IndexNotFoundException, IndexPropertyAccessException{
-        if(resultSet == null){
-            resultSet = indexManager.searchToElement(to, inclusive, indexName, propName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchToElement(to, inclusive, indexName, propName));
-        }
+        operate(indexManager.searchToElement(to, inclusive, indexName, propName));
         return this;
     }
 
@@ -1036,14 +905,7 @@ public class BeanTableView implements Cloneable{
         String indexName,
         String propName
     ) throws IndexNotFoundException{
-        if(resultSet == null){
-            resultSet = indexManager.searchTo(to, indexName, propName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchTo(to, indexName, propName));
-        }
+        operate(indexManager.searchTo(to, indexName, propName));
         return this;
     }
     
@@ -1065,14 +927,7 @@ public class BeanTableView implements Cloneable{
         String indexName,
         String propName
     ) throws IndexNotFoundException{
-        if(resultSet == null){
-            resultSet = indexManager.searchTo(to, inclusive, indexName, propName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchTo(to, inclusive, indexName, propName));
-        }
+        operate(indexManager.searchTo(to, inclusive, indexName, propName));
         return this;
     }
 
@@ -1095,14 +950,7 @@ public class BeanTableView implements Cloneable{
         String indexName,
         String propName
     ) throws IndexNotFoundException, IndexPropertyAccessException{
-        if(resultSet == null){
-            resultSet = indexManager.searchRangeElement(from, to, indexName, propName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchRangeElement(from, to, indexName, propName));
-        }
+        operate(indexManager.searchRangeElement(from, to, indexName, propName));
         return this;
     }
     
@@ -1129,14 +977,7 @@ public class BeanTableView implements Cloneable{
         String indexName,
         String propName
     ) throws IndexNotFoundException, IndexPropertyAccessException{
-        if(resultSet == null){
-            resultSet = indexManager.searchRangeElement(from, fromInclusive, to, toInclusive, indexName, propName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchRangeElement(from, fromInclusive, to, toInclusive, indexName, propName));
-        }
+        operate(indexManager.searchRangeElement(from, fromInclusive, to, toInclusive, indexName, propName));
         return this;
     }
 
@@ -1158,14 +999,7 @@ public class BeanTableView implements Cloneable{
         String indexName,
         String propName
     ) throws IndexNotFoundException{
-        if(resultSet == null){
-            resultSet = indexManager.searchRange(from, to, indexName, propName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchRange(from, to, indexName, propName));
-        }
+        operate(indexManager.searchRange(from, to, indexName, propName));
         return this;
     }
     
@@ -1191,14 +1025,7 @@ public class BeanTableView implements Cloneable{
         String indexName,
         String propName
     ) throws IndexNotFoundException{
-        if(resultSet == null){
-            resultSet = indexManager.searchRange(from, fromInclusive, to, toInclusive, indexName, propName);
-            if(resultSet == null){
-                resultSet = new HashSet();
-            }
-        }else{
-            operate(indexManager.searchRange(from, fromInclusive, to, toInclusive, indexName, propName));
-        }
+        operate(indexManager.searchRange(from, fromInclusive, to, toInclusive, indexName, propName));
         return this;
     }
 
@@ -1215,8 +1042,8 @@ public class BeanTableView implements Cloneable{
             clone = (BeanTableView)super.clone();
         }catch(CloneNotSupportedException e){
         }
-        if(resultSet != null){
-            clone.resultSet = new HashSet(resultSet);
+        if(resultBitmap != null){
+            clone.resultBitmap = (ElementBitmap)resultBitmap.clone();
         }
         operator = OPERATOR_AND;
         return clone;
@@ -0,0 +1,253 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.beans;
+
+import java.util.Set;
+import java.util.HashSet;
+import java.util.BitSet;
+import java.util.Iterator;
+
+/**
+ * {@link ElementIdMap}で割り当てたIDのビットマップで表現した要素集合。<p>
+ * 集合演算は、ビット列のワード単位の演算で行う。IDが割り当てられていない要素は、ビットマップの外に集合として保持し、同様に演算する。<br>
+ * 集合演算のメソッドは、このインスタンス自身を変更して、このインスタンスを返す。<br>
+ * 作成した{@link ElementIdMap}の世代を保持し、世代の異なるビットマップ同士を演算する場合は、古い方のビットマップから、その後に再利用されたIDを取り除いてから演算する。<br>
+ *
+ * @author M.Takata
+ * @see ElementIdMap
+ */
+public class ElementBitmap implements Cloneable{
+    
+    protected BitSet bits;
+    protected Set others;
+    protected ElementIdMap idMap;
+    protected long epoch;
+    
+    /**
+     * 空のビットマップを生成する。<p>
+     */
+    public ElementBitmap(){
+        this(new BitSet(), null);
+    }
+    
+    /**
+     * ビットマップを生成する。<p>
+     *
+     * @param bits IDのビット列
+     * @param others IDが割り当てられていない要素の集合
+     */
+    public ElementBitmap(BitSet bits, Set others){
+        this(bits, others, null, 0);
+    }
+    
+    /**
+     * 指定された{@link ElementIdMap}の世代のビットマップを生成する。<p>
+     *
+     * @param bits IDのビット列
+     * @param others IDが割り当てられていない要素の集合
+     * @param idMap IDを割り当てたマッピング
+     * @param epoch 作成時のマッピングの世代
+     */
+    public ElementBitmap(BitSet bits, Set others, ElementIdMap idMap, long epoch){
+        this.bits = bits;
+        this.others = others == null || others.size() == 0 ? null : others;
+        this.idMap = idMap;
+        this.epoch = epoch;
+    }
+    
+    /**
+     * IDのビット列を取得する。<p>
+     *
+     * @return IDのビット列
+     */
+    public BitSet getBits(){
+        return bits;
+    }
+    
+    /**
+     * IDが割り当てられていない要素の集合を取得する。<p>
+     *
+     * @return IDが割り当てられていない要素の集合。存在しない場合は、null
+     */
+    public Set getOthers(){
+        return others;
+    }
+    
+    /**
+     * 要素数を取得する。<p>
+     *
+     * @return 要素数
+     */
+    public int size(){
+        return bits.cardinality() + (others == null ? 0 : others.size());
+    }
+    
+    /**
+     * 空かどうかを判定する。<p>
+     *
+     * @return 空の場合true
+     */
+    public boolean isEmpty(){
+        return bits.isEmpty() && others == null;
+    }
+    
+    /**
+     * 指定されたビットマップとの論理積をとる。<p>
+     *
+     * @param bitmap ビットマップ
+     * @return このビットマップ
+     */
+    public ElementBitmap and(ElementBitmap bitmap){
+        align(bitmap);
+        bits.and(bitmap.bits);
+        if(others != null){
+            if(bitmap.others == null){
+                others = null;
+            }else{
+                others.retainAll(bitmap.others);
+                if(others.size() == 0){
+                    others = null;
+                }
+            }
+        }
+        return this;
+    }
+    
+    /**
+     * 指定されたビットマップとの論理和をとる。<p>
+     *
+     * @param bitmap ビットマップ
+     * @return このビットマップ
+     */
+    public ElementBitmap or(ElementBitmap bitmap){
+        align(bitmap);
+        bits.or(bitmap.bits);
+        if(bitmap.others != null){
+            if(others == null){
+                others = new HashSet(bitmap.others);
+            }else{
+                others.addAll(bitmap.others);
+            }
+        }
+        return this;
+    }
+    
+    /**
+     * 指定されたビットマップとの排他的論理和をとる。<p>
+     *
+     * @param bitmap ビットマップ
+     * @return このビットマップ
+     */
+    public ElementBitmap xor(ElementBitmap bitmap){
+        align(bitmap);
+        bits.xor(bitmap.bits);
+        if(bitmap.others != null){
+            if(others == null){
+                others = new HashSet(bitmap.others);
+            }else{
+                Iterator itr = bitmap.others.iterator();
+                while(itr.hasNext()){
+                    Object element = itr.next();
+                    if(!others.remove(element)){
+                        others.add(element);
+                    }
+                }
+                if(others.size() == 0){
+                    others = null;
+                }
+            }
+        }
+        return this;
+    }
+    
+    /**
+     * 指定されたビットマップに含まれる要素を取り除く。<p>
+     *
+     * @param bitmap ビットマップ
+     * @return このビットマップ
+     */
+    public ElementBitmap andNot(ElementBitmap bitmap){
+        align(bitmap);
+        bits.andNot(bitmap.bits);
+        if(others != null && bitmap.others != null){
+            others.removeAll(bitmap.others);
+            if(others.size() == 0){
+                others = null;
+            }
+        }
+        return this;
+    }
+    
+    /**
+     * 演算する前に、このビットマップと指定されたビットマップの世代を揃える。<p>
+     * 古い方のビットマップから、その後に再利用されたIDを取り除く。そのため、指定されたビットマップが変更される場合がある。<br>
+     *
+     * @param bitmap 演算するビットマップ
+     */
+    protected void align(ElementBitmap bitmap){
+        if(bitmap.idMap == null){
+            return;
+        }
+        if(idMap == null){
+            idMap = bitmap.idMap;
+            epoch = bitmap.epoch;
+            return;
+        }
+        if(idMap != bitmap.idMap){
+            return;
+        }
+        if(epoch < bitmap.epoch){
+            idMap.expire(this, bitmap.epoch);
+        }else if(bitmap.epoch < epoch){
+            idMap.expire(bitmap, epoch);
+        }
+    }
+    
+    /**
+     * 複製を作る。<p>
+     *
+     * @return 複製
+     */
+    public Object clone(){
+        ElementBitmap clone = null;
+        try{
+            clone = (ElementBitmap)super.clone();
+        }catch(CloneNotSupportedException e){
+            return null;
+        }
+        clone.bits = (BitSet)bits.clone();
+        if(others != null){
+            clone.others = new HashSet(others);
+        }
+        return clone;
+    }
+}
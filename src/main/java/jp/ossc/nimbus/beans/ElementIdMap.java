@@ -0,0 +1,257 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.beans;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * 要素と整数IDのマッピング。<p>
+ * インデックスに登録された要素に、0から詰めて採番した整数IDを割り当てる。削除された要素のIDは、次に追加される要素に再利用されるため、IDの最大値は、登録されている要素数の最大値を超えない。<br>
+ * IDを割り当てる毎に世代を進め、IDを割り当てた世代を記録する。{@link ElementBitmap}は作成時の世代を保持し、それより後の世代で再利用されたIDは、削除済みの別の要素のIDとして扱う。そのため、削除前に作成されたビットマップに、後から追加された別の要素が含まれる事はない。<br>
+ * 検索結果を{@link ElementBitmap}で表現する事で、検索結果同士の集合演算を、要素集合のコピーではなく、ビット列の演算で行う事ができる。<br>
+ * このクラスは、スレッドセーフである。<br>
+ *
+ * @author M.Takata
+ * @see ElementBitmap
+ */
+public class ElementIdMap{
+    
+    protected Map idMap = new HashMap();
+    protected Object[] elements = new Object[16];
+    protected long[] epochs = new long[16];
+    protected BitSet ids = new BitSet();
+    protected int nextId;
+    protected int maxId = -1;
+    protected long epoch;
+    protected long reuseEpoch;
+    
+    /**
+     * 要素を追加して、IDを割り当てる。<p>
+     * 既に追加されている場合は、割り当て済みのIDを返す。<br>
+     *
+     * @param element 要素
+     * @return ID
+     */
+    public synchronized int add(Object element){
+        Integer id = (Integer)idMap.get(element);
+        if(id != null){
+            return id.intValue();
+        }
+        final int newId = ids.nextClearBit(nextId);
+        nextId = newId + 1;
+        ids.set(newId);
+        if(newId >= elements.length){
+            final int length = Math.max(elements.length * 2, newId + 1);
+            Object[] newElements = new Object[length];
+            System.arraycopy(elements, 0, newElements, 0, elements.length);
+            elements = newElements;
+            long[] newEpochs = new long[length];
+            System.arraycopy(epochs, 0, newEpochs, 0, epochs.length);
+            epochs = newEpochs;
+        }
+        epoch++;
+        if(newId <= maxId){
+            reuseEpoch = epoch;
+        }else{
+            maxId = newId;
+        }
+        epochs[newId] = epoch;
+        elements[newId] = element;
+        idMap.put(element, new Integer(newId));
+        return newId;
+    }
+    
+    /**
+     * 要素を全て追加して、IDを割り当てる。<p>
+     *
+     * @param c 要素の集合
+     */
+    public synchronized void addAll(Collection c){
+        Iterator itr = c.iterator();
+        while(itr.hasNext()){
+            add(itr.next());
+        }
+    }
+    
+    /**
+     * 要素を削除して、IDを解放する。<p>
+     *
+     * @param element 要素
+     * @return 解放したID。要素が追加されていない場合は、-1
+     */
+    public synchronized int remove(Object element){
+        Integer id = (Integer)idMap.remove(element);
+        if(id == null){
+            return -1;
+        }
+        final int oldId = id.intValue();
+        ids.clear(oldId);
+        elements[oldId] = null;
+        if(oldId < nextId){
+            nextId = oldId;
+        }
+        return oldId;
+    }
+    
+    /**
+     * 要素に割り当てられたIDを取得する。<p>
+     *
+     * @param element 要素
+     * @return ID。要素が追加されていない場合は、-1
+     */
+    public synchronized int getId(Object element){
+        Integer id = (Integer)idMap.get(element);
+        return id == null ? -1 : id.intValue();
+    }
+    
+    /**
+     * 指定されたIDが割り当てられた要素を取得する。<p>
+     *
+     * @param id ID
+     * @return 要素。割り当てられていない場合は、null
+     */
+    public synchronized Object getElement(int id){
+        return id < 0 || id >= elements.length ? null : elements[id];
+    }
+    
+    /**
+     * 追加されている要素の数を取得する。<p>
+     *
+     * @return 要素の数
+     */
+    public synchronized int size(){
+        return idMap.size();
+    }
+    
+    /**
+     * 全ての要素を削除する。<p>
+     * 解放したIDは、世代を保ったまま再利用する。<br>
+     */
+    public synchronized void clear(){
+        idMap.clear();
+        ids.clear();
+        for(int i = 0; i <= maxId; i++){
+            elements[i] = null;
+        }
+        nextId = 0;
+    }
+    
+    /**
+     * 追加されている全ての要素を表すビットマップを取得する。<p>
+     *
+     * @return ビットマップ
+     */
+    public synchronized ElementBitmap bitmap(){
+        return new ElementBitmap((BitSet)ids.clone(), null, this, epoch);
+    }
+    
+    /**
+     * 指定された要素の集合をビットマップに変換する。<p>
+     * 追加されていない要素は、ビットマップの外に保持される。<br>
+     *
+     * @param c 要素の集合
+     * @return ビットマップ
+     */
+    public synchronized ElementBitmap toBitmap(Collection c){
+        final BitSet bits = new BitSet(nextId);
+        Set others = null;
+        if(c != null){
+            Iterator itr = c.iterator();
+            while(itr.hasNext()){
+                Object element = itr.next();
+                Integer id = (Integer)idMap.get(element);
+                if(id == null){
+                    if(others == null){
+                        others = new HashSet();
+                    }
+                    others.add(element);
+                }else{
+                    bits.set(id.intValue());
+                }
+            }
+        }
+        return new ElementBitmap(bits, others, this, epoch);
+    }
+    
+    /**
+     * 指定されたビットマップから、ビットマップの作成後に再利用されたIDを取り除いて、指定された世代のビットマップにする。<p>
+     * 世代の異なるビットマップ同士を演算する前に、古い方のビットマップに対して呼び出す。<br>
+     *
+     * @param bitmap このマッピングで作成したビットマップ
+     * @param toEpoch 新しい世代
+     */
+    public synchronized void expire(ElementBitmap bitmap, long toEpoch){
+        if(bitmap.epoch < reuseEpoch){
+            final BitSet bits = bitmap.getBits();
+            for(int i = bits.nextSetBit(0); i >= 0 && i < epochs.length; i = bits.nextSetBit(i + 1)){
+                if(epochs[i] > bitmap.epoch){
+                    bits.clear(i);
+                }
+            }
+        }
+        if(bitmap.epoch < toEpoch){
+            bitmap.epoch = toEpoch;
+        }
+    }
+    
+    /**
+     * 指定されたビットマップを要素の集合に変換する。<p>
+     * 既に削除された要素のID、及びビットマップの作成後に再利用されたIDは、無視される。<br>
+     *
+     * @param bitmap ビットマップ
+     * @param result 変換した要素を格納する集合。nullの場合は、生成する
+     * @return 要素の集合
+     */
+    public synchronized Set toSet(ElementBitmap bitmap, Set result){
+        final BitSet bits = bitmap.getBits();
+        final Set others = bitmap.getOthers();
+        final boolean isCheckEpoch = bitmap.idMap == this && bitmap.epoch < reuseEpoch;
+        if(result == null){
+            result = new HashSet(bits.cardinality() + (others == null ? 0 : others.size()));
+        }
+        for(int i = bits.nextSetBit(0); i >= 0 && i < elements.length; i = bits.nextSetBit(i + 1)){
+            if(elements[i] != null && (!isCheckEpoch || epochs[i] <= bitmap.epoch)){
+                result.add(elements[i]);
+            }
+        }
+        if(others != null){
+            result.addAll(others);
+        }
+        return result;
+    }
+}
@@ -31,6 +31,8 @@
  */
 package jp.ossc.nimbus.daemon;
 
+import java.util.concurrent.ThreadFactory;
+
 import jp.ossc.nimbus.util.*;
 
 /**
@@ -104,6 +106,11 @@ public class Daemon implements Runnable, DaemonControl{
     
     protected long lastProvideTime = -1;
     
+    /**
+     * デーモンスレッドを生成するスレッドファクトリ。<p>
+     */
+    protected transient ThreadFactory threadFactory;
+    
     /**
      * インスタンスを生成する。<p>
      *
@@ -247,6 +254,27 @@ public class Daemon implements Runnable, DaemonControl{
         return isDaemon ;
     }
     
+    /**
+     * デーモンスレッドを生成するスレッドファクトリを設定する。<p>
+     * 設定した場合、デーモンスレッドはこのファクトリで生成され、{@link #setDaemon(boolean)}及び{@link #setPriority(int)}の設定は使用しない。<br>
+     * デフォルトでは、nullで、{@link Thread}を直接生成する。<br>
+     *
+     * @param factory スレッドファクトリ
+     * @see VirtualThreadFactory
+     */
+    public void setThreadFactory(ThreadFactory factory){
+        threadFactory = factory;
+    }
+    
+    /**
+     * デーモンスレッドを生成するスレッドファクトリを取得する。<p>
+     *
+     * @return スレッドファクトリ
+     */
+    public ThreadFactory getThreadFactory(){
+        return threadFactory;
+    }
+    
     /**
      * 供給中かどうかを判定する。<p>
      *
@@ -319,14 +347,21 @@ public class Daemon implements Runnable, DaemonControl{
             return;
         }
         // 新しいスレッドを作成する
-        if(getName() == null || getName().length() == 0){
-            daemonThread = new Thread(this);
+        if(threadFactory != null){
+            daemonThread = threadFactory.newThread(this);
+            if(getName() != null && getName().length() != 0){
+                daemonThread.setName(getName());
+            }
         }else{
-            daemonThread = new Thread(this, getName());
-        }
-        daemonThread.setDaemon(isDaemon());
-        if(priority > 0){
-            daemonThread.setPriority(priority);
+            if(getName() == null || getName().length() == 0){
+                daemonThread = new Thread(this);
+            }else{
+                daemonThread = new Thread(this, getName());
+            }
+            daemonThread.setDaemon(isDaemon());
+            if(priority > 0){
+                daemonThread.setPriority(priority);
+            }
         }
         
         // 実行中フラグ設定
@@ -0,0 +1,120 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.daemon;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 仮想スレッドファクトリ。<p>
+ * 実行環境のJavaが仮想スレッドをサポートしている場合(Java21以降)は、仮想スレッドを生成する。<br>
+ * 仮想スレッドのAPIはリフレクションで呼び出すため、Java1.8でもコンパイル、実行できる。仮想スレッドをサポートしていない場合は、代わりにデーモンスレッドを生成する。<br>
+ *
+ * @author M.Takata
+ */
+public class VirtualThreadFactory implements ThreadFactory{
+    
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_FACTORY;
+    
+    static{
+        Method ofVirtual = null;
+        Method factory = null;
+        try{
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+        }catch(Exception e){
+            ofVirtual = null;
+            factory = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_FACTORY = factory;
+    }
+    
+    private final String namePrefix;
+    private final ThreadFactory virtualThreadFactory;
+    private final AtomicLong sequence = new AtomicLong();
+    
+    /**
+     * 仮想スレッドファクトリを生成する。<p>
+     *
+     * @param prefix 生成するスレッドの名前のプレフィクス。nullの場合は、名前を設定しない
+     */
+    public VirtualThreadFactory(String prefix){
+        namePrefix = prefix;
+        ThreadFactory factory = null;
+        if(OF_VIRTUAL != null){
+            try{
+                factory = (ThreadFactory)BUILDER_FACTORY.invoke(
+                    OF_VIRTUAL.invoke(null)
+                );
+            }catch(Exception e){
+                factory = null;
+            }
+        }
+        virtualThreadFactory = factory;
+    }
+    
+    /**
+     * 実行環境のJavaが仮想スレッドをサポートしているかどうかを判定する。<p>
+     *
+     * @return サポートしている場合true
+     */
+    public static boolean isSupported(){
+        return OF_VIRTUAL != null;
+    }
+    
+    /**
+     * このファクトリが仮想スレッドを生成するかどうかを判定する。<p>
+     *
+     * @return 仮想スレッドを生成する場合true。仮想スレッドをサポートしていないため、デーモンスレッドを生成する場合false
+     */
+    public boolean isVirtual(){
+        return virtualThreadFactory != null;
+    }
+    
+    // ThreadFactoryのJavaDoc
+    public Thread newThread(Runnable r){
+        Thread thread = null;
+        if(virtualThreadFactory != null){
+            thread = virtualThreadFactory.newThread(r);
+        }else{
+            thread = new Thread(r);
+            thread.setDaemon(true);
+        }
+        if(namePrefix != null){
+            thread.setName(namePrefix + sequence.incrementAndGet());
+        }
+        return thread;
+    }
+}
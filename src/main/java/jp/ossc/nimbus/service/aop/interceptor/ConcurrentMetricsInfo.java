@@ -0,0 +1,224 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.aop.interceptor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import jp.ossc.nimbus.service.performance.LogLinearHistogram;
+import jp.ossc.nimbus.service.performance.RollingWindowHistogram;
+
+/**
+ * ロックを取らずに集計するメトリクス情報。<p>
+ * 呼び出し回数や処理時間の合計は{@link LongAdder}で、最高処理時間と最低処理時間はCASで更新するため、同じキーに対する同時呼び出しが互いに待ち合わせない。<br>
+ * 各値は個別に更新されるため、集計中に取得した値同士が同じ時点の値であることは保証しない。<br>
+ * {@link RollingWindowHistogram}を指定した場合は、処理時間を直近の時間窓毎のヒストグラムにも記録する。<br>
+ *
+ * @author M.Takata
+ */
+public class ConcurrentMetricsInfo extends MetricsInfo{
+    
+    private static final long serialVersionUID = 2918736460319862237L;
+    
+    protected final LongAdder normalCounter = new LongAdder();
+    protected final LongAdder exceptionCounter = new LongAdder();
+    protected final LongAdder errorCounter = new LongAdder();
+    protected final LongAdder totalPerformanceAdder = new LongAdder();
+    protected final LongAdder averageCounter = new LongAdder();
+    protected final AtomicLong worstPerformanceHolder = new AtomicLong(Long.MIN_VALUE);
+    protected final AtomicLong bestPerformanceHolder = new AtomicLong(Long.MAX_VALUE);
+    protected volatile long latestTime;
+    protected volatile long latestExceptionTime;
+    protected volatile long latestErrorTime;
+    protected volatile long worstTime;
+    protected volatile long bestTime;
+    protected RollingWindowHistogram histogram;
+    
+    public ConcurrentMetricsInfo(String key, boolean isCalc){
+        this(key, isCalc, null);
+    }
+    
+    public ConcurrentMetricsInfo(
+        String key,
+        boolean isCalc,
+        RollingWindowHistogram histogram
+    ){
+        super(key, isCalc);
+        this.histogram = histogram;
+    }
+    
+    public void calculate(
+        long performance,
+        boolean isException,
+        boolean isError
+    ){
+        final long now = System.currentTimeMillis();
+        latestTime = now;
+        if(!isCalculateOnlyNormal || (!isException && !isError)){
+            long current = worstPerformanceHolder.get();
+            while(current <= performance){
+                if(worstPerformanceHolder.compareAndSet(current, performance)){
+                    worstTime = now;
+                    break;
+                }
+                current = worstPerformanceHolder.get();
+            }
+            current = bestPerformanceHolder.get();
+            while(current >= performance){
+                if(bestPerformanceHolder.compareAndSet(current, performance)){
+                    bestTime = now;
+                    break;
+                }
+                current = bestPerformanceHolder.get();
+            }
+            totalPerformanceAdder.add(performance);
+            averageCounter.increment();
+            if(histogram != null){
+                histogram.recordValue(now, performance);
+            }
+        }
+        
+        if(isException){
+            exceptionCounter.increment();
+            latestExceptionTime = now;
+        }else if(isError){
+            errorCounter.increment();
+            latestErrorTime = now;
+        }else{
+            normalCounter.increment();
+        }
+    }
+    
+    public long getCount(){
+        return normalCounter.sum();
+    }
+    
+    public long getLastTime(){
+        return latestTime;
+    }
+    
+    public long getExceptionCount(){
+        return exceptionCounter.sum();
+    }
+    
+    public long getLastExceptionTime(){
+        return latestExceptionTime;
+    }
+    
+    public long getErrorCount(){
+        return errorCounter.sum();
+    }
+    
+    public long getLastErrorTime(){
+        return latestErrorTime;
+    }
+    
+    public long getBestPerformance(){
+        return bestPerformanceHolder.get();
+    }
+    
+    public long getBestPerformanceTime(){
+        return bestTime;
+    }
+    
+    public long getWorstPerformance(){
+        return worstPerformanceHolder.get();
+    }
+    
+    public long getWorstPerformanceTime(){
+        return worstTime;
+    }
+    
+    public long getAveragePerformance(){
+        final long averageCount = averageCounter.sum();
+        return averageCount == 0 ? 0 : totalPerformanceAdder.sum() / averageCount;
+    }
+    
+    /**
+     * 処理時間を記録する時間窓ヒストグラムを取得する。<p>
+     *
+     * @return 時間窓ヒストグラム。記録しない場合はnull
+     */
+    public RollingWindowHistogram getHistogram(){
+        return histogram;
+    }
+    
+    /**
+     * 直近の指定した時間窓の処理時間のヒストグラムを取得する。<p>
+     *
+     * @param window 時間窓[ms]
+     * @return ヒストグラム。記録しない場合はnull
+     */
+    public LogLinearHistogram getHistogram(long window){
+        return histogram == null ? null : histogram.getHistogram(window);
+    }
+    
+    /**
+     * 直近の指定した複数の時間窓の処理時間のヒストグラムを取得する。<p>
+     *
+     * @param timestamp 基準となる時刻
+     * @param windows 時間窓[ms]の配列
+     * @return 時間窓の配列と同じ順序のヒストグラムの配列。記録しない場合はnull
+     */
+    public LogLinearHistogram[] getHistograms(long timestamp, long[] windows){
+        return histogram == null ? null : histogram.getHistograms(timestamp, windows);
+    }
+    
+    /**
+     * 直近の指定した時間窓の処理時間のパーセンタイル値[ms]を取得する。<p>
+     *
+     * @param window 時間窓[ms]
+     * @param percentile パーセンタイル。0～100
+     * @return パーセンタイル値。記録しない場合や、時間窓内に記録がない場合は0
+     */
+    public long getValueAtPercentile(long window, double percentile){
+        return histogram == null ? 0 : histogram.getHistogram(window).getValueAtPercentile(percentile);
+    }
+    
+    public void reset(){
+        normalCounter.reset();
+        latestTime = 0;
+        exceptionCounter.reset();
+        latestExceptionTime = 0;
+        errorCounter.reset();
+        latestErrorTime = 0;
+        worstPerformanceHolder.set(Long.MIN_VALUE);
+        worstTime = 0;
+        bestPerformanceHolder.set(Long.MAX_VALUE);
+        bestTime = 0;
+        totalPerformanceAdder.reset();
+        averageCounter.reset();
+        if(histogram != null){
+            histogram.reset();
+        }
+    }
+}
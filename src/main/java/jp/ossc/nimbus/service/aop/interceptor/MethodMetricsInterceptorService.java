@@ -43,6 +43,10 @@ import jp.ossc.nimbus.daemon.*;
 import jp.ossc.nimbus.service.aop.*;
 import jp.ossc.nimbus.service.writer.*;
 import jp.ossc.nimbus.service.performance.PerformanceRecorder;
+import jp.ossc.nimbus.service.performance.LogLinearHistogram;
+import jp.ossc.nimbus.service.performance.HistogramKeys;
+import jp.ossc.nimbus.service.performance.RollingWindowHistogram;
+import jp.ossc.nimbus.service.writer.prometheus.HelpProvider;
 
 /**
  * メソッドメトリクスインターセプタ。<p>
@@ -62,7 +66,10 @@ import jp.ossc.nimbus.service.performance.PerformanceRecorder;
  *     <li>最低処理時間時刻</li>
  *     <li>平均処理時間</li>
  *     <li>（平均処理時間×呼び出し回数）で評価された順位（降順）</li>
+ *     <li>直近の時間窓毎の処理時間のパーセンタイル（{@link #setHistogramEnabled(boolean) setHistogramEnabled(true)}の場合）</li>
  * </ul>
+ * 呼び出し回数や処理時間は、ロックを取らずに集計する。<br>
+ * また、{@link HelpProvider}を実装しているため、出力先のCategoryに{@link jp.ossc.nimbus.service.writer.prometheus.GaugeWriterService GaugeWriterService}を使用する場合に、ヘルプの提供元として指定できる。<br>
  * 以下に、メトリクスを取得するインターセプタのサービス定義例を示す。<br>
  * <pre>
  * &lt;?xml version="1.0" encoding="Shift_JIS"?&gt;
@@ -82,7 +89,7 @@ import jp.ossc.nimbus.service.performance.PerformanceRecorder;
  * @author M.Takata
  */
 public class MethodMetricsInterceptorService extends ServiceBase
- implements Interceptor, DaemonRunnable, MethodMetricsInterceptorServiceMBean{
+ implements Interceptor, DaemonRunnable, MethodMetricsInterceptorServiceMBean, HelpProvider{
     
     private static final long serialVersionUID = -2083698868594624773L;
     
@@ -115,6 +122,14 @@ public class MethodMetricsInterceptorService extends ServiceBase
     private boolean isOutputAveragePerformance = true;
     private ServiceName performanceRecorderServiceName;
     private PerformanceRecorder performanceRecorder;
+    private boolean isHistogramEnabled;
+    private long[] histogramWindows = new long[]{60000L, 300000L, 900000L};
+    private long histogramSlotInterval = DEFAULT_HISTOGRAM_SLOT_INTERVAL;
+    private int histogramSubBucketBits = DEFAULT_HISTOGRAM_SUB_BUCKET_BITS;
+    private double[] percentiles = new double[]{50.0d, 90.0d, 99.0d};
+    private String[][] percentileKeys;
+    private long maxHistogramWindow;
+    private String description = "method metrics";
     
     // MethodMetricsInterceptorServiceMBeanのJavaDoc
     public void setEnabled(boolean enable){
@@ -185,72 +200,80 @@ public class MethodMetricsInterceptorService extends ServiceBase
         if(isOutputAveragePerformance){
             buf.append(",\"Average performance[ms]\"");
         }
+        if(percentileKeys != null){
+            for(int i = 0; i < histogramWindows.length; i++){
+                for(int j = 0; j < percentiles.length; j++){
+                    buf.append(",\"").append(percentileKeys[i][j])
+                        .append("[ms]\"");
+                }
+            }
+        }
         buf.append(",\"Method\"");
         buf.append(LINE_SEP);
         for(int i = 0; i < infos.length; i++){
             buf.append('"').append(i + 1).append('"');
             if(isOutputCount){
-                buf.append(',').append('"').append(infos[i].count).append('"');
+                buf.append(',').append('"').append(infos[i].getCount()).append('"');
             }
             if(isOutputExceptionCount){
-                buf.append(',').append('"').append(infos[i].exceptionCount)
+                buf.append(',').append('"').append(infos[i].getExceptionCount())
                     .append('"');
             }
             if(isOutputErrorCount){
-                buf.append(',').append('"').append(infos[i].errorCount)
+                buf.append(',').append('"').append(infos[i].getErrorCount())
                     .append('"');
             }
             if(isOutputLastTime){
-                if(infos[i].lastTime == 0){
+                if(infos[i].getLastTime() == 0){
                     buf.append(",\"\"");
                 }else{
                     buf.append(',').append('"')
-                        .append(format.format(new Date(infos[i].lastTime)))
+                        .append(format.format(new Date(infos[i].getLastTime())))
                         .append('"');
                 }
             }
             if(isOutputLastExceptionTime){
-                if(infos[i].lastExceptionTime == 0){
+                if(infos[i].getLastExceptionTime() == 0){
                     buf.append(",\"\"");
                 }else{
                     buf.append(',').append('"')
                         .append(format.format(
-                            new Date(infos[i].lastExceptionTime))
+                            new Date(infos[i].getLastExceptionTime()))
                         ).append('"');
                 }
             }
             if(isOutputLastErrorTime){
-                if(infos[i].lastErrorTime == 0){
+                if(infos[i].getLastErrorTime() == 0){
                     buf.append(",\"\"");
                 }else{
                     buf.append('"').append(',')
-                        .append(format.format(new Date(infos[i].lastErrorTime)))
+                        .append(format.format(new Date(infos[i].getLastErrorTime())))
                         .append('"');
                 }
             }
             if(isOutputBestPerformance){
-                buf.append(',').append('"').append(infos[i].bestPerformance)
+                buf.append(',').append('"').append(infos[i].getBestPerformance())
                     .append('"');
             }
             if(isOutputBestPerformanceTime){
-                if(infos[i].bestPerformanceTime == 0){
+                if(infos[i].getBestPerformanceTime() == 0){
                     buf.append(",\"\"");
                 }else{
                     buf.append(',').append('"').append(format.format(
-                        new Date(infos[i].bestPerformanceTime)
+                        new Date(infos[i].getBestPerformanceTime())
                         )).append('"');
                 }
             }
             if(isOutputWorstPerformance){
-                buf.append(',').append('"').append(infos[i].worstPerformance)
+                buf.append(',').append('"').append(infos[i].getWorstPerformance())
                     .append('"');
             }
             if(isOutputWorstPerformanceTime){
-                if(infos[i].worstPerformanceTime == 0){
+                if(infos[i].getWorstPerformanceTime() == 0){
                     buf.append(",\"\"");
                 }else{
                     buf.append(',').append('"').append(format.format(
-                        new Date(infos[i].worstPerformanceTime)
+                        new Date(infos[i].getWorstPerformanceTime())
                         )).append('"');
                 }
             }
@@ -258,7 +281,21 @@ public class MethodMetricsInterceptorService extends ServiceBase
                 buf.append(',').append('"').append(infos[i].getAveragePerformance())
                     .append('"');
             }
-            buf.append(',').append('"').append(infos[i].key).append('"');
+            if(percentileKeys != null && infos[i] instanceof ConcurrentMetricsInfo){
+                final LogLinearHistogram[] histograms
+                     = ((ConcurrentMetricsInfo)infos[i]).getHistograms(
+                        System.currentTimeMillis(),
+                        histogramWindows
+                    );
+                for(int j = 0; j < histogramWindows.length; j++){
+                    for(int k = 0; k < percentiles.length; k++){
+                        buf.append(',').append('"')
+                            .append(histograms == null ? 0 : histograms[j].getValueAtPercentile(percentiles[k]))
+                            .append('"');
+                    }
+                }
+            }
+            buf.append(',').append('"').append(infos[i].getKey()).append('"');
             buf.append(LINE_SEP);
         }
         if(isOutputTimestamp){
@@ -277,6 +314,15 @@ public class MethodMetricsInterceptorService extends ServiceBase
         return (MetricsInfo)metricsInfos.get(method);
     }
     
+    // MethodMetricsInterceptorServiceMBeanのJavaDoc
+    public MetricsInfo[] getMetricsInfoArray(){
+        if(metricsInfos == null){
+            return new MetricsInfo[0];
+        }
+        return (MetricsInfo[])metricsInfos.values()
+            .toArray(new MetricsInfo[metricsInfos.size()]);
+    }
+    
     public Map getMetricsInfos(){
         if(metricsInfos == null){
             return new HashMap();
@@ -458,6 +504,111 @@ public class MethodMetricsInterceptorService extends ServiceBase
         return performanceRecorderServiceName;
     }
     
+    // MethodMetricsInterceptorServiceMBeanのJavaDoc
+    public void setHistogramEnabled(boolean isEnabled){
+        isHistogramEnabled = isEnabled;
+    }
+    // MethodMetricsInterceptorServiceMBeanのJavaDoc
+    public boolean isHistogramEnabled(){
+        return isHistogramEnabled;
+    }
+    
+    // MethodMetricsInterceptorServiceMBeanのJavaDoc
+    public void setHistogramWindows(long[] windows){
+        histogramWindows = windows;
+    }
+    // MethodMetricsInterceptorServiceMBeanのJavaDoc
+    public long[] getHistogramWindows(){
+        return histogramWindows;
+    }
+    
+    // MethodMetricsInterceptorServiceMBeanのJavaDoc
+    public void setHistogramSlotInterval(long interval){
+        histogramSlotInterval = interval;
+    }
+    // MethodMetricsInterceptorServiceMBeanのJavaDoc
+    public long getHistogramSlotInterval(){
+        return histogramSlotInterval;
+    }
+    
+    // MethodMetricsInterceptorServiceMBeanのJavaDoc
+    public void setHistogramSubBucketBits(int bits){
+        histogramSubBucketBits = bits;
+    }
+    // MethodMetricsInterceptorServiceMBeanのJavaDoc
+    public int getHistogramSubBucketBits(){
+        return histogramSubBucketBits;
+    }
+    
+    // MethodMetricsInterceptorServiceMBeanのJavaDoc
+    public void setPercentiles(double[] percentiles){
+        this.percentiles = percentiles;
+    }
+    // MethodMetricsInterceptorServiceMBeanのJavaDoc
+    public double[] getPercentiles(){
+        return percentiles;
+    }
+    
+    // MethodMetricsInterceptorServiceMBeanのJavaDoc
+    public long getValueAtPercentile(Method method, long window, double percentile){
+        final MetricsInfo info = getMetricsInfo(method);
+        if(!(info instanceof ConcurrentMetricsInfo)){
+            return 0;
+        }
+        return ((ConcurrentMetricsInfo)info).getValueAtPercentile(window, percentile);
+    }
+    
+    // MethodMetricsInterceptorServiceMBeanのJavaDoc
+    public void setDescription(String desc){
+        description = desc;
+    }
+    // MethodMetricsInterceptorServiceMBeanのJavaDoc
+    public String getDescription(){
+        return description;
+    }
+    
+    public String getHelp(){
+        return getDescription();
+    }
+    
+    public String getHelp(String key){
+        if(RECORD_KEY_COUNT.equals(key)){
+            return "normal response count";
+        }else if(RECORD_KEY_EXCEPTION_COUNT.equals(key)){
+            return "exception response count";
+        }else if(RECORD_KEY_ERROR_COUNT.equals(key)){
+            return "error response count";
+        }else if(RECORD_KEY_BEST_PERFORMANCE.equals(key)){
+            return "best performance[ms]";
+        }else if(RECORD_KEY_WORST_PERFORMANCE.equals(key)){
+            return "worst performance[ms]";
+        }else if(RECORD_KEY_AVERAGE_PERFORMANCE.equals(key)){
+            return "average performance[ms]";
+        }else if(RECORD_KEY_ORDER.equals(key)){
+            return "order of average performance * count";
+        }else if(percentileKeys != null){
+            for(int i = 0; i < percentileKeys.length; i++){
+                for(int j = 0; j < percentileKeys[i].length; j++){
+                    if(percentileKeys[i][j].equals(key)){
+                        return percentiles[j] + " percentile performance[ms] in last " + HistogramKeys.toWindowKey(histogramWindows[i]);
+                    }
+                }
+            }
+        }
+        return key;
+    }
+    
+    /**
+     * パーセンタイルと時間窓から、出力するメトリクス情報マップのキーを生成する。<p>
+     *
+     * @param percentile パーセンタイル
+     * @param window 時間窓[ms]
+     * @return キー
+     */
+    protected String toPercentileKey(double percentile, long window){
+        return HistogramKeys.toPercentileKey(RECORD_KEY_PERCENTILE_PREFIX, percentile, window);
+    }
+    
     /**
      * サービスの生成処理を行う。<p>
      *
@@ -475,6 +626,31 @@ public class MethodMetricsInterceptorService extends ServiceBase
      */
     public void startService() throws Exception{
         metricsInfos.clear();
+        percentileKeys = null;
+        if(isHistogramEnabled){
+            if(histogramWindows == null || histogramWindows.length == 0){
+                throw new IllegalArgumentException("HistogramWindows is empty.");
+            }
+            maxHistogramWindow = 0;
+            for(int i = 0; i < histogramWindows.length; i++){
+                if(histogramWindows[i] <= 0){
+                    throw new IllegalArgumentException("HistogramWindows must be positive. window=" + histogramWindows[i]);
+                }
+                maxHistogramWindow = Math.max(maxHistogramWindow, histogramWindows[i]);
+            }
+            if(histogramSlotInterval <= 0 || histogramSlotInterval > maxHistogramWindow){
+                throw new IllegalArgumentException("HistogramSlotInterval must be positive and not be longer than HistogramWindows. interval=" + histogramSlotInterval);
+            }
+            if(percentiles == null){
+                percentiles = new double[0];
+            }
+            percentileKeys = new String[histogramWindows.length][percentiles.length];
+            for(int i = 0; i < histogramWindows.length; i++){
+                for(int j = 0; j < percentiles.length; j++){
+                    percentileKeys[i][j] = toPercentileKey(percentiles[j], histogramWindows[i]);
+                }
+            }
+        }
         if(methodAndCategoryServiceNameMapping != null
             && methodAndCategoryServiceNameMapping.size() != 0){
             final ServiceNameEditor nameEditor = new ServiceNameEditor();
@@ -574,9 +750,10 @@ public class MethodMetricsInterceptorService extends ServiceBase
                 Method method = ctx.getTargetMethod();
                 MetricsInfo metricsInfo = (MetricsInfo)metricsInfos.get(method);
                 if(metricsInfo == null){
-                    metricsInfo = new MetricsInfo(
+                    metricsInfo = new ConcurrentMetricsInfo(
                         createKey(ctx),
-                        isCalculateOnlyNormal
+                        isCalculateOnlyNormal,
+                        createHistogram()
                     );
                     MetricsInfo old = (MetricsInfo)metricsInfos.putIfAbsent(method, metricsInfo);
                     if(old != null){
@@ -594,6 +771,22 @@ public class MethodMetricsInterceptorService extends ServiceBase
         return methodEditor.getAsText();
     }
     
+    /**
+     * 処理時間を記録する時間窓ヒストグラムを生成する。<p>
+     *
+     * @return 時間窓ヒストグラム。記録しない場合はnull
+     */
+    protected RollingWindowHistogram createHistogram(){
+        if(percentileKeys == null){
+            return null;
+        }
+        return new RollingWindowHistogram(
+            maxHistogramWindow,
+            histogramSlotInterval,
+            histogramSubBucketBits
+        );
+    }
+    
     /**
      * デーモンが開始した時に呼び出される。<p>
      * 
@@ -769,6 +962,19 @@ public class MethodMetricsInterceptorService extends ServiceBase
                 new Long(info.getAveragePerformance())
             );
         }
+        final LogLinearHistogram[] histograms
+             = percentileKeys != null && info instanceof ConcurrentMetricsInfo
+                 ? ((ConcurrentMetricsInfo)info).getHistograms(timestamp.getTime(), histogramWindows) : null;
+        if(histograms != null){
+            for(int i = 0; i < histogramWindows.length; i++){
+                for(int j = 0; j < percentiles.length; j++){
+                    record.put(
+                        percentileKeys[i][j],
+                        new Long(histograms[i].getValueAtPercentile(percentiles[j]))
+                    );
+                }
+            }
+        }
         return record;
     }
     
@@ -782,8 +988,8 @@ public class MethodMetricsInterceptorService extends ServiceBase
         public int compare(Object o1, Object o2){
             final MetricsInfo info1 = (MetricsInfo)o1;
             final MetricsInfo info2 = (MetricsInfo)o2;
-            final long sortKey1 = info1.getAveragePerformance() * info1.count;
-            final long sortKey2 = info2.getAveragePerformance() * info2.count;
+            final long sortKey1 = info1.getAveragePerformance() * info1.getCount();
+            final long sortKey2 = info2.getAveragePerformance() * info2.getCount();
             if(sortKey1 > sortKey2){
                 return -1;
             }else if(sortKey1 < sortKey2){
@@ -60,6 +60,22 @@ public interface MethodMetricsInterceptorServiceMBean extends ServiceBaseMBean{
     public static final String RECORD_KEY_WORST_PERFORMANCE_TIME = "WorstPerformanceTime";
     public static final String RECORD_KEY_AVERAGE_PERFORMANCE = "AveragePerformance";
     
+    /**
+     * 出力するメトリクス情報マップのキー：パーセンタイルの接頭辞。<p>
+     * 接頭辞の後ろに、パーセンタイルから小数点を除いた数字と"_"と時間窓が付く。例えば、直近5分の99.9パーセンタイルは"P999_5m"となる。<br>
+     */
+    public static final String RECORD_KEY_PERCENTILE_PREFIX = "P";
+    
+    /**
+     * デフォルトのヒストグラムのスロットの時間間隔[ms]。<p>
+     */
+    public static final long DEFAULT_HISTOGRAM_SLOT_INTERVAL = 15000L;
+    
+    /**
+     * デフォルトのヒストグラムの線形分割のビット数。<p>
+     */
+    public static final int DEFAULT_HISTOGRAM_SUB_BUCKET_BITS = 4;
+    
     /**
      * デフォルトの日付フォーマット。<p>
      */
@@ -138,6 +154,14 @@ public interface MethodMetricsInterceptorServiceMBean extends ServiceBaseMBean{
      */
     public Map getMetricsInfos();
     
+    /**
+     * 全てのメトリクスを配列で取得する。<p>
+     * {@link #getMetricsInfos()}と異なりキーの変換を行わないため、定期的に収集する場合に適している。<br>
+     *
+     * @return メトリクスの配列
+     */
+    public MetricsInfo[] getMetricsInfoArray();
+    
     /**
      * メトリクスの出力時間間隔[ms]を設定する。<p>
      * デフォルトは、60000[ms]。
@@ -390,4 +414,107 @@ public interface MethodMetricsInterceptorServiceMBean extends ServiceBaseMBean{
      * @return trueの場合は出力する
      */
     public boolean isOutputAveragePerformance();
+    
+    /**
+     * メソッド毎に、処理時間を直近の時間窓毎のヒストグラムに記録するかどうかを設定する。<p>
+     * 記録する場合、{@link #setPercentiles(double[])}で指定したパーセンタイルを、{@link #setHistogramWindows(long[])}で指定した時間窓毎に出力する。<br>
+     * ヒストグラムは、メソッド毎に最長の時間窓を{@link #setHistogramSlotInterval(long)}で割った数のスロットを持ち、各スロットは8×{@link jp.ossc.nimbus.service.performance.LogLinearHistogram#getBucketSize(int) LogLinearHistogram.getBucketSize(HistogramSubBucketBits)}バイトを使用する。デフォルトの設定では、メソッド毎に約230KBとなる。<br>
+     * デフォルトは、falseで記録しない。<br>
+     *
+     * @param isEnabled 記録する場合はtrue
+     */
+    public void setHistogramEnabled(boolean isEnabled);
+    
+    /**
+     * メソッド毎に、処理時間を直近の時間窓毎のヒストグラムに記録するかどうかを判定する。<p>
+     *
+     * @return trueの場合は記録する
+     */
+    public boolean isHistogramEnabled();
+    
+    /**
+     * パーセンタイルを出力する時間窓[ms]を設定する。<p>
+     * デフォルトは、60000（1分）、300000（5分）、900000（15分）。<br>
+     *
+     * @param windows 時間窓の配列
+     */
+    public void setHistogramWindows(long[] windows);
+    
+    /**
+     * パーセンタイルを出力する時間窓[ms]を取得する。<p>
+     *
+     * @return 時間窓の配列
+     */
+    public long[] getHistogramWindows();
+    
+    /**
+     * ヒストグラムのスロットの時間間隔[ms]を設定する。<p>
+     * 時間窓は、この間隔で区切られたスロット単位で移動する。<br>
+     * デフォルトは、{@link #DEFAULT_HISTOGRAM_SLOT_INTERVAL}。<br>
+     *
+     * @param interval スロットの時間間隔
+     */
+    public void setHistogramSlotInterval(long interval);
+    
+    /**
+     * ヒストグラムのスロットの時間間隔[ms]を取得する。<p>
+     *
+     * @return スロットの時間間隔
+     */
+    public long getHistogramSlotInterval();
+    
+    /**
+     * ヒストグラムの精度を、桁毎の線形分割のビット数で設定する。<p>
+     * 記録値の相対誤差は、1/2^(bits-1)以下となる。<br>
+     * デフォルトは、{@link #DEFAULT_HISTOGRAM_SUB_BUCKET_BITS}で、相対誤差は12.5%以下。<br>
+     *
+     * @param bits 線形分割のビット数
+     */
+    public void setHistogramSubBucketBits(int bits);
+    
+    /**
+     * ヒストグラムの精度を、桁毎の線形分割のビット数で取得する。<p>
+     *
+     * @return 線形分割のビット数
+     */
+    public int getHistogramSubBucketBits();
+    
+    /**
+     * 出力するパーセンタイルを設定する。<p>
+     * デフォルトは、50、90、99。<br>
+     *
+     * @param percentiles パーセンタイルの配列
+     */
+    public void setPercentiles(double[] percentiles);
+    
+    /**
+     * 出力するパーセンタイルを取得する。<p>
+     *
+     * @return パーセンタイルの配列
+     */
+    public double[] getPercentiles();
+    
+    /**
+     * 指定されたメソッドの、直近の指定した時間窓の処理時間のパーセンタイル値[ms]を取得する。<p>
+     *
+     * @param method メソッド
+     * @param window 時間窓[ms]
+     * @param percentile パーセンタイル。0～100
+     * @return パーセンタイル値。ヒストグラムを記録していない場合や、時間窓内に記録がない場合は0
+     */
+    public long getValueAtPercentile(Method method, long window, double percentile);
+    
+    /**
+     * Prometheusに出力する際のヘルプとなる説明を設定する。<p>
+     *
+     * @param desc 説明
+     */
+    public void setDescription(String desc);
+    
+    /**
+     * Prometheusに出力する際のヘルプとなる説明を取得する。<p>
+     *
+     * @return 説明
+     */
+    public String getDescription();
 }
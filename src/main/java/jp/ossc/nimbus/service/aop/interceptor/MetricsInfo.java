@@ -98,7 +98,7 @@ public class MetricsInfo implements java.io.Serializable{
     }
     
     public long getTotalCount(){
-        return count + exceptionCount + errorCount;
+        return getCount() + getExceptionCount() + getErrorCount();
     }
     
     public long getCount(){
@@ -166,27 +166,27 @@ public class MetricsInfo implements java.io.Serializable{
              = new SimpleDateFormat("HH:mm:ss.SSS");
         buf.append('{');
         buf.append("key=").append(key);
-        buf.append(", count=").append(count);
-        buf.append(", exceptionCount=").append(exceptionCount);
-        buf.append(", errorCount=").append(errorCount);
+        buf.append(", count=").append(getCount());
+        buf.append(", exceptionCount=").append(getExceptionCount());
+        buf.append(", errorCount=").append(getErrorCount());
         buf.append(", lastTime=")
-            .append(lastTime == 0 ? "" : format.format(new Date(lastTime)));
+            .append(getLastTime() == 0 ? "" : format.format(new Date(getLastTime())));
         buf.append(", lastExceptionTime=")
-            .append(lastExceptionTime == 0
-                 ? "" : format.format(new Date(lastExceptionTime)));
+            .append(getLastExceptionTime() == 0
+                 ? "" : format.format(new Date(getLastExceptionTime())));
         buf.append(", lastErrorTime=")
-            .append(lastErrorTime == 0
-                 ? "" : format.format(new Date(lastErrorTime)));
+            .append(getLastErrorTime() == 0
+                 ? "" : format.format(new Date(getLastErrorTime())));
         buf.append(", worstPerformance=")
-            .append(count == 0 ? 0 : worstPerformance).append("[ms]");
+            .append(getCount() == 0 ? 0 : getWorstPerformance()).append("[ms]");
         buf.append(", worstPerformanceTime=")
-            .append(worstPerformanceTime == 0
-                 ? "" : format.format(new Date(worstPerformanceTime)));
+            .append(getWorstPerformanceTime() == 0
+                 ? "" : format.format(new Date(getWorstPerformanceTime())));
         buf.append(", bestPerformance=")
-            .append(count == 0 ? 0 : bestPerformance).append("[ms]");
+            .append(getCount() == 0 ? 0 : getBestPerformance()).append("[ms]");
         buf.append(", bestPerformanceTime=")
-            .append(bestPerformanceTime == 0
-                 ? "" : format.format(new Date(bestPerformanceTime)));
+            .append(getBestPerformanceTime() == 0
+                 ? "" : format.format(new Date(getBestPerformanceTime())));
         buf.append(", averagePerformance=")
             .append(getAveragePerformance()).append("[ms]");
         buf.append('}');
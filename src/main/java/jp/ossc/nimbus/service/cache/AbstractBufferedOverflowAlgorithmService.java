@@ -0,0 +1,596 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.cache;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jp.ossc.nimbus.core.ServiceBase;
+
+/**
+ * 抽象バッファリングあふれアルゴリズムサービス。<p>
+ * キャッシュ参照へのアクセス通知を、ロックを取得せずにリングバッファに記録し、あふれアルゴリズムのデータ構造への反映はバッチでまとめて行うあふれアルゴリズムの抽象クラスである。<br>
+ * {@link LRUOverflowAlgorithmService}等は、アクセスの度にアルゴリズム全体を同期化するため、キャッシュへのアクセスが全て直列化される。このクラスでは、アクセス通知は{@link #setAccessBufferSize(int) アクセスバッファ}に記録するだけで処理を戻し、アルゴリズムのデータ構造は、追加、削除、あふれ時、及びバッファの記録数が{@link #setDrainThreshold(int) 閾値}に達した時に、ロックを取得できたスレッドがまとめて更新する。<br>
+ * アクセスバッファが一杯の場合、アクセス通知は破棄される。つまり、アクセス頻度の高いキャッシュ参照ほど確率的に記録されるサンプリングとして振舞う。<br>
+ * 内部のデータ構造は、サブクラスが実装する{@link Node}の双方向リンクリスト等で構成し、追加、削除、アクセス、あふれ対象の決定を全てO(1)で行う事を想定している。<br>
+ *
+ * @author M.Takata
+ */
+public abstract class AbstractBufferedOverflowAlgorithmService extends ServiceBase
+ implements OverflowAlgorithm, CacheRemoveListener, CacheAccessListener,
+            java.io.Serializable, AbstractBufferedOverflowAlgorithmServiceMBean{
+    
+    private static final long serialVersionUID = 4013271956418523207L;
+    
+    private int accessBufferSize = 128;
+    private int drainThreshold = 32;
+    
+    /**
+     * キャッシュ参照と{@link Node}のマップ。<p>
+     */
+    protected transient ConcurrentMap nodeMap;
+    
+    /**
+     * データ構造を更新する際のロック。<p>
+     */
+    protected transient ReentrantLock lock;
+    
+    private transient AtomicReferenceArray accessBuffer;
+    private transient int accessBufferMask;
+    private transient AtomicLong accessWriteCount;
+    private transient volatile long accessReadCount;
+    private transient AtomicLong droppedAccessCount;
+    
+    private long overflowCount;
+    private long overflowCachedTime;
+    
+    // AbstractBufferedOverflowAlgorithmServiceMBeanのJavaDoc
+    public void setAccessBufferSize(int size){
+        accessBufferSize = size;
+    }
+    // AbstractBufferedOverflowAlgorithmServiceMBeanのJavaDoc
+    public int getAccessBufferSize(){
+        return accessBufferSize;
+    }
+    
+    // AbstractBufferedOverflowAlgorithmServiceMBeanのJavaDoc
+    public void setDrainThreshold(int threshold){
+        drainThreshold = threshold;
+    }
+    // AbstractBufferedOverflowAlgorithmServiceMBeanのJavaDoc
+    public int getDrainThreshold(){
+        return drainThreshold;
+    }
+    
+    // AbstractBufferedOverflowAlgorithmServiceMBeanのJavaDoc
+    public int size(){
+        return nodeMap == null ? 0 : nodeMap.size();
+    }
+    
+    // AbstractBufferedOverflowAlgorithmServiceMBeanのJavaDoc
+    public long getOverflowCount(){
+        return overflowCount;
+    }
+    
+    // AbstractBufferedOverflowAlgorithmServiceMBeanのJavaDoc
+    public long getAverageOverflowCachedTime(){
+        return overflowCount == 0 ? 0l : (overflowCachedTime / overflowCount);
+    }
+    
+    // AbstractBufferedOverflowAlgorithmServiceMBeanのJavaDoc
+    public long getDroppedAccessCount(){
+        return droppedAccessCount == null ? 0l : droppedAccessCount.get();
+    }
+    
+    /**
+     * サービスの生成処理を行う。<p>
+     * インスタンス変数の初期化を行う。
+     *
+     * @exception Exception サービスの生成処理に失敗した場合
+     */
+    public void createService() throws Exception{
+        nodeMap = new ConcurrentHashMap();
+        lock = new ReentrantLock();
+        accessWriteCount = new AtomicLong();
+        droppedAccessCount = new AtomicLong();
+    }
+    
+    /**
+     * サービスの開始処理を行う。<p>
+     * アクセスバッファを生成する。
+     *
+     * @exception Exception サービスの開始処理に失敗した場合
+     */
+    public void startService() throws Exception{
+        if(accessBufferSize <= 0){
+            throw new IllegalArgumentException("AccessBufferSize must be greater than 0. accessBufferSize=" + accessBufferSize);
+        }
+        int size = 1;
+        while(size < accessBufferSize){
+            size <<= 1;
+        }
+        lock.lock();
+        try{
+            accessBuffer = new AtomicReferenceArray(size);
+            accessBufferMask = size - 1;
+            accessWriteCount.set(0);
+            accessReadCount = 0;
+        }finally{
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * サービスの破棄処理を行う。<p>
+     * インスタンス変数の開放を行う。
+     *
+     * @exception Exception サービスの破棄処理に失敗した場合
+     */
+    public void destroyService() throws Exception{
+        reset();
+        nodeMap = null;
+        accessBuffer = null;
+    }
+    
+    /**
+     * キャッシュ参照を追加する。<p>
+     * 引数で渡されたキャッシュ参照を保持する。同時に、{@link CachedReference#addCacheAccessListener(CacheAccessListener)}で、{@link CacheAccessListener}として自分自身を登録する。また、{@link CachedReference#addCacheRemoveListener(CacheRemoveListener)}で、{@link CacheRemoveListener}として自分自身を登録する。<br>
+     *
+     * @param ref キャッシュ参照
+     */
+    public void add(CachedReference ref){
+        if(nodeMap == null || ref == null){
+            return;
+        }
+        final Node node = createNode(ref);
+        if(nodeMap.putIfAbsent(ref, node) != null){
+            return;
+        }
+        lock.lock();
+        try{
+            drainAccessBuffer();
+            if(nodeMap.get(ref) == node){
+                onAdd(node);
+            }
+        }finally{
+            lock.unlock();
+        }
+        ref.addCacheAccessListener(this);
+        ref.addCacheRemoveListener(this);
+    }
+    
+    /**
+     * キャッシュ参照を削除する。<p>
+     * 引数で渡されたキャッシュ参照を内部で保持している場合は、破棄する。同時に、{@link CachedReference#removeCacheAccessListener(CacheAccessListener)}で、{@link CacheAccessListener}として自分自身を登録解除する。また、{@link CachedReference#removeCacheRemoveListener(CacheRemoveListener)}で、{@link CacheRemoveListener}として自分自身を登録解除する。<br>
+     *
+     * @param ref キャッシュ参照
+     */
+    public void remove(CachedReference ref){
+        if(nodeMap == null || ref == null){
+            return;
+        }
+        final Node node = (Node)nodeMap.remove(ref);
+        if(node == null){
+            return;
+        }
+        lock.lock();
+        try{
+            if(node.isLinked()){
+                onRemove(node);
+            }
+        }finally{
+            lock.unlock();
+        }
+        ref.removeCacheAccessListener(this);
+        ref.removeCacheRemoveListener(this);
+    }
+    
+    /**
+     * あふれアルゴリズムに従ってキャッシュ参照をあふれさせる。<p>
+     * アクセスバッファに記録されたアクセス通知を反映した後、{@link #selectOverflowNode()}で決定されたキャッシュ参照を、あふれキャッシュ参照として返す。<br>
+     *
+     * @return あふれキャッシュ参照
+     */
+    public CachedReference overflow(){
+        if(nodeMap == null){
+            return null;
+        }
+        lock.lock();
+        try{
+            drainAccessBuffer();
+            return overflowNode();
+        }finally{
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * あふれアルゴリズムに従ってキャッシュ参照をあふれさせる。<p>
+     * アクセスバッファに記録されたアクセス通知を反映した後、{@link #selectOverflowNode()}で決定されたキャッシュ参照を、指定された数だけ、あふれキャッシュ参照として返す。<br>
+     *
+     * @param size あふれ数
+     * @return あふれキャッシュ参照の配列
+     */
+    public CachedReference[] overflow(int size){
+        if(nodeMap == null || nodeMap.size() == 0){
+            return null;
+        }
+        lock.lock();
+        try{
+            drainAccessBuffer();
+            final CachedReference[] refs
+                 = new CachedReference[Math.min(nodeMap.size(), size)];
+            int count = 0;
+            for(; count < refs.length; count++){
+                final CachedReference ref = overflowNode();
+                if(ref == null){
+                    break;
+                }
+                refs[count] = ref;
+            }
+            if(count == refs.length){
+                return refs;
+            }
+            final CachedReference[] result = new CachedReference[count];
+            System.arraycopy(refs, 0, result, 0, count);
+            return result;
+        }finally{
+            lock.unlock();
+        }
+    }
+    
+    private CachedReference overflowNode(){
+        final Node node = selectOverflowNode();
+        if(node == null){
+            return null;
+        }
+        onRemove(node);
+        nodeMap.remove(node.reference, node);
+        overflowCachedTime += (System.currentTimeMillis() - node.cachedTime);
+        overflowCount++;
+        return node.reference;
+    }
+    
+    /**
+     * あふれアルゴリズムを実行するために保持している情報を初期化する。<p>
+     * {@link #add(CachedReference)}で渡されたキャッシュ参照を全て破棄する。<br>
+     */
+    public void reset(){
+        if(lock == null){
+            return;
+        }
+        lock.lock();
+        try{
+            if(nodeMap != null){
+                nodeMap.clear();
+            }
+            if(accessBuffer != null){
+                for(int i = 0, imax = accessBuffer.length(); i < imax; i++){
+                    accessBuffer.set(i, null);
+                }
+                accessReadCount = accessWriteCount.get();
+            }
+            onReset();
+        }finally{
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * キャッシュから削除されたキャッシュ参照の通知を受ける。<p>
+     * {@link #remove(CachedReference)}を呼び出す。<br>
+     *
+     * @param ref キャッシュから削除されたキャッシュ参照
+     */
+    public void removed(CachedReference ref){
+        remove(ref);
+    }
+    
+    /**
+     * 参照されたキャッシュ参照の通知を受ける。<p>
+     * アクセスバッファに記録する。アクセスバッファが一杯の場合は、記録せずに破棄する。<br>
+     * アクセスバッファの記録数が閾値に達した場合、ロックを取得できればアクセスバッファの内容をデータ構造に反映する。<br>
+     *
+     * @param ref 参照されたキャッシュ参照
+     */
+    public void accessed(CachedReference ref){
+        final ConcurrentMap nodes = nodeMap;
+        final AtomicReferenceArray buffer = accessBuffer;
+        if(nodes == null || buffer == null){
+            return;
+        }
+        final Node node = (Node)nodes.get(ref);
+        if(node == null){
+            return;
+        }
+        final long writeCount = accessWriteCount.get();
+        final long pending = writeCount - accessReadCount;
+        if(pending >= buffer.length()){
+            droppedAccessCount.incrementAndGet();
+        }else if(accessWriteCount.compareAndSet(writeCount, writeCount + 1)){
+            buffer.lazySet((int)(writeCount & accessBufferMask), node);
+        }else{
+            // 他スレッドと競合した場合は、リトライせずに破棄する
+            droppedAccessCount.incrementAndGet();
+        }
+        if(pending + 1 >= drainThreshold && lock.tryLock()){
+            try{
+                drainAccessBuffer();
+            }finally{
+                lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * アクセスバッファに記録されたアクセス通知を、データ構造に反映する。<p>
+     * ロックを取得したスレッドから呼び出される。<br>
+     */
+    protected void drainAccessBuffer(){
+        final AtomicReferenceArray buffer = accessBuffer;
+        if(buffer == null){
+            return;
+        }
+        final long writeCount = accessWriteCount.get();
+        long readCount = accessReadCount;
+        while(readCount < writeCount){
+            final int index = (int)(readCount & accessBufferMask);
+            final Node node = (Node)buffer.get(index);
+            if(node == null){
+                // 書き込み中の要素は、次回の反映に回す
+                break;
+            }
+            buffer.lazySet(index, null);
+            readCount++;
+            if(node.isLinked()){
+                onAccess(node);
+            }
+        }
+        accessReadCount = readCount;
+    }
+    
+    /**
+     * キャッシュ参照を保持する{@link Node}を生成する。<p>
+     *
+     * @param ref キャッシュ参照
+     * @return Node
+     */
+    protected Node createNode(CachedReference ref){
+        return new Node(ref);
+    }
+    
+    /**
+     * キャッシュ参照が追加された場合の処理を行う。<p>
+     * ロックを取得したスレッドから呼び出される。<br>
+     *
+     * @param node 追加されたNode
+     */
+    protected abstract void onAdd(Node node);
+    
+    /**
+     * キャッシュ参照がアクセスされた場合の処理を行う。<p>
+     * ロックを取得したスレッドから呼び出される。<br>
+     *
+     * @param node アクセスされたNode
+     */
+    protected abstract void onAccess(Node node);
+    
+    /**
+     * キャッシュ参照が削除された場合の処理を行う。<p>
+     * ロックを取得したスレッドから呼び出される。<br>
+     *
+     * @param node 削除されたNode
+     */
+    protected abstract void onRemove(Node node);
+    
+    /**
+     * あふれさせるNodeを決定する。<p>
+     * ロックを取得したスレッドから呼び出される。<br>
+     *
+     * @return あふれさせるNode。存在しない場合は、null
+     */
+    protected abstract Node selectOverflowNode();
+    
+    /**
+     * 保持している情報を初期化する。<p>
+     * ロックを取得したスレッドから呼び出される。<br>
+     */
+    protected abstract void onReset();
+    
+    /**
+     * キャッシュ参照を保持する双方向リンクリストの要素。<p>
+     *
+     * @author M.Takata
+     */
+    protected static class Node{
+        
+        /**
+         * キャッシュ参照。<p>
+         */
+        public final CachedReference reference;
+        
+        /**
+         * キャッシュされた時刻。<p>
+         */
+        public final long cachedTime;
+        
+        /**
+         * 前の要素。<p>
+         */
+        public Node prev;
+        
+        /**
+         * 次の要素。<p>
+         */
+        public Node next;
+        
+        /**
+         * 所属するリスト。<p>
+         */
+        public NodeList list;
+        
+        /**
+         * インスタンスを生成する。<p>
+         *
+         * @param ref キャッシュ参照
+         */
+        public Node(CachedReference ref){
+            reference = ref;
+            cachedTime = System.currentTimeMillis();
+        }
+        
+        /**
+         * リストに所属しているかどうかを判定する。<p>
+         *
+         * @return リストに所属している場合true
+         */
+        public boolean isLinked(){
+            return list != null;
+        }
+    }
+    
+    /**
+     * {@link Node}の双方向リンクリスト。<p>
+     * 全ての操作をO(1)で行う。<br>
+     *
+     * @author M.Takata
+     */
+    protected static class NodeList{
+        
+        private Node head;
+        private Node tail;
+        private int size;
+        
+        /**
+         * 要素数を取得する。<p>
+         *
+         * @return 要素数
+         */
+        public int size(){
+            return size;
+        }
+        
+        /**
+         * 先頭の要素を取得する。<p>
+         *
+         * @return 先頭の要素
+         */
+        public Node getFirst(){
+            return head;
+        }
+        
+        /**
+         * 最後尾の要素を取得する。<p>
+         *
+         * @return 最後尾の要素
+         */
+        public Node getLast(){
+            return tail;
+        }
+        
+        /**
+         * 最後尾に要素を追加する。<p>
+         *
+         * @param node 要素
+         */
+        public void addLast(Node node){
+            node.list = this;
+            node.prev = tail;
+            node.next = null;
+            if(tail == null){
+                head = node;
+            }else{
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+        
+        /**
+         * 要素を削除する。<p>
+         *
+         * @param node 要素
+         */
+        public void remove(Node node){
+            if(node.list != this){
+                return;
+            }
+            if(node.prev == null){
+                head = node.next;
+            }else{
+                node.prev.next = node.next;
+            }
+            if(node.next == null){
+                tail = node.prev;
+            }else{
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.list = null;
+            size--;
+        }
+        
+        /**
+         * 要素を最後尾に移動する。<p>
+         *
+         * @param node 要素
+         */
+        public void moveToLast(Node node){
+            if(node.list != this || node == tail){
+                return;
+            }
+            remove(node);
+            addLast(node);
+        }
+        
+        /**
+         * 全ての要素を削除する。<p>
+         */
+        public void clear(){
+            Node node = head;
+            while(node != null){
+                final Node next = node.next;
+                node.prev = null;
+                node.next = null;
+                node.list = null;
+                node = next;
+            }
+            head = null;
+            tail = null;
+            size = 0;
+        }
+    }
+}
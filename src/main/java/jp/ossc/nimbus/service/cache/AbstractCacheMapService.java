@@ -32,6 +32,8 @@
 package jp.ossc.nimbus.service.cache;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.lang.reflect.Array;
 
 import jp.ossc.nimbus.core.*;
@@ -73,6 +75,16 @@ public abstract class AbstractCacheMapService extends ServiceBase
      */
     protected boolean isClearOnDestroy = true;
     
+    /**
+     * {@link #get(Object)}でキャッシュが見つかった回数。<p>
+     */
+    protected final LongAdder hitCounter = new LongAdder();
+    
+    /**
+     * {@link #get(Object)}でキャッシュが見つからなかった回数。<p>
+     */
+    protected final LongAdder missCounter = new LongAdder();
+    
     // AbstractCacheMapServiceMBeanのJavaDoc
     public void setOverflowControllerServiceNames(ServiceName[] names){
         overflowControllerServiceNames = names;
@@ -100,6 +112,29 @@ public abstract class AbstractCacheMapService extends ServiceBase
         return isClearOnDestroy;
     }
     
+    // AbstractCacheMapServiceMBeanのJavaDoc
+    public long getHitCount(){
+        return hitCounter.sum();
+    }
+    
+    // AbstractCacheMapServiceMBeanのJavaDoc
+    public long getMissCount(){
+        return missCounter.sum();
+    }
+    
+    // AbstractCacheMapServiceMBeanのJavaDoc
+    public double getHitRatio(){
+        final long hit = hitCounter.sum();
+        final long total = hit + missCounter.sum();
+        return total == 0 ? 0.0d : (double)hit / (double)total;
+    }
+    
+    // AbstractCacheMapServiceMBeanのJavaDoc
+    public void resetHitRatio(){
+        hitCounter.reset();
+        missCounter.reset();
+    }
+    
     /**
      * OverflowControllerを設定する。
      */
@@ -115,10 +150,54 @@ public abstract class AbstractCacheMapService extends ServiceBase
      */
     public void preCreateService() throws Exception{
         super.preCreateService();
-        references = Collections.synchronizedMap(new HashMap());
+        references = createReferences();
         overflowControllers = new ArrayList();
     }
     
+    /**
+     * キャッシュのキーとキャッシュ参照のマップを生成する。<p>
+     * デフォルトでは、同期化された{@link HashMap}を生成する。<br>
+     * 並行アクセス性能が必要なサブクラスは、このメソッドをオーバーライドして{@link ConcurrentMap}を返す事で、マップ全体での同期化を行わないモードで動作させる事ができる。<br>
+     *
+     * @return キャッシュのキーとキャッシュ参照のマップ
+     */
+    protected Map createReferences(){
+        return Collections.synchronizedMap(new HashMap());
+    }
+    
+    /**
+     * キャッシュのキーとキャッシュ参照のマップが{@link ConcurrentMap}かどうかを判定する。<p>
+     *
+     * @return ConcurrentMapの場合true
+     */
+    protected boolean isConcurrentReferences(){
+        return references instanceof ConcurrentMap;
+    }
+    
+    /**
+     * キャッシュのキーのスナップショットを取得する。<p>
+     *
+     * @return キャッシュのキーの配列
+     */
+    protected Object[] getKeySnapshot(){
+        if(references == null){
+            return new Object[0];
+        }
+        return references.keySet().toArray();
+    }
+    
+    /**
+     * キャッシュ参照のスナップショットを取得する。<p>
+     *
+     * @return キャッシュ参照の配列
+     */
+    protected Object[] getReferenceSnapshot(){
+        if(references == null){
+            return new Object[0];
+        }
+        return references.values().toArray();
+    }
+    
     /**
      * サービスの開始前処理を行う。<p>
      * QverflowControllerサービスの取得を行う。<br>
@@ -205,17 +284,15 @@ public abstract class AbstractCacheMapService extends ServiceBase
         if(references == null){
             return false;
         }
-        synchronized(references){
-            final Iterator keys = references.keySet().iterator();
-            while(keys.hasNext()){
-                final Object obj = get(keys.next(), false);
-                if(value == null){
-                    if(obj == null){
-                        return true;
-                    }
-                }else if(value.equals(obj)){
+        final Object[] keys = getKeySnapshot();
+        for(int i = 0; i < keys.length; i++){
+            final Object obj = get(keys[i], false);
+            if(value == null){
+                if(obj == null){
                     return true;
                 }
+            }else if(value.equals(obj)){
+                return true;
             }
         }
         return false;
@@ -238,9 +315,20 @@ public abstract class AbstractCacheMapService extends ServiceBase
         }
         final CachedReference ref = (CachedReference)references.get(key);
         if(ref == null){
+            if(notify){
+                missCounter.increment();
+            }
             return null;
         }
-        return ref.get(this, notify);
+        final Object value = ref.get(this, notify);
+        if(notify){
+            if(value == null && !references.containsKey(key)){
+                missCounter.increment();
+            }else{
+                hitCounter.increment();
+            }
+        }
+        return value;
     }
     
     // CacheMapのJavaDoc
@@ -248,6 +336,10 @@ public abstract class AbstractCacheMapService extends ServiceBase
         if(references == null){
             return null;
         }
+        if(isConcurrentReferences()){
+            // 存在確認、削除、追加の間に他スレッドの更新が割り込まないように、1回の置き換えで追加する
+            return putReference(key, createKeyCachedReference(key, value));
+        }
         Object oldVal = null;
         if(references.containsKey(key)){
             oldVal = remove(key);
@@ -264,11 +356,28 @@ public abstract class AbstractCacheMapService extends ServiceBase
      * @param ref キャッシュ参照
      */
     protected void put(Object key, KeyCachedReference ref){
+        putReference(key, ref);
+    }
+    
+    /**
+     * 指定したキーのキャッシュ参照を追加する。<p>
+     * 参照の管理が並行マップの場合は、置き換えられたキャッシュ参照を解放して、その値を返す。<br>
+     *
+     * @param key キャッシュのキー
+     * @param ref キャッシュ参照
+     * @return 置き換えられたキャッシュ参照の値
+     */
+    protected Object putReference(Object key, KeyCachedReference ref){
         if(references == null || getState() > STOPPED || ref == null){
-            return;
+            return null;
         }
         ref.addCacheRemoveListener(this);
-        references.put(key, ref);
+        final CachedReference oldRef = (CachedReference)references.put(key, ref);
+        Object oldVal = null;
+        if(oldRef != null && oldRef != ref && isConcurrentReferences()){
+            oldVal = oldRef.get(this, false);
+            oldRef.remove(this);
+        }
         if(overflowControllers.size() != 0){
             final Iterator controllers = overflowControllers.iterator();
             while(controllers.hasNext()){
@@ -277,6 +386,7 @@ public abstract class AbstractCacheMapService extends ServiceBase
                 controller.control(ref);
             }
         }
+        return oldVal;
     }
     
     /**
@@ -323,7 +433,7 @@ public abstract class AbstractCacheMapService extends ServiceBase
         if(references == null || references.size() == 0){
             return;
         }
-        final Object[] keys = references.keySet().toArray();
+        final Object[] keys = getKeySnapshot();
         for(int i = 0; i < keys.length; i++){
             remove(keys[i]);
         }
@@ -348,7 +458,12 @@ public abstract class AbstractCacheMapService extends ServiceBase
     public void removed(CachedReference ref){
         if(references != null && ref instanceof KeyCachedReference){
             final KeyCachedReference keyRef = (KeyCachedReference)ref;
-            references.remove(keyRef.getKey());
+            if(isConcurrentReferences()){
+                // 既に別のキャッシュ参照に置き換えられている場合は削除しない
+                ((ConcurrentMap)references).remove(keyRef.getKey(), ref);
+            }else{
+                references.remove(keyRef.getKey());
+            }
         }
     }
     
@@ -414,16 +529,7 @@ public abstract class AbstractCacheMapService extends ServiceBase
             if(references == null || references.size() == 0){
                 return new Object[0];
             }
-            Object[] result = null;
-            synchronized(references){
-                int count = 0;
-                result = new Object[references.size()];
-                final Iterator keys = references.keySet().iterator();
-                while(keys.hasNext()){
-                    result[count++] = keys.next();
-                }
-            }
-            return result;
+            return getKeySnapshot();
         }
         
         // SetのJavaDoc
@@ -438,22 +544,19 @@ public abstract class AbstractCacheMapService extends ServiceBase
                     return a;
                 }
             }
+            final Object[] keys = getKeySnapshot();
             Object[] result = null;
-            synchronized(references){
-                final int length = references.size();
-                if(a.length >= length){
-                    result = a;
-                }else{
-                    result = (Object[])Array.newInstance(
-                        a.getClass().getComponentType(),
-                        length
-                    );
-                }
-                int count = 0;
-                final Iterator keys = references.keySet().iterator();
-                while(keys.hasNext()){
-                    result[count++] = keys.next();
-                }
+            if(a.length >= keys.length){
+                result = a;
+            }else{
+                result = (Object[])Array.newInstance(
+                    a.getClass().getComponentType(),
+                    keys.length
+                );
+            }
+            System.arraycopy(keys, 0, result, 0, keys.length);
+            if(result.length > keys.length){
+                result[keys.length] = null;
             }
             return result;
         }
@@ -493,7 +596,7 @@ public abstract class AbstractCacheMapService extends ServiceBase
                 return false;
             }
             boolean result = false;
-            final Object[] keys = references.keySet().toArray();
+            final Object[] keys = getKeySnapshot();
             for(int i = 0; i < keys.length; i++){
                 if(!c.contains(keys[i])){
                     result = remove(keys[i]);
@@ -556,7 +659,9 @@ public abstract class AbstractCacheMapService extends ServiceBase
          */
         public KeyIterator(){
             if(references != null){
-                iterator = new HashSet(references.keySet()).iterator();
+                iterator = isConcurrentReferences()
+                    ? references.keySet().iterator()
+                    : new HashSet(Arrays.asList(getKeySnapshot())).iterator();
             }
         }
         
@@ -652,19 +757,11 @@ public abstract class AbstractCacheMapService extends ServiceBase
             if(references == null || references.size() == 0){
                 return new Object[0];
             }
-            Object[] result = null;
-            synchronized(references){
-                result = new Object[references.size()];
-                int count = 0;
-                final Iterator values = references.values().iterator();
-                while(values.hasNext()){
-                    final CachedReference ref = (CachedReference)values.next();
-                    if(ref != null){
-                        result[count++] = ref.get(this);
-                    }else{
-                        result[count++] = null;
-                    }
-                }
+            final Object[] refs = getReferenceSnapshot();
+            final Object[] result = new Object[refs.length];
+            for(int i = 0; i < refs.length; i++){
+                final CachedReference ref = (CachedReference)refs[i];
+                result[i] = ref == null ? null : ref.get(this);
             }
             return result;
         }
@@ -681,27 +778,22 @@ public abstract class AbstractCacheMapService extends ServiceBase
                     return a;
                 }
             }
+            final Object[] refs = getReferenceSnapshot();
             Object[] result = null;
-            synchronized(references){
-                final int length = references.size();
-                if(a.length >= length){
-                    result = a;
-                }else{
-                    result = (Object[])Array.newInstance(
-                        a.getClass().getComponentType(),
-                        length
-                    );
-                }
-                int count = 0;
-                final Iterator values = references.values().iterator();
-                while(values.hasNext()){
-                    final CachedReference ref = (CachedReference)values.next();
-                    if(ref != null){
-                        result[count++] = ref.get(this);
-                    }else{
-                        result[count++] = null;
-                    }
-                }
+            if(a.length >= refs.length){
+                result = a;
+            }else{
+                result = (Object[])Array.newInstance(
+                    a.getClass().getComponentType(),
+                    refs.length
+                );
+            }
+            for(int i = 0; i < refs.length; i++){
+                final CachedReference ref = (CachedReference)refs[i];
+                result[i] = ref == null ? null : ref.get(this);
+            }
+            if(result.length > refs.length){
+                result[refs.length] = null;
             }
             return result;
         }
@@ -722,7 +814,7 @@ public abstract class AbstractCacheMapService extends ServiceBase
                 return false;
             }
             boolean result = false;
-            final Object[] values = references.values().toArray();
+            final Object[] values = getReferenceSnapshot();
             for(int i = 0; i < values.length; i++){
                 final KeyCachedReference ref
                      = (KeyCachedReference)values[i];
@@ -767,21 +859,19 @@ public abstract class AbstractCacheMapService extends ServiceBase
                 return false;
             }
             boolean result = false;
-            synchronized(references){
-                final Object[] values = references.values().toArray();
-                for(int i = 0; i < values.length; i++){
-                    final KeyCachedReference ref
-                         = (KeyCachedReference)values[i];
-                    Object val = null;
+            final Object[] values = getReferenceSnapshot();
+            for(int i = 0; i < values.length; i++){
+                final KeyCachedReference ref
+                     = (KeyCachedReference)values[i];
+                Object val = null;
+                if(ref != null){
+                    val = ref.get(this, false);
+                }
+                if(!c.contains(val)){
                     if(ref != null){
-                        val = ref.get(this, false);
-                    }
-                    if(!c.contains(val)){
-                        if(ref != null){
-                            if(AbstractCacheMapService.this
-                                .remove(ref.getKey()) != null){
-                                result = true;
-                            }
+                        if(AbstractCacheMapService.this
+                            .remove(ref.getKey()) != null){
+                            result = true;
                         }
                     }
                 }
@@ -843,7 +933,9 @@ public abstract class AbstractCacheMapService extends ServiceBase
          */
         public ValuesIterator(){
             if(references != null){
-                iterator = new HashSet(references.values()).iterator();
+                iterator = isConcurrentReferences()
+                    ? references.values().iterator()
+                    : new HashSet(Arrays.asList(getReferenceSnapshot())).iterator();
             }
         }
         
@@ -941,14 +1033,10 @@ public abstract class AbstractCacheMapService extends ServiceBase
             if(references == null || references.size() == 0){
                 return new Object[0];
             }
-            Entry[] result = null;
-            synchronized(references){
-                result = new Entry[references.size()];
-                int count = 0;
-                final Iterator keys = references.keySet().iterator();
-                while(keys.hasNext()){
-                    result[count++] = new Entry(keys.next());
-                }
+            final Object[] keys = getKeySnapshot();
+            final Entry[] result = new Entry[keys.length];
+            for(int i = 0; i < keys.length; i++){
+                result[i] = new Entry(keys[i]);
             }
             return result;
         }
@@ -965,22 +1053,21 @@ public abstract class AbstractCacheMapService extends ServiceBase
                     return a;
                 }
             }
+            final Object[] keys = getKeySnapshot();
             Object[] result = null;
-            synchronized(references){
-                final int length = references.size();
-                if(a.length >= length){
-                    result = a;
-                }else{
-                    result = (Object[])Array.newInstance(
-                        a.getClass().getComponentType(),
-                        length
-                    );
-                }
-                int count = 0;
-                final Iterator keys = references.keySet().iterator();
-                while(keys.hasNext()){
-                    result[count++] = new Entry(keys.next());
-                }
+            if(a.length >= keys.length){
+                result = a;
+            }else{
+                result = (Object[])Array.newInstance(
+                    a.getClass().getComponentType(),
+                    keys.length
+                );
+            }
+            for(int i = 0; i < keys.length; i++){
+                result[i] = new Entry(keys[i]);
+            }
+            if(result.length > keys.length){
+                result[keys.length] = null;
             }
             return result;
         }
@@ -1025,22 +1112,20 @@ public abstract class AbstractCacheMapService extends ServiceBase
                 return false;
             }
             boolean result = false;
-            synchronized(references){
-                final Object[] keys = references.keySet().toArray();
-                final Object[] entries = c.toArray();
-                final Set retainsKeys = new HashSet();
-                for(int i = 0; i < entries.length; i++){
-                    if(entries[i] instanceof Map.Entry){
-                        final Map.Entry entry = (Map.Entry)entries[i];
-                        retainsKeys.add(entry.getKey());
-                    }
+            final Object[] keys = getKeySnapshot();
+            final Object[] entries = c.toArray();
+            final Set retainsKeys = new HashSet();
+            for(int i = 0; i < entries.length; i++){
+                if(entries[i] instanceof Map.Entry){
+                    final Map.Entry entry = (Map.Entry)entries[i];
+                    retainsKeys.add(entry.getKey());
                 }
-                for(int i = 0; i < keys.length; i++){
-                    if(!retainsKeys.contains(keys[i])){
-                        final Object removed = AbstractCacheMapService.
-                            this.remove(keys[i]);
-                        result |= removed != null;
-                    }
+            }
+            for(int i = 0; i < keys.length; i++){
+                if(!retainsKeys.contains(keys[i])){
+                    final Object removed = AbstractCacheMapService.
+                        this.remove(keys[i]);
+                    result |= removed != null;
                 }
             }
             return result;
@@ -1095,7 +1180,9 @@ public abstract class AbstractCacheMapService extends ServiceBase
          */
         public EntryIterator(){
             if(references != null){
-                iterator = new HashSet(references.keySet()).iterator();
+                iterator = isConcurrentReferences()
+                    ? references.keySet().iterator()
+                    : new HashSet(Arrays.asList(getKeySnapshot())).iterator();
             }
         }
         
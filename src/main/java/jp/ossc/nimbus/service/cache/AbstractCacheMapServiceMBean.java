@@ -85,4 +85,31 @@ public interface AbstractCacheMapServiceMBean
      * @return サービスの破棄時にキャッシュをクリアする場合は、true
      */
     public boolean isClearOnDestroy();
+    
+    /**
+     * キャッシュの取得で、キャッシュが見つかった回数を取得する。<p>
+     * 取得したキャッシュが既に破棄されていた場合は、見つからなかったとみなす。<br>
+     *
+     * @return ヒット回数
+     */
+    public long getHitCount();
+    
+    /**
+     * キャッシュの取得で、キャッシュが見つからなかった回数を取得する。<p>
+     *
+     * @return ミス回数
+     */
+    public long getMissCount();
+    
+    /**
+     * キャッシュのヒット率を取得する。<p>
+     *
+     * @return ヒット率。取得が行われていない場合は0
+     */
+    public double getHitRatio();
+    
+    /**
+     * キャッシュのヒット回数とミス回数をリセットする。<p>
+     */
+    public void resetHitRatio();
 }
@@ -0,0 +1,94 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.cache;
+
+/**
+ * 並行Least Recently Used あふれアルゴリズムサービス。<p>
+ * {@link LRUOverflowAlgorithmService}と同じく、参照されていない時間が最も長いキャッシュ参照をあふれさせるが、アクセス順を双方向リンクリストで管理するため、あふれ対象の決定にソートを必要とせずO(1)で行える。<br>
+ * また、アクセス通知は{@link AbstractBufferedOverflowAlgorithmService}のアクセスバッファを介してまとめて反映されるため、キャッシュへのアクセスがあふれアルゴリズムで直列化されない。<br>
+ * 以下に、並行LRUであふれ対象となるキャッシュオブジェクトを決定するあふれアルゴリズムサービスのサービス定義例を示す。<br>
+ * <pre>
+ * &lt;?xml version="1.0" encoding="Shift_JIS"?&gt;
+ * 
+ * &lt;server&gt;
+ *     
+ *     &lt;manager name="Sample"&gt;
+ *         
+ *         &lt;service name="ConcurrentLRUOverflowAlgorithm"
+ *                  code="jp.ossc.nimbus.service.cache.ConcurrentLRUOverflowAlgorithmService"/&gt;
+ *         
+ *     &lt;/manager&gt;
+ *     
+ * &lt;/server&gt;
+ * </pre>
+ *
+ * @author M.Takata
+ */
+public class ConcurrentLRUOverflowAlgorithmService
+ extends AbstractBufferedOverflowAlgorithmService
+ implements ConcurrentLRUOverflowAlgorithmServiceMBean{
+    
+    private static final long serialVersionUID = -1730581716873449128L;
+    
+    private transient NodeList accessOrder;
+    
+    /**
+     * サービスの生成処理を行う。<p>
+     * インスタンス変数の初期化を行う。
+     *
+     * @exception Exception サービスの生成処理に失敗した場合
+     */
+    public void createService() throws Exception{
+        super.createService();
+        accessOrder = new NodeList();
+    }
+    
+    protected void onAdd(Node node){
+        accessOrder.addLast(node);
+    }
+    
+    protected void onAccess(Node node){
+        accessOrder.moveToLast(node);
+    }
+    
+    protected void onRemove(Node node){
+        accessOrder.remove(node);
+    }
+    
+    protected Node selectOverflowNode(){
+        return accessOrder.getFirst();
+    }
+    
+    protected void onReset(){
+        accessOrder.clear();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 並行メモリキャッシュマップサービス。<p>
+ * キャッシュのキーとキャッシュ参照のマップに{@link ConcurrentHashMap}を使用する{@link MemoryCacheMapService}である。<br>
+ * {@link MemoryCacheMapService}は、マップ全体を１つのモニタで同期化するため、多数のスレッドから同時にアクセスされる場合に競合が発生する。このサービスでは、読み込みはロックを取得せずに行われ、書き込みはマップのセグメント単位でのみ同期化される。<br>
+ * また、キー集合、値集合、エントリ集合の繰り返しは、スナップショットを取らず弱い一貫性を持つ繰り返しとなり、繰り返し中にキャッシュマップが変更されても、{@link java.util.ConcurrentModificationException}は発生しない。<br>
+ * あふれ制御は、{@link MemoryCacheMapService}と同様に{@link OverflowController}に委譲される。<br>
+ * 但し、キャッシュのキーにnullは使用できない。<br>
+ * 以下に、キャッシュオブジェクトをメモリ中に保持する並行キャッシュマップサービスのサービス定義例を示す。<br>
+ * <pre>
+ * &lt;?xml version="1.0" encoding="Shift_JIS"?&gt;
+ * 
+ * &lt;server&gt;
+ *     
+ *     &lt;manager name="Sample"&gt;
+ *         
+ *         &lt;service name="ConcurrentMemoryCacheMap"
+ *                  code="jp.ossc.nimbus.service.cache.ConcurrentMemoryCacheMapService"&gt;
+ *             &lt;attribute name="ConcurrencyLevel"&gt;64&lt;/attribute&gt;
+ *         &lt;/service&gt;
+ *         
+ *     &lt;/manager&gt;
+ *     
+ * &lt;/server&gt;
+ * </pre>
+ *
+ * @author M.Takata
+ */
+public class ConcurrentMemoryCacheMapService extends MemoryCacheMapService
+ implements ConcurrentMemoryCacheMapServiceMBean{
+    
+    private static final long serialVersionUID = -3261786316529087742L;
+    
+    private int initialCapacity = 16;
+    private float loadFactor = 0.75f;
+    private int concurrencyLevel = 16;
+    
+    // ConcurrentMemoryCacheMapServiceMBeanのJavaDoc
+    public void setInitialCapacity(int capacity){
+        initialCapacity = capacity;
+    }
+    // ConcurrentMemoryCacheMapServiceMBeanのJavaDoc
+    public int getInitialCapacity(){
+        return initialCapacity;
+    }
+    
+    // ConcurrentMemoryCacheMapServiceMBeanのJavaDoc
+    public void setLoadFactor(float factor){
+        loadFactor = factor;
+    }
+    // ConcurrentMemoryCacheMapServiceMBeanのJavaDoc
+    public float getLoadFactor(){
+        return loadFactor;
+    }
+    
+    // ConcurrentMemoryCacheMapServiceMBeanのJavaDoc
+    public void setConcurrencyLevel(int level){
+        concurrencyLevel = level;
+    }
+    // ConcurrentMemoryCacheMapServiceMBeanのJavaDoc
+    public int getConcurrencyLevel(){
+        return concurrencyLevel;
+    }
+    
+    /**
+     * キャッシュのキーとキャッシュ参照のマップを生成する。<p>
+     *
+     * @return {@link ConcurrentHashMap}
+     */
+    protected Map createReferences(){
+        return new ConcurrentHashMap(
+            initialCapacity,
+            loadFactor,
+            concurrencyLevel
+        );
+    }
+    
+    // CacheMapのJavaDoc
+    public KeyCachedReference getCachedReference(Object key){
+        if(key == null){
+            return null;
+        }
+        return super.getCachedReference(key);
+    }
+    
+    // CacheMapのJavaDoc
+    public boolean containsKey(Object key){
+        if(key == null){
+            return false;
+        }
+        return super.containsKey(key);
+    }
+    
+    /**
+     * 指定されたキーのキャッシュを取得する。<p>
+     *
+     * @param key キャッシュのキー
+     * @param notify キャッシュにアクセスした事をリスナに通知するかどうかのフラグ。通知する場合、true
+     */
+    protected Object get(Object key, boolean notify){
+        if(key == null){
+            return null;
+        }
+        return super.get(key, notify);
+    }
+    
+    // CacheMapのJavaDoc
+    public Object put(Object key, Object value){
+        if(key == null){
+            throw new IllegalArgumentException("Key is null.");
+        }
+        return super.put(key, value);
+    }
+    
+    // CacheMapのJavaDoc
+    public Object remove(Object key){
+        if(key == null){
+            return null;
+        }
+        return super.remove(key);
+    }
+}
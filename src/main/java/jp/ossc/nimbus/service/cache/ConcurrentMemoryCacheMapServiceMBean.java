@@ -0,0 +1,87 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.cache;
+
+/**
+ * {@link ConcurrentMemoryCacheMapService}のMBeanインタフェース<p>
+ * 
+ * @author M.Takata
+ * @see ConcurrentMemoryCacheMapService
+ */
+public interface ConcurrentMemoryCacheMapServiceMBean
+ extends MemoryCacheMapServiceMBean{
+    
+    /**
+     * キャッシュマップの初期容量を設定する。<p>
+     * デフォルトは、16。<br>
+     *
+     * @param capacity 初期容量
+     */
+    public void setInitialCapacity(int capacity);
+    
+    /**
+     * キャッシュマップの初期容量を取得する。<p>
+     *
+     * @return 初期容量
+     */
+    public int getInitialCapacity();
+    
+    /**
+     * キャッシュマップの負荷係数を設定する。<p>
+     * デフォルトは、0.75。<br>
+     *
+     * @param factor 負荷係数
+     */
+    public void setLoadFactor(float factor);
+    
+    /**
+     * キャッシュマップの負荷係数を取得する。<p>
+     *
+     * @return 負荷係数
+     */
+    public float getLoadFactor();
+    
+    /**
+     * キャッシュマップを同時に更新するスレッドの推定数を設定する。<p>
+     * デフォルトは、16。<br>
+     *
+     * @param level 同時に更新するスレッドの推定数
+     */
+    public void setConcurrencyLevel(int level);
+    
+    /**
+     * キャッシュマップを同時に更新するスレッドの推定数を取得する。<p>
+     *
+     * @return 同時に更新するスレッドの推定数
+     */
+    public int getConcurrencyLevel();
+}
@@ -0,0 +1,722 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.cache;
+
+import java.util.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import jp.ossc.nimbus.core.*;
+import jp.ossc.nimbus.service.io.Externalizer;
+
+/**
+ * メモリマップドファイルキャッシュマップサービス。<p>
+ * キャッシュオブジェクトを直列化して、少数の大きなセグメントファイルをメモリマップした{@link MappedByteBuffer}に格納する。<br>
+ * 各キャッシュオブジェクトの格納位置は、ヒープ上のスロットで管理するため、{@link FileCacheMapService}のようにキャッシュオブジェクト毎にファイルを作成したり、参照の都度ファイルを開いたりする必要がない。<br>
+ * 削除や更新によってセグメント内に生じた無効領域は、コンパクションによって回収する。<br>
+ * {@link StoreCacheOverflowActionService}の退避先キャッシュマップとして指定すれば、ヒープ上のキャッシュからあふれたキャッシュオブジェクトをヒープ外に退避できる。<br>
+ * 以下に、メモリキャッシュマップからあふれたキャッシュオブジェクトをメモリマップドファイルキャッシュマップに退避するサービス定義例を示す。<br>
+ * <pre>
+ * &lt;?xml version="1.0" encoding="Shift_JIS"?&gt;
+ * 
+ * &lt;server&gt;
+ *     
+ *     &lt;manager name="Sample"&gt;
+ *         
+ *         &lt;service name="CacheMap"
+ *                  code="jp.ossc.nimbus.service.cache.MemoryCacheMapService"&gt;
+ *             &lt;attribute name="OverflowControllerServiceNames"&gt;
+ *                 #OverflowController
+ *             &lt;/attribute&gt;
+ *             &lt;depends&gt;OverflowController&lt;/depends&gt;
+ *         &lt;/service&gt;
+ *         
+ *         &lt;service name="OverflowController"
+ *                  code="jp.ossc.nimbus.service.cache.DefaultOverflowControllerService"&gt;
+ *             &lt;attribute name="OverflowValidatorServiceName"&gt;#OverflowValidator&lt;/attribute&gt;
+ *             &lt;attribute name="OverflowAlgorithmServiceName"&gt;#OverflowAlgorithm&lt;/attribute&gt;
+ *             &lt;attribute name="OverflowActionServiceName"&gt;#OverflowAction&lt;/attribute&gt;
+ *             &lt;depends&gt;
+ *                 &lt;service name="OverflowValidator"
+ *                          code="jp.ossc.nimbus.service.cache.CacheSizeOverflowValidatorService"&gt;
+ *                     &lt;attribute name="MaxSize"&gt;10000&lt;/attribute&gt;
+ *                 &lt;/service&gt;
+ *             &lt;/depends&gt;
+ *             &lt;depends&gt;
+ *                 &lt;service name="OverflowAlgorithm"
+ *                          code="jp.ossc.nimbus.service.cache.LRUOverflowAlgorithmService"/&gt;
+ *             &lt;/depends&gt;
+ *             &lt;depends&gt;
+ *                 &lt;service name="OverflowAction"
+ *                          code="jp.ossc.nimbus.service.cache.StoreCacheOverflowActionService"&gt;
+ *                     &lt;attribute name="CacheMapServiceName"&gt;#MappedFileCacheMap&lt;/attribute&gt;
+ *                     &lt;depends&gt;
+ *                         &lt;service name="MappedFileCacheMap"
+ *                                  code="jp.ossc.nimbus.service.cache.MappedFileCacheMapService"&gt;
+ *                             &lt;attribute name="OutputDirectory"&gt;cache&lt;/attribute&gt;
+ *                         &lt;/service&gt;
+ *                     &lt;/depends&gt;
+ *                 &lt;/service&gt;
+ *             &lt;/depends&gt;
+ *         &lt;/service&gt;
+ *         
+ *     &lt;/manager&gt;
+ *     
+ * &lt;/server&gt;
+ * </pre>
+ *
+ * @author M.Takata
+ * @see MappedFileKeyCachedReference
+ */
+public class MappedFileCacheMapService extends AbstractCacheMapService
+ implements java.io.Serializable, MappedFileCacheMapServiceMBean{
+    
+    private static final long serialVersionUID = -2716236598345620553L;
+    
+    private static final String JVM_TMP_DIR = "java.io.tmpdir";
+    
+    private static final String MFCM_00001 = "MFCM_00001";
+    
+    private static final Comparator SLOT_OFFSET_COMPARATOR = new Comparator(){
+        public int compare(Object o1, Object o2){
+            final int offset1 = ((Slot)o1).offset;
+            final int offset2 = ((Slot)o2).offset;
+            return offset1 < offset2 ? -1 : (offset1 == offset2 ? 0 : 1);
+        }
+    };
+    
+    private String outputDirectory;
+    private File directory;
+    private String prefix = DEFAULT_PREFIX;
+    private String suffix = DEFAULT_SUFFIX;
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+    private float compactionThreshold = 0.5f;
+    
+    private ServiceName externalizerServiceName;
+    private Externalizer externalizer;
+    
+    private transient List segments;
+    private transient Segment activeSegment;
+    private transient ReentrantReadWriteLock segmentLock;
+    private transient volatile long compactionCount;
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public void setOutputDirectory(String path)
+     throws IllegalArgumentException{
+        if(path != null){
+            final File dir = new File(path);
+            if(dir.exists()){
+                if(!dir.isDirectory()){
+                    throw new IllegalArgumentException(
+                        "Path is illegal : " + path
+                    );
+                }
+            }else{
+                if(!dir.mkdirs()){
+                    throw new IllegalArgumentException(
+                        "Path is illegal : " + path
+                    );
+                }
+            }
+            directory = dir;
+            outputDirectory = path;
+        }
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public String getOutputDirectory(){
+        return outputDirectory;
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public void setOutputPrefix(String prefix){
+        this.prefix = prefix;
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public String getOutputPrefix(){
+        return prefix;
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public void setOutputSuffix(String suffix){
+        this.suffix = suffix;
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public String getOutputSuffix(){
+        return suffix;
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public void setSegmentSize(int size){
+        if(size <= 0){
+            throw new IllegalArgumentException("SegmentSize must be positive : " + size);
+        }
+        segmentSize = size;
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public int getSegmentSize(){
+        return segmentSize;
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public void setCompactionThreshold(float ratio){
+        compactionThreshold = ratio;
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public float getCompactionThreshold(){
+        return compactionThreshold;
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public void setExternalizerServiceName(ServiceName name){
+        externalizerServiceName = name;
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public ServiceName getExternalizerServiceName(){
+        return externalizerServiceName;
+    }
+    
+    public void setExternalizer(Externalizer ext){
+        externalizer = ext;
+    }
+    
+    public Externalizer getExternalizer(){
+        return externalizer;
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public int getSegmentCount(){
+        if(segmentLock == null){
+            return 0;
+        }
+        segmentLock.readLock().lock();
+        try{
+            return segments.size();
+        }finally{
+            segmentLock.readLock().unlock();
+        }
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public long getMappedSize(){
+        if(segmentLock == null){
+            return 0l;
+        }
+        segmentLock.readLock().lock();
+        try{
+            long size = 0l;
+            for(int i = 0, imax = segments.size(); i < imax; i++){
+                size += ((Segment)segments.get(i)).capacity;
+            }
+            return size;
+        }finally{
+            segmentLock.readLock().unlock();
+        }
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public long getUsedSize(){
+        if(segmentLock == null){
+            return 0l;
+        }
+        segmentLock.readLock().lock();
+        try{
+            long size = 0l;
+            for(int i = 0, imax = segments.size(); i < imax; i++){
+                size += ((Segment)segments.get(i)).position;
+            }
+            return size;
+        }finally{
+            segmentLock.readLock().unlock();
+        }
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public long getLiveSize(){
+        if(segmentLock == null){
+            return 0l;
+        }
+        segmentLock.readLock().lock();
+        try{
+            long size = 0l;
+            for(int i = 0, imax = segments.size(); i < imax; i++){
+                size += ((Segment)segments.get(i)).liveSize;
+            }
+            return size;
+        }finally{
+            segmentLock.readLock().unlock();
+        }
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public long getCompactionCount(){
+        return compactionCount;
+    }
+    
+    // MappedFileCacheMapServiceMBeanのJavaDoc
+    public void compact(){
+        if(segmentLock == null){
+            return;
+        }
+        segmentLock.writeLock().lock();
+        try{
+            compact(0.0f);
+        }finally{
+            segmentLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * サービスの生成処理を行う。<p>
+     *
+     * @exception Exception サービスの生成処理に失敗した場合
+     */
+    public void createService() throws Exception{
+        segments = new ArrayList();
+        segmentLock = new ReentrantReadWriteLock();
+    }
+    
+    /**
+     * サービスの開始処理を行う。<p>
+     *
+     * @exception Exception サービスの開始処理に失敗した場合
+     */
+    public void startService() throws Exception{
+        if(externalizerServiceName != null){
+            externalizer = (Externalizer)ServiceManagerFactory.getServiceObject(externalizerServiceName);
+        }
+    }
+    
+    /**
+     * サービスの破棄後処理を行う。<p>
+     * キャッシュをクリアした後に、全てのセグメントファイルを閉じて削除する。<br>
+     *
+     * @exception Exception 破棄後処理に失敗した場合
+     */
+    public void postDestroyService() throws Exception{
+        super.postDestroyService();
+        if(segmentLock != null){
+            segmentLock.writeLock().lock();
+            try{
+                for(int i = 0, imax = segments.size(); i < imax; i++){
+                    ((Segment)segments.get(i)).close();
+                }
+                segments.clear();
+                activeSegment = null;
+            }finally{
+                segmentLock.writeLock().unlock();
+            }
+        }
+    }
+    
+    /**
+     * メモリマップドファイルキャッシュ参照を生成する。<p>
+     * キャッシュオブジェクトの直列化またはセグメントへの書き込みに失敗した場合は、警告ログを出力してnullを返す。この場合、キャッシュオブジェクトは格納されない。<br>
+     * {@link StoreCacheOverflowActionService}の退避先の場合は、格納されなかったキャッシュオブジェクトは退避元に残る。<br>
+     *
+     * @param key キャッシュキー
+     * @param obj キャッシュオブジェクト
+     * @return メモリマップドファイルキャッシュ参照
+     */
+    protected KeyCachedReference createKeyCachedReference(
+        Object key,
+        Object obj
+    ){
+        try{
+            return new MappedFileKeyCachedReference(key, obj, this);
+        }catch(IOException e){
+            getLogger().write(MFCM_00001, key, e);
+            return null;
+        }
+    }
+    
+    /**
+     * オブジェクトを直列化する。<p>
+     *
+     * @param obj 直列化するオブジェクト
+     * @return 直列化したバイト配列
+     * @exception IOException 直列化に失敗した場合
+     */
+    protected byte[] serializeObject(Object obj) throws IOException{
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        if(externalizer == null){
+            final ObjectOutputStream oos = new ObjectOutputStream(baos);
+            if(obj != null){
+                synchronized(obj){
+                    oos.writeObject(obj);
+                }
+            }else{
+                oos.writeObject(obj);
+            }
+            oos.flush();
+        }else{
+            if(obj != null){
+                synchronized(obj){
+                    externalizer.writeExternal(obj, baos);
+                }
+            }else{
+                externalizer.writeExternal(obj, baos);
+            }
+        }
+        return baos.toByteArray();
+    }
+    
+    /**
+     * バイト配列からオブジェクトを復元する。<p>
+     *
+     * @param bytes 直列化されたバイト配列
+     * @return 復元したオブジェクト
+     * @exception IOException 復元に失敗した場合
+     * @exception ClassNotFoundException 復元結果のクラスが存在しない場合
+     */
+    protected Object deserializeObject(byte[] bytes)
+     throws IOException, ClassNotFoundException{
+        final InputStream is = new ByteArrayInputStream(bytes);
+        if(externalizer == null){
+            return new ObjectInputStream(is).readObject();
+        }else{
+            return externalizer.readExternal(is);
+        }
+    }
+    
+    /**
+     * 指定されたバイト配列をセグメントに書き込み、その格納位置を表すスロットを返す。<p>
+     *
+     * @param bytes 書き込むバイト配列
+     * @return スロット
+     * @exception IOException セグメントの確保に失敗した場合
+     */
+    protected Slot write(byte[] bytes) throws IOException{
+        if(segmentLock == null){
+            throw new IOException("Service is not created.");
+        }
+        segmentLock.writeLock().lock();
+        try{
+            final Slot slot = new Slot();
+            writeSlot(slot, bytes);
+            return slot;
+        }finally{
+            segmentLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * 指定されたスロットに格納されたバイト配列を読み込む。<p>
+     * 読み込みは、他の読み込みとは並行して行える。<br>
+     *
+     * @param slot スロット
+     * @return 読み込んだバイト配列。スロットが既に解放されている場合は、null
+     */
+    protected byte[] read(Slot slot){
+        if(segmentLock == null){
+            return null;
+        }
+        segmentLock.readLock().lock();
+        try{
+            return readSlot(slot);
+        }finally{
+            segmentLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 指定されたスロットを解放する。<p>
+     * セグメント内の全てのスロットが解放された場合、そのセグメントは先頭から再利用される。<br>
+     * 解放によってセグメント内の無効領域の割合が{@link #setCompactionThreshold(float) コンパクション閾値}以上になった場合は、そのセグメントのコンパクションを行う。<br>
+     *
+     * @param slot スロット
+     */
+    protected void free(Slot slot){
+        if(segmentLock == null || slot == null){
+            return;
+        }
+        segmentLock.writeLock().lock();
+        try{
+            final Segment segment = slot.segment;
+            if(segment == null){
+                return;
+            }
+            segment.slots.remove(slot);
+            segment.liveSize -= slot.length;
+            slot.segment = null;
+            if(segment.slots.size() == 0){
+                segment.position = 0;
+                segment.liveSize = 0;
+            }else if(compactionThreshold > 0.0f
+                && isCompactionTarget(segment, compactionThreshold)){
+                compact(segment);
+                compactionCount++;
+            }
+        }finally{
+            segmentLock.writeLock().unlock();
+        }
+    }
+    
+    private byte[] readSlot(Slot slot){
+        final Segment segment = slot.segment;
+        if(segment == null){
+            return null;
+        }
+        final byte[] bytes = new byte[slot.length];
+        final ByteBuffer buf = segment.buffer.duplicate();
+        buf.position(slot.offset);
+        buf.get(bytes);
+        return bytes;
+    }
+    
+    private void writeSlot(Slot slot, byte[] bytes) throws IOException{
+        final Segment segment = allocate(bytes.length);
+        final ByteBuffer buf = segment.buffer.duplicate();
+        buf.position(segment.position);
+        buf.put(bytes);
+        slot.segment = segment;
+        slot.offset = segment.position;
+        slot.length = bytes.length;
+        segment.position += bytes.length;
+        segment.liveSize += bytes.length;
+        segment.slots.add(slot);
+    }
+    
+    private Segment allocate(int length) throws IOException{
+        if(activeSegment != null
+             && activeSegment.capacity - activeSegment.position >= length){
+            return activeSegment;
+        }
+        Segment segment = findSegment(length);
+        if(segment == null && compactionThreshold > 0.0f){
+            long used = 0l;
+            long live = 0l;
+            for(int i = 0, imax = segments.size(); i < imax; i++){
+                final Segment s = (Segment)segments.get(i);
+                used += s.position;
+                live += s.liveSize;
+            }
+            if(used != 0 && (double)(used - live) / used >= compactionThreshold){
+                compact(compactionThreshold);
+                segment = findSegment(length);
+            }
+        }
+        if(segment == null){
+            segment = createSegment(Math.max(segmentSize, length));
+            segments.add(segment);
+        }
+        activeSegment = segment;
+        return segment;
+    }
+    
+    private Segment findSegment(int length){
+        for(int i = 0, imax = segments.size(); i < imax; i++){
+            final Segment segment = (Segment)segments.get(i);
+            if(segment.capacity - segment.position >= length){
+                return segment;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 無効領域の割合が指定値以上のセグメントのコンパクションを行う。<p>
+     * 対象セグメントの有効なスロットを格納位置の順にセグメントの先頭に詰め直し、末尾の空き領域を再利用可能にする。<br>
+     * スロットは、常に元の位置より前方に移動するため、移動先の領域を別途確保する必要はない。<br>
+     * 書き込みロックを取得した状態で呼び出すこと。<br>
+     *
+     * @param threshold 無効領域の割合
+     */
+    private void compact(float threshold){
+        boolean isCompacted = false;
+        for(int i = 0, imax = segments.size(); i < imax; i++){
+            final Segment segment = (Segment)segments.get(i);
+            if(!isCompactionTarget(segment, threshold)){
+                continue;
+            }
+            compact(segment);
+            isCompacted = true;
+        }
+        if(isCompacted){
+            compactionCount++;
+        }
+    }
+    
+    private boolean isCompactionTarget(Segment segment, float threshold){
+        if(segment.position == 0
+            || segment.position == segment.liveSize){
+            return false;
+        }
+        return (double)(segment.position - segment.liveSize) / segment.position
+             >= threshold;
+    }
+    
+    /**
+     * 指定されたセグメントの有効なスロットを格納位置の順にセグメントの先頭に詰め直す。<p>
+     * 書き込みロックを取得した状態で呼び出すこと。<br>
+     *
+     * @param segment セグメント
+     */
+    private void compact(Segment segment){
+        final Slot[] slots = (Slot[])segment.slots.toArray(
+            new Slot[segment.slots.size()]
+        );
+        Arrays.sort(slots, SLOT_OFFSET_COMPARATOR);
+        final ByteBuffer src = segment.buffer.duplicate();
+        final ByteBuffer dest = segment.buffer.duplicate();
+        int position = 0;
+        for(int j = 0; j < slots.length; j++){
+            final Slot slot = slots[j];
+            if(slot.offset != position){
+                src.limit(slot.offset + slot.length);
+                src.position(slot.offset);
+                dest.position(position);
+                dest.put(src);
+                slot.offset = position;
+            }
+            position += slot.length;
+        }
+        segment.position = position;
+    }
+    
+    /**
+     * 指定されたサイズのセグメントを生成する。<p>
+     *
+     * @param capacity セグメントのサイズ
+     * @return セグメント
+     * @exception IOException セグメントファイルの作成またはメモリマップに失敗した場合
+     */
+    protected Segment createSegment(int capacity) throws IOException{
+        File dir = directory;
+        if(dir == null){
+            final String tmpFileStr = System.getProperty(JVM_TMP_DIR);
+            if(tmpFileStr != null){
+                dir = new File(tmpFileStr);
+            }
+        }
+        final File file = File.createTempFile(
+            prefix == null || prefix.length() < 3 ? DEFAULT_PREFIX : prefix,
+            suffix,
+            dir
+        );
+        file.deleteOnExit();
+        return new Segment(file, capacity);
+    }
+    
+    /**
+     * セグメント内の格納位置を表すスロット。<p>
+     *
+     * @author M.Takata
+     */
+    public static class Slot{
+        
+        private Segment segment;
+        private int offset;
+        private int length;
+        
+        /**
+         * 格納されているバイト数を取得する。<p>
+         *
+         * @return バイト数
+         */
+        public int getLength(){
+            return length;
+        }
+        
+        /**
+         * スロットが有効かどうかを判定する。<p>
+         *
+         * @return 解放されていない場合true
+         */
+        public boolean isValid(){
+            return segment != null;
+        }
+    }
+    
+    /**
+     * メモリマップされたセグメントファイル。<p>
+     *
+     * @author M.Takata
+     */
+    protected static class Segment{
+        
+        private final File file;
+        private final RandomAccessFile raf;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private final Set slots = new HashSet();
+        private int position;
+        private int liveSize;
+        
+        /**
+         * 指定されたファイルを指定されたサイズでメモリマップしたセグメントを生成する。<p>
+         *
+         * @param file セグメントファイル
+         * @param capacity セグメントのサイズ
+         * @exception IOException メモリマップに失敗した場合
+         */
+        public Segment(File file, int capacity) throws IOException{
+            this.file = file;
+            this.capacity = capacity;
+            raf = new RandomAccessFile(file, "rw");
+            try{
+                raf.setLength(capacity);
+                channel = raf.getChannel();
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            }catch(IOException e){
+                try{
+                    raf.close();
+                }catch(IOException e2){}
+                file.delete();
+                throw e;
+            }
+        }
+        
+        /**
+         * セグメントファイルを閉じて削除する。<p>
+         */
+        public void close(){
+            slots.clear();
+            try{
+                channel.close();
+            }catch(IOException e){}
+            try{
+                raf.close();
+            }catch(IOException e){}
+            file.delete();
+        }
+    }
+}
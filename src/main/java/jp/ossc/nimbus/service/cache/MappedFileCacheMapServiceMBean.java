@@ -0,0 +1,195 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.cache;
+
+import jp.ossc.nimbus.core.ServiceName;
+
+/**
+ * {@link MappedFileCacheMapService}のMBeanインタフェース<p>
+ * 
+ * @author M.Takata
+ * @see MappedFileCacheMapService
+ */
+public interface MappedFileCacheMapServiceMBean extends AbstractCacheMapServiceMBean{
+    
+    /**
+     * セグメントファイルのファイル名のデフォルトプレフィクス。<p>
+     */
+    public static final String DEFAULT_PREFIX = "mapped";
+    
+    /**
+     * セグメントファイルのファイル名のデフォルトサフィックス。<p>
+     */
+    public static final String DEFAULT_SUFFIX = ".seg";
+    
+    /**
+     * セグメントサイズのデフォルト値。<p>
+     * 64Mバイト。<br>
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    
+    /**
+     * キャッシュしたオブジェクトを直列化して格納するセグメントファイルの出力先ディレクトリを設定する。<p>
+     * 出力先ディレクトリが指定されていない場合は、JVMのテンポラリディレクトリを使用する。<br>
+     *
+     * @param path 出力ディレクトリパス
+     * @exception IllegalArgumentException 指定されたパスのディレクトリが作成できない場合
+     */
+    public void setOutputDirectory(String path)
+     throws IllegalArgumentException;
+    
+    /**
+     * キャッシュしたオブジェクトを直列化して格納するセグメントファイルの出力先ディレクトリを取得する。<p>
+     *
+     * @return 出力ディレクトリパス
+     */
+    public String getOutputDirectory();
+    
+    /**
+     * セグメントファイルのファイル名のプレフィクスを設定する。<p>
+     * デフォルトは、{@link #DEFAULT_PREFIX}。<br>
+     *
+     * @param prefix ファイル名のプレフィクス
+     */
+    public void setOutputPrefix(String prefix);
+    
+    /**
+     * セグメントファイルのファイル名のプレフィクスを取得する。<p>
+     *
+     * @return ファイル名のプレフィクス
+     */
+    public String getOutputPrefix();
+    
+    /**
+     * セグメントファイルのファイル名のサフィックスを設定する。<p>
+     * デフォルトは、{@link #DEFAULT_SUFFIX}。<br>
+     *
+     * @param suffix ファイル名のサフィックス
+     */
+    public void setOutputSuffix(String suffix);
+    
+    /**
+     * セグメントファイルのファイル名のサフィックスを取得する。<p>
+     *
+     * @return ファイル名のサフィックス
+     */
+    public String getOutputSuffix();
+    
+    /**
+     * 1つのセグメントファイルをメモリマップするサイズを設定する。<p>
+     * 直列化したキャッシュオブジェクトがこのサイズを超える場合は、そのサイズのセグメントを個別に確保する。<br>
+     * デフォルトは、{@link #DEFAULT_SEGMENT_SIZE}。<br>
+     *
+     * @param size セグメントサイズ[byte]
+     */
+    public void setSegmentSize(int size);
+    
+    /**
+     * 1つのセグメントファイルをメモリマップするサイズを取得する。<p>
+     *
+     * @return セグメントサイズ[byte]
+     */
+    public int getSegmentSize();
+    
+    /**
+     * コンパクションを行うセグメント内の無効領域の割合を設定する。<p>
+     * キャッシュの削除や更新で領域を解放した際に、そのセグメントの使用済み領域のうち無効領域がこの割合以上を占める場合、そのセグメントの有効データを先頭に詰め直して、空いた領域を再利用する。<br>
+     * また、新しいセグメントを確保する必要が生じた際に、全セグメントの使用済み領域のうち削除済みの領域がこの割合以上を占める場合も、無効領域の割合がこの値以上のセグメントを同様に詰め直す。<br>
+     * 0以下を指定すると、自動的なコンパクションは行わない。<br>
+     * デフォルトは、0.5。<br>
+     *
+     * @param ratio 無効領域の割合
+     */
+    public void setCompactionThreshold(float ratio);
+    
+    /**
+     * コンパクションを行うセグメント内の無効領域の割合を取得する。<p>
+     *
+     * @return 無効領域の割合
+     */
+    public float getCompactionThreshold();
+    
+    /**
+     * 直列化を行う{@link jp.ossc.nimbus.service.io.Externalizer Externalizer}サービスのサービス名を設定する。<p>
+     *
+     * @param name Externalizerサービスのサービス名
+     */
+    public void setExternalizerServiceName(ServiceName name);
+    
+    /**
+     * 直列化を行う{@link jp.ossc.nimbus.service.io.Externalizer Externalizer}サービスのサービス名を取得する。<p>
+     *
+     * @return Externalizerサービスのサービス名
+     */
+    public ServiceName getExternalizerServiceName();
+    
+    /**
+     * 確保しているセグメントの数を取得する。<p>
+     *
+     * @return セグメント数
+     */
+    public int getSegmentCount();
+    
+    /**
+     * 確保しているセグメントの合計サイズを取得する。<p>
+     *
+     * @return 合計サイズ[byte]
+     */
+    public long getMappedSize();
+    
+    /**
+     * セグメントに書き込まれた領域の合計サイズを取得する。<p>
+     * 削除済みの無効領域を含む。<br>
+     *
+     * @return 使用済みサイズ[byte]
+     */
+    public long getUsedSize();
+    
+    /**
+     * 有効なキャッシュオブジェクトが占める領域の合計サイズを取得する。<p>
+     *
+     * @return 有効サイズ[byte]
+     */
+    public long getLiveSize();
+    
+    /**
+     * コンパクションを行った回数を取得する。<p>
+     *
+     * @return コンパクション回数
+     */
+    public long getCompactionCount();
+    
+    /**
+     * 無効領域を含む全てのセグメントのコンパクションを行う。<p>
+     */
+    public void compact();
+}
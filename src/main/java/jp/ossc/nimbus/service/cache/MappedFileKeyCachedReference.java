@@ -0,0 +1,177 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.cache;
+
+import java.io.*;
+
+/**
+ * メモリマップドファイルキャッシュ参照。<p>
+ * キャッシュオブジェクトを直列化して、{@link MappedFileCacheMapService}のセグメントに保持する。<br>
+ * 自身は、セグメント内の格納位置を表す{@link MappedFileCacheMapService.Slot スロット}のみを保持し、キャッシュオブジェクトの参照の都度、セグメントから読み込んで復元する。<br>
+ * このキャッシュ参照を直列化した場合は、キャッシュオブジェクトを復元してヒープ上に保持する{@link DefaultKeyCachedReference}に置き換えられる。<br>
+ *
+ * @author M.Takata
+ * @see MappedFileCacheMapService
+ */
+public class MappedFileKeyCachedReference extends DefaultKeyCachedReference{
+    
+    private static final long serialVersionUID = 3326958461069420176L;
+    
+    private transient MappedFileCacheMapService store;
+    
+    /**
+     * 指定されたキャッシュオブジェクトを直列化して、指定されたキャッシュマップのセグメントに保持するキャッシュ参照を生成する。<p>
+     *
+     * @param key キャッシュキー
+     * @param obj キャッシュオブジェクト
+     * @param store キャッシュオブジェクトを格納するキャッシュマップ
+     * @exception IOException キャッシュオブジェクトの直列化に失敗した場合
+     */
+    public MappedFileKeyCachedReference(
+        Object key,
+        Object obj,
+        MappedFileCacheMapService store
+    ) throws IOException{
+        super(key, null);
+        this.store = store;
+        if(obj != null){
+            cacheObj = store.write(store.serializeObject(obj));
+        }
+    }
+    
+    /**
+     * キャッシュオブジェクトを格納しているスロットを取得する。<p>
+     *
+     * @return スロット。キャッシュオブジェクトがセグメントに格納されていない場合は、null
+     */
+    public MappedFileCacheMapService.Slot getSlot(){
+        final Object obj = cacheObj;
+        return obj instanceof MappedFileCacheMapService.Slot
+             ? (MappedFileCacheMapService.Slot)obj : null;
+    }
+    
+    /**
+     * キャッシュされたオブジェクトをセグメントから復元して取得する。<p>
+     * 第二引数がtrueの場合は、{@link #addCacheAccessListener(CacheAccessListener)}で登録された{@link CacheAccessListener}に通知する。但し、第一引数で渡された呼び出し元オブジェクトが通知先のCacheAccessListenerのインスタンスと等しい場合は、通知しない。<br>
+     * 自身が保持するスロットがnullの場合は、{@link #addLinkedReference(LinkedReference)}で登録された{@link LinkedReference}から取得を試みる。<br>
+     *
+     * @param source キャッシュを取得するこのメソッドの呼び出し元オブジェクト
+     * @param notify キャッシュアクセスリスナに通知する場合はtrue
+     * @return キャッシュオブジェクト
+     * @exception IllegalCachedReferenceException キャッシュオブジェクトの復元に失敗した場合
+     */
+    public Object get(Object source, boolean notify)
+     throws IllegalCachedReferenceException{
+        final Object obj = super.get(source, notify);
+        if(obj instanceof MappedFileCacheMapService.Slot){
+            final byte[] bytes = store.read((MappedFileCacheMapService.Slot)obj);
+            if(bytes == null){
+                return null;
+            }
+            try{
+                return store.deserializeObject(bytes);
+            }catch(IOException e){
+                throw new IllegalCachedReferenceException(e);
+            }catch(ClassNotFoundException e){
+                throw new IllegalCachedReferenceException(e);
+            }
+        }else{
+            return obj;
+        }
+    }
+    
+    /**
+     * キャッシュオブジェクトを直列化してセグメントに保存する。<p>
+     * 以前のキャッシュオブジェクトを格納していたスロットは解放する。<br>
+     * {@link #addCacheChangeListener(CacheChangeListener)}で登録された{@link CacheChangeListener}に通知する。但し、第一引数で渡された呼び出し元オブジェクトが通知先のCacheChangeListenerのインスタンスと等しい場合は、通知しない。<br>
+     *
+     * @param source キャッシュオブジェクトを変更するこのメソッドの呼び出し元オブジェクト
+     * @param obj 設定するキャッシュオブジェクト
+     * @exception IllegalCachedReferenceException キャッシュオブジェクトの直列化に失敗した場合
+     */
+    public void set(Object source, Object obj)
+     throws IllegalCachedReferenceException{
+        notifyChange(source, obj);
+        MappedFileCacheMapService.Slot newSlot = null;
+        if(obj != null){
+            try{
+                newSlot = store.write(store.serializeObject(obj));
+            }catch(IOException e){
+                throw new IllegalCachedReferenceException(e);
+            }
+        }
+        MappedFileCacheMapService.Slot oldSlot = null;
+        synchronized(this){
+            oldSlot = getSlot();
+            cacheObj = newSlot;
+        }
+        if(oldSlot != null){
+            store.free(oldSlot);
+        }
+    }
+    
+    /**
+     * キャッシュオブジェクトを格納しているスロットを解放する。<p>
+     * {@link #addCacheRemoveListener(CacheRemoveListener)}で登録された{@link CacheRemoveListener}に通知する。但し、第一引数で渡された呼び出し元オブジェクトが通知先のCacheChangeListenerのインスタンスと等しい場合は、通知しない。<br>
+     *
+     * @param source キャッシュオブジェクトを削除するこのメソッドの呼び出し元オブジェクト
+     */
+    public void remove(Object source){
+        MappedFileCacheMapService.Slot slot = null;
+        synchronized(this){
+            slot = getSlot();
+        }
+        super.remove(source);
+        if(slot != null){
+            store.free(slot);
+        }
+    }
+    
+    /**
+     * 直列化する際に、キャッシュオブジェクトを復元してヒープ上に保持するキャッシュ参照に置き換える。<p>
+     *
+     * @return 置き換えたキャッシュ参照
+     * @exception ObjectStreamException キャッシュオブジェクトの復元に失敗した場合
+     */
+    protected Object writeReplace() throws ObjectStreamException{
+        final DefaultKeyCachedReference ref = new DefaultKeyCachedReference(
+            getKey(),
+            isRemoved() ? null : get(null, false)
+        );
+        ref.linkedReferences = linkedReferences;
+        ref.removeListeners = removeListeners;
+        ref.accessListeners = accessListeners;
+        ref.changeListeners = changeListeners;
+        ref.isRemoved = isRemoved;
+        return ref;
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.cache;
+
+/**
+ * TinyLFU あふれアルゴリズムサービス。<p>
+ * W-TinyLFUと呼ばれる、新規キャッシュ参照を受け入れる小さなLRUのウィンドウ領域と、SLRU(試用領域と保護領域)で構成されるメイン領域からなるあふれアルゴリズムである。<br>
+ * キャッシュ参照の参照頻度は、キャッシュのキーのハッシュ値を用いた4bitカウンタのCount-Min Sketchで近似的に記録するため、キャッシュ数に関わらず一定のメモリで、あふれたキャッシュの参照頻度も含めて記録できる。また、記録数がキャッシュ数の10倍に達する度に全てのカウンタを半減させ、過去の参照頻度の影響を減衰させる。<br>
+ * ウィンドウ領域がキャッシュ数に対する上限を超えると、押し出されたキャッシュ参照は受け入れ候補として試用領域の最後尾に移動する。あふれ時には、受け入れ候補と試用領域の先頭のキャッシュ参照の参照頻度を比較し、参照頻度が低い方をあふれさせる。<br>
+ * 試用領域のキャッシュ参照がアクセスされると保護領域に昇格し、保護領域が上限を超えると保護領域の先頭のキャッシュ参照が試用領域に降格する。<br>
+ * 追加、削除、アクセス、あふれ対象の決定は全てO(1)で行われ、アクセス通知は{@link AbstractBufferedOverflowAlgorithmService}のアクセスバッファを介してまとめて反映される。<br>
+ * {@link LFUOverflowAlgorithmService}と比べて、一時的にアクセスが集中しただけのキャッシュ参照が残り続けにくく、また、一度しかアクセスされないキャッシュ参照の大量追加によって、頻繁にアクセスされるキャッシュ参照があふれにくい。<br>
+ * 以下に、TinyLFUであふれ対象となるキャッシュオブジェクトを決定するあふれアルゴリズムサービスのサービス定義例を示す。<br>
+ * <pre>
+ * &lt;?xml version="1.0" encoding="Shift_JIS"?&gt;
+ * 
+ * &lt;server&gt;
+ *     
+ *     &lt;manager name="Sample"&gt;
+ *         
+ *         &lt;service name="TinyLFUOverflowAlgorithm"
+ *                  code="jp.ossc.nimbus.service.cache.TinyLFUOverflowAlgorithmService"&gt;
+ *             &lt;attribute name="ExpectedSize"&gt;10000&lt;/attribute&gt;
+ *         &lt;/service&gt;
+ *         
+ *     &lt;/manager&gt;
+ *     
+ * &lt;/server&gt;
+ * </pre>
+ *
+ * @author M.Takata
+ */
+public class TinyLFUOverflowAlgorithmService
+ extends AbstractBufferedOverflowAlgorithmService
+ implements TinyLFUOverflowAlgorithmServiceMBean{
+    
+    private static final long serialVersionUID = 6612704417281923925L;
+    
+    private static final long[] SEEDS = new long[]{
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+        0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    
+    private int expectedSize = 1024;
+    private int windowRatio = 1;
+    private int protectedRatio = 80;
+    
+    private transient NodeList window;
+    private transient NodeList probation;
+    private transient NodeList protectedList;
+    private transient long[] sketch;
+    private transient int sketchMask;
+    private transient int sampleSize;
+    private transient int sampleCount;
+    
+    // TinyLFUOverflowAlgorithmServiceMBeanのJavaDoc
+    public void setExpectedSize(int size){
+        expectedSize = size;
+    }
+    // TinyLFUOverflowAlgorithmServiceMBeanのJavaDoc
+    public int getExpectedSize(){
+        return expectedSize;
+    }
+    
+    // TinyLFUOverflowAlgorithmServiceMBeanのJavaDoc
+    public void setWindowRatio(int ratio){
+        windowRatio = ratio;
+    }
+    // TinyLFUOverflowAlgorithmServiceMBeanのJavaDoc
+    public int getWindowRatio(){
+        return windowRatio;
+    }
+    
+    // TinyLFUOverflowAlgorithmServiceMBeanのJavaDoc
+    public void setProtectedRatio(int ratio){
+        protectedRatio = ratio;
+    }
+    // TinyLFUOverflowAlgorithmServiceMBeanのJavaDoc
+    public int getProtectedRatio(){
+        return protectedRatio;
+    }
+    
+    // TinyLFUOverflowAlgorithmServiceMBeanのJavaDoc
+    public int getWindowSize(){
+        return window == null ? 0 : window.size();
+    }
+    
+    // TinyLFUOverflowAlgorithmServiceMBeanのJavaDoc
+    public int getProbationSize(){
+        return probation == null ? 0 : probation.size();
+    }
+    
+    // TinyLFUOverflowAlgorithmServiceMBeanのJavaDoc
+    public int getProtectedSize(){
+        return protectedList == null ? 0 : protectedList.size();
+    }
+    
+    /**
+     * サービスの生成処理を行う。<p>
+     * インスタンス変数の初期化を行う。
+     *
+     * @exception Exception サービスの生成処理に失敗した場合
+     */
+    public void createService() throws Exception{
+        super.createService();
+        window = new NodeList();
+        probation = new NodeList();
+        protectedList = new NodeList();
+    }
+    
+    /**
+     * サービスの開始処理を行う。<p>
+     * 参照頻度を記録するスケッチを生成する。
+     *
+     * @exception Exception サービスの開始処理に失敗した場合
+     */
+    public void startService() throws Exception{
+        if(windowRatio < 0 || windowRatio > 100){
+            throw new IllegalArgumentException("WindowRatio must be between 0 and 100. windowRatio=" + windowRatio);
+        }
+        if(protectedRatio < 0 || protectedRatio > 100){
+            throw new IllegalArgumentException("ProtectedRatio must be between 0 and 100. protectedRatio=" + protectedRatio);
+        }
+        super.startService();
+        lock.lock();
+        try{
+            initSketch(Math.max(expectedSize, 16));
+        }finally{
+            lock.unlock();
+        }
+    }
+    
+    private void initSketch(int size){
+        int length = 1;
+        while(length < size){
+            length <<= 1;
+        }
+        final long[] oldSketch = sketch;
+        sketch = new long[length];
+        sketchMask = length - 1;
+        sampleSize = length * 10;
+        if(oldSketch == null || oldSketch.length >= length){
+            sampleCount = 0;
+            return;
+        }
+        // 拡張前のインデックスは拡張後のインデックスの下位ビットと一致するため、
+        // 拡張前のカウンタを複写すれば、それまでの参照頻度をそのまま引き継げる
+        for(int i = 0; i < length; i++){
+            sketch[i] = oldSketch[i & (oldSketch.length - 1)];
+        }
+    }
+    
+    private static int hash(CachedReference ref){
+        int h = 0;
+        if(ref instanceof KeyCachedReference){
+            final Object key = ((KeyCachedReference)ref).getKey();
+            h = key == null ? 0 : key.hashCode();
+        }else{
+            h = System.identityHashCode(ref);
+        }
+        return h ^ (h >>> 16);
+    }
+    
+    private void increment(int hash){
+        if(sketch == null){
+            return;
+        }
+        final int size = nodeMap.size();
+        if(size > sketch.length){
+            // キャッシュ数が想定を超えた場合は拡張する
+            initSketch(size);
+        }
+        boolean added = false;
+        for(int i = 0; i < SEEDS.length; i++){
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            final int index = (int)h & sketchMask;
+            final int offset = ((int)(h >>> 40) & 15) << 2;
+            final long mask = 0xfL << offset;
+            if((sketch[index] & mask) != mask){
+                sketch[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if(added && ++sampleCount >= sampleSize){
+            for(int i = 0; i < sketch.length; i++){
+                sketch[i] = (sketch[i] >>> 1) & RESET_MASK;
+            }
+            sampleCount >>>= 1;
+        }
+    }
+    
+    private int frequency(int hash){
+        if(sketch == null){
+            return 0;
+        }
+        int frequency = Integer.MAX_VALUE;
+        for(int i = 0; i < SEEDS.length; i++){
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            final int index = (int)h & sketchMask;
+            final int offset = ((int)(h >>> 40) & 15) << 2;
+            frequency = Math.min(frequency, (int)((sketch[index] >>> offset) & 0xfL));
+        }
+        return frequency;
+    }
+    
+    private int getMaxWindowSize(int total){
+        return Math.max(1, (int)((long)total * windowRatio / 100));
+    }
+    
+    protected Node createNode(CachedReference ref){
+        return new FrequencyNode(ref);
+    }
+    
+    protected void onAdd(Node node){
+        increment(((FrequencyNode)node).hash);
+        window.addLast(node);
+        final int total = window.size() + probation.size() + protectedList.size();
+        final int maxWindow = getMaxWindowSize(total);
+        while(window.size() > maxWindow){
+            // ウィンドウ領域から押し出されたキャッシュ参照は、受け入れ候補として試用領域に移動する
+            final FrequencyNode candidate = (FrequencyNode)window.getFirst();
+            window.remove(candidate);
+            candidate.isCandidate = true;
+            probation.addLast(candidate);
+        }
+    }
+    
+    protected void onAccess(Node node){
+        increment(((FrequencyNode)node).hash);
+        if(node.list == window){
+            window.moveToLast(node);
+        }else if(node.list == probation){
+            ((FrequencyNode)node).isCandidate = false;
+            probation.remove(node);
+            protectedList.addLast(node);
+            final int total = window.size() + probation.size() + protectedList.size();
+            final int maxProtected = Math.max(
+                1,
+                (int)((long)(total - getMaxWindowSize(total)) * protectedRatio / 100)
+            );
+            while(protectedList.size() > maxProtected){
+                final Node demoted = protectedList.getFirst();
+                protectedList.remove(demoted);
+                probation.addLast(demoted);
+            }
+        }else if(node.list == protectedList){
+            protectedList.moveToLast(node);
+        }
+    }
+    
+    protected void onRemove(Node node){
+        if(node.list != null){
+            node.list.remove(node);
+        }
+    }
+    
+    protected Node selectOverflowNode(){
+        final Node victim = probation.getFirst();
+        final Node candidate = probation.getLast();
+        if(victim != null && candidate != victim
+             && ((FrequencyNode)candidate).isCandidate){
+            if(frequency(((FrequencyNode)candidate).hash)
+                 > frequency(((FrequencyNode)victim).hash)){
+                // 候補をメイン領域に受け入れ、試用領域の先頭をあふれさせる
+                ((FrequencyNode)candidate).isCandidate = false;
+                return victim;
+            }
+            return candidate;
+        }
+        if(victim != null){
+            return victim;
+        }
+        if(protectedList.getFirst() != null){
+            return protectedList.getFirst();
+        }
+        return window.getFirst();
+    }
+    
+    protected void onReset(){
+        if(window != null){
+            window.clear();
+            probation.clear();
+            protectedList.clear();
+        }
+        if(sketch != null){
+            for(int i = 0; i < sketch.length; i++){
+                sketch[i] = 0;
+            }
+            sampleCount = 0;
+        }
+    }
+    
+    /**
+     * キャッシュのキーのハッシュ値を保持するNode。<p>
+     *
+     * @author M.Takata
+     */
+    private static class FrequencyNode extends Node{
+        
+        public final int hash;
+        
+        public boolean isCandidate;
+        
+        public FrequencyNode(CachedReference ref){
+            super(ref);
+            hash = TinyLFUOverflowAlgorithmService.hash(ref);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.cache;
+
+/**
+ * {@link TinyLFUOverflowAlgorithmService}のMBeanインタフェース<p>
+ * 
+ * @author M.Takata
+ * @see TinyLFUOverflowAlgorithmService
+ */
+public interface TinyLFUOverflowAlgorithmServiceMBean
+ extends AbstractBufferedOverflowAlgorithmServiceMBean{
+    
+    /**
+     * 想定するキャッシュ数を設定する。<p>
+     * 参照頻度を記録するスケッチのサイズの決定に使用する。キャッシュ数がこれを超えた場合は、スケッチを拡張する。デフォルトは、1024。<br>
+     *
+     * @param size 想定するキャッシュ数
+     */
+    public void setExpectedSize(int size);
+    
+    /**
+     * 想定するキャッシュ数を取得する。<p>
+     *
+     * @return 想定するキャッシュ数
+     */
+    public int getExpectedSize();
+    
+    /**
+     * キャッシュ数に対するウィンドウ領域の割合[%]を設定する。<p>
+     * デフォルトは、1。<br>
+     *
+     * @param ratio ウィンドウ領域の割合[%]
+     */
+    public void setWindowRatio(int ratio);
+    
+    /**
+     * キャッシュ数に対するウィンドウ領域の割合[%]を取得する。<p>
+     *
+     * @return ウィンドウ領域の割合[%]
+     */
+    public int getWindowRatio();
+    
+    /**
+     * メイン領域に対する保護領域の割合[%]を設定する。<p>
+     * デフォルトは、80。<br>
+     *
+     * @param ratio 保護領域の割合[%]
+     */
+    public void setProtectedRatio(int ratio);
+    
+    /**
+     * メイン領域に対する保護領域の割合[%]を取得する。<p>
+     *
+     * @return 保護領域の割合[%]
+     */
+    public int getProtectedRatio();
+    
+    /**
+     * ウィンドウ領域のキャッシュ数を取得する。<p>
+     *
+     * @return ウィンドウ領域のキャッシュ数
+     */
+    public int getWindowSize();
+    
+    /**
+     * 試用領域のキャッシュ数を取得する。<p>
+     *
+     * @return 試用領域のキャッシュ数
+     */
+    public int getProbationSize();
+    
+    /**
+     * 保護領域のキャッシュ数を取得する。<p>
+     *
+     * @return 保護領域のキャッシュ数
+     */
+    public int getProtectedSize();
+}
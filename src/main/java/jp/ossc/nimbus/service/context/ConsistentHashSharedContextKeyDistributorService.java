@@ -0,0 +1,187 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.lang.reflect.InvocationTargetException;
+
+import jp.ossc.nimbus.beans.Property;
+import jp.ossc.nimbus.beans.PropertyFactory;
+import jp.ossc.nimbus.beans.NoSuchPropertyException;
+import jp.ossc.nimbus.core.ServiceBase;
+
+/**
+ * コンシステントハッシュを使った{@link SharedContextKeyDistributor}サービス。<p>
+ * 分散コンテキスト毎に{@link #setVirtualNodeSize(int) 仮想ノード}をハッシュリング上に配置し、キーのハッシュ値から時計回りに最も近い仮想ノードの分散コンテキストを選択する。<br>
+ * 分散総数を変更した場合に、分散先が変わるキーは、およそ変更した分散コンテキストが担当する分だけになる。{@link MD5HashSharedContextKeyDistributorService}のようにハッシュ値の範囲で分散する場合は、殆どのキーの分散先が変わる。<br>
+ * キーのハッシュ値は、{@link Object#hashCode()}を暗号学的でない高速なハッシュ関数で攪拌して求め、ハッシュリングは分散総数毎に再利用する。<br>
+ *
+ * @author M.Takata
+ */
+public class ConsistentHashSharedContextKeyDistributorService extends ServiceBase implements SharedContextKeyDistributor, ConsistentHashSharedContextKeyDistributorServiceMBean{
+    
+    private static final long serialVersionUID = -5184302781933367041L;
+    
+    private Property keyProperty;
+    private int virtualNodeSize = DEFAULT_VIRTUAL_NODE_SIZE;
+    private volatile HashRing hashRing;
+    private final ConcurrentMap hashRings = new ConcurrentHashMap();
+    
+    public void setKeyProperty(String prop){
+        keyProperty = PropertyFactory.createProperty(prop);
+    }
+    public String getKeyProperty(){
+        return keyProperty == null ? null : keyProperty.getPropertyName();
+    }
+    
+    public void setVirtualNodeSize(int size){
+        if(size <= 0){
+            throw new IllegalArgumentException("VirtualNodeSize must be greater than 0. size=" + size);
+        }
+        virtualNodeSize = size;
+        hashRings.clear();
+        hashRing = null;
+    }
+    public int getVirtualNodeSize(){
+        return virtualNodeSize;
+    }
+    
+    public int selectDataNodeIndex(Object key, int distributedSize) throws SharedContextIllegalDistributeException{
+        if(keyProperty != null){
+            try{
+                key = keyProperty.getProperty(key);
+            }catch(NoSuchPropertyException e){
+                throw new SharedContextIllegalDistributeException(e);
+            }catch(InvocationTargetException e){
+                throw new SharedContextIllegalDistributeException(e);
+            }
+        }
+        if(distributedSize <= 1){
+            return 0;
+        }
+        HashRing ring = hashRing;
+        if(ring == null || ring.distributedSize != distributedSize){
+            final Integer size = new Integer(distributedSize);
+            ring = (HashRing)hashRings.get(size);
+            if(ring == null){
+                ring = new HashRing(distributedSize, virtualNodeSize);
+                final HashRing old = (HashRing)hashRings.putIfAbsent(size, ring);
+                if(old != null){
+                    ring = old;
+                }
+            }
+            hashRing = ring;
+        }
+        return ring.select(mix(key == null ? 0l : key.hashCode()));
+    }
+    
+    /**
+     * 64bitのハッシュ値を攪拌する。<p>
+     * MurmurHash3の最終化関数と同じ演算を行う。<br>
+     *
+     * @param hash ハッシュ値
+     * @return 攪拌したハッシュ値
+     */
+    protected static long mix(long hash){
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdl;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53l;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+    
+    /**
+     * 仮想ノードを配置したハッシュリング。<p>
+     * 分散総数毎に生成し、生成後は変更しない。<br>
+     */
+    protected static class HashRing{
+        
+        protected final int distributedSize;
+        protected final long[] points;
+        protected final int[] indexes;
+        
+        public HashRing(int distributedSize, int virtualNodeSize){
+            this.distributedSize = distributedSize;
+            final int size = distributedSize * virtualNodeSize;
+            final long[] tmpPoints = new long[size];
+            for(int i = 0; i < distributedSize; i++){
+                for(int j = 0; j < virtualNodeSize; j++){
+                    tmpPoints[i * virtualNodeSize + j] = mix(mix(i) + j);
+                }
+            }
+            // 同じ位置の仮想ノードは、インデックスの小さい分散コンテキストを優先する
+            final Integer[] order = new Integer[size];
+            for(int i = 0; i < size; i++){
+                order[i] = new Integer(i);
+            }
+            Arrays.sort(
+                order,
+                new Comparator(){
+                    public int compare(Object o1, Object o2){
+                        final int i1 = ((Integer)o1).intValue();
+                        final int i2 = ((Integer)o2).intValue();
+                        if(tmpPoints[i1] != tmpPoints[i2]){
+                            return tmpPoints[i1] < tmpPoints[i2] ? -1 : 1;
+                        }
+                        return i1 - i2;
+                    }
+                }
+            );
+            points = new long[size];
+            indexes = new int[size];
+            for(int i = 0; i < size; i++){
+                final int index = order[i].intValue();
+                points[i] = tmpPoints[index];
+                indexes[i] = index / virtualNodeSize;
+            }
+        }
+        
+        public int select(long hash){
+            int index = Arrays.binarySearch(points, hash);
+            if(index < 0){
+                index = -index - 1;
+                if(index == points.length){
+                    index = 0;
+                }
+            }else{
+                while(index > 0 && points[index - 1] == hash){
+                    index--;
+                }
+            }
+            return indexes[index];
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import jp.ossc.nimbus.core.ServiceBaseMBean;
+
+/**
+ * {@link ConsistentHashSharedContextKeyDistributorService}のMBeanインタフェース。<p>
+ * 
+ * @author M.Takata
+ * @see ConsistentHashSharedContextKeyDistributorService
+ */
+public interface ConsistentHashSharedContextKeyDistributorServiceMBean extends ServiceBaseMBean{
+    
+    /**
+     * 仮想ノード数のデフォルト値。<p>
+     */
+    public static final int DEFAULT_VIRTUAL_NODE_SIZE = 160;
+    
+    /**
+     * 分散を決定するキーのプロパティを設定する。<p>
+     * 設定されていない場合は、キーそのもので分散を決定する。<br>
+     * 
+     * @param prop キーのプロパティ
+     */
+    public void setKeyProperty(String prop);
+    
+    /**
+     * 分散を決定するキーのプロパティを取得する。<p>
+     * 
+     * @return キーのプロパティ
+     */
+    public String getKeyProperty();
+    
+    /**
+     * 1つの分散コンテキストをハッシュリング上に配置する仮想ノードの数を設定する。<p>
+     * 大きくするほど分散コンテキスト毎のキーの偏りが小さくなるが、ハッシュリングのサイズが大きくなる。<br>
+     * 分散コンテキストを持つ全てのプロセスで、同じ値を設定する必要がある。<br>
+     * デフォルトは、{@link #DEFAULT_VIRTUAL_NODE_SIZE}。<br>
+     * 
+     * @param size 仮想ノードの数
+     */
+    public void setVirtualNodeSize(int size);
+    
+    /**
+     * 1つの分散コンテキストをハッシュリング上に配置する仮想ノードの数を取得する。<p>
+     * 
+     * @return 仮想ノードの数
+     */
+    public int getVirtualNodeSize();
+}
@@ -44,6 +44,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import jp.ossc.nimbus.beans.IndexedProperty;
 import jp.ossc.nimbus.beans.PropertyAccess;
@@ -69,7 +71,7 @@ import jp.ossc.nimbus.service.queue.QueueHandlerContainerService;
  * @author M.Takata
  */
 public class DatabaseContextStoreService extends ServiceBase
- implements ContextStore, DatabaseContextStoreServiceMBean{
+ implements BatchContextStore, DatabaseContextStoreServiceMBean{
     
     private static final long serialVersionUID = 5260610052471948594L;
     
@@ -81,6 +83,8 @@ public class DatabaseContextStoreService extends ServiceBase
     
     private List databaseMappings;
     
+    private volatile long lastLoadTime;
+    
     public void setConnectionFactoryServiceName(ServiceName name){
         connectionFactoryServiceName = name;
     }
@@ -124,6 +128,9 @@ public class DatabaseContextStoreService extends ServiceBase
         if(persistentManager == null){
             throw new IllegalArgumentException("PersistentManager is null.");
         }
+        for(int i = 0; i < databaseMappings.size(); i++){
+            ((DatabaseMapping)databaseMappings.get(i)).validate();
+        }
     }
     
     public synchronized void clear() throws Exception{
@@ -144,10 +151,18 @@ public class DatabaseContextStoreService extends ServiceBase
         }
     }
     
+    public void saveAll(Context context, Set keys) throws Exception{
+        for(int i = 0; i < databaseMappings.size(); i++){
+            ((DatabaseMapping)databaseMappings.get(i)).saveAll(context, connectionFactory, persistentManager, keys);
+        }
+    }
+    
     public synchronized void load(Context context) throws Exception{
+        final long startTime = System.currentTimeMillis();
         for(int i = 0; i < databaseMappings.size(); i++){
             ((DatabaseMapping)databaseMappings.get(i)).load(context, connectionFactory, persistentManager);
         }
+        lastLoadTime = System.currentTimeMillis() - startTime;
     }
     
     public void loadKey(Context context) throws Exception{
@@ -164,6 +179,34 @@ public class DatabaseContextStoreService extends ServiceBase
         return loadKeys.contains(key);
     }
     
+    public long getLoadedCount(){
+        long count = 0;
+        for(int i = 0; i < databaseMappings.size(); i++){
+            count += ((DatabaseMapping)databaseMappings.get(i)).getLoadedCount();
+        }
+        return count;
+    }
+    
+    public int getLoadPartitionCount(){
+        int count = 0;
+        for(int i = 0; i < databaseMappings.size(); i++){
+            count += ((DatabaseMapping)databaseMappings.get(i)).getLoadPartitionCount();
+        }
+        return count;
+    }
+    
+    public int getLoadedPartitionCount(){
+        int count = 0;
+        for(int i = 0; i < databaseMappings.size(); i++){
+            count += ((DatabaseMapping)databaseMappings.get(i)).getLoadedPartitionCount();
+        }
+        return count;
+    }
+    
+    public long getLastLoadTime(){
+        return lastLoadTime;
+    }
+    
     public boolean isSupportSaveByKey(){
         for(int i = 0; i < databaseMappings.size(); i++){
             if(!((DatabaseMapping)databaseMappings.get(i)).isSupportSaveByKey()){
@@ -191,9 +234,30 @@ public class DatabaseContextStoreService extends ServiceBase
         
         private static final long serialVersionUID = 4632610348315541284L;
         
+        /**
+         * {@link #setPartitionSelectQuery(String) パーティション単位の検索クエリ}の入力で、パーティションの番号を参照するプロパティ名。<p>
+         */
+        public static final String PARTITION_INPUT_PARTITION = "partition";
+        
+        /**
+         * {@link #setPartitionSelectQuery(String) パーティション単位の検索クエリ}の入力で、パーティションの数を参照するプロパティ名。<p>
+         */
+        public static final String PARTITION_INPUT_PARTITION_SIZE = "partitionSize";
+        
+        /**
+         * {@link #setPartitionSelectQuery(String) パーティション単位の検索クエリ}の入力で、キー範囲の下限（これを含む）を参照するプロパティ名。<p>
+         */
+        public static final String PARTITION_INPUT_FROM = "from";
+        
+        /**
+         * {@link #setPartitionSelectQuery(String) パーティション単位の検索クエリ}の入力で、キー範囲の上限（これを含まない）を参照するプロパティ名。<p>
+         */
+        public static final String PARTITION_INPUT_TO = "to";
+        
         protected String selectQuery;
         protected String keySelectQuery;
         protected String parallelSelectQuery;
+        protected String partitionSelectQuery;
         protected String selectWhereQuery;
         protected String insertQuery;
         protected String insertKeySelectQuery;
@@ -220,6 +284,12 @@ public class DatabaseContextStoreService extends ServiceBase
         protected boolean isUseSubCursor = true;
         protected boolean isUseSubConnection = false;
         protected int parallelSize = 0;
+        protected int partitionSize;
+        protected Object[] partitionRangeBounds;
+        protected boolean isLoadLocal;
+        protected final AtomicLong loadedCount = new AtomicLong();
+        protected final AtomicInteger loadedPartitionCount = new AtomicInteger();
+        protected volatile int loadPartitionCount;
         protected Class valueClass;
         protected RecordList valueRecordList;
         protected Record valueRecord;
@@ -288,6 +358,79 @@ public class DatabaseContextStoreService extends ServiceBase
             parallelSize = size;
         }
         
+        /**
+         * パーティション単位での並列読み込みの際に使用する検索クエリを設定する。<p>
+         * 設定した場合、読み込みの際に{@link #setSelectQuery(String)}や{@link #setParallelSelectQuery(String)}の代わりに使用され、パーティション毎に別のコネクションで、{@link #setParallelSize(int) 並列度}だけ並列に検索する。<br>
+         * クエリの入力には、{@link #PARTITION_INPUT_PARTITION}、{@link #PARTITION_INPUT_PARTITION_SIZE}、{@link #PARTITION_INPUT_FROM}、{@link #PARTITION_INPUT_TO}をキーとするMapが渡される。<br>
+         * 剰余でパーティションを分割する場合は、{@link #setPartitionSize(int)}を設定し、"where MOD(ID, ?&lt;-{partitionSize}) = ?&lt;-{partition}"のように条件を指定する。<br>
+         * キー範囲でパーティションを分割する場合は、{@link #setPartitionRangeBounds(Object[])}を設定し、"where ID &gt;= ?&lt;-{from} and ID &lt; ?&lt;-{to}"のように条件を指定する。<br>
+         * キーがユニークでない場合は、同じキーのレコードが同じパーティションに含まれ、キーでソートされるようにクエリを指定する必要がある。<br>
+         *
+         * @param query クエリ
+         */
+        public void setPartitionSelectQuery(String query){
+            partitionSelectQuery = query;
+        }
+        
+        /**
+         * パーティション単位での並列読み込みの際に、剰余で分割するパーティションの数を設定する。<p>
+         *
+         * @param size パーティションの数
+         */
+        public void setPartitionSize(int size){
+            partitionSize = size;
+        }
+        
+        /**
+         * パーティション単位での並列読み込みの際に、キー範囲で分割するパーティションの境界値を設定する。<p>
+         * 昇順の境界値を指定し、i番目のパーティションは、i番目の境界値以上、i+1番目の境界値未満となる。<br>
+         * そのため、最初の境界値はキーの最小値以下、最後の境界値はキーの最大値より大きい値を指定する必要がある。<br>
+         *
+         * @param bounds 境界値の配列
+         */
+        public void setPartitionRangeBounds(Object[] bounds){
+            partitionRangeBounds = bounds;
+        }
+        
+        /**
+         * 読み込んだ値を、{@link SharedContext}のローカルにのみ反映するかどうかを設定する。<p>
+         * trueの場合、{@link #setBatchLoadCount(int) バッチ実行件数}毎に{@link SharedContext#putAllLocal(Map)}で反映するため、他のノードには同期されない。全てのノードで読み込む場合や、他のノードが存在しない状態で読み込む場合に使用する。<br>
+         * デフォルトは、falseで、他のノードにも同期する。<br>
+         *
+         * @param isLocal ローカルにのみ反映する場合は、true
+         */
+        public void setLoadLocal(boolean isLocal){
+            isLoadLocal = isLocal;
+        }
+        
+        /**
+         * 最後の読み込みで読み込んだレコード数を取得する。<p>
+         *
+         * @return 読み込んだレコード数
+         */
+        public long getLoadedCount(){
+            return loadedCount.get();
+        }
+        
+        /**
+         * 最後の並列読み込みでのパーティションの数を取得する。<p>
+         * キー単位での並列読み込みの場合は、キーの数となる。<br>
+         *
+         * @return パーティションの数
+         */
+        public int getLoadPartitionCount(){
+            return loadPartitionCount;
+        }
+        
+        /**
+         * 最後の並列読み込みで読み込みが完了したパーティションの数を取得する。<p>
+         *
+         * @return 読み込みが完了したパーティションの数
+         */
+        public int getLoadedPartitionCount(){
+            return loadedPartitionCount.get();
+        }
+        
         /**
          * 保存の際に使用する挿入クエリを設定する。<p>
          *
@@ -646,8 +789,41 @@ public class DatabaseContextStoreService extends ServiceBase
             loadTimeout = timeout;
         }
         
+        /**
+         * 設定の妥当性を検証する。<p>
+         * {@link #setPartitionSelectQuery(String) パーティション単位の検索クエリ}を設定した場合は、{@link #setPartitionRangeBounds(Object[]) 境界値}が2つ以上、または{@link #setPartitionSize(int) パーティションの数}が1以上である事を検証する。境界値が{@link Comparable}の場合は、昇順である事も検証する。<br>
+         *
+         * @exception IllegalArgumentException 設定が不正な場合
+         */
+        public void validate() throws IllegalArgumentException{
+            if(partitionSelectQuery == null){
+                return;
+            }
+            if(partitionRangeBounds != null){
+                if(partitionRangeBounds.length < 2){
+                    throw new IllegalArgumentException("partitionRangeBounds must have at least 2 bounds. length=" + partitionRangeBounds.length);
+                }
+                for(int i = 0; i < partitionRangeBounds.length - 1; i++){
+                    if(partitionRangeBounds[i] == null || partitionRangeBounds[i + 1] == null){
+                        throw new IllegalArgumentException("partitionRangeBounds must not contain null. index=" + (partitionRangeBounds[i] == null ? i : i + 1));
+                    }
+                    if(partitionRangeBounds[i] instanceof Comparable
+                        && ((Comparable)partitionRangeBounds[i]).compareTo(partitionRangeBounds[i + 1]) >= 0){
+                        throw new IllegalArgumentException("partitionRangeBounds must be in ascending order. index=" + (i + 1));
+                    }
+                }
+            }else if(partitionSize <= 0){
+                throw new IllegalArgumentException("partitionSize or partitionRangeBounds must be specified. partitionSize=" + partitionSize);
+            }
+        }
+        
         public void load(Context context, ConnectionFactory factory, PersistentManager pm) throws Exception{
-            if(parallelSelectQuery != null && keySelectQuery != null){
+            loadedCount.set(0);
+            loadedPartitionCount.set(0);
+            loadPartitionCount = 0;
+            if(partitionSelectQuery != null){
+                loadPartition(context, factory, pm);
+            }else if(parallelSelectQuery != null && keySelectQuery != null){
                 loadParallel(context, factory, pm);
             }else if(selectQuery != null){
                 load(context, factory, pm, selectQuery, null, false, loadTimeout);
@@ -695,10 +871,42 @@ public class DatabaseContextStoreService extends ServiceBase
             if(inputList.size() == 0){
                 return;
             }
-            if(parallelSize <= 1){
+            loadParallel(context, factory, pm, parallelSelectQuery, inputList);
+        }
+        
+        protected void loadPartition(Context context, ConnectionFactory factory, PersistentManager pm) throws Exception{
+            final List inputList = new ArrayList();
+            if(partitionRangeBounds != null && partitionRangeBounds.length > 1){
+                final Integer size = new Integer(partitionRangeBounds.length - 1);
+                for(int i = 0; i < partitionRangeBounds.length - 1; i++){
+                    Map input = new HashMap();
+                    input.put(PARTITION_INPUT_PARTITION, new Integer(i));
+                    input.put(PARTITION_INPUT_PARTITION_SIZE, size);
+                    input.put(PARTITION_INPUT_FROM, partitionRangeBounds[i]);
+                    input.put(PARTITION_INPUT_TO, partitionRangeBounds[i + 1]);
+                    inputList.add(input);
+                }
+            }else if(partitionSize > 0){
+                final Integer size = new Integer(partitionSize);
+                for(int i = 0; i < partitionSize; i++){
+                    Map input = new HashMap();
+                    input.put(PARTITION_INPUT_PARTITION, new Integer(i));
+                    input.put(PARTITION_INPUT_PARTITION_SIZE, size);
+                    inputList.add(input);
+                }
+            }else{
+                throw new IllegalStateException("partitionSize and partitionRangeBounds are not specified.");
+            }
+            loadParallel(context, factory, pm, partitionSelectQuery, inputList);
+        }
+        
+        protected void loadParallel(Context context, ConnectionFactory factory, PersistentManager pm, String query, List inputList) throws Exception{
+            loadPartitionCount = inputList.size();
+            if(parallelSize <= 1 || inputList.size() <= 1){
                 long startTime = System.currentTimeMillis();
                 for(int i = 0; i < inputList.size(); i++){
-                    load(context, factory, pm, parallelSelectQuery, inputList.get(i), false, calculateTimeout(loadTimeout, startTime));
+                    load(context, factory, pm, query, inputList.get(i), false, calculateTimeout(loadTimeout, startTime));
+                    loadedPartitionCount.incrementAndGet();
                 }
             }else{
                 QueueHandlerContainerService qhc = new QueueHandlerContainerService();
@@ -713,7 +921,7 @@ public class DatabaseContextStoreService extends ServiceBase
                 qhc.create();
                 qhc.setQueueService(requestQueue);
                 qhc.setDaemonQueueHandler(true);
-                qhc.setQueueHandlerSize(parallelSize);
+                qhc.setQueueHandlerSize(Math.min(parallelSize, inputList.size()));
                 qhc.setQueueHandler(new LoadQueueHandler());
                 qhc.setIgnoreNullElement(true);
                 qhc.setWaitTimeout(1000l);
@@ -723,7 +931,7 @@ public class DatabaseContextStoreService extends ServiceBase
                 try{
                     for(int i = 0; i < inputList.size(); i++){
                         AsynchContext ac = new AsynchContext(
-                            new Object[]{context, factory, pm, inputList.get(i)},
+                            new Object[]{context, factory, pm, inputList.get(i), query},
                             responseQueue
                         );
                         qhc.push(ac);
@@ -876,6 +1084,7 @@ public class DatabaseContextStoreService extends ServiceBase
                     }
                 }
                 while(cursor.next()){
+                    loadedCount.incrementAndGet();
                     if(record == null){
                         if(databaseRecord == null){
                             if(valueClass != null){
@@ -1102,11 +1311,7 @@ public class DatabaseContextStoreService extends ServiceBase
                             }
                         }
                         try{
-                            if(timeout > 0 && context instanceof SharedContext){
-                                ((SharedContext)context).putAll(tmpContext, calculateTimeout(timeout, startTime));
-                            }else{
-                                context.putAll(tmpContext);
-                            }
+                            putAll(context, tmpContext, timeout, startTime);
                             tmpContext.clear();
                         }finally{
                             if(isLockOnLoad && context instanceof SharedContext){
@@ -1170,11 +1375,7 @@ public class DatabaseContextStoreService extends ServiceBase
                         }
                     }
                     try{
-                        if(timeout > 0 && context instanceof SharedContext){
-                            ((SharedContext)context).putAll(tmpContext, calculateTimeout(timeout, startTime));
-                        }else{
-                            context.putAll(tmpContext);
-                        }
+                        putAll(context, tmpContext, timeout, startTime);
                     }finally{
                         if(isLockOnLoad && context instanceof SharedContext){
                             if(timeout > 0){
@@ -1213,6 +1414,16 @@ public class DatabaseContextStoreService extends ServiceBase
             return loadKeys;
         }
         
+        private void putAll(Context context, Map values, long timeout, long startTime) throws Exception{
+            if(isLoadLocal && context instanceof SharedContext){
+                ((SharedContext)context).putAllLocal(values);
+            }else if(timeout > 0 && context instanceof SharedContext){
+                ((SharedContext)context).putAll(values, calculateTimeout(timeout, startTime));
+            }else{
+                context.putAll(values);
+            }
+        }
+        
         private long calculateTimeout(long timeout, long startTime) throws SharedContextTimeoutException{
             if(timeout <= 0){
                 return timeout;
@@ -1345,6 +1556,98 @@ public class DatabaseContextStoreService extends ServiceBase
             }
         }
         
+        public void saveAll(Context context, ConnectionFactory factory, PersistentManager pm, Set keys) throws Exception{
+            if(deleteWhereQuery == null){
+                throw new UnsupportedOperationException("deleteWhereQuery is null");
+            }
+            if(insertQuery == null){
+                throw new UnsupportedOperationException("insertQuery is null");
+            }
+            if(keys.size() == 0){
+                return;
+            }
+            final Object[] keyArray = keys.toArray();
+            Connection con = null;
+            PersistentManager.BatchExecutor executor = null;
+            try{
+                con = factory.getConnection();
+                executor = pm.createQueryBatchExecutor(con, deleteWhereQuery);
+                if(batchPersistCount > 0){
+                    executor.setAutoBatchPersistCount(batchPersistCount);
+                    executor.setAutoCommitOnPersist(isBatchCommitOnPersist);
+                }
+                for(int i = 0; i < keyArray.length; i++){
+                    Object input = createKeyInput(keyArray[i]);
+                    if(subMappings != null){
+                        for(int j = 0; j < subMappings.size(); j++){
+                            DatabaseSubMapping subMapping = (DatabaseSubMapping)subMappings.get(j);
+                            if(subMapping.getDeleteWhereQuery() != null){
+                                subMapping.delete(con, pm, input);
+                            }
+                        }
+                    }
+                    executor.addBatch(input);
+                }
+                executor.persist();
+                executor.close();
+                executor = null;
+                
+                executor = pm.createQueryBatchExecutor(con, insertQuery);
+                if(batchPersistCount > 0){
+                    executor.setAutoBatchPersistCount(batchPersistCount);
+                    executor.setAutoCommitOnPersist(isBatchCommitOnPersist);
+                }
+                Record record = null;
+                for(int i = 0; i < keyArray.length; i++){
+                    Object bean = context.get(keyArray[i]);
+                    if(bean == null){
+                        continue;
+                    }
+                    if(isUniqueKey){
+                        record = save(con, pm, executor, keyArray[i], bean, record);
+                    }else{
+                        List list = (List)bean;
+                        for(int j = 0, jmax = list.size(); j < jmax; j++){
+                            record = save(con, pm, executor, keyArray[i], list.get(j), record);
+                        }
+                    }
+                }
+                executor.persist();
+            }finally{
+                if(executor != null){
+                    executor.close();
+                }
+                if(con != null){
+                    try{
+                        con.close();
+                    }catch(SQLException e){}
+                }
+            }
+        }
+        
+        private Object createKeyInput(Object key) throws Exception{
+            if(databaseRecord == null){
+                return key;
+            }
+            if(propertyAccess == null){
+                propertyAccess = new PropertyAccess();
+            }
+            Record record = databaseRecord.cloneSchema();
+            if(keyClass == null){
+                propertyAccess.set(record, keySavePropertyName, key);
+            }else{
+                for(Iterator itr = keySavePropertyMappings.entrySet().iterator(); itr.hasNext();){
+                    Map.Entry propMapping = (Map.Entry)itr.next();
+                    propertyAccess.set(
+                        record, 
+                        (String)propMapping.getValue(),
+                        propertyAccess.get(key, (String)propMapping.getKey())
+                    );
+                }
+            }
+            return record;
+        }
+        
         private Record save(Connection con, PersistentManager pm, PersistentManager.BatchExecutor executor, Object key, Object bean, Record record) throws Exception{
             Object input = null;
             if(databaseRecord == null){
@@ -1425,28 +1728,7 @@ public class DatabaseContextStoreService extends ServiceBase
             try{
                 con = factory.getConnection();
                 if(bean == null || !isUniqueKey){
-                    Object input = null;
-                    if(databaseRecord == null){
-                        input = key;
-                    }else{
-                        if(propertyAccess == null){
-                            propertyAccess = new PropertyAccess();
-                        }
-                        Record record = databaseRecord.cloneSchema();
-                        if(keyClass == null){
-                            propertyAccess.set(record, keySavePropertyName, key);
-                        }else{
-                            for(Iterator itr = keySavePropertyMappings.entrySet().iterator(); itr.hasNext();){
-                                Map.Entry propMapping = (Map.Entry)itr.next();
-                                propertyAccess.set(
-                                    record, 
-                                    (String)propMapping.getValue(),
-                                    propertyAccess.get(key, (String)propMapping.getKey())
-                                );
-                            }
-                        }
-                        input = record;
-                    }
+                    Object input = createKeyInput(key);
                     
                     if(subMappings != null){
                         for(int j = 0; j < subMappings.size(); j++){
@@ -1571,7 +1853,8 @@ public class DatabaseContextStoreService extends ServiceBase
                     return;
                 }
                 Object[] params = (Object[])ac.getInput();
-                load((Context)params[0], (ConnectionFactory)params[1], (PersistentManager)params[2], parallelSelectQuery, params[3], false, loadTimeout);
+                load((Context)params[0], (ConnectionFactory)params[1], (PersistentManager)params[2], (String)params[4], params[3], false, loadTimeout);
+                loadedPartitionCount.incrementAndGet();
                 ac.getResponseQueue().push(ac);
             }
             public boolean handleError(Object obj, Throwable th) throws Throwable{
@@ -69,4 +69,33 @@ public interface DatabaseContextStoreServiceMBean extends ServiceBaseMBean{
      * @return PersistentManagerサービスのサービス名
      */
     public ServiceName getPersistentManagerServiceName();
+    
+    /**
+     * 最後のコンテキスト全体の読み込みで読み込んだレコード数を取得する。<p>
+     * 読み込み中は、その時点までに読み込んだレコード数となる。<br>
+     * 
+     * @return 読み込んだレコード数
+     */
+    public long getLoadedCount();
+    
+    /**
+     * 最後の並列読み込みでのパーティションの数を取得する。<p>
+     * 
+     * @return パーティションの数
+     */
+    public int getLoadPartitionCount();
+    
+    /**
+     * 最後の並列読み込みで読み込みが完了したパーティションの数を取得する。<p>
+     * 
+     * @return 読み込みが完了したパーティションの数
+     */
+    public int getLoadedPartitionCount();
+    
+    /**
+     * 最後のコンテキスト全体の読み込みにかかった時間[ms]を取得する。<p>
+     * 
+     * @return 読み込み時間[ms]
+     */
+    public long getLastLoadTime();
 }
\ No newline at end of file
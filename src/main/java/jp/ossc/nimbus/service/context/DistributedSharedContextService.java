@@ -43,6 +43,7 @@ import java.util.LinkedHashSet;
 import java.util.Iterator;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.PriorityQueue;
 
 import jp.ossc.nimbus.core.ServiceBase;
 import jp.ossc.nimbus.core.ServiceName;
@@ -50,9 +51,6 @@ import jp.ossc.nimbus.core.ServiceManagerFactory;
 import jp.ossc.nimbus.beans.BeanTableIndexKeyFactory;
 import jp.ossc.nimbus.beans.IndexPropertyAccessException;
 import jp.ossc.nimbus.beans.IndexNotFoundException;
-import jp.ossc.nimbus.beans.BeanTableView;
-import jp.ossc.nimbus.beans.dataset.Record;
-import jp.ossc.nimbus.beans.dataset.RecordList;
 import jp.ossc.nimbus.service.cache.CacheMap;
 import jp.ossc.nimbus.service.keepalive.Cluster;
 import jp.ossc.nimbus.service.publish.RequestMessageListener;
@@ -111,11 +109,16 @@ public class DistributedSharedContextService extends ServiceBase implements Dist
     private boolean isEnabledIndexOnClient = true;
     
     private long synchronizeTimeout = 10000l;
+    private int synchronizeChunkSize;
     private long rehashTimeout = 10000l;
     private long defaultTimeout = 1000l;
     private long forcedLockTimeout = 60000L;
     private long forcedWholeLockTimeout = 300000L;
     private long forcedLockTimeoutCheckInterval = -1L;
+    private long asynchBatchInterval = -1L;
+    private int asynchBatchSize = SharedContextServiceMBean.DEFAULT_ASYNCH_BATCH_SIZE;
+    private int nearCacheSize = -1;
+    private long nearCacheExpireTime = -1L;
     
     private boolean isWaitConnectAllOnStart = false;
     private long waitConnectTimeout = 60000l;
@@ -404,6 +407,18 @@ public class DistributedSharedContextService extends ServiceBase implements Dist
         return synchronizeTimeout;
     }
     
+    public void setSynchronizeChunkSize(int size){
+        synchronizeChunkSize = size;
+        if(getState() == STARTED){
+            for(int i = 0; i < sharedContextArray.length; i++){
+                sharedContextArray[i].setSynchronizeChunkSize(synchronizeChunkSize);
+            }
+        }
+    }
+    public int getSynchronizeChunkSize(){
+        return synchronizeChunkSize;
+    }
+    
     public void setRehashTimeout(long timeout){
         rehashTimeout = timeout;
     }
@@ -454,6 +469,43 @@ public class DistributedSharedContextService extends ServiceBase implements Dist
         return forcedLockTimeoutCheckInterval;
     }
     
+    public void setAsynchBatchInterval(long interval){
+        asynchBatchInterval = interval;
+    }
+    public long getAsynchBatchInterval(){
+        return asynchBatchInterval;
+    }
+    
+    public void setAsynchBatchSize(int size){
+        asynchBatchSize = size;
+    }
+    public int getAsynchBatchSize(){
+        return asynchBatchSize;
+    }
+    
+    public void setNearCacheSize(int size){
+        nearCacheSize = size;
+    }
+    public int getNearCacheSize(){
+        return nearCacheSize;
+    }
+    
+    public void setNearCacheExpireTime(long time){
+        nearCacheExpireTime = time;
+    }
+    public long getNearCacheExpireTime(){
+        return nearCacheExpireTime;
+    }
+    
+    public void flushAsynchBatch() throws SharedContextSendException{
+        if(sharedContextArray == null){
+            return;
+        }
+        for(int i = 0; i < sharedContextArray.length; i++){
+            sharedContextArray[i].flushAsynchBatch();
+        }
+    }
+    
     public void setManagedDataNode(boolean isManage){
         isManagedDataNode = isManage;
     }
@@ -530,6 +582,27 @@ public class DistributedSharedContextService extends ServiceBase implements Dist
         }
     }
     
+    public float getNearCacheHitRatio(){
+        long hit = 0;
+        long miss = 0;
+        if(getState() == STARTED){
+            for(int i = 0; i < sharedContextArray.length; i++){
+                hit += sharedContextArray[i].getNearCacheHitCount();
+                miss += sharedContextArray[i].getNearCacheMissCount();
+            }
+        }
+        final long total = hit + miss;
+        return total == 0 ? 0.0f : ((float)hit / (float)total);
+    }
+    
+    public void resetNearCacheHitRatio(){
+        if(getState() == STARTED){
+            for(int i = 0; i < sharedContextArray.length; i++){
+                sharedContextArray[i].resetNearCacheHitRatio();
+            }
+        }
+    }
+    
     public Set getLockedKeySet(){
         Set keySet = new HashSet();
         if(getState() == STARTED){
@@ -709,10 +782,15 @@ public class DistributedSharedContextService extends ServiceBase implements Dist
             sharedContextArray[i].setClient(isClient || isRehashEnabled ? true : false);
             sharedContextArray[i].setEnabledIndexOnClient(isEnabledIndexOnClient);
             sharedContextArray[i].setSynchronizeTimeout(synchronizeTimeout);
+            sharedContextArray[i].setSynchronizeChunkSize(synchronizeChunkSize);
             sharedContextArray[i].setDefaultTimeout(defaultTimeout);
             sharedContextArray[i].setForcedLockTimeout(forcedLockTimeout);
             sharedContextArray[i].setForcedWholeLockTimeout(forcedWholeLockTimeout);
             sharedContextArray[i].setForcedLockTimeoutCheckInterval(forcedLockTimeoutCheckInterval);
+            sharedContextArray[i].setAsynchBatchInterval(asynchBatchInterval);
+            sharedContextArray[i].setAsynchBatchSize(asynchBatchSize);
+            sharedContextArray[i].setNearCacheSize(nearCacheSize);
+            sharedContextArray[i].setNearCacheExpireTime(nearCacheExpireTime);
             sharedContextArray[i].setSynchronizeOnStart(false);
             sharedContextArray[i].setSaveOnlyMain(true);
             sharedContextArray[i].setClearBeforeSave(false);
@@ -3558,17 +3636,156 @@ public class DistributedSharedContextService extends ServiceBase implements Dist
         }
         
         public List getResultValueList(long timeout, String[] propNames, boolean[] isAsc) throws SharedContextSendException, SharedContextTimeoutException{
-            List resultValueList = getResultValueList(timeout);
-            if(resultValueList == null || resultValueList.size() == 0){
-                return resultValueList;
+            return getResultValueList(timeout, propNames, isAsc, 0);
+        }
+        
+        /**
+         * 各ノードでソートと件数の絞り込みを行った値リストを取得し、k-wayマージして返す。<p>
+         *
+         * @param timeout タイムアウト[ms]
+         * @param propNames ソートキーとなるプロパティ名の配列。nullの場合は、ソートしない
+         * @param isAsc propNamesで指定したプロパティ名のソート方向を示すフラグ。trueを指定すると昇順
+         * @param limit 取得する件数。0以下の場合は、全件
+         * @return 検索結果の値リスト
+         * @exception SharedContextSendException 分散サーバへのメッセージ送信に失敗した場合
+         * @exception SharedContextTimeoutException 分散サーバからの応答待ちでタイムアウトした場合
+         */
+        public List getResultValueList(long timeout, String[] propNames, boolean[] isAsc, int limit) throws SharedContextSendException, SharedContextTimeoutException{
+            SharedContextViewParallelRequest[] requests = new SharedContextViewParallelRequest[views.length];
+            for(int i = 0; i < views.length; i++){
+                requests[i] = new ResultValueListParallelRequest(views[i], propNames, isAsc, limit);
+            }
+            List nodeResults = requestViews(requests, "getResultValueList", timeout);
+            List result = new ArrayList();
+            if(propNames == null || propNames.length == 0){
+                for(int i = 0; i < nodeResults.size(); i++){
+                    List values = (List)nodeResults.get(i);
+                    if(values != null){
+                        result.addAll(values);
+                    }
+                }
+                return limit > 0 && limit < result.size() ? new ArrayList(result.subList(0, limit)) : result;
+            }
+            Comparator comparator = null;
+            for(int i = 0; i < nodeResults.size(); i++){
+                List values = (List)nodeResults.get(i);
+                if(values != null && values.size() != 0){
+                    comparator = SharedContextService.createValueComparator(values.get(0), propNames, isAsc);
+                    break;
+                }
+            }
+            if(comparator == null){
+                return result;
             }
-            Object template = resultValueList.get(0);
-            if(template instanceof Record){
-                RecordList.sort(resultValueList, propNames, isAsc);
+            final Comparator valueComparator = comparator;
+            PriorityQueue heads = new PriorityQueue(
+                nodeResults.size(),
+                new Comparator(){
+                    public int compare(Object o1, Object o2){
+                        return valueComparator.compare(((MergeCursor)o1).value(), ((MergeCursor)o2).value());
+                    }
+                }
+            );
+            for(int i = 0; i < nodeResults.size(); i++){
+                List values = (List)nodeResults.get(i);
+                if(values != null && values.size() != 0){
+                    heads.offer(new MergeCursor(values));
+                }
+            }
+            while(heads.size() != 0 && (limit <= 0 || result.size() < limit)){
+                MergeCursor cursor = (MergeCursor)heads.poll();
+                result.add(cursor.value());
+                if(cursor.next()){
+                    heads.offer(cursor);
+                }
+            }
+            return result;
+        }
+        
+        public Map aggregate(long timeout, String propName, String[] groupByPropNames) throws SharedContextSendException, SharedContextTimeoutException{
+            SharedContextViewParallelRequest[] requests = new SharedContextViewParallelRequest[views.length];
+            for(int i = 0; i < views.length; i++){
+                requests[i] = new AggregateParallelRequest(views[i], propName, groupByPropNames);
+            }
+            List nodeResults = requestViews(requests, "aggregate", timeout);
+            Map result = new HashMap();
+            for(int i = 0; i < nodeResults.size(); i++){
+                SharedContextAggregate.merge(result, (Map)nodeResults.get(i));
+            }
+            return result;
+        }
+        
+        private List requestViews(SharedContextViewParallelRequest[] requests, String operation, long timeout) throws SharedContextSendException, SharedContextTimeoutException{
+            List results = new ArrayList(requests.length);
+            final long start = System.currentTimeMillis();
+            final boolean isNoTimeout = timeout <= 0;
+            long currentTimeout = timeout;
+            if(parallelRequestQueueHandlerContainer == null){
+                for(int i = 0; i < requests.length; i++){
+                    if(!isNoTimeout && currentTimeout <= 0){
+                        throw new SharedContextTimeoutException("There is a node that is not possible yet " + operation + ". completed=" + i + ", notCompleted=" + (requests.length - i) + ", timeout=" + timeout + ", processTime=" + (System.currentTimeMillis() - start));
+                    }
+                    AsynchContext asynchContext = new AsynchContext(requests[i]);
+                    asynchContext.startTimeout(currentTimeout);
+                    try{
+                        results.add(requests[i].execute(asynchContext));
+                    }catch(SharedContextSendException e){
+                        throw e;
+                    }catch(SharedContextTimeoutException e){
+                        throw e;
+                    }catch(RuntimeException e){
+                        throw e;
+                    }catch(Error e){
+                        throw e;
+                    }catch(Throwable th){
+                        // 起きないはず
+                        throw new SharedContextSendException(th);
+                    }
+                    currentTimeout = isNoTimeout ? currentTimeout : timeout - (System.currentTimeMillis() - start);
+                }
             }else{
-                Collections.sort(resultValueList, new BeanTableView.BeanComparator(template.getClass(), propNames, isAsc));
+                DefaultQueueService responseQueue = new DefaultQueueService();
+                try{
+                    responseQueue.create();
+                    responseQueue.start();
+                }catch(Exception e){
+                }
+                responseQueue.accept();
+                for(int i = 0; i < requests.length; i++){
+                    AsynchContext asynchContext = new AsynchContext(requests[i], responseQueue);
+                    if(threadContext != null){
+                        asynchContext.putThreadContextAll(threadContext);
+                    }
+                    asynchContext.startTimeout(timeout);
+                    parallelRequestQueueHandlerContainer.push(asynchContext);
+                }
+                for(int i = 0; i < requests.length; i++){
+                    if(!isNoTimeout && currentTimeout <= 0){
+                        throw new SharedContextTimeoutException("There is a node that is not possible yet " + operation + ". completed=" + i + ", notCompleted=" + (requests.length - i) + ", timeout=" + timeout + ", processTime=" + (System.currentTimeMillis() - start));
+                    }
+                    AsynchContext asynchContext = (AsynchContext)responseQueue.get(currentTimeout);
+                    currentTimeout = isNoTimeout ? currentTimeout : timeout - (System.currentTimeMillis() - start);
+                    if(asynchContext == null){
+                        throw new SharedContextTimeoutException("There is a node that is not possible yet " + operation + ". completed=" + i + ", notCompleted=" + (requests.length - i) + ", timeout=" + timeout + ", processTime=" + (System.currentTimeMillis() - start));
+                    }
+                    try{
+                        asynchContext.checkError();
+                    }catch(SharedContextSendException e){
+                        throw e;
+                    }catch(SharedContextTimeoutException e){
+                        throw e;
+                    }catch(RuntimeException e){
+                        throw e;
+                    }catch(Error e){
+                        throw e;
+                    }catch(Throwable th){
+                        // 起きないはず
+                        throw new SharedContextSendException(th);
+                    }
+                    results.add(asynchContext.getOutput());
+                }
             }
-            return resultValueList;
+            return results;
         }
         
         public SharedContextView and(){
@@ -5400,6 +5617,57 @@ public class DistributedSharedContextService extends ServiceBase implements Dist
         }
     }
     
+    protected class ResultValueListParallelRequest extends SharedContextViewParallelRequest{
+        
+        private String[] propNames;
+        private boolean[] isAsc;
+        private int limit;
+        
+        public ResultValueListParallelRequest(SharedContextView view, String[] propNames, boolean[] isAsc, int limit){
+            super(view);
+            this.propNames = propNames;
+            this.isAsc = isAsc;
+            this.limit = limit;
+        }
+        public Object execute(AsynchContext ac) throws SharedContextSendException, SharedContextTimeoutException{
+            return view.getResultValueList(checkTimeout(ac), propNames, isAsc, limit);
+        }
+    }
+    
+    protected class AggregateParallelRequest extends SharedContextViewParallelRequest{
+        
+        private String propName;
+        private String[] groupByPropNames;
+        
+        public AggregateParallelRequest(SharedContextView view, String propName, String[] groupByPropNames){
+            super(view);
+            this.propName = propName;
+            this.groupByPropNames = groupByPropNames;
+        }
+        public Object execute(AsynchContext ac) throws SharedContextSendException, SharedContextTimeoutException{
+            return view.aggregate(checkTimeout(ac), propName, groupByPropNames);
+        }
+    }
+    
+    /**
+     * ノード毎のソート済み値リストをk-wayマージする際のカーソル。<p>
+     */
+    protected static class MergeCursor{
+        
+        private final List values;
+        private int index;
+        
+        public MergeCursor(List values){
+            this.values = values;
+        }
+        public Object value(){
+            return values.get(index);
+        }
+        public boolean next(){
+            return ++index < values.size();
+        }
+    }
+    
     protected class SearchKeyParallelRequest extends SharedContextViewParallelRequest{
         
         private String indexName;
@@ -88,6 +88,7 @@ public interface DistributedSharedContextServiceMBean extends ServiceBaseMBean{
     /**
      * {@link SharedContextKeyDistributor}サービスのサービス名を設定する。<p>
      * 指定しない場合は、{@link MD5HashSharedContextKeyDistributorService}が適用される。<br>
+     * 分散総数を変更する可能性がある場合は、{@link ConsistentHashSharedContextKeyDistributorService}を指定すると、分散先が変わるキーを少なくできる。<br>
      * 
      * @param name SharedContextKeyDistributorサービスのサービス名
      */
@@ -399,6 +400,22 @@ public interface DistributedSharedContextServiceMBean extends ServiceBaseMBean{
      */
     public long getSynchronizeTimeout();
     
+    /**
+     * 同期時に、主ノードからデータを分割して取得する場合の1回あたりの件数を設定する。<p>
+     * 各ノードの{@link SharedContextServiceMBean#setSynchronizeChunkSize(int)}に設定される。<br>
+     * デフォルトは、0で分割しない。<br>
+     *
+     * @param size 1回あたりの件数
+     */
+    public void setSynchronizeChunkSize(int size);
+    
+    /**
+     * 同期時に、主ノードからデータを分割して取得する場合の1回あたりの件数を取得する。<p>
+     *
+     * @return 1回あたりの件数
+     */
+    public int getSynchronizeChunkSize();
+    
     /**
      * コンテキスト分散の再配置時のタイムアウト[ms]を設定する。<p>
      * デフォルトは、10000[ms]。<br>
@@ -478,6 +495,77 @@ public interface DistributedSharedContextServiceMBean extends ServiceBaseMBean{
      */
     public long getForcedLockTimeoutCheckInterval();
     
+    /**
+     * 各データノードで、非同期更新をまとめて送信する間隔[ms]を設定する。<p>
+     * まとめる単位は、データノード毎となる。<br>
+     * デフォルトは、-1で、非同期更新を1件ずつ送信する。<br>
+     *
+     * @param interval 非同期更新をまとめて送信する間隔[ms]
+     * @see SharedContextServiceMBean#setAsynchBatchInterval(long)
+     */
+    public void setAsynchBatchInterval(long interval);
+    
+    /**
+     * 各データノードで、非同期更新をまとめて送信する間隔[ms]を取得する。<p>
+     *
+     * @return 非同期更新をまとめて送信する間隔[ms]
+     */
+    public long getAsynchBatchInterval();
+    
+    /**
+     * 各データノードで、非同期更新をまとめて送信する際の最大イベント数を設定する。<p>
+     * デフォルトは、{@link SharedContextServiceMBean#DEFAULT_ASYNCH_BATCH_SIZE}。<br>
+     *
+     * @param size 最大イベント数
+     */
+    public void setAsynchBatchSize(int size);
+    
+    /**
+     * 各データノードで、非同期更新をまとめて送信する際の最大イベント数を取得する。<p>
+     *
+     * @return 最大イベント数
+     */
+    public int getAsynchBatchSize();
+    
+    /**
+     * 全てのデータノードで、送信待ちの非同期更新を送信する。<p>
+     *
+     * @exception SharedContextSendException 送信に失敗した場合
+     */
+    public void flushAsynchBatch() throws SharedContextSendException;
+    
+    /**
+     * Thinクライアントモードの場合に、各データノードで保持するニアキャッシュの最大数を設定する。<p>
+     * デフォルトは、-1で、ニアキャッシュを使用しない。<br>
+     *
+     * @param size ニアキャッシュの最大数
+     * @see SharedContextServiceMBean#setNearCacheSize(int)
+     */
+    public void setNearCacheSize(int size);
+    
+    /**
+     * Thinクライアントモードの場合に、各データノードで保持するニアキャッシュの最大数を取得する。<p>
+     *
+     * @return ニアキャッシュの最大数
+     */
+    public int getNearCacheSize();
+    
+    /**
+     * ニアキャッシュに保持した値の有効期間[ms]を設定する。<p>
+     * デフォルトは、-1で、有効期間なし。<br>
+     *
+     * @param time 有効期間[ms]
+     * @see SharedContextServiceMBean#setNearCacheExpireTime(long)
+     */
+    public void setNearCacheExpireTime(long time);
+    
+    /**
+     * ニアキャッシュに保持した値の有効期間[ms]を取得する。<p>
+     *
+     * @return 有効期間[ms]
+     */
+    public long getNearCacheExpireTime();
+    
     /**
      * データノードをサービスとして登録するかどうかを設定する。<p>
      * デフォルトは、falseで登録しない。<br>
@@ -973,6 +1061,18 @@ public interface DistributedSharedContextServiceMBean extends ServiceBaseMBean{
      */
     public void resetCacheHitRatio();
     
+    /**
+     * 全てのデータノードのニアキャッシュのヒット率を取得する。<p>
+     *
+     * @return ヒット率
+     */
+    public float getNearCacheHitRatio();
+    
+    /**
+     * 全てのデータノードのニアキャッシュのヒット率をリセットする。<p>
+     */
+    public void resetNearCacheHitRatio();
+    
     /**
      * 現在ロックされているキーの集合を取得する。<p>
      *
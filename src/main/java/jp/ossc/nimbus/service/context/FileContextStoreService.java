@@ -42,7 +42,7 @@ import jp.ossc.nimbus.service.io.*;
  *
  * @author M.Takata
  */
-public class FileContextStoreService extends ServiceBase implements FileContextStoreServiceMBean, ContextStore{
+public class FileContextStoreService extends ServiceBase implements FileContextStoreServiceMBean, BatchContextStore{
     
     private static final long serialVersionUID = -2901837711123149271L;
     
@@ -61,6 +61,7 @@ public class FileContextStoreService extends ServiceBase implements FileContextS
     protected File valueDirectory;
     protected File keyFile;
     protected Map keyFileMap;
+    protected Map segmentEntryCountMap;
     
     public void setRootDirectory(File dir){
         rootDirectory = dir;
@@ -146,6 +147,7 @@ public class FileContextStoreService extends ServiceBase implements FileContextS
                 throw new IllegalArgumentException("Not Directory : " + valueDirectory);
             }
             keyFileMap = new HashMap();
+            segmentEntryCountMap = new HashMap();
             keyFile = new File(rootDirectory, keyFileName);
         }
         if(externalizerServiceName != null){
@@ -165,6 +167,7 @@ public class FileContextStoreService extends ServiceBase implements FileContextS
                     keyFile.delete();
                 }
                 keyFileMap.clear();
+                segmentEntryCountMap.clear();
                 if(valueDirectory != null){
                     File[] files = valueDirectory.listFiles();
                     if(files != null){
@@ -225,24 +228,27 @@ public class FileContextStoreService extends ServiceBase implements FileContextS
         }
         Object value = context.get(key);
         synchronized(keyFile){
-            File valueFile = (File)keyFileMap.get(key);
-            if(valueFile == null){
-                valueFile = File.createTempFile(valueFileNamePrefix, valueFileNameSuffix, valueDirectory);
+            final Object location = keyFileMap.get(key);
+            if(!(location instanceof File)){
+                final File valueFile = File.createTempFile(valueFileNamePrefix, valueFileNameSuffix, valueDirectory);
                 FileOutputStream fos = new FileOutputStream(valueFile);
                 try{
                     externalizer.writeExternal(value, fos);
                 }finally{
                     fos.close();
                 }
-                keyFileMap.put(key, valueFile);
+                final File unused = putValueLocation(key, valueFile);
                 if(!keyFile.exists()){
                     keyFile.createNewFile();
                 }
                 RandomAccessFile raf = new RandomAccessFile(keyFile, "rw");
                 try{
-                    raf.seek(0);
-                    int size = raf.readInt();
-                    raf.seek(0);
+                    int size = 0;
+                    if(raf.length() != 0){
+                        raf.seek(0);
+                        size = raf.readInt();
+                        raf.seek(0);
+                    }
                     raf.writeInt(size + 1);
                 }finally{
                     raf.close();
@@ -254,8 +260,11 @@ public class FileContextStoreService extends ServiceBase implements FileContextS
                 }finally{
                     fos.close();
                 }
+                if(unused != null){
+                    unused.delete();
+                }
             }else{
-                FileOutputStream fos = new FileOutputStream(valueFile);
+                FileOutputStream fos = new FileOutputStream((File)location);
                 try{
                     externalizer.writeExternal(value, fos);
                 }finally{
@@ -265,6 +274,162 @@ public class FileContextStoreService extends ServiceBase implements FileContextS
         }
     }
     
+    public void saveAll(Context context, Set keys) throws Exception{
+        if(!isSupportByKey){
+            throw new UnsupportedOperationException();
+        }
+        if(keys.size() == 0){
+            return;
+        }
+        synchronized(keyFile){
+            final File segmentFile = File.createTempFile(valueFileNamePrefix, valueFileNameSuffix, valueDirectory);
+            final Map newKeyFileMap = new LinkedHashMap();
+            FileOutputStream fos = new FileOutputStream(segmentFile);
+            try{
+                DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos));
+                Iterator itr = keys.iterator();
+                while(itr.hasNext()){
+                    Object key = itr.next();
+                    final int offset = dos.size();
+                    externalizer.writeExternal(context.get(key), dos);
+                    newKeyFileMap.put(key, new ValueLocation(segmentFile, offset, dos.size() - offset));
+                }
+                dos.flush();
+            }finally{
+                fos.close();
+            }
+            final List unusedFiles = new ArrayList();
+            Iterator entries = newKeyFileMap.entrySet().iterator();
+            while(entries.hasNext()){
+                Map.Entry entry = (Map.Entry)entries.next();
+                final File unused = putValueLocation(entry.getKey(), entry.getValue());
+                if(unused != null){
+                    unusedFiles.add(unused);
+                }
+            }
+            if(!keyFile.exists()){
+                keyFile.createNewFile();
+            }
+            int size = 0;
+            RandomAccessFile raf = new RandomAccessFile(keyFile, "rw");
+            try{
+                if(raf.length() != 0){
+                    raf.seek(0);
+                    size = raf.readInt();
+                }
+                size += newKeyFileMap.size();
+                if(size <= keyFileMap.size() * 2){
+                    raf.seek(0);
+                    raf.writeInt(size);
+                }
+            }finally{
+                raf.close();
+            }
+            if(size > keyFileMap.size() * 2){
+                writeKeyFile();
+            }else{
+                fos = new FileOutputStream(keyFile, true);
+                try{
+                    DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos));
+                    entries = newKeyFileMap.entrySet().iterator();
+                    while(entries.hasNext()){
+                        Map.Entry entry = (Map.Entry)entries.next();
+                        externalizer.writeExternal(entry.getKey(), dos);
+                        externalizer.writeExternal(entry.getValue(), dos);
+                    }
+                    dos.flush();
+                }finally{
+                    fos.close();
+                }
+            }
+            for(int i = 0; i < unusedFiles.size(); i++){
+                ((File)unusedFiles.get(i)).delete();
+            }
+        }
+    }
+    
+    /**
+     * キーの値の格納場所を登録する。<p>
+     * 格納場所には、値毎のファイル、または{@link #saveAll(Context, Set)}で書き込んだセグメントファイル内の位置を表す{@link ValueLocation}を指定する。<br>
+     *
+     * @param key キー
+     * @param location 値の格納場所
+     * @return 置き換えられて、どのキーからも参照されなくなったファイル。存在しない場合は、null
+     */
+    protected File putValueLocation(Object key, Object location){
+        if(location instanceof ValueLocation){
+            final File segmentFile = ((ValueLocation)location).file;
+            final int[] count = (int[])segmentEntryCountMap.get(segmentFile);
+            if(count == null){
+                segmentEntryCountMap.put(segmentFile, new int[]{1});
+            }else{
+                count[0]++;
+            }
+        }
+        final Object old = keyFileMap.put(key, location);
+        if(old instanceof ValueLocation){
+            final File segmentFile = ((ValueLocation)old).file;
+            final int[] count = (int[])segmentEntryCountMap.get(segmentFile);
+            if(count != null && --count[0] <= 0){
+                segmentEntryCountMap.remove(segmentFile);
+                return segmentFile;
+            }
+        }else if(old instanceof File && !old.equals(location)){
+            return (File)old;
+        }
+        return null;
+    }
+    
+    /**
+     * 現在のキーと値の格納場所で、キーファイルを書き直す。<p>
+     *
+     * @exception IOException 書き込みに失敗した場合
+     */
+    protected void writeKeyFile() throws IOException{
+        FileOutputStream fos = new FileOutputStream(keyFile);
+        try{
+            DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos));
+            dos.writeInt(keyFileMap.size());
+            Iterator entries = keyFileMap.entrySet().iterator();
+            while(entries.hasNext()){
+                Map.Entry entry = (Map.Entry)entries.next();
+                externalizer.writeExternal(entry.getKey(), dos);
+                externalizer.writeExternal(entry.getValue(), dos);
+            }
+            dos.flush();
+        }finally{
+            fos.close();
+        }
+    }
+    
+    /**
+     * 値の格納場所から、値を読み込む。<p>
+     *
+     * @param location 値の格納場所
+     * @return 値
+     * @exception Exception 読み込みに失敗した場合
+     */
+    protected Object readValue(Object location) throws Exception{
+        if(location instanceof ValueLocation){
+            final ValueLocation valueLocation = (ValueLocation)location;
+            final byte[] bytes = new byte[valueLocation.length];
+            RandomAccessFile raf = new RandomAccessFile(valueLocation.file, "r");
+            try{
+                raf.seek(valueLocation.offset);
+                raf.readFully(bytes);
+            }finally{
+                raf.close();
+            }
+            return externalizer.readExternal(new ByteArrayInputStream(bytes));
+        }
+        FileInputStream fis = new FileInputStream((File)location);
+        try{
+            return externalizer.readExternal(fis);
+        }finally{
+            fis.close();
+        }
+    }
+    
     public void load(Context context) throws Exception{
         synchronized(entireFile){
             if(!entireFile.exists()){
@@ -308,8 +473,8 @@ public class FileContextStoreService extends ServiceBase implements FileContextS
                     final int size = dis.readInt();
                     for(int i = 0; i < size; i++){
                         Object key = externalizer.readExternal(dis);
-                        Object valueFile = externalizer.readExternal(dis);
-                        keyFileMap.put(key, valueFile);
+                        Object location = externalizer.readExternal(dis);
+                        putValueLocation(key, location);
                         map.put(key, null);
                     }
                 }finally{
@@ -372,8 +537,8 @@ public class FileContextStoreService extends ServiceBase implements FileContextS
         }
         Object value = null;
         synchronized(keyFile){
-            File valueFile = (File)keyFileMap.get(key);
-            if(valueFile == null && keyFileMap.size() == 0){
+            Object location = keyFileMap.get(key);
+            if(location == null && keyFileMap.size() == 0){
                 synchronized(entireFile){
                     if(!entireFile.exists()){
                         return false;
@@ -384,7 +549,7 @@ public class FileContextStoreService extends ServiceBase implements FileContextS
                     for(int i = 0; i < size; i++){
                         Object k = externalizer.readExternal(dis);
                         Object val = externalizer.readExternal(dis);
-                        valueFile = File.createTempFile(valueFileNamePrefix, valueFileNameSuffix, valueDirectory);
+                        File valueFile = File.createTempFile(valueFileNamePrefix, valueFileNameSuffix, valueDirectory);
                         FileOutputStream fos = new FileOutputStream(valueFile);
                         try{
                             externalizer.writeExternal(val, fos);
@@ -409,14 +574,9 @@ public class FileContextStoreService extends ServiceBase implements FileContextS
                     }
                 }
             }
-            valueFile = (File)keyFileMap.get(key);
-            if(valueFile != null){
-                FileInputStream fis = new FileInputStream(valueFile);
-                try{
-                    value = externalizer.readExternal(fis);
-                }finally{
-                    fis.close();
-                }
+            location = keyFileMap.get(key);
+            if(location != null){
+                value = readValue(location);
             }
         }
         if(value != null){
@@ -442,4 +602,39 @@ public class FileContextStoreService extends ServiceBase implements FileContextS
     public boolean isSupportLoadByKey(){
         return isSupportByKey;
     }
-}
\ No newline at end of file
+    
+    /**
+     * {@link FileContextStoreService#saveAll(Context, Set)}で書き込んだセグメントファイル内の値の位置。<p>
+     *
+     * @author M.Takata
+     */
+    protected static class ValueLocation implements Serializable{
+        
+        private static final long serialVersionUID = -6514830153862931170L;
+        
+        protected File file;
+        protected long offset;
+        protected int length;
+        
+        public ValueLocation(){
+        }
+        
+        public ValueLocation(File file, long offset, int length){
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+        }
+        
+        public boolean equals(Object obj){
+            if(!(obj instanceof ValueLocation)){
+                return false;
+            }
+            final ValueLocation location = (ValueLocation)obj;
+            return file.equals(location.file) && offset == location.offset && length == location.length;
+        }
+        
+        public int hashCode(){
+            return file.hashCode() + (int)offset;
+        }
+    }
+}
@@ -62,7 +62,8 @@ public interface FileContextStoreServiceMBean extends ServiceBaseMBean{
      * キー単位での保存/読み込みをサポートするかどうかを設定する。<p>
      * デフォルトは、falseで、サポートしない。<br>
      * キー単位の保存と、全体の保存は、基本的に別々に管理される。ただし、全体保存のファイルが存在し、キー単位の保存ファイルが存在しない場合に、キー単位の読み込みを行った場合、全体保存ファイルからキー単位ファイルへの展開が行われる。<br>
-     * つまり、キー単位の保存のみを行い、全体の読み込みをした場合、全体の保存ファイルにはキー単位の保存が反映されないため、同期されない。一方、キー単位の保存の後に、ストアを削除し、全体の保存を行い、キー単位の読み込みを行った場合は、全体保存ファイルからキー単位ファイルへの展開が行われるため、同期される。
+     * つまり、キー単位の保存のみを行い、全体の読み込みをした場合、全体の保存ファイルにはキー単位の保存が反映されないため、同期されない。一方、キー単位の保存の後に、ストアを削除し、全体の保存を行い、キー単位の読み込みを行った場合は、全体保存ファイルからキー単位ファイルへの展開が行われるため、同期される。<br>
+     * 複数キーをまとめて保存する場合は、キー毎のファイルではなく、1つのセグメントファイルに追記し、キーファイルにセグメントファイル内の位置を記録する。全てのキーが後の保存で置き換えられたセグメントファイルは削除される。<br>
      *
      * @param isSupport サポートする場合は、true
      */
@@ -0,0 +1,1231 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import jp.ossc.nimbus.core.*;
+import jp.ossc.nimbus.daemon.*;
+import jp.ossc.nimbus.service.io.*;
+import jp.ossc.nimbus.service.queue.AsynchContext;
+import jp.ossc.nimbus.service.queue.DefaultQueueService;
+import jp.ossc.nimbus.service.queue.QueueHandler;
+import jp.ossc.nimbus.service.queue.QueueHandlerContainerService;
+
+/**
+ * ログ構造化ファイルコンテキストストア。<p>
+ * キー単位の保存、削除、及び{@link #saveDifference(Object, SharedContextValueDifference) 差分更新}を、セグメントファイルの末尾に追記していく。<br>
+ * セグメントファイルが{@link #setMaxSegmentSize(long) 最大サイズ}を超えると、次のセグメントファイルに切り替える。<br>
+ * {@link #compact()}もしくは{@link #setSnapshotInterval(long) 定期的なスナップショット}では、それまでのセグメントファイルを最新の値だけを持つスナップショットファイルに圧縮して、古いファイルを削除する。<br>
+ * 読み込み時には、スナップショットファイルと、それ以降のセグメントファイルを{@link #setRecoveryThreadSize(int) 並列}に読み込み、順番に再生する。<br>
+ * 各レコードはチェックサムを持ち、異常終了等で最後のセグメントファイルの末尾が壊れている場合は、開始時に切り詰める。<br>
+ * また、{@link SharedContextUpdateListener}を実装しており、{@link SharedContextService}の{@link SharedContextServiceMBean#setSharedContextUpdateListenerServiceNames(ServiceName[]) 更新リスナ}として登録すると、共有コンテキストへの追加、削除をキー単位で保存し、更新を差分として保存する。<br>
+ * 以下に、サービス定義例を示す。<br>
+ * <pre>
+ * &lt;?xml version="1.0" encoding="Shift_JIS"?&gt;
+ * 
+ * &lt;server&gt;
+ *     
+ *     &lt;manager name="Sample"&gt;
+ *         
+ *         &lt;service name="ContextStore"
+ *                  code="jp.ossc.nimbus.service.context.LogStructuredContextStoreService"&gt;
+ *             &lt;attribute name="RootDirectory"&gt;./store&lt;/attribute&gt;
+ *             &lt;attribute name="SnapshotInterval"&gt;600000&lt;/attribute&gt;
+ *             &lt;attribute name="RecoveryThreadSize"&gt;4&lt;/attribute&gt;
+ *         &lt;/service&gt;
+ *         
+ *         &lt;service name="SharedContext"
+ *                  code="jp.ossc.nimbus.service.context.SharedContextService"&gt;
+ *             &lt;attribute name="ContextStoreServiceName"&gt;#ContextStore&lt;/attribute&gt;
+ *             &lt;attribute name="SharedContextUpdateListenerServiceNames"&gt;#ContextStore&lt;/attribute&gt;
+ *             &lt;depends&gt;ContextStore&lt;/depends&gt;
+ *         &lt;/service&gt;
+ *         
+ *     &lt;/manager&gt;
+ *     
+ * &lt;/server&gt;
+ * </pre>
+ *
+ * @author M.Takata
+ */
+public class LogStructuredContextStoreService extends ServiceBase
+ implements BatchContextStore, SharedContextUpdateListener, DaemonRunnable, LogStructuredContextStoreServiceMBean{
+    
+    private static final long serialVersionUID = 4412046178021523690L;
+    
+    protected static final String SEGMENT_FILE_NAME_SUFFIX = ".log";
+    protected static final String SNAPSHOT_FILE_NAME_SUFFIX = ".snp";
+    protected static final String TEMP_FILE_NAME_SUFFIX = ".tmp";
+    
+    protected static final byte RECORD_PUT = 1;
+    protected static final byte RECORD_REMOVE = 2;
+    protected static final byte RECORD_DIFF = 3;
+    
+    protected static final int RECORD_HEADER_SIZE = 8;
+    protected static final int RECORD_BODY_HEADER_SIZE = 5;
+    
+    protected File rootDirectory;
+    protected String segmentFileNamePrefix = "segment";
+    protected String snapshotFileNamePrefix = "snapshot";
+    protected long maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
+    protected boolean isSync;
+    protected long snapshotInterval;
+    protected int recoveryThreadSize = 1;
+    protected ServiceName externalizerServiceName;
+    protected boolean isLockOnLoad;
+    
+    protected Externalizer externalizer;
+    protected final Object lock = new Object();
+    protected final Object compactLock = new Object();
+    protected Map index;
+    protected TreeMap segments;
+    protected LogFile snapshot;
+    protected LogFile activeSegment;
+    protected FileChannel writeChannel;
+    protected long writePosition;
+    protected Daemon snapshotDaemon;
+    
+    protected volatile long compactionCount;
+    protected volatile long lastCompactionTime;
+    protected volatile long lastLoadTime;
+    
+    public void setRootDirectory(File dir){
+        rootDirectory = dir;
+    }
+    public File getRootDirectory(){
+        return rootDirectory;
+    }
+    
+    public void setSegmentFileNamePrefix(String prefix){
+        segmentFileNamePrefix = prefix;
+    }
+    public String getSegmentFileNamePrefix(){
+        return segmentFileNamePrefix;
+    }
+    
+    public void setSnapshotFileNamePrefix(String prefix){
+        snapshotFileNamePrefix = prefix;
+    }
+    public String getSnapshotFileNamePrefix(){
+        return snapshotFileNamePrefix;
+    }
+    
+    public void setMaxSegmentSize(long size){
+        maxSegmentSize = size;
+    }
+    public long getMaxSegmentSize(){
+        return maxSegmentSize;
+    }
+    
+    public void setSync(boolean isSync){
+        this.isSync = isSync;
+    }
+    public boolean isSync(){
+        return isSync;
+    }
+    
+    public void setSnapshotInterval(long interval){
+        snapshotInterval = interval;
+    }
+    public long getSnapshotInterval(){
+        return snapshotInterval;
+    }
+    
+    public void setRecoveryThreadSize(int size){
+        recoveryThreadSize = size;
+    }
+    public int getRecoveryThreadSize(){
+        return recoveryThreadSize;
+    }
+    
+    public void setExternalizerServiceName(ServiceName name){
+        externalizerServiceName = name;
+    }
+    public ServiceName getExternalizerServiceName(){
+        return externalizerServiceName;
+    }
+    
+    public void setLockOnLoad(boolean isLock){
+        isLockOnLoad = isLock;
+    }
+    public boolean isLockOnLoad(){
+        return isLockOnLoad;
+    }
+    
+    public void setExternalizer(Externalizer ext){
+        externalizer = ext;
+    }
+    
+    public int getKeySize(){
+        synchronized(lock){
+            return index == null ? 0 : index.size();
+        }
+    }
+    
+    public int getSegmentCount(){
+        synchronized(lock){
+            return segments == null ? 0 : segments.size();
+        }
+    }
+    
+    public long getCompactionCount(){
+        return compactionCount;
+    }
+    
+    public long getLastCompactionTime(){
+        return lastCompactionTime;
+    }
+    
+    public long getLastLoadTime(){
+        return lastLoadTime;
+    }
+    
+    public void startService() throws Exception{
+        if(rootDirectory == null){
+            throw new IllegalArgumentException("Directory is null.");
+        }
+        if(!rootDirectory.exists()){
+            if(!rootDirectory.mkdirs()){
+                throw new IOException("Directory can not make : " + rootDirectory);
+            }
+        }
+        if(!rootDirectory.isDirectory()){
+            throw new IllegalArgumentException("Not Directory : " + rootDirectory);
+        }
+        if(externalizerServiceName != null){
+            externalizer = (Externalizer)ServiceManagerFactory.getServiceObject(externalizerServiceName);
+        }
+        if(externalizer == null){
+            externalizer = new NimbusExternalizerService();
+            ((Service)externalizer).create();
+            ((Service)externalizer).start();
+        }
+        synchronized(lock){
+            index = new HashMap();
+            segments = new TreeMap();
+            snapshot = null;
+            recover();
+        }
+        if(snapshotInterval > 0){
+            snapshotDaemon = new Daemon(this);
+            snapshotDaemon.setName("Nimbus LogStructuredContextStoreSnapshotDaemon " + getServiceNameObject());
+            snapshotDaemon.start();
+        }
+    }
+    
+    public void stopService() throws Exception{
+        if(snapshotDaemon != null){
+            snapshotDaemon.stop();
+            snapshotDaemon = null;
+        }
+        synchronized(lock){
+            closeWriteChannel();
+            if(snapshot != null){
+                snapshot.close();
+                snapshot = null;
+            }
+            Iterator itr = segments.values().iterator();
+            while(itr.hasNext()){
+                ((LogFile)itr.next()).close();
+            }
+            segments.clear();
+            index.clear();
+            activeSegment = null;
+        }
+    }
+    
+    /**
+     * ディレクトリ上のファイルから、キーの索引を復元し、新しいセグメントファイルを開く。<p>
+     *
+     * @exception Exception 復元に失敗した場合
+     */
+    protected void recover() throws Exception{
+        long maxSeq = 0;
+        List snapshots = new ArrayList();
+        File[] files = rootDirectory.listFiles();
+        for(int i = 0; i < files.length; i++){
+            if(!files[i].isFile()){
+                continue;
+            }
+            final String name = files[i].getName();
+            if(name.endsWith(TEMP_FILE_NAME_SUFFIX)){
+                files[i].delete();
+                continue;
+            }
+            long seq = parseSequence(name, segmentFileNamePrefix, SEGMENT_FILE_NAME_SUFFIX);
+            if(seq > 0){
+                segments.put(new Long(seq), new LogFile(seq, files[i], false));
+            }else{
+                seq = parseSequence(name, snapshotFileNamePrefix, SNAPSHOT_FILE_NAME_SUFFIX);
+                if(seq <= 0){
+                    continue;
+                }
+                LogFile logFile = new LogFile(seq, files[i], true);
+                if(snapshot == null || snapshot.seq < seq){
+                    if(snapshot != null){
+                        snapshots.add(snapshot);
+                    }
+                    snapshot = logFile;
+                }else{
+                    snapshots.add(logFile);
+                }
+            }
+            if(seq > maxSeq){
+                maxSeq = seq;
+            }
+        }
+        for(int i = 0; i < snapshots.size(); i++){
+            ((LogFile)snapshots.get(i)).delete();
+        }
+        if(snapshot != null){
+            Map obsolete = segments.headMap(new Long(snapshot.seq));
+            Iterator itr = obsolete.values().iterator();
+            while(itr.hasNext()){
+                ((LogFile)itr.next()).delete();
+            }
+            obsolete.clear();
+        }
+        final List logFiles = getLogFiles(Long.MAX_VALUE);
+        final List[] recordsList = readLogFiles(logFiles, false, true);
+        for(int i = 0; i < recordsList.length; i++){
+            for(int j = 0, jmax = recordsList[i].size(); j < jmax; j++){
+                LogRecord record = (LogRecord)recordsList[i].get(j);
+                applyIndex(record.type, record.key, new Location(record.logFile, record.position));
+            }
+        }
+        openSegment(maxSeq + 1);
+    }
+    
+    public void clear() throws Exception{
+        synchronized(compactLock){
+            synchronized(lock){
+                final long seq = activeSegment.seq + 1;
+                closeWriteChannel();
+                if(snapshot != null){
+                    snapshot.delete();
+                    snapshot = null;
+                }
+                Iterator itr = segments.values().iterator();
+                while(itr.hasNext()){
+                    ((LogFile)itr.next()).delete();
+                }
+                segments.clear();
+                index.clear();
+                openSegment(seq);
+            }
+        }
+    }
+    
+    /**
+     * コンテキスト全体をスナップショットとして保存し、それまでのファイルを削除する。<p>
+     *
+     * @param context コンテキスト
+     * @exception Exception 失敗した場合
+     */
+    public void save(Context context) throws Exception{
+        final Map state = new LinkedHashMap();
+        final Iterator keys = new ArrayList(context.keySet()).iterator();
+        while(keys.hasNext()){
+            final Object key = keys.next();
+            state.put(key, context.get(key));
+        }
+        synchronized(compactLock){
+            long boundary = 0;
+            synchronized(lock){
+                rollSegment();
+                boundary = activeSegment.seq;
+            }
+            installSnapshot(boundary, state, true);
+        }
+    }
+    
+    public void save(Context context, Object key) throws Exception{
+        final Object value = context.get(key);
+        final byte type = value == null ? RECORD_REMOVE : RECORD_PUT;
+        write(new Object[]{key}, new byte[]{type}, new byte[][]{encode(type, key, value)});
+    }
+    
+    public void saveAll(Context context, Set keys) throws Exception{
+        if(keys.size() == 0){
+            return;
+        }
+        final Object[] keyArray = keys.toArray();
+        final byte[] types = new byte[keyArray.length];
+        final byte[][] records = new byte[keyArray.length][];
+        for(int i = 0; i < keyArray.length; i++){
+            final Object value = context.get(keyArray[i]);
+            types[i] = value == null ? RECORD_REMOVE : RECORD_PUT;
+            records[i] = encode(types[i], keyArray[i], value);
+        }
+        write(keyArray, types, records);
+    }
+    
+    /**
+     * 指定されたキーの値に対する差分を追記する。<p>
+     * 読み込み時に、値が{@link SharedContextValueDifferenceSupport}を実装している場合、差分が適用される。<br>
+     *
+     * @param key キー
+     * @param diff 差分
+     * @exception Exception 失敗した場合
+     */
+    public void saveDifference(Object key, SharedContextValueDifference diff) throws Exception{
+        write(new Object[]{key}, new byte[]{RECORD_DIFF}, new byte[][]{encode(RECORD_DIFF, key, diff)});
+    }
+    
+    /**
+     * スナップショットファイルとセグメントファイルを再生して、コンテキストに読み込む。<p>
+     * 書き込み中のセグメントファイルを切り替えてから、それより前のファイルを読み込むため、読み込み中も書き込みはブロックされない。<br>
+     *
+     * @param context コンテキスト
+     * @exception Exception 失敗した場合
+     */
+    public void load(Context context) throws Exception{
+        final long start = System.currentTimeMillis();
+        Map state = null;
+        synchronized(compactLock){
+            List logFiles = null;
+            synchronized(lock){
+                if(writePosition != 0){
+                    rollSegment();
+                }
+                logFiles = getLogFiles(activeSegment.seq);
+            }
+            state = replay(readLogFiles(logFiles, true, false));
+        }
+        final boolean isSharedContext = context instanceof SharedContext;
+        final Iterator entries = state.entrySet().iterator();
+        while(entries.hasNext()){
+            final Map.Entry entry = (Map.Entry)entries.next();
+            try{
+                if(isLockOnLoad && isSharedContext){
+                    ((SharedContext)context).lock(entry.getKey());
+                }
+                context.put(entry.getKey(), entry.getValue());
+            }finally{
+                if(isLockOnLoad && isSharedContext){
+                    ((SharedContext)context).unlock(entry.getKey());
+                }
+            }
+        }
+        lastLoadTime = System.currentTimeMillis() - start;
+    }
+    
+    public void loadKey(Context context) throws Exception{
+        final Map map = new HashMap();
+        synchronized(lock){
+            final Iterator keys = index.keySet().iterator();
+            while(keys.hasNext()){
+                map.put(keys.next(), null);
+            }
+        }
+        final boolean isSharedContext = context instanceof SharedContext;
+        try{
+            if(isLockOnLoad && isSharedContext){
+                ((SharedContext)context).locks(map.keySet());
+            }
+            context.putAll(map);
+        }finally{
+            if(isLockOnLoad && isSharedContext){
+                ((SharedContext)context).unlocks(map.keySet());
+            }
+        }
+    }
+    
+    public boolean load(Context context, Object key) throws Exception{
+        Object value = null;
+        synchronized(lock){
+            final List locations = (List)index.get(key);
+            if(locations == null){
+                return false;
+            }
+            for(int i = 0, imax = locations.size(); i < imax; i++){
+                final LogRecord record = readRecord((Location)locations.get(i));
+                if(record.type == RECORD_PUT){
+                    value = record.value;
+                }else if(record.type == RECORD_DIFF && value instanceof SharedContextValueDifferenceSupport){
+                    ((SharedContextValueDifferenceSupport)value).update((SharedContextValueDifference)record.value);
+                }
+            }
+        }
+        if(value != null){
+            final boolean isSharedContext = context instanceof SharedContext;
+            try{
+                if(isLockOnLoad && isSharedContext){
+                    ((SharedContext)context).lock(key);
+                }
+                context.put(key, value);
+            }finally{
+                if(isLockOnLoad && isSharedContext){
+                    ((SharedContext)context).unlock(key);
+                }
+            }
+        }
+        return value != null;
+    }
+    
+    public boolean isSupportSaveByKey(){
+        return true;
+    }
+    
+    public boolean isSupportLoadByKey(){
+        return true;
+    }
+    
+    public void compact() throws Exception{
+        synchronized(compactLock){
+            final long start = System.currentTimeMillis();
+            long boundary = 0;
+            List logFiles = null;
+            synchronized(lock){
+                if(writePosition == 0 && segments.size() == 1){
+                    return;
+                }
+                rollSegment();
+                boundary = activeSegment.seq;
+                logFiles = getLogFiles(boundary);
+            }
+            installSnapshot(boundary, replay(readLogFiles(logFiles, true, false)), false);
+            compactionCount++;
+            lastCompactionTime = System.currentTimeMillis() - start;
+        }
+    }
+    
+    /**
+     * 指定された状態をスナップショットファイルに書き込み、指定されたシーケンスより前のファイルを削除する。<p>
+     *
+     * @param boundary スナップショットのシーケンス
+     * @param state キーと値のマップ
+     * @param isReplace 索引に存在しないキーを、スナップショットから追加する場合はtrue
+     * @exception Exception 失敗した場合
+     */
+    protected void installSnapshot(long boundary, Map state, boolean isReplace) throws Exception{
+        final File file = new File(rootDirectory, createFileName(snapshotFileNamePrefix, boundary, SNAPSHOT_FILE_NAME_SUFFIX));
+        final File tmpFile = new File(rootDirectory, file.getName() + TEMP_FILE_NAME_SUFFIX);
+        final LogFile newSnapshot = new LogFile(boundary, file, true);
+        final Map positions = new HashMap();
+        final FileOutputStream fos = new FileOutputStream(tmpFile);
+        try{
+            final OutputStream os = new BufferedOutputStream(fos, 64 * 1024);
+            long position = 0;
+            final Iterator entries = state.entrySet().iterator();
+            while(entries.hasNext()){
+                final Map.Entry entry = (Map.Entry)entries.next();
+                if(entry.getValue() == null){
+                    continue;
+                }
+                final byte[] record = encode(RECORD_PUT, entry.getKey(), entry.getValue());
+                os.write(record);
+                positions.put(entry.getKey(), new Long(position));
+                position += record.length;
+            }
+            os.flush();
+            fos.getChannel().force(true);
+        }finally{
+            fos.close();
+        }
+        if(file.exists()){
+            file.delete();
+        }
+        if(!tmpFile.renameTo(file)){
+            tmpFile.delete();
+            throw new IOException("Snapshot file can not rename : " + tmpFile);
+        }
+        synchronized(lock){
+            final Iterator entries = index.entrySet().iterator();
+            while(entries.hasNext()){
+                final Map.Entry entry = (Map.Entry)entries.next();
+                final List locations = (List)entry.getValue();
+                boolean isDropped = false;
+                for(Iterator itr = locations.iterator(); itr.hasNext();){
+                    if(((Location)itr.next()).logFile.seq < boundary){
+                        itr.remove();
+                        isDropped = true;
+                    }
+                }
+                final Long position = isDropped || isReplace ? (Long)positions.remove(entry.getKey()) : null;
+                if(position != null){
+                    locations.add(0, new Location(newSnapshot, position.longValue()));
+                }
+                if(locations.size() == 0){
+                    entries.remove();
+                }
+            }
+            if(isReplace){
+                final Iterator itr = positions.entrySet().iterator();
+                while(itr.hasNext()){
+                    final Map.Entry entry = (Map.Entry)itr.next();
+                    final List locations = new ArrayList(2);
+                    locations.add(new Location(newSnapshot, ((Long)entry.getValue()).longValue()));
+                    index.put(entry.getKey(), locations);
+                }
+            }
+            if(snapshot != null){
+                snapshot.delete();
+            }
+            snapshot = newSnapshot;
+            final Map obsolete = segments.headMap(new Long(boundary));
+            final Iterator itr = obsolete.values().iterator();
+            while(itr.hasNext()){
+                ((LogFile)itr.next()).delete();
+            }
+            obsolete.clear();
+        }
+    }
+    
+    /**
+     * エンコードされたレコードを、現在のセグメントファイルに一度に追記する。<p>
+     * 書き込みに失敗した場合は、途中まで書き込まれたレコードを切り詰める。切り詰めにも失敗した場合は、以降の書き込みを受け付けない。<br>
+     *
+     * @param keys キーの配列
+     * @param types レコード種別の配列
+     * @param records エンコードされたレコードの配列
+     * @exception IOException 書き込みに失敗した場合
+     */
+    protected void write(Object[] keys, byte[] types, byte[][] records) throws IOException{
+        int total = 0;
+        for(int i = 0; i < records.length; i++){
+            total += records[i].length;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(total);
+        for(int i = 0; i < records.length; i++){
+            buffer.put(records[i]);
+        }
+        buffer.flip();
+        synchronized(lock){
+            if(activeSegment == null){
+                throw new IllegalStateException("Service is not started.");
+            }
+            if(writeChannel == null){
+                throw new IOException("Segment file is not writable after a write failure : " + activeSegment.file);
+            }
+            if(writePosition != 0 && writePosition + total > maxSegmentSize){
+                rollSegment();
+            }
+            try{
+                while(buffer.hasRemaining()){
+                    writeChannel.write(buffer);
+                }
+                if(isSync){
+                    writeChannel.force(false);
+                }
+            }catch(IOException e){
+                try{
+                    writeChannel.truncate(writePosition);
+                    if(writeChannel.size() != writePosition){
+                        throw new IOException("Segment file can not truncate : " + activeSegment.file);
+                    }
+                }catch(IOException e2){
+                    try{
+                        writeChannel.close();
+                    }catch(IOException e3){
+                    }
+                    writeChannel = null;
+                }
+                throw e;
+            }
+            long position = writePosition;
+            for(int i = 0; i < records.length; i++){
+                applyIndex(types[i], keys[i], new Location(activeSegment, position));
+                position += records[i].length;
+            }
+            writePosition = position;
+        }
+    }
+    
+    private void applyIndex(byte type, Object key, Location location){
+        switch(type){
+        case RECORD_PUT:
+            final List locations = new ArrayList(2);
+            locations.add(location);
+            index.put(key, locations);
+            break;
+        case RECORD_REMOVE:
+            index.remove(key);
+            break;
+        case RECORD_DIFF:
+            final List diffs = (List)index.get(key);
+            if(diffs != null){
+                diffs.add(location);
+            }
+            break;
+        default:
+        }
+    }
+    
+    private void rollSegment() throws IOException{
+        final long seq = activeSegment.seq + 1;
+        closeWriteChannel();
+        openSegment(seq);
+    }
+    
+    private void openSegment(long seq) throws IOException{
+        final File file = new File(rootDirectory, createFileName(segmentFileNamePrefix, seq, SEGMENT_FILE_NAME_SUFFIX));
+        activeSegment = new LogFile(seq, file, false);
+        segments.put(new Long(seq), activeSegment);
+        writeChannel = new FileOutputStream(file, true).getChannel();
+        writePosition = writeChannel.size();
+    }
+    
+    private void closeWriteChannel() throws IOException{
+        if(writeChannel != null){
+            try{
+                if(isSync){
+                    writeChannel.force(false);
+                }
+            }finally{
+                writeChannel.close();
+                writeChannel = null;
+            }
+        }
+    }
+    
+    private List getLogFiles(long boundary){
+        final List logFiles = new ArrayList();
+        if(snapshot != null){
+            logFiles.add(snapshot);
+        }
+        logFiles.addAll(segments.headMap(new Long(boundary)).values());
+        return logFiles;
+    }
+    
+    private static String createFileName(String prefix, long seq, String suffix){
+        final StringBuilder buf = new StringBuilder(prefix);
+        buf.append('-');
+        final String seqStr = Long.toString(seq);
+        for(int i = seqStr.length(); i < 19; i++){
+            buf.append('0');
+        }
+        return buf.append(seqStr).append(suffix).toString();
+    }
+    
+    private static long parseSequence(String name, String prefix, String suffix){
+        if(!name.startsWith(prefix + '-') || !name.endsWith(suffix)){
+            return -1;
+        }
+        try{
+            return Long.parseLong(name.substring(prefix.length() + 1, name.length() - suffix.length()));
+        }catch(NumberFormatException e){
+            return -1;
+        }
+    }
+    
+    /**
+     * 再生したレコードから、キーと値のマップを作成する。<p>
+     *
+     * @param recordsList ファイル毎のレコードのリストの配列
+     * @return キーと値のマップ
+     * @exception Exception 差分の適用に失敗した場合
+     */
+    protected Map replay(List[] recordsList) throws Exception{
+        final Map state = new LinkedHashMap();
+        for(int i = 0; i < recordsList.length; i++){
+            for(int j = 0, jmax = recordsList[i].size(); j < jmax; j++){
+                final LogRecord record = (LogRecord)recordsList[i].get(j);
+                switch(record.type){
+                case RECORD_PUT:
+                    state.put(record.key, record.value);
+                    break;
+                case RECORD_REMOVE:
+                    state.remove(record.key);
+                    break;
+                case RECORD_DIFF:
+                    final Object value = state.get(record.key);
+                    if(value instanceof SharedContextValueDifferenceSupport){
+                        ((SharedContextValueDifferenceSupport)value).update((SharedContextValueDifference)record.value);
+                    }
+                    break;
+                default:
+                }
+            }
+        }
+        return state;
+    }
+    
+    /**
+     * 指定されたファイルを読み込む。<p>
+     * {@link #setRecoveryThreadSize(int) 並列数}が2以上の場合は、ファイル毎に並列に読み込む。<br>
+     *
+     * @param logFiles 読み込むファイルのリスト
+     * @param isReadValue 値を復元する場合はtrue
+     * @param isTruncateLast 最後のファイルの末尾が壊れている場合に切り詰める場合はtrue
+     * @return ファイル毎のレコードのリストの配列
+     * @exception Exception 読み込みに失敗した場合
+     */
+    protected List[] readLogFiles(List logFiles, boolean isReadValue, boolean isTruncateLast) throws Exception{
+        final List[] result = new List[logFiles.size()];
+        if(recoveryThreadSize <= 1 || logFiles.size() <= 1){
+            for(int i = 0; i < result.length; i++){
+                result[i] = readLogFile((LogFile)logFiles.get(i), isReadValue, isTruncateLast && i == result.length - 1);
+            }
+            return result;
+        }
+        QueueHandlerContainerService qhc = new QueueHandlerContainerService();
+        DefaultQueueService requestQueue = new DefaultQueueService();
+        DefaultQueueService responseQueue = new DefaultQueueService();
+        requestQueue.create();
+        requestQueue.start();
+        
+        responseQueue.create();
+        responseQueue.start();
+        
+        qhc.create();
+        qhc.setQueueService(requestQueue);
+        qhc.setDaemonQueueHandler(true);
+        qhc.setQueueHandlerSize(Math.min(recoveryThreadSize, result.length));
+        qhc.setQueueHandler(new ReadQueueHandler());
+        qhc.setIgnoreNullElement(true);
+        qhc.setWaitTimeout(1000l);
+        qhc.setQueueHandlerNowaitOnStop(true);
+        qhc.start();
+        
+        try{
+            for(int i = 0; i < result.length; i++){
+                AsynchContext ac = new AsynchContext(
+                    new Object[]{
+                        new Integer(i),
+                        logFiles.get(i),
+                        isReadValue ? Boolean.TRUE : Boolean.FALSE,
+                        isTruncateLast && i == result.length - 1 ? Boolean.TRUE : Boolean.FALSE
+                    },
+                    responseQueue
+                );
+                qhc.push(ac);
+            }
+            for(int i = 0; i < result.length; i++){
+                AsynchContext ac = (AsynchContext)responseQueue.get();
+                if(ac == null){
+                    throw new Exception("Break parallel read.");
+                }
+                try{
+                    ac.checkError();
+                }catch(Throwable th){
+                    if(th instanceof Exception){
+                        throw (Exception)th;
+                    }else{
+                        throw (Error)th;
+                    }
+                }
+                result[((Integer)((Object[])ac.getInput())[0]).intValue()] = (List)ac.getOutput();
+            }
+        }finally{
+            qhc.stop();
+        }
+        return result;
+    }
+    
+    /**
+     * 指定されたファイルのレコードを全て読み込む。<p>
+     *
+     * @param logFile 読み込むファイル
+     * @param isReadValue 値を復元する場合はtrue
+     * @param isTruncate 末尾が壊れている場合に切り詰める場合はtrue。falseの場合は、例外を投げる
+     * @return レコードのリスト
+     * @exception Exception 読み込みに失敗した場合
+     */
+    protected List readLogFile(LogFile logFile, boolean isReadValue, boolean isTruncate) throws Exception{
+        final List records = new ArrayList();
+        final long fileLength = logFile.file.length();
+        long position = 0;
+        boolean isCorrupted = false;
+        final FileInputStream fis = new FileInputStream(logFile.file);
+        try{
+            final DataInputStream dis = new DataInputStream(new BufferedInputStream(fis, 64 * 1024));
+            final CRC32 crc = new CRC32();
+            while(position < fileLength){
+                if(position + RECORD_HEADER_SIZE > fileLength){
+                    isCorrupted = true;
+                    break;
+                }
+                final int length = dis.readInt();
+                final int checksum = dis.readInt();
+                if(length < RECORD_BODY_HEADER_SIZE || position + RECORD_HEADER_SIZE + length > fileLength){
+                    isCorrupted = true;
+                    break;
+                }
+                final byte[] body = new byte[length];
+                dis.readFully(body);
+                crc.reset();
+                crc.update(body, 0, length);
+                if((int)crc.getValue() != checksum){
+                    isCorrupted = true;
+                    break;
+                }
+                records.add(decode(body, logFile, position, isReadValue));
+                position += RECORD_HEADER_SIZE + length;
+            }
+        }finally{
+            fis.close();
+        }
+        if(isCorrupted){
+            if(!isTruncate){
+                throw new IOException("Log file is corrupted : file=" + logFile.file + ", position=" + position);
+            }
+            final RandomAccessFile raf = new RandomAccessFile(logFile.file, "rw");
+            try{
+                raf.setLength(position);
+            }finally{
+                raf.close();
+            }
+        }
+        return records;
+    }
+    
+    private LogRecord readRecord(Location location) throws Exception{
+        final FileChannel channel = location.logFile.getReadChannel();
+        final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(channel, header, location.position);
+        final int length = header.getInt(0);
+        final int checksum = header.getInt(4);
+        final ByteBuffer body = ByteBuffer.allocate(length);
+        readFully(channel, body, location.position + RECORD_HEADER_SIZE);
+        final CRC32 crc = new CRC32();
+        crc.update(body.array(), 0, length);
+        if((int)crc.getValue() != checksum){
+            throw new IOException("Log file is corrupted : file=" + location.logFile.file + ", position=" + location.position);
+        }
+        return decode(body.array(), location.logFile, location.position, true);
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException{
+        while(buffer.hasRemaining()){
+            if(channel.read(buffer, position + buffer.position()) < 0){
+                throw new EOFException();
+            }
+        }
+    }
+    
+    /**
+     * レコードをエンコードする。<p>
+     * レコードは、本体の長さ(int)、本体のCRC32(int)、本体で構成され、本体は、種別(byte)、キーの長さ(int)、キー、値で構成される。<br>
+     *
+     * @param type レコード種別
+     * @param key キー
+     * @param value 値
+     * @return エンコードされたレコード
+     * @exception IOException 直列化に失敗した場合
+     */
+    protected byte[] encode(byte type, Object key, Object value) throws IOException{
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final DataOutputStream dos = new DataOutputStream(baos);
+        dos.writeInt(0);
+        dos.writeInt(0);
+        dos.writeByte(type);
+        dos.writeInt(0);
+        externalizer.writeExternal(key, baos);
+        final int keyLength = baos.size() - RECORD_HEADER_SIZE - RECORD_BODY_HEADER_SIZE;
+        if(type != RECORD_REMOVE){
+            externalizer.writeExternal(value, baos);
+        }
+        final byte[] bytes = baos.toByteArray();
+        final int length = bytes.length - RECORD_HEADER_SIZE;
+        final CRC32 crc = new CRC32();
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.putInt(RECORD_HEADER_SIZE + 1, keyLength);
+        crc.update(bytes, RECORD_HEADER_SIZE, length);
+        buffer.putInt(0, length);
+        buffer.putInt(4, (int)crc.getValue());
+        return bytes;
+    }
+    
+    /**
+     * レコードの本体をデコードする。<p>
+     *
+     * @param body レコードの本体
+     * @param logFile レコードを読み込んだファイル
+     * @param position ファイル上のレコードの位置
+     * @param isReadValue 値を復元する場合はtrue
+     * @return レコード
+     * @exception Exception 非直列化に失敗した場合
+     */
+    protected LogRecord decode(byte[] body, LogFile logFile, long position, boolean isReadValue) throws Exception{
+        final ByteBuffer buffer = ByteBuffer.wrap(body);
+        final byte type = buffer.get(0);
+        final int keyLength = buffer.getInt(1);
+        final Object key = externalizer.readExternal(new ByteArrayInputStream(body, RECORD_BODY_HEADER_SIZE, keyLength));
+        Object value = null;
+        final int valueOffset = RECORD_BODY_HEADER_SIZE + keyLength;
+        if(isReadValue && type != RECORD_REMOVE && body.length > valueOffset){
+            value = externalizer.readExternal(new ByteArrayInputStream(body, valueOffset, body.length - valueOffset));
+        }
+        return new LogRecord(type, key, value, logFile, position);
+    }
+    
+    public boolean onPutBefore(SharedContext context, boolean isLocal, Object key, Object value){
+        return true;
+    }
+    
+    /**
+     * 共有コンテキストに追加された値を追記する。<p>
+     *
+     * @param context 共有コンテキスト
+     * @param isLocal ローカルからの追加の場合、true
+     * @param key 追加されたキー
+     * @param value 追加された値
+     * @param old 以前の値
+     */
+    public void onPutAfter(SharedContext context, boolean isLocal, Object key, Object value, Object old){
+        writeByListener(value == null ? RECORD_REMOVE : RECORD_PUT, key, value);
+    }
+    
+    /**
+     * 同期によって共有コンテキストに追加される値を追記する。<p>
+     *
+     * @param context 共有コンテキスト
+     * @param key 追加されるキー
+     * @param value 追加される値
+     * @return true
+     */
+    public boolean onPutSynchronize(SharedContext context, Object key, Object value){
+        writeByListener(value == null ? RECORD_REMOVE : RECORD_PUT, key, value);
+        return true;
+    }
+    
+    public boolean onUpdateBefore(SharedContext context, boolean isLocal, Object key, SharedContextValueDifference diff){
+        return true;
+    }
+    
+    /**
+     * 共有コンテキストに更新された差分を{@link #saveDifference(Object, SharedContextValueDifference)}で追記する。<p>
+     *
+     * @param context 共有コンテキスト
+     * @param isLocal ローカルからの更新の場合、true
+     * @param key 更新されたキー
+     * @param diff 更新された差分
+     */
+    public void onUpdateAfter(SharedContext context, boolean isLocal, Object key, SharedContextValueDifference diff){
+        writeByListener(RECORD_DIFF, key, diff);
+    }
+    
+    public boolean onRemoveBefore(SharedContext context, boolean isLocal, Object key){
+        return true;
+    }
+    
+    /**
+     * 共有コンテキストから削除されたキーを追記する。<p>
+     *
+     * @param context 共有コンテキスト
+     * @param isLocal ローカルからの削除の場合、true
+     * @param key 削除されたキー
+     * @param removed 削除された値
+     */
+    public void onRemoveAfter(SharedContext context, boolean isLocal, Object key, Object removed){
+        writeByListener(RECORD_REMOVE, key, null);
+    }
+    
+    /**
+     * 同期によって共有コンテキストがクリアされる前に、ストアをクリアする。<p>
+     *
+     * @param context 共有コンテキスト
+     */
+    public void onClearSynchronize(SharedContext context){
+        try{
+            clear();
+        }catch(Exception e){
+            getLogger().write("LSCS_00001", new Object[]{getServiceNameObject(), null}, e);
+        }
+    }
+    
+    public void onChangeMain(SharedContext context){
+    }
+    
+    public void onChangeSub(SharedContext context){
+    }
+    
+    private void writeByListener(byte type, Object key, Object value){
+        if(getState() != STARTED){
+            return;
+        }
+        try{
+            write(new Object[]{key}, new byte[]{type}, new byte[][]{encode(type, key, value)});
+        }catch(Exception e){
+            getLogger().write("LSCS_00001", new Object[]{getServiceNameObject(), key}, e);
+        }
+    }
+    
+    public boolean onStart(){
+        return true;
+    }
+    
+    public boolean onStop(){
+        return true;
+    }
+    
+    public boolean onSuspend(){
+        return true;
+    }
+    
+    public boolean onResume(){
+        return true;
+    }
+    
+    /**
+     * スナップショットの作成間隔だけスリープする。<p>
+     * 
+     * @param ctrl DaemonControlオブジェクト
+     * @return null
+     */
+    public Object provide(DaemonControl ctrl){
+        try{
+            ctrl.sleep(snapshotInterval, true);
+        }catch(InterruptedException e){
+        }
+        return null;
+    }
+    
+    /**
+     * スナップショットを作成する。<p>
+     *
+     * @param dequeued null
+     * @param ctrl DaemonControlオブジェクト
+     */
+    public void consume(Object dequeued, DaemonControl ctrl){
+        if(!ctrl.isRunning()){
+            return;
+        }
+        try{
+            compact();
+        }catch(Exception e){
+        }
+    }
+    
+    public void garbage(){
+    }
+    
+    /**
+     * セグメントファイル、またはスナップショットファイル。<p>
+     *
+     * @author M.Takata
+     */
+    protected static class LogFile{
+        
+        public final long seq;
+        public final File file;
+        public final boolean isSnapshot;
+        private FileChannel readChannel;
+        
+        public LogFile(long seq, File file, boolean isSnapshot){
+            this.seq = seq;
+            this.file = file;
+            this.isSnapshot = isSnapshot;
+        }
+        
+        public synchronized FileChannel getReadChannel() throws IOException{
+            if(readChannel == null){
+                readChannel = new RandomAccessFile(file, "r").getChannel();
+            }
+            return readChannel;
+        }
+        
+        public synchronized void close(){
+            if(readChannel != null){
+                try{
+                    readChannel.close();
+                }catch(IOException e){}
+                readChannel = null;
+            }
+        }
+        
+        public void delete(){
+            close();
+            file.delete();
+        }
+    }
+    
+    /**
+     * ファイル上のレコードの位置。<p>
+     *
+     * @author M.Takata
+     */
+    protected static class Location{
+        
+        public final LogFile logFile;
+        public final long position;
+        
+        public Location(LogFile logFile, long position){
+            this.logFile = logFile;
+            this.position = position;
+        }
+    }
+    
+    /**
+     * 読み込んだレコード。<p>
+     *
+     * @author M.Takata
+     */
+    protected static class LogRecord{
+        
+        public final byte type;
+        public final Object key;
+        public final Object value;
+        public final LogFile logFile;
+        public final long position;
+        
+        public LogRecord(byte type, Object key, Object value, LogFile logFile, long position){
+            this.type = type;
+            this.key = key;
+            this.value = value;
+            this.logFile = logFile;
+            this.position = position;
+        }
+    }
+    
+    private class ReadQueueHandler implements QueueHandler{
+        public void handleDequeuedObject(Object obj) throws Throwable{
+            AsynchContext ac = (AsynchContext)obj;
+            if(ac == null){
+                return;
+            }
+            Object[] params = (Object[])ac.getInput();
+            ac.setOutput(
+                readLogFile(
+                    (LogFile)params[1],
+                    ((Boolean)params[2]).booleanValue(),
+                    ((Boolean)params[3]).booleanValue()
+                )
+            );
+            ac.getResponseQueue().push(ac);
+        }
+        public boolean handleError(Object obj, Throwable th) throws Throwable{
+            return false;
+        }
+        public void handleRetryOver(Object obj, Throwable th) throws Throwable{
+            AsynchContext ac = (AsynchContext)obj;
+            ac.setThrowable(th);
+            ac.getResponseQueue().push(ac);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import java.io.*;
+
+import jp.ossc.nimbus.core.ServiceBaseMBean;
+import jp.ossc.nimbus.core.ServiceName;
+
+/**
+ * {@link LogStructuredContextStoreService}のMBeanインタフェース。<p>
+ * 
+ * @author M.Takata
+ * @see LogStructuredContextStoreService
+ */
+public interface LogStructuredContextStoreServiceMBean extends ServiceBaseMBean{
+    
+    /**
+     * セグメントファイルの最大サイズ[byte]のデフォルト値。<p>
+     */
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 64L * 1024L * 1024L;
+    
+    /**
+     * 永続化先のディレクトリを設定する。<p>
+     *
+     * @param dir 永続化先のディレクトリ
+     */
+    public void setRootDirectory(File dir);
+    
+    /**
+     * 永続化先のディレクトリを取得する。<p>
+     *
+     * @return 永続化先のディレクトリ
+     */
+    public File getRootDirectory();
+    
+    /**
+     * セグメントファイル名のプレフィクスを設定する。<p>
+     * デフォルトは、"segment"。<br>
+     *
+     * @param prefix セグメントファイル名のプレフィクス
+     */
+    public void setSegmentFileNamePrefix(String prefix);
+    
+    /**
+     * セグメントファイル名のプレフィクスを取得する。<p>
+     *
+     * @return セグメントファイル名のプレフィクス
+     */
+    public String getSegmentFileNamePrefix();
+    
+    /**
+     * スナップショットファイル名のプレフィクスを設定する。<p>
+     * デフォルトは、"snapshot"。<br>
+     *
+     * @param prefix スナップショットファイル名のプレフィクス
+     */
+    public void setSnapshotFileNamePrefix(String prefix);
+    
+    /**
+     * スナップショットファイル名のプレフィクスを取得する。<p>
+     *
+     * @return スナップショットファイル名のプレフィクス
+     */
+    public String getSnapshotFileNamePrefix();
+    
+    /**
+     * セグメントファイルの最大サイズ[byte]を設定する。<p>
+     * セグメントファイルがこのサイズを超えると、次のセグメントファイルに切り替える。<br>
+     * デフォルトは、{@link #DEFAULT_MAX_SEGMENT_SIZE}。<br>
+     *
+     * @param size セグメントファイルの最大サイズ[byte]
+     */
+    public void setMaxSegmentSize(long size);
+    
+    /**
+     * セグメントファイルの最大サイズ[byte]を取得する。<p>
+     *
+     * @return セグメントファイルの最大サイズ[byte]
+     */
+    public long getMaxSegmentSize();
+    
+    /**
+     * 追記の度にディスクへの書き込みを強制するかどうかを設定する。<p>
+     * デフォルトは、falseで強制しない。<br>
+     *
+     * @param isSync 強制する場合は、true
+     */
+    public void setSync(boolean isSync);
+    
+    /**
+     * 追記の度にディスクへの書き込みを強制するかどうかを判定する。<p>
+     *
+     * @return trueの場合、強制する
+     */
+    public boolean isSync();
+    
+    /**
+     * スナップショットを作成する間隔[ms]を設定する。<p>
+     * スナップショットの作成時には、それまでのセグメントファイルを1つのスナップショットファイルに圧縮して、古いファイルを削除する。<br>
+     * デフォルトは、0で定期的には作成しない。<br>
+     *
+     * @param interval スナップショットを作成する間隔[ms]
+     */
+    public void setSnapshotInterval(long interval);
+    
+    /**
+     * スナップショットを作成する間隔[ms]を取得する。<p>
+     *
+     * @return スナップショットを作成する間隔[ms]
+     */
+    public long getSnapshotInterval();
+    
+    /**
+     * 読み込み時にファイルを並列に読み込むスレッド数を設定する。<p>
+     * デフォルトは、1で並列に読み込まない。<br>
+     *
+     * @param size スレッド数
+     */
+    public void setRecoveryThreadSize(int size);
+    
+    /**
+     * 読み込み時にファイルを並列に読み込むスレッド数を取得する。<p>
+     *
+     * @return スレッド数
+     */
+    public int getRecoveryThreadSize();
+    
+    /**
+     * キーと値をファイルに直列化/非直列化する際に使用する{@link jp.ossc.nimbus.service.io.Externalizer Externalizer}サービスのサービス名を設定する。<p>
+     * 指定しない場合は、{@link jp.ossc.nimbus.service.io.NimbusExternalizerService NimbusExternalizerService}が適用される。<br>
+     *
+     * @param name Externalizerサービスのサービス名
+     */
+    public void setExternalizerServiceName(ServiceName name);
+    
+    /**
+     * キーと値をファイルに直列化/非直列化する際に使用する{@link jp.ossc.nimbus.service.io.Externalizer Externalizer}サービスのサービス名を取得する。<p>
+     *
+     * @return Externalizerサービスのサービス名
+     */
+    public ServiceName getExternalizerServiceName();
+    
+    /**
+     * {@link SharedContext}に読み込む際に、{@link SharedContext}をロックするかどうかを設定する。<p>
+     * デフォルトは、falseでロックしない。<br>
+     *
+     * @param isLock ロックする場合は、true
+     */
+    public void setLockOnLoad(boolean isLock);
+    
+    /**
+     * {@link SharedContext}に読み込む際に、{@link SharedContext}をロックするかどうかを判定する。<p>
+     *
+     * @return trueの場合、ロックする
+     */
+    public boolean isLockOnLoad();
+    
+    /**
+     * スナップショットを作成し、それまでのセグメントファイルを削除する。<p>
+     *
+     * @exception Exception スナップショットの作成に失敗した場合
+     */
+    public void compact() throws Exception;
+    
+    /**
+     * 保存されているキーの数を取得する。<p>
+     *
+     * @return キーの数
+     */
+    public int getKeySize();
+    
+    /**
+     * 現在のセグメントファイルの数を取得する。<p>
+     *
+     * @return セグメントファイルの数
+     */
+    public int getSegmentCount();
+    
+    /**
+     * スナップショットを作成した回数を取得する。<p>
+     *
+     * @return スナップショットを作成した回数
+     */
+    public long getCompactionCount();
+    
+    /**
+     * 最後のスナップショットの作成にかかった時間[ms]を取得する。<p>
+     *
+     * @return スナップショットの作成時間[ms]
+     */
+    public long getLastCompactionTime();
+    
+    /**
+     * 最後のコンテキスト全体の読み込みにかかった時間[ms]を取得する。<p>
+     *
+     * @return 読み込み時間[ms]
+     */
+    public long getLastLoadTime();
+}
@@ -0,0 +1,298 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.lang.reflect.InvocationTargetException;
+import java.io.Externalizable;
+import java.io.ObjectOutput;
+import java.io.ObjectInput;
+import java.io.IOException;
+
+import jp.ossc.nimbus.beans.Property;
+import jp.ossc.nimbus.beans.PropertyFactory;
+import jp.ossc.nimbus.beans.NoSuchPropertyException;
+import jp.ossc.nimbus.beans.IndexPropertyAccessException;
+
+/**
+ * 共有コンテキストの集計結果。<p>
+ * {@link SharedContextView#aggregate(long, String, String[])}で、グループ毎に、件数、合計、最小値、最大値を保持する。<br>
+ * 分散されたノード毎の集計結果は、{@link #merge(SharedContextAggregate)}で統合できる。<br>
+ *
+ * @author M.Takata
+ */
+public class SharedContextAggregate implements Externalizable{
+    
+    private static final long serialVersionUID = -3866153206436713395L;
+    
+    protected long count;
+    protected long valueCount;
+    protected BigDecimal sum;
+    protected Comparable min;
+    protected Comparable max;
+    
+    /**
+     * 件数を取得する。<p>
+     *
+     * @return 集計対象の値の件数
+     */
+    public long getCount(){
+        return count;
+    }
+    
+    /**
+     * 集計対象プロパティの値がnullでない件数を取得する。<p>
+     *
+     * @return 集計対象プロパティの値がnullでない件数
+     */
+    public long getValueCount(){
+        return valueCount;
+    }
+    
+    /**
+     * 集計対象プロパティの数値の合計を取得する。<p>
+     *
+     * @return 合計。数値が1件もない場合は、null
+     */
+    public BigDecimal getSum(){
+        return sum;
+    }
+    
+    /**
+     * 集計対象プロパティの数値の平均を取得する。<p>
+     *
+     * @return 平均。数値が1件もない場合は、Double.NaN
+     */
+    public double getAverage(){
+        return sum == null || valueCount == 0 ? Double.NaN : sum.doubleValue() / valueCount;
+    }
+    
+    /**
+     * 集計対象プロパティの最小値を取得する。<p>
+     *
+     * @return 最小値。比較可能な値が1件もない場合は、null
+     */
+    public Object getMin(){
+        return min;
+    }
+    
+    /**
+     * 集計対象プロパティの最大値を取得する。<p>
+     *
+     * @return 最大値。比較可能な値が1件もない場合は、null
+     */
+    public Object getMax(){
+        return max;
+    }
+    
+    /**
+     * 集計対象プロパティの値を1件追加する。<p>
+     *
+     * @param value 集計対象プロパティの値
+     */
+    public void add(Object value){
+        count++;
+        if(value == null){
+            return;
+        }
+        valueCount++;
+        if(value instanceof Number){
+            final BigDecimal decimal = toBigDecimal((Number)value);
+            if(decimal != null){
+                sum = sum == null ? decimal : sum.add(decimal);
+            }
+        }
+        if(value instanceof Comparable){
+            if(min == null || min.compareTo(value) > 0){
+                min = (Comparable)value;
+            }
+            if(max == null || max.compareTo(value) < 0){
+                max = (Comparable)value;
+            }
+        }
+    }
+    
+    /**
+     * 別の集計結果を統合する。<p>
+     *
+     * @param aggregate 統合する集計結果
+     */
+    public void merge(SharedContextAggregate aggregate){
+        if(aggregate == null){
+            return;
+        }
+        count += aggregate.count;
+        valueCount += aggregate.valueCount;
+        if(aggregate.sum != null){
+            sum = sum == null ? aggregate.sum : sum.add(aggregate.sum);
+        }
+        if(aggregate.min != null && (min == null || min.compareTo(aggregate.min) > 0)){
+            min = aggregate.min;
+        }
+        if(aggregate.max != null && (max == null || max.compareTo(aggregate.max) < 0)){
+            max = aggregate.max;
+        }
+    }
+    
+    /**
+     * 指定された値を集計する。<p>
+     * グループ化するプロパティ名を1つ指定した場合は、そのプロパティの値がキーとなり、複数指定した場合は、プロパティの値のリストがキーとなる。指定しない場合は、nullがキーとなる。<br>
+     *
+     * @param values 集計する値の集合
+     * @param propName 集計対象のプロパティ名。nullの場合は、件数のみを集計する
+     * @param groupByPropNames グループ化するプロパティ名の配列
+     * @return グループのキーと集計結果のマップ
+     * @exception IndexPropertyAccessException プロパティの取得に失敗した場合
+     */
+    public static Map aggregate(Iterator values, String propName, String[] groupByPropNames) throws IndexPropertyAccessException{
+        final Property property = propName == null ? null : PropertyFactory.createProperty(propName);
+        Property[] groupByProperties = null;
+        if(groupByPropNames != null && groupByPropNames.length != 0){
+            groupByProperties = new Property[groupByPropNames.length];
+            for(int i = 0; i < groupByPropNames.length; i++){
+                groupByProperties[i] = PropertyFactory.createProperty(groupByPropNames[i]);
+            }
+        }
+        final Map result = new HashMap();
+        while(values.hasNext()){
+            final Object value = values.next();
+            if(value == null){
+                continue;
+            }
+            Object groupKey = null;
+            if(groupByProperties != null){
+                if(groupByProperties.length == 1){
+                    groupKey = getProperty(value, groupByProperties[0]);
+                }else{
+                    final List keys = new ArrayList(groupByProperties.length);
+                    for(int i = 0; i < groupByProperties.length; i++){
+                        keys.add(getProperty(value, groupByProperties[i]));
+                    }
+                    groupKey = keys;
+                }
+            }
+            SharedContextAggregate aggregate = (SharedContextAggregate)result.get(groupKey);
+            if(aggregate == null){
+                aggregate = new SharedContextAggregate();
+                result.put(groupKey, aggregate);
+            }
+            aggregate.add(property == null ? null : getProperty(value, property));
+        }
+        return result;
+    }
+    
+    /**
+     * グループのキーと集計結果のマップを統合する。<p>
+     *
+     * @param to 統合先のマップ
+     * @param from 統合元のマップ
+     * @return 統合先のマップ
+     */
+    public static Map merge(Map to, Map from){
+        if(from == null){
+            return to;
+        }
+        final Iterator entries = from.entrySet().iterator();
+        while(entries.hasNext()){
+            final Map.Entry entry = (Map.Entry)entries.next();
+            SharedContextAggregate aggregate = (SharedContextAggregate)to.get(entry.getKey());
+            if(aggregate == null){
+                aggregate = new SharedContextAggregate();
+                to.put(entry.getKey(), aggregate);
+            }
+            aggregate.merge((SharedContextAggregate)entry.getValue());
+        }
+        return to;
+    }
+    
+    private static Object getProperty(Object value, Property property) throws IndexPropertyAccessException{
+        try{
+            return property.getProperty(value);
+        }catch(NoSuchPropertyException e){
+            throw new IndexPropertyAccessException(value.getClass(), property.getPropertyName(), e);
+        }catch(InvocationTargetException e){
+            throw new IndexPropertyAccessException(value.getClass(), property.getPropertyName(), e.getTargetException());
+        }
+    }
+    
+    /**
+     * 合計に加算できる数値に変換する。<p>
+     *
+     * @param number 数値
+     * @return 変換した数値。非数または無限大の場合は、null
+     */
+    private static BigDecimal toBigDecimal(Number number){
+        if(number instanceof BigDecimal){
+            return (BigDecimal)number;
+        }else if(number instanceof BigInteger){
+            return new BigDecimal((BigInteger)number);
+        }else if(number instanceof Double || number instanceof Float){
+            final double d = number.doubleValue();
+            return Double.isNaN(d) || Double.isInfinite(d) ? null : new BigDecimal(number.toString());
+        }else{
+            return BigDecimal.valueOf(number.longValue());
+        }
+    }
+    
+    public void writeExternal(ObjectOutput out) throws IOException{
+        out.writeLong(count);
+        out.writeLong(valueCount);
+        out.writeObject(sum);
+        out.writeObject(min);
+        out.writeObject(max);
+    }
+    
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        count = in.readLong();
+        valueCount = in.readLong();
+        sum = (BigDecimal)in.readObject();
+        min = (Comparable)in.readObject();
+        max = (Comparable)in.readObject();
+    }
+    
+    public String toString(){
+        final StringBuilder buf = new StringBuilder(super.toString());
+        buf.append('{');
+        buf.append("count=").append(count);
+        buf.append(", sum=").append(sum);
+        buf.append(", min=").append(min);
+        buf.append(", max=").append(max);
+        buf.append('}');
+        return buf.toString();
+    }
+}
@@ -43,6 +43,8 @@ import java.io.ObjectInput;
 import java.io.IOException;
 
 import jp.ossc.nimbus.beans.BeanTableIndexKeyFactory;
+import jp.ossc.nimbus.beans.ElementBitmap;
+import jp.ossc.nimbus.beans.ElementIdMap;
 import jp.ossc.nimbus.beans.IndexPropertyAccessException;
 import jp.ossc.nimbus.beans.IndexNotFoundException;
 
@@ -57,6 +59,7 @@ public class SharedContextIndexManager implements Externalizable, Cloneable{
     protected ConcurrentHashMap singleIndexMap = new ConcurrentHashMap();
     protected ConcurrentHashMap complexIndexMap = new ConcurrentHashMap();
     protected ConcurrentHashMap keySet = new ConcurrentHashMap();
+    protected ElementIdMap keyIdMap = new ElementIdMap();
     
     public SharedContextIndexManager(){
     }
@@ -138,6 +141,7 @@ public class SharedContextIndexManager implements Externalizable, Cloneable{
         singleIndexMap.clear();
         complexIndexMap.clear();
         keySet.clear();
+        keyIdMap.clear();
     }
     
     public String[] getIndexNames(){
@@ -188,9 +192,11 @@ public class SharedContextIndexManager implements Externalizable, Cloneable{
     }
     
     public boolean add(Object key, Object value) throws IndexPropertyAccessException{
+        // キーの登録は、keySetへの登録に成功したスレッドだけが行う
         if(keySet.putIfAbsent(key, key) != null){
             return false;
         }
+        keyIdMap.add(key);
         Iterator itr = singleIndexMap.values().iterator();
         while(itr.hasNext()){
             SharedContextIndex index = (SharedContextIndex)itr.next();
@@ -215,7 +221,9 @@ public class SharedContextIndexManager implements Externalizable, Cloneable{
             SharedContextIndex index = (SharedContextIndex)itr.next();
             index.remove(key, value);
         }
-        keySet.remove(key);
+        if(keySet.remove(key) != null){
+            keyIdMap.remove(key);
+        }
     }
     
     public void replace(Object key, Object oldValue, Object newValue) throws IndexPropertyAccessException{
@@ -237,6 +245,7 @@ public class SharedContextIndexManager implements Externalizable, Cloneable{
         while(entries.hasNext()){
             Map.Entry entry = (Map.Entry)entries.next();
             if(keySet.putIfAbsent(entry.getKey(), entry.getKey()) == null){
+                keyIdMap.add(entry.getKey());
                 Iterator itr = singleIndexMap.values().iterator();
                 while(itr.hasNext()){
                     SharedContextIndex index = (SharedContextIndex)itr.next();
@@ -269,6 +278,7 @@ public class SharedContextIndexManager implements Externalizable, Cloneable{
                     index.remove(key, c.get(key));
                 }
                 keys.remove();
+                keyIdMap.remove(key);
             }
         }
     }
@@ -285,6 +295,7 @@ public class SharedContextIndexManager implements Externalizable, Cloneable{
             index.clear();
         }
         keySet.clear();
+        keyIdMap.clear();
     }
     
     public Set keySet(){
@@ -298,6 +309,35 @@ public class SharedContextIndexManager implements Externalizable, Cloneable{
         return result;
     }
     
+    /**
+     * 全てのキーを表すビットマップを取得する。<p>
+     *
+     * @return ビットマップ
+     */
+    public ElementBitmap keyBitmap(){
+        return keyIdMap.bitmap();
+    }
+    
+    /**
+     * 指定されたキー集合をビットマップに変換する。<p>
+     *
+     * @param keys キー集合
+     * @return ビットマップ
+     */
+    public ElementBitmap toKeyBitmap(Set keys){
+        return keyIdMap.toBitmap(keys);
+    }
+    
+    /**
+     * 指定されたビットマップが表すキー集合を取得する。<p>
+     *
+     * @param bitmap {@link #keyBitmap()}または{@link #toKeyBitmap(Set)}で取得したビットマップ
+     * @return キー集合
+     */
+    public Set toKeySet(ElementBitmap bitmap){
+        return keyIdMap.toSet(bitmap, null);
+    }
+    
     public Set searchNull(String indexName, String propName) throws IndexNotFoundException{
         return searchNull(null, indexName, propName);
     }
@@ -835,6 +875,8 @@ public class SharedContextIndexManager implements Externalizable, Cloneable{
         }else{
             keySet = new ConcurrentHashMap();
         }
+        keyIdMap = new ElementIdMap();
+        keyIdMap.addAll(keySet.keySet());
     }
     
     public SharedContextIndexManager cloneEmpty(){
@@ -853,6 +895,7 @@ public class SharedContextIndexManager implements Externalizable, Cloneable{
             clone.setIndexInternal((String)entry.getKey(), ((SharedContextIndex)entry.getValue()).cloneEmpty(), true);
         }
         clone.keySet = new ConcurrentHashMap();
+        clone.keyIdMap = new ElementIdMap();
         return clone;
     }
     
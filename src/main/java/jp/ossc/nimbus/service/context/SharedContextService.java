@@ -36,6 +36,8 @@ import java.io.PrintWriter;
 import java.util.*;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.lang.reflect.InvocationTargetException;
 
 import jp.ossc.nimbus.beans.*;
@@ -161,6 +163,10 @@ public class SharedContextService extends DefaultContextService
     protected SharedContextTransactionManager sharedContextTransactionManager;
     
     protected long synchronizeTimeout = 5000l;
+    protected int synchronizeChunkSize;
+    protected int synchronizeChunkRetryCount = 3;
+    protected long synchronizeChunkRetryInterval = 1000l;
+    protected long synchronizeSessionTimeout = 60000l;
     protected long defaultTimeout = 1000l;
     protected long forcedLockTimeout = 60000L;
     protected long forcedWholeLockTimeout = 300000L;
@@ -179,6 +185,8 @@ public class SharedContextService extends DefaultContextService
     protected ConcurrentMap keyLockMap;
     protected ConcurrentMap idLocksMap;
     protected ConcurrentMap clientCacheLockMap;
+    protected ConcurrentMap synchronizeSessionMap;
+    protected volatile boolean isSynchronizingByChunk;
     protected Message targetMessage;
     protected Message allTargetMessage;
     protected List updateListeners;
@@ -193,6 +201,22 @@ public class SharedContextService extends DefaultContextService
     protected long lockProcessTime;
     protected int lockCount;
     protected long maxLockTime;
+    protected long asynchBatchInterval = -1L;
+    protected int asynchBatchSize = DEFAULT_ASYNCH_BATCH_SIZE;
+    protected transient Map asynchBatchMap;
+    protected transient Object asynchBatchSendLock;
+    protected transient Daemon asynchBatchSender;
+    protected final AtomicInteger asynchBatchEventCount = new AtomicInteger();
+    protected final LongAdder asynchBatchCount = new LongAdder();
+    protected final LongAdder asynchBatchedEventCount = new LongAdder();
+    protected final LongAdder asynchBatchCoalescedCount = new LongAdder();
+    protected int nearCacheSize = -1;
+    protected long nearCacheExpireTime = -1L;
+    protected transient Map nearCacheMap;
+    protected long nearCacheHitCount;
+    protected long nearCacheMissCount;
+    protected long nearCacheEvictCount;
+    protected long nearCacheInvalidateCount;
     
     public void setRequestConnectionFactoryServiceName(ServiceName name){
         requestConnectionFactoryServiceName = name;
@@ -396,6 +420,20 @@ public class SharedContextService extends DefaultContextService
         return isThinClient;
     }
     
+    public void setNearCacheSize(int size){
+        nearCacheSize = size;
+    }
+    public int getNearCacheSize(){
+        return nearCacheSize;
+    }
+    
+    public void setNearCacheExpireTime(long time){
+        nearCacheExpireTime = time;
+    }
+    public long getNearCacheExpireTime(){
+        return nearCacheExpireTime;
+    }
+    
     public void setEnabledIndexOnClient(boolean isEnabled){
         isEnabledIndexOnClient = isEnabled;
     }
@@ -445,6 +483,34 @@ public class SharedContextService extends DefaultContextService
         return synchronizeTimeout;
     }
     
+    public void setSynchronizeChunkSize(int size){
+        synchronizeChunkSize = size;
+    }
+    public int getSynchronizeChunkSize(){
+        return synchronizeChunkSize;
+    }
+    
+    public void setSynchronizeChunkRetryCount(int count){
+        synchronizeChunkRetryCount = count;
+    }
+    public int getSynchronizeChunkRetryCount(){
+        return synchronizeChunkRetryCount;
+    }
+    
+    public void setSynchronizeChunkRetryInterval(long interval){
+        synchronizeChunkRetryInterval = interval;
+    }
+    public long getSynchronizeChunkRetryInterval(){
+        return synchronizeChunkRetryInterval;
+    }
+    
+    public void setSynchronizeSessionTimeout(long timeout){
+        synchronizeSessionTimeout = timeout;
+    }
+    public long getSynchronizeSessionTimeout(){
+        return synchronizeSessionTimeout;
+    }
+    
     public void setDefaultTimeout(long timeout){
         defaultTimeout = timeout;
     }
@@ -473,6 +539,36 @@ public class SharedContextService extends DefaultContextService
         return forcedLockTimeoutCheckInterval;
     }
     
+    public void setAsynchBatchInterval(long interval){
+        asynchBatchInterval = interval;
+    }
+    public long getAsynchBatchInterval(){
+        return asynchBatchInterval;
+    }
+    
+    public void setAsynchBatchSize(int size){
+        asynchBatchSize = size;
+    }
+    public int getAsynchBatchSize(){
+        return asynchBatchSize;
+    }
+    
+    public int getAsynchBatchPendingCount(){
+        return asynchBatchMap == null ? 0 : asynchBatchEventCount.get();
+    }
+    
+    public long getAsynchBatchCount(){
+        return asynchBatchCount.sum();
+    }
+    
+    public long getAsynchBatchedEventCount(){
+        return asynchBatchedEventCount.sum();
+    }
+    
+    public long getAsynchBatchCoalescedCount(){
+        return asynchBatchCoalescedCount.sum();
+    }
+    
     public void setClientCacheMap(CacheMap map){
         clientCacheMap = map;
     }
@@ -586,6 +682,45 @@ public class SharedContextService extends DefaultContextService
         caheNoHitCount = 0;
     }
     
+    public int getNearCacheCount(){
+        final Map map = nearCacheMap;
+        if(map == null){
+            return 0;
+        }
+        synchronized(map){
+            return map.size();
+        }
+    }
+    
+    public long getNearCacheHitCount(){
+        return nearCacheHitCount;
+    }
+    
+    public long getNearCacheMissCount(){
+        return nearCacheMissCount;
+    }
+    
+    public float getNearCacheHitRatio(){
+        final long hit = nearCacheHitCount;
+        final long total = hit + nearCacheMissCount;
+        return total == 0 ? 0.0f : ((float)hit / (float)total);
+    }
+    
+    public long getNearCacheEvictCount(){
+        return nearCacheEvictCount;
+    }
+    
+    public long getNearCacheInvalidateCount(){
+        return nearCacheInvalidateCount;
+    }
+    
+    public void resetNearCacheHitRatio(){
+        nearCacheHitCount = 0;
+        nearCacheMissCount = 0;
+        nearCacheEvictCount = 0;
+        nearCacheInvalidateCount = 0;
+    }
+    
     public Set getLockedKeySet(){
         Set keySet = new HashSet();
         if(keyLockMap == null){
@@ -704,6 +839,7 @@ public class SharedContextService extends DefaultContextService
         keyLockMap = new ConcurrentHashMap();
         idLocksMap = new ConcurrentHashMap();
         clientCacheLockMap = new ConcurrentHashMap();
+        synchronizeSessionMap = new ConcurrentHashMap();
         indexManager = new SharedContextIndexManager();
     }
     
@@ -722,6 +858,9 @@ public class SharedContextService extends DefaultContextService
             if(isThinClient && isEnabledIndexOnClient){
                 throw new IllegalArgumentException("When ThinClient is true, EnabledIndexOnClient cannot be set to true.");
             }
+            if(isThinClient && nearCacheSize > 0){
+                nearCacheMap = new LinkedHashMap(16, 0.75f, true);
+            }
             if(clientCacheMapServiceName != null){
                 cacheMap = (CacheMap)ServiceManagerFactory.getServiceObject(clientCacheMapServiceName);
             }else if(clientCacheMap != null){
@@ -799,6 +938,9 @@ public class SharedContextService extends DefaultContextService
         cluster.addClusterListener(this);
         
         lockTimeoutTimer = new Timer("SharedContext LockTimeoutTimerThread of " + getServiceNameObject(), true);
+        if(synchronizeSessionTimeout > 0){
+            lockTimeoutTimer.schedule(new SynchronizeSessionExpireTask(), synchronizeSessionTimeout, synchronizeSessionTimeout);
+        }
         
         super.startService();
         
@@ -855,6 +997,12 @@ public class SharedContextService extends DefaultContextService
             forcedLockTimeoutChecker = new Daemon(new ForcedLockTimeoutChecker());
             forcedLockTimeoutChecker.start();
         }
+        if(asynchBatchInterval > 0){
+            asynchBatchSendLock = new Object();
+            asynchBatchMap = new LinkedHashMap();
+            asynchBatchSender = new Daemon(new AsynchBatchSender());
+            asynchBatchSender.start();
+        }
     }
     
     protected void waitConnectMain() throws Exception{
@@ -882,6 +1030,12 @@ public class SharedContextService extends DefaultContextService
             forcedLockTimeoutChecker.stop(100);
             forcedLockTimeoutChecker = null;
         }
+        if(asynchBatchSender != null){
+            asynchBatchSender.stop(100);
+            asynchBatchSender = null;
+            flushAsynchBatch(true);
+            asynchBatchMap = null;
+        }
         
         unlockAll();
         if(cluster != null){
@@ -902,6 +1056,7 @@ public class SharedContextService extends DefaultContextService
         executeQueueHandlerContainer.stop();
         executeQueueHandlerContainer.destroy();
         executeQueueHandlerContainer = null;
+        synchronizeSessionMap.clear();
         resetCacheHitRatio();
         super.stopService();
     }
@@ -1128,19 +1283,99 @@ public class SharedContextService extends DefaultContextService
     }
     
     public synchronized void synchronize(long timeout) throws SharedContextSendException, SharedContextTimeoutException{
+        if(synchronizeChunkSize > 0 && !isThinClient){
+            // 分割同期では、クラスタ全体の更新ロックをチャンク毎に取得する
+            if(isClient){
+                synchronizeForClient(timeout);
+            }else if(isMain()){
+                requestSynchronizeAll(timeout);
+            }else{
+                synchronizeWithMain(timeout);
+            }
+            return;
+        }
         Object id = cluster.getUID();
         try{
             final long start = System.currentTimeMillis();
-            if(!updateLock.acquireForLock(id, timeout)){
-                throw new SharedContextTimeoutException();
-            }
+            acquireUpdateLockAll(id, timeout);
             if(timeout > 0){
                 timeout -= (System.currentTimeMillis() - start);
                 if(timeout <= 0){
                     throw new SharedContextTimeoutException();
                 }
             }
-            
+            if(isClient){
+                synchronizeForClient(timeout);
+            }else if(isMain()){
+                requestSynchronizeAll(timeout);
+            }else{
+                synchronizeWithMain(timeout);
+            }
+        }finally{
+            releaseUpdateLockAll(id, true);
+        }
+    }
+    
+    /**
+     * 主ノードとして、他のノードに同期を要求する。<p>
+     *
+     * @param timeout タイムアウト[ms]
+     * @exception SharedContextSendException 分散サーバへのメッセージ送信に失敗した場合
+     * @exception SharedContextTimeoutException 分散サーバからの応答待ちでタイムアウトした場合
+     */
+    protected void requestSynchronizeAll(long timeout) throws SharedContextSendException, SharedContextTimeoutException{
+        try{
+            Message message = serverConnection.createMessage(subject, null);
+            message.setSubject(clientSubject, null);
+            Set receiveClients = serverConnection.getReceiveClientIds(message);
+            if(receiveClients.size() != 0){
+                message.setObject(new SharedContextEvent(SharedContextEvent.EVENT_SYNCH_ALL, null, new Long(timeout)));
+                Message[] responses = serverConnection.request(
+                    message,
+                    isClient ? clientSubject : subject,
+                    null,
+                    0,
+                    timeout
+                );
+                for(int i = 0; i < responses.length; i++){
+                    if(responses[i].getObject() == null || !((Boolean)responses[i].getObject()).booleanValue()){
+                        throw new SharedContextSendException("It faild to synchronize.");
+                    }
+                    responses[i].recycle();
+                }
+            }else{
+                message.recycle();
+            }
+        }catch(MessageException e){
+            throw new SharedContextSendException(e);
+        }catch(MessageSendException e){
+            throw new SharedContextSendException(e);
+        }catch(RequestTimeoutException e){
+            throw new SharedContextTimeoutException(e);
+        }
+    }
+    
+    /**
+     * 自ノード及び他の全てのノードの更新ロックを取得する。<p>
+     * 取得に失敗した場合も、{@link #releaseUpdateLockAll(Object, boolean)}で解放する必要がある。<br>
+     *
+     * @param id ロックの所有者
+     * @param timeout タイムアウト[ms]
+     * @exception SharedContextSendException 分散サーバへのメッセージ送信に失敗した場合
+     * @exception SharedContextTimeoutException ロックの取得でタイムアウトした場合
+     */
+    protected void acquireUpdateLockAll(Object id, long timeout) throws SharedContextSendException, SharedContextTimeoutException{
+        final long start = System.currentTimeMillis();
+        if(!updateLock.acquireForLock(id, timeout)){
+            throw new SharedContextTimeoutException();
+        }
+        if(timeout > 0){
+            timeout -= (System.currentTimeMillis() - start);
+            if(timeout <= 0){
+                throw new SharedContextTimeoutException();
+            }
+        }
+        try{
             Message message = serverConnection.createMessage(subject, null);
             message.setSubject(clientSubject, null);
             Set receiveClients = serverConnection.getReceiveClientIds(message);
@@ -1162,33 +1397,8 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException();
                     }
                 }
-            }
-            if(isClient){
-                synchronizeForClient(timeout);
-            }else if(isMain()){
-                message = serverConnection.createMessage(subject, null);
-                message.setSubject(clientSubject, null);
-                receiveClients = serverConnection.getReceiveClientIds(message);
-                if(receiveClients.size() != 0){
-                    message.setObject(new SharedContextEvent(SharedContextEvent.EVENT_SYNCH_ALL, null, new Long(timeout)));
-                    Message[] responses = serverConnection.request(
-                        message,
-                        isClient ? clientSubject : subject,
-                        null,
-                        0,
-                        timeout
-                    );
-                    for(int i = 0; i < responses.length; i++){
-                        if(responses[i].getObject() == null || !((Boolean)responses[i].getObject()).booleanValue()){
-                            throw new SharedContextSendException("It faild to synchronize.");
-                        }
-                        responses[i].recycle();
-                    }
-                }else{
-                    message.recycle();
-                }
             }else{
-                synchronizeWithMain(timeout);
+                message.recycle();
             }
         }catch(MessageException e){
             throw new SharedContextSendException(e);
@@ -1196,23 +1406,35 @@ public class SharedContextService extends DefaultContextService
             throw new SharedContextSendException(e);
         }catch(RequestTimeoutException e){
             throw new SharedContextTimeoutException(e);
+        }
+    }
+    
+    /**
+     * 自ノード及び他の全てのノードの更新ロックを解放する。<p>
+     *
+     * @param id ロックの所有者
+     * @param isReleaseLocal 自ノードの更新ロックも解放する場合true
+     * @exception SharedContextSendException 分散サーバへのメッセージ送信に失敗した場合
+     */
+    protected void releaseUpdateLockAll(Object id, boolean isReleaseLocal) throws SharedContextSendException{
+        try{
+            Message message = serverConnection.createMessage(subject, null);
+            message.setSubject(clientSubject, null);
+            Set receiveClients = serverConnection.getReceiveClientIds(message);
+            if(receiveClients.size() != 0){
+                message.setObject(new SharedContextEvent(SharedContextEvent.EVENT_RELEASE_UPDATE_LOCK, id));
+                serverConnection.sendAsynch(message);
+            }else{
+                message.recycle();
+            }
+        }catch(MessageException e){
+            throw new SharedContextSendException(e);
+        }catch(MessageSendException e){
+            throw new SharedContextSendException(e);
         }finally{
-            try{
-                Message message = serverConnection.createMessage(subject, null);
-                message.setSubject(clientSubject, null);
-                Set receiveClients = serverConnection.getReceiveClientIds(message);
-                if(receiveClients.size() != 0){
-                    message.setObject(new SharedContextEvent(SharedContextEvent.EVENT_RELEASE_UPDATE_LOCK, cluster.getUID()));
-                    serverConnection.sendAsynch(message);
-                }else{
-                    message.recycle();
-                }
-            }catch(MessageException e){
-                throw new SharedContextSendException(e);
-            }catch(MessageSendException e){
-                throw new SharedContextSendException(e);
+            if(isReleaseLocal){
+                updateLock.releaseForLock(id);
             }
-            updateLock.releaseForLock(id);
         }
     }
     
@@ -1227,6 +1449,11 @@ public class SharedContextService extends DefaultContextService
             for(int i = 0; i < keys.length; i++){
                 cacheMap.remove(keys[i]);
             }
+        }else if(nearCacheMap != null){
+            synchronized(nearCacheMap){
+                nearCacheMap.clear();
+            }
+            super.clear();
         }
         if(updateListeners != null){
             for(int i = 0; i < updateListeners.size(); i++){
@@ -1237,6 +1464,10 @@ public class SharedContextService extends DefaultContextService
             healthCheck(false, timeout);
             return;
         }
+        if(synchronizeChunkSize > 0){
+            synchronizeByChunk(timeout, true);
+            return;
+        }
         Message message = null;
         try{
             message = serverConnection.createMessage(subject, null);
@@ -1272,22 +1503,7 @@ public class SharedContextService extends DefaultContextService
                     try{
                         super.clear();
                         indexManager.clear();
-                        Iterator entries = result.entrySet().iterator();
-                        while(entries.hasNext()){
-                            Map.Entry entry = (Map.Entry)entries.next();
-                            boolean isPut = true;
-                            if(updateListeners != null){
-                                for(int i = 0; i < updateListeners.size(); i++){
-                                    if(!((SharedContextUpdateListener)updateListeners.get(i)).onPutSynchronize(this, entry.getKey(), entry.getValue())){
-                                        isPut = false;
-                                        break;
-                                    }
-                                }
-                            }
-                            if(isEnabledIndexOnClient && isPut && entry.getValue() != null){
-                                indexManager.add(entry.getKey(), entry.getValue());
-                            }
-                        }
+                        putSynchronizeEntries(result, true);
                     }finally{
                         referLock.releaseForLock(id);
                     }
@@ -1305,6 +1521,10 @@ public class SharedContextService extends DefaultContextService
     }
     
     protected synchronized void synchronizeWithMain(long timeout) throws SharedContextSendException, SharedContextTimeoutException{
+        if(synchronizeChunkSize > 0){
+            synchronizeByChunk(timeout, false);
+            return;
+        }
         final long start = System.currentTimeMillis();
         long currentTimeout = timeout;
         Message message = null;
@@ -1341,32 +1561,149 @@ public class SharedContextService extends DefaultContextService
                     try{
                         super.clear();
                         indexManager.clear();
-                        Iterator entries = result.entrySet().iterator();
-                        while(entries.hasNext()){
-                            Map.Entry entry = (Map.Entry)entries.next();
-                            boolean isPut = true;
-                            if(updateListeners != null){
-                                for(int i = 0; i < updateListeners.size(); i++){
-                                    if(!((SharedContextUpdateListener)updateListeners.get(i)).onPutSynchronize(this, entry.getKey(), entry.getValue())){
-                                        isPut = false;
-                                        break;
+                        putSynchronizeEntries(result, false);
+                    }finally{
+                        referLock.releaseForLock(id);
+                    }
+                }
+            }else{
+                throw new NoConnectServerException("Main server is not found.");
+            }
+        }catch(MessageException e){
+            throw new SharedContextSendException(e);
+        }catch(MessageSendException e){
+            throw new SharedContextSendException(e);
+        }catch(RequestTimeoutException e){
+            throw new SharedContextTimeoutException(e);
+        }
+    }
+    
+    /**
+     * 主ノードから、{@link #setSynchronizeChunkSize(int)}件ずつ分割してデータを取得して同期する。<p>
+     * 次のチャンクは、前のチャンクを反映してから要求するため、受信側の処理が追いつかない量のデータが送られてくる事はない。<br>
+     * 他のノードの更新ロックは、チャンクの取得と反映の間だけ取得し、チャンクの間は他のノードでの更新を妨げない。チャンクの間に行われた更新は、通常の更新通知で反映される。まだ反映していないチャンクに含まれるキーへの差分更新は、{@link #onUpdate(SharedContextEvent, Object, int, String, String)}で読み捨てる。主ノードはチャンクの要求時に値を読み出すため、後のチャンクに更新後の値が含まれる。<br>
+     * 自ノードの更新ロックと参照ロックは、最後のチャンクを反映するまで保持するため、同期の途中で、自ノードから読み込み途中のデータを参照する事はない。<br>
+     * チャンクの要求に失敗した場合は、{@link #setSynchronizeChunkRetryCount(int)}回まで、最後に反映したチャンクの続きから要求し直す。主ノードが切り替わるなどして、続きを取得できない場合は、最初から同期し直す。<br>
+     * タイムアウトは、チャンクの要求毎に適用される。<br>
+     *
+     * @param timeout チャンク毎のタイムアウト[ms]
+     * @param isClientMode クライアントモードとして同期する場合true
+     * @exception SharedContextSendException 分散サーバへのメッセージ送信に失敗した場合
+     * @exception SharedContextTimeoutException 分散サーバからの応答待ちでタイムアウトした場合
+     */
+    protected void synchronizeByChunk(long timeout, boolean isClientMode) throws SharedContextSendException, SharedContextTimeoutException{
+        final Object id = cluster.getUID();
+        final boolean isLocalLocked = Arrays.asList(updateLock.getOwners()).contains(id);
+        final boolean isReferLocked = Arrays.asList(referLock.getOwners()).contains(id);
+        final long lockStart = System.currentTimeMillis();
+        if(!isLocalLocked && !updateLock.acquireForLock(id, timeout)){
+            throw new SharedContextTimeoutException();
+        }
+        try{
+            if(!isReferLocked && !referLock.acquireForLock(id, getRemainingTimeout(lockStart, timeout))){
+                throw new SharedContextTimeoutException();
+            }
+            try{
+                isSynchronizingByChunk = true;
+                int offset = 0;
+                int retryCount = 0;
+                boolean isRestart = false;
+                while(true){
+                    final long start = System.currentTimeMillis();
+                    Object[] chunk = null;
+                    try{
+                        acquireUpdateLockAll(id, timeout);
+                        chunk = requestChunk(id, offset, getRemainingTimeout(start, timeout));
+                        if(chunk != null){
+                            if(offset == 0){
+                                if((!isClientMode || isRestart) && updateListeners != null){
+                                    for(int i = 0; i < updateListeners.size(); i++){
+                                        ((SharedContextUpdateListener)updateListeners.get(i)).onClearSynchronize(this);
                                     }
                                 }
+                                super.clear();
+                                indexManager.clear();
                             }
-                            if(isPut){
-                                super.put(entry.getKey(), wrapCachedReference(entry.getKey(), entry.getValue()));
-                                if(entry.getValue() != null){
-                                    indexManager.add(entry.getKey(), entry.getValue());
-                                }
-                            }
+                            putSynchronizeEntries((Map)chunk[1], isClientMode);
+                        }
+                    }catch(SharedContextTimeoutException e){
+                        if(retryCount++ >= synchronizeChunkRetryCount){
+                            throw e;
                         }
+                        waitSynchronizeChunkRetry();
+                        continue;
+                    }catch(SharedContextSendException e){
+                        if(retryCount++ >= synchronizeChunkRetryCount){
+                            throw e;
+                        }
+                        waitSynchronizeChunkRetry();
+                        continue;
                     }finally{
-                        referLock.releaseForLock(id);
+                        releaseUpdateLockAll(id, false);
+                    }
+                    if(chunk == null){
+                        if(retryCount++ >= synchronizeChunkRetryCount){
+                            throw new SharedContextSendException("It faild to synchronize. Synchronize session is lost.");
+                        }
+                        offset = 0;
+                        isRestart = true;
+                        continue;
                     }
+                    retryCount = 0;
+                    final int next = ((Integer)chunk[0]).intValue();
+                    if(next < 0){
+                        break;
+                    }
+                    offset = next;
                 }
-            }else{
+            }finally{
+                isSynchronizingByChunk = false;
+                if(!isReferLocked){
+                    referLock.releaseForLock(id);
+                }
+            }
+        }finally{
+            if(!isLocalLocked){
+                updateLock.releaseForLock(id);
+            }
+        }
+    }
+    
+    /**
+     * 主ノードに、指定した位置からのチャンクを要求する。<p>
+     *
+     * @param id 同期するノードのID
+     * @param offset 取得開始位置
+     * @param timeout タイムアウト[ms]
+     * @return 次の取得開始位置（最後のチャンクの場合は-1）とデータの配列。主ノードが途中状態を保持していない場合は、null
+     * @exception SharedContextSendException 分散サーバへのメッセージ送信に失敗した場合
+     * @exception SharedContextTimeoutException 分散サーバからの応答待ちでタイムアウトした場合
+     */
+    protected Object[] requestChunk(Object id, int offset, long timeout) throws SharedContextSendException, SharedContextTimeoutException{
+        try{
+            Message message = serverConnection.createMessage(subject, null);
+            Set receiveClients = serverConnection.getReceiveClientIds(message);
+            if(receiveClients.size() == 0){
+                message.recycle();
                 throw new NoConnectServerException("Main server is not found.");
             }
+            message.setObject(
+                new SharedContextEvent(
+                    SharedContextEvent.EVENT_GET_CHUNK,
+                    id,
+                    new Object[]{new Integer(offset), new Integer(synchronizeChunkSize)}
+                )
+            );
+            Message[] responses = serverConnection.request(
+                message,
+                isClient ? clientSubject : subject,
+                null,
+                1,
+                timeout
+            );
+            final Object[] chunk = (Object[])responses[0].getObject();
+            responses[0].recycle();
+            return chunk;
         }catch(MessageException e){
             throw new SharedContextSendException(e);
         }catch(MessageSendException e){
@@ -1376,6 +1713,164 @@ public class SharedContextService extends DefaultContextService
         }
     }
     
+    private static long getRemainingTimeout(long start, long timeout) throws SharedContextTimeoutException{
+        if(timeout <= 0){
+            return timeout;
+        }
+        final long remaining = timeout - (System.currentTimeMillis() - start);
+        if(remaining <= 0){
+            throw new SharedContextTimeoutException();
+        }
+        return remaining;
+    }
+    
+    private void waitSynchronizeChunkRetry() throws SharedContextSendException{
+        if(synchronizeChunkRetryInterval > 0){
+            try{
+                Thread.sleep(synchronizeChunkRetryInterval);
+            }catch(InterruptedException e){
+                throw new SharedContextSendException(e);
+            }
+        }
+    }
+    
+    /**
+     * 同期で取得したデータをローカルに反映する。<p>
+     *
+     * @param entries 同期で取得したデータ
+     * @param isClientMode クライアントモードとして反映する場合true。データは保持せず、インデックスのみ更新する
+     */
+    protected void putSynchronizeEntries(Map entries, boolean isClientMode){
+        Iterator itr = entries.entrySet().iterator();
+        while(itr.hasNext()){
+            Map.Entry entry = (Map.Entry)itr.next();
+            boolean isPut = true;
+            if(updateListeners != null){
+                for(int i = 0; i < updateListeners.size(); i++){
+                    if(!((SharedContextUpdateListener)updateListeners.get(i)).onPutSynchronize(this, entry.getKey(), entry.getValue())){
+                        isPut = false;
+                        break;
+                    }
+                }
+            }
+            if(!isPut){
+                continue;
+            }
+            if(isClientMode){
+                if(isEnabledIndexOnClient && entry.getValue() != null){
+                    indexManager.add(entry.getKey(), entry.getValue());
+                }
+            }else{
+                super.put(entry.getKey(), wrapCachedReference(entry.getKey(), entry.getValue()));
+                if(entry.getValue() != null){
+                    indexManager.add(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+    
+    /**
+     * クライアント側で、サーバから取得した値をローカルに保持するかどうかを判定する。<p>
+     *
+     * @return ローカルに保持する場合、true
+     */
+    protected boolean isCacheOnClient(){
+        return !isThinClient || cacheMap != null || nearCacheMap != null;
+    }
+    
+    /**
+     * ニアキャッシュに保持している指定されたキーの値が、有効かどうかを判定する。<p>
+     * ニアキャッシュが無効な場合は、常にtrueを返す。有効期限切れの場合は、ローカルから削除してfalseを返す。<br>
+     *
+     * @param key キー
+     * @return 有効な場合、true
+     */
+    protected boolean isValidNearCache(Object key){
+        final Map map = nearCacheMap;
+        if(map == null){
+            return true;
+        }
+        boolean isValid = false;
+        synchronized(map){
+            final Long time = (Long)map.get(key);
+            isValid = time != null
+                && (nearCacheExpireTime <= 0 || System.currentTimeMillis() - time.longValue() < nearCacheExpireTime);
+            if(!isValid){
+                map.remove(key);
+            }
+        }
+        if(isValid){
+            nearCacheHitCount++;
+        }else{
+            Object removed = super.remove(key);
+            removed = unwrapCachedReference(removed, false, true);
+        }
+        return isValid;
+    }
+    
+    /**
+     * サーバから取得した値をニアキャッシュに登録し、最大数を超えた場合は最も参照されていないキーをローカルから削除する。<p>
+     *
+     * @param key キー
+     */
+    protected void addNearCache(Object key){
+        final Map map = nearCacheMap;
+        if(map == null){
+            return;
+        }
+        List evictedKeys = null;
+        synchronized(map){
+            map.put(key, new Long(System.currentTimeMillis()));
+            if(map.size() > nearCacheSize){
+                evictedKeys = new ArrayList();
+                final Iterator keys = map.keySet().iterator();
+                while(map.size() > nearCacheSize && keys.hasNext()){
+                    evictedKeys.add(keys.next());
+                    keys.remove();
+                }
+            }
+        }
+        if(evictedKeys != null){
+            for(int i = 0, imax = evictedKeys.size(); i < imax; i++){
+                Object removed = super.remove(evictedKeys.get(i));
+                removed = unwrapCachedReference(removed, false, true);
+                nearCacheEvictCount++;
+            }
+        }
+    }
+    
+    protected void removeNearCache(Object key){
+        final Map map = nearCacheMap;
+        if(map == null){
+            return;
+        }
+        synchronized(map){
+            map.remove(key);
+        }
+    }
+    
+    /**
+     * ニアキャッシュに保持している値よりも、受信した値の更新バージョンが古いかどうかを判定する。<p>
+     *
+     * @param key キー
+     * @param value 受信した値
+     * @return 受信した値が古い場合、true
+     */
+    protected boolean isStaleNearCache(Object key, Object value){
+        if(nearCacheMap == null
+            || !(value instanceof SharedContextValueDifferenceSupport)){
+            return false;
+        }
+        final Object current = unwrapCachedReference(getRawLocal(key), false, false);
+        if(!(current instanceof SharedContextValueDifferenceSupport)){
+            return false;
+        }
+        return SharedContextRecord.compareToUpdateVersion(
+            ((SharedContextValueDifferenceSupport)value).getUpdateVersion(),
+            ((SharedContextValueDifferenceSupport)current).getUpdateVersion()
+        ) < 0;
+    }
+    
     protected Object wrapCachedReference(Object key, Object value){
         if(value == null || cacheMap == null){
             return value;
@@ -1601,6 +2096,7 @@ public class SharedContextService extends DefaultContextService
     }
     
     public boolean unlock(Object key, boolean force, long timeout) throws SharedContextSendException, SharedContextTimeoutException{
+        flushAsynchBatch();
         Lock lock = (Lock)keyLockMap.get(key);
         Object id = cluster.getUID();
         if(force && lock != null && lock.getOwner() != null){
@@ -2036,6 +2532,7 @@ public class SharedContextService extends DefaultContextService
     }
     
     public Object put(Object key, Object value, long timeout) throws SharedContextSendException, SharedContextTimeoutException{
+        flushAsynchBatch();
         if(sharedContextTransactionManager != null){
             SharedContextTransactionManager.SharedContextTransaction transaction = sharedContextTransactionManager.getTransaction();
             if(transaction != null && (transaction.getState() == SharedContextTransactionManager.SharedContextTransaction.STATE_BEGIN)){
@@ -2095,7 +2592,7 @@ public class SharedContextService extends DefaultContextService
             Object old = null;
             final boolean isContainsKey = super.containsKey(key);
             if(isClient){
-                if(isContainsKey && (!isThinClient || cacheMap != null)){
+                if(isContainsKey && isCacheOnClient()){
                     old = super.put(key, wrapCachedReference(key, value));
                     old = unwrapCachedReference(old, false, true);
                 }
@@ -2144,7 +2641,7 @@ public class SharedContextService extends DefaultContextService
             updateLock.acquireForUse(-1);
             final boolean isContainsKey = super.containsKey(key);
             if(isClient){
-                if(isContainsKey && (!isThinClient || cacheMap != null)){
+                if(isContainsKey && isCacheOnClient()){
                     result = super.put(key, wrapCachedReference(key, value));
                     result = unwrapCachedReference(result, false, true);
                 }
@@ -2195,27 +2692,31 @@ public class SharedContextService extends DefaultContextService
                     referLock.releaseForUse();
                 }
             }
-            try{
-                Message message = serverConnection.createMessage(subject, key == null ? null : key.toString());
-                message.setSubject(clientSubject, key == null ? null : key.toString());
-                Set receiveClients = serverConnection.getReceiveClientIds(message);
-                if(receiveClients.size() != 0){
-                    message.setObject(new SharedContextEvent(SharedContextEvent.EVENT_PUT, key, value));
-                    serverConnection.sendAsynch(message);
-                }else{
-                    message.recycle();
-                    if(isClient){
-                        throw new NoConnectServerException();
+            if(asynchBatchMap != null){
+                addAsynchBatch(new SharedContextEvent(SharedContextEvent.EVENT_PUT, key, value), null);
+            }else{
+                try{
+                    Message message = serverConnection.createMessage(subject, key == null ? null : key.toString());
+                    message.setSubject(clientSubject, key == null ? null : key.toString());
+                    Set receiveClients = serverConnection.getReceiveClientIds(message);
+                    if(receiveClients.size() != 0){
+                        message.setObject(new SharedContextEvent(SharedContextEvent.EVENT_PUT, key, value));
+                        serverConnection.sendAsynch(message);
+                    }else{
+                        message.recycle();
+                        if(isClient){
+                            throw new NoConnectServerException();
+                        }
                     }
+                }catch(MessageException e){
+                    throw new SharedContextSendException(e);
+                }catch(MessageSendException e){
+                    throw new SharedContextSendException(e);
                 }
-            }catch(MessageException e){
-                throw new SharedContextSendException(e);
-            }catch(MessageSendException e){
-                throw new SharedContextSendException(e);
             }
             final boolean isContainsKey = super.containsKey(key);
             if(isClient){
-                if(isContainsKey && (!isThinClient || cacheMap != null)){
+                if(isContainsKey && isCacheOnClient()){
                     super.put(key, wrapCachedReference(key, value));
                 }
             }else{
@@ -2311,6 +2812,7 @@ public class SharedContextService extends DefaultContextService
     }
     
     protected void update(Object key, SharedContextValueDifference diff, long timeout, boolean ifExists) throws SharedContextSendException, SharedContextTimeoutException{
+        flushAsynchBatch();
         if(diff == null){
             return;
         }
@@ -2554,25 +3056,28 @@ public class SharedContextService extends DefaultContextService
                     throw new SharedContextUpdateException("Not support SharedContextValueDifference. key=" + key + ", value=" + currentValue);
                 }
             }
-            SharedContextTimeoutException timeoutException = null;
-            Message message = null;
-            try{
-                message = serverConnection.createMessage(subject, key == null ? null : key.toString());
-                message.setSubject(clientSubject, key == null ? null : key.toString());
-                Set receiveClients = serverConnection.getReceiveClientIds(message);
-                if(receiveClients.size() != 0){
-                    message.setObject(new SharedContextEvent(SharedContextEvent.EVENT_UPDATE, key, new Object[]{diff, ifExists ? Boolean.TRUE : Boolean.FALSE}));
-                    serverConnection.sendAsynch(message);
-                }else{
-                    message.recycle();
-                    if(isClient){
-                        throw new NoConnectServerException();
+            if(asynchBatchMap != null){
+                addAsynchBatch(new SharedContextEvent(SharedContextEvent.EVENT_UPDATE, key, new Object[]{diff, ifExists ? Boolean.TRUE : Boolean.FALSE}), currentValue);
+            }else{
+                Message message = null;
+                try{
+                    message = serverConnection.createMessage(subject, key == null ? null : key.toString());
+                    message.setSubject(clientSubject, key == null ? null : key.toString());
+                    Set receiveClients = serverConnection.getReceiveClientIds(message);
+                    if(receiveClients.size() != 0){
+                        message.setObject(new SharedContextEvent(SharedContextEvent.EVENT_UPDATE, key, new Object[]{diff, ifExists ? Boolean.TRUE : Boolean.FALSE}));
+                        serverConnection.sendAsynch(message);
+                    }else{
+                        message.recycle();
+                        if(isClient){
+                            throw new NoConnectServerException();
+                        }
                     }
+                }catch(MessageException e){
+                    throw new SharedContextSendException(e);
+                }catch(MessageSendException e){
+                    throw new SharedContextSendException(e);
                 }
-            }catch(MessageException e){
-                throw new SharedContextSendException(e);
-            }catch(MessageSendException e){
-                throw new SharedContextSendException(e);
             }
             if(currentValue != null){
                 final int updateResult = ((SharedContextValueDifferenceSupport)currentValue).update(diff);
@@ -2612,6 +3117,7 @@ public class SharedContextService extends DefaultContextService
     }
     
     public Object remove(Object key, long timeout) throws SharedContextSendException, SharedContextTimeoutException{
+        flushAsynchBatch();
         if(isMain() && !super.containsKey(key)){
             return null;
         }
@@ -2746,23 +3252,27 @@ public class SharedContextService extends DefaultContextService
                     referLock.releaseForUse();
                 }
             }
-            try{
-                Message message = serverConnection.createMessage(subject, key == null ? null : key.toString());
-                message.setSubject(clientSubject, key == null ? null : key.toString());
-                Set receiveClients = serverConnection.getReceiveClientIds(message);
-                if(receiveClients.size() != 0){
-                    message.setObject(new SharedContextEvent(SharedContextEvent.EVENT_REMOVE, key));
-                    serverConnection.sendAsynch(message);
-                }else{
-                    message.recycle();
-                    if(isClient){
-                        throw new NoConnectServerException();
+            if(asynchBatchMap != null){
+                addAsynchBatch(new SharedContextEvent(SharedContextEvent.EVENT_REMOVE, key), null);
+            }else{
+                try{
+                    Message message = serverConnection.createMessage(subject, key == null ? null : key.toString());
+                    message.setSubject(clientSubject, key == null ? null : key.toString());
+                    Set receiveClients = serverConnection.getReceiveClientIds(message);
+                    if(receiveClients.size() != 0){
+                        message.setObject(new SharedContextEvent(SharedContextEvent.EVENT_REMOVE, key));
+                        serverConnection.sendAsynch(message);
+                    }else{
+                        message.recycle();
+                        if(isClient){
+                            throw new NoConnectServerException();
+                        }
                     }
+                }catch(MessageException e){
+                    throw new SharedContextSendException(e);
+                }catch(MessageSendException e){
+                    throw new SharedContextSendException(e);
                 }
-            }catch(MessageException e){
-                throw new SharedContextSendException(e);
-            }catch(MessageSendException e){
-                throw new SharedContextSendException(e);
             }
             if(removed == null){
                 removed = super.remove(key);
@@ -2788,6 +3298,7 @@ public class SharedContextService extends DefaultContextService
     }
     
     public void putAll(Map t, long timeout) throws SharedContextSendException, SharedContextTimeoutException{
+        flushAsynchBatch();
         if(t.size() == 0){
             return;
         }
@@ -2860,7 +3371,7 @@ public class SharedContextService extends DefaultContextService
                 final boolean isContainsKey = super.containsKey(entry.getKey());
                 Object old = null;
                 if(isClient){
-                    if(isContainsKey && (!isThinClient || cacheMap != null)){
+                    if(isContainsKey && isCacheOnClient()){
                         old = super.put(entry.getKey(), wrapCachedReference(entry.getKey(), entry.getValue()));
                         old = unwrapCachedReference(old, false, true);
                     }
@@ -2923,7 +3434,7 @@ public class SharedContextService extends DefaultContextService
                 final boolean isContainsKey = super.containsKey(entry.getKey());
                 Object old = null;
                 if(isClient){
-                    if(isContainsKey && (!isThinClient || cacheMap != null)){
+                    if(isContainsKey && isCacheOnClient()){
                         old = super.put(entry.getKey(), wrapCachedReference(entry.getKey(), entry.getValue()));
                         old = unwrapCachedReference(old, false, true);
                     }
@@ -2953,7 +3464,155 @@ public class SharedContextService extends DefaultContextService
         }
     }
     
+    /**
+     * 非同期更新を溜めるバッファに、更新イベントを追加する。<p>
+     * 同一キーに対してputまたはremoveが追加された場合は、それ以前に溜まっている同一キーのイベントを破棄する。<br>
+     * putの値が{@link SharedContextValueDifferenceSupport}の場合は、送信までに値が更新されても影響を受けないように、複製を溜める。<br>
+     * updateが追加された場合は、同一キーのイベントの後ろに連結する。但し、同一キーに対して溜まっているputの複製元が、更新対象の値と同一インスタンスの場合は、差分を複製に反映して、putに統合する。<br>
+     * 溜まっているイベント数が{@link #setAsynchBatchSize(int)}に達した場合は、呼び出し元のスレッドで送信する。<br>
+     *
+     * @param event 更新イベント
+     * @param currentValue updateの場合、更新対象の現在の値
+     * @exception SharedContextSendException 送信に失敗した場合
+     */
+    protected void addAsynchBatch(SharedContextEvent event, Object currentValue) throws SharedContextSendException{
+        final Map batchMap = asynchBatchMap;
+        if(batchMap == null){
+            return;
+        }
+        Object source = null;
+        if(event.type == SharedContextEvent.EVENT_PUT
+            && event.value instanceof SharedContextValueDifferenceSupport){
+            source = event.value;
+            event.value = ((SharedContextValueDifferenceSupport)source).clone();
+        }
+        boolean isFull = false;
+        synchronized(batchMap){
+            AsynchBatchEvents events = (AsynchBatchEvents)batchMap.get(event.key);
+            if(event.type == SharedContextEvent.EVENT_UPDATE){
+                if(events == null){
+                    events = new AsynchBatchEvents();
+                    batchMap.put(event.key, events);
+                }else if(events.size() == 1
+                    && events.source != null
+                    && events.source == currentValue){
+                    final SharedContextEvent first = (SharedContextEvent)events.get(0);
+                    final SharedContextValueDifference diff = (SharedContextValueDifference)((Object[])event.value)[0];
+                    if(((SharedContextValueDifferenceSupport)first.value).update(diff) != -1){
+                        asynchBatchCoalescedCount.increment();
+                        return;
+                    }
+                }
+                events.add(event);
+                asynchBatchEventCount.incrementAndGet();
+            }else{
+                if(events != null){
+                    batchMap.remove(event.key);
+                    asynchBatchEventCount.addAndGet(-events.size());
+                    asynchBatchCoalescedCount.add(events.size());
+                }
+                events = new AsynchBatchEvents();
+                events.source = source;
+                events.add(event);
+                batchMap.put(event.key, events);
+                asynchBatchEventCount.incrementAndGet();
+            }
+            isFull = asynchBatchSize > 0 && asynchBatchEventCount.get() >= asynchBatchSize;
+        }
+        if(isFull){
+            flushAsynchBatch();
+        }
+    }
+    
+    public void flushAsynchBatch() throws SharedContextSendException{
+        flushAsynchBatch(false);
+    }
+    
+    /**
+     * バッファリングされている非同期更新イベントを送信する。<p>
+     * イベントは、キー毎の送信先に振り分けて、送信先毎に1つのメッセージで送信する。<br>
+     * 送信に失敗した場合、送信できなかったイベントは破棄される。<br>
+     *
+     * @param isLogOnError 送信に失敗した場合に、例外を投げずにログを出力する場合true
+     * @exception SharedContextSendException isLogOnErrorがfalseで、送信に失敗した場合
+     */
+    protected void flushAsynchBatch(boolean isLogOnError) throws SharedContextSendException{
+        final Map batchMap = asynchBatchMap;
+        if(batchMap == null){
+            return;
+        }
+        synchronized(asynchBatchSendLock){
+            Map batch = null;
+            int eventCount = 0;
+            synchronized(batchMap){
+                if(batchMap.size() == 0){
+                    return;
+                }
+                batch = new LinkedHashMap(batchMap);
+                batchMap.clear();
+                eventCount = asynchBatchEventCount.getAndSet(0);
+            }
+            try{
+                final Map targetMap = new LinkedHashMap();
+                Message message = serverConnection.createMessage(subject, null);
+                final Iterator entries = batch.entrySet().iterator();
+                while(entries.hasNext()){
+                    final Map.Entry entry = (Map.Entry)entries.next();
+                    final String key = entry.getKey() == null ? null : entry.getKey().toString();
+                    message.setSubject(subject, key);
+                    message.setSubject(clientSubject, key);
+                    final Iterator ids = serverConnection.getReceiveClientIds(message).iterator();
+                    while(ids.hasNext()){
+                        final Object id = ids.next();
+                        Object[] target = (Object[])targetMap.get(id);
+                        if(target == null){
+                            target = new Object[]{key, new ArrayList()};
+                            targetMap.put(id, target);
+                        }
+                        ((List)target[1]).addAll((List)entry.getValue());
+                    }
+                }
+                message.recycle();
+                if(targetMap.size() == 0){
+                    if(isClient){
+                        throw new NoConnectServerException();
+                    }
+                    return;
+                }
+                final Iterator targets = targetMap.entrySet().iterator();
+                while(targets.hasNext()){
+                    final Map.Entry entry = (Map.Entry)targets.next();
+                    final Object[] target = (Object[])entry.getValue();
+                    final List events = (List)target[1];
+                    message = serverConnection.createMessage(subject, (String)target[0]);
+                    message.setSubject(clientSubject, (String)target[0]);
+                    message.setDestinationIds(Collections.singleton(entry.getKey()));
+                    message.setObject(new SharedContextEvent(SharedContextEvent.EVENT_BATCH, null, events));
+                    serverConnection.sendAsynch(message);
+                    asynchBatchCount.increment();
+                    asynchBatchedEventCount.add(events.size());
+                }
+            }catch(SharedContextSendException e){
+                if(!isLogOnError){
+                    throw e;
+                }
+                getLogger().write("SCS__00012", new Object[]{subject, new Integer(eventCount)}, e);
+            }catch(MessageException e){
+                if(!isLogOnError){
+                    throw new SharedContextSendException(e);
+                }
+                getLogger().write("SCS__00012", new Object[]{subject, new Integer(eventCount)}, e);
+            }catch(MessageSendException e){
+                if(!isLogOnError){
+                    throw new SharedContextSendException(e);
+                }
+                getLogger().write("SCS__00012", new Object[]{subject, new Integer(eventCount)}, e);
+            }
+        }
+    }
+    
     public void putAllAsynch(Map t) throws SharedContextSendException{
+        flushAsynchBatch();
         if(t.size() == 0){
             return;
         }
@@ -3015,7 +3674,7 @@ public class SharedContextService extends DefaultContextService
                 Object old = null;
                 final boolean isContainsKey = super.containsKey(entry.getKey());
                 if(isClient){
-                    if(isContainsKey && (!isThinClient || cacheMap != null)){
+                    if(isContainsKey && isCacheOnClient()){
                         old = super.put(entry.getKey(), wrapCachedReference(entry.getKey(), entry.getValue()));
                         old = unwrapCachedReference(old, false, true);
                     }else{
@@ -3052,6 +3711,7 @@ public class SharedContextService extends DefaultContextService
     }
     
     public void clear(long timeout) throws SharedContextSendException, SharedContextTimeoutException{
+        flushAsynchBatch();
         if(isMain() && size() == 0){
             return;
         }
@@ -3176,6 +3836,7 @@ public class SharedContextService extends DefaultContextService
     }
     
     public void clearAsynch() throws SharedContextSendException{
+        flushAsynchBatch();
         if(isMain() && size() == 0){
             return;
         }
@@ -3259,7 +3920,7 @@ public class SharedContextService extends DefaultContextService
                 }
             }
             if(isClient){
-                if(super.containsKey(key)){
+                if(super.containsKey(key) && isValidNearCache(key)){
                     result = getLocal(key);
                     if(result == null && !super.containsKey(key)){
                         result = get(key, currentTimeout);
@@ -3287,6 +3948,9 @@ public class SharedContextService extends DefaultContextService
                         }
                         result = get(key, currentTimeout);
                     }else{
+                        if(nearCacheMap != null){
+                            nearCacheMissCount++;
+                        }
                         try{
                             Message message = serverConnection.createMessage(subject, key == null ? null : key.toString());
                             Set receiveClients = serverConnection.getReceiveClientIds(message);
@@ -3304,8 +3968,11 @@ public class SharedContextService extends DefaultContextService
                                 synchronized(newLock){
                                     if(!newLock.isRemove()){
                                         result = newLock.updateValue(result);
-                                        if(!isThinClient || cacheMap != null){
+                                        if(isCacheOnClient()){
                                             super.put(key, wrapCachedReference(key, result));
+                                            if(result != null){
+                                                addNearCache(key);
+                                            }
                                         }
                                     }
                                 }
@@ -3889,7 +4556,134 @@ public class SharedContextService extends DefaultContextService
             }
             return ci.evaluate(variables);
         }
-        return interpreter.evaluate(evaluate, variables);
+        return interpreter.evaluate(evaluate, variables);
+    }
+    
+    /**
+     * このサーバが保持する値から、指定されたキーの値を取得し、ソートして先頭から指定された件数を返す。<p>
+     * 件数が指定された場合は、全件をソートせずに、件数分の値だけをヒープで保持する。<br>
+     *
+     * @param keys キーの集合。nullの場合は、全てのキー
+     * @param propNames ソートキーとなるプロパティ名の配列。nullの場合は、ソートしない
+     * @param isAsc ソート方向を示すフラグの配列
+     * @param limit 取得する件数。0以下の場合は、全件
+     * @return 値のリスト
+     */
+    protected List getViewValuesLocal(Set keys, String[] propNames, boolean[] isAsc, int limit){
+        final List values = getValuesLocal(keys);
+        if(values.size() == 0){
+            return values;
+        }
+        if(propNames == null || propNames.length == 0){
+            return limit > 0 && limit < values.size() ? new ArrayList(values.subList(0, limit)) : values;
+        }
+        final Comparator comparator = createValueComparator(values.get(0), propNames, isAsc);
+        if(limit <= 0 || limit >= values.size()){
+            Collections.sort(values, comparator);
+            return values;
+        }
+        final PriorityQueue heap = new PriorityQueue(limit + 1, Collections.reverseOrder(comparator));
+        for(int i = 0, imax = values.size(); i < imax; i++){
+            heap.offer(values.get(i));
+            if(heap.size() > limit){
+                heap.poll();
+            }
+        }
+        final List result = new ArrayList(heap);
+        Collections.sort(result, comparator);
+        return result;
+    }
+    
+    /**
+     * このサーバが保持する値から、指定されたキーの値を集計する。<p>
+     *
+     * @param keys キーの集合。nullの場合は、全てのキー
+     * @param propName 集計対象のプロパティ名
+     * @param groupByPropNames グループ化するプロパティ名の配列
+     * @return グループのキーと集計結果のマップ
+     */
+    protected Map aggregateViewLocal(Set keys, String propName, String[] groupByPropNames){
+        return SharedContextAggregate.aggregate(getValuesLocal(keys).iterator(), propName, groupByPropNames);
+    }
+    
+    private List getValuesLocal(Set keys){
+        Object[] keyArray = null;
+        if(keys == null){
+            synchronized(context){
+                keyArray = super.keySet().toArray();
+            }
+        }else{
+            keyArray = keys.toArray();
+        }
+        final List values = new ArrayList(keyArray.length);
+        for(int i = 0; i < keyArray.length; i++){
+            final Object value = getLocal(keyArray[i]);
+            if(value != null){
+                values.add(value);
+            }
+        }
+        return values;
+    }
+    
+    /**
+     * 値をソートする比較器を生成する。<p>
+     *
+     * @param template 値の雛形
+     * @param propNames ソートキーとなるプロパティ名の配列
+     * @param isAsc ソート方向を示すフラグの配列
+     * @return 比較器
+     */
+    protected static Comparator createValueComparator(Object template, String[] propNames, boolean[] isAsc){
+        if(template instanceof Record){
+            return new RecordList.RecordComparator(propNames, isAsc);
+        }else{
+            return new BeanTableView.BeanComparator(template.getClass(), propNames, isAsc);
+        }
+    }
+    
+    /**
+     * 検索ビューの問い合わせを主ノードに送信して、応答を受け取る。<p>
+     *
+     * @param event 問い合わせイベント
+     * @param timeout タイムアウト[ms]
+     * @return 応答
+     * @exception SharedContextSendException 主ノードへのメッセージ送信に失敗した場合
+     * @exception SharedContextTimeoutException 主ノードからの応答待ちでタイムアウトした場合
+     */
+    protected Object requestViewQuery(SharedContextEvent event, long timeout) throws SharedContextSendException, SharedContextTimeoutException{
+        try{
+            Message message = serverConnection.createMessage(subject, null);
+            Set receiveClients = serverConnection.getReceiveClientIds(message);
+            if(receiveClients.size() == 0){
+                throw new NoConnectServerException();
+            }
+            message.setObject(event);
+            Message[] responses = serverConnection.request(
+                message,
+                clientSubject,
+                null,
+                1,
+                timeout
+            );
+            Object ret = responses[0].getObject();
+            responses[0].recycle();
+            if(ret instanceof Throwable){
+                if(ret instanceof RuntimeException){
+                    throw (RuntimeException)ret;
+                }else if(ret instanceof Error){
+                    throw (Error)ret;
+                }else{
+                    throw new SharedContextSendException((Throwable)ret);
+                }
+            }
+            return ret;
+        }catch(MessageException e){
+            throw new SharedContextSendException(e);
+        }catch(MessageSendException e){
+            throw new SharedContextSendException(e);
+        }catch(RequestTimeoutException e){
+            throw new SharedContextTimeoutException(e);
+        }
     }
     
     public void healthCheck(boolean isContainsClient, long timeout) throws SharedContextSendException, SharedContextTimeoutException{
@@ -4015,6 +4809,7 @@ public class SharedContextService extends DefaultContextService
                 while(ids.hasNext()){
                     Object id = ids.next();
                     updateLock.releaseForLock(id);
+                    synchronizeSessionMap.remove(id);
                 }
             }
             isMain = isMain(newMembers, null);
@@ -4084,6 +4879,9 @@ public class SharedContextService extends DefaultContextService
         case SharedContextEvent.EVENT_RELEASE_LOCKS:
             onReleaseLocks(event);
             break;
+        case SharedContextEvent.EVENT_BATCH:
+            onBatch(event);
+            break;
         default:
         }
     }
@@ -4120,6 +4918,9 @@ public class SharedContextService extends DefaultContextService
         case SharedContextEvent.EVENT_GET_ALL:
             result = onGetAll(event, sourceId, sequence, responseSubject, responseKey);
             break;
+        case SharedContextEvent.EVENT_GET_CHUNK:
+            result = onGetChunk(event, sourceId, sequence, responseSubject, responseKey);
+            break;
         case SharedContextEvent.EVENT_KEY_SET:
             result = onKeySet(event, sourceId, sequence, responseSubject, responseKey);
             break;
@@ -4186,6 +4987,12 @@ public class SharedContextService extends DefaultContextService
         case SharedContextEvent.EVENT_GET_UPDATE_TEMPLATE:
             result = onGetUpdateTemplate(event, sourceId, sequence, responseSubject, responseKey);
             break;
+        case SharedContextEvent.EVENT_GET_VIEW_VALUES:
+            result = onGetViewValues(event, sourceId, sequence, responseSubject, responseKey);
+            break;
+        case SharedContextEvent.EVENT_AGGREGATE_VIEW:
+            result = onAggregateView(event, sourceId, sequence, responseSubject, responseKey);
+            break;
         default:
         }
         return result;
@@ -4230,14 +5037,20 @@ public class SharedContextService extends DefaultContextService
         Object old = null;
         final boolean isContainsKey = super.containsKey(event.key);
         if(isClient){
-            if(isContainsKey && (!isThinClient || cacheMap != null)){
-                old = super.put(event.key, wrapCachedReference(event.key, event.value));
+            if(isContainsKey && isCacheOnClient()){
+                if(isStaleNearCache(event.key, event.value)){
+                    old = super.remove(event.key);
+                    removeNearCache(event.key);
+                    nearCacheInvalidateCount++;
+                }else{
+                    old = super.put(event.key, wrapCachedReference(event.key, event.value));
+                }
                 old = unwrapCachedReference(old, false, true);
             }else if(clientCacheLockMap.containsKey(event.key)){
                 ClientCacheLock lock = (ClientCacheLock)clientCacheLockMap.get(event.key);
                 if(lock != null){
                     synchronized(lock){
-                        if(super.containsKey(event.key) && (!isThinClient || cacheMap != null)){
+                        if(super.containsKey(event.key) && isCacheOnClient()){
                             old = super.put(event.key, wrapCachedReference(event.key, event.value));
                             old = unwrapCachedReference(old, false, true);
                         }else{
@@ -4296,14 +5109,14 @@ public class SharedContextService extends DefaultContextService
                 Object old = null;
                 final boolean isContainsKey = super.containsKey(entry.getKey());
                 if(isClient){
-                    if(isContainsKey && (!isThinClient || cacheMap != null)){
+                    if(isContainsKey && isCacheOnClient()){
                         old = super.put(entry.getKey(), wrapCachedReference(entry.getKey(), entry.getValue()));
                         old = unwrapCachedReference(old, false, true);
                     }else if(clientCacheLockMap.containsKey(entry.getKey())){
                         ClientCacheLock lock = (ClientCacheLock)clientCacheLockMap.get(entry.getKey());
                         if(lock != null){
                             synchronized(lock){
-                                if(super.containsKey(entry.getKey()) && (!isThinClient || cacheMap != null)){
+                                if(super.containsKey(entry.getKey()) && isCacheOnClient()){
                                     old = super.put(entry.getKey(), wrapCachedReference(entry.getKey(), entry.getValue()));
                                     old = unwrapCachedReference(old, false, true);
                                 }else{
@@ -4341,14 +5154,20 @@ public class SharedContextService extends DefaultContextService
         Object old = null;
         final boolean isContainsKey = super.containsKey(event.key);
         if(isClient){
-            if(isContainsKey && (!isThinClient || cacheMap != null)){
-                old = super.put(event.key, wrapCachedReference(event.key, event.value));
+            if(isContainsKey && isCacheOnClient()){
+                if(isStaleNearCache(event.key, event.value)){
+                    old = super.remove(event.key);
+                    removeNearCache(event.key);
+                    nearCacheInvalidateCount++;
+                }else{
+                    old = super.put(event.key, wrapCachedReference(event.key, event.value));
+                }
                 old = unwrapCachedReference(old, false, true);
             }else if(clientCacheLockMap.containsKey(event.key)){
                 ClientCacheLock lock = (ClientCacheLock)clientCacheLockMap.get(event.key);
                 if(lock != null){
                     synchronized(lock){
-                        if(super.containsKey(event.key) && (!isThinClient || cacheMap != null)){
+                        if(super.containsKey(event.key) && isCacheOnClient()){
                             old = super.put(event.key, wrapCachedReference(event.key, event.value));
                             old = unwrapCachedReference(old, false, true);
                         }else{
@@ -4397,6 +5216,9 @@ public class SharedContextService extends DefaultContextService
                 if(isClient){
                     Object removed = super.remove(event.key);
                     removed = unwrapCachedReference(removed, false, true);
+                }else if(isSynchronizingByChunk){
+                    // まだ反映していないチャンクのキーは、後のチャンクで更新後の値を受け取る
+                    return sourceId == null ? null : createResponseMessage(responseSubject, responseKey, null);
                 }else if(!ifExists){
                     return sourceId == null ? null : createResponseMessage(responseSubject, responseKey, new SharedContextUpdateException("Current value is null. key=" + event.key));
                 }
@@ -4571,6 +5393,9 @@ public class SharedContextService extends DefaultContextService
         }
         Object removed = super.remove(event.key);
         removed = unwrapCachedReference(removed, false, true);
+        if(isClient){
+            removeNearCache(event.key);
+        }
         if(!isClient || isEnabledIndexOnClient){
             indexManager.remove(event.key, removed);
         }
@@ -4582,6 +5407,45 @@ public class SharedContextService extends DefaultContextService
         return sourceId == null ? null : createResponseMessage(responseSubject, responseKey, isMain(sourceId) ? removed : null);
     }
     
+    /**
+     * まとめて送信された非同期更新イベントを反映する。<p>
+     * 更新ロック、参照ロックの順に、バッチ全体で1回だけ使用を開始して、各イベントを反映する。<br>
+     * メッセージ受信スレッドで待機すると、ロックの解放メッセージを受信できなくなるため、他のノードがロックを保持している場合も待たない。<br>
+     *
+     * @param event バッチイベント
+     */
+    protected void onBatch(SharedContextEvent event){
+        final List events = (List)event.value;
+        if(events == null){
+            return;
+        }
+        updateLock.acquireForUseWithoutWait();
+        try{
+            referLock.acquireForUseWithoutWait();
+            try{
+                for(int i = 0, imax = events.size(); i < imax; i++){
+                    final SharedContextEvent e = (SharedContextEvent)events.get(i);
+                    switch(e.type){
+                    case SharedContextEvent.EVENT_PUT:
+                        onPut(e);
+                        break;
+                    case SharedContextEvent.EVENT_UPDATE:
+                        onUpdate(e);
+                        break;
+                    case SharedContextEvent.EVENT_REMOVE:
+                        onRemove(e);
+                        break;
+                    default:
+                    }
+                }
+            }finally{
+                referLock.releaseForUse();
+            }
+        }finally{
+            updateLock.releaseForUse();
+        }
+    }
+    
     protected void onClear(SharedContextEvent event){
         onClear(event, null, -1, null, null);
     }
@@ -4658,6 +5522,53 @@ public class SharedContextService extends DefaultContextService
         }
     }
     
+    protected Message onGetChunk(final SharedContextEvent event, final Object sourceId, final int sequence, final String responseSubject, final String responseKey){
+        if(!isMain(sourceId)){
+            return null;
+        }
+        final Object[] params = (Object[])event.value;
+        final int offset = ((Integer)params[0]).intValue();
+        final int size = ((Integer)params[1]).intValue();
+        SynchronizeSession session = null;
+        if(offset == 0){
+            Object[] keys = null;
+            synchronized(context){
+                keys = super.keySet().toArray();
+            }
+            session = new SynchronizeSession(keys);
+            synchronizeSessionMap.put(event.key, session);
+        }else{
+            session = (SynchronizeSession)synchronizeSessionMap.get(event.key);
+            if(session == null || offset > session.keys.length){
+                return createResponseMessage(responseSubject, responseKey, null);
+            }
+        }
+        session.lastAccessTime = System.currentTimeMillis();
+        final int end = Math.min(offset + size, session.keys.length);
+        if(end >= session.keys.length && synchronizeSessionTimeout <= 0){
+            // 破棄するタイマーがないため、最後のチャンクを返した時点で破棄する
+            synchronizeSessionMap.remove(event.key, session);
+        }
+        final Map result = new LinkedHashMap();
+        for(int i = offset; i < end; i++){
+            final Object key = session.keys[i];
+            if(cacheMap == null){
+                synchronized(context){
+                    if(context.containsKey(key)){
+                        result.put(key, context.get(key));
+                    }
+                }
+            }else if(cacheMap.containsKey(key)){
+                result.put(key, cacheMap.get(key));
+            }
+        }
+        return createResponseMessage(
+            responseSubject,
+            responseKey,
+            new Object[]{new Integer(end < session.keys.length ? end : -1), result}
+        );
+    }
+    
     protected Message onKeySet(final SharedContextEvent event, final Object sourceId, final int sequence, final String responseSubject, final String responseKey){
         if(isMain(sourceId)){
             Set result = new HashSet();
@@ -5339,6 +6250,43 @@ public class SharedContextService extends DefaultContextService
             return null;
         }
     }
+    
+    protected Message onGetViewValues(final SharedContextEvent event, final Object sourceId, final int sequence, final String responseSubject, final String responseKey){
+        if(!isMain(sourceId)){
+            return null;
+        }
+        final Object[] args = (Object[])event.value;
+        Object result = null;
+        try{
+            result = getViewValuesLocal(
+                (Set)event.key,
+                (String[])args[0],
+                (boolean[])args[1],
+                ((Integer)args[2]).intValue()
+            );
+        }catch(Throwable th){
+            result = th;
+        }
+        return createResponseMessage(responseSubject, responseKey, result);
+    }
+    
+    protected Message onAggregateView(final SharedContextEvent event, final Object sourceId, final int sequence, final String responseSubject, final String responseKey){
+        if(!isMain(sourceId)){
+            return null;
+        }
+        final Object[] args = (Object[])event.value;
+        Object result = null;
+        try{
+            result = aggregateViewLocal(
+                (Set)event.key,
+                (String)args[0],
+                (String[])args[1]
+            );
+        }catch(Throwable th){
+            result = th;
+        }
+        return createResponseMessage(responseSubject, responseKey, result);
+    }
 
     
     protected void onExecuteInterpret(final SharedContextEvent event, final Object sourceId, final int sequence, final String responseSubject, final String responseKey){
@@ -5447,6 +6395,10 @@ public class SharedContextService extends DefaultContextService
         public static final byte EVENT_GOT_LOCKS           = (byte)29;
         public static final byte EVENT_RELEASE_LOCKS       = (byte)30;
         public static final byte EVENT_GET_UPDATE_TEMPLATE = (byte)31;
+        public static final byte EVENT_GET_CHUNK           = (byte)32;
+        public static final byte EVENT_GET_VIEW_VALUES     = (byte)33;
+        public static final byte EVENT_AGGREGATE_VIEW      = (byte)34;
+        public static final byte EVENT_BATCH               = (byte)35;
         
         public byte type;
         public Object key;
@@ -5492,6 +6444,31 @@ public class SharedContextService extends DefaultContextService
         }
     }
     
+    protected static class SynchronizeSession{
+        protected final Object[] keys;
+        protected volatile long lastAccessTime;
+        
+        public SynchronizeSession(Object[] keys){
+            this.keys = keys;
+        }
+    }
+    
+    /**
+     * {@link #setSynchronizeSessionTimeout(long)}の間、チャンクの要求がない分割同期の途中状態を破棄するタスク。<p>
+     */
+    protected class SynchronizeSessionExpireTask extends TimerTask{
+        public void run(){
+            final long now = System.currentTimeMillis();
+            final Iterator sessions = synchronizeSessionMap.values().iterator();
+            while(sessions.hasNext()){
+                SynchronizeSession session = (SynchronizeSession)sessions.next();
+                if(now - session.lastAccessTime > synchronizeSessionTimeout){
+                    sessions.remove();
+                }
+            }
+        }
+    }
+    
     protected class Lock{
         protected Object key;
         protected Object owner;
@@ -6180,6 +7157,16 @@ public class SharedContextService extends DefaultContextService
             return true;
         }
         
+        /**
+         * ロックの保持者を待たずに、使用を開始する。<p>
+         * 使用中は、新たなロックの取得を待たせる。<br>
+         */
+        public void acquireForUseWithoutWait(){
+            synchronized(useMonitor){
+                useCount++;
+            }
+        }
+        
         public void releaseForUse(){
             synchronized(useMonitor){
                 if(useCount > 0){
@@ -6717,7 +7704,7 @@ public class SharedContextService extends DefaultContextService
         protected static final int OPERATOR_CIMP  = 9;
         protected static final int OPERATOR_CNIMP = 10;
         
-        protected Set resultSet;
+        protected ElementBitmap resultBitmap;
         protected int operator = OPERATOR_AND;
         
         /**
@@ -6727,7 +7714,7 @@ public class SharedContextService extends DefaultContextService
         }
         
         public Set getResultSet(){
-            return resultSet == null ? indexManager.keySet() : resultSet;
+            return resultBitmap == null ? indexManager.keySet() : indexManager.toKeySet(resultBitmap);
         }
         
         public Set getResultValueSet() throws SharedContextSendException, SharedContextTimeoutException{
@@ -6800,6 +7787,42 @@ public class SharedContextService extends DefaultContextService
             return resultValueList;
         }
         
+        public List getResultValueList(long timeout, String[] propNames, boolean[] isAsc, int limit) throws SharedContextSendException, SharedContextTimeoutException{
+            final Set keys = resultBitmap == null ? null : getResultSet();
+            if(keys != null && keys.size() == 0){
+                return new ArrayList();
+            }
+            if(!isClient){
+                return getViewValuesLocal(keys, propNames, isAsc, limit);
+            }
+            return (List)requestViewQuery(
+                new SharedContextEvent(
+                    SharedContextEvent.EVENT_GET_VIEW_VALUES,
+                    keys,
+                    new Object[]{propNames, isAsc, new Integer(limit)}
+                ),
+                timeout
+            );
+        }
+        
+        public Map aggregate(long timeout, String propName, String[] groupByPropNames) throws SharedContextSendException, SharedContextTimeoutException{
+            final Set keys = resultBitmap == null ? null : getResultSet();
+            if(keys != null && keys.size() == 0){
+                return new HashMap();
+            }
+            if(!isClient){
+                return aggregateViewLocal(keys, propName, groupByPropNames);
+            }
+            return (Map)requestViewQuery(
+                new SharedContextEvent(
+                    SharedContextEvent.EVENT_AGGREGATE_VIEW,
+                    keys,
+                    new Object[]{propName, groupByPropNames}
+                ),
+                timeout
+            );
+        }
+        
         public SharedContextView and(){
             operator = OPERATOR_AND;
             return this;
@@ -6851,143 +7874,118 @@ public class SharedContextService extends DefaultContextService
         }
         
         protected void operate(Set keys){
-            if(keys == null){
-                keys = new HashSet(0);
+            final ElementBitmap bitmap = keys == null ? new ElementBitmap() : indexManager.toKeyBitmap(keys);
+            if(resultBitmap == null){
+                resultBitmap = bitmap;
+                return;
             }
             switch(operator){
             case OPERATOR_OR:
-                resultSet.addAll(keys);
+                resultBitmap.or(bitmap);
                 break;
             case OPERATOR_NAND:
-                resultSet.retainAll(keys);
-                Set all = indexManager.keySet();
-                all.removeAll(resultSet);
-                resultSet = all;
+                resultBitmap = indexManager.keyBitmap().andNot(resultBitmap.and(bitmap));
                 break;
             case OPERATOR_NOR:
-                resultSet.addAll(keys);
-                all = indexManager.keySet();
-                all.removeAll(resultSet);
-                resultSet = all;
+                resultBitmap = indexManager.keyBitmap().andNot(resultBitmap.or(bitmap));
                 break;
             case OPERATOR_XOR:
-                Set tmpSet = new HashSet(resultSet);
-                tmpSet.retainAll(keys);
-                resultSet.addAll(keys);
-                resultSet.removeAll(tmpSet);
+                resultBitmap.xor(bitmap);
                 break;
             case OPERATOR_XNOR:
-                tmpSet = new HashSet(resultSet);
-                tmpSet.retainAll(keys);
-                resultSet.addAll(keys);
-                resultSet.removeAll(tmpSet);
-                tmpSet = indexManager.keySet();
-                tmpSet.removeAll(resultSet);
-                resultSet = tmpSet;
+                resultBitmap = indexManager.keyBitmap().andNot(resultBitmap.xor(bitmap));
                 break;
             case OPERATOR_IMP:
-                all = indexManager.keySet();
-                all.removeAll(resultSet);
-                all.addAll(keys);
-                resultSet = all;
+                resultBitmap = indexManager.keyBitmap().andNot(resultBitmap).or(bitmap);
                 break;
             case OPERATOR_NIMP:
-                resultSet.removeAll(keys);
+                resultBitmap.andNot(bitmap);
                 break;
             case OPERATOR_CIMP:
-                all = indexManager.keySet();
-                all.removeAll(keys);
-                all.addAll(resultSet);
-                resultSet = all;
+                resultBitmap = indexManager.keyBitmap().andNot(bitmap).or(resultBitmap);
                 break;
             case OPERATOR_CNIMP:
-                Set targetSet = new HashSet(keys);
-                targetSet.removeAll(resultSet);
-                resultSet = targetSet;
+                resultBitmap = bitmap.andNot(resultBitmap);
                 break;
             case OPERATOR_AND:
             default:
-                resultSet.retainAll(keys);
+                resultBitmap.and(bitmap);
+            }
+        }
+        
+        protected SharedContextIndexManager getIndexManager(){
+            return indexManager;
+        }
+        
+        protected ElementBitmap getResultBitmap(){
+            if(resultBitmap == null){
+                resultBitmap = indexManager.keyBitmap();
+            }
+            return resultBitmap;
+        }
+        
+        protected ElementBitmap toKeyBitmap(SharedContextView view){
+            if(view instanceof SharedContextViewImpl
+                && ((SharedContextViewImpl)view).getIndexManager() == indexManager){
+                ElementBitmap bitmap = ((SharedContextViewImpl)view).resultBitmap;
+                return bitmap == null ? indexManager.keyBitmap() : (ElementBitmap)bitmap.clone();
+            }else{
+                return indexManager.toKeyBitmap(view.getResultSet());
             }
         }
         
         public SharedContextView not(){
-            Set all = indexManager.keySet();
-            all.removeAll(resultSet);
-            resultSet = all;
+            resultBitmap = indexManager.keyBitmap().andNot(getResultBitmap());
             return this;
         }
         
         public SharedContextView and(SharedContextView view){
-            resultSet.retainAll(view.getResultSet());
+            getResultBitmap().and(toKeyBitmap(view));
             return this;
         }
         
         public SharedContextView or(SharedContextView view){
-            resultSet.addAll(view.getResultSet());
+            getResultBitmap().or(toKeyBitmap(view));
             return this;
         }
         
         public SharedContextView nand(SharedContextView view){
-            resultSet.retainAll(view.getResultSet());
-            Set all = indexManager.keySet();
-            all.removeAll(resultSet);
-            resultSet = all;
+            resultBitmap = indexManager.keyBitmap().andNot(getResultBitmap().and(toKeyBitmap(view)));
             return this;
         }
         
         public SharedContextView nor(SharedContextView view){
-            resultSet.addAll(view.getResultSet());
-            Set all = indexManager.keySet();
-            all.removeAll(resultSet);
-            resultSet = all;
+            resultBitmap = indexManager.keyBitmap().andNot(getResultBitmap().or(toKeyBitmap(view)));
             return this;
         }
         
         public SharedContextView xor(SharedContextView view){
-            Set andSet = new HashSet(resultSet);
-            andSet.retainAll(view.getResultSet());
-            resultSet.addAll(view.getResultSet());
-            resultSet.removeAll(andSet);
+            getResultBitmap().xor(toKeyBitmap(view));
             return this;
         }
         
         public SharedContextView xnor(SharedContextView view){
-            Set tmpSet = new HashSet(resultSet);
-            tmpSet.retainAll(view.getResultSet());
-            resultSet.addAll(view.getResultSet());
-            resultSet.removeAll(tmpSet);
-            tmpSet = indexManager.keySet();
-            tmpSet.removeAll(resultSet);
-            resultSet = tmpSet;
+            resultBitmap = indexManager.keyBitmap().andNot(getResultBitmap().xor(toKeyBitmap(view)));
             return this;
         }
         
         public SharedContextView imp(SharedContextView view){
-            Set all = indexManager.keySet();
-            all.removeAll(resultSet);
-            all.addAll(view.getResultSet());
-            resultSet = all;
+            resultBitmap = indexManager.keyBitmap().andNot(getResultBitmap()).or(toKeyBitmap(view));
             return this;
         }
         
         public SharedContextView nimp(SharedContextView view){
-            resultSet.removeAll(view.getResultSet());
+            getResultBitmap().andNot(toKeyBitmap(view));
             return this;
         }
         
         public SharedContextView cimp(SharedContextView view){
-            Set all = indexManager.keySet();
-            all.removeAll(view.getResultSet());
-            all.addAll(resultSet);
-            resultSet = all;
+            resultBitmap = indexManager.keyBitmap().andNot(toKeyBitmap(view)).or(getResultBitmap());
             return this;
         }
         
         public SharedContextView cnimp(SharedContextView view){
-            Set targetSet = new HashSet(view.getResultSet());
-            targetSet.removeAll(resultSet);
-            resultSet = targetSet;
+            resultBitmap = toKeyBitmap(view).andNot(getResultBitmap());
             return this;
         }
         
@@ -7037,14 +8035,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -7056,14 +8047,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchKey(resultSet, indexName, propNames);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchKey(indexName, propNames));
-                    }
+                    operate(indexManager.searchKey(indexName, propNames));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -7118,14 +8102,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -7137,14 +8114,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchNull(new HashSet(), indexName, propName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchNull(indexName, propName));
-                    }
+                    operate(indexManager.searchNull(indexName, propName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -7198,14 +8168,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -7217,14 +8180,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchNotNull(new HashSet(), indexName, propName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchNotNull(indexName, propName));
-                    }
+                    operate(indexManager.searchNotNull(indexName, propName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -7288,14 +8244,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -7307,14 +8256,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchBy(new HashSet(), value, indexName, propNames);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchBy(value, indexName, propNames));
-                    }
+                    operate(indexManager.searchBy(value, indexName, propNames));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -7378,14 +8320,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -7397,14 +8332,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchIn(resultSet, indexName, propNames, values);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchIn(indexName, propNames, values));
-                    }
+                    operate(indexManager.searchIn(indexName, propNames, values));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -7468,14 +8396,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -7487,14 +8408,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchByProperty(new HashSet(), prop, indexName, propName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchByProperty(prop, indexName, propName));
-                    }
+                    operate(indexManager.searchByProperty(prop, indexName, propName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -7558,14 +8472,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -7577,14 +8484,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchInProperty(resultSet, indexName, propName, props);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchInProperty(indexName, propName, props));
-                    }
+                    operate(indexManager.searchInProperty(indexName, propName, props));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -7646,14 +8546,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -7665,14 +8558,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchByProperty(new HashSet(), props, indexName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchByProperty(props, indexName));
-                    }
+                    operate(indexManager.searchByProperty(props, indexName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -7734,14 +8620,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -7753,14 +8632,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchInProperty(resultSet, indexName, props);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchInProperty(indexName, props));
-                    }
+                    operate(indexManager.searchInProperty(indexName, props));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -7824,14 +8696,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -7843,14 +8708,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchFrom(fromValue, indexName, propName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchFrom(fromValue, indexName, propName));
-                    }
+                    operate(indexManager.searchFrom(fromValue, indexName, propName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -7914,14 +8772,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -7933,14 +8784,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchFromProperty(fromProp, indexName, propName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchFromProperty(fromProp, indexName, propName));
-                    }
+                    operate(indexManager.searchFromProperty(fromProp, indexName, propName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -8004,14 +8848,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -8023,14 +8860,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchTo(toValue, indexName, propName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchTo(toValue, indexName, propName));
-                    }
+                    operate(indexManager.searchTo(toValue, indexName, propName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -8094,14 +8924,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -8113,14 +8936,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchToProperty(toProp, indexName, propName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchToProperty(toProp, indexName, propName));
-                    }
+                    operate(indexManager.searchToProperty(toProp, indexName, propName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -8186,14 +9002,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -8205,14 +9014,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchRange(fromValue, toValue, indexName, propName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchRange(fromValue, toValue, indexName, propName));
-                    }
+                    operate(indexManager.searchRange(fromValue, toValue, indexName, propName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -8278,14 +9080,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -8297,14 +9092,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchRangeProperty(fromProp, toProp, indexName, propName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchRangeProperty(fromProp, toProp, indexName, propName));
-                    }
+                    operate(indexManager.searchRangeProperty(fromProp, toProp, indexName, propName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -8370,14 +9158,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -8389,14 +9170,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchFrom(fromValue, inclusive, indexName, propName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchFrom(fromValue, inclusive, indexName, propName));
-                    }
+                    operate(indexManager.searchFrom(fromValue, inclusive, indexName, propName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -8462,14 +9236,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -8481,14 +9248,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchFromProperty(fromProp, inclusive, indexName, propName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchFromProperty(fromProp, inclusive, indexName, propName));
-                    }
+                    operate(indexManager.searchFromProperty(fromProp, inclusive, indexName, propName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -8554,14 +9314,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -8573,14 +9326,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchTo(toValue, inclusive, indexName, propName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchTo(toValue, inclusive, indexName, propName));
-                    }
+                    operate(indexManager.searchTo(toValue, inclusive, indexName, propName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -8646,14 +9392,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -8665,14 +9404,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchToProperty(toProp, inclusive, indexName, propName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchToProperty(toProp, inclusive, indexName, propName));
-                    }
+                    operate(indexManager.searchToProperty(toProp, inclusive, indexName, propName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -8742,14 +9474,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -8761,14 +9486,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchRange(fromValue, fromInclusive, toValue, toInclusive, indexName, propName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchRange(fromValue, fromInclusive, toValue, toInclusive, indexName, propName));
-                    }
+                    operate(indexManager.searchRange(fromValue, fromInclusive, toValue, toInclusive, indexName, propName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -8838,14 +9556,7 @@ public class SharedContextService extends DefaultContextService
                                 }
                             }
                             Set result = (Set)ret;
-                            if(resultSet == null){
-                                resultSet = result;
-                                if(resultSet == null){
-                                    resultSet = new HashSet();
-                                }
-                            }else{
-                                operate(result);
-                            }
+                            operate(result);
                         }else{
                             throw new NoConnectServerException();
                         }
@@ -8857,14 +9568,7 @@ public class SharedContextService extends DefaultContextService
                         throw new SharedContextTimeoutException(e);
                     }
                 }else{
-                    if(resultSet == null){
-                        resultSet = indexManager.searchRangeProperty(fromProp, fromInclusive, toProp, toInclusive, indexName, propName);
-                        if(resultSet == null){
-                            resultSet = new HashSet();
-                        }
-                    }else{
-                        operate(indexManager.searchRangeProperty(fromProp, fromInclusive, toProp, toInclusive, indexName, propName));
-                    }
+                    operate(indexManager.searchRangeProperty(fromProp, fromInclusive, toProp, toInclusive, indexName, propName));
                 }
             }finally{
                 referLock.releaseForUse();
@@ -8879,8 +9583,8 @@ public class SharedContextService extends DefaultContextService
                 clone = (SharedContextViewImpl)super.clone();
             }catch(CloneNotSupportedException e){
             }
-            if(resultSet != null){
-                clone.resultSet = new HashSet(resultSet);
+            if(resultBitmap != null){
+                clone.resultBitmap = (ElementBitmap)resultBitmap.clone();
             }
             operator = OPERATOR_AND;
             return clone;
@@ -8927,6 +9631,35 @@ public class SharedContextService extends DefaultContextService
         }
     }
     
+    /**
+     * 同一キーに対して溜まっている非同期更新イベントのリスト。<p>
+     * putの値を複製して溜めた場合は、複製元の値を保持する。<br>
+     */
+    protected static class AsynchBatchEvents extends ArrayList{
+        
+        private static final long serialVersionUID = 4460297153287380412L;
+        
+        protected Object source;
+    }
+    
+    protected class AsynchBatchSender implements DaemonRunnable{
+        public boolean onStart(){return true;}
+        public boolean onStop(){return true;}
+        public boolean onSuspend(){return true;}
+        public boolean onResume(){return true;}
+        
+        public Object provide(DaemonControl ctrl) throws Throwable{
+            ctrl.sleep(asynchBatchInterval, false);
+            return null;
+        }
+        
+        public void consume(Object received, DaemonControl ctrl) throws Throwable{
+            flushAsynchBatch(true);
+        }
+        
+        public void garbage(){}
+    }
+    
     protected class ForcedLockTimeoutChecker implements DaemonRunnable{
         public boolean onStart(){return true;}
         public boolean onStop(){return true;}
@@ -54,6 +54,11 @@ public interface SharedContextServiceMBean extends DefaultContextServiceMBean{
      */
     public static final String CLIENT_SUBJECT_SUFFIX = ".Client";
     
+    /**
+     * 非同期更新をまとめて送信する際のデフォルトの最大イベント数。<p>
+     */
+    public static final int DEFAULT_ASYNCH_BATCH_SIZE = 1000;
+    
     /**
      * {@link jp.ossc.nimbus.service.publish.RequestConnectionFactoryService RequestConnectionFactoryService}サービスのサービス名を設定する。<p>
      * 
@@ -255,6 +260,41 @@ public interface SharedContextServiceMBean extends DefaultContextServiceMBean{
      */
     public boolean isThinClient();
     
+    /**
+     * Thinクライアントモードの場合に、サーバから取得した値をローカルに保持するニアキャッシュの最大数を設定する。<p>
+     * 0より大きい値を設定すると、Thinクライアントは{@link SharedContext#get(Object)}でサーバから取得した値をローカルに保持し、以降の参照ではサーバに問い合わせない。<br>
+     * 保持している値は、サーバからの更新通知によって更新または削除される。最大数を超えた場合は、最も参照されていないキーから削除する。<br>
+     * また、受信した値の更新バージョン({@link SharedContextValueDifferenceSupport#getUpdateVersion()})が、保持している値よりも古い場合は、保持している値を削除して、次回の参照時にサーバから取得し直す。<br>
+     * デフォルトは、-1で、ニアキャッシュを使用しない。<br>
+     *
+     * @param size ニアキャッシュの最大数
+     * @see #setThinClient(boolean)
+     */
+    public void setNearCacheSize(int size);
+    
+    /**
+     * Thinクライアントモードの場合に、サーバから取得した値をローカルに保持するニアキャッシュの最大数を取得する。<p>
+     *
+     * @return ニアキャッシュの最大数
+     */
+    public int getNearCacheSize();
+    
+    /**
+     * ニアキャッシュに保持した値の有効期間[ms]を設定する。<p>
+     * サーバから取得してからこの時間を過ぎた値は、次回の参照時にサーバから取得し直す。更新通知を取りこぼした場合に、古い値を参照し続ける期間の上限となる。<br>
+     * デフォルトは、-1で、有効期間なし。<br>
+     *
+     * @param time 有効期間[ms]
+     */
+    public void setNearCacheExpireTime(long time);
+    
+    /**
+     * ニアキャッシュに保持した値の有効期間[ms]を取得する。<p>
+     *
+     * @return 有効期間[ms]
+     */
+    public long getNearCacheExpireTime();
+    
     /**
      * クライアントモードの時に、ローカルのインデックスを有効化するかどうかを設定する。<p>
      * デフォルトは、trueで有効。<br>
@@ -286,6 +326,76 @@ public interface SharedContextServiceMBean extends DefaultContextServiceMBean{
      */
     public long getSynchronizeTimeout();
     
+    /**
+     * 同期時に、主ノードからデータを分割して取得する場合の1回あたりの件数を設定する。<p>
+     * 0より大きい値を指定すると、全データを1つのメッセージで取得する代わりに、指定した件数ずつ順番に取得して、取得する毎にデータとインデックスに反映する。大量のデータを持つコンテキストの同期で、一度に大きなメッセージを送受信しないようにする。<br>
+     * この場合、{@link #setSynchronizeTimeout(long)}で指定したタイムアウトは、チャンクの取得毎に適用される。<br>
+     * また、他のノードの更新ロックは同期の間ずっとではなく、チャンクの取得毎に取得する。同期中のノードは、最後のチャンクを反映するまで、自ノードでの参照と更新を待たせる。<br>
+     * 同期中のノードは、まだ受け取っていないキーに対する差分更新を、後のチャンクで更新後の値を受け取るため読み捨てる。<br>
+     * 同期するノード全てで、この機能に対応している必要がある。<br>
+     * デフォルトは、0で分割しない。<br>
+     *
+     * @param size 1回あたりの件数
+     */
+    public void setSynchronizeChunkSize(int size);
+    
+    /**
+     * 同期時に、主ノードからデータを分割して取得する場合の1回あたりの件数を取得する。<p>
+     *
+     * @return 1回あたりの件数
+     */
+    public int getSynchronizeChunkSize();
+    
+    /**
+     * 分割して同期する時に、チャンクの取得に失敗した場合のリトライ回数を設定する。<p>
+     * リトライ時は、最後に反映したチャンクの続きから取得し直す。<br>
+     * デフォルトは、3。<br>
+     *
+     * @param count リトライ回数
+     */
+    public void setSynchronizeChunkRetryCount(int count);
+    
+    /**
+     * 分割して同期する時に、チャンクの取得に失敗した場合のリトライ回数を取得する。<p>
+     *
+     * @return リトライ回数
+     */
+    public int getSynchronizeChunkRetryCount();
+    
+    /**
+     * 分割して同期する時に、チャンクの取得に失敗した場合のリトライ間隔[ms]を設定する。<p>
+     * デフォルトは、1000[ms]。<br>
+     *
+     * @param interval リトライ間隔[ms]
+     */
+    public void setSynchronizeChunkRetryInterval(long interval);
+    
+    /**
+     * 分割して同期する時に、チャンクの取得に失敗した場合のリトライ間隔[ms]を取得する。<p>
+     *
+     * @return リトライ間隔[ms]
+     */
+    public long getSynchronizeChunkRetryInterval();
+    
+    /**
+     * 主ノードとして、分割同期の途中状態を保持する時間[ms]を設定する。<p>
+     * 同期中のノードから、この時間以上チャンクの要求がない場合は、この時間間隔で動作するタイマーで途中状態を破棄する。破棄した後に続きを要求されると、同期中のノードは最初から同期し直す。<br>
+     * 最後のチャンクを返した後も、応答が失われた場合に再要求できるように、この時間が経過するまで途中状態を保持する。同期中のノードがクラスタから離脱した場合は、直ちに破棄する。<br>
+     * 途中状態は主ノードだけが保持するため、続きからの再開は、主ノードが途中状態を保持している間だけ可能である。主ノードが切り替わった場合は、最初から同期し直す。<br>
+     * 0以下を指定した場合は、タイマーで破棄しない代わりに、最後のチャンクを返した時点で破棄する。<br>
+     * デフォルトは、60000[ms]。<br>
+     *
+     * @param timeout 保持する時間[ms]
+     */
+    public void setSynchronizeSessionTimeout(long timeout);
+    
+    /**
+     * 主ノードとして、分割同期の途中状態を保持する時間[ms]を取得する。<p>
+     *
+     * @return 保持する時間[ms]
+     */
+    public long getSynchronizeSessionTimeout();
+    
     /**
      * タイムアウトを指定しないメソッドを呼び出した場合に適用されるタイムアウト[ms]を設定する。<p>
      * デフォルトは、1000[ms]。<br>
@@ -350,6 +460,77 @@ public interface SharedContextServiceMBean extends DefaultContextServiceMBean{
      */
     public long getForcedLockTimeoutCheckInterval();
     
+    /**
+     * 非同期更新をまとめて送信する間隔[ms]を設定する。<p>
+     * 0より大きい値を設定すると、{@link SharedContext#putAsynch(Object, Object)}、{@link SharedContext#updateAsynch(Object, SharedContextValueDifference)}、{@link SharedContext#removeAsynch(Object)}による更新を、ここで指定した時間だけ溜めて、1つのメッセージで送信する。その間に同一キーに対して行われた更新は、まとめられる。<br>
+     * つまり、非同期更新が他のノードに反映されるまでの最大遅延時間となる。<br>
+     * 同期更新、ロックの解放などを行う場合は、溜まっている非同期更新を先に送信する。<br>
+     * デフォルトは、-1で、非同期更新を1件ずつ送信する。<br>
+     *
+     * @param interval 非同期更新をまとめて送信する間隔[ms]
+     */
+    public void setAsynchBatchInterval(long interval);
+    
+    /**
+     * 非同期更新をまとめて送信する間隔[ms]を取得する。<p>
+     *
+     * @return 非同期更新をまとめて送信する間隔[ms]
+     */
+    public long getAsynchBatchInterval();
+    
+    /**
+     * 非同期更新をまとめて送信する際の最大イベント数を設定する。<p>
+     * 溜まっている非同期更新がこの数に達した場合は、送信間隔を待たずに送信する。<br>
+     * デフォルトは、{@link #DEFAULT_ASYNCH_BATCH_SIZE}。<br>
+     *
+     * @param size 最大イベント数
+     */
+    public void setAsynchBatchSize(int size);
+    
+    /**
+     * 非同期更新をまとめて送信する際の最大イベント数を取得する。<p>
+     *
+     * @return 最大イベント数
+     */
+    public int getAsynchBatchSize();
+    
+    /**
+     * 送信待ちの非同期更新イベント数を取得する。<p>
+     *
+     * @return 送信待ちの非同期更新イベント数
+     */
+    public int getAsynchBatchPendingCount();
+    
+    /**
+     * 非同期更新をまとめて送信したメッセージ数を取得する。<p>
+     * まとめた非同期更新は、送信先毎に1つのメッセージで送信するため、送信先毎に数える。<br>
+     *
+     * @return 送信したメッセージ数
+     */
+    public long getAsynchBatchCount();
+    
+    /**
+     * 非同期更新をまとめて送信したイベント数を取得する。<p>
+     * 複数の送信先に送信したイベントは、送信先毎に数える。<br>
+     *
+     * @return 送信したイベント数
+     */
+    public long getAsynchBatchedEventCount();
+    
+    /**
+     * 同一キーに対する後続の更新にまとめられて、送信されなかった非同期更新イベント数を取得する。<p>
+     *
+     * @return まとめられたイベント数
+     */
+    public long getAsynchBatchCoalescedCount();
+    
+    /**
+     * 送信待ちの非同期更新を送信する。<p>
+     *
+     * @exception SharedContextSendException 送信に失敗した場合
+     */
+    public void flushAsynchBatch() throws SharedContextSendException;
+    
     /**
      * サービスの開始時に他のコンテキストとのデータ同期を行うかどうかを設定する。<p>
      * デフォルトは、trueでデータ同期する。<br>
@@ -686,6 +867,54 @@ public interface SharedContextServiceMBean extends DefaultContextServiceMBean{
      */
     public void resetCacheHitRatio();
     
+    /**
+     * ニアキャッシュに保持しているキーの数を取得する。<p>
+     *
+     * @return ニアキャッシュに保持しているキーの数
+     */
+    public int getNearCacheCount();
+    
+    /**
+     * ニアキャッシュのヒット数を取得する。<p>
+     *
+     * @return ヒット数
+     */
+    public long getNearCacheHitCount();
+    
+    /**
+     * ニアキャッシュのミス数を取得する。<p>
+     * サーバに値を問い合わせた回数となる。<br>
+     *
+     * @return ミス数
+     */
+    public long getNearCacheMissCount();
+    
+    /**
+     * ニアキャッシュのヒット率を取得する。<p>
+     *
+     * @return ヒット率
+     */
+    public float getNearCacheHitRatio();
+    
+    /**
+     * 最大数を超えたために、ニアキャッシュから削除した数を取得する。<p>
+     *
+     * @return 削除した数
+     */
+    public long getNearCacheEvictCount();
+    
+    /**
+     * 更新バージョンが古い値を受信したために、ニアキャッシュから削除した数を取得する。<p>
+     *
+     * @return 削除した数
+     */
+    public long getNearCacheInvalidateCount();
+    
+    /**
+     * ニアキャッシュのヒット率をリセットする。<p>
+     */
+    public void resetNearCacheHitRatio();
+    
     /**
      * 現在ロックされているキーの集合を取得する。<p>
      *
@@ -114,6 +114,34 @@ public interface SharedContextView{
      */
     public List getResultValueList(long timeout, String[] propNames, boolean[] isAsc) throws SharedContextSendException, SharedContextTimeoutException;
     
+    /**
+     * 検索結果のソートされた値リストの先頭から、指定された件数を取得する。<p>
+     * ソートと件数の絞り込みは、値を保持するサーバ側で行い、指定された件数の値だけを転送する。<br>
+     *
+     * @param timeout タイムアウト[ms]
+     * @param propNames ソートキーとなるプロパティ名の配列。nullの場合は、ソートしない
+     * @param isAsc propNamesで指定したプロパティ名のソート方向を示すフラグ。trueを指定すると昇順
+     * @param limit 取得する件数。0以下の場合は、全件
+     * @return 検索結果の値リスト
+     * @exception SharedContextSendException 分散サーバへのメッセージ送信に失敗した場合
+     * @exception SharedContextTimeoutException 分散サーバからの応答待ちでタイムアウトした場合
+     */
+    public List getResultValueList(long timeout, String[] propNames, boolean[] isAsc, int limit) throws SharedContextSendException, SharedContextTimeoutException;
+    
+    /**
+     * 検索結果の値を集計する。<p>
+     * 集計は、値を保持するサーバ側で行い、集計結果だけを転送する。<br>
+     *
+     * @param timeout タイムアウト[ms]
+     * @param propName 集計対象のプロパティ名。nullの場合は、件数のみを集計する
+     * @param groupByPropNames グループ化するプロパティ名の配列。nullの場合は、グループ化しない
+     * @return グループのキーと{@link SharedContextAggregate 集計結果}のマップ
+     * @exception SharedContextSendException 分散サーバへのメッセージ送信に失敗した場合
+     * @exception SharedContextTimeoutException 分散サーバからの応答待ちでタイムアウトした場合
+     * @see SharedContextAggregate#aggregate(java.util.Iterator, String, String[])
+     */
+    public Map aggregate(long timeout, String propName, String[] groupByPropNames) throws SharedContextSendException, SharedContextTimeoutException;
+    
     /**
      * 論理演算状態を論理積（AND）にする。<p>
      * デフォルトの論理演算状態です。<br>
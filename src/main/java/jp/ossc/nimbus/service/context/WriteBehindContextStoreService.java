@@ -0,0 +1,531 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import java.util.*;
+
+import jp.ossc.nimbus.core.*;
+import jp.ossc.nimbus.daemon.*;
+
+/**
+ * ライトビハインドコンテキストストア。<p>
+ * キー単位の保存要求を溜め込み、別スレッドで{@link #setContextStoreServiceName(ServiceName) 実際のContextStore}に書き込む。<br>
+ * 書き込み待ちの同じキーに対する保存要求は、最後の値にまとめられる。<br>
+ * 書き込みは、書き込み待ちのキーが{@link #setBatchSize(int) バッチサイズ}に達するか、{@link #setFlushInterval(long) 書き込み間隔}が経過した時に行われる。実際のContextStoreが{@link BatchContextStore}を実装している場合は、一括で書き込む。<br>
+ * 書き込み待ちのキーの読み込みは、実際のContextStoreではなく、書き込み待ちの値から行われる。<br>
+ * 以下に、サービス定義例を示す。<br>
+ * <pre>
+ * &lt;?xml version="1.0" encoding="Shift_JIS"?&gt;
+ * 
+ * &lt;server&gt;
+ *     
+ *     &lt;manager name="Sample"&gt;
+ *         
+ *         &lt;service name="ContextStore"
+ *                  code="jp.ossc.nimbus.service.context.WriteBehindContextStoreService"&gt;
+ *             &lt;attribute name="ContextStoreServiceName"&gt;#FileContextStore&lt;/attribute&gt;
+ *             &lt;attribute name="BatchSize"&gt;500&lt;/attribute&gt;
+ *             &lt;attribute name="FlushInterval"&gt;2000&lt;/attribute&gt;
+ *             &lt;depends&gt;FileContextStore&lt;/depends&gt;
+ *         &lt;/service&gt;
+ *         
+ *         &lt;service name="FileContextStore"
+ *                  code="jp.ossc.nimbus.service.context.FileContextStoreService"&gt;
+ *             &lt;attribute name="RootDirectory"&gt;./store&lt;/attribute&gt;
+ *             &lt;attribute name="SupportByKey"&gt;true&lt;/attribute&gt;
+ *         &lt;/service&gt;
+ *         
+ *     &lt;/manager&gt;
+ *     
+ * &lt;/server&gt;
+ * </pre>
+ *
+ * @author M.Takata
+ */
+public class WriteBehindContextStoreService extends ServiceBase
+ implements ContextStore, DaemonRunnable, WriteBehindContextStoreServiceMBean{
+    
+    private static final long serialVersionUID = -3371861573043256012L;
+    
+    protected ServiceName contextStoreServiceName;
+    protected ContextStore contextStore;
+    protected int batchSize = DEFAULT_BATCH_SIZE;
+    protected long flushInterval = DEFAULT_FLUSH_INTERVAL;
+    protected int maxQueueSize;
+    protected boolean isFlushOnStop = true;
+    
+    protected final Map pending = new LinkedHashMap();
+    protected final Object flushLock = new Object();
+    protected volatile Map flushing;
+    protected volatile boolean isLastFlushFailed;
+    protected Daemon flushDaemon;
+    
+    protected int maxQueueDepth;
+    protected long saveCount;
+    protected long coalescedCount;
+    protected volatile long flushCount;
+    protected volatile long flushedKeyCount;
+    protected volatile long flushErrorCount;
+    protected volatile long totalFlushTime;
+    protected volatile long maxFlushTime;
+    protected volatile long lastFlushTime;
+    
+    public void setContextStoreServiceName(ServiceName name){
+        contextStoreServiceName = name;
+    }
+    public ServiceName getContextStoreServiceName(){
+        return contextStoreServiceName;
+    }
+    
+    public void setBatchSize(int size){
+        batchSize = size;
+    }
+    public int getBatchSize(){
+        return batchSize;
+    }
+    
+    public void setFlushInterval(long interval){
+        flushInterval = interval;
+    }
+    public long getFlushInterval(){
+        return flushInterval;
+    }
+    
+    public void setMaxQueueSize(int size){
+        maxQueueSize = size;
+    }
+    public int getMaxQueueSize(){
+        return maxQueueSize;
+    }
+    
+    public void setFlushOnStop(boolean isFlush){
+        isFlushOnStop = isFlush;
+    }
+    public boolean isFlushOnStop(){
+        return isFlushOnStop;
+    }
+    
+    public int getQueueDepth(){
+        synchronized(pending){
+            return pending.size();
+        }
+    }
+    
+    public int getMaxQueueDepth(){
+        synchronized(pending){
+            return maxQueueDepth;
+        }
+    }
+    
+    public long getSaveCount(){
+        synchronized(pending){
+            return saveCount;
+        }
+    }
+    
+    public long getCoalescedCount(){
+        synchronized(pending){
+            return coalescedCount;
+        }
+    }
+    
+    public long getFlushCount(){
+        return flushCount;
+    }
+    
+    public long getFlushedKeyCount(){
+        return flushedKeyCount;
+    }
+    
+    public long getFlushErrorCount(){
+        return flushErrorCount;
+    }
+    
+    public long getAverageFlushTime(){
+        final long count = flushCount;
+        return count == 0 ? 0 : totalFlushTime / count;
+    }
+    
+    public long getMaxFlushTime(){
+        return maxFlushTime;
+    }
+    
+    public long getLastFlushTime(){
+        return lastFlushTime;
+    }
+    
+    public void reset(){
+        synchronized(pending){
+            maxQueueDepth = pending.size();
+            saveCount = 0;
+            coalescedCount = 0;
+        }
+        synchronized(flushLock){
+            flushCount = 0;
+            flushedKeyCount = 0;
+            flushErrorCount = 0;
+            totalFlushTime = 0;
+            maxFlushTime = 0;
+            lastFlushTime = 0;
+        }
+    }
+    
+    /**
+     * 実際に書き込みを行う{@link ContextStore}を設定する。<p>
+     *
+     * @param store ContextStore
+     */
+    public void setContextStore(ContextStore store){
+        contextStore = store;
+    }
+    
+    public void startService() throws Exception{
+        if(contextStoreServiceName != null){
+            contextStore = (ContextStore)ServiceManagerFactory.getServiceObject(contextStoreServiceName);
+        }
+        if(contextStore == null){
+            throw new IllegalArgumentException("ContextStore is null.");
+        }
+        if(batchSize <= 0){
+            throw new IllegalArgumentException("BatchSize must be greater than 0.");
+        }
+        if(flushInterval <= 0){
+            throw new IllegalArgumentException("FlushInterval must be greater than 0.");
+        }
+        isLastFlushFailed = false;
+        flushDaemon = new Daemon(this);
+        flushDaemon.setName("Nimbus WriteBehindContextStoreDaemon " + getServiceNameObject());
+        flushDaemon.start();
+    }
+    
+    public void stopService() throws Exception{
+        if(flushDaemon != null){
+            flushDaemon.stop();
+            flushDaemon = null;
+        }
+        if(isFlushOnStop){
+            try{
+                flush();
+            }catch(Exception e){
+                getLogger().write(
+                    "WBCS_00002",
+                    new Object[]{getServiceNameObject(), new Integer(getQueueDepth())},
+                    e
+                );
+            }
+        }else{
+            synchronized(pending){
+                pending.clear();
+            }
+        }
+    }
+    
+    public void clear() throws Exception{
+        synchronized(flushLock){
+            synchronized(pending){
+                pending.clear();
+            }
+            contextStore.clear();
+        }
+    }
+    
+    /**
+     * 書き込み待ちの更新を書き込んだ後、コンテキスト全体を保存する。<p>
+     *
+     * @param context コンテキスト
+     * @exception Exception 失敗した場合
+     */
+    public void save(Context context) throws Exception{
+        flush();
+        contextStore.save(context);
+    }
+    
+    /**
+     * コンテキスト上の指定されたキーに該当する値を、書き込み待ちに追加する。<p>
+     * 既に書き込み待ちの場合は、値を置き換える。<br>
+     * サービスが開始していない場合は、直接書き込む。その際、実行中の書き込みが終わるのを待ち、書き込み待ちの同一キーの値は破棄するため、停止処理中の書き込みで古い値に上書きされる事はない。<br>
+     *
+     * @param context コンテキスト
+     * @param key キー
+     * @exception Exception 失敗した場合
+     */
+    public void save(Context context, Object key) throws Exception{
+        if(getState() != STARTED){
+            synchronized(flushLock){
+                synchronized(pending){
+                    pending.remove(key);
+                }
+                contextStore.save(context, key);
+            }
+            return;
+        }
+        final Object value = context.get(key);
+        boolean isOverflow = false;
+        synchronized(pending){
+            saveCount++;
+            if(pending.containsKey(key)){
+                coalescedCount++;
+            }
+            pending.put(key, value);
+            final int size = pending.size();
+            if(size > maxQueueDepth){
+                maxQueueDepth = size;
+            }
+            if(size >= batchSize){
+                pending.notifyAll();
+            }
+            isOverflow = maxQueueSize > 0 && size > maxQueueSize;
+        }
+        if(isOverflow){
+            flush();
+        }
+    }
+    
+    public void load(Context context) throws Exception{
+        flush();
+        contextStore.load(context);
+    }
+    
+    public void loadKey(Context context) throws Exception{
+        flush();
+        contextStore.loadKey(context);
+    }
+    
+    /**
+     * コンテキストに指定されたキーの値を読み込む。<p>
+     * 書き込み待ちのキーの場合は、書き込み待ちの値を読み込む。<br>
+     *
+     * @param context コンテキスト
+     * @param key キー
+     * @return 読み込めた場合true
+     * @exception Exception 失敗した場合
+     */
+    public boolean load(Context context, Object key) throws Exception{
+        boolean isPending = false;
+        Object value = null;
+        synchronized(pending){
+            if(pending.containsKey(key)){
+                isPending = true;
+                value = pending.get(key);
+            }
+        }
+        if(!isPending){
+            final Map map = flushing;
+            if(map != null && map.containsKey(key)){
+                isPending = true;
+                value = map.get(key);
+            }
+        }
+        if(!isPending){
+            return contextStore.load(context, key);
+        }
+        if(value == null){
+            return false;
+        }
+        context.put(key, value);
+        return true;
+    }
+    
+    public boolean isSupportSaveByKey(){
+        return contextStore.isSupportSaveByKey();
+    }
+    
+    public boolean isSupportLoadByKey(){
+        return contextStore.isSupportLoadByKey();
+    }
+    
+    public void flush() throws Exception{
+        synchronized(flushLock){
+            while(true){
+                Map batch = null;
+                synchronized(pending){
+                    if(pending.size() == 0){
+                        return;
+                    }
+                    if(pending.size() <= batchSize){
+                        batch = new LinkedHashMap(pending);
+                        pending.clear();
+                    }else{
+                        batch = new LinkedHashMap();
+                        final Iterator entries = pending.entrySet().iterator();
+                        while(batch.size() < batchSize && entries.hasNext()){
+                            Map.Entry entry = (Map.Entry)entries.next();
+                            batch.put(entry.getKey(), entry.getValue());
+                            entries.remove();
+                        }
+                    }
+                }
+                flushing = batch;
+                final long start = System.currentTimeMillis();
+                try{
+                    write(batch);
+                    isLastFlushFailed = false;
+                }catch(Exception e){
+                    isLastFlushFailed = true;
+                    flushErrorCount++;
+                    synchronized(pending){
+                        final Iterator entries = batch.entrySet().iterator();
+                        while(entries.hasNext()){
+                            Map.Entry entry = (Map.Entry)entries.next();
+                            if(!pending.containsKey(entry.getKey())){
+                                pending.put(entry.getKey(), entry.getValue());
+                            }
+                        }
+                    }
+                    throw e;
+                }finally{
+                    flushing = null;
+                }
+                final long time = System.currentTimeMillis() - start;
+                flushCount++;
+                flushedKeyCount += batch.size();
+                totalFlushTime += time;
+                lastFlushTime = time;
+                if(time > maxFlushTime){
+                    maxFlushTime = time;
+                }
+            }
+        }
+    }
+    
+    /**
+     * 書き込み待ちの値を、実際のContextStoreに書き込む。<p>
+     *
+     * @param batch キーと値のマップ
+     * @exception Exception 書き込みに失敗した場合
+     */
+    protected void write(Map batch) throws Exception{
+        final SnapshotContext context = new SnapshotContext(batch);
+        if(contextStore instanceof BatchContextStore){
+            ((BatchContextStore)contextStore).saveAll(context, batch.keySet());
+        }else{
+            final Iterator keys = batch.keySet().iterator();
+            while(keys.hasNext()){
+                contextStore.save(context, keys.next());
+            }
+        }
+    }
+    
+    public boolean onStart(){
+        return true;
+    }
+    
+    public boolean onStop(){
+        return true;
+    }
+    
+    public boolean onSuspend(){
+        return true;
+    }
+    
+    public boolean onResume(){
+        return true;
+    }
+    
+    /**
+     * 書き込み待ちのキーがバッチサイズに達するか、書き込み間隔が経過するまで待機する。<p>
+     * 
+     * @param ctrl DaemonControlオブジェクト
+     * @return null
+     */
+    public Object provide(DaemonControl ctrl){
+        synchronized(pending){
+            if(isLastFlushFailed || pending.size() < batchSize){
+                try{
+                    pending.wait(flushInterval);
+                }catch(InterruptedException e){
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 書き込み待ちの更新を書き込む。<p>
+     * 書き込みに失敗した場合は、更新を書き込み待ちに戻し、次の書き込み間隔で再度書き込む。<br>
+     *
+     * @param dequeued null
+     * @param ctrl DaemonControlオブジェクト
+     */
+    public void consume(Object dequeued, DaemonControl ctrl){
+        try{
+            flush();
+        }catch(Exception e){
+            getLogger().write(
+                "WBCS_00001",
+                new Object[]{getServiceNameObject(), new Integer(getQueueDepth())},
+                e
+            );
+        }
+    }
+    
+    public void garbage(){
+    }
+    
+    /**
+     * 書き込み待ちの値を保持するコンテキスト。<p>
+     * 
+     * @author M.Takata
+     */
+    protected static class SnapshotContext extends HashMap implements Context{
+        
+        private static final long serialVersionUID = 7064213860447937025L;
+        
+        public SnapshotContext(Map values){
+            super(values);
+        }
+        
+        public Map all(){
+            return this;
+        }
+        
+        public void load() throws Exception{
+            throw new UnsupportedOperationException();
+        }
+        
+        public void loadKey() throws Exception{
+            throw new UnsupportedOperationException();
+        }
+        
+        public void load(Object key) throws Exception{
+            throw new UnsupportedOperationException();
+        }
+        
+        public void save() throws Exception{
+            throw new UnsupportedOperationException();
+        }
+        
+        public void save(Object key) throws Exception{
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import jp.ossc.nimbus.core.ServiceBaseMBean;
+import jp.ossc.nimbus.core.ServiceName;
+
+/**
+ * {@link WriteBehindContextStoreService}のMBeanインタフェース。<p>
+ * 
+ * @author M.Takata
+ * @see WriteBehindContextStoreService
+ */
+public interface WriteBehindContextStoreServiceMBean extends ServiceBaseMBean{
+    
+    /**
+     * 一度に書き込むキーの最大数のデフォルト値。<p>
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    
+    /**
+     * 書き込み間隔[ms]のデフォルト値。<p>
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000L;
+    
+    /**
+     * 実際に書き込みを行う{@link ContextStore}サービスのサービス名を設定する。<p>
+     * {@link BatchContextStore}を実装している場合は、溜め込んだ更新を一括で書き込む。<br>
+     *
+     * @param name ContextStoreサービスのサービス名
+     */
+    public void setContextStoreServiceName(ServiceName name);
+    
+    /**
+     * 実際に書き込みを行う{@link ContextStore}サービスのサービス名を取得する。<p>
+     *
+     * @return ContextStoreサービスのサービス名
+     */
+    public ServiceName getContextStoreServiceName();
+    
+    /**
+     * 一度に書き込むキーの最大数を設定する。<p>
+     * 書き込み待ちのキーがこの数に達すると、書き込み間隔を待たずに書き込む。<br>
+     * デフォルトは、{@link #DEFAULT_BATCH_SIZE}。<br>
+     *
+     * @param size 一度に書き込むキーの最大数
+     */
+    public void setBatchSize(int size);
+    
+    /**
+     * 一度に書き込むキーの最大数を取得する。<p>
+     *
+     * @return 一度に書き込むキーの最大数
+     */
+    public int getBatchSize();
+    
+    /**
+     * 書き込み間隔[ms]を設定する。<p>
+     * デフォルトは、{@link #DEFAULT_FLUSH_INTERVAL}。<br>
+     *
+     * @param interval 書き込み間隔[ms]
+     */
+    public void setFlushInterval(long interval);
+    
+    /**
+     * 書き込み間隔[ms]を取得する。<p>
+     *
+     * @return 書き込み間隔[ms]
+     */
+    public long getFlushInterval();
+    
+    /**
+     * 書き込み待ちのキーの最大数を設定する。<p>
+     * 書き込み待ちのキーがこの数を超えると、保存を要求したスレッドで書き込みを行う。<br>
+     * デフォルトは、0で無制限。<br>
+     *
+     * @param size 書き込み待ちのキーの最大数
+     */
+    public void setMaxQueueSize(int size);
+    
+    /**
+     * 書き込み待ちのキーの最大数を取得する。<p>
+     *
+     * @return 書き込み待ちのキーの最大数
+     */
+    public int getMaxQueueSize();
+    
+    /**
+     * サービスの停止時に、書き込み待ちの更新を書き込むかどうかを設定する。<p>
+     * デフォルトは、trueで書き込む。<br>
+     *
+     * @param isFlush 書き込む場合、true
+     */
+    public void setFlushOnStop(boolean isFlush);
+    
+    /**
+     * サービスの停止時に、書き込み待ちの更新を書き込むかどうかを判定する。<p>
+     *
+     * @return trueの場合、書き込む
+     */
+    public boolean isFlushOnStop();
+    
+    /**
+     * 書き込み待ちの更新を全て書き込む。<p>
+     *
+     * @exception Exception 書き込みに失敗した場合
+     */
+    public void flush() throws Exception;
+    
+    /**
+     * 書き込み待ちのキーの数を取得する。<p>
+     *
+     * @return 書き込み待ちのキーの数
+     */
+    public int getQueueDepth();
+    
+    /**
+     * 書き込み待ちのキーの数の最大値を取得する。<p>
+     *
+     * @return 書き込み待ちのキーの数の最大値
+     */
+    public int getMaxQueueDepth();
+    
+    /**
+     * キー単位の保存要求の回数を取得する。<p>
+     *
+     * @return 保存要求の回数
+     */
+    public long getSaveCount();
+    
+    /**
+     * 書き込み待ちの同じキーに対する保存要求をまとめた回数を取得する。<p>
+     *
+     * @return まとめた回数
+     */
+    public long getCoalescedCount();
+    
+    /**
+     * 書き込みの回数を取得する。<p>
+     *
+     * @return 書き込みの回数
+     */
+    public long getFlushCount();
+    
+    /**
+     * 書き込んだキーの数を取得する。<p>
+     *
+     * @return 書き込んだキーの数
+     */
+    public long getFlushedKeyCount();
+    
+    /**
+     * 書き込みに失敗した回数を取得する。<p>
+     *
+     * @return 書き込みに失敗した回数
+     */
+    public long getFlushErrorCount();
+    
+    /**
+     * 1回の書き込みにかかった平均時間[ms]を取得する。<p>
+     *
+     * @return 平均書き込み時間[ms]
+     */
+    public long getAverageFlushTime();
+    
+    /**
+     * 1回の書き込みにかかった最大時間[ms]を取得する。<p>
+     *
+     * @return 最大書き込み時間[ms]
+     */
+    public long getMaxFlushTime();
+    
+    /**
+     * 最後の書き込みにかかった時間[ms]を取得する。<p>
+     *
+     * @return 最後の書き込み時間[ms]
+     */
+    public long getLastFlushTime();
+    
+    /**
+     * 統計情報をリセットする。<p>
+     */
+    public void reset();
+}
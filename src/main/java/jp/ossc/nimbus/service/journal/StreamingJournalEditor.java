@@ -0,0 +1,61 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.journal;
+
+import jp.ossc.nimbus.service.journal.editorfinder.EditorFinder;
+
+/**
+ * ストリーミングジャーナルエディター。<p>
+ * ジャーナル情報を文字列に編集する際に、編集結果を呼び出し元が用意した文字列バッファに直接追記するジャーナルエディタのインタフェースである。<br>
+ * ネストしたジャーナル情報を編集する場合に、ネストしたエディタ毎に中間的な文字列を生成せずに、親のバッファに直接編集結果を書き込む事ができる。<br>
+ *
+ * @author M.Takata
+ */
+public interface StreamingJournalEditor extends JournalEditor{
+    
+    /**
+     * ジャーナルとして与えられたある型の情報をジャーナルとして出力する文字列に変換して、指定された文字列バッファに追記する。<br>
+     * 文字列バッファに既に格納されている内容は変更しない。<br>
+     * 
+     * @param finder 適切なJournalEditorを提供するEditorFinder
+     * @param key ジャーナルのキー情報
+     * @param value ジャーナル情報
+     * @param buf ジャーナル文字列を追記する文字列バッファ
+     * @return 引数で指定された文字列バッファ
+     */
+    public StringBuilder appendTo(
+        EditorFinder finder,
+        Object key,
+        Object value,
+        StringBuilder buf
+    );
+}
@@ -101,21 +101,37 @@ public abstract class BlockJournalEditorServiceBase
         Object key,
         Object value,
         StringBuilder buf
+    ){
+        return appendJournal(finder, key, value, buf).toString();
+    }
+    
+    protected boolean isStreamingSupported(){
+        return true;
+    }
+    
+    protected StringBuilder appendJournal(
+        EditorFinder finder,
+        Object key,
+        Object value,
+        StringBuilder buf
     ){
         startBlock(finder, key, value, buf);
         if(isOutputBlockLineSeparator()){
             buf.append(getLineSeparator());
         }
-        final StringBuilder subBuf = new StringBuilder();
-        if(processBlock(finder, key, value, subBuf)){
-            addIndent(subBuf);
-            buf.append(subBuf);
+        final StringBuilder subBuf = StringBuilderPool.borrow();
+        try{
+            if(processBlock(finder, key, value, subBuf)){
+                appendIndent(buf, subBuf, 1);
+            }
+        }finally{
+            StringBuilderPool.release(subBuf);
         }
         if(isOutputBlockLineSeparator()){
             buf.append(getLineSeparator());
         }
         endBlock(finder, key, value, buf);
-        return buf.toString();
+        return buf;
     }
     
     /**
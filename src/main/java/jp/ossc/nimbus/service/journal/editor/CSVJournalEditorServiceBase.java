@@ -115,12 +115,25 @@ public abstract class CSVJournalEditorServiceBase
         Object key,
         Object value,
         StringBuilder buf
+    ){
+        return appendJournal(finder, key, value, buf).toString();
+    }
+    
+    protected boolean isStreamingSupported(){
+        return true;
+    }
+    
+    protected StringBuilder appendJournal(
+        EditorFinder finder,
+        Object key,
+        Object value,
+        StringBuilder buf
     ){
         final List oldElements = replaceNewCSVElements();
         processCSV(finder, key, value);
         makeCSVFormat(finder, key, value, buf);
         setCSVElements(oldElements);
-        return buf.toString();
+        return buf;
     }
     
     protected void processCSV(
@@ -138,18 +151,31 @@ public abstract class CSVJournalEditorServiceBase
     ){
         final List elements = (List)csvElements.get();
         if(elements != null){
-            final StringBuilder tmpBuf = new StringBuilder();
-            final Iterator values = elements.iterator();
-            while(values.hasNext()){
-                final Object val = values.next();
-                final JournalEditor editor = finder.findEditor(key, val);
-                tmpBuf.setLength(0);
-                makeObjectFormat(finder, key, val, tmpBuf);
-                escape(editor, tmpBuf);
-                enclose(editor, tmpBuf);
-                buf.append(tmpBuf);
-                if(values.hasNext()){
-                    buf.append(getCSVSeparator());
+            StringBuilder tmpBuf = null;
+            try{
+                for(int i = 0, imax = elements.size(); i < imax; i++){
+                    final Object val = elements.get(i);
+                    final JournalEditor editor = finder.findEditor(key, val);
+                    if(editor instanceof CSVJournalEditorServiceBase){
+                        makeObjectFormat(finder, key, val, buf);
+                    }else{
+                        if(tmpBuf == null){
+                            tmpBuf = StringBuilderPool.borrow();
+                        }else{
+                            tmpBuf.setLength(0);
+                        }
+                        makeObjectFormat(finder, key, val, tmpBuf);
+                        buf.append(CSV_ENCLOSE_CHAR);
+                        appendEscaped(buf, tmpBuf);
+                        buf.append(CSV_ENCLOSE_CHAR);
+                    }
+                    if(i != imax - 1){
+                        buf.append(getCSVSeparator());
+                    }
+                }
+            }finally{
+                if(tmpBuf != null){
+                    StringBuilderPool.release(tmpBuf);
                 }
             }
             elements.clear();
@@ -201,8 +227,18 @@ public abstract class CSVJournalEditorServiceBase
         if(editor != null && editor instanceof CSVJournalEditorServiceBase){
             return str;
         }
-        final StringBuilder buf = new StringBuilder();
-        for(int i = 0; i < length; i++){
+        return appendEscaped(new StringBuilder(length), str).toString();
+    }
+    
+    /**
+     * 指定された文字列をCSVの要素としてエスケープして、文字列バッファに追記する。<p>
+     *
+     * @param buf 追記先の文字列バッファ
+     * @param str エスケープする文字列
+     * @return 追記先の文字列バッファ
+     */
+    protected StringBuilder appendEscaped(StringBuilder buf, CharSequence str){
+        for(int i = 0, imax = str.length(); i < imax; i++){
             final char c = str.charAt(i);
             switch(c){
             case CARRIAGE_RETURN:
@@ -218,6 +254,6 @@ public abstract class CSVJournalEditorServiceBase
                 buf.append(c);
             }
         }
-        return buf.toString();
+        return buf;
     }
 }
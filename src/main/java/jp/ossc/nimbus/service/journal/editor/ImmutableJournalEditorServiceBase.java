@@ -39,11 +39,13 @@ import jp.ossc.nimbus.service.journal.editorfinder.EditorFinder;
 
 /**
  * ジャーナルを不変な文字列にフォーマットするエディタサービスの基底クラス。<p>
+ * {@link StreamingJournalEditor}も実装しており、{@link #appendTo(EditorFinder, Object, Object, StringBuilder)}で、編集結果を呼び出し元の文字列バッファに追記できる。<br>
+ * サブクラスは、{@link #isStreamingSupported()}をオーバーライドしてtrueを返し、{@link #appendJournal(EditorFinder, Object, Object, StringBuilder)}を実装する事で、中間的な文字列を生成せずに編集結果を追記するようになる。<br>
  * 
  * @author M.Takata
  */
 public abstract class ImmutableJournalEditorServiceBase extends ServiceBase
- implements ImmutableJournalEditorServiceBaseMBean, Serializable{
+ implements ImmutableJournalEditorServiceBaseMBean, StreamingJournalEditor, Serializable{
     
     private static final long serialVersionUID = 481914013077689219L;
 
@@ -146,6 +148,51 @@ public abstract class ImmutableJournalEditorServiceBase extends ServiceBase
         return toString(finder, key, value, buf);
     }
     
+    // StreamingJournalEditorのJavaDoc
+    public StringBuilder appendTo(
+        EditorFinder finder,
+        Object key,
+        Object value,
+        StringBuilder buf
+    ){
+        if(!isStreamingSupported()){
+            return buf.append(toString(finder, key, value));
+        }
+        if(isOutputKey()){
+            makeKeyFormat(finder, key, value, buf);
+        }
+        return appendJournal(finder, key, value, buf);
+    }
+    
+    /**
+     * {@link #appendJournal(EditorFinder, Object, Object, StringBuilder)}による追記編集をサポートしているかどうかを判定する。<p>
+     * デフォルトでは、falseを返し、{@link #appendTo(EditorFinder, Object, Object, StringBuilder)}は{@link #toString(EditorFinder, Object, Object)}の結果を追記する。<br>
+     *
+     * @return 追記編集をサポートしている場合true
+     */
+    protected boolean isStreamingSupported(){
+        return false;
+    }
+    
+    /**
+     * 指定されたオブジェクトをジャーナル文字列に編集して、文字列バッファに追記する。<p>
+     * {@link #isStreamingSupported()}がtrueを返すサブクラスで、オーバーライドして実装する。文字列バッファに既に格納されている内容を変更してはならない。<br>
+     *
+     * @param finder EditorFinderサービス
+     * @param key キー文字列
+     * @param value ジャーナルオブジェクト
+     * @param buf ジャーナル文字列を追記する文字列バッファ
+     * @return 引数で指定された文字列バッファ
+     */
+    protected StringBuilder appendJournal(
+        EditorFinder finder,
+        Object key,
+        Object value,
+        StringBuilder buf
+    ){
+        return buf;
+    }
+    
     /**
      * 指定されたオブジェクトをジャーナル文字列に編集する。<p>
      * サブクラスで、オーバーライドして実装する。デフォルトでは、bufからそのまま文字列を取得して返す。<br>
@@ -190,6 +237,7 @@ public abstract class ImmutableJournalEditorServiceBase extends ServiceBase
     /**
      * エディターが不明なオブジェクトを適切なエディタで編集する。<p>
      * finderで、valueの型に対応するエディタを取得して編集する。エディタが見つからない場合は、{@link Object#toString()}で文字列に変換して返す。<br>
+     * エディタが{@link StreamingJournalEditor}の場合は、編集結果を直接文字列バッファに追記する。<br>
      *
      * @param finder EditorFinderサービス
      * @param key キー文字列
@@ -206,7 +254,9 @@ public abstract class ImmutableJournalEditorServiceBase extends ServiceBase
         Object value = null;
         if(obj != null){
             final JournalEditor editor = finder.findEditor(key, obj.getClass());
-            if(editor != null){
+            if(editor instanceof StreamingJournalEditor){
+                return ((StreamingJournalEditor)editor).appendTo(finder, key, obj, buf);
+            }else if(editor != null){
                 value = editor.toObject(finder, key, obj);
             }else{
                 value = obj.toString();
@@ -257,6 +307,48 @@ public abstract class ImmutableJournalEditorServiceBase extends ServiceBase
         return buf.append(setIndent(str, indent));
     }
     
+    /**
+     * 指定された文字列を指定インデント字下げして、文字列バッファに追記する。<p>
+     * {@link #setIndent(String, int)}と同じ字下げを、中間的な文字列を生成せずに行う。<br>
+     *
+     * @param buf 追記先の文字列バッファ
+     * @param str 字下げする文字列
+     * @param indent インデント数
+     * @return 追記先の文字列バッファ
+     */
+    protected StringBuilder appendIndent(
+        StringBuilder buf,
+        StringBuilder str,
+        int indent
+    ){
+        final int length = str.length();
+        if(!isOutputIndent || indent == 0 || length == 0
+            || getIndent() == null || getIndent().length() == 0){
+            return buf.append(str);
+        }
+        final String separator = getLineSeparator();
+        final int lsLength = separator == null ? 0 : separator.length();
+        appendIndentString(buf, indent);
+        int start = 0;
+        if(lsLength != 0){
+            int index = 0;
+            while((index = str.indexOf(separator, start)) != -1
+                && index + lsLength != length){
+                buf.append(str, start, index + lsLength);
+                appendIndentString(buf, indent);
+                start = index + lsLength;
+            }
+        }
+        return buf.append(str, start, length);
+    }
+    
+    private void appendIndentString(StringBuilder buf, int indent){
+        final int count = indent <= 0 ? 1 : indent;
+        for(int i = 0; i < count; i++){
+            buf.append(getIndent());
+        }
+    }
+    
     /**
      * 指定された文字列を指定インデント字下げする。<p>
      *
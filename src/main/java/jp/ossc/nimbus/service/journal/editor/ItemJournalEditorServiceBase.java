@@ -71,12 +71,25 @@ public abstract class ItemJournalEditorServiceBase
         Object key,
         Object value,
         StringBuilder buf
+    ){
+        return appendJournal(finder, key, value, buf).toString();
+    }
+    
+    protected boolean isStreamingSupported(){
+        return true;
+    }
+    
+    protected StringBuilder appendJournal(
+        EditorFinder finder,
+        Object key,
+        Object value,
+        StringBuilder buf
     ){
         if(isOutputItemName){
             buf.append(getItemName());
         }
         processItem(finder, key, value, buf);
-        return buf.toString();
+        return buf;
     }
     
     /**
@@ -44,15 +44,17 @@ import java.util.Stack;
 import jp.ossc.nimbus.core.ServiceBase;
 import jp.ossc.nimbus.service.journal.editorfinder.EditorFinder;
 import jp.ossc.nimbus.service.journal.JournalEditor;
+import jp.ossc.nimbus.service.journal.StreamingJournalEditor;
 import jp.ossc.nimbus.util.ClassMappingTree;
 
 /**
  * 任意のオブジェクトをJSON形式文字列に編集するジャーナルエディター。<p>
+ * ネストしたオブジェクトを{@link StreamingJournalEditor}で編集する場合は、中間的な文字列を生成せずに編集結果を直接追記する。<br>
  *
  * @author M.Takata
  */
 public class JSONJournalEditorService extends ServiceBase
- implements JournalEditor, JSONJournalEditorServiceMBean{
+ implements StreamingJournalEditor, JSONJournalEditorServiceMBean{
     
     private static final long serialVersionUID = 8863151772494235330L;
     
@@ -219,7 +221,7 @@ public class JSONJournalEditorService extends ServiceBase
     
     protected StringBuilder appendName(StringBuilder buf, String name){
         buf.append(STRING_ENCLOSURE);
-        buf.append(escape(name));
+        appendEscaped(buf, name);
         buf.append(STRING_ENCLOSURE);
         return buf;
     }
@@ -291,7 +293,7 @@ public class JSONJournalEditorService extends ServiceBase
                         || (value instanceof Double && (((Double)value).isNaN() || ((Double)value).isInfinite()))
                 ){
                     buf.append(STRING_ENCLOSURE);
-                    buf.append(escape(value.toString()));
+                    appendEscaped(buf, value.toString());
                     buf.append(STRING_ENCLOSURE);
                 }else{
                     buf.append(value);
@@ -306,7 +308,10 @@ public class JSONJournalEditorService extends ServiceBase
                  || Character.class.equals(type)
                  || Character.TYPE.equals(type)){
                 buf.append(STRING_ENCLOSURE);
-                buf.append(escape(value.toString()));
+                appendEscaped(
+                    buf,
+                    value instanceof CharSequence ? (CharSequence)value : value.toString()
+                );
                 buf.append(STRING_ENCLOSURE);
             }else if(Map.class.isAssignableFrom(type)){
                 if(isExpandMapValue && (excludeExpandMap == null || excludeExpandMap.getValue(type) == null)){
@@ -326,17 +331,27 @@ public class JSONJournalEditorService extends ServiceBase
     protected StringBuilder appendUnknownValue(StringBuilder buf, EditorFinder finder, Class type, Object value, Stack stack){
         JournalEditor editor = finder.findEditor(value);
         if(editor != null && editor != this){
-            value = editor.toObject(finder, null, value);
             if(editor instanceof JSONJournalEditorService){
-                buf.append(value.toString());
+                ((JSONJournalEditorService)editor).appendTo(finder, null, value, buf);
+            }else if(editor instanceof StreamingJournalEditor){
+                final StringBuilder tmpBuf = StringBuilderPool.borrow();
+                try{
+                    ((StreamingJournalEditor)editor).appendTo(finder, null, value, tmpBuf);
+                    buf.append(STRING_ENCLOSURE);
+                    appendEscaped(buf, tmpBuf);
+                    buf.append(STRING_ENCLOSURE);
+                }finally{
+                    StringBuilderPool.release(tmpBuf);
+                }
             }else{
+                value = editor.toObject(finder, null, value);
                 buf.append(STRING_ENCLOSURE);
-                buf.append(escape(value.toString()));
+                appendEscaped(buf, value.toString());
                 buf.append(STRING_ENCLOSURE);
             }
         }else{
             buf.append(STRING_ENCLOSURE);
-            buf.append(escape(value.toString()));
+            appendEscaped(buf, value.toString());
             buf.append(STRING_ENCLOSURE);
         }
         return buf;
@@ -466,43 +481,49 @@ public class JSONJournalEditorService extends ServiceBase
         if(str == null || str.length() == 0){
             return str;
         }
-        boolean isEscape = false;
-        final StringBuilder buf = new StringBuilder();
+        final StringBuilder buf = appendEscaped(new StringBuilder(), str);
+        return buf.length() == str.length() ? str : buf.toString();
+    }
+    
+    /**
+     * 指定された文字列をJSONの文字列としてエスケープして、文字列バッファに追記する。<p>
+     * エスケープの必要がある文字は、必ずエスケープ前より長い文字列に置換される。<br>
+     *
+     * @param buf 追記先の文字列バッファ
+     * @param str エスケープする文字列
+     * @return 追記先の文字列バッファ
+     */
+    protected StringBuilder appendEscaped(StringBuilder buf, CharSequence str){
+        if(str == null){
+            return buf.append((Object)null);
+        }
         for(int i = 0, imax = str.length(); i < imax; i++){
             final char c = str.charAt(i);
             
             switch(c){
             case QUOTE:
                 buf.append(ESCAPE_QUOTE);
-                isEscape = true;
                 break;
             case BACK_SLASH:
                 buf.append(ESCAPE_BACK_SLASH);
-                isEscape = true;
                 break;
             case SLASH:
                 buf.append(ESCAPE_SLASH);
-                isEscape = true;
                 break;
             case BACK_SPACE:
                 buf.append(ESCAPE_BACK_SPACE);
-                isEscape = true;
                 break;
             case CHANGE_PAGE:
                 buf.append(ESCAPE_CHANGE_PAGE);
-                isEscape = true;
                 break;
             case LF:
                 buf.append(ESCAPE_LF);
-                isEscape = true;
                 break;
             case CR:
                 buf.append(ESCAPE_CR);
-                isEscape = true;
                 break;
             case TAB:
                 buf.append(ESCAPE_TAB);
-                isEscape = true;
                 break;
             default:
                 if(isUnicodeEscape
@@ -511,14 +532,13 @@ public class JSONJournalEditorService extends ServiceBase
                         || (0x23 <= c && c <= 0x5B)
                         || (0x5D <= c && c <= 0x7E))
                 ){
-                    isEscape = true;
                     toUnicode(c, buf);
                 }else{
                     buf.append(c);
                 }
             }
         }
-        return isEscape ? buf.toString() : str;
+        return buf;
     }
     
     protected StringBuilder toUnicode(char c, StringBuilder buf){
@@ -588,6 +608,11 @@ public class JSONJournalEditorService extends ServiceBase
         return toString(new StringBuilder(), finder, key == null ? null : key.toString(), value).toString();
     }
     
+    // StreamingJournalEditorのJavaDoc
+    public StringBuilder appendTo(EditorFinder finder, Object key, Object value, StringBuilder buf){
+        return toString(buf, finder, key == null ? null : key.toString(), value);
+    }
+    
     protected StringBuilder toString(StringBuilder buf, EditorFinder finder, String key, Object value){
         if(key == null || !isOutputKey()){
             appendValue(buf, finder, null, value, new Stack());
@@ -147,6 +147,19 @@ public class MapJournalEditorService
         Object key,
         Object value,
         StringBuilder buf
+    ){
+        return appendJournal(finder, key, value, buf).toString();
+    }
+    
+    protected boolean isStreamingSupported(){
+        return true;
+    }
+    
+    protected StringBuilder appendJournal(
+        EditorFinder finder,
+        Object key,
+        Object value,
+        StringBuilder buf
     ){
         final Map map = (Map)value;
         buf.append(startDelimiter);
@@ -200,6 +213,6 @@ public class MapJournalEditorService
             isOutput = true;
         }
         buf.append(endDelimiter);
-        return buf.toString();
+        return buf;
     }
 }
@@ -80,7 +80,6 @@ public class MethodCallCSVJournalEditorService extends CSVJournalEditorServiceBa
         Object key,
         Object value
     ){
-        final StringBuilder buf = new StringBuilder();
         final MethodCallJournalData methodCallJournal
              = (MethodCallJournalData)value;
         if(isOutputMethod()){
@@ -96,20 +95,24 @@ public class MethodCallCSVJournalEditorService extends CSVJournalEditorServiceBa
         if(isOutputParameters){
             final Object[] params = methodCallJournal.getParameters();
             if(params != null){
-                buf.setLength(0);
-                for(int i = 0; i < params.length; i++){
-                    if(isCSVElementForEveryParameter()){
+                if(isCSVElementForEveryParameter()){
+                    for(int i = 0; i < params.length; i++){
                         addElement(params[i]);
-                    }else{
-                        makeObjectFormat(finder, null, params[i], buf);
-                        if(i != params.length - 1){
-                            buf.append(PARAM_SEPARATOR);
+                    }
+                }else{
+                    final StringBuilder buf = StringBuilderPool.borrow();
+                    try{
+                        for(int i = 0; i < params.length; i++){
+                            makeObjectFormat(finder, null, params[i], buf);
+                            if(i != params.length - 1){
+                                buf.append(PARAM_SEPARATOR);
+                            }
                         }
+                        addElement(buf.toString());
+                    }finally{
+                        StringBuilderPool.release(buf);
                     }
                 }
-                if(!isCSVElementForEveryParameter()){
-                    addElement(buf.toString());
-                }
             }else{
                 addElement(EMPTY_STRING);
             }
@@ -0,0 +1,98 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.journal.editor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ジャーナル編集用の文字列バッファプール。<p>
+ * ジャーナルエディタが編集途中で一時的に使用する文字列バッファを、スレッド毎に再利用する。<br>
+ * エディタはネストして呼び出されるため、スレッド毎に複数のバッファを保持し、借りた順に関係なく返却できる。<br>
+ * 大きく拡張されたバッファを保持し続けないように、容量が{@link #MAX_RETAIN_CAPACITY}を超えたバッファはプールに戻さない。<br>
+ *
+ * @author M.Takata
+ */
+public final class StringBuilderPool{
+    
+    /**
+     * プールに戻すバッファの最大容量。<p>
+     */
+    public static final int MAX_RETAIN_CAPACITY = 64 * 1024;
+    
+    /**
+     * スレッド毎にプールするバッファの最大数。<p>
+     */
+    public static final int MAX_POOL_SIZE = 16;
+    
+    private static final int INITIAL_CAPACITY = 256;
+    
+    private static final ThreadLocal pool = new ThreadLocal();
+    
+    private StringBuilderPool(){
+    }
+    
+    /**
+     * 空の文字列バッファを借りる。<p>
+     * 使用後は、{@link #release(StringBuilder)}で返却すること。<br>
+     *
+     * @return 空の文字列バッファ
+     */
+    public static StringBuilder borrow(){
+        final List buffers = (List)pool.get();
+        if(buffers == null || buffers.size() == 0){
+            return new StringBuilder(INITIAL_CAPACITY);
+        }
+        return (StringBuilder)buffers.remove(buffers.size() - 1);
+    }
+    
+    /**
+     * 借りた文字列バッファを返却する。<p>
+     *
+     * @param buf 文字列バッファ
+     */
+    public static void release(StringBuilder buf){
+        if(buf == null || buf.capacity() > MAX_RETAIN_CAPACITY){
+            return;
+        }
+        List buffers = (List)pool.get();
+        if(buffers == null){
+            buffers = new ArrayList();
+            pool.set(buffers);
+        }
+        if(buffers.size() >= MAX_POOL_SIZE){
+            return;
+        }
+        buf.setLength(0);
+        buffers.add(buf);
+    }
+}
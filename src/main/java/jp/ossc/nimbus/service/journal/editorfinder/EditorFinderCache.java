@@ -0,0 +1,211 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.journal.editorfinder;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link EditorFinder}の検索結果キャッシュ。<p>
+ * クラスとキーの組み合わせ毎に、マッピングを辿って解決した結果を保持する。<br>
+ * 解決した結果がnullの場合も、null自体をキャッシュする。<br>
+ * キャッシュしているクラスの数が最大サイズを超えた場合は、キャッシュをクリアする。<br>
+ * また、1つのクラスに対してキャッシュしているキーの数が最大キー数を超えた場合は、そのクラスのキャッシュをクリアする。<br>
+ * キャッシュの内容は直列化しない。<br>
+ *
+ * @author M.Takata
+ */
+public class EditorFinderCache implements Serializable{
+    
+    private static final long serialVersionUID = -2739145882410532846L;
+    
+    /**
+     * キャッシュされていない事を示す値。<p>
+     */
+    public static final Object NOT_CACHED = new String("NOT_CACHED");
+    
+    /**
+     * キャッシュできるクラス数の最大値のデフォルト値。<p>
+     */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    
+    /**
+     * 1つのクラスに対してキャッシュできるキー数の最大値のデフォルト値。<p>
+     */
+    public static final int DEFAULT_MAX_KEY_SIZE = 100;
+    
+    private static final Object NULL_KEY = new String("NULL_KEY");
+    private static final Object NULL_VALUE = new String("NULL_VALUE");
+    
+    private transient ConcurrentHashMap cache = new ConcurrentHashMap();
+    private final LongAdder hitCounter = new LongAdder();
+    private final LongAdder missCounter = new LongAdder();
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
+    private volatile int maxKeySize = DEFAULT_MAX_KEY_SIZE;
+    
+    /**
+     * キャッシュできるクラス数の最大値を設定する。<p>
+     * デフォルトは、{@link #DEFAULT_MAX_SIZE}。0以下の場合は、制限しない。<br>
+     *
+     * @param max 最大値
+     */
+    public void setMaxSize(int max){
+        maxSize = max;
+    }
+    
+    /**
+     * キャッシュできるクラス数の最大値を取得する。<p>
+     *
+     * @return 最大値
+     */
+    public int getMaxSize(){
+        return maxSize;
+    }
+    
+    /**
+     * 1つのクラスに対してキャッシュできるキー数の最大値を設定する。<p>
+     * デフォルトは、{@link #DEFAULT_MAX_KEY_SIZE}。0以下の場合は、制限しない。<br>
+     *
+     * @param max 最大値
+     */
+    public void setMaxKeySize(int max){
+        maxKeySize = max;
+    }
+    
+    /**
+     * 1つのクラスに対してキャッシュできるキー数の最大値を取得する。<p>
+     *
+     * @return 最大値
+     */
+    public int getMaxKeySize(){
+        return maxKeySize;
+    }
+    
+    /**
+     * キャッシュされている解決結果を取得する。<p>
+     *
+     * @param key キー
+     * @param clazz クラス
+     * @return 解決結果。キャッシュされていない場合は、{@link #NOT_CACHED}
+     */
+    public Object get(Object key, Class clazz){
+        final Map keyMap = (Map)cache.get(clazz);
+        final Object value = keyMap == null ? null
+            : keyMap.get(key == null ? NULL_KEY : key);
+        if(value == null){
+            missCounter.increment();
+            return NOT_CACHED;
+        }
+        hitCounter.increment();
+        return value == NULL_VALUE ? null : value;
+    }
+    
+    /**
+     * 解決結果をキャッシュする。<p>
+     *
+     * @param key キー
+     * @param clazz クラス
+     * @param value 解決結果
+     */
+    public void put(Object key, Class clazz, Object value){
+        Map keyMap = (Map)cache.get(clazz);
+        if(keyMap == null){
+            if(maxSize > 0 && cache.size() >= maxSize){
+                cache.clear();
+            }
+            keyMap = new ConcurrentHashMap();
+            final Map old = (Map)cache.putIfAbsent(clazz, keyMap);
+            if(old != null){
+                keyMap = old;
+            }
+        }
+        final Object cacheKey = key == null ? NULL_KEY : key;
+        if(maxKeySize > 0 && keyMap.size() >= maxKeySize
+             && !keyMap.containsKey(cacheKey)){
+            keyMap.clear();
+        }
+        keyMap.put(cacheKey, value == null ? NULL_VALUE : value);
+    }
+    
+    /**
+     * キャッシュをクリアする。<p>
+     * 統計情報はクリアしない。<br>
+     */
+    public void clear(){
+        cache.clear();
+    }
+    
+    /**
+     * キャッシュされているクラスの数を取得する。<p>
+     *
+     * @return キャッシュされているクラスの数
+     */
+    public int size(){
+        return cache.size();
+    }
+    
+    /**
+     * キャッシュにヒットした回数を取得する。<p>
+     *
+     * @return ヒット回数
+     */
+    public long getHitCount(){
+        return hitCounter.sum();
+    }
+    
+    /**
+     * キャッシュにヒットしなかった回数を取得する。<p>
+     *
+     * @return ミス回数
+     */
+    public long getMissCount(){
+        return missCounter.sum();
+    }
+    
+    /**
+     * 統計情報をリセットする。<p>
+     */
+    public void resetCount(){
+        hitCounter.reset();
+        missCounter.reset();
+    }
+    
+    private void readObject(ObjectInputStream in)
+     throws IOException, ClassNotFoundException{
+        in.defaultReadObject();
+        cache = new ConcurrentHashMap();
+    }
+}
@@ -66,6 +66,9 @@ public class ObjectMappedEditorFinderService
 	private Properties mEditorMap;
 	/** エディタツリー管理 */
 	private ClassMappingTree mEditorRepository ;
+	/** クラス毎のエディタツリー検索結果キャッシュ */
+	private EditorFinderCache mEditorCache = new EditorFinderCache();
+	private boolean mEditorCacheEnabled = true;
     
 	/**
 	 * ObjectMappedEditorFinderService
@@ -122,13 +125,14 @@ public class ObjectMappedEditorFinderService
             }
             keyEditorMap.put(key, journalEditor);
 		}
-		
+		mEditorCache.clear();
 	}
 	/* (非 Javadoc)
 	 * @see jp.ossc.nimbus.core.ServiceBaseSupport#stopService()
 	 */
 	public void stopService() throws Exception{
 		mEditorRepository.clear();
+		mEditorCache.clear();
 	}
 	/* (非 Javadoc)
 	 * @see jp.ossc.nimbus.core.ServiceBaseSupport#destroyService()
@@ -193,7 +197,18 @@ public class ObjectMappedEditorFinderService
 	}
 	
 	public JournalEditor findEditor(Object key, Class paramClass) {
-		Map keyEditorMap = (Map)mEditorRepository.getValue(paramClass);
+		Map keyEditorMap = null;
+		if(mEditorCacheEnabled && paramClass != null){
+			final Object cached = mEditorCache.get(null, paramClass);
+			if(cached == EditorFinderCache.NOT_CACHED){
+				keyEditorMap = (Map)mEditorRepository.getValue(paramClass);
+				mEditorCache.put(null, paramClass, keyEditorMap);
+			}else{
+				keyEditorMap = (Map)cached;
+			}
+		}else{
+			keyEditorMap = (Map)mEditorRepository.getValue(paramClass);
+		}
 		if(keyEditorMap == null){
 		    return mParentFinder != null ? mParentFinder.findEditor(key, paramClass) : null;
 		}
@@ -237,5 +252,53 @@ public class ObjectMappedEditorFinderService
     public void setEditorFinder(EditorFinder parentFinder) {
         mParentFinder = parentFinder;
     }
+    
+    // ObjectMappedEditorFinderServiceMBeanのJavaDoc
+    public void setEditorCacheEnabled(boolean isEnabled){
+        mEditorCacheEnabled = isEnabled;
+        if(!isEnabled){
+            mEditorCache.clear();
+        }
+    }
+    
+    // ObjectMappedEditorFinderServiceMBeanのJavaDoc
+    public boolean isEditorCacheEnabled(){
+        return mEditorCacheEnabled;
+    }
+    
+    // ObjectMappedEditorFinderServiceMBeanのJavaDoc
+    public void setEditorCacheMaxSize(int max){
+        mEditorCache.setMaxSize(max);
+    }
+    
+    // ObjectMappedEditorFinderServiceMBeanのJavaDoc
+    public int getEditorCacheMaxSize(){
+        return mEditorCache.getMaxSize();
+    }
+    
+    // ObjectMappedEditorFinderServiceMBeanのJavaDoc
+    public int getEditorCacheSize(){
+        return mEditorCache.size();
+    }
+    
+    // ObjectMappedEditorFinderServiceMBeanのJavaDoc
+    public long getEditorCacheHitCount(){
+        return mEditorCache.getHitCount();
+    }
+    
+    // ObjectMappedEditorFinderServiceMBeanのJavaDoc
+    public long getEditorCacheMissCount(){
+        return mEditorCache.getMissCount();
+    }
+    
+    // ObjectMappedEditorFinderServiceMBeanのJavaDoc
+    public void clearEditorCache(){
+        mEditorCache.clear();
+    }
+    
+    // ObjectMappedEditorFinderServiceMBeanのJavaDoc
+    public void resetEditorCacheCount(){
+        mEditorCache.resetCount();
+    }
  
 }
@@ -48,6 +48,8 @@ public class RegexClassMappedEditorFinderService extends ServiceBase
     private Map editorMapping;
     private Map editorRegexMapping;
     private Map namePatternMapping;
+    private EditorFinderCache editorCache = new EditorFinderCache();
+    private boolean isEditorCacheEnabled = true;
     
     public void setParentEditorfinderServiceName(ServiceName name){
         parentEditorfinderServiceName = name;
@@ -63,6 +65,50 @@ public class RegexClassMappedEditorFinderService extends ServiceBase
         return editorMapping;
     }
     
+    public void setEditorCacheEnabled(boolean isEnabled){
+        isEditorCacheEnabled = isEnabled;
+        if(!isEnabled){
+            editorCache.clear();
+        }
+    }
+    public boolean isEditorCacheEnabled(){
+        return isEditorCacheEnabled;
+    }
+    
+    public void setEditorCacheMaxSize(int max){
+        editorCache.setMaxSize(max);
+    }
+    public int getEditorCacheMaxSize(){
+        return editorCache.getMaxSize();
+    }
+    
+    public void setEditorCacheMaxKeySize(int max){
+        editorCache.setMaxKeySize(max);
+    }
+    public int getEditorCacheMaxKeySize(){
+        return editorCache.getMaxKeySize();
+    }
+    
+    public int getEditorCacheSize(){
+        return editorCache.size();
+    }
+    
+    public long getEditorCacheHitCount(){
+        return editorCache.getHitCount();
+    }
+    
+    public long getEditorCacheMissCount(){
+        return editorCache.getMissCount();
+    }
+    
+    public void clearEditorCache(){
+        editorCache.clear();
+    }
+    
+    public void resetEditorCacheCount(){
+        editorCache.resetCount();
+    }
+    
     public void createService() throws Exception{
         editorRegexMapping = new HashMap();
         namePatternMapping = new LinkedHashMap();
@@ -122,11 +168,13 @@ public class RegexClassMappedEditorFinderService extends ServiceBase
             }
             keyEditorMap.put(key, journalEditor);
         }
+        editorCache.clear();
     }
     
     public void stopService() throws Exception{
         editorRegexMapping.clear();
         namePatternMapping.clear();
+        editorCache.clear();
     }
     
     public void destroyService() throws Exception{
@@ -138,7 +186,7 @@ public class RegexClassMappedEditorFinderService extends ServiceBase
         return findEditor(null, clazz);
     }
     public JournalEditor findEditor(Object key, Class clazz){
-        JournalEditor editor = findEditor(key, clazz.getName());
+        JournalEditor editor = findMappedEditor(key, clazz);
         if(editor == null){
             final Class[] interfaces = clazz.getInterfaces();
             for(int i = 0; i < interfaces.length; i++){
@@ -163,6 +211,20 @@ public class RegexClassMappedEditorFinderService extends ServiceBase
         return editor;
     }
     
+    private JournalEditor findMappedEditor(Object key, Class clazz){
+        if(!isEditorCacheEnabled){
+            return findEditor(key, clazz.getName());
+        }
+        // 親のEditorFinderの検索結果はキャッシュせず、このサービスの正規表現マッピングの検索結果だけをキャッシュする
+        final Object cached = editorCache.get(key, clazz);
+        if(cached != EditorFinderCache.NOT_CACHED){
+            return (JournalEditor)cached;
+        }
+        final JournalEditor editor = findEditor(key, clazz.getName());
+        editorCache.put(key, clazz, editor);
+        return editor;
+    }
+    
     private JournalEditor findEditor(Object key, String className){
         final Iterator entries = namePatternMapping.entrySet().iterator();
         while(entries.hasNext()){
@@ -49,4 +49,83 @@ public interface RegexClassMappedEditorFinderServiceMBean
     
     public void setEditorMapping(Map map);
     public Map getEditorMapping();
+    
+    /**
+     * クラス毎のエディタの検索結果をキャッシュするかどうかを設定する。<p>
+     * キャッシュするのは、このサービスの正規表現マッピングの検索結果だけで、親のEditorFinderから取得したエディタはキャッシュしない。<br>
+     * デフォルトは、true。<br>
+     *
+     * @param isEnabled キャッシュする場合true
+     */
+    public void setEditorCacheEnabled(boolean isEnabled);
+    
+    /**
+     * クラス毎のエディタの検索結果をキャッシュするかどうかを判定する。<p>
+     *
+     * @return trueの場合キャッシュする
+     */
+    public boolean isEditorCacheEnabled();
+    
+    /**
+     * エディタの検索結果をキャッシュするクラス数の最大値を設定する。<p>
+     * 最大値を超えた場合は、キャッシュをクリアする。0以下の場合は、制限しない。<br>
+     * デフォルトは、{@link EditorFinderCache#DEFAULT_MAX_SIZE}。<br>
+     *
+     * @param max 最大値
+     */
+    public void setEditorCacheMaxSize(int max);
+    
+    /**
+     * エディタの検索結果をキャッシュするクラス数の最大値を取得する。<p>
+     *
+     * @return 最大値
+     */
+    public int getEditorCacheMaxSize();
+    
+    /**
+     * 1つのクラスに対してエディタの検索結果をキャッシュするキー数の最大値を設定する。<p>
+     * 最大値を超えた場合は、そのクラスのキャッシュをクリアする。0以下の場合は、制限しない。<br>
+     * デフォルトは、{@link EditorFinderCache#DEFAULT_MAX_KEY_SIZE}。<br>
+     *
+     * @param max 最大値
+     */
+    public void setEditorCacheMaxKeySize(int max);
+    
+    /**
+     * 1つのクラスに対してエディタの検索結果をキャッシュするキー数の最大値を取得する。<p>
+     *
+     * @return 最大値
+     */
+    public int getEditorCacheMaxKeySize();
+    
+    /**
+     * エディタの検索結果をキャッシュしているクラスの数を取得する。<p>
+     *
+     * @return キャッシュしているクラスの数
+     */
+    public int getEditorCacheSize();
+    
+    /**
+     * エディタの検索結果のキャッシュにヒットした回数を取得する。<p>
+     *
+     * @return ヒット回数
+     */
+    public long getEditorCacheHitCount();
+    
+    /**
+     * エディタの検索結果のキャッシュにヒットしなかった回数を取得する。<p>
+     *
+     * @return ミス回数
+     */
+    public long getEditorCacheMissCount();
+    
+    /**
+     * エディタの検索結果のキャッシュをクリアする。<p>
+     */
+    public void clearEditorCache();
+    
+    /**
+     * エディタの検索結果のキャッシュのヒット回数とミス回数をリセットする。<p>
+     */
+    public void resetEditorCacheCount();
 }
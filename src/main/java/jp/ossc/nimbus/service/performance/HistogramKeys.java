@@ -0,0 +1,91 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.performance;
+
+/**
+ * ヒストグラムのメトリクスキー生成ユーティリティ。<p>
+ * パーセンタイルや時間窓を、メトリクス情報マップのキーやラベルに使う文字列に変換する。<br>
+ *
+ * @author M.Takata
+ */
+public final class HistogramKeys{
+    
+    private HistogramKeys(){
+    }
+    
+    /**
+     * パーセンタイルから、メトリクス情報マップのキーを生成する。<p>
+     * 例えば、接頭辞"P"、パーセンタイル99.9の場合、"P999"となる。<br>
+     *
+     * @param prefix キーの接頭辞
+     * @param percentile パーセンタイル
+     * @return キー
+     */
+    public static String toPercentileKey(String prefix, double percentile){
+        String str = Double.toString(percentile);
+        if(str.endsWith(".0")){
+            str = str.substring(0, str.length() - 2);
+        }
+        return prefix + str.replace(".", "");
+    }
+    
+    /**
+     * パーセンタイルと時間窓から、メトリクス情報マップのキーを生成する。<p>
+     * 例えば、接頭辞"P"、パーセンタイル99、時間窓60000[ms]の場合、"P99_1m"となる。<br>
+     *
+     * @param prefix キーの接頭辞
+     * @param percentile パーセンタイル
+     * @param window 時間窓[ms]
+     * @return キー
+     */
+    public static String toPercentileKey(String prefix, double percentile, long window){
+        return toPercentileKey(prefix, percentile) + '_' + toWindowKey(window);
+    }
+    
+    /**
+     * 時間窓を、割り切れる最大の単位(h、m、s、ms)で表した文字列に変換する。<p>
+     *
+     * @param window 時間窓[ms]
+     * @return 時間窓を表す文字列
+     */
+    public static String toWindowKey(long window){
+        if(window % 3600000L == 0){
+            return (window / 3600000L) + "h";
+        }else if(window % 60000L == 0){
+            return (window / 60000L) + "m";
+        }else if(window % 1000L == 0){
+            return (window / 1000L) + "s";
+        }else{
+            return window + "ms";
+        }
+    }
+}
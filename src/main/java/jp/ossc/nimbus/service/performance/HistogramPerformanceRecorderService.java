@@ -0,0 +1,616 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.performance;
+
+import java.io.StringWriter;
+import java.io.PrintWriter;
+import java.util.Date;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.text.SimpleDateFormat;
+
+import jp.ossc.nimbus.core.ServiceBase;
+import jp.ossc.nimbus.core.ServiceName;
+import jp.ossc.nimbus.core.ServiceManagerFactory;
+import jp.ossc.nimbus.daemon.Daemon;
+import jp.ossc.nimbus.daemon.DaemonRunnableAdaptor;
+import jp.ossc.nimbus.daemon.DaemonControl;
+import jp.ossc.nimbus.service.writer.Category;
+import jp.ossc.nimbus.service.writer.MessageWriteException;
+import jp.ossc.nimbus.service.writer.prometheus.HelpProvider;
+
+/**
+ * ヒストグラムで処理時間を記録する。<p>
+ * {@link DefaultPerformanceRecorderService}が記録値を全て保持するのに対して、このサービスは対数線形ヒストグラムの頻度だけを保持する。<br>
+ * ヒストグラムはストライプ毎にアトミックな配列で持つため、記録時に同期化を必要とせず、記録件数に関わらずメモリ使用量は一定となる。<br>
+ * リセットのタイミングで、記録回数、最小値、最大値、平均値、中央値、合計に加えて、{@link #setPercentiles(double[])}で指定したパーセンタイルを出力する。<br>
+ *
+ * @author M.Takata
+ */
+public class HistogramPerformanceRecorderService extends ServiceBase implements PerformanceRecorder, HistogramPerformanceRecorderServiceMBean, HelpProvider{
+    
+    private static final long serialVersionUID = -1652203977245869913L;
+    
+    private long resetInterval = 60000;
+    private int stripeSize = Runtime.getRuntime().availableProcessors();
+    private int subBucketBits = LogLinearHistogram.DEFAULT_SUB_BUCKET_BITS;
+    private double[] percentiles = new double[]{50.0d, 90.0d, 99.0d, 99.9d};
+    private ServiceName categoryServiceName;
+    private boolean isOutputNoAccessTime = true;
+    private boolean isOutputTimestamp = true;
+    private boolean isOutputCount = true;
+    private boolean isOutputBestPerformance = true;
+    private boolean isOutputWorstPerformance = true;
+    private boolean isOutputAveragePerformance = true;
+    private boolean isOutputMedianPerformance = true;
+    private boolean isOutputPercentiles = true;
+    private boolean isOutputFirstTimestamp = true;
+    private boolean isOutputLastTimestamp = true;
+    private boolean isOutputSum = true;
+    private String description = "performance";
+    private String descriptionOfCount = "count";
+    private String descriptionOfBestPerformance = "best performance";
+    private String descriptionOfWorstPerformance = "worst performance";
+    private String descriptionOfAveragePerformance = "average performance";
+    private String descriptionOfMedianPerformance = "median performance";
+    private String descriptionOfPercentile = "percentile performance";
+    private String descriptionOfSum = "sum";
+    private String descriptionOfFirstTimestamp = "first time";
+    private String descriptionOfLastTimestamp = "last time";
+    private Map labelMap;
+    
+    private Category category;
+    private volatile Stripe[] stripes;
+    private String[] percentileKeys;
+    private volatile LogLinearHistogram lastHistogram;
+    private Daemon resetDaemon;
+    
+    public void setResetInterval(long millis){
+        if(millis <= 0){
+            throw new IllegalArgumentException("ResetInterval must be greater than 0. interval=" + millis);
+        }
+        resetInterval = millis;
+    }
+    public long getResetInterval(){
+        return resetInterval;
+    }
+    
+    public void setStripeSize(int size){
+        if(size <= 0){
+            throw new IllegalArgumentException("StripeSize must be greater than 0. size=" + size);
+        }
+        stripeSize = size;
+    }
+    public int getStripeSize(){
+        return stripeSize;
+    }
+    
+    public void setSubBucketBits(int bits){
+        subBucketBits = bits;
+    }
+    public int getSubBucketBits(){
+        return subBucketBits;
+    }
+    
+    public void setPercentiles(double[] percentiles){
+        this.percentiles = percentiles;
+    }
+    public double[] getPercentiles(){
+        return percentiles;
+    }
+    
+    public void setCategoryServiceName(ServiceName name){
+        categoryServiceName = name;
+    }
+    public ServiceName getCategoryServiceName(){
+        return categoryServiceName;
+    }
+    
+    public void setLabelMap(Map map){
+        labelMap = map;
+    }
+    public Map getLabelMap(){
+        return labelMap;
+    }
+    
+    public void setOutputNoAccessTime(boolean isOutput){
+        isOutputNoAccessTime = isOutput;
+    }
+    public boolean isOutputNoAccessTime(){
+        return isOutputNoAccessTime;
+    }
+    
+    public void setOutputTimestamp(boolean isOutput){
+        isOutputTimestamp = isOutput;
+    }
+    public boolean isOutputTimestamp(){
+        return isOutputTimestamp;
+    }
+    
+    public void setOutputCount(boolean isOutput){
+        isOutputCount = isOutput;
+    }
+    public boolean isOutputCount(){
+        return isOutputCount;
+    }
+    
+    public void setOutputBestPerformance(boolean isOutput){
+        isOutputBestPerformance = isOutput;
+    }
+    public boolean isOutputBestPerformance(){
+        return isOutputBestPerformance;
+    }
+    
+    public void setOutputWorstPerformance(boolean isOutput){
+        isOutputWorstPerformance = isOutput;
+    }
+    public boolean isOutputWorstPerformance(){
+        return isOutputWorstPerformance;
+    }
+    
+    public void setOutputAveragePerformance(boolean isOutput){
+        isOutputAveragePerformance = isOutput;
+    }
+    public boolean isOutputAveragePerformance(){
+        return isOutputAveragePerformance;
+    }
+    
+    public void setOutputMedianPerformance(boolean isOutput){
+        isOutputMedianPerformance = isOutput;
+    }
+    public boolean isOutputMedianPerformance(){
+        return isOutputMedianPerformance;
+    }
+    
+    public void setOutputPercentiles(boolean isOutput){
+        isOutputPercentiles = isOutput;
+    }
+    public boolean isOutputPercentiles(){
+        return isOutputPercentiles;
+    }
+    
+    public void setOutputFirstTimestamp(boolean isOutput){
+        isOutputFirstTimestamp = isOutput;
+    }
+    public boolean isOutputFirstTimestamp(){
+        return isOutputFirstTimestamp;
+    }
+    
+    public void setOutputLastTimestamp(boolean isOutput){
+        isOutputLastTimestamp = isOutput;
+    }
+    public boolean isOutputLastTimestamp(){
+        return isOutputLastTimestamp;
+    }
+    
+    public void setOutputSum(boolean isOutput){
+        isOutputSum = isOutput;
+    }
+    public boolean isOutputSum(){
+        return isOutputSum;
+    }
+    
+    public void setDescription(String desc){
+        description = desc;
+    }
+    public String getDescription(){
+        return description;
+    }
+    
+    public void setDescriptionOfCount(String desc){
+        descriptionOfCount = desc;
+    }
+    public String getDescriptionOfCount(){
+        return descriptionOfCount;
+    }
+    
+    public void setDescriptionOfBestPerformance(String desc){
+        descriptionOfBestPerformance = desc;
+    }
+    public String getDescriptionOfBestPerformance(){
+        return descriptionOfBestPerformance;
+    }
+    
+    public void setDescriptionOfWorstPerformance(String desc){
+        descriptionOfWorstPerformance = desc;
+    }
+    public String getDescriptionOfWorstPerformance(){
+        return descriptionOfWorstPerformance;
+    }
+    
+    public void setDescriptionOfAveragePerformance(String desc){
+        descriptionOfAveragePerformance = desc;
+    }
+    public String getDescriptionOfAveragePerformance(){
+        return descriptionOfAveragePerformance;
+    }
+    
+    public void setDescriptionOfMedianPerformance(String desc){
+        descriptionOfMedianPerformance = desc;
+    }
+    public String getDescriptionOfMedianPerformance(){
+        return descriptionOfMedianPerformance;
+    }
+    
+    public void setDescriptionOfPercentile(String desc){
+        descriptionOfPercentile = desc;
+    }
+    public String getDescriptionOfPercentile(){
+        return descriptionOfPercentile;
+    }
+    
+    public void setDescriptionOfSum(String desc){
+        descriptionOfSum = desc;
+    }
+    public String getDescriptionOfSum(){
+        return descriptionOfSum;
+    }
+    
+    public void setDescriptionOfFirstTimestamp(String desc){
+        descriptionOfFirstTimestamp = desc;
+    }
+    public String getDescriptionOfFirstTimestamp(){
+        return descriptionOfFirstTimestamp;
+    }
+    
+    public void setDescriptionOfLastTimestamp(String desc){
+        descriptionOfLastTimestamp = desc;
+    }
+    public String getDescriptionOfLastTimestamp(){
+        return descriptionOfLastTimestamp;
+    }
+    
+    public void setCategory(Category category){
+        this.category = category;
+    }
+    
+    public void startService() throws Exception{
+        
+        if(categoryServiceName != null){
+            category = (Category)ServiceManagerFactory.getServiceObject(categoryServiceName);
+        }
+        
+        percentileKeys = new String[percentiles == null ? 0 : percentiles.length];
+        for(int i = 0; i < percentileKeys.length; i++){
+            percentileKeys[i] = toPercentileKey(percentiles[i]);
+        }
+        stripes = new Stripe[stripeSize];
+        for(int i = 0; i < stripes.length; i++){
+            stripes[i] = new Stripe();
+        }
+        lastHistogram = null;
+        resetDaemon = new Daemon(new ResetDaemonRunnable());
+        resetDaemon.setName("Nimbus PerformanceRecorderWriter " + getServiceNameObject());
+        resetDaemon.start();
+    }
+    
+    public void stopService() throws Exception{
+        resetDaemon.stop();
+    }
+    
+    public void destroyService() throws Exception{
+        stripes = null;
+        lastHistogram = null;
+    }
+    
+    /**
+     * パーセンタイルを、出力するパフォーマンス情報マップのキーに変換する。<p>
+     *
+     * @param percentile パーセンタイル
+     * @return キー
+     */
+    protected String toPercentileKey(double percentile){
+        return HistogramKeys.toPercentileKey(RECORD_KEY_PERCENTILE_PREFIX, percentile);
+    }
+    
+    public LogLinearHistogram getHistogram(){
+        final LogLinearHistogram result = new LogLinearHistogram(subBucketBits);
+        final Stripe[] current = stripes;
+        if(current != null){
+            for(int i = 0; i < current.length; i++){
+                current[i].copyTo(result);
+            }
+            result.adjustSummary();
+        }
+        return result;
+    }
+    
+    public LogLinearHistogram getLastHistogram(){
+        final LogLinearHistogram result = lastHistogram;
+        return result == null ? null : result.copy();
+    }
+    
+    public long getValueAtPercentile(double percentile){
+        return getHistogram().getValueAtPercentile(percentile);
+    }
+    
+    public String display(){
+        final StringWriter sw = new StringWriter();
+        final PrintWriter pw = new PrintWriter(sw);
+        final LogLinearHistogram histogram = getHistogram();
+        long firstTime = -1;
+        long lastTime = -1;
+        final Stripe[] current = stripes;
+        if(current != null){
+            for(int i = 0; i < current.length; i++){
+                final long first = current[i].firstTime.get();
+                if(first != -1 && (firstTime == -1 || first < firstTime)){
+                    firstTime = first;
+                }
+                lastTime = Math.max(lastTime, current[i].lastTime.get());
+            }
+        }
+        pw.print(RECORD_KEY_COUNT);
+        pw.print("=");
+        pw.println(histogram.getCount());
+        pw.print(RECORD_KEY_BEST);
+        pw.print("=");
+        pw.println(histogram.getMin());
+        pw.print(RECORD_KEY_WORST);
+        pw.print("=");
+        pw.println(histogram.getMax());
+        pw.print(RECORD_KEY_AVERAGE);
+        pw.print("=");
+        pw.println(histogram.getMean());
+        pw.print(RECORD_KEY_MEDIAN);
+        pw.print("=");
+        pw.println(histogram.getValueAtPercentile(50.0d));
+        for(int i = 0; i < percentileKeys.length; i++){
+            pw.print(percentileKeys[i]);
+            pw.print("=");
+            pw.println(histogram.getValueAtPercentile(percentiles[i]));
+        }
+        pw.print(RECORD_KEY_SUM);
+        pw.print("=");
+        pw.println(histogram.getSum());
+        SimpleDateFormat format = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss.SSS");
+        pw.print(RECORD_KEY_FIRST_TIMESTAMP);
+        pw.print("=");
+        pw.println(firstTime == -1 ? "-" : format.format(new Date(firstTime)));
+        pw.print(RECORD_KEY_LAST_TIMESTAMP);
+        pw.print("=");
+        pw.println(lastTime == -1 ? "-" : format.format(new Date(lastTime)));
+        pw.flush();
+        return sw.toString();
+    }
+    
+    public String getHelp(){
+        return getDescription();
+    }
+    
+    public String getHelp(String key){
+        if(RECORD_KEY_COUNT.equals(key)){
+            return getDescriptionOfCount();
+        }else if(RECORD_KEY_BEST.equals(key)){
+            return getDescriptionOfBestPerformance();
+        }else if(RECORD_KEY_WORST.equals(key)){
+            return getDescriptionOfWorstPerformance();
+        }else if(RECORD_KEY_AVERAGE.equals(key)){
+            return getDescriptionOfAveragePerformance();
+        }else if(RECORD_KEY_MEDIAN.equals(key)){
+            return getDescriptionOfMedianPerformance();
+        }else if(RECORD_KEY_SUM.equals(key)){
+            return getDescriptionOfSum();
+        }else if(RECORD_KEY_FIRST_TIMESTAMP.equals(key)){
+            return getDescriptionOfFirstTimestamp();
+        }else if(RECORD_KEY_LAST_TIMESTAMP.equals(key)){
+            return getDescriptionOfLastTimestamp();
+        }else if(percentileKeys != null){
+            for(int i = 0; i < percentileKeys.length; i++){
+                if(percentileKeys[i].equals(key)){
+                    return getDescriptionOfPercentile() + " " + percentiles[i];
+                }
+            }
+        }
+        return null;
+    }
+    
+    public void record(long startTime, long endTime){
+        if(getState() != STARTED){
+            return;
+        }
+        final Stripe stripe = getStripe();
+        if(stripe == null){
+            return;
+        }
+        final long performance = endTime - startTime;
+        stripe.record(startTime, performance < 0 ? 0 : performance);
+    }
+    
+    public void recordValue(long timestamp, long value){
+        if(getState() != STARTED){
+            return;
+        }
+        final Stripe stripe = getStripe();
+        if(stripe == null){
+            return;
+        }
+        stripe.record(timestamp, value);
+    }
+    
+    private Stripe getStripe(){
+        final Stripe[] current = stripes;
+        if(current == null){
+            return null;
+        }
+        return current[(int)(Thread.currentThread().getId() % current.length)];
+    }
+    
+    private class ResetDaemonRunnable extends DaemonRunnableAdaptor{
+        
+        private long recordStartTime = -1;
+        
+        public Object provide(DaemonControl ctrl) throws Throwable{
+            recordStartTime = System.currentTimeMillis();
+            ctrl.sleep(resetInterval, true);
+            return stripes;
+        }
+        
+        public void consume(Object paramObj, DaemonControl ctrl) throws Throwable{
+            final Stripe[] current = (Stripe[])paramObj;
+            if(current == null){
+                return;
+            }
+            final Date timestamp = new Date(recordStartTime);
+            final LogLinearHistogram merged = new LogLinearHistogram(subBucketBits);
+            long firstTime = -1;
+            long lastTime = -1;
+            for(int i = 0; i < current.length; i++){
+                final long[] times = current[i].drainTo(merged);
+                if(times[0] != -1 && (firstTime == -1 || times[0] < firstTime)){
+                    firstTime = times[0];
+                }
+                lastTime = Math.max(lastTime, times[1]);
+            }
+            merged.adjustSummary();
+            lastHistogram = merged;
+            if(category != null && (isOutputNoAccessTime || merged.getCount() != 0)){
+                
+                final Map record = new LinkedHashMap();
+                
+                if(labelMap != null){
+                    record.putAll(labelMap);
+                }
+                
+                if(isOutputTimestamp){
+                    record.put(RECORD_KEY_TIMESTAMP, timestamp);
+                }
+                if(isOutputCount){
+                    record.put(RECORD_KEY_COUNT, new Long(merged.getCount()));
+                }
+                if(isOutputBestPerformance){
+                    record.put(RECORD_KEY_BEST, new Long(merged.getMin()));
+                }
+                if(isOutputWorstPerformance){
+                    record.put(RECORD_KEY_WORST, new Long(merged.getMax()));
+                }
+                if(isOutputAveragePerformance){
+                    record.put(RECORD_KEY_AVERAGE, new Double(merged.getMean()));
+                }
+                if(isOutputMedianPerformance){
+                    record.put(RECORD_KEY_MEDIAN, new Long(merged.getValueAtPercentile(50.0d)));
+                }
+                if(isOutputPercentiles){
+                    for(int i = 0; i < percentileKeys.length; i++){
+                        record.put(percentileKeys[i], new Long(merged.getValueAtPercentile(percentiles[i])));
+                    }
+                }
+                if(isOutputSum){
+                    record.put(RECORD_KEY_SUM, new Long(merged.getSum()));
+                }
+                if(isOutputFirstTimestamp){
+                    record.put(RECORD_KEY_FIRST_TIMESTAMP, firstTime == -1 ? null : new Date(firstTime));
+                }
+                if(isOutputLastTimestamp){
+                    record.put(RECORD_KEY_LAST_TIMESTAMP, lastTime == -1 ? null : new Date(lastTime));
+                }
+                try{
+                    category.write(record);
+                }catch(MessageWriteException e){
+                }
+            }
+        }
+        
+        public void garbage(){
+            try{
+                consume(stripes, null);
+            }catch(Throwable th){
+            }
+        }
+    }
+    
+    /**
+     * ストライプ。<p>
+     * バケット毎の頻度をアトミックに加算し、リセット時はバケット毎に取り出してゼロに戻すため、記録とリセットが競合しても記録が失われない。<br>
+     */
+    private class Stripe{
+        private final AtomicLongArray counts = new AtomicLongArray(LogLinearHistogram.getBucketSize(subBucketBits));
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+        public final AtomicLong firstTime = new AtomicLong(-1);
+        public final AtomicLong lastTime = new AtomicLong(-1);
+        
+        public void record(long timestamp, long value){
+            if(value < 0){
+                value = 0;
+            }
+            counts.incrementAndGet(LogLinearHistogram.getBucketIndex(value, subBucketBits));
+            sum.addAndGet(value);
+            long current = min.get();
+            while(value < current && !min.compareAndSet(current, value)){
+                current = min.get();
+            }
+            current = max.get();
+            while(value > current && !max.compareAndSet(current, value)){
+                current = max.get();
+            }
+            firstTime.compareAndSet(-1, timestamp);
+            lastTime.set(timestamp);
+        }
+        
+        public long[] drainTo(LogLinearHistogram histogram){
+            long total = 0;
+            for(int i = 0, imax = counts.length(); i < imax; i++){
+                if(counts.get(i) != 0){
+                    final long count = counts.getAndSet(i, 0);
+                    histogram.addBucketCount(i, count);
+                    total += count;
+                }
+            }
+            final long[] times = new long[]{firstTime.getAndSet(-1), lastTime.getAndSet(-1)};
+            final long minValue = min.getAndSet(Long.MAX_VALUE);
+            final long maxValue = max.getAndSet(Long.MIN_VALUE);
+            final long sumValue = sum.getAndSet(0);
+            if(total != 0){
+                histogram.addSummary(minValue, maxValue, sumValue);
+            }
+            return times;
+        }
+        
+        public void copyTo(LogLinearHistogram histogram){
+            long total = 0;
+            for(int i = 0, imax = counts.length(); i < imax; i++){
+                final long count = counts.get(i);
+                if(count != 0){
+                    histogram.addBucketCount(i, count);
+                    total += count;
+                }
+            }
+            if(total != 0){
+                histogram.addSummary(min.get(), max.get(), sum.get());
+            }
+        }
+    }
+}
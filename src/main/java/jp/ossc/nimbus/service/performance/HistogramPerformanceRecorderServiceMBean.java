@@ -0,0 +1,413 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.performance;
+
+import java.util.Map;
+
+import jp.ossc.nimbus.core.*;
+
+/**
+ * {@link HistogramPerformanceRecorderService}のMBeanインタフェース<p>
+ * 
+ * @author M.Takata
+ * @see HistogramPerformanceRecorderService
+ */
+public interface HistogramPerformanceRecorderServiceMBean extends ServiceBaseMBean{
+    
+    /**
+     * 出力するパフォーマンス情報マップのキー：記録開始時刻。<p>
+     */
+    public static final String RECORD_KEY_TIMESTAMP       = DefaultPerformanceRecorderServiceMBean.RECORD_KEY_TIMESTAMP;
+    
+    /**
+     * 出力するパフォーマンス情報マップのキー：初回記録時刻。<p>
+     */
+    public static final String RECORD_KEY_FIRST_TIMESTAMP = DefaultPerformanceRecorderServiceMBean.RECORD_KEY_FIRST_TIMESTAMP;
+    
+    /**
+     * 出力するパフォーマンス情報マップのキー：最終記録時刻。<p>
+     */
+    public static final String RECORD_KEY_LAST_TIMESTAMP  = DefaultPerformanceRecorderServiceMBean.RECORD_KEY_LAST_TIMESTAMP;
+    
+    /**
+     * 出力するパフォーマンス情報マップのキー：記録回数。<p>
+     */
+    public static final String RECORD_KEY_COUNT           = DefaultPerformanceRecorderServiceMBean.RECORD_KEY_COUNT;
+    
+    /**
+     * 出力するパフォーマンス情報マップのキー：最高処理時間。<p>
+     */
+    public static final String RECORD_KEY_BEST            = DefaultPerformanceRecorderServiceMBean.RECORD_KEY_BEST;
+    
+    /**
+     * 出力するパフォーマンス情報マップのキー：最低処理時間。<p>
+     */
+    public static final String RECORD_KEY_WORST           = DefaultPerformanceRecorderServiceMBean.RECORD_KEY_WORST;
+    
+    /**
+     * 出力するパフォーマンス情報マップのキー：平均処理時間。<p>
+     */
+    public static final String RECORD_KEY_AVERAGE         = DefaultPerformanceRecorderServiceMBean.RECORD_KEY_AVERAGE;
+    
+    /**
+     * 出力するパフォーマンス情報マップのキー：中央処理時間。<p>
+     */
+    public static final String RECORD_KEY_MEDIAN          = DefaultPerformanceRecorderServiceMBean.RECORD_KEY_MEDIAN;
+    
+    /**
+     * 出力するパフォーマンス情報マップのキー：合計。<p>
+     */
+    public static final String RECORD_KEY_SUM             = DefaultPerformanceRecorderServiceMBean.RECORD_KEY_SUM;
+    
+    /**
+     * 出力するパフォーマンス情報マップのキー：パーセンタイルの接頭辞。<p>
+     * 接頭辞の後ろに、パーセンタイルから小数点を除いた数字が付く。例えば、99.9パーセンタイルは"P999"となる。<br>
+     */
+    public static final String RECORD_KEY_PERCENTILE_PREFIX = "P";
+    
+    /**
+     * 記録したパフォーマンスをリセットする間隔[ms]を設定する。<p>
+     * デフォルトは、60秒。<br>
+     *
+     * @param millis リセットする間隔[ms]
+     */
+    public void setResetInterval(long millis);
+    
+    /**
+     * 記録したパフォーマンスをリセットする間隔[ms]を取得する。<p>
+     *
+     * @return リセットする間隔[ms]
+     */
+    public long getResetInterval();
+    
+    /**
+     * ヒストグラムのストライプ数を設定する。<p>
+     * 記録するスレッドは、スレッドID毎にいずれかのストライプに記録するため、ストライプ数が多いほど競合が減る。<br>
+     * 1ストライプ当たりのメモリ使用量は、{@link #setSubBucketBits(int)}で決まる一定量となる。<br>
+     * デフォルトは、利用可能なプロセッサ数。<br>
+     *
+     * @param size ストライプ数
+     */
+    public void setStripeSize(int size);
+    
+    /**
+     * ヒストグラムのストライプ数を取得する。<p>
+     *
+     * @return ストライプ数
+     */
+    public int getStripeSize();
+    
+    /**
+     * ヒストグラムの精度を、桁毎の線形分割のビット数で設定する。<p>
+     * 記録値の相対誤差は、1/2^(subBucketBits-1)以下となる。<br>
+     * デフォルトは、{@link LogLinearHistogram#DEFAULT_SUB_BUCKET_BITS}で、相対誤差は約1.6%。<br>
+     *
+     * @param bits 線形分割のビット数
+     */
+    public void setSubBucketBits(int bits);
+    
+    /**
+     * ヒストグラムの精度を、桁毎の線形分割のビット数で取得する。<p>
+     *
+     * @return 線形分割のビット数
+     */
+    public int getSubBucketBits();
+    
+    /**
+     * 出力するパーセンタイルを設定する。<p>
+     * デフォルトは、50、90、99、99.9。<br>
+     *
+     * @param percentiles パーセンタイルの配列
+     */
+    public void setPercentiles(double[] percentiles);
+    
+    /**
+     * 出力するパーセンタイルを取得する。<p>
+     *
+     * @return パーセンタイルの配列
+     */
+    public double[] getPercentiles();
+    
+    /**
+     * リセットのタイミングで、その間のパフォーマンス情報を出力する{@link jp.ossc.nimbus.service.writer.Category Category}サービスのサービス名を設定する。<p>
+     * 設定しない場合は、出力しない。<br>
+     *
+     * @param name Categoryサービスのサービス名
+     */
+    public void setCategoryServiceName(ServiceName name);
+    
+    /**
+     * リセットのタイミングで、その間のパフォーマンス情報を出力する{@link jp.ossc.nimbus.service.writer.Category Category}サービスのサービス名を取得する。<p>
+     *
+     * @return Categoryサービスのサービス名
+     */
+    public ServiceName getCategoryServiceName();
+    
+    /**
+     * パフォーマンスが記録されなかった間のパフォーマンスを出力するかどうかを設定する。<p>
+     * デフォルトは、trueで出力する。<br>
+     *
+     * @param isOutput 出力する場合、true
+     */
+    public void setOutputNoAccessTime(boolean isOutput);
+    
+    /**
+     * パフォーマンスが記録されなかった間のパフォーマンスを出力するかどうかを判定する。<p>
+     *
+     * @return trueの場合、出力する
+     */
+    public boolean isOutputNoAccessTime();
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_TIMESTAMP}を出力するかどうかを設定する。<p>
+     * デフォルトは、trueで出力する。<br>
+     *
+     * @param isOutput 出力する場合、true
+     */
+    public void setOutputTimestamp(boolean isOutput);
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_TIMESTAMP}を出力するかどうかを判定する。<p>
+     *
+     * @return trueの場合、出力する
+     */
+    public boolean isOutputTimestamp();
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_COUNT}を出力するかどうかを設定する。<p>
+     * デフォルトは、trueで出力する。<br>
+     *
+     * @param isOutput 出力する場合、true
+     */
+    public void setOutputCount(boolean isOutput);
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_COUNT}を出力するかどうかを判定する。<p>
+     *
+     * @return trueの場合、出力する
+     */
+    public boolean isOutputCount();
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_BEST}を出力するかどうかを設定する。<p>
+     * デフォルトは、trueで出力する。<br>
+     *
+     * @param isOutput 出力する場合、true
+     */
+    public void setOutputBestPerformance(boolean isOutput);
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_BEST}を出力するかどうかを判定する。<p>
+     *
+     * @return trueの場合、出力する
+     */
+    public boolean isOutputBestPerformance();
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_WORST}を出力するかどうかを設定する。<p>
+     * デフォルトは、trueで出力する。<br>
+     *
+     * @param isOutput 出力する場合、true
+     */
+    public void setOutputWorstPerformance(boolean isOutput);
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_WORST}を出力するかどうかを判定する。<p>
+     *
+     * @return trueの場合、出力する
+     */
+    public boolean isOutputWorstPerformance();
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_AVERAGE}を出力するかどうかを設定する。<p>
+     * デフォルトは、trueで出力する。<br>
+     *
+     * @param isOutput 出力する場合、true
+     */
+    public void setOutputAveragePerformance(boolean isOutput);
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_AVERAGE}を出力するかどうかを判定する。<p>
+     *
+     * @return trueの場合、出力する
+     */
+    public boolean isOutputAveragePerformance();
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_MEDIAN}を出力するかどうかを設定する。<p>
+     * デフォルトは、trueで出力する。<br>
+     *
+     * @param isOutput 出力する場合、true
+     */
+    public void setOutputMedianPerformance(boolean isOutput);
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_MEDIAN}を出力するかどうかを判定する。<p>
+     *
+     * @return trueの場合、出力する
+     */
+    public boolean isOutputMedianPerformance();
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #setPercentiles(double[])}で指定したパーセンタイルを出力するかどうかを設定する。<p>
+     * デフォルトは、trueで出力する。<br>
+     *
+     * @param isOutput 出力する場合、true
+     */
+    public void setOutputPercentiles(boolean isOutput);
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #setPercentiles(double[])}で指定したパーセンタイルを出力するかどうかを判定する。<p>
+     *
+     * @return trueの場合、出力する
+     */
+    public boolean isOutputPercentiles();
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_FIRST_TIMESTAMP}を出力するかどうかを設定する。<p>
+     * デフォルトは、trueで出力する。<br>
+     *
+     * @param isOutput 出力する場合、true
+     */
+    public void setOutputFirstTimestamp(boolean isOutput);
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_FIRST_TIMESTAMP}を出力するかどうかを判定する。<p>
+     *
+     * @return trueの場合、出力する
+     */
+    public boolean isOutputFirstTimestamp();
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_LAST_TIMESTAMP}を出力するかどうかを設定する。<p>
+     * デフォルトは、trueで出力する。<br>
+     *
+     * @param isOutput 出力する場合、true
+     */
+    public void setOutputLastTimestamp(boolean isOutput);
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_LAST_TIMESTAMP}を出力するかどうかを判定する。<p>
+     *
+     * @return trueの場合、出力する
+     */
+    public boolean isOutputLastTimestamp();
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_SUM}を出力するかどうかを設定する。<p>
+     * デフォルトは、trueで出力する。<br>
+     *
+     * @param isOutput 出力する場合、true
+     */
+    public void setOutputSum(boolean isOutput);
+    
+    /**
+     * {@link jp.ossc.nimbus.service.writer.Category Category}サービスに出力するパフォーマンス情報のうち、{@link #RECORD_KEY_SUM}を出力するかどうかを判定する。<p>
+     *
+     * @return trueの場合、出力する
+     */
+    public boolean isOutputSum();
+    
+    /**
+     * 出力するラベルの名前と値のマッピングを設定する。<p>
+     *
+     * @param map 出力するラベルの名前と値のマッピング
+     */
+    public void setLabelMap(Map map);
+    
+    /**
+     * 出力するラベルの名前と値のマッピングを取得する。<p>
+     *
+     * @return 出力するラベルの名前と値のマッピング
+     */
+    public Map getLabelMap();
+    
+    public void setDescription(String desc);
+    public String getDescription();
+    
+    public void setDescriptionOfCount(String desc);
+    public String getDescriptionOfCount();
+    
+    public void setDescriptionOfBestPerformance(String desc);
+    public String getDescriptionOfBestPerformance();
+    
+    public void setDescriptionOfWorstPerformance(String desc);
+    public String getDescriptionOfWorstPerformance();
+    
+    public void setDescriptionOfAveragePerformance(String desc);
+    public String getDescriptionOfAveragePerformance();
+    
+    public void setDescriptionOfMedianPerformance(String desc);
+    public String getDescriptionOfMedianPerformance();
+    
+    public void setDescriptionOfPercentile(String desc);
+    public String getDescriptionOfPercentile();
+    
+    public void setDescriptionOfSum(String desc);
+    public String getDescriptionOfSum();
+    
+    public void setDescriptionOfFirstTimestamp(String desc);
+    public String getDescriptionOfFirstTimestamp();
+    
+    public void setDescriptionOfLastTimestamp(String desc);
+    public String getDescriptionOfLastTimestamp();
+    
+    /**
+     * 現在記録中の間隔のヒストグラムの複製を取得する。<p>
+     * 他のノードのヒストグラムと{@link LogLinearHistogram#add(LogLinearHistogram)}でマージできる。<br>
+     *
+     * @return ヒストグラム
+     */
+    public LogLinearHistogram getHistogram();
+    
+    /**
+     * 直前にリセットした間隔のヒストグラムを取得する。<p>
+     *
+     * @return ヒストグラム。まだリセットされていない場合はnull
+     */
+    public LogLinearHistogram getLastHistogram();
+    
+    /**
+     * 現在記録中の間隔の指定したパーセンタイルの値を取得する。<p>
+     *
+     * @param percentile パーセンタイル
+     * @return パーセンタイルの値
+     */
+    public long getValueAtPercentile(double percentile);
+    
+    /**
+     * 現在のパフォーマンス情報を表示する。<p>
+     *
+     * @return パフォーマンス情報
+     */
+    public String display();
+}
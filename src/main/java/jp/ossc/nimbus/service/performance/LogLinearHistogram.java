@@ -0,0 +1,376 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.performance;
+
+import java.io.Serializable;
+
+/**
+ * 対数線形ヒストグラム。<p>
+ * 値の大きさに応じて桁(2の冪)毎に区間を分け、各区間をさらに線形に分割したバケットで頻度を数える。<br>
+ * バケットの数は値の範囲ではなく精度だけで決まるため、記録する件数に関わらずメモリ使用量は一定となる。<br>
+ * 同じ精度のヒストグラム同士は、{@link #add(LogLinearHistogram)}でマージできる。<br>
+ * このクラスはスレッドセーフではない。<br>
+ *
+ * @author M.Takata
+ */
+public class LogLinearHistogram implements Serializable, Cloneable{
+    
+    private static final long serialVersionUID = -3170563858374932781L;
+    
+    /**
+     * デフォルトの線形分割のビット数。<p>
+     */
+    public static final int DEFAULT_SUB_BUCKET_BITS = 7;
+    
+    private final int subBucketBits;
+    private long[] counts;
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+    
+    /**
+     * デフォルトの精度のヒストグラムを生成する。<p>
+     */
+    public LogLinearHistogram(){
+        this(DEFAULT_SUB_BUCKET_BITS);
+    }
+    
+    /**
+     * 指定した精度のヒストグラムを生成する。<p>
+     * 各桁を2^(subBucketBits-1)個のバケットに分割するため、記録値の相対誤差は1/2^(subBucketBits-1)以下となる。<br>
+     *
+     * @param subBucketBits 線形分割のビット数。1～16
+     */
+    public LogLinearHistogram(int subBucketBits){
+        if(subBucketBits < 1 || subBucketBits > 16){
+            throw new IllegalArgumentException("subBucketBits must be between 1 and 16. subBucketBits=" + subBucketBits);
+        }
+        this.subBucketBits = subBucketBits;
+        counts = new long[getBucketSize(subBucketBits)];
+    }
+    
+    /**
+     * 指定した精度のヒストグラムのバケット数を取得する。<p>
+     *
+     * @param subBucketBits 線形分割のビット数
+     * @return バケット数
+     */
+    public static int getBucketSize(int subBucketBits){
+        final int subBucketCount = 1 << subBucketBits;
+        return (63 - subBucketBits) * (subBucketCount >> 1) + subBucketCount;
+    }
+    
+    /**
+     * 指定した値が属するバケットのインデックスを取得する。<p>
+     *
+     * @param value 値。負の値は0として扱う
+     * @param subBucketBits 線形分割のビット数
+     * @return バケットのインデックス
+     */
+    public static int getBucketIndex(long value, int subBucketBits){
+        if(value < 0){
+            return 0;
+        }
+        final int subBucketCount = 1 << subBucketBits;
+        if(value < subBucketCount){
+            return (int)value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - (subBucketBits - 1);
+        return shift * (subBucketCount >> 1) + (int)(value >>> shift);
+    }
+    
+    /**
+     * 指定したインデックスのバケットに属する最小の値を取得する。<p>
+     *
+     * @param index バケットのインデックス
+     * @param subBucketBits 線形分割のビット数
+     * @return バケットに属する最小の値
+     */
+    public static long getLowestEquivalentValue(int index, int subBucketBits){
+        final int subBucketCount = 1 << subBucketBits;
+        if(index < subBucketCount){
+            return index;
+        }
+        final int halfCount = subBucketCount >> 1;
+        final int shift = index / halfCount - 1;
+        final long subBucket = index - (long)shift * halfCount;
+        return subBucket << shift;
+    }
+    
+    /**
+     * 指定したインデックスのバケットに属する最大の値を取得する。<p>
+     *
+     * @param index バケットのインデックス
+     * @param subBucketBits 線形分割のビット数
+     * @return バケットに属する最大の値
+     */
+    public static long getHighestEquivalentValue(int index, int subBucketBits){
+        final int subBucketCount = 1 << subBucketBits;
+        if(index < subBucketCount){
+            return index;
+        }
+        final int halfCount = subBucketCount >> 1;
+        final int shift = index / halfCount - 1;
+        final long subBucket = index - (long)shift * halfCount;
+        final long highest = ((subBucket + 1) << shift) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+    
+    /**
+     * 線形分割のビット数を取得する。<p>
+     *
+     * @return 線形分割のビット数
+     */
+    public int getSubBucketBits(){
+        return subBucketBits;
+    }
+    
+    /**
+     * 値を記録する。<p>
+     *
+     * @param value 値
+     */
+    public void recordValue(long value){
+        recordValues(value, 1);
+    }
+    
+    /**
+     * 同じ値を指定した回数分記録する。<p>
+     *
+     * @param value 値
+     * @param times 回数
+     */
+    public void recordValues(long value, long times){
+        if(times <= 0){
+            return;
+        }
+        if(value < 0){
+            value = 0;
+        }
+        counts[getBucketIndex(value, subBucketBits)] += times;
+        count += times;
+        sum += value * times;
+        if(value < min){
+            min = value;
+        }
+        if(value > max){
+            max = value;
+        }
+    }
+    
+    /**
+     * 指定したインデックスのバケットに、集計済みの頻度を加算する。<p>
+     * 最小値、最大値、合計は、{@link #addSummary(long, long, long)}で別途加算する。<br>
+     *
+     * @param index バケットのインデックス
+     * @param bucketCount 頻度
+     */
+    protected void addBucketCount(int index, long bucketCount){
+        counts[index] += bucketCount;
+        count += bucketCount;
+    }
+    
+    /**
+     * 集計済みの最小値、最大値、合計を加算する。<p>
+     *
+     * @param minValue 最小値
+     * @param maxValue 最大値
+     * @param total 合計
+     */
+    protected void addSummary(long minValue, long maxValue, long total){
+        sum += total;
+        if(minValue < min){
+            min = minValue;
+        }
+        if(maxValue > max){
+            max = maxValue;
+        }
+    }
+    
+    /**
+     * 最小値、最大値を、頻度のあるバケットの範囲と矛盾しないように補正する。<p>
+     * {@link #addBucketCount(int, long)}と{@link #addSummary(long, long, long)}で別々に集計すると、並行して記録された値の頻度だけが加算され、最小値、最大値に反映されない事がある。<br>
+     * その場合、最小値が最大値を超えるなど、頻度と矛盾した値にならないように、頻度のある最小のバケットと最大のバケットから最小値、最大値を求める。<br>
+     */
+    protected void adjustSummary(){
+        if(count == 0){
+            return;
+        }
+        int lowest = -1;
+        int highest = -1;
+        for(int i = 0; i < counts.length; i++){
+            if(counts[i] != 0){
+                if(lowest == -1){
+                    lowest = i;
+                }
+                highest = i;
+            }
+        }
+        if(min > getHighestEquivalentValue(lowest, subBucketBits)){
+            min = getLowestEquivalentValue(lowest, subBucketBits);
+        }
+        if(max < getLowestEquivalentValue(highest, subBucketBits)){
+            max = getHighestEquivalentValue(highest, subBucketBits);
+        }
+    }
+    
+    /**
+     * 指定したヒストグラムをマージする。<p>
+     *
+     * @param histogram マージするヒストグラム
+     * @exception IllegalArgumentException 精度が異なる場合
+     */
+    public void add(LogLinearHistogram histogram){
+        if(histogram.subBucketBits != subBucketBits){
+            throw new IllegalArgumentException("subBucketBits is different. this=" + subBucketBits + ", histogram=" + histogram.subBucketBits);
+        }
+        if(histogram.count == 0){
+            return;
+        }
+        for(int i = 0; i < counts.length; i++){
+            counts[i] += histogram.counts[i];
+        }
+        count += histogram.count;
+        addSummary(histogram.min, histogram.max, histogram.sum);
+    }
+    
+    /**
+     * 記録した件数を取得する。<p>
+     *
+     * @return 件数
+     */
+    public long getCount(){
+        return count;
+    }
+    
+    /**
+     * 記録した値の合計を取得する。<p>
+     *
+     * @return 合計
+     */
+    public long getSum(){
+        return sum;
+    }
+    
+    /**
+     * 記録した値の最小値を取得する。<p>
+     *
+     * @return 最小値。記録されていない場合は0
+     */
+    public long getMin(){
+        return count == 0 ? 0 : min;
+    }
+    
+    /**
+     * 記録した値の最大値を取得する。<p>
+     *
+     * @return 最大値。記録されていない場合は0
+     */
+    public long getMax(){
+        return count == 0 ? 0 : max;
+    }
+    
+    /**
+     * 記録した値の平均値を取得する。<p>
+     *
+     * @return 平均値。記録されていない場合は0
+     */
+    public double getMean(){
+        return count == 0 ? 0.0d : (double)sum / (double)count;
+    }
+    
+    /**
+     * 指定したパーセンタイルの値を取得する。<p>
+     * 値は、該当するバケットに属する最大の値となり、記録した最大値を超えない。<br>
+     *
+     * @param percentile パーセンタイル。0～100
+     * @return パーセンタイルの値。記録されていない場合は0
+     */
+    public long getValueAtPercentile(double percentile){
+        if(count == 0){
+            return 0;
+        }
+        final double p = Math.min(Math.max(percentile, 0.0d), 100.0d);
+        long target = (long)Math.ceil(p / 100.0d * count);
+        if(target < 1){
+            target = 1;
+        }
+        long total = 0;
+        for(int i = 0; i < counts.length; i++){
+            total += counts[i];
+            if(total >= target){
+                return Math.max(Math.min(getHighestEquivalentValue(i, subBucketBits), max), min);
+            }
+        }
+        return max;
+    }
+    
+    /**
+     * 記録をクリアする。<p>
+     */
+    public void reset(){
+        for(int i = 0; i < counts.length; i++){
+            counts[i] = 0;
+        }
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+    
+    /**
+     * 複製を生成する。<p>
+     *
+     * @return 複製
+     */
+    public LogLinearHistogram copy(){
+        try{
+            final LogLinearHistogram result = (LogLinearHistogram)super.clone();
+            result.counts = (long[])counts.clone();
+            return result;
+        }catch(CloneNotSupportedException e){
+            return null;
+        }
+    }
+    
+    public String toString(){
+        final StringBuilder buf = new StringBuilder(super.toString());
+        buf.append('{');
+        buf.append("count=").append(getCount());
+        buf.append(", min=").append(getMin());
+        buf.append(", max=").append(getMax());
+        buf.append(", mean=").append(getMean());
+        buf.append('}');
+        return buf.toString();
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.performance;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 時間窓ヒストグラム。<p>
+ * 一定時間毎のスロットをリング状に並べ、各スロットに{@link LogLinearHistogram}と同じバケット構成で頻度を数える。<br>
+ * 直近の任意の時間窓のヒストグラムは、その時間窓に含まれるスロットをマージして取得する。<br>
+ * 時間窓の精度はスロットの時間間隔となり、最も長い時間窓をスロットの時間間隔で割った数のスロットを保持する。<br>
+ * 記録はロックを取らずに行えるため、複数スレッドから同時に記録できる。<br>
+ *
+ * @author M.Takata
+ */
+public class RollingWindowHistogram implements Serializable{
+    
+    private static final long serialVersionUID = 6610357725418376217L;
+    
+    private final int subBucketBits;
+    private final long slotInterval;
+    private final Slot[] slots;
+    
+    /**
+     * 時間窓ヒストグラムを生成する。<p>
+     *
+     * @param maxWindow 保持する最長の時間窓[ms]
+     * @param slotInterval スロットの時間間隔[ms]
+     * @param subBucketBits 線形分割のビット数
+     * @see LogLinearHistogram#LogLinearHistogram(int)
+     */
+    public RollingWindowHistogram(long maxWindow, long slotInterval, int subBucketBits){
+        if(slotInterval <= 0){
+            throw new IllegalArgumentException("slotInterval must be positive. slotInterval=" + slotInterval);
+        }
+        if(maxWindow < slotInterval){
+            throw new IllegalArgumentException("maxWindow must be longer than slotInterval. maxWindow=" + maxWindow + ", slotInterval=" + slotInterval);
+        }
+        if(subBucketBits < 1 || subBucketBits > 16){
+            throw new IllegalArgumentException("subBucketBits must be between 1 and 16. subBucketBits=" + subBucketBits);
+        }
+        this.subBucketBits = subBucketBits;
+        this.slotInterval = slotInterval;
+        slots = new Slot[(int)((maxWindow + slotInterval - 1) / slotInterval)];
+        for(int i = 0; i < slots.length; i++){
+            slots[i] = new Slot();
+        }
+    }
+    
+    /**
+     * 線形分割のビット数を取得する。<p>
+     *
+     * @return 線形分割のビット数
+     */
+    public int getSubBucketBits(){
+        return subBucketBits;
+    }
+    
+    /**
+     * スロットの時間間隔[ms]を取得する。<p>
+     *
+     * @return スロットの時間間隔
+     */
+    public long getSlotInterval(){
+        return slotInterval;
+    }
+    
+    /**
+     * 保持する最長の時間窓[ms]を取得する。<p>
+     *
+     * @return 最長の時間窓
+     */
+    public long getMaxWindow(){
+        return slotInterval * slots.length;
+    }
+    
+    /**
+     * 現在時刻で値を記録する。<p>
+     *
+     * @param value 値
+     */
+    public void recordValue(long value){
+        recordValue(System.currentTimeMillis(), value);
+    }
+    
+    /**
+     * 指定した時刻で値を記録する。<p>
+     *
+     * @param timestamp 時刻
+     * @param value 値
+     */
+    public void recordValue(long timestamp, long value){
+        final long epoch = timestamp / slotInterval;
+        final Slot slot = slots[(int)(epoch % slots.length)];
+        if(slot.epoch < epoch){
+            synchronized(slot){
+                if(slot.epoch < epoch){
+                    slot.clear();
+                    slot.epoch = epoch;
+                }
+            }
+        }
+        slot.record(value < 0 ? 0 : value);
+    }
+    
+    /**
+     * 現在時刻から遡って指定した時間窓のヒストグラムを取得する。<p>
+     *
+     * @param window 時間窓[ms]
+     * @return ヒストグラム
+     */
+    public LogLinearHistogram getHistogram(long window){
+        return getHistogram(System.currentTimeMillis(), window);
+    }
+    
+    /**
+     * 指定した時刻から遡って指定した時間窓のヒストグラムを取得する。<p>
+     * 指定した時刻を含むスロットから、時間窓をスロットの時間間隔で切り上げた数のスロットをマージする。<br>
+     *
+     * @param timestamp 時刻
+     * @param window 時間窓[ms]
+     * @return ヒストグラム
+     */
+    public LogLinearHistogram getHistogram(long timestamp, long window){
+        return getHistograms(timestamp, new long[]{window})[0];
+    }
+    
+    /**
+     * 指定した時刻から遡って、指定した複数の時間窓のヒストグラムを取得する。<p>
+     * 短い時間窓から順にスロットをマージしていくため、各スロットは時間窓の数に関わらず1回だけ読み込まれる。<br>
+     *
+     * @param timestamp 時刻
+     * @param windows 時間窓[ms]の配列
+     * @return 時間窓の配列と同じ順序のヒストグラムの配列
+     */
+    public LogLinearHistogram[] getHistograms(long timestamp, long[] windows){
+        final LogLinearHistogram[] result = new LogLinearHistogram[windows.length];
+        final long currentEpoch = timestamp / slotInterval;
+        final long[] slotCounts = new long[windows.length];
+        for(int i = 0; i < windows.length; i++){
+            slotCounts[i] = Math.min((windows[i] + slotInterval - 1) / slotInterval, slots.length);
+        }
+        final long[] sortedSlotCounts = (long[])slotCounts.clone();
+        Arrays.sort(sortedSlotCounts);
+        final LogLinearHistogram merged = new LogLinearHistogram(subBucketBits);
+        long mergedSlotCount = 0;
+        for(int i = 0; i < sortedSlotCounts.length; i++){
+            if(sortedSlotCounts[i] <= mergedSlotCount){
+                continue;
+            }
+            for(int j = 0; j < slots.length; j++){
+                final long age = currentEpoch - slots[j].epoch;
+                if(age >= mergedSlotCount && age < sortedSlotCounts[i]){
+                    slots[j].copyTo(merged);
+                }
+            }
+            mergedSlotCount = sortedSlotCounts[i];
+            merged.adjustSummary();
+            for(int j = 0; j < slotCounts.length; j++){
+                if(slotCounts[j] == mergedSlotCount && result[j] == null){
+                    result[j] = merged.copy();
+                }
+            }
+        }
+        for(int i = 0; i < result.length; i++){
+            if(result[i] == null){
+                result[i] = new LogLinearHistogram(subBucketBits);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 記録をクリアする。<p>
+     */
+    public void reset(){
+        for(int i = 0; i < slots.length; i++){
+            synchronized(slots[i]){
+                slots[i].clear();
+                slots[i].epoch = -1;
+            }
+        }
+    }
+    
+    private class Slot implements Serializable{
+        
+        private static final long serialVersionUID = -1406381938219604271L;
+        
+        public volatile long epoch = -1;
+        private final AtomicLongArray counts = new AtomicLongArray(LogLinearHistogram.getBucketSize(subBucketBits));
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+        
+        public void record(long value){
+            counts.incrementAndGet(LogLinearHistogram.getBucketIndex(value, subBucketBits));
+            sum.addAndGet(value);
+            long current = min.get();
+            while(value < current && !min.compareAndSet(current, value)){
+                current = min.get();
+            }
+            current = max.get();
+            while(value > current && !max.compareAndSet(current, value)){
+                current = max.get();
+            }
+        }
+        
+        public void copyTo(LogLinearHistogram histogram){
+            long total = 0;
+            for(int i = 0, imax = counts.length(); i < imax; i++){
+                final long count = counts.get(i);
+                if(count != 0){
+                    histogram.addBucketCount(i, count);
+                    total += count;
+                }
+            }
+            if(total != 0){
+                histogram.addSummary(min.get(), max.get(), sum.get());
+            }
+        }
+        
+        public void clear(){
+            for(int i = 0, imax = counts.length(); i < imax; i++){
+                counts.set(i, 0);
+            }
+            sum.set(0);
+            min.set(Long.MAX_VALUE);
+            max.set(Long.MIN_VALUE);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.publish;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 購読インデックス。<p>
+ * サブジェクト→キー→クライアント集合の索引を保持し、メッセージの配信先となるクライアントを、クライアント数に依存せずに検索する。<br>
+ * キーにnullを指定して登録されたクライアントは、そのサブジェクトの全てのキーに対するワイルドカード購読として扱う。<br>
+ * 購読の変更は排他的に行い、参照時はロックを取らずに、変更の都度複製された不変のクライアント集合を参照する。<br>
+ *
+ * @author M.Takata
+ */
+public class SubscriptionIndex{
+    
+    private static final Object NULL_SUBJECT = new Object();
+    
+    private final Map subjectMap = new ConcurrentHashMap();
+    
+    /**
+     * 購読を登録する。<p>
+     *
+     * @param subject サブジェクト
+     * @param key キー。nullの場合は、全てのキー
+     * @param client クライアント
+     * @return 新たに登録された場合true
+     */
+    public synchronized boolean add(String subject, String key, Object client){
+        final Object subjectKey = subject == null ? NULL_SUBJECT : subject;
+        SubjectEntry entry = (SubjectEntry)subjectMap.get(subjectKey);
+        if(entry == null){
+            entry = new SubjectEntry();
+            subjectMap.put(subjectKey, entry);
+        }
+        return entry.add(key, client);
+    }
+    
+    /**
+     * 購読を削除する。<p>
+     *
+     * @param subject サブジェクト
+     * @param key キー。nullの場合は、全てのキーに対する購読
+     * @param client クライアント
+     * @return 削除された場合true
+     */
+    public synchronized boolean remove(String subject, String key, Object client){
+        final Object subjectKey = subject == null ? NULL_SUBJECT : subject;
+        final SubjectEntry entry = (SubjectEntry)subjectMap.get(subjectKey);
+        if(entry == null){
+            return false;
+        }
+        final boolean result = entry.remove(key, client);
+        if(entry.isEmpty()){
+            subjectMap.remove(subjectKey);
+        }
+        return result;
+    }
+    
+    /**
+     * 指定したクライアントの全ての購読を削除する。<p>
+     *
+     * @param client クライアント
+     */
+    public synchronized void remove(Object client){
+        final Iterator entries = subjectMap.entrySet().iterator();
+        while(entries.hasNext()){
+            final SubjectEntry entry = (SubjectEntry)((Map.Entry)entries.next()).getValue();
+            entry.removeAll(client);
+            if(entry.isEmpty()){
+                entries.remove();
+            }
+        }
+    }
+    
+    /**
+     * 指定したメッセージのサブジェクトとキーを購読しているクライアントの集合を取得する。<p>
+     * 戻り値の集合は、変更してはならない。<br>
+     *
+     * @param message メッセージ
+     * @return クライアントの集合
+     */
+    public Set getClients(Message message){
+        final Set subjects = message.getSubjects();
+        if(subjects == null || subjects.size() == 0){
+            return Collections.EMPTY_SET;
+        }
+        Set result = null;
+        boolean isShared = false;
+        final Iterator itr = subjects.iterator();
+        while(itr.hasNext()){
+            final String subject = (String)itr.next();
+            final SubjectEntry entry = (SubjectEntry)subjectMap.get(subject == null ? NULL_SUBJECT : subject);
+            if(entry == null){
+                continue;
+            }
+            final Set wildcardClients = entry.wildcardClients;
+            final String key = message.getKey(subject);
+            final Set keyClients = key == null ? null : (Set)entry.keyMap.get(key);
+            for(int i = 0; i < 2; i++){
+                final Set clients = i == 0 ? wildcardClients : keyClients;
+                if(clients == null || clients.size() == 0){
+                    continue;
+                }
+                if(result == null){
+                    // 単一の集合で済む場合は、複製せずに共有する
+                    result = clients;
+                    isShared = true;
+                }else{
+                    if(isShared){
+                        result = new LinkedHashSet(result);
+                        isShared = false;
+                    }
+                    result.addAll(clients);
+                }
+            }
+        }
+        return result == null ? Collections.EMPTY_SET : result;
+    }
+    
+    /**
+     * 購読されているサブジェクトの数を取得する。<p>
+     *
+     * @return サブジェクトの数
+     */
+    public int getSubjectCount(){
+        return subjectMap.size();
+    }
+    
+    /**
+     * 全ての購読を削除する。<p>
+     */
+    public synchronized void clear(){
+        subjectMap.clear();
+    }
+    
+    private static class SubjectEntry{
+        
+        volatile Set wildcardClients = Collections.EMPTY_SET;
+        final Map keyMap = new ConcurrentHashMap();
+        
+        boolean add(String key, Object client){
+            if(key == null){
+                if(wildcardClients.contains(client)){
+                    return false;
+                }
+                wildcardClients = copyAdd(wildcardClients, client);
+                return true;
+            }
+            final Set clients = (Set)keyMap.get(key);
+            if(clients != null && clients.contains(client)){
+                return false;
+            }
+            keyMap.put(key, copyAdd(clients, client));
+            return true;
+        }
+        
+        boolean remove(String key, Object client){
+            if(key == null){
+                if(!wildcardClients.contains(client)){
+                    return false;
+                }
+                wildcardClients = copyRemove(wildcardClients, client);
+                return true;
+            }
+            final Set clients = (Set)keyMap.get(key);
+            if(clients == null || !clients.contains(client)){
+                return false;
+            }
+            final Set newClients = copyRemove(clients, client);
+            if(newClients.size() == 0){
+                keyMap.remove(key);
+            }else{
+                keyMap.put(key, newClients);
+            }
+            return true;
+        }
+        
+        void removeAll(Object client){
+            remove(null, client);
+            final Object[] keys = keyMap.keySet().toArray();
+            for(int i = 0; i < keys.length; i++){
+                remove((String)keys[i], client);
+            }
+        }
+        
+        boolean isEmpty(){
+            return wildcardClients.size() == 0 && keyMap.size() == 0;
+        }
+        
+        private static Set copyAdd(Set clients, Object client){
+            final Set result = clients == null ? new HashSet() : new HashSet(clients);
+            result.add(client);
+            return Collections.unmodifiableSet(result);
+        }
+        
+        private static Set copyRemove(Set clients, Object client){
+            final Set result = new HashSet(clients);
+            result.remove(client);
+            return result.size() == 0 ? Collections.EMPTY_SET : Collections.unmodifiableSet(result);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.publish.tcp;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ByteBuffer}のプール。<p>
+ * 固定サイズのバッファを使い回し、送信フレームを生成する度にバッファを確保するコストとGCの負荷を抑える。<br>
+ * プールのバッファサイズを超えるバッファを要求された場合は、プールを使わずにその都度確保する。<br>
+ *
+ * @author M.Takata
+ */
+public class ByteBufferPool{
+    
+    private final int bufferSize;
+    private final int maxPoolSize;
+    private final boolean isDirect;
+    private final ConcurrentLinkedQueue pool = new ConcurrentLinkedQueue();
+    private final AtomicInteger poolSize = new AtomicInteger();
+    private final AtomicLong allocateCount = new AtomicLong();
+    
+    /**
+     * インスタンスを生成する。<p>
+     *
+     * @param bufferSize プールするバッファのサイズ
+     * @param maxPoolSize プールするバッファの最大数
+     * @param isDirect ダイレクトバッファを使用する場合true
+     */
+    public ByteBufferPool(int bufferSize, int maxPoolSize, boolean isDirect){
+        if(bufferSize <= 0){
+            throw new IllegalArgumentException("bufferSize must be positive : " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.maxPoolSize = maxPoolSize;
+        this.isDirect = isDirect;
+    }
+    
+    /**
+     * プールするバッファのサイズを取得する。<p>
+     *
+     * @return バッファのサイズ
+     */
+    public int getBufferSize(){
+        return bufferSize;
+    }
+    
+    /**
+     * ダイレクトバッファを使用するかどうかを判定する。<p>
+     *
+     * @return ダイレクトバッファを使用する場合true
+     */
+    public boolean isDirect(){
+        return isDirect;
+    }
+    
+    /**
+     * 現在プールされているバッファの数を取得する。<p>
+     *
+     * @return プールされているバッファの数
+     */
+    public int getPoolSize(){
+        return poolSize.get();
+    }
+    
+    /**
+     * プールから取得できずに、新たにバッファを確保した回数を取得する。<p>
+     *
+     * @return バッファの確保回数
+     */
+    public long getAllocateCount(){
+        return allocateCount.get();
+    }
+    
+    /**
+     * 指定されたサイズ以上の容量を持つバッファを取得する。<p>
+     * 取得したバッファは、positionが0、limitが容量の状態である。<br>
+     *
+     * @param size 必要なサイズ
+     * @return バッファ
+     */
+    public ByteBuffer acquire(int size){
+        if(size <= bufferSize){
+            final ByteBuffer buf = (ByteBuffer)pool.poll();
+            if(buf != null){
+                poolSize.decrementAndGet();
+                buf.clear();
+                return buf;
+            }
+            allocateCount.incrementAndGet();
+            return allocate(bufferSize);
+        }
+        allocateCount.incrementAndGet();
+        return allocate(size);
+    }
+    
+    /**
+     * バッファをプールに戻す。<p>
+     * プールのバッファサイズと容量が異なるバッファ、及びプールが一杯の場合は、破棄する。<br>
+     *
+     * @param buf バッファ
+     */
+    public void release(ByteBuffer buf){
+        if(buf == null || buf.capacity() != bufferSize || buf.isDirect() != isDirect){
+            return;
+        }
+        if(poolSize.incrementAndGet() > maxPoolSize){
+            poolSize.decrementAndGet();
+            return;
+        }
+        buf.clear();
+        pool.offer(buf);
+    }
+    
+    /**
+     * プールされているバッファを全て破棄する。<p>
+     */
+    public void clear(){
+        while(pool.poll() != null){
+            poolSize.decrementAndGet();
+        }
+    }
+    
+    /**
+     * プールから取得したバッファに書き込む出力ストリームを生成する。<p>
+     *
+     * @return 出力ストリーム
+     */
+    public BufferOutputStream createOutputStream(){
+        return new BufferOutputStream();
+    }
+    
+    private ByteBuffer allocate(int size){
+        return isDirect ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+    
+    /**
+     * プールから取得したバッファに書き込む出力ストリーム。<p>
+     * 容量が不足した場合は、倍の容量のバッファに詰め替える。<br>
+     *
+     * @author M.Takata
+     */
+    public class BufferOutputStream extends OutputStream{
+        
+        private ByteBuffer buffer = acquire(bufferSize);
+        
+        /**
+         * 書き込まれたバッファを取得する。<p>
+         *
+         * @return バッファ
+         */
+        public ByteBuffer getBuffer(){
+            return buffer;
+        }
+        
+        /**
+         * 現在の書き込み位置を取得する。<p>
+         *
+         * @return 書き込み位置
+         */
+        public int position(){
+            return buffer.position();
+        }
+        
+        /**
+         * 指定された位置にint値を書き込む。<p>
+         *
+         * @param index 書き込み位置
+         * @param value 値
+         */
+        public void putInt(int index, int value){
+            buffer.putInt(index, value);
+        }
+        
+        public void write(int b){
+            ensureCapacity(1);
+            buffer.put((byte)b);
+        }
+        
+        public void write(byte[] b, int off, int len){
+            ensureCapacity(len);
+            buffer.put(b, off, len);
+        }
+        
+        public void writeShort(int value){
+            ensureCapacity(2);
+            buffer.putShort((short)value);
+        }
+        
+        public void writeInt(int value){
+            ensureCapacity(4);
+            buffer.putInt(value);
+        }
+        
+        public void writeLong(long value){
+            ensureCapacity(8);
+            buffer.putLong(value);
+        }
+        
+        /**
+         * 書き込みを終了し、読み込み可能な状態にしたバッファを返す。<p>
+         *
+         * @return バッファ
+         */
+        public ByteBuffer finish(){
+            buffer.flip();
+            return buffer;
+        }
+        
+        /**
+         * 書き込みを中止して、バッファをプールに戻す。<p>
+         */
+        public void discard(){
+            release(buffer);
+            buffer = null;
+        }
+        
+        private void ensureCapacity(int length){
+            if(buffer.remaining() >= length){
+                return;
+            }
+            int newCapacity = buffer.capacity() * 2;
+            while(newCapacity - buffer.position() < length){
+                newCapacity *= 2;
+            }
+            final ByteBuffer newBuffer = allocate(newCapacity);
+            allocateCount.incrementAndGet();
+            buffer.flip();
+            newBuffer.put(buffer);
+            release(buffer);
+            buffer = newBuffer;
+        }
+    }
+}
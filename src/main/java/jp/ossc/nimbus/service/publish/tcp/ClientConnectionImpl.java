@@ -111,6 +111,7 @@ public class ClientConnectionImpl implements ClientConnection, DaemonRunnable, S
     private long reconnectBufferTime;
     private ServiceName serverServiceName;
     private boolean isAcknowledge;
+    private boolean isBinaryFraming;
     private long responseTimeout;
     private int messageRecycleBufferSize = 100;
     private int messagePayoutCount;
@@ -129,6 +130,9 @@ public class ClientConnectionImpl implements ClientConnection, DaemonRunnable, S
     private transient String serviceManagerName;
     private transient ServiceName serviceName;
     private transient long receiveCount;
+    private transient long receiveBatchCount;
+    private transient long receiveBatchMessageCount;
+    private transient List receivedMessages;
     private transient long receiveProcessTime;
     private transient long onMessageProcessTime;
     private transient boolean isStartReceive;
@@ -156,6 +160,7 @@ public class ClientConnectionImpl implements ClientConnection, DaemonRunnable, S
         externalizer = ext;
         this.serverServiceName = serverServiceName;
         messageBuffer = new ArrayList();
+        receivedMessages = new LinkedList();
     }
     
     protected void recycleMessage(MessageImpl msg){
@@ -298,6 +303,13 @@ public class ClientConnectionImpl implements ClientConnection, DaemonRunnable, S
         return isAcknowledge;
     }
     
+    public void setBinaryFraming(boolean isBinary){
+        isBinaryFraming = isBinary;
+    }
+    public boolean isBinaryFraming(){
+        return isBinaryFraming;
+    }
+    
     public void setResponseTimeout(long timeout){
         responseTimeout = timeout;
     }
@@ -658,7 +670,56 @@ public class ClientConnectionImpl implements ClientConnection, DaemonRunnable, S
         messageListener = listener;
     }
     
+    private MessageImpl readMessage(byte[] bytes, int offset, int length) throws IOException, ClassNotFoundException{
+        MessageImpl message = null;
+        if(isBinaryFraming){
+            message = MessageImpl.readFrame(bytes, offset, length, this);
+        }else{
+            ByteArrayInputStream bais = new ByteArrayInputStream(bytes, offset, length);
+            message = MessageImpl.read(bais, this);
+        }
+        if(message != null){
+            message.setClientConnection(this);
+        }
+        return message;
+    }
+    
+    private Message dispatchMessage(MessageImpl message){
+        if(message == null){
+            return null;
+        }
+        final short messageType = message.getMessageType();
+        switch(messageType){
+        case MessageImpl.MESSAGE_TYPE_SERVER_CLOSE:
+            isServerClosed = true;
+            close(true, null);
+            return null;
+        case MessageImpl.MESSAGE_TYPE_SERVER_RESPONSE:
+            if(isAcknowledge){
+                synchronized(requestMonitorMap){
+                    Object reqId = null;
+                    try{
+                        reqId = message.getObject();
+                    }catch(MessageException e){
+                        return null;
+                    }
+                    SynchronizeMonitor responseMonitor = (SynchronizeMonitor)requestMonitorMap.get(reqId);
+                    if(responseMonitor != null){
+                        responseMonitor.notifyAllMonitor();
+                    }
+                }
+            }
+            return null;
+        case MessageImpl.MESSAGE_TYPE_APPLICATION:
+        default:
+            return message;
+        }
+    }
+    
     private Message receive() throws MessageCommunicateException{
+        if(receivedMessages.size() != 0){
+            return (Message)receivedMessages.remove(0);
+        }
         if(socket == null){
             try{
                 Thread.sleep(100);
@@ -669,45 +730,38 @@ public class ClientConnectionImpl implements ClientConnection, DaemonRunnable, S
         try{
             DataInputStream dis = new DataInputStream(socket.getInputStream());
             length = dis.readInt();
-            if(length <= 0){
+            if(length == 0){
                 return null;
             }
+            final boolean isBatch = length < 0;
+            if(isBatch){
+                length = -length;
+            }
             if(receiveBytes == null || receiveBytes.length < length){
                 receiveBytes = new byte[length];
             }
             dis.readFully(receiveBytes, 0, length);
-            ByteArrayInputStream bais = new ByteArrayInputStream(receiveBytes, 0, length);
-            MessageImpl message = MessageImpl.read(bais, this);
-            message.setClientConnection(this);
-            if(message != null){
-                final short messageType = message.getMessageType();
-                switch(messageType){
-                case MessageImpl.MESSAGE_TYPE_SERVER_CLOSE:
-                    isServerClosed = true;
-                    close(true, null);
-                    return null;
-                case MessageImpl.MESSAGE_TYPE_SERVER_RESPONSE:
-                    if(isAcknowledge){
-                        synchronized(requestMonitorMap){
-                            Object reqId = null;
-                            try{
-                                reqId = message.getObject();
-                            }catch(MessageException e){
-                                return null;
-                            }
-                            SynchronizeMonitor responseMonitor = (SynchronizeMonitor)requestMonitorMap.get(reqId);
-                            if(responseMonitor != null){
-                                responseMonitor.notifyAllMonitor();
-                            }
-                        }
-                    }
-                    return null;
-                case MessageImpl.MESSAGE_TYPE_APPLICATION:
-                default:
-                    break;
+            if(!isBatch){
+                return dispatchMessage(readMessage(receiveBytes, 0, length));
+            }
+            int offset = 0;
+            int count = 0;
+            while(offset < length && !isServerClosed){
+                final int frameLength = ((receiveBytes[offset] & 0xFF) << 24)
+                    | ((receiveBytes[offset + 1] & 0xFF) << 16)
+                    | ((receiveBytes[offset + 2] & 0xFF) << 8)
+                    | (receiveBytes[offset + 3] & 0xFF);
+                offset += 4;
+                final Message message = dispatchMessage(readMessage(receiveBytes, offset, frameLength));
+                offset += frameLength;
+                count++;
+                if(message != null){
+                    receivedMessages.add(message);
                 }
             }
-            return message;
+            receiveBatchCount++;
+            receiveBatchMessageCount += count;
+            return receivedMessages.size() == 0 ? null : (Message)receivedMessages.remove(0);
         }catch(SocketTimeoutException e){
             return null;
         }catch(SocketException e){
@@ -856,6 +910,8 @@ public class ClientConnectionImpl implements ClientConnection, DaemonRunnable, S
     
     public void resetCount(){
         receiveCount = 0;
+        receiveBatchCount = 0;
+        receiveBatchMessageCount = 0;
         receiveProcessTime = 0;
         onMessageProcessTime = 0;
         lastReceiveTime = -1;
@@ -944,6 +1000,7 @@ public class ClientConnectionImpl implements ClientConnection, DaemonRunnable, S
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException{
         in.defaultReadObject();
         messageBuffer = new LinkedList();
+        receivedMessages = new LinkedList();
         requestMonitorMap = new HashMap();
         connectLock = "connectLock";
     }
@@ -1036,6 +1093,14 @@ public class ClientConnectionImpl implements ClientConnection, DaemonRunnable, S
             return ClientConnectionImpl.this.receiveCount;
         }
         
+        public long getReceiveBatchCount(){
+            return ClientConnectionImpl.this.receiveBatchCount;
+        }
+        
+        public double getAverageReceiveBatchSize(){
+            return ClientConnectionImpl.this.receiveBatchCount == 0 ? 0.0d : ((double)ClientConnectionImpl.this.receiveBatchMessageCount / (double)ClientConnectionImpl.this.receiveBatchCount);
+        }
+        
         public void resetCount(){
             ClientConnectionImpl.this.resetCount();
         }
@@ -1186,6 +1251,20 @@ public class ClientConnectionImpl implements ClientConnection, DaemonRunnable, S
          */
         public long getReceiveCount();
         
+        /**
+         * バッチフレームの受信件数を取得する。<p>
+         *
+         * @return バッチフレームの受信件数
+         */
+        public long getReceiveBatchCount();
+        
+        /**
+         * バッチフレーム1件あたりの平均メッセージ数を取得する。<p>
+         *
+         * @return 平均メッセージ数
+         */
+        public double getAverageReceiveBatchSize();
+        
         /**
          * 平均受信処理時間を取得する。<p>
          *
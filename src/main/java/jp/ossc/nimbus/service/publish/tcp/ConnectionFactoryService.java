@@ -91,6 +91,10 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
     private long sendBufferTime;
     private long sendBufferSize;
     private long sendBufferTimeoutInterval = 1000l;
+    private boolean isBinaryFraming;
+    private boolean isCoalescing;
+    private int frameBufferSize = 8192;
+    private int frameBufferPoolSize = 1024;
     
     private int sendThreadSize = 1;
     private ServiceName sendQueueServiceName;
@@ -330,6 +334,34 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
         return sendBufferTimeoutInterval;
     }
     
+    public void setBinaryFraming(boolean isBinary){
+        isBinaryFraming = isBinary;
+    }
+    public boolean isBinaryFraming(){
+        return isBinaryFraming;
+    }
+    
+    public void setCoalescing(boolean isCoalescing){
+        this.isCoalescing = isCoalescing;
+    }
+    public boolean isCoalescing(){
+        return isCoalescing;
+    }
+    
+    public void setFrameBufferSize(int size){
+        frameBufferSize = size;
+    }
+    public int getFrameBufferSize(){
+        return frameBufferSize;
+    }
+    
+    public void setFrameBufferPoolSize(int size){
+        frameBufferPoolSize = size;
+    }
+    public int getFrameBufferPoolSize(){
+        return frameBufferPoolSize;
+    }
+    
     public void setAcknowledge(boolean isAck){
         isAcknowledge = isAck;
     }
@@ -528,6 +560,14 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
         return serverConnection == null ? 0.0d : serverConnection.getAverageSendBytes();
     }
     
+    public long getSendBatchCount(){
+        return serverConnection == null ? 0 : serverConnection.getSendBatchCount();
+    }
+    
+    public double getAverageSendBatchSize(){
+        return serverConnection == null ? 0.0d : serverConnection.getAverageSendBatchSize();
+    }
+    
     public double getAverageAsynchSendProcessTime(){
         return serverConnection == null ? 0.0d : serverConnection.getAverageAsynchSendProcessTime();
     }
@@ -741,6 +781,9 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
         if(clientReconnectCount > 0 && serverPort == 0){
             throw new IllegalArgumentException("When clientReconnectCount is more than 0, serverPort must not be 0.");
         }
+        if(isCoalescing && sendBufferTime <= 0 && sendBufferSize <= 0){
+            throw new IllegalArgumentException("When coalescing is true, sendBufferTime or sendBufferSize must be more than 0.");
+        }
         if(serverAddress == null){
             serverAddress = InetAddress.getLocalHost().getHostAddress();
         }
@@ -821,6 +864,10 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
         serverConnection.setStartReceiveMessageId(serverStartReceiveMessageId);
         serverConnection.setStopReceiveMessageId(serverStopReceiveMessageId);
         serverConnection.setAcknowledge(isAcknowledge);
+        if(isBinaryFraming){
+            serverConnection.setBinaryFraming(frameBufferSize, frameBufferPoolSize);
+        }
+        serverConnection.setCoalescing(isCoalescing);
         if(serverMessageRecycleBufferSize > 0){
             serverConnection.setMessageRecycleBufferSize(serverMessageRecycleBufferSize);
         }
@@ -898,6 +945,7 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
         connection.setReconnectInterval(clientReconnectInterval);
         connection.setReconnectBufferTime(clientReconnectBufferTime);
         connection.setAcknowledge(isAcknowledge);
+        connection.setBinaryFraming(isBinaryFraming);
         connection.setResponseTimeout(clientResponseTimeout);
         if(clientMessageRecycleBufferSize > 0){
             connection.setMessageRecycleBufferSize(clientMessageRecycleBufferSize);
@@ -924,4 +972,12 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
     public int getMessagePayoutCount(){
         return serverConnection == null ? 0 : serverConnection.getMessagePayoutCount();
     }
+    
+    public int getPooledFrameBufferCount(){
+        return serverConnection == null ? 0 : serverConnection.getFrameBufferPoolSize();
+    }
+    
+    public long getFrameBufferAllocateCount(){
+        return serverConnection == null ? 0 : serverConnection.getFrameBufferAllocateCount();
+    }
 }
\ No newline at end of file
@@ -436,6 +436,72 @@ public interface ConnectionFactoryServiceMBean extends ServiceBaseMBean{
      */
     public long getSendBufferTimeoutInterval();
     
+    /**
+     * メッセージを長さプレフィクス付きのバイナリ形式で送信するかどうかを設定する。<p>
+     * trueの場合、メッセージはプールされたバッファに1度だけ符号化され、送信先の全クライアントで同じバッファを共有して送信する。Java直列化によるメッセージヘッダの符号化と、クライアント毎のバイト配列のコピーを行わないため、多数のクライアントに配信する場合に有効である。<br>
+     * {@link #setNIO(boolean) NIO}の場合は、ダイレクトバッファを使用し、滞留したフレームは{@link java.nio.channels.SocketChannel#write(java.nio.ByteBuffer[])}でまとめて書き込む。<br>
+     * この設定は、{@link #getClientConnection()}で生成したクライアントにも引き継がれる。<br>
+     * デフォルトは、falseで、Java直列化形式で送信する。<br>
+     *
+     * @param isBinary バイナリ形式で送信する場合true
+     */
+    public void setBinaryFraming(boolean isBinary);
+    
+    /**
+     * メッセージを長さプレフィクス付きのバイナリ形式で送信するかどうかを判定する。<p>
+     *
+     * @return trueの場合、バイナリ形式で送信する
+     */
+    public boolean isBinaryFraming();
+    
+    /**
+     * 送信バッファに滞留したメッセージを、1つのバッチフレームにまとめて送信するかどうかを設定する。<p>
+     * まとめる単位は、{@link #setSendBufferTime(long)}及び{@link #setSendBufferSize(long)}で決まるため、いずれかを指定する必要がある。<br>
+     * 受信側は、バッチフレームを自動的に判別して1件ずつ配信するため、クライアント側の設定は不要である。<br>
+     * デフォルトは、falseでまとめない。<br>
+     *
+     * @param isCoalescing まとめる場合true
+     */
+    public void setCoalescing(boolean isCoalescing);
+    
+    /**
+     * 送信バッファに滞留したメッセージを、1つのバッチフレームにまとめて送信するかどうかを判定する。<p>
+     *
+     * @return trueの場合、まとめる
+     */
+    public boolean isCoalescing();
+    
+    /**
+     * バイナリ形式で送信する場合に、フレームを符号化するためにプールするバッファのサイズを設定する。<p>
+     * このサイズを超えるメッセージは、その都度バッファを確保する。<br>
+     * デフォルトは、8192[byte]。<br>
+     *
+     * @param size バッファのサイズ[byte]
+     */
+    public void setFrameBufferSize(int size);
+    
+    /**
+     * バイナリ形式で送信する場合に、フレームを符号化するためにプールするバッファのサイズを取得する。<p>
+     *
+     * @return バッファのサイズ[byte]
+     */
+    public int getFrameBufferSize();
+    
+    /**
+     * バイナリ形式で送信する場合に、プールするバッファの最大数を設定する。<p>
+     * デフォルトは、1024。<br>
+     *
+     * @param size プールするバッファの最大数
+     */
+    public void setFrameBufferPoolSize(int size);
+    
+    /**
+     * バイナリ形式で送信する場合に、プールするバッファの最大数を取得する。<p>
+     *
+     * @return プールするバッファの最大数
+     */
+    public int getFrameBufferPoolSize();
+    
     /**
      * 送信先からの要求に対して、応答を返すかどうかを設定する。<p>
      * デフォルトでは、falseで応答を返さない。<br>
@@ -770,6 +836,20 @@ public interface ConnectionFactoryServiceMBean extends ServiceBaseMBean{
      */
     public double getAverageSendBytes();
     
+    /**
+     * バッチフレームの送信件数を取得する。<p>
+     *
+     * @return バッチフレームの送信件数
+     */
+    public long getSendBatchCount();
+    
+    /**
+     * バッチフレーム1件あたりの平均メッセージ数を取得する。<p>
+     *
+     * @return 平均メッセージ数
+     */
+    public double getAverageSendBatchSize();
+    
     /**
      * 接続中のクライアントのjava.net.InetSocketAddressの集合を取得する。<br>
      *
@@ -888,4 +968,18 @@ public interface ConnectionFactoryServiceMBean extends ServiceBaseMBean{
      * @return メッセージの払い出し数
      */
     public int getMessagePayoutCount();
+    
+    /**
+     * バイナリ形式で送信する場合に、現在プールされているバッファの数を取得する。<p>
+     *
+     * @return プールされているバッファの数
+     */
+    public int getPooledFrameBufferCount();
+    
+    /**
+     * バイナリ形式で送信する場合に、プールから取得できずにバッファを確保した回数を取得する。<p>
+     *
+     * @return バッファの確保回数
+     */
+    public long getFrameBufferAllocateCount();
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.publish.tcp;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 長さプレフィクス付きのバイナリ形式で符号化された送信フレーム。<p>
+ * 1つのメッセージを1度だけ符号化し、送信先の全クライアントで同じバッファを共有する。各クライアントは、{@link #duplicate()}で取得した独立したpositionを持つビューを書き込む。<br>
+ * 参照カウントで管理され、全ての参照が{@link #release()}されると、バッファは{@link ByteBufferPool}に戻される。<br>
+ *
+ * @author M.Takata
+ */
+public class MessageFrame{
+    
+    private final ByteBuffer buffer;
+    private final ByteBufferPool pool;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    
+    /**
+     * インスタンスを生成する。<p>
+     * 生成時の参照カウントは1である。<br>
+     *
+     * @param buffer 読み込み可能な状態のフレームバッファ
+     * @param pool バッファを戻すプール
+     */
+    public MessageFrame(ByteBuffer buffer, ByteBufferPool pool){
+        this.buffer = buffer;
+        this.pool = pool;
+    }
+    
+    /**
+     * フレームの長さプレフィクスを含めたバイト数を取得する。<p>
+     *
+     * @return バイト数
+     */
+    public int length(){
+        return buffer.limit();
+    }
+    
+    /**
+     * フレームを書き込むための、内容を共有するバッファのビューを取得する。<p>
+     *
+     * @return バッファのビュー
+     */
+    public ByteBuffer duplicate(){
+        return buffer.duplicate();
+    }
+    
+    /**
+     * 参照カウントを増やす。<p>
+     *
+     * @return 既に解放されている場合false
+     */
+    public boolean retain(){
+        for(;;){
+            final int count = refCount.get();
+            if(count <= 0){
+                return false;
+            }
+            if(refCount.compareAndSet(count, count + 1)){
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * 参照カウントを減らし、0になった場合はバッファをプールに戻す。<p>
+     */
+    public void release(){
+        if(refCount.decrementAndGet() == 0 && pool != null){
+            pool.release(buffer);
+        }
+    }
+    
+    /**
+     * 現在の参照カウントを取得する。<p>
+     *
+     * @return 参照カウント
+     */
+    public int getReferenceCount(){
+        return refCount.get();
+    }
+}
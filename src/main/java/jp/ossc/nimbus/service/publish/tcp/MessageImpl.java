@@ -41,6 +41,8 @@ import java.io.ObjectInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
@@ -78,6 +80,7 @@ public class MessageImpl implements Message, Externalizable, Cloneable{
     private transient ServerConnectionImpl serverConnection;
     private transient Externalizer externalizer;
     private transient boolean isPayout = true;
+    private transient MessageFrame frame;
     
     public MessageImpl(){
     }
@@ -262,6 +265,130 @@ public class MessageImpl implements Message, Externalizable, Cloneable{
         out.write(bytes);
     }
     
+    /**
+     * このメッセージを長さプレフィクス付きのバイナリ形式で符号化した送信フレームを取得する。<p>
+     * 符号化は1度だけ行い、以降は同じフレームを返す。返されたフレームを保持する場合は、{@link MessageFrame#retain()}を呼び出すこと。<br>
+     * フレームの形式は、以下の通り。全てビッグエンディアンである。<br>
+     * <pre>
+     * int    フレーム長(このフィールドを除く)
+     * byte   メッセージタイプ
+     * long   送信時刻
+     * int    サブジェクト数
+     * 繰り返し {String サブジェクト, String キー}
+     * int    ペイロード長(nullの場合-1)
+     * byte[] ペイロード(シリアライズされたメッセージオブジェクト)
+     * </pre>
+     * Stringは、UTF-8のバイト長(nullの場合-1)とバイト列で表す。<br>
+     *
+     * @param ext 直列化に使用するExternalizer
+     * @param pool フレームのバッファを取得するプール
+     * @return 送信フレーム
+     * @exception IOException 符号化に失敗した場合
+     */
+    public MessageFrame getFrame(Externalizer ext, ByteBufferPool pool) throws IOException{
+        synchronized(this){
+            if(frame == null){
+                frame = writeFrame(ext, pool);
+            }
+            return frame;
+        }
+    }
+    
+    private MessageFrame writeFrame(Externalizer ext, ByteBufferPool pool) throws IOException{
+        final ByteBufferPool.BufferOutputStream out = pool.createOutputStream();
+        try{
+            out.writeInt(0);
+            out.write(messageType);
+            if(sendTime < 0){
+                sendTime = System.currentTimeMillis();
+            }
+            out.writeLong(sendTime);
+            out.writeInt(subjectMap.size());
+            final Iterator entries = subjectMap.entrySet().iterator();
+            while(entries.hasNext()){
+                final Map.Entry entry = (Map.Entry)entries.next();
+                writeString(out, (String)entry.getKey());
+                writeString(out, (String)entry.getValue());
+            }
+            if(serializedBytes != null){
+                out.writeInt(serializedBytes.length);
+                out.write(serializedBytes, 0, serializedBytes.length);
+            }else if(object == null){
+                out.writeInt(-1);
+            }else{
+                final int lengthIndex = out.position();
+                out.writeInt(0);
+                if(ext == null){
+                    ObjectOutputStream oos = new ObjectOutputStream(out);
+                    oos.writeObject(object);
+                    oos.flush();
+                }else{
+                    externalizer = ext;
+                    externalizer.writeExternal(object, out);
+                }
+                out.putInt(lengthIndex, out.position() - lengthIndex - 4);
+            }
+            out.putInt(0, out.position() - 4);
+        }catch(IOException e){
+            out.discard();
+            throw e;
+        }catch(RuntimeException e){
+            out.discard();
+            throw e;
+        }
+        return new MessageFrame(out.finish(), pool);
+    }
+    
+    private static void writeString(ByteBufferPool.BufferOutputStream out, String str) throws UnsupportedEncodingException{
+        if(str == null){
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] strBytes = str.getBytes("UTF-8");
+        out.writeInt(strBytes.length);
+        out.write(strBytes, 0, strBytes.length);
+    }
+    
+    private static String readString(ByteBuffer in) throws UnsupportedEncodingException{
+        final int length = in.getInt();
+        if(length < 0){
+            return null;
+        }
+        final String str = new String(in.array(), in.arrayOffset() + in.position(), length, "UTF-8");
+        in.position(in.position() + length);
+        return str;
+    }
+    
+    /**
+     * {@link #getFrame(Externalizer, ByteBufferPool)}で符号化されたフレームから、メッセージを復元する。<p>
+     *
+     * @param bytes フレーム長を除いたフレームのバイト配列
+     * @param offset 開始位置
+     * @param length フレーム長
+     * @param cc クライアントコネクション
+     * @return メッセージ
+     * @exception IOException 復号化に失敗した場合
+     */
+    public static MessageImpl readFrame(byte[] bytes, int offset, int length, ClientConnectionImpl cc) throws IOException{
+        final ByteBuffer in = ByteBuffer.wrap(bytes, offset, length);
+        final MessageImpl message = cc.createMessage();
+        message.externalizer = cc.externalizer;
+        message.messageType = in.get();
+        message.sendTime = in.getLong();
+        final int subjectSize = in.getInt();
+        for(int i = 0; i < subjectSize; i++){
+            message.setSubject(readString(in), readString(in));
+        }
+        final int payloadLength = in.getInt();
+        if(payloadLength >= 0){
+            final byte[] payload = new byte[payloadLength];
+            in.get(payload);
+            message.serializedBytes = payload;
+        }
+        message.receiveTime = System.currentTimeMillis();
+        return message;
+    }
+    
     public static MessageImpl read(InputStream in, ClientConnectionImpl cc) throws IOException, ClassNotFoundException{
         MessageImpl message = null;
         if(cc.externalizer == null){
@@ -302,6 +429,12 @@ public class MessageImpl implements Message, Externalizable, Cloneable{
         serializedBytes = null;
         isSend = false;
         clientConnection = null;
+        synchronized(this){
+            if(frame != null){
+                frame.release();
+                frame = null;
+            }
+        }
     }
     
     public Object clone(){
@@ -311,6 +444,7 @@ public class MessageImpl implements Message, Externalizable, Cloneable{
         }catch(CloneNotSupportedException e){
             return null;
         }
+        clone.frame = null;
         clone.subjectMap = new LinkedHashMap();
         clone.subjectMap.putAll(subjectMap);
         if(destinationIds != null){
@@ -78,6 +78,7 @@ import jp.ossc.nimbus.service.publish.MessageSendException;
 import jp.ossc.nimbus.service.publish.MessageException;
 import jp.ossc.nimbus.service.publish.ServerConnection;
 import jp.ossc.nimbus.service.publish.ServerConnectionListener;
+import jp.ossc.nimbus.service.publish.SubscriptionIndex;
 import jp.ossc.nimbus.service.queue.AsynchContext;
 import jp.ossc.nimbus.service.queue.DefaultQueueService;
 import jp.ossc.nimbus.service.queue.Queue;
@@ -136,6 +137,9 @@ public class ServerConnectionImpl implements ServerConnection{
     private Daemon sendBufferChecker;
     private ServiceName factoryServiceName;
     private Map disabledClients = Collections.synchronizedMap(new HashMap());
+    private ByteBufferPool frameBufferPool;
+    private boolean isCoalescing;
+    private final SubscriptionIndex subscriptionIndex = new SubscriptionIndex();
     
     public ServerConnectionImpl(
         ServerSocket serverSocket,
@@ -463,6 +467,43 @@ public class ServerConnectionImpl implements ServerConnection{
         isAcknowledge = isAck;
     }
     
+    /**
+     * 長さプレフィクス付きのバイナリ形式で送信するように設定する。<p>
+     * メッセージは1度だけプールされたバッファに符号化され、送信先の全クライアントで共有される。NIOの場合は、ダイレクトバッファを使用し、滞留したフレームはまとめて1度に書き込む。<br>
+     *
+     * @param bufferSize プールするバッファのサイズ
+     * @param poolSize プールするバッファの最大数
+     */
+    public void setBinaryFraming(int bufferSize, int poolSize){
+        frameBufferPool = new ByteBufferPool(bufferSize, poolSize, serverSocketChannel != null);
+    }
+    
+    public boolean isBinaryFraming(){
+        return frameBufferPool != null;
+    }
+    
+    /**
+     * 送信バッファに滞留した複数のメッセージを、1つのバッチフレームにまとめて送信するように設定する。<p>
+     * バッチフレームは、負の値で表したペイロード長の後に、通常のフレームを連結した形式となる。<br>
+     *
+     * @param isCoalescing まとめる場合true
+     */
+    public void setCoalescing(boolean isCoalescing){
+        this.isCoalescing = isCoalescing;
+    }
+    
+    public boolean isCoalescing(){
+        return isCoalescing;
+    }
+    
+    public int getFrameBufferPoolSize(){
+        return frameBufferPool == null ? 0 : frameBufferPool.getPoolSize();
+    }
+    
+    public long getFrameBufferAllocateCount(){
+        return frameBufferPool == null ? 0 : frameBufferPool.getAllocateCount();
+    }
+    
     public void enabledClient(String address, int port){
         if(disabledClients.containsKey(address)){
             Set portSet = (Set)disabledClients.get(address);
@@ -564,7 +605,7 @@ public class ServerConnectionImpl implements ServerConnection{
         try{
             if(sendQueueHandlerContainer == null){
                 List currentClients = new ArrayList();
-                final Iterator clientItr = clients.iterator();
+                final Iterator clientItr = subscriptionIndex.getClients(message).iterator();
                 while(clientItr.hasNext()){
                     ClientImpl client = (ClientImpl)clientItr.next();
                     if(!client.isStartReceive()
@@ -611,7 +652,7 @@ public class ServerConnectionImpl implements ServerConnection{
                 ((MessageImpl)message).setSend(true);
             }else{
                 final Map sendContexts = new HashMap();
-                final Iterator clientItr = clients.iterator();
+                final Iterator clientItr = subscriptionIndex.getClients(message).iterator();
                 while(clientItr.hasNext()){
                     ClientImpl client = (ClientImpl)clientItr.next();
                     if(!client.isStartReceive()
@@ -676,6 +717,27 @@ public class ServerConnectionImpl implements ServerConnection{
         return sendCount == 0 ? 0.0d : ((double)sendProcessTime / (double)sendCount);
     }
     
+    public long getSendBatchCount(){
+        long sendBatchCount = 0;
+        final Iterator clientItr = clients.iterator();
+        while(clientItr.hasNext()){
+            sendBatchCount += ((ClientImpl)clientItr.next()).getSendBatchCount();
+        }
+        return sendBatchCount;
+    }
+    
+    public double getAverageSendBatchSize(){
+        long sendBatchCount = 0;
+        long sendBatchMessageCount = 0;
+        final Iterator clientItr = clients.iterator();
+        while(clientItr.hasNext()){
+            ClientImpl client = (ClientImpl)clientItr.next();
+            sendBatchCount += client.getSendBatchCount();
+            sendBatchMessageCount += client.getSendBatchMessageCount();
+        }
+        return sendBatchCount == 0 ? 0.0d : ((double)sendBatchMessageCount / (double)sendBatchCount);
+    }
+    
     public double getAverageSendBytes(){
         long sendBytes = 0;
         long sendCount = 0;
@@ -708,7 +770,7 @@ public class ServerConnectionImpl implements ServerConnection{
     
     public Set getReceiveClientIds(Message message){
         final Set result = new HashSet();
-        final Iterator clientItr = clients.iterator();
+        final Iterator clientItr = subscriptionIndex.getClients(message).iterator();
         while(clientItr.hasNext()){
             ClientImpl client = (ClientImpl)clientItr.next();
             if(client.isStartReceive() && client.isTargetMessage(message)){
@@ -1027,6 +1089,8 @@ public class ServerConnectionImpl implements ServerConnection{
         private long sendCount;
         private long sendProcessTime;
         private long sendBytes;
+        private long sendBatchCount;
+        private long sendBatchMessageCount;
         private boolean isEnabled = true;
         private Object id;
         private ByteBuffer byteBuffer;
@@ -1038,6 +1102,8 @@ public class ServerConnectionImpl implements ServerConnection{
         private long sendBufferCount;
         private long bufferStartTime = -1l;
         private ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        private List sendFrames;
+        private List sendFrameBuffers;
         private boolean isClosing;
         private boolean isClosed;
         private final Object closeLock = new Object();
@@ -1072,6 +1138,12 @@ public class ServerConnectionImpl implements ServerConnection{
         public long getSendBytes(){
             return sendBytes;
         }
+        public long getSendBatchCount(){
+            return sendBatchCount;
+        }
+        public long getSendBatchMessageCount(){
+            return sendBatchMessageCount;
+        }
         
         public SocketChannel getSocketChannel(){
             return socketChannel;
@@ -1116,6 +1188,10 @@ public class ServerConnectionImpl implements ServerConnection{
             if(!isEnabled || isClosed || isClosing){
                 return;
             }
+            if(frameBufferPool != null){
+                sendFrame((MessageImpl)message);
+                return;
+            }
             try{
                 baos.reset();
                 ((MessageImpl)message).write(baos, externalizer);
@@ -1179,6 +1255,62 @@ public class ServerConnectionImpl implements ServerConnection{
             }
         }
         
+        private void sendFrame(MessageImpl message) throws MessageSendException{
+            try{
+                final MessageFrame frame = message.getFrame(externalizer, frameBufferPool);
+                if(!frame.retain()){
+                    throw new MessageSendException("Frame already released : message=" + message);
+                }
+                if(sendFrames == null){
+                    sendFrames = new LinkedList();
+                    sendFrameBuffers = new LinkedList();
+                }
+                sendFrames.add(frame);
+                sendFrameBuffers.add(frame.duplicate());
+                
+                boolean isBuffer = false;
+                if(message.getMessageType() == MessageImpl.MESSAGE_TYPE_APPLICATION
+                    && (bufferTime > 0 || bufferSize > 0)
+                ){
+                    isBuffer = true;
+                    long currentTime = System.currentTimeMillis();
+                    if(bufferStartTime == -1L){
+                        bufferStartTime = currentTime;
+                    }
+                    if(bufferTime > 0){
+                        if(bufferTime <= currentTime - bufferStartTime){
+                            isBuffer = false;
+                        }
+                    }
+                    if(isBuffer && bufferSize > 0){
+                        if(bufferSize <= sendBufferSize + frame.length()){
+                            isBuffer = false;
+                        }
+                    }
+                }
+                sendBufferSize += frame.length();
+                sendBufferCount++;
+                if(!isBuffer){
+                    if(socketChannel != null){
+                        try{
+                            socketChannel.register(
+                                selector,
+                                SelectionKey.OP_READ | SelectionKey.OP_WRITE,
+                                this
+                            );
+                            selector.wakeup();
+                        }catch(ClosedChannelException e){
+                            throw new MessageSendException(e);
+                        }
+                    }else{
+                        writeSendBuffer(null);
+                    }
+                }
+            }catch(IOException e){
+                throw new MessageSendException(e);
+            }
+        }
+        
         public synchronized void checkSendBuffer(long lastCheckTime){
             if(!isEnabled || isClosed || isClosing || sendBufferCount == 0){
                 return;
@@ -1218,10 +1350,22 @@ public class ServerConnectionImpl implements ServerConnection{
             if(!isEnabled || isClosed || isClosing){
                 return;
             }
+            if(frameBufferPool != null){
+                writeSendFrames(key);
+                return;
+            }
             long startTime = System.currentTimeMillis();
             try{
                 byte[] bytes = sendBuffer.toByteArray();
                 sendBuffer.reset();
+                if(isCoalescing && sendBufferCount > 1){
+                    final byte[] batch = new byte[bytes.length + 4];
+                    writeBatchHeader(batch, bytes.length);
+                    System.arraycopy(bytes, 0, batch, 4, bytes.length);
+                    bytes = batch;
+                    sendBatchCount++;
+                    sendBatchMessageCount += sendBufferCount;
+                }
                 if(socketChannel != null){
                     ByteBuffer buf = ByteBuffer.allocate(bytes.length);
                     buf.put(bytes);
@@ -1252,6 +1396,111 @@ public class ServerConnectionImpl implements ServerConnection{
             }
         }
         
+        private void writeSendFrames(SelectionKey key){
+            if(sendFrames == null || sendFrames.size() == 0){
+                return;
+            }
+            long startTime = System.currentTimeMillis();
+            try{
+                if(isCoalescing && sendBufferCount > 1){
+                    // 前回書き切れなかったフレームの後ろに、今回滞留したフレームの前にバッチヘッダを挟む
+                    final byte[] header = new byte[4];
+                    writeBatchHeader(header, sendBufferSize);
+                    final int index = sendFrameBuffers.size() - (int)sendBufferCount;
+                    sendFrameBuffers.add(index, ByteBuffer.wrap(header));
+                    sendFrames.add(index, null);
+                    sendBatchCount++;
+                    sendBatchMessageCount += sendBufferCount;
+                }
+                if(socketChannel != null){
+                    // 滞留したフレームをまとめて書き込み、書き切れなかった分は次の書き込み可能通知で書き込む
+                    final ByteBuffer[] buffers = (ByteBuffer[])sendFrameBuffers.toArray(new ByteBuffer[sendFrameBuffers.size()]);
+                    socketChannel.write(buffers);
+                    releaseWrittenFrames();
+                    if(sendFrames.size() != 0){
+                        if(key != null && key.isValid()){
+                            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        }else{
+                            socketChannel.register(
+                                selector,
+                                SelectionKey.OP_READ | SelectionKey.OP_WRITE,
+                                this
+                            );
+                            selector.wakeup();
+                        }
+                    }
+                }else{
+                    OutputStream os = socket.getOutputStream();
+                    for(int i = 0, imax = sendFrameBuffers.size(); i < imax; i++){
+                        final ByteBuffer buf = (ByteBuffer)sendFrameBuffers.get(i);
+                        if(buf.hasArray()){
+                            os.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+                        }else{
+                            final byte[] bytes = new byte[buf.remaining()];
+                            buf.get(bytes);
+                            os.write(bytes);
+                        }
+                        buf.position(buf.limit());
+                    }
+                    os.flush();
+                    releaseWrittenFrames();
+                }
+            }catch(SocketException e){
+                if(key != null){
+                    key.cancel();
+                }
+                ClientImpl.this.close(false, e);
+            }catch(IOException e){
+                if(key != null){
+                    key.cancel();
+                }
+                ClientImpl.this.close(true, e);
+            }finally{
+                sendCount+=sendBufferCount;
+                sendBytes+=sendBufferSize;
+                sendProcessTime += (System.currentTimeMillis() - startTime);
+                sendBufferSize = 0;
+                sendBufferCount = 0;
+                bufferStartTime = -1L;
+            }
+        }
+        
+        private void releaseWrittenFrames(){
+            while(sendFrameBuffers.size() != 0){
+                final ByteBuffer buf = (ByteBuffer)sendFrameBuffers.get(0);
+                if(buf.hasRemaining()){
+                    break;
+                }
+                sendFrameBuffers.remove(0);
+                final MessageFrame frame = (MessageFrame)sendFrames.remove(0);
+                if(frame != null){
+                    frame.release();
+                }
+            }
+        }
+        
+        private void writeBatchHeader(byte[] header, int length){
+            final int value = -length;
+            header[0] = (byte)(value >>> 24);
+            header[1] = (byte)(value >>> 16);
+            header[2] = (byte)(value >>> 8);
+            header[3] = (byte)value;
+        }
+        
+        private synchronized void releaseSendFrames(){
+            if(sendFrames == null){
+                return;
+            }
+            for(int i = 0, imax = sendFrames.size(); i < imax; i++){
+                final MessageFrame frame = (MessageFrame)sendFrames.get(i);
+                if(frame != null){
+                    frame.release();
+                }
+            }
+            sendFrames.clear();
+            sendFrameBuffers.clear();
+        }
+        
         public void receive(SelectionKey key){
             if(!isEnabled || isClosed || isClosing){
                 return;
@@ -1322,6 +1571,8 @@ public class ServerConnectionImpl implements ServerConnection{
             sendCount = 0;
             sendProcessTime = 0;
             sendBytes = 0;
+            sendBatchCount = 0;
+            sendBatchMessageCount = 0;
         }
         
         public double getAverageSendProcessTime(){
@@ -1373,6 +1624,7 @@ public class ServerConnectionImpl implements ServerConnection{
                         clients = newClients;
                     }
                     clientMap.remove(id);
+                    subscriptionIndex.remove(ClientImpl.this);
                     if(subjects.size() != 0){
                         Object[] entries = subjects.entrySet().toArray();
                         for(int i = 0; i < entries.length; i++){
@@ -1423,6 +1675,7 @@ public class ServerConnectionImpl implements ServerConnection{
                     isClosed = true;
                 }
             }
+            releaseSendFrames();
         }
         
         public String toString(){
@@ -1516,11 +1769,13 @@ public class ServerConnectionImpl implements ServerConnection{
                 if(keys == null){
                     if(keySet.add(null)){
                         addKeysList.add(null);
+                        subscriptionIndex.add(addMessage.getSubject(), null, ClientImpl.this);
                     }
                 }else{
                     for(int i = 0; i < keys.length; i++){
                         if(keySet.add(keys[i])){
                             addKeysList.add(keys[i]);
+                            subscriptionIndex.add(addMessage.getSubject(), keys[i], ClientImpl.this);
                         }
                     }
                 }
@@ -1543,6 +1798,7 @@ public class ServerConnectionImpl implements ServerConnection{
                     if(keys == null){
                         if(keySet.remove(null)){
                             removeKeysList.add(null);
+                            subscriptionIndex.remove(removeMessage.getSubject(), null, ClientImpl.this);
                         }
                         if(keySet.size() == 0){
                             subjects.remove(removeMessage.getSubject());
@@ -1551,6 +1807,7 @@ public class ServerConnectionImpl implements ServerConnection{
                         for(int i = 0; i < keys.length; i++){
                             if(keySet.remove(keys[i])){
                                 removeKeysList.add(keys[i]);
+                                subscriptionIndex.remove(removeMessage.getSubject(), keys[i], ClientImpl.this);
                             }
                         }
                         if(keySet.size() == 0){
@@ -1724,7 +1981,7 @@ public class ServerConnectionImpl implements ServerConnection{
                 return;
             }
             final Map sendContexts = new HashMap();
-            final Iterator clientItr = clients.iterator();
+            final Iterator clientItr = subscriptionIndex.getClients(message).iterator();
             while(clientItr.hasNext()){
                 ClientImpl client = (ClientImpl)clientItr.next();
                 if(!client.isStartReceive()
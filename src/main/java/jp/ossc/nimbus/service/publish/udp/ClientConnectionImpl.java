@@ -144,6 +144,10 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
     private int messageRecycleBufferSize = 100;
     private int messagePayoutCount;
     private int maxMessagePayoutCount;
+    private boolean isCoalescing;
+    private int coalescingMaxSize;
+    private PayloadCodec payloadCodec;
+    private int deltaSnapshotMaxSize;
     
     protected transient List messageBuffer;
     
@@ -178,6 +182,9 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
     private transient long newMessagePollingTimeoutCount;
     private transient long newMessagePollingResponseTime;
     private transient long lostCount;
+    private transient long receiveBatchCount;
+    private transient long receiveBatchWindowCount;
+    private transient long deltaMissCount;
     private transient short requestId;
     private transient boolean isStartReceive;
     private transient int maxMissingWindowSize;
@@ -372,6 +379,38 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
         return windowSize;
     }
     
+    public void setCoalescing(boolean isCoalescing){
+        this.isCoalescing = isCoalescing;
+    }
+    public boolean isCoalescing(){
+        return isCoalescing;
+    }
+    
+    public void setCoalescingMaxSize(int bytes){
+        coalescingMaxSize = bytes;
+    }
+    public int getCoalescingMaxSize(){
+        return coalescingMaxSize;
+    }
+    
+    public void setPayloadCodec(PayloadCodec codec){
+        payloadCodec = codec;
+    }
+    public PayloadCodec getPayloadCodec(){
+        return payloadCodec;
+    }
+    
+    public void setDeltaSnapshotMaxSize(int size){
+        deltaSnapshotMaxSize = size;
+    }
+    public int getDeltaSnapshotMaxSize(){
+        return deltaSnapshotMaxSize;
+    }
+    
+    private int getPacketSize(){
+        return isCoalescing ? Math.max(coalescingMaxSize, windowSize + 2) : windowSize;
+    }
+    
     public void setMissingWindowTimeout(long interval){
         missingWindowTimeout = interval;
     }
@@ -559,8 +598,8 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
                         if(receiveSocket != null){
                             try{
                                 int receiveBufferSize = receiveSocket.getReceiveBufferSize();
-                                if(receiveBufferSize < windowSize){
-                                    receiveSocket.setReceiveBufferSize(windowSize);
+                                if(receiveBufferSize < getPacketSize()){
+                                    receiveSocket.setReceiveBufferSize(getPacketSize());
                                 }
                             }catch(SocketException e){
                             }
@@ -1012,6 +1051,9 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
     public void resetCount(){
         receiveCount = 0;
         receivePacketCount = 0;
+        receiveBatchCount = 0;
+        receiveBatchWindowCount = 0;
+        deltaMissCount = 0;
         onMessageProcessTime = 0;
         noContinuousMessageCount = 0;
         wasteWindowCount = 0;
@@ -1075,6 +1117,7 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
             }
             if(messageReceiveDaemon != null){
                 messageReceiveDaemon.stopNoWait();
+                ((MessageReceiver)messageReceiveDaemon.getDaemonRunnable()).reset();
                 messageReceiveDaemon = null;
             }
             if(replyReceiveDaemon != null){
@@ -1331,7 +1374,7 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
                     }
                 }
                 if(buf == null){
-                    buf = new byte[windowSize];
+                    buf = new byte[getPacketSize()];
                 }
                 packet.setData(buf);
                 receiveSocket.receive(packet);
@@ -1395,6 +1438,7 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
         private PacketReceiver packetReceiver;
         private MissingWindowChecker missingWindowChecker;
         private final List windowBuffer = new LinkedList();
+        private final Map deltaSnapshots = ServerConnectionImpl.createDeltaSnapshotMap(deltaSnapshotMaxSize);
         
         public void recycleWindow(Window window){
             if(window == null){
@@ -1456,22 +1500,27 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
             byte[] packet = (byte[])paramObj;
             Window window = null;
             try{
-                if(packet != null){
+                if(packet != null && isCoalescing){
                     ByteArrayInputStream bais = new ByteArrayInputStream(packet);
                     DataInputStream dis = new DataInputStream(bais);
-                    synchronized(windowBuffer){
-                        if(windowBuffer.size() != 0){
-                            window = (Window)windowBuffer.remove(0);
-                            window.setPayout(true);
-                        }
-                        windowPayoutCount++;
-                        if(maxWindowPayoutCount < windowPayoutCount){
-                            maxWindowPayoutCount = windowPayoutCount;
-                        }
+                    final int count = dis.readUnsignedShort();
+                    final Window[] windows = new Window[count];
+                    for(int i = 0; i < count; i++){
+                        windows[i] = takeWindow();
+                        windows[i].read(dis);
                     }
-                    if(window == null){
-                        window = new Window();
+                    packetReceiver.recyclePacket(packet);
+                    receiveBatchCount++;
+                    receiveBatchWindowCount += count;
+                    for(int i = 0; i < count; i++){
+                        receiveWindow(windows[i]);
                     }
+                    return;
+                }
+                if(packet != null){
+                    ByteArrayInputStream bais = new ByteArrayInputStream(packet);
+                    DataInputStream dis = new DataInputStream(bais);
+                    window = takeWindow();
                     window.read(dis);
                 }
                 packetReceiver.recyclePacket(packet);
@@ -1497,6 +1546,21 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
             }
         }
         
+        private Window takeWindow(){
+            Window window = null;
+            synchronized(windowBuffer){
+                if(windowBuffer.size() != 0){
+                    window = (Window)windowBuffer.remove(0);
+                    window.setPayout(true);
+                }
+                windowPayoutCount++;
+                if(maxWindowPayoutCount < windowPayoutCount){
+                    maxWindowPayoutCount = windowPayoutCount;
+                }
+            }
+            return window == null ? new Window() : window;
+        }
+        
         public synchronized void receiveWindow(Window window) throws IOException, ClassNotFoundException{
             MessageImpl message = null;
             while((message = retrieveMessage(window)) != null){
@@ -1517,6 +1581,25 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
                     return;
                 }
             }
+            if(message.isPayloadEncoded()){
+                try{
+                    if(!decodePayload(message)){
+                        deltaMissCount++;
+                        message.recycle();
+                        return;
+                    }
+                }catch(IOException e){
+                    if(receiveErrorMessageId != null){
+                        ServiceManagerFactory.getLogger().write(
+                            receiveErrorMessageId,
+                            new Object[]{ClientConnectionImpl.this},
+                            e
+                        );
+                    }
+                    message.recycle();
+                    return;
+                }
+            }
             receiveCount++;
             long sTime = System.currentTimeMillis();
             long latency = message.getReceiveTime() - message.getSendTime();
@@ -1528,6 +1611,38 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
             onMessageProcessTime += (System.currentTimeMillis() - sTime);
         }
         
+        /**
+         * 符号化されたペイロードを復号化する。<p>
+         * 差分の基準となるスナップショットを受信していない場合は、復号化できない。<br>
+         *
+         * @param message メッセージ
+         * @return 復号化できた場合true
+         */
+        private boolean decodePayload(MessageImpl message) throws IOException{
+            final int encoding = message.getPayloadEncoding();
+            byte[] bytes = message.getEncodedPayload();
+            if((encoding & MessageImpl.PAYLOAD_COMPRESSED) != 0){
+                if(payloadCodec == null){
+                    throw new IOException("PayloadCodec is null.");
+                }
+                bytes = payloadCodec.decode(bytes);
+            }
+            if((encoding & MessageImpl.PAYLOAD_DELTA) != 0){
+                final DeltaSnapshot snapshot = (DeltaSnapshot)deltaSnapshots.get(ServerConnectionImpl.getSnapshotKey(message));
+                if(snapshot == null || snapshot.sequence != message.getBaseSequence()){
+                    return false;
+                }
+                bytes = PayloadDelta.patch(snapshot.bytes, bytes);
+            }else if((encoding & MessageImpl.PAYLOAD_SNAPSHOT) != 0){
+                deltaSnapshots.put(
+                    ServerConnectionImpl.getSnapshotKey(message),
+                    new DeltaSnapshot(message.getSequence(), bytes)
+                );
+            }
+            message.setSerializedBytes(bytes);
+            return true;
+        }
+        
         private void checkMissingWindowTimeout(){
             if(missingWindowMap.size() == 0){
                 return;
@@ -1685,6 +1800,7 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
         private synchronized void reset(){
             latestMessageId = null;
             missingWindowMap.clear();
+            deltaSnapshots.clear();
         }
         
         public void garbage(){}
@@ -2025,6 +2141,18 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
             return ClientConnectionImpl.this.receivePacketCount;
         }
         
+        public long getReceiveBatchCount(){
+            return ClientConnectionImpl.this.receiveBatchCount;
+        }
+        
+        public double getAverageReceiveBatchSize(){
+            return ClientConnectionImpl.this.receiveBatchCount == 0 ? 0.0d : ((double)ClientConnectionImpl.this.receiveBatchWindowCount / (double)ClientConnectionImpl.this.receiveBatchCount);
+        }
+        
+        public long getDeltaMissCount(){
+            return ClientConnectionImpl.this.deltaMissCount;
+        }
+        
         public void resetCount(){
             ClientConnectionImpl.this.resetCount();
         }
@@ -2217,6 +2345,15 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
         }
     }
     
+    private static class DeltaSnapshot{
+        public final int sequence;
+        public final byte[] bytes;
+        public DeltaSnapshot(int sequence, byte[] bytes){
+            this.sequence = sequence;
+            this.bytes = bytes;
+        }
+    }
+    
     /**
      * UDPプロトコル用の{@link ClientConnection}の管理サービスのMBeanインタフェース。<p>
      *
@@ -2507,6 +2644,27 @@ public class ClientConnectionImpl implements ClientConnection, Serializable{
          */
         public long getLostCount();
         
+        /**
+         * まとめて送信されたデータグラムの受信件数を取得する。<p>
+         *
+         * @return まとめて送信されたデータグラムの受信件数
+         */
+        public long getReceiveBatchCount();
+        
+        /**
+         * まとめて送信されたデータグラム1件あたりの平均ウィンドウ数を取得する。<p>
+         *
+         * @return 平均ウィンドウ数
+         */
+        public double getAverageReceiveBatchSize();
+        
+        /**
+         * 差分の基準となるスナップショットを受信していなかったために、破棄したメッセージの件数を取得する。<p>
+         *
+         * @return 破棄したメッセージの件数
+         */
+        public long getDeltaMissCount();
+        
         /**
          * カウントをリセットする。<p>
          */
@@ -0,0 +1,158 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.publish.udp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.xerial.snappy.SnappyInputStream;
+import org.xerial.snappy.SnappyOutputStream;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+
+import jp.ossc.nimbus.core.ServiceBase;
+
+/**
+ * 圧縮ペイロードコーデック。<p>
+ * ペイロードを、{@link #setCompressMode(int)}で指定した形式で圧縮する{@link PayloadCodec}である。<br>
+ *
+ * @author M.Takata
+ */
+public class CompressPayloadCodecService extends ServiceBase
+ implements PayloadCodec, CompressPayloadCodecServiceMBean{
+    
+    private static final long serialVersionUID = -2981436612059871842L;
+    
+    private int compressMode = COMPRESS_MODE_ZLIB;
+    private int compressLevel = Deflater.BEST_SPEED;
+    
+    public void setCompressMode(int mode){
+        compressMode = mode;
+    }
+    public int getCompressMode(){
+        return compressMode;
+    }
+    
+    public void setCompressLevel(int level){
+        compressLevel = level;
+    }
+    public int getCompressLevel(){
+        return compressLevel;
+    }
+    
+    public void startService() throws Exception{
+        switch(compressMode){
+        case COMPRESS_MODE_ZLIB:
+        case COMPRESS_MODE_GZIP:
+        case COMPRESS_MODE_SNAPPY:
+        case COMPRESS_MODE_LZ4:
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown compress mode : " + compressMode);
+        }
+    }
+    
+    public byte[] encode(byte[] bytes) throws IOException{
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length);
+        switch(compressMode){
+        case COMPRESS_MODE_ZLIB:
+            final Deflater deflater = new Deflater(compressLevel);
+            try{
+                final DeflaterOutputStream dos = new DeflaterOutputStream(baos, deflater);
+                dos.write(bytes);
+                dos.finish();
+            }finally{
+                deflater.end();
+            }
+            break;
+        case COMPRESS_MODE_GZIP:
+            final GZIPOutputStream gos = new GZIPOutputStream(baos);
+            gos.write(bytes);
+            gos.finish();
+            break;
+        case COMPRESS_MODE_SNAPPY:
+            final SnappyOutputStream sos = new SnappyOutputStream(baos);
+            sos.write(bytes);
+            sos.close();
+            break;
+        case COMPRESS_MODE_LZ4:
+            final LZ4BlockOutputStream lzos = new LZ4BlockOutputStream(baos);
+            lzos.write(bytes);
+            lzos.finish();
+            break;
+        default:
+            throw new IOException("Unknown compress mode : " + compressMode);
+        }
+        return baos.toByteArray();
+    }
+    
+    public byte[] decode(byte[] bytes) throws IOException{
+        final InputStream bais = new ByteArrayInputStream(bytes);
+        InputStream is = null;
+        switch(compressMode){
+        case COMPRESS_MODE_ZLIB:
+            is = new InflaterInputStream(bais);
+            break;
+        case COMPRESS_MODE_GZIP:
+            is = new GZIPInputStream(bais);
+            break;
+        case COMPRESS_MODE_SNAPPY:
+            is = new SnappyInputStream(bais);
+            break;
+        case COMPRESS_MODE_LZ4:
+            is = new LZ4BlockInputStream(bais);
+            break;
+        default:
+            throw new IOException("Unknown compress mode : " + compressMode);
+        }
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length * 2);
+        copy(is, baos);
+        is.close();
+        return baos.toByteArray();
+    }
+    
+    private static void copy(InputStream is, OutputStream os) throws IOException{
+        final byte[] buf = new byte[1024];
+        int len = 0;
+        while((len = is.read(buf)) > 0){
+            os.write(buf, 0, len);
+        }
+    }
+}
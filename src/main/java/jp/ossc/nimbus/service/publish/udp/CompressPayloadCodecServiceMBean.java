@@ -0,0 +1,98 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.publish.udp;
+
+import jp.ossc.nimbus.core.ServiceBaseMBean;
+
+/**
+ * {@link CompressPayloadCodecService}のMBeanインタフェース。<p>
+ *
+ * @author M.Takata
+ * @see CompressPayloadCodecService
+ */
+public interface CompressPayloadCodecServiceMBean extends ServiceBaseMBean{
+    
+    /**
+     * 圧縮モード：ZLIB形式。<p>
+     */
+    public static final int COMPRESS_MODE_ZLIB = 1;
+    
+    /**
+     * 圧縮モード：GZIP形式。<p>
+     */
+    public static final int COMPRESS_MODE_GZIP = 3;
+    
+    /**
+     * 圧縮モード：SNAPPY形式。<p>
+     */
+    public static final int COMPRESS_MODE_SNAPPY = 4;
+    
+    /**
+     * 圧縮モード：LZ4形式。<p>
+     */
+    public static final int COMPRESS_MODE_LZ4 = 5;
+    
+    /**
+     * 圧縮モードを設定する。<p>
+     * デフォルトは、{@link #COMPRESS_MODE_ZLIB ZLIB形式}。<br>
+     *
+     * @param mode 圧縮モード
+     * @see #COMPRESS_MODE_ZLIB
+     * @see #COMPRESS_MODE_GZIP
+     * @see #COMPRESS_MODE_SNAPPY
+     * @see #COMPRESS_MODE_LZ4
+     */
+    public void setCompressMode(int mode);
+    
+    /**
+     * 圧縮モードを取得する。<p>
+     *
+     * @return 圧縮モード
+     */
+    public int getCompressMode();
+    
+    /**
+     * 圧縮レベルを設定する。<p>
+     * 圧縮モードが、{@link #COMPRESS_MODE_ZLIB}の場合のみ、有効。<br>
+     * デフォルトは、{@link java.util.zip.Deflater#BEST_SPEED}。<br>
+     *
+     * @param level 圧縮レベル
+     */
+    public void setCompressLevel(int level);
+    
+    /**
+     * 圧縮レベルを取得する。<p>
+     *
+     * @return 圧縮レベル
+     */
+    public int getCompressLevel();
+}
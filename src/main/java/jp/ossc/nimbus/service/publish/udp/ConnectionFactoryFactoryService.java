@@ -291,6 +291,39 @@ public class ConnectionFactoryFactoryService extends ServiceFactoryServiceBase i
         return ((Integer)paramMap.get("windowSize")).intValue();
     }
     
+    public void setCoalescing(boolean isCoalescing) {
+        paramMap.put("Coalescing", isCoalescing);
+    }
+    
+    public boolean isCoalescing() {
+        if(!paramMap.containsKey("Coalescing")) {
+            return false;
+        }
+        return ((Boolean)paramMap.get("Coalescing")).booleanValue();
+    }
+    
+    public void setCoalescingLingerTime(long time) {
+        paramMap.put("coalescingLingerTime", time);
+    }
+    
+    public long getCoalescingLingerTime() {
+        if(!paramMap.containsKey("coalescingLingerTime")) {
+            return -1;
+        }
+        return ((Long)paramMap.get("coalescingLingerTime")).longValue();
+    }
+    
+    public void setCoalescingMaxSize(int bytes) {
+        paramMap.put("coalescingMaxSize", bytes);
+    }
+    
+    public int getCoalescingMaxSize() {
+        if(!paramMap.containsKey("coalescingMaxSize")) {
+            return -1;
+        }
+        return ((Integer)paramMap.get("coalescingMaxSize")).intValue();
+    }
+    
     public void setSendMessageCacheTime(long time) {
         paramMap.put("sendMessageCacheTime", time);
     }
@@ -424,6 +457,69 @@ public class ConnectionFactoryFactoryService extends ServiceFactoryServiceBase i
         return (ServiceName)paramMap.get("externalizerServiceName");
     }
     
+    public void setPayloadCodecServiceName(ServiceName name) {
+        paramMap.put("payloadCodecServiceName", name);
+    }
+    
+    public ServiceName getPayloadCodecServiceName() {
+        return (ServiceName)paramMap.get("payloadCodecServiceName");
+    }
+    
+    public void setPayloadCompressThreshold(int bytes) {
+        paramMap.put("payloadCompressThreshold", bytes);
+    }
+    
+    public int getPayloadCompressThreshold() {
+        if(!paramMap.containsKey("payloadCompressThreshold")) {
+            return -1;
+        }
+        return ((Integer)paramMap.get("payloadCompressThreshold")).intValue();
+    }
+    
+    public void setDeltaEncoding(boolean isDelta) {
+        paramMap.put("DeltaEncoding", isDelta);
+    }
+    
+    public boolean isDeltaEncoding() {
+        if(!paramMap.containsKey("DeltaEncoding")) {
+            return false;
+        }
+        return ((Boolean)paramMap.get("DeltaEncoding")).booleanValue();
+    }
+    
+    public void setDeltaSnapshotInterval(int count) {
+        paramMap.put("deltaSnapshotInterval", count);
+    }
+    
+    public int getDeltaSnapshotInterval() {
+        if(!paramMap.containsKey("deltaSnapshotInterval")) {
+            return -1;
+        }
+        return ((Integer)paramMap.get("deltaSnapshotInterval")).intValue();
+    }
+    
+    public void setDeltaSnapshotTime(long time) {
+        paramMap.put("deltaSnapshotTime", time);
+    }
+    
+    public long getDeltaSnapshotTime() {
+        if(!paramMap.containsKey("deltaSnapshotTime")) {
+            return -1;
+        }
+        return ((Long)paramMap.get("deltaSnapshotTime")).longValue();
+    }
+    
+    public void setDeltaSnapshotMaxSize(int size) {
+        paramMap.put("deltaSnapshotMaxSize", size);
+    }
+    
+    public int getDeltaSnapshotMaxSize() {
+        if(!paramMap.containsKey("deltaSnapshotMaxSize")) {
+            return -1;
+        }
+        return ((Integer)paramMap.get("deltaSnapshotMaxSize")).intValue();
+    }
+    
     public void setServerConnectionListenerServiceNames(ServiceName[] names) {
         paramMap.put("serverConnectionListenerServiceNames", names);
     }
@@ -776,6 +872,53 @@ public class ConnectionFactoryFactoryService extends ServiceFactoryServiceBase i
         }
     }
     
+    public long getSendBatchCount() {
+        long result = 0;
+        Iterator itr = managedInstances.iterator();
+        while(itr.hasNext()) {
+            ConnectionFactoryService connectionFactoryService = (ConnectionFactoryService)itr.next();
+            result += connectionFactoryService.getSendBatchCount();
+        }
+        return result;
+    }
+    
+    public double getAverageSendBatchSize() {
+        long count = 0;
+        double windows = 0.0d;
+        Iterator itr = managedInstances.iterator();
+        while(itr.hasNext()) {
+            ConnectionFactoryService connectionFactoryService = (ConnectionFactoryService)itr.next();
+            long batchCount = connectionFactoryService.getSendBatchCount();
+            count += batchCount;
+            windows += connectionFactoryService.getAverageSendBatchSize() * batchCount;
+        }
+        return count == 0 ? 0.0d : windows / count;
+    }
+    
+    public long getDeltaCount() {
+        long result = 0;
+        Iterator itr = managedInstances.iterator();
+        while(itr.hasNext()) {
+            ConnectionFactoryService connectionFactoryService = (ConnectionFactoryService)itr.next();
+            result += connectionFactoryService.getDeltaCount();
+        }
+        return result;
+    }
+    
+    public long getSnapshotCount() {
+        long result = 0;
+        Iterator itr = managedInstances.iterator();
+        while(itr.hasNext()) {
+            ConnectionFactoryService connectionFactoryService = (ConnectionFactoryService)itr.next();
+            result += connectionFactoryService.getSnapshotCount();
+        }
+        return result;
+    }
+    
+    public double getPayloadEncodingRatio() {
+        return -1.0d;
+    }
+    
     public double getAverageSendProcessTime() {
         return -1.0d;
     }
@@ -99,6 +99,9 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
     private int timeToLive = 1;
     private int unicastPort;
     private int windowSize = 1024;
+    private boolean isCoalescing;
+    private long coalescingLingerTime = 1;
+    private int coalescingMaxSize;
     private long sendMessageCacheTime = 5000;
     private int sendMessageCacheBlockSize = 100;
     private int localPort;
@@ -116,6 +119,12 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
     private int requestHandleThreadSize;
     private ServiceName requestHandleQueueServiceName;
     private ServiceName externalizerServiceName;
+    private ServiceName payloadCodecServiceName;
+    private int payloadCompressThreshold = 128;
+    private boolean isDeltaEncoding;
+    private int deltaSnapshotInterval = 100;
+    private long deltaSnapshotTime = 1000;
+    private int deltaSnapshotMaxSize = 10000;
     private int maxSendRetryCount;
     private boolean isAcknowledge;
     private String serverSendErrorMessageId = MSG_ID_SEND_ERROR;
@@ -149,6 +158,7 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
     private jp.ossc.nimbus.util.net.SocketFactory nioSocketFactory;
     private Repository jndiRepository;
     private Externalizer externalizer;
+    private PayloadCodec payloadCodec;
     private List serverConnectionListeners;
     private RemoteClientConnectionFactory remoteClientConnectionFactory;
     
@@ -320,6 +330,27 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
         return windowSize;
     }
     
+    public void setCoalescing(boolean isCoalescing){
+        this.isCoalescing = isCoalescing;
+    }
+    public boolean isCoalescing(){
+        return isCoalescing;
+    }
+    
+    public void setCoalescingLingerTime(long time){
+        coalescingLingerTime = time;
+    }
+    public long getCoalescingLingerTime(){
+        return coalescingLingerTime;
+    }
+    
+    public void setCoalescingMaxSize(int bytes){
+        coalescingMaxSize = bytes;
+    }
+    public int getCoalescingMaxSize(){
+        return coalescingMaxSize;
+    }
+    
     public void setSendMessageCacheTime(long time){
         sendMessageCacheTime = time;
     }
@@ -419,6 +450,48 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
         return externalizerServiceName;
     }
     
+    public void setPayloadCodecServiceName(ServiceName name){
+        payloadCodecServiceName = name;
+    }
+    public ServiceName getPayloadCodecServiceName(){
+        return payloadCodecServiceName;
+    }
+    
+    public void setPayloadCompressThreshold(int bytes){
+        payloadCompressThreshold = bytes;
+    }
+    public int getPayloadCompressThreshold(){
+        return payloadCompressThreshold;
+    }
+    
+    public void setDeltaEncoding(boolean isDelta){
+        isDeltaEncoding = isDelta;
+    }
+    public boolean isDeltaEncoding(){
+        return isDeltaEncoding;
+    }
+    
+    public void setDeltaSnapshotInterval(int count){
+        deltaSnapshotInterval = count;
+    }
+    public int getDeltaSnapshotInterval(){
+        return deltaSnapshotInterval;
+    }
+    
+    public void setDeltaSnapshotTime(long time){
+        deltaSnapshotTime = time;
+    }
+    public long getDeltaSnapshotTime(){
+        return deltaSnapshotTime;
+    }
+    
+    public void setDeltaSnapshotMaxSize(int size){
+        deltaSnapshotMaxSize = size;
+    }
+    public int getDeltaSnapshotMaxSize(){
+        return deltaSnapshotMaxSize;
+    }
+    
     public void setServerConnectionListenerServiceNames(ServiceName[] names){
         serverConnectionListenerServiceNames = names;
     }
@@ -636,6 +709,13 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
         return externalizer;
     }
     
+    public void setPayloadCodec(PayloadCodec codec){
+        payloadCodec = codec;
+    }
+    public PayloadCodec getPayloadCodec(){
+        return payloadCodec;
+    }
+    
     public void addServerConnectionListener(ServerConnectionListener listener){
         if(serverConnectionListeners == null){
             serverConnectionListeners = new ArrayList();
@@ -676,6 +756,26 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
         serverConnection.resetSendCount();
     }
     
+    public long getSendBatchCount(){
+        return serverConnection == null ? 0 : serverConnection.getSendBatchCount();
+    }
+    
+    public double getAverageSendBatchSize(){
+        return serverConnection == null ? 0.0d : serverConnection.getAverageSendBatchSize();
+    }
+    
+    public long getDeltaCount(){
+        return serverConnection == null ? 0 : serverConnection.getDeltaCount();
+    }
+    
+    public long getSnapshotCount(){
+        return serverConnection == null ? 0 : serverConnection.getSnapshotCount();
+    }
+    
+    public double getPayloadEncodingRatio(){
+        return serverConnection == null ? 0.0d : serverConnection.getPayloadEncodingRatio();
+    }
+    
     public double getAverageSendProcessTime(){
         return serverConnection == null ? 0.0d : serverConnection.getAverageSendProcessTime();
     }
@@ -1004,7 +1104,18 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
         return serverConnection == null ? 0 : serverConnection.getWindowPayoutCount();
     }
     
+    private int getEffectiveCoalescingMaxSize(){
+        if(coalescingMaxSize > 0){
+            return coalescingMaxSize;
+        }
+        final long size = (long)windowSize * DEFAULT_COALESCING_WINDOW_COUNT + 2;
+        return (int)Math.max(Math.min(size, MAX_DATAGRAM_SIZE), windowSize + 2);
+    }
+    
     public void startService() throws Exception{
+        if(isCoalescing && coalescingMaxSize > 0 && coalescingMaxSize < windowSize + 2){
+            throw new IllegalArgumentException("CoalescingMaxSize must be greater than WindowSize + 2. coalescingMaxSize=" + coalescingMaxSize + ", windowSize=" + windowSize);
+        }
         if(serverAddress == null){
             serverAddress = InetAddress.getLocalHost().getHostAddress();
         }
@@ -1012,6 +1123,13 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
             externalizer = (Externalizer)ServiceManagerFactory
                 .getServiceObject(externalizerServiceName);
         }
+        if(payloadCodecServiceName != null){
+            payloadCodec = (PayloadCodec)ServiceManagerFactory
+                .getServiceObject(payloadCodecServiceName);
+        }
+        if((payloadCodec != null || isDeltaEncoding) && multicastGroupAddress == null){
+            throw new IllegalArgumentException("PayloadCodec and DeltaEncoding require multicastGroupAddress.");
+        }
         InetSocketAddress sendSocketAddress = null;
         InetAddress group = null;
         if(multicastGroupAddress != null){
@@ -1091,6 +1209,15 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
             );
         }
         serverConnection.setWindowSize(getWindowSize());
+        if(isCoalescing){
+            serverConnection.setCoalescing(coalescingLingerTime, getEffectiveCoalescingMaxSize());
+        }
+        if(payloadCodec != null){
+            serverConnection.setPayloadCodec(payloadCodec, payloadCompressThreshold);
+        }
+        if(isDeltaEncoding){
+            serverConnection.setDeltaEncoding(deltaSnapshotInterval, deltaSnapshotTime, deltaSnapshotMaxSize);
+        }
         serverConnection.setSendMessageCacheTime(getSendMessageCacheTime());
         serverConnection.setSendMessageCacheBlockSize(getSendMessageCacheBlockSize());
         serverConnection.setTimeToLive(timeToLive);
@@ -1203,6 +1330,10 @@ public class ConnectionFactoryService extends ServiceBase implements ServerConne
         connection.setReconnectInterval(clientReconnectInterval);
         connection.setReconnectBufferTime(clientReconnectBufferTime);
         connection.setWindowSize(windowSize);
+        connection.setCoalescing(isCoalescing);
+        connection.setCoalescingMaxSize(getEffectiveCoalescingMaxSize());
+        connection.setPayloadCodec(payloadCodec);
+        connection.setDeltaSnapshotMaxSize(deltaSnapshotMaxSize);
         connection.setMissingWindowTimeout(missingWindowTimeout);
         connection.setMissingWindowCount(missingWindowCount);
         connection.setNewMessagePollingInterval(newMessagePollingInterval);
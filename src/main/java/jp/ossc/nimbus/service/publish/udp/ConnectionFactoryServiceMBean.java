@@ -44,6 +44,16 @@ import jp.ossc.nimbus.core.*;
  */
 public interface ConnectionFactoryServiceMBean extends ServiceBaseMBean{
     
+    /**
+     * {@link #setCoalescingMaxSize(int)}を指定しない場合に、1つのUDPパケットにまとめるウィンドウ数。<p>
+     */
+    public static final int DEFAULT_COALESCING_WINDOW_COUNT = 8;
+    
+    /**
+     * UDPパケットの最大ペイロードサイズ。<p>
+     */
+    public static final int MAX_DATAGRAM_SIZE = 65507;
+    
     public static final String MSG_ID_SEND_ERROR                = "PCFT_00001";
     public static final String MSG_ID_SEND_ERROR_RETRY_OVER     = "PCFT_00002";
     public static final String MSG_ID_RECEIVE_WARN              = "PCFT_00003";
@@ -495,6 +505,55 @@ public interface ConnectionFactoryServiceMBean extends ServiceBaseMBean{
      */
     public int getWindowSize();
     
+    /**
+     * 同一の送信先に送信する複数のウィンドウを、1つのUDPパケットにまとめて送信するかどうかを設定する。<p>
+     * 小さなメッセージを大量に送信する場合に、パケット数を減らしてシステムコールのオーバーヘッドを削減する。<br>
+     * まとめられたパケットは、{@link #setCoalescingLingerTime(long)}で指定した時間が経過するか、{@link #setCoalescingMaxSize(int)}で指定したサイズに達した時点で送信される。<br>
+     * 受信側も同じ設定である必要がある。<br>
+     * デフォルトは、falseでまとめない。<br>
+     *
+     * @param isCoalescing まとめる場合true
+     */
+    public void setCoalescing(boolean isCoalescing);
+    
+    /**
+     * 同一の送信先に送信する複数のウィンドウを、1つのUDPパケットにまとめて送信するかどうかを判定する。<p>
+     *
+     * @return trueの場合、まとめる
+     */
+    public boolean isCoalescing();
+    
+    /**
+     * ウィンドウをまとめて送信する場合に、最初のウィンドウを溜めてから送信するまでの最大待ち時間[ms]を設定する。<p>
+     * デフォルトは、1[ms]。<br>
+     *
+     * @param time 最大待ち時間[ms]
+     */
+    public void setCoalescingLingerTime(long time);
+    
+    /**
+     * ウィンドウをまとめて送信する場合に、最初のウィンドウを溜めてから送信するまでの最大待ち時間[ms]を取得する。<p>
+     *
+     * @return 最大待ち時間[ms]
+     */
+    public long getCoalescingLingerTime();
+    
+    /**
+     * ウィンドウをまとめて送信する場合の、UDPパケットの最大サイズを設定する。<p>
+     * {@link #setWindowSize(int)}+2より小さい値は指定できない。<br>
+     * デフォルトは、0で{@link #setWindowSize(int)}×{@link #DEFAULT_COALESCING_WINDOW_COUNT}+2。但し、{@link #MAX_DATAGRAM_SIZE}を超える場合は、{@link #MAX_DATAGRAM_SIZE}。<br>
+     *
+     * @param bytes UDPパケットの最大サイズ
+     */
+    public void setCoalescingMaxSize(int bytes);
+    
+    /**
+     * ウィンドウをまとめて送信する場合の、UDPパケットの最大サイズを取得する。<p>
+     *
+     * @return UDPパケットの最大サイズ
+     */
+    public int getCoalescingMaxSize();
+    
     /**
      * 送信パケットのキャッシュ時間を設定する。<p>
      * 受信側がパケットをロストしたと判断した時に、送信側にロストしたパケットを問い合わせて補間する。<br>
@@ -1009,6 +1068,106 @@ public interface ConnectionFactoryServiceMBean extends ServiceBaseMBean{
      */
     public ServiceName getExternalizerServiceName();
     
+    /**
+     * マルチキャストで送信するメッセージのペイロードを圧縮する{@link PayloadCodec}サービスのサービス名を設定する。<p>
+     * このサービスは、{@link #getClientConnection()}で生成したクライアントにも直列化して渡される。<br>
+     * 指定しない場合は、圧縮しない。<br>
+     *
+     * @param name PayloadCodecサービスのサービス名
+     * @see CompressPayloadCodecService
+     */
+    public void setPayloadCodecServiceName(ServiceName name);
+    
+    /**
+     * マルチキャストで送信するメッセージのペイロードを圧縮する{@link PayloadCodec}サービスのサービス名を取得する。<p>
+     *
+     * @return PayloadCodecサービスのサービス名
+     */
+    public ServiceName getPayloadCodecServiceName();
+    
+    /**
+     * ペイロードを圧縮する最小バイト数を設定する。<p>
+     * このサイズ未満のペイロードや、圧縮してもサイズが小さくならないペイロードは、圧縮せずに送信する。<br>
+     * デフォルトは、128[byte]。<br>
+     *
+     * @param bytes 最小バイト数
+     */
+    public void setPayloadCompressThreshold(int bytes);
+    
+    /**
+     * ペイロードを圧縮する最小バイト数を取得する。<p>
+     *
+     * @return 最小バイト数
+     */
+    public int getPayloadCompressThreshold();
+    
+    /**
+     * マルチキャストで送信する単一のサブジェクト、キーを持つメッセージのペイロードを、同じサブジェクト、キーのスナップショットからの差分で送信するかどうかを設定する。<p>
+     * 同じキーの値が高頻度で少しずつ更新される場合に、送信量を削減できる。<br>
+     * スナップショットは、{@link #setDeltaSnapshotInterval(int)}及び{@link #setDeltaSnapshotTime(long)}に従って送り直され、スナップショットを受信していないクライアントは、次のスナップショットまでの差分を破棄する。<br>
+     * デフォルトは、falseで差分にしない。<br>
+     *
+     * @param isDelta 差分で送信する場合true
+     */
+    public void setDeltaEncoding(boolean isDelta);
+    
+    /**
+     * マルチキャストで送信するメッセージのペイロードを、スナップショットからの差分で送信するかどうかを判定する。<p>
+     *
+     * @return trueの場合、差分で送信する
+     */
+    public boolean isDeltaEncoding();
+    
+    /**
+     * スナップショットを送り直すまでに、差分で送信するメッセージの件数を設定する。<p>
+     * 0以下を指定すると、件数では送り直さない。<br>
+     * デフォルトは、100。<br>
+     *
+     * @param count 件数
+     */
+    public void setDeltaSnapshotInterval(int count);
+    
+    /**
+     * スナップショットを送り直すまでに、差分で送信するメッセージの件数を取得する。<p>
+     *
+     * @return 件数
+     */
+    public int getDeltaSnapshotInterval();
+    
+    /**
+     * スナップショットを送り直す間隔[ms]を設定する。<p>
+     * 途中から受信を開始したクライアントが、差分を復元できるようになるまでの最大待ち時間となる。0以下を指定すると、時間では送り直さない。<br>
+     * デフォルトは、1000[ms]。<br>
+     *
+     * @param time 間隔[ms]
+     */
+    public void setDeltaSnapshotTime(long time);
+    
+    /**
+     * スナップショットを送り直す間隔[ms]を取得する。<p>
+     *
+     * @return 間隔[ms]
+     */
+    public long getDeltaSnapshotTime();
+    
+    /**
+     * 差分の基準として保持するスナップショットの最大数を設定する。<p>
+     * サーバ側は、サブジェクトとキーの組み合わせ毎に最後のスナップショットを保持し、クライアント側は、受信対象のサブジェクトとキーの組み合わせ毎に受信したスナップショットを保持する。<br>
+     * 最大数を超えた場合は、最も長く使用されていないスナップショットを破棄する。サーバ側で破棄した組み合わせは、次のメッセージをスナップショットで送信し、クライアント側で破棄した組み合わせは、次のスナップショットを受信するまで差分を破棄する。<br>
+     * 0以下を指定すると、制限しない。<br>
+     * デフォルトは、10000。<br>
+     *
+     * @param size 最大数
+     */
+    public void setDeltaSnapshotMaxSize(int size);
+    
+    /**
+     * 差分の基準として保持するスナップショットの最大数を取得する。<p>
+     *
+     * @return 最大数
+     */
+    public int getDeltaSnapshotMaxSize();
+    
     /**
      * {@link jp.ossc.nimbus.service.publish.ServerConnectionListener ServerConnectionListener}のサービス名を設定する。<p>
      *
@@ -1061,6 +1220,41 @@ public interface ConnectionFactoryServiceMBean extends ServiceBaseMBean{
      */
     public void resetSendCount();
     
+    /**
+     * ウィンドウをまとめて送信したパケット件数を取得する。<p>
+     *
+     * @return まとめて送信したパケット件数
+     */
+    public long getSendBatchCount();
+    
+    /**
+     * まとめて送信したパケット1件あたりの平均ウィンドウ数を取得する。<p>
+     *
+     * @return 平均ウィンドウ数
+     */
+    public double getAverageSendBatchSize();
+    
+    /**
+     * 差分で送信したメッセージの件数を取得する。<p>
+     *
+     * @return 差分で送信したメッセージの件数
+     */
+    public long getDeltaCount();
+    
+    /**
+     * スナップショットとして送信したメッセージの件数を取得する。<p>
+     *
+     * @return スナップショットとして送信したメッセージの件数
+     */
+    public long getSnapshotCount();
+    
+    /**
+     * 符号化前のペイロードのバイト数に対する、符号化後のバイト数の比率を取得する。<p>
+     *
+     * @return 比率
+     */
+    public double getPayloadEncodingRatio();
+    
     /**
      * 平均送信時間を取得する。<p>
      *
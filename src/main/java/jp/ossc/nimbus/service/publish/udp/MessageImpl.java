@@ -58,6 +58,21 @@ import jp.ossc.nimbus.service.io.Externalizer;
  */
 public class MessageImpl extends MessageId implements Message, Comparable, Cloneable, Externalizable{
     
+    /**
+     * ペイロード符号化フラグ：{@link PayloadCodec}で圧縮されている。<p>
+     */
+    public static final int PAYLOAD_COMPRESSED = 0x01;
+    
+    /**
+     * ペイロード符号化フラグ：スナップショットに対する差分である。<p>
+     */
+    public static final int PAYLOAD_DELTA = 0x02;
+    
+    /**
+     * ペイロード符号化フラグ：同一サブジェクト、キーの後続の差分の基準となるスナップショットである。<p>
+     */
+    public static final int PAYLOAD_SNAPSHOT = 0x04;
+    
     private transient String subject;
     private Map subjectMap = new LinkedHashMap();
     private Object object;
@@ -73,10 +88,70 @@ public class MessageImpl extends MessageId implements Message, Comparable, Clone
     private transient ServerConnectionImpl serverConnection;
     protected transient Externalizer externalizer;
     private transient boolean isPayout = true;
+    private transient boolean isPayloadEncoded;
+    private transient int payloadEncoding;
+    private transient int baseSequence;
+    private transient byte[] encodedPayload;
     
     public MessageImpl(){
     }
     
+    /**
+     * 符号化したペイロードを設定する。<p>
+     * 設定した場合、{@link #writeExternal(ObjectOutput)}は、ペイロードの代わりに符号化したペイロードを書き込む。<br>
+     *
+     * @param encoding ペイロード符号化フラグ
+     * @param baseSequence 差分の場合、基準となるスナップショットのシーケンス番号
+     * @param bytes 符号化したペイロード
+     */
+    public void setEncodedPayload(int encoding, int baseSequence, byte[] bytes){
+        isPayloadEncoded = true;
+        payloadEncoding = encoding;
+        this.baseSequence = baseSequence;
+        encodedPayload = bytes;
+    }
+    
+    public void setPayloadEncoded(boolean isEncoded){
+        isPayloadEncoded = isEncoded;
+    }
+    public boolean isPayloadEncoded(){
+        return isPayloadEncoded;
+    }
+    
+    public int getPayloadEncoding(){
+        return payloadEncoding;
+    }
+    
+    public int getBaseSequence(){
+        return baseSequence;
+    }
+    
+    public byte[] getEncodedPayload(){
+        return encodedPayload;
+    }
+    
+    /**
+     * ペイロードの直列化バイト配列を取得する。<p>
+     * 直列化バイト配列が設定されていない場合は、データオブジェクトを直列化する。<br>
+     *
+     * @return ペイロードの直列化バイト配列
+     * @exception IOException 直列化に失敗した場合
+     */
+    public byte[] toSerializedBytes() throws IOException{
+        if(serializedBytes != null){
+            return serializedBytes;
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        if(externalizer == null){
+            ObjectOutputStream oos = new ObjectOutputStream(baos);
+            oos.writeObject(object);
+            oos.flush();
+        }else{
+            externalizer.writeExternal(object, baos);
+        }
+        return baos.toByteArray();
+    }
+    
     public void setClientConnection(ClientConnectionImpl con){
         clientConnection = con;
     }
@@ -198,7 +273,7 @@ public class MessageImpl extends MessageId implements Message, Comparable, Clone
         receiveTime = time;
     }
     
-    public List getWindows(ServerConnectionImpl sc, int windowSize) throws IOException{
+    public synchronized List getWindows(ServerConnectionImpl sc, int windowSize) throws IOException{
         if(windows == null){
             externalizer = sc.externalizer;
             windows = Window.toWindows(this, sc, windowSize);
@@ -281,18 +356,14 @@ public class MessageImpl extends MessageId implements Message, Comparable, Clone
             sendTime = System.currentTimeMillis();
         }
         out.writeLong(sendTime);
-        if(serializedBytes == null){
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            if(externalizer == null){
-                ObjectOutputStream oos = new ObjectOutputStream(baos);
-                oos.writeObject(object);
-                oos.flush();
-            }else{
-                externalizer.writeExternal(object, baos);
+        if(isPayloadEncoded){
+            out.writeByte(payloadEncoding);
+            if((payloadEncoding & PAYLOAD_DELTA) != 0){
+                out.writeInt(baseSequence);
             }
-            out.writeObject(baos.toByteArray());
+            out.writeObject(encodedPayload);
         }else{
-            out.writeObject(serializedBytes);
+            out.writeObject(toSerializedBytes());
         }
     }
     
@@ -305,7 +376,15 @@ public class MessageImpl extends MessageId implements Message, Comparable, Clone
             subjectMap.put(in.readObject(), in.readObject());
         }
         sendTime = in.readLong();
-        serializedBytes = (byte[])in.readObject();
+        if(isPayloadEncoded){
+            payloadEncoding = in.readByte();
+            if((payloadEncoding & PAYLOAD_DELTA) != 0){
+                baseSequence = in.readInt();
+            }
+            encodedPayload = (byte[])in.readObject();
+        }else{
+            serializedBytes = (byte[])in.readObject();
+        }
     }
     
     public String toString(){
@@ -334,6 +413,10 @@ public class MessageImpl extends MessageId implements Message, Comparable, Clone
         serializedBytes = null;
         clientConnection = null;
         isSend = false;
+        isPayloadEncoded = false;
+        payloadEncoding = 0;
+        baseSequence = 0;
+        encodedPayload = null;
     }
     
     public void copy(MessageImpl msg){
@@ -354,6 +437,10 @@ public class MessageImpl extends MessageId implements Message, Comparable, Clone
         }
         msg.serializedBytes = serializedBytes;
         msg.windows = null;
+        msg.isPayloadEncoded = isPayloadEncoded;
+        msg.payloadEncoding = payloadEncoding;
+        msg.baseSequence = baseSequence;
+        msg.encodedPayload = encodedPayload;
     }
     
     public Object clone(){
@@ -0,0 +1,62 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.publish.udp;
+
+import java.io.IOException;
+
+/**
+ * メッセージのペイロードを符号化するコーデック。<p>
+ * {@link ConnectionFactoryService}で、送信するメッセージのペイロードを圧縮する場合に使用する。<br>
+ * 受信側にも直列化して渡されるため、実装クラスは直列化可能でなければならない。<br>
+ *
+ * @author M.Takata
+ */
+public interface PayloadCodec{
+    
+    /**
+     * ペイロードを符号化する。<p>
+     *
+     * @param bytes ペイロード
+     * @return 符号化したペイロード
+     * @exception IOException 符号化に失敗した場合
+     */
+    public byte[] encode(byte[] bytes) throws IOException;
+    
+    /**
+     * 符号化されたペイロードを復号化する。<p>
+     *
+     * @param bytes 符号化されたペイロード
+     * @return ペイロード
+     * @exception IOException 復号化に失敗した場合
+     */
+    public byte[] decode(byte[] bytes) throws IOException;
+}
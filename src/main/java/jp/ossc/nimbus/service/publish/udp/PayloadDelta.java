@@ -0,0 +1,124 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.publish.udp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * ペイロードの差分を作成、適用するユーティリティ。<p>
+ * 差分は、新しいペイロード長と、スナップショットから変化したバイト列の範囲（オフセット、長さ、バイト列）の並びで表す。<br>
+ *
+ * @author M.Takata
+ */
+public class PayloadDelta{
+    
+    /**
+     * 差分の範囲を分割しない、一致するバイト列の最小長。<p>
+     * 範囲のヘッダ長と同じにする事で、短い一致区間で範囲を分割して差分が大きくなるのを避ける。<br>
+     */
+    private static final int MIN_MATCH_LENGTH = 8;
+    
+    private PayloadDelta(){
+    }
+    
+    /**
+     * スナップショットに対する差分を作成する。<p>
+     *
+     * @param base スナップショット
+     * @param bytes 新しいペイロード
+     * @return 差分
+     * @exception IOException 差分の作成に失敗した場合
+     */
+    public static byte[] diff(byte[] base, byte[] bytes) throws IOException{
+        final ByteArrayOutputStream runs = new ByteArrayOutputStream();
+        final DataOutputStream dos = new DataOutputStream(runs);
+        int runCount = 0;
+        int i = 0;
+        while(i < bytes.length){
+            if(i < base.length && bytes[i] == base[i]){
+                i++;
+                continue;
+            }
+            final int start = i;
+            int end = i + 1;
+            int match = 0;
+            for(int j = i + 1; j < bytes.length; j++){
+                if(j < base.length && bytes[j] == base[j]){
+                    if(++match >= MIN_MATCH_LENGTH){
+                        break;
+                    }
+                }else{
+                    match = 0;
+                    end = j + 1;
+                }
+            }
+            dos.writeInt(start);
+            dos.writeInt(end - start);
+            dos.write(bytes, start, end - start);
+            runCount++;
+            i = end;
+        }
+        dos.flush();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(runs.size() + 8);
+        final DataOutputStream out = new DataOutputStream(baos);
+        out.writeInt(bytes.length);
+        out.writeInt(runCount);
+        runs.writeTo(out);
+        out.flush();
+        return baos.toByteArray();
+    }
+    
+    /**
+     * スナップショットに差分を適用する。<p>
+     *
+     * @param base スナップショット
+     * @param delta 差分
+     * @return 新しいペイロード
+     * @exception IOException 差分の適用に失敗した場合
+     */
+    public static byte[] patch(byte[] base, byte[] delta) throws IOException{
+        final DataInputStream dis = new DataInputStream(new ByteArrayInputStream(delta));
+        final byte[] result = new byte[dis.readInt()];
+        System.arraycopy(base, 0, result, 0, Math.min(base.length, result.length));
+        final int runCount = dis.readInt();
+        for(int i = 0; i < runCount; i++){
+            final int offset = dis.readInt();
+            final int length = dis.readInt();
+            dis.readFully(result, offset, length);
+        }
+        return result;
+    }
+}
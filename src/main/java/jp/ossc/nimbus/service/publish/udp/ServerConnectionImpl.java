@@ -65,6 +65,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -85,6 +86,7 @@ import jp.ossc.nimbus.service.publish.MessageSendException;
 import jp.ossc.nimbus.service.publish.MessageException;
 import jp.ossc.nimbus.service.publish.ServerConnection;
 import jp.ossc.nimbus.service.publish.ServerConnectionListener;
+import jp.ossc.nimbus.service.publish.SubscriptionIndex;
 import jp.ossc.nimbus.service.queue.AsynchContext;
 import jp.ossc.nimbus.service.queue.Queue;
 import jp.ossc.nimbus.service.queue.DefaultQueueService;
@@ -188,6 +190,24 @@ public class ServerConnectionImpl implements ServerConnection{
     private int sendMessageCacheBlockSize = 100;
     private ServiceName factoryServiceName;
     private Map disabledClients = Collections.synchronizedMap(new HashMap());
+    private boolean isCoalescing;
+    private long coalescingLingerTime;
+    private int coalescingMaxSize;
+    private final Map packetCoalescers = new HashMap();
+    private Daemon packetCoalescingFlusher;
+    private long sendBatchCount;
+    private long sendBatchWindowCount;
+    private final SubscriptionIndex subscriptionIndex = new SubscriptionIndex();
+    private PayloadCodec payloadCodec;
+    private int payloadCompressThreshold;
+    private boolean isDeltaEncoding;
+    private int deltaSnapshotInterval;
+    private long deltaSnapshotTime;
+    private Map deltaSnapshots = new HashMap();
+    private long payloadBytes;
+    private long encodedPayloadBytes;
+    private long deltaCount;
+    private long snapshotCount;
     
     public ServerConnectionImpl(
         ServerSocket serverSocket,
@@ -536,6 +556,171 @@ public class ServerConnectionImpl implements ServerConnection{
         }
     }
     
+    /**
+     * 送信先毎に複数のウィンドウを1つのデータグラムにまとめて送信するように設定する。<p>
+     * まとめたデータグラムは、先頭にウィンドウ数を表す2バイトのヘッダを持つ。<br>
+     *
+     * @param lingerTime 最初のウィンドウを溜めてから送信するまでの最大待ち時間[ms]
+     * @param maxSize まとめたデータグラムの最大バイト数
+     */
+    public void setCoalescing(long lingerTime, int maxSize){
+        isCoalescing = true;
+        coalescingLingerTime = lingerTime;
+        coalescingMaxSize = maxSize;
+        if(packetCoalescingFlusher == null){
+            packetCoalescingFlusher = new Daemon(new PacketCoalescingFlusher());
+            packetCoalescingFlusher.setName(
+                "Nimbus Publish(UDP) ServerConnection PacketCoalescingFlusher " + (serverSocket == null ? serverSocketChannel.socket().getLocalSocketAddress() : serverSocket.getLocalSocketAddress())
+            );
+            packetCoalescingFlusher.setDaemon(true);
+            packetCoalescingFlusher.start();
+        }
+    }
+    
+    public boolean isCoalescing(){
+        return isCoalescing;
+    }
+    
+    /**
+     * ペイロードを圧縮するコーデックを設定する。<p>
+     *
+     * @param codec コーデック
+     * @param threshold 圧縮するペイロードの最小バイト数
+     */
+    public void setPayloadCodec(PayloadCodec codec, int threshold){
+        payloadCodec = codec;
+        payloadCompressThreshold = threshold;
+    }
+    
+    /**
+     * 単一のサブジェクト、キーを持つメッセージのペイロードを、同じサブジェクト、キーの最後のスナップショットに対する差分で送信するように設定する。<p>
+     * スナップショットは、指定した件数または時間毎に送り直すため、途中から受信を開始したクライアントも、次のスナップショット以降は受信できる。<br>
+     *
+     * @param snapshotInterval スナップショットを送り直すメッセージ件数。0以下の場合は、件数では送り直さない
+     * @param snapshotTime スナップショットを送り直す時間[ms]。0以下の場合は、時間では送り直さない
+     * @param maxSize 保持するスナップショットの最大数。超えた場合は、最も長く使用されていないものから破棄する。0以下の場合は、制限しない
+     */
+    public synchronized void setDeltaEncoding(int snapshotInterval, long snapshotTime, int maxSize){
+        isDeltaEncoding = true;
+        deltaSnapshotInterval = snapshotInterval;
+        deltaSnapshotTime = snapshotTime;
+        deltaSnapshots = createDeltaSnapshotMap(maxSize);
+    }
+    
+    /**
+     * スナップショットを保持するマップを生成する。<p>
+     *
+     * @param maxSize 保持するスナップショットの最大数。0以下の場合は、制限しない
+     * @return スナップショットを保持するマップ
+     */
+    static Map createDeltaSnapshotMap(final int maxSize){
+        if(maxSize <= 0){
+            return new HashMap();
+        }
+        return new LinkedHashMap(16, 0.75f, true){
+            private static final long serialVersionUID = -4527937402427049461L;
+            protected boolean removeEldestEntry(Map.Entry eldest){
+                return size() > maxSize;
+            }
+        };
+    }
+    
+    /**
+     * 保持しているスナップショットの数を取得する。<p>
+     *
+     * @return スナップショットの数
+     */
+    public synchronized int getDeltaSnapshotSize(){
+        return deltaSnapshots.size();
+    }
+    
+    private synchronized void clearDeltaSnapshots(){
+        deltaSnapshots.clear();
+    }
+    
+    public boolean isDeltaEncoding(){
+        return isDeltaEncoding;
+    }
+    
+    public long getDeltaCount(){
+        return deltaCount;
+    }
+    
+    public long getSnapshotCount(){
+        return snapshotCount;
+    }
+    
+    public double getPayloadEncodingRatio(){
+        return payloadBytes == 0 ? 0.0d : ((double)encodedPayloadBytes / (double)payloadBytes);
+    }
+    
+    private void encodePayload(MessageImpl message) throws IOException{
+        message.externalizer = externalizer;
+        byte[] bytes = message.toSerializedBytes();
+        final int length = bytes.length;
+        int encoding = 0;
+        int baseSequence = 0;
+        final String snapshotKey = isDeltaEncoding ? getSnapshotKey(message) : null;
+        if(snapshotKey != null){
+            final long currentTime = System.currentTimeMillis();
+            DeltaSnapshot snapshot = (DeltaSnapshot)deltaSnapshots.get(snapshotKey);
+            byte[] delta = null;
+            if(snapshot != null
+                && (deltaSnapshotInterval <= 0 || snapshot.count < deltaSnapshotInterval)
+                && (deltaSnapshotTime <= 0 || currentTime - snapshot.time < deltaSnapshotTime)
+            ){
+                delta = PayloadDelta.diff(snapshot.bytes, bytes);
+                if(delta.length >= length){
+                    delta = null;
+                }
+            }
+            if(delta == null){
+                if(snapshot == null){
+                    snapshot = new DeltaSnapshot();
+                    deltaSnapshots.put(snapshotKey, snapshot);
+                }
+                snapshot.sequence = message.getSequence();
+                snapshot.bytes = bytes;
+                snapshot.time = currentTime;
+                snapshot.count = 0;
+                encoding |= MessageImpl.PAYLOAD_SNAPSHOT;
+                snapshotCount++;
+            }else{
+                snapshot.count++;
+                baseSequence = snapshot.sequence;
+                bytes = delta;
+                encoding |= MessageImpl.PAYLOAD_DELTA;
+                deltaCount++;
+            }
+        }
+        if(payloadCodec != null && bytes.length >= payloadCompressThreshold){
+            final byte[] compressed = payloadCodec.encode(bytes);
+            if(compressed.length < bytes.length){
+                bytes = compressed;
+                encoding |= MessageImpl.PAYLOAD_COMPRESSED;
+            }
+        }
+        message.setEncodedPayload(encoding, baseSequence, bytes);
+        payloadBytes += length;
+        encodedPayloadBytes += bytes.length;
+    }
+    
+    /**
+     * 差分の基準となるスナップショットのキーを取得する。<p>
+     *
+     * @param message メッセージ
+     * @return スナップショットのキー。差分の対象外のメッセージの場合は、null
+     */
+    static String getSnapshotKey(MessageImpl message){
+        final Set subjects = message.getSubjects();
+        if(subjects == null || subjects.size() != 1){
+            return null;
+        }
+        final String subject = message.getSubject();
+        final String key = message.getKey(subject);
+        return key == null ? subject : subject + '\u0000' + key;
+    }
+    
     public void setSendMessageCacheTime(long time){
         sendMessageCacheTime = time;
     }
@@ -765,6 +950,13 @@ public class ServerConnectionImpl implements ServerConnection{
     private void sendMessage(DatagramSocket sendSocket, InetAddress destAddress, MessageImpl message, int destPort, boolean isRetry) throws IOException{
         List windows = message.getWindows(this, windowSize);
         maxWindowCount = Math.max(maxWindowCount, windows.size());
+        if(isCoalescing){
+            final PacketCoalescer coalescer = getPacketCoalescer(destAddress, destPort);
+            for(int i = 0, imax = windows.size(); i < imax; i++){
+                coalescer.add(sendSocket, (Window)windows.get(i), isRetry);
+            }
+            return;
+        }
         List packets = new ArrayList();
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         DataOutputStream dos = new DataOutputStream(baos);
@@ -783,57 +975,103 @@ public class ServerConnectionImpl implements ServerConnection{
             packets.add(packet);
         }
         for(int i = 0, imax = packets.size(); i < imax; i++){
-            DatagramPacket packet = (DatagramPacket)packets.get(i);
-            if(isRetry){
-                for(int j = 0; j <= maxSendRetryCount; i++){
-                    try{
-                        synchronized(sendSocket){
-                            if(multicastAddress != null && multicastAddress.isMulticastAddress() && networkInterfaces != null){
-                                for(int k = 0; k < networkInterfaces.length; k++){
-                                    ((MulticastSocket)sendSocket).setNetworkInterface(networkInterfaces[k]);
-                                    sendSocket.send(packet);
-                                }
-                            }else{
-                                sendSocket.send(packet);
-                            }
-                        }
-                        break;
-                    }catch(IOException e){
-                        if(logger != null){
-                            if(j >= maxSendRetryCount){
-                                if(sendErrorRetryOverMessageId != null){
-                                    logger.write(
-                                        sendErrorRetryOverMessageId,
-                                        new Object[]{destAddress + ":" + destPort, message},
-                                        e
-                                    );
-                                }
-                                throw e;
-                            }else{
-                                if(sendErrorMessageId != null){
-                                    logger.write(
-                                        sendErrorMessageId,
-                                        new Object[]{destAddress + ":" + destPort, message},
-                                        e
-                                    );
-                                }
-                            }
-                        }
+            sendPacket(sendSocket, (DatagramPacket)packets.get(i), message, isRetry);
+        }
+    }
+    
+    private void sendPacket(DatagramSocket sendSocket, DatagramPacket packet, Object message, boolean isRetry) throws IOException{
+        if(!isRetry){
+            sendPacket(sendSocket, packet);
+            return;
+        }
+        for(int i = 0; ; i++){
+            try{
+                sendPacket(sendSocket, packet);
+                return;
+            }catch(IOException e){
+                if(i >= maxSendRetryCount){
+                    if(logger != null && sendErrorRetryOverMessageId != null){
+                        logger.write(
+                            sendErrorRetryOverMessageId,
+                            new Object[]{packet.getAddress() + ":" + packet.getPort(), message},
+                            e
+                        );
                     }
+                    throw e;
+                }else if(logger != null && sendErrorMessageId != null){
+                    logger.write(
+                        sendErrorMessageId,
+                        new Object[]{packet.getAddress() + ":" + packet.getPort(), message},
+                        e
+                    );
                 }
-            }else{
-                synchronized(sendSocket){
-                    if(multicastAddress != null && multicastAddress.isMulticastAddress() && networkInterfaces != null){
-                        for(int j = 0; j < networkInterfaces.length; j++){
-                            ((MulticastSocket)sendSocket).setNetworkInterface(networkInterfaces[j]);
-                            sendSocket.send(packet);
-                        }
-                    }else{
-                        sendSocket.send(packet);
-                    }
+            }
+        }
+    }
+    
+    private PacketCoalescer getPacketCoalescer(InetAddress destAddress, int destPort){
+        final InetSocketAddress key = new InetSocketAddress(destAddress, destPort);
+        synchronized(packetCoalescers){
+            PacketCoalescer coalescer = (PacketCoalescer)packetCoalescers.get(key);
+            if(coalescer == null){
+                coalescer = new PacketCoalescer(destAddress, destPort);
+                packetCoalescers.put(key, coalescer);
+            }
+            return coalescer;
+        }
+    }
+    
+    private void sendPacket(DatagramSocket sendSocket, DatagramPacket packet) throws IOException{
+        synchronized(sendSocket){
+            if(multicastAddress != null && multicastAddress.isMulticastAddress() && networkInterfaces != null){
+                for(int i = 0; i < networkInterfaces.length; i++){
+                    ((MulticastSocket)sendSocket).setNetworkInterface(networkInterfaces[i]);
+                    sendSocket.send(packet);
                 }
+            }else{
+                sendSocket.send(packet);
+            }
+        }
+    }
+    
+    private void flushPacketCoalescers(boolean isExpiredOnly){
+        PacketCoalescer[] coalescers = null;
+        synchronized(packetCoalescers){
+            if(packetCoalescers.size() == 0){
+                return;
+            }
+            coalescers = (PacketCoalescer[])packetCoalescers.values().toArray(new PacketCoalescer[packetCoalescers.size()]);
+        }
+        final long currentTime = System.currentTimeMillis();
+        for(int i = 0; i < coalescers.length; i++){
+            try{
+                coalescers[i].flush(isExpiredOnly ? currentTime : -1, true);
+            }catch(IOException e){
+                // リトライオーバーは、sendPacketでログ出力済み
+            }
+        }
+    }
+    
+    /**
+     * 次に待ち時間を超えるウィンドウが出るまでの時間を取得する。<p>
+     *
+     * @param currentTime 現在時刻
+     * @return 待ち時間[ms]。溜めているウィンドウがない場合は、-1
+     */
+    private long getCoalescingWaitTime(long currentTime){
+        long waitTime = -1;
+        final Iterator coalescers = packetCoalescers.values().iterator();
+        while(coalescers.hasNext()){
+            final long startTime = ((PacketCoalescer)coalescers.next()).startTime;
+            if(startTime < 0){
+                continue;
+            }
+            final long time = Math.max(startTime + coalescingLingerTime - currentTime, 0l);
+            if(waitTime < 0 || time < waitTime){
+                waitTime = time;
             }
         }
+        return waitTime;
     }
     
     public synchronized void send(Message message) throws MessageSendException{
@@ -849,7 +1087,7 @@ public class ServerConnectionImpl implements ServerConnection{
             if(multicastAddress == null){
                 if(sendQueueHandlerContainer == null){
                     List currentClients = new ArrayList();
-                    final Iterator clientItr = clients.iterator();
+                    final Iterator clientItr = getTargetClients(message, firstClients).iterator();
                     while(clientItr.hasNext()){
                         ClientImpl client = (ClientImpl)clientItr.next();
                         if(client == null
@@ -875,7 +1113,7 @@ public class ServerConnectionImpl implements ServerConnection{
                     }
                 }else{
                     final Map sendContexts = new HashMap();
-                    final Iterator clientItr = clients.iterator();
+                    final Iterator clientItr = subscriptionIndex.getClients(message).iterator();
                     while(clientItr.hasNext()){
                         ClientImpl client = (ClientImpl)clientItr.next();
                         if(!client.isStartReceive() || !client.isTargetMessage(message)){
@@ -944,12 +1182,29 @@ public class ServerConnectionImpl implements ServerConnection{
         asynchAcceptQueueHandlerContainer.push(message);
     }
     
-    private synchronized Set allocateSequence(MessageImpl message){
+    private Set getTargetClients(Message message, Set firstClients){
+        final Set targetClients = subscriptionIndex.getClients(message);
+        if(firstClients == null || targetClients.containsAll(firstClients)){
+            return targetClients;
+        }
+        final Set result = new LinkedHashSet(targetClients);
+        result.addAll(firstClients);
+        return result;
+    }
+    
+    private synchronized Set allocateSequence(MessageImpl message) throws MessageSendException{
         currentSequence++;
         message.setSequence(currentSequence);
         if(message.getSendTime() < 0){
             message.setSendTime(System.currentTimeMillis());
         }
+        if(multicastAddress != null && (payloadCodec != null || isDeltaEncoding)){
+            try{
+                encodePayload(message);
+            }catch(IOException e){
+                throw new MessageSendException("Payload encode error : message=" + message, e);
+            }
+        }
         Set result = null;
         if(newClients.size() != 0){
             final ClientImpl[] clientArray = (ClientImpl[])newClients.toArray(new ClientImpl[newClients.size()]);
@@ -1081,6 +1336,20 @@ public class ServerConnectionImpl implements ServerConnection{
         sendCount = 0;
         sendPacketCount = 0;
         sendProcessTime = 0;
+        synchronized(packetCoalescers){
+            sendBatchCount = 0;
+            sendBatchWindowCount = 0;
+        }
+    }
+    
+    public long getSendBatchCount(){
+        return sendBatchCount;
+    }
+    
+    public double getAverageSendBatchSize(){
+        synchronized(packetCoalescers){
+            return sendBatchCount == 0 ? 0.0d : ((double)sendBatchWindowCount / (double)sendBatchCount);
+        }
     }
     
     public double getAverageSendProcessTime(){
@@ -1103,7 +1372,7 @@ public class ServerConnectionImpl implements ServerConnection{
     
     public Set getReceiveClientIds(Message message){
         final Set result = new HashSet();
-        final Iterator clientItr = clients.iterator();
+        final Iterator clientItr = subscriptionIndex.getClients(message).iterator();
         while(clientItr.hasNext()){
             ClientImpl client = (ClientImpl)clientItr.next();
             if(client.isStartReceive() && client.isTargetMessage(message)){
@@ -1136,6 +1405,11 @@ public class ServerConnectionImpl implements ServerConnection{
     }
     
     public synchronized void close(){
+        if(packetCoalescingFlusher != null){
+            packetCoalescingFlusher.stopNoWait();
+            packetCoalescingFlusher = null;
+        }
+        flushPacketCoalescers(false);
         ServerCloseRequestMessage closeMsg = new ServerCloseRequestMessage();
         Iterator clientItr = clients.iterator();
         while(clientItr.hasNext()){
@@ -1360,6 +1634,111 @@ public class ServerConnectionImpl implements ServerConnection{
         }
     }
     
+    private static class DeltaSnapshot{
+        public int sequence;
+        public byte[] bytes;
+        public long time;
+        public int count;
+    }
+    
+    /**
+     * 送信先毎に、ウィンドウを1つのデータグラムにまとめる。<p>
+     */
+    private class PacketCoalescer{
+        
+        private final InetAddress address;
+        private final int port;
+        private final ByteArrayOutputStream buffer;
+        private final DataOutputStream dos;
+        private DatagramSocket socket;
+        private int windowCount;
+        private boolean isRetry;
+        private volatile long startTime = -1;
+        
+        public PacketCoalescer(InetAddress address, int port){
+            this.address = address;
+            this.port = port;
+            buffer = new ByteArrayOutputStream(Math.max(coalescingMaxSize, windowSize + 2));
+            dos = new DataOutputStream(buffer);
+        }
+        
+        public synchronized void add(DatagramSocket sendSocket, Window window, boolean isRetry) throws IOException{
+            if(windowCount != 0
+                && (socket != sendSocket || buffer.size() + window.length() > coalescingMaxSize)){
+                flush(-1, this.isRetry);
+            }
+            final boolean isFirst = windowCount == 0;
+            if(isFirst){
+                socket = sendSocket;
+                this.isRetry = false;
+                dos.writeShort(0);
+            }
+            window.write(dos);
+            windowCount++;
+            this.isRetry |= isRetry;
+            if(isFirst){
+                startTime = System.currentTimeMillis();
+            }
+            if(buffer.size() >= coalescingMaxSize
+                || System.currentTimeMillis() - startTime >= coalescingLingerTime){
+                flush(-1, this.isRetry);
+            }else if(isFirst){
+                synchronized(packetCoalescers){
+                    packetCoalescers.notifyAll();
+                }
+            }
+        }
+        
+        /**
+         * 溜めているウィンドウを送信する。<p>
+         *
+         * @param currentTime 現在時刻。待ち時間を超えた場合のみ送信する場合に指定し、無条件に送信する場合は-1
+         * @param isRetry 送信に失敗した場合にリトライする場合true
+         */
+        public synchronized void flush(long currentTime, boolean isRetry) throws IOException{
+            if(windowCount == 0
+                || (currentTime >= 0 && currentTime - startTime < coalescingLingerTime)){
+                return;
+            }
+            dos.flush();
+            final byte[] bytes = buffer.toByteArray();
+            bytes[0] = (byte)(windowCount >>> 8);
+            bytes[1] = (byte)windowCount;
+            final int count = windowCount;
+            buffer.reset();
+            windowCount = 0;
+            startTime = -1;
+            sendPacket(socket, new DatagramPacket(bytes, bytes.length, address, port), null, isRetry);
+            synchronized(packetCoalescers){
+                sendBatchCount++;
+                sendBatchWindowCount += count;
+            }
+        }
+    }
+    
+    private class PacketCoalescingFlusher implements DaemonRunnable{
+        
+        public boolean onStart(){return true;}
+        public boolean onStop(){return true;}
+        public boolean onSuspend(){return true;}
+        public boolean onResume(){return true;}
+        public Object provide(DaemonControl ctrl) throws Throwable{
+            synchronized(packetCoalescers){
+                final long waitTime = getCoalescingWaitTime(System.currentTimeMillis());
+                if(waitTime < 0){
+                    packetCoalescers.wait();
+                }else if(waitTime > 0){
+                    packetCoalescers.wait(waitTime);
+                }
+            }
+            return null;
+        }
+        public void consume(Object paramObj, DaemonControl ctrl) throws Throwable{
+            flushPacketCoalescers(true);
+        }
+        public void garbage(){}
+    }
+    
     public class ClientImpl implements DaemonRunnable, Client{
         private DatagramSocket sendSocket;
         private SocketChannel socketChannel;
@@ -1431,6 +1810,7 @@ public class ServerConnectionImpl implements ServerConnection{
             ClientImpl.this.currentSequence++;
             MessageImpl result = copy ? copyMessage(message) : message;
             result.setSequence(ClientImpl.this.currentSequence);
+            result.setPayloadEncoded(false);
             return result;
         }
         
@@ -1834,6 +2214,11 @@ public class ServerConnectionImpl implements ServerConnection{
                     }
                     clientMap.remove(id);
                     newClients.remove(ClientImpl.this);
+                    subscriptionIndex.remove(ClientImpl.this);
+                    if(clientMap.size() == 0){
+                        // 受信するクライアントがいなくなったら、次に接続したクライアントにはスナップショットから送る
+                        clearDeltaSnapshots();
+                    }
                     if(subjects.size() != 0){
                         Object[] entries = subjects.entrySet().toArray();
                         for(int i = 0; i < entries.length; i++){
@@ -1992,11 +2377,13 @@ public class ServerConnectionImpl implements ServerConnection{
                 if(keys == null){
                     if(keySet.add(null)){
                         addKeysList.add(null);
+                        subscriptionIndex.add(addMessage.getSubject(), null, ClientImpl.this);
                     }
                 }else{
                     for(int i = 0; i < keys.length; i++){
                         if(keySet.add(keys[i])){
                             addKeysList.add(keys[i]);
+                            subscriptionIndex.add(addMessage.getSubject(), keys[i], ClientImpl.this);
                         }
                     }
                 }
@@ -2019,6 +2406,7 @@ public class ServerConnectionImpl implements ServerConnection{
                     if(keys == null){
                         if(keySet.remove(null)){
                             removeKeysList.add(null);
+                            subscriptionIndex.remove(removeMessage.getSubject(), null, ClientImpl.this);
                         }
                         if(keySet.size() == 0){
                             subjects.remove(removeMessage.getSubject());
@@ -2027,6 +2415,7 @@ public class ServerConnectionImpl implements ServerConnection{
                         for(int i = 0; i < keys.length; i++){
                             if(keySet.remove(keys[i])){
                                 removeKeysList.add(keys[i]);
+                                subscriptionIndex.remove(removeMessage.getSubject(), keys[i], ClientImpl.this);
                             }
                         }
                         if(keySet.size() == 0){
@@ -2295,7 +2684,7 @@ public class ServerConnectionImpl implements ServerConnection{
             Set firstClients = allocateSequence(message);
             if(multicastAddress == null){
                 final Map sendContexts = new HashMap();
-                final Iterator clientItr = clients.iterator();
+                final Iterator clientItr = getTargetClients(message, firstClients).iterator();
                 while(clientItr.hasNext()){
                     ClientImpl client = (ClientImpl)clientItr.next();
                     if(client == null
@@ -57,6 +57,11 @@ public class Window extends WindowId{
     
     private static final int HEADER_LENGTH = 4 + 2 + 2 + 1 + 4;
     
+    /**
+     * メッセージ種別に付加する、ペイロードが符号化されている事を示すフラグ。<p>
+     */
+    private static final int PAYLOAD_ENCODED_FLAG = 0x40;
+    
     private short windowCount;
     private byte[] data;
     private List windows;
@@ -114,13 +119,13 @@ public class Window extends WindowId{
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         if(sc.externalizer == null){
             ObjectOutputStream oos = new ObjectOutputStream(baos);
-            oos.writeByte(message instanceof MulticastMessageImpl ? 2 : 1);
+            oos.writeByte(getMessageType(message));
             message.writeExternal(oos);
             oos.flush();
         }else{
             message.externalizer = sc.externalizer;
             ObjectOutput oo = sc.externalizer.createObjectOutput(baos);
-            oo.writeByte(message instanceof MulticastMessageImpl ? 2 : 1);
+            oo.writeByte(getMessageType(message));
             message.writeExternal(oo);
             oo.flush();
         }
@@ -146,6 +151,11 @@ public class Window extends WindowId{
         return result;
     }
     
+    private static int getMessageType(MessageImpl message){
+        final int type = message instanceof MulticastMessageImpl ? 2 : 1;
+        return message.isPayloadEncoded() ? (type | PAYLOAD_ENCODED_FLAG) : type;
+    }
+    
     public synchronized boolean addWindow(Window window){
         if(isComplete()){
             return true;
@@ -252,11 +262,15 @@ public class Window extends WindowId{
             ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
             if(cc.externalizer == null){
                 ObjectInputStream ois = new ObjectInputStream(bais);
-                message = cc.createMessage(ois.readByte());
+                final int type = ois.readByte();
+                message = cc.createMessage(type & ~PAYLOAD_ENCODED_FLAG);
+                message.setPayloadEncoded((type & PAYLOAD_ENCODED_FLAG) != 0);
                 message.readExternal(ois);
             }else{
                 ObjectInput oi = cc.externalizer.createObjectInput(bais);
-                message = cc.createMessage(oi.readByte());
+                final int type = oi.readByte();
+                message = cc.createMessage(type & ~PAYLOAD_ENCODED_FLAG);
+                message.setPayloadEncoded((type & PAYLOAD_ENCODED_FLAG) != 0);
                 message.externalizer = cc.externalizer;
                 message.readExternal(oi);
             }
@@ -265,6 +279,10 @@ public class Window extends WindowId{
         return message;
     }
     
+    public int length(){
+        return HEADER_LENGTH + (data == null ? 0 : data.length);
+    }
+    
     public void write(DataOutput out) throws IOException{
         out.writeInt(sequence);
         out.writeShort(windowCount);
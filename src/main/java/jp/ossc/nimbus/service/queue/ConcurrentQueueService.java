@@ -0,0 +1,645 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.queue;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import jp.ossc.nimbus.lang.IllegalServiceStateException;
+import jp.ossc.nimbus.core.*;
+
+/**
+ * 並行Queueサービス。<p>
+ * 固定長の配列によるリングバッファで要素を保持する、複数の投入スレッドと複数の取得スレッドから同時に使用できるキューである。<br>
+ * 投入と取り出しは、ロックを使わずにCASで行うため、{@link DefaultQueueService}のように多数のスレッドから同時にアクセスした場合でも、スループットが低下しにくい。<br>
+ * キューが空、または満杯の場合の待ち方は、{@link #setWaitStrategy(String)}で選択できる。<br>
+ * また、{@link #drainTo(Collection, int, long)}で、複数の要素をまとめて取り出す事ができる。<br>
+ * 以下に、{@link QueueHandlerContainerService}のキューとして使用するサービス定義例を示す。<br>
+ * <pre>
+ * &lt;?xml version="1.0" encoding="Shift_JIS"?&gt;
+ * 
+ * &lt;server&gt;
+ *     
+ *     &lt;manager name="Sample"&gt;
+ *         
+ *         &lt;service name="QueueHandlerContainer"
+ *                  code="jp.ossc.nimbus.service.queue.QueueHandlerContainerService"&gt;
+ *             &lt;attribute name="QueueServiceName"&gt;#Queue&lt;/attribute&gt;
+ *             &lt;attribute name="QueueHandlerServiceName"&gt;#QueueHandler&lt;/attribute&gt;
+ *             &lt;attribute name="QueueHandlerSize"&gt;16&lt;/attribute&gt;
+ *             &lt;depends&gt;
+ *                 &lt;service name="Queue"
+ *                          code="jp.ossc.nimbus.service.queue.ConcurrentQueueService"&gt;
+ *                     &lt;attribute name="Capacity"&gt;8192&lt;/attribute&gt;
+ *                     &lt;attribute name="WaitStrategy"&gt;PARK&lt;/attribute&gt;
+ *                 &lt;/service&gt;
+ *             &lt;/depends&gt;
+ *             &lt;depends&gt;QueueHandler&lt;/depends&gt;
+ *         &lt;/service&gt;
+ *         
+ *     &lt;/manager&gt;
+ *     
+ * &lt;/server&gt;
+ * </pre>
+ *
+ * @author M.Takata
+ */
+public class ConcurrentQueueService extends ServiceBase
+ implements Queue, ConcurrentQueueServiceMBean, java.io.Serializable{
+    
+    private static final long serialVersionUID = -1979513734071963004L;
+    
+    /**
+     * キューが空である事を示す要素。<p>
+     */
+    protected static final Object EMPTY = new Object();
+    
+    /**
+     * nullを投入した事を示す要素。<p>
+     */
+    protected static final Object NULL = new Object();
+    
+    /**
+     * {@link #remove(Object)}で削除された事を示す要素。<p>
+     */
+    protected static final Object REMOVED = new Object();
+    
+    protected int capacity = 65536;
+    protected String waitStrategy = WAIT_STRATEGY_PARK;
+    protected int spinCount = 16;
+    protected long sleepTime = 10000;
+    
+    protected transient AtomicReferenceArray buffer;
+    protected transient AtomicLongArray sequences;
+    protected transient int mask;
+    protected transient AtomicLong enqueuePosition;
+    protected transient AtomicLong dequeuePosition;
+    
+    /**
+     * {@link #remove(Object)}で削除され、まだ読み飛ばされていない要素の数。<p>
+     */
+    protected transient AtomicLong removedCount;
+    
+    protected transient ConcurrentLinkedQueue getWaiters;
+    protected transient ConcurrentLinkedQueue peekWaiters;
+    protected transient ConcurrentLinkedQueue pushWaiters;
+    protected transient AtomicInteger waitCount;
+    
+    /**
+     * 強制終了フラグ。<p>
+     */
+    protected volatile boolean fourceEndFlg = false;
+    
+    protected transient AtomicLong count;
+    protected transient AtomicLong countDelta;
+    protected transient AtomicLong maxDepth;
+    protected volatile long lastPushedTime;
+    protected long lastDepth;
+    
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public void setCapacity(int capacity){
+        this.capacity = capacity;
+    }
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public int getCapacity(){
+        return buffer == null ? capacity : buffer.length();
+    }
+    
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public void setWaitStrategy(String strategy) throws IllegalArgumentException{
+        if(!WAIT_STRATEGY_SPIN.equals(strategy)
+            && !WAIT_STRATEGY_YIELD.equals(strategy)
+            && !WAIT_STRATEGY_PARK.equals(strategy)){
+            throw new IllegalArgumentException("Unknown wait strategy : " + strategy);
+        }
+        waitStrategy = strategy;
+    }
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public String getWaitStrategy(){
+        return waitStrategy;
+    }
+    
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public void setSpinCount(int count){
+        spinCount = count;
+    }
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public int getSpinCount(){
+        return spinCount;
+    }
+    
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public void setSleepTime(long millis){
+        sleepTime = millis;
+    }
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public long getSleepTime(){
+        return sleepTime;
+    }
+    
+    public void createService() throws Exception{
+        getWaiters = new ConcurrentLinkedQueue();
+        peekWaiters = new ConcurrentLinkedQueue();
+        pushWaiters = new ConcurrentLinkedQueue();
+        waitCount = new AtomicInteger();
+        count = new AtomicLong();
+        countDelta = new AtomicLong();
+        maxDepth = new AtomicLong();
+    }
+    
+    public void startService() throws Exception{
+        if(capacity <= 0){
+            throw new IllegalArgumentException("Capacity must be positive : " + capacity);
+        }
+        if(buffer == null){
+            int size = 1;
+            while(size < capacity){
+                size <<= 1;
+            }
+            buffer = new AtomicReferenceArray(size);
+            sequences = new AtomicLongArray(size);
+            for(int i = 0; i < size; i++){
+                sequences.set(i, i);
+            }
+            mask = size - 1;
+            enqueuePosition = new AtomicLong();
+            dequeuePosition = new AtomicLong();
+            removedCount = new AtomicLong();
+        }
+        accept();
+    }
+    
+    public void stopService() throws Exception{
+        release();
+    }
+    
+    public void destroyService() throws Exception{
+        buffer = null;
+        sequences = null;
+        enqueuePosition = null;
+        dequeuePosition = null;
+        removedCount = null;
+    }
+    
+    /**
+     * リングバッファに要素を投入する。<p>
+     *
+     * @param element 投入する要素
+     * @return キューが満杯で投入できなかった場合false
+     */
+    protected boolean offer(Object element){
+        final AtomicReferenceArray buffer = this.buffer;
+        final AtomicLongArray sequences = this.sequences;
+        while(true){
+            final long pos = enqueuePosition.get();
+            final int index = (int)(pos & mask);
+            final long diff = sequences.get(index) - pos;
+            if(diff == 0){
+                if(enqueuePosition.compareAndSet(pos, pos + 1)){
+                    buffer.set(index, element);
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+            }else if(diff < 0){
+                return false;
+            }
+        }
+    }
+    
+    /**
+     * リングバッファから要素を取り出す。<p>
+     * {@link #remove(Object)}で削除済みの要素は読み飛ばす。<br>
+     *
+     * @return 取り出した要素。キューが空の場合は、{@link #EMPTY}
+     */
+    protected Object poll(){
+        final AtomicReferenceArray buffer = this.buffer;
+        final AtomicLongArray sequences = this.sequences;
+        while(true){
+            final long pos = dequeuePosition.get();
+            final int index = (int)(pos & mask);
+            final long diff = sequences.get(index) - (pos + 1);
+            if(diff == 0){
+                if(dequeuePosition.compareAndSet(pos, pos + 1)){
+                    final Object element = buffer.getAndSet(index, null);
+                    sequences.set(index, pos + mask + 1);
+                    if(element == REMOVED){
+                        removedCount.decrementAndGet();
+                        continue;
+                    }
+                    return element;
+                }
+            }else if(diff < 0){
+                return EMPTY;
+            }
+        }
+    }
+    
+    /**
+     * リングバッファの先頭の要素を参照する。<p>
+     *
+     * @return 先頭の要素。キューが空の場合は、{@link #EMPTY}
+     */
+    protected Object peekElement(){
+        final AtomicReferenceArray buffer = this.buffer;
+        final AtomicLongArray sequences = this.sequences;
+        long pos = dequeuePosition.get();
+        while(true){
+            final int index = (int)(pos & mask);
+            if(sequences.get(index) != pos + 1){
+                if(pos < dequeuePosition.get()){
+                    pos = dequeuePosition.get();
+                    continue;
+                }
+                return EMPTY;
+            }
+            final Object element = buffer.get(index);
+            if(element == REMOVED){
+                pos++;
+                continue;
+            }
+            if(element == null || sequences.get(index) != pos + 1){
+                pos = dequeuePosition.get();
+                continue;
+            }
+            return element;
+        }
+    }
+    
+    // QueueのJavaDoc
+    public void push(Object item){
+        push(item, -1l);
+    }
+    
+    // QueueのJavaDoc
+    public boolean push(Object item, long timeout){
+        if(getState() != STARTED || fourceEndFlg){
+            throw new IllegalServiceStateException(this);
+        }
+        final Object element = item == null ? NULL : item;
+        final long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+        int spins = 0;
+        while(!offer(element)){
+            if(timeout == 0 || fourceEndFlg){
+                return false;
+            }
+            final long wait = timeout < 0 ? sleepTime : deadline - System.currentTimeMillis();
+            if(wait <= 0){
+                return false;
+            }
+            if(!await(pushWaiters, spins++, wait, false)){
+                return false;
+            }
+        }
+        final long depth = size();
+        long max = maxDepth.get();
+        while(depth > max && !maxDepth.compareAndSet(max, depth)){
+            max = maxDepth.get();
+        }
+        count.incrementAndGet();
+        countDelta.incrementAndGet();
+        lastPushedTime = System.currentTimeMillis();
+        signal(getWaiters);
+        signalAll(peekWaiters);
+        return true;
+    }
+    
+    // QueueのJavaDoc
+    public Object get(){
+        return get(-1);
+    }
+    
+    // QueueのJavaDoc
+    public Object get(long timeOutMs){
+        return getQueueElement(timeOutMs, true);
+    }
+    
+    // QueueのJavaDoc
+    public Object peek(){
+        return peek(-1);
+    }
+    
+    // QueueのJavaDoc
+    public Object peek(long timeOutMs){
+        return getQueueElement(timeOutMs, false);
+    }
+    
+    protected Object getQueueElement(long timeOutMs, boolean isRemove){
+        final Object element = waitElement(timeOutMs, isRemove);
+        return element == EMPTY || element == NULL ? null : element;
+    }
+    
+    /**
+     * キューから要素が取得できるまで、待機戦略に従って待つ。<p>
+     *
+     * @param timeOutMs タイムアウト[ms]。負の場合は、要素が投入されるか{@link #release()}されるまで待つ
+     * @param isRemove キューから取り出す場合true、参照するだけの場合false
+     * @return 取得した要素。タイムアウトした場合は、{@link #EMPTY}
+     */
+    protected Object waitElement(long timeOutMs, boolean isRemove){
+        if(buffer == null){
+            return EMPTY;
+        }
+        final long deadline = timeOutMs > 0 ? System.currentTimeMillis() + timeOutMs : 0;
+        final ConcurrentLinkedQueue waiters = isRemove ? getWaiters : peekWaiters;
+        if(isRemove){
+            waitCount.incrementAndGet();
+        }
+        try{
+            int spins = 0;
+            while(true){
+                final Object element = isRemove ? poll() : peekElement();
+                if(element != EMPTY){
+                    if(isRemove){
+                        signal(pushWaiters);
+                        if(size() > 0){
+                            signal(getWaiters);
+                        }
+                    }
+                    return element;
+                }
+                if(fourceEndFlg || timeOutMs == 0){
+                    return EMPTY;
+                }
+                final long wait = timeOutMs < 0 ? sleepTime : deadline - System.currentTimeMillis();
+                if(wait <= 0){
+                    return EMPTY;
+                }
+                if(!await(waiters, spins++, wait, true)){
+                    return EMPTY;
+                }
+            }
+        }finally{
+            if(isRemove){
+                waitCount.decrementAndGet();
+            }
+        }
+    }
+    
+    /**
+     * キューから最大指定数の要素をまとめて取り出して、指定されたコレクションに追加する。<p>
+     * キューが空の場合は、要素が投入されるまで最大指定時間待ち、1つでも要素が取り出せた場合は、それ以上待たずに、その時点でキューにある要素を最大指定数まで取り出す。<br>
+     *
+     * @param elements 取り出した要素を追加するコレクション
+     * @param maxSize 取り出す最大要素数
+     * @param timeOutMs キューが空の場合に待つ時間[ms]。-1の場合は、要素が投入されるか{@link #release()}されるまで待つ
+     * @return 取り出した要素数
+     */
+    public int drainTo(Collection elements, int maxSize, long timeOutMs){
+        if(maxSize <= 0 || buffer == null){
+            return 0;
+        }
+        final Object first = waitElement(timeOutMs, true);
+        if(first == EMPTY){
+            return 0;
+        }
+        elements.add(first == NULL ? null : first);
+        return drainTo(elements, maxSize - 1) + 1;
+    }
+    
+    /**
+     * キューから最大指定数の要素を待たずにまとめて取り出して、指定されたコレクションに追加する。<p>
+     *
+     * @param elements 取り出した要素を追加するコレクション
+     * @param maxSize 取り出す最大要素数
+     * @return 取り出した要素数
+     */
+    public int drainTo(Collection elements, int maxSize){
+        if(buffer == null){
+            return 0;
+        }
+        int num = 0;
+        while(num < maxSize){
+            final Object element = poll();
+            if(element == EMPTY){
+                break;
+            }
+            elements.add(element == NULL ? null : element);
+            num++;
+        }
+        if(num != 0){
+            signalAll(pushWaiters);
+        }
+        return num;
+    }
+    
+    /**
+     * 待機戦略に従って待つ。<p>
+     * 待機戦略が{@link #WAIT_STRATEGY_PARK}の場合、待機者として登録してから条件を再確認し、条件が満たされていなければパークする。<br>
+     *
+     * @param waiters 待機者のキュー
+     * @param spins これまでに待った回数
+     * @param wait 最大待ち時間[ms]
+     * @param isGet 取得待ちの場合true、投入待ちの場合false
+     * @return 割り込まれた場合false
+     */
+    protected boolean await(
+        ConcurrentLinkedQueue waiters,
+        int spins,
+        long wait,
+        boolean isGet
+    ){
+        if(WAIT_STRATEGY_SPIN.equals(waitStrategy)){
+            return true;
+        }else if(WAIT_STRATEGY_YIELD.equals(waitStrategy)
+            || spins < spinCount){
+            Thread.yield();
+            return true;
+        }
+        final Thread current = Thread.currentThread();
+        waiters.offer(current);
+        try{
+            final boolean isReady = isGet ? size() > 0 : occupiedSize() < buffer.length();
+            if(!isReady && !fourceEndFlg){
+                LockSupport.parkNanos(this, wait * 1000000l);
+            }
+        }finally{
+            waiters.remove(current);
+        }
+        return !Thread.interrupted();
+    }
+    
+    private void signal(ConcurrentLinkedQueue waiters){
+        final Thread waiter = (Thread)waiters.poll();
+        if(waiter != null){
+            LockSupport.unpark(waiter);
+        }
+    }
+    
+    private void signalAll(ConcurrentLinkedQueue waiters){
+        Thread waiter = null;
+        while((waiter = (Thread)waiters.poll()) != null){
+            LockSupport.unpark(waiter);
+        }
+    }
+    
+    // QueueのJavaDoc
+    public Object remove(Object item){
+        if(buffer == null){
+            return null;
+        }
+        final Object target = item == null ? NULL : item;
+        final long end = enqueuePosition.get();
+        for(long pos = dequeuePosition.get(); pos < end; pos++){
+            final int index = (int)(pos & mask);
+            final Object element = buffer.get(index);
+            if(element == null || element == REMOVED){
+                continue;
+            }
+            if(target.equals(element)
+                 && sequences.get(index) == pos + 1
+                 && buffer.compareAndSet(index, element, REMOVED)){
+                removedCount.incrementAndGet();
+                signal(pushWaiters);
+                return item;
+            }
+        }
+        return null;
+    }
+    
+    // QueueのJavaDoc
+    public void clear(){
+        if(buffer == null){
+            return;
+        }
+        while(poll() != EMPTY){
+        }
+        signalAll(pushWaiters);
+    }
+    
+    // QueueのJavaDoc
+    public int size(){
+        if(buffer == null){
+            return 0;
+        }
+        // 削除済みで読み飛ばされるのを待っている要素は含めない
+        final long size = occupiedSize() - removedCount.get();
+        if(size < 0){
+            return 0;
+        }
+        return size > buffer.length() ? buffer.length() : (int)size;
+    }
+    
+    /**
+     * リングバッファ上で使用されている要素の数を取得する。<p>
+     * {@link #remove(Object)}で削除済みで、まだ読み飛ばされていない要素も含む。<br>
+     *
+     * @return リングバッファ上で使用されている要素の数
+     */
+    protected long occupiedSize(){
+        final long size = enqueuePosition.get() - dequeuePosition.get();
+        if(size < 0){
+            return 0;
+        }
+        return size > buffer.length() ? buffer.length() : size;
+    }
+    
+    // QueueのJavaDoc
+    public void accept(){
+        fourceEndFlg = false;
+    }
+    
+    // QueueのJavaDoc
+    public void release(){
+        fourceEndFlg = true;
+        signalAll(getWaiters);
+        signalAll(peekWaiters);
+        signalAll(pushWaiters);
+    }
+    
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public int getWaitCount(){
+        return waitCount == null ? 0 : waitCount.get();
+    }
+    
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public List elements(){
+        final List result = new ArrayList();
+        if(buffer == null){
+            return result;
+        }
+        final long end = enqueuePosition.get();
+        for(long pos = dequeuePosition.get(); pos < end; pos++){
+            final int index = (int)(pos & mask);
+            final Object element = buffer.get(index);
+            if(element == null || element == REMOVED){
+                continue;
+            }
+            result.add(element == NULL ? null : element);
+        }
+        return result;
+    }
+    
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public long getCount(){
+        return count == null ? 0 : count.get();
+    }
+    
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public long getCountDelta(){
+        return countDelta == null ? 0 : countDelta.getAndSet(0);
+    }
+    
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public long getLastPushedTimeMillis(){
+        return lastPushedTime;
+    }
+    
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public Date getLastPushedTime(){
+        return new Date(lastPushedTime);
+    }
+    
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public long getDepth(){
+        return size();
+    }
+    
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public long getDepthDelta(){
+        long depth = size();
+        
+        long delta = depth - lastDepth;
+        lastDepth = depth;
+        return delta;
+    }
+    
+    // ConcurrentQueueServiceMBeanのJavaDoc
+    public long getMaxDepth(){
+        return maxDepth == null ? 0 : maxDepth.get();
+    }
+}
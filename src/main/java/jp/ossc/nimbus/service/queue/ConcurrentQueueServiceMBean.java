@@ -0,0 +1,197 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.queue;
+
+import java.util.*;
+
+import jp.ossc.nimbus.core.*;
+
+/**
+ * {@link ConcurrentQueueService}のMBeanインタフェース<p>
+ * 
+ * @author M.Takata
+ * @see ConcurrentQueueService
+ */
+public interface ConcurrentQueueServiceMBean extends ServiceBaseMBean{
+    
+    /**
+     * 待機戦略：ビジースピン。<p>
+     * キューが空、または満杯の場合に、CPUを占有したままループして待つ。最も低遅延だが、待機中もCPUを消費する。<br>
+     */
+    public static final String WAIT_STRATEGY_SPIN = "SPIN";
+    
+    /**
+     * 待機戦略：イールド。<p>
+     * キューが空、または満杯の場合に、{@link Thread#yield()}しながらループして待つ。<br>
+     */
+    public static final String WAIT_STRATEGY_YIELD = "YIELD";
+    
+    /**
+     * 待機戦略：パーク。<p>
+     * キューが空、または満杯の場合に、一定回数イールドした後、スレッドをパークして待つ。待っているスレッドは、キューへの投入または取り出し時に起こされる。<br>
+     */
+    public static final String WAIT_STRATEGY_PARK = "PARK";
+    
+    /**
+     * キューの容量を設定する。<p>
+     * 指定値以上の2のべき乗に切り上げた値が、実際の容量となる。キューが満杯の場合、キューへの投入は待たされる。<br>
+     * サービスの開始時に使用される属性なので、開始後の変更はできない。<br>
+     * デフォルトは、65536。<br>
+     *
+     * @param capacity キューの容量
+     */
+    public void setCapacity(int capacity);
+    
+    /**
+     * キューの容量を取得する。<p>
+     *
+     * @return キューの容量
+     */
+    public int getCapacity();
+    
+    /**
+     * キューが空、または満杯の場合の待機戦略を設定する。<p>
+     * {@link #WAIT_STRATEGY_SPIN}、{@link #WAIT_STRATEGY_YIELD}、{@link #WAIT_STRATEGY_PARK}のいずれかを指定する。<br>
+     * デフォルトは、{@link #WAIT_STRATEGY_PARK}。<br>
+     *
+     * @param strategy 待機戦略
+     * @exception IllegalArgumentException 不正な待機戦略が指定された場合
+     */
+    public void setWaitStrategy(String strategy) throws IllegalArgumentException;
+    
+    /**
+     * キューが空、または満杯の場合の待機戦略を取得する。<p>
+     *
+     * @return 待機戦略
+     */
+    public String getWaitStrategy();
+    
+    /**
+     * 待機戦略が{@link #WAIT_STRATEGY_PARK}の場合に、パークする前にイールドする回数を設定する。<p>
+     * デフォルトは、16。<br>
+     *
+     * @param count イールド回数
+     */
+    public void setSpinCount(int count);
+    
+    /**
+     * 待機戦略が{@link #WAIT_STRATEGY_PARK}の場合に、パークする前にイールドする回数を取得する。<p>
+     *
+     * @return イールド回数
+     */
+    public int getSpinCount();
+    
+    /**
+     * キューに対して無限取得待ちをするスレッドが1回にパークする最大時間を設定する。<p>
+     * 起こされなかった場合でも、この時間が経過するとキューを再確認する。<br>
+     * デフォルトは、10秒。<br>
+     *
+     * @param millis 最大パーク時間[ms]
+     */
+    public void setSleepTime(long millis);
+    
+    /**
+     * キューに対して無限取得待ちをするスレッドが1回にパークする最大時間を取得する。<p>
+     *
+     * @return 最大パーク時間[ms]
+     */
+    public long getSleepTime();
+    
+    /**
+     * キューの現在の要素リストを取得する。<p>
+     * ここで取得されたキュー要素は、この操作ではキューから削除されない。また、取得中に並行して投入、取り出しされた要素の反映は保証しない。<br>
+     *
+     * @return キューの現在の要素リスト
+     */
+    public List elements();
+    
+    /**
+     * キューを初期化する。 <p>
+     */
+    public void clear();
+    
+    /**
+     * キュー取得待ち数を取得する。<p>
+     *
+     * @return キュー取得待ち数
+     */
+    public int getWaitCount();
+    
+    /**
+     * これまでにキューに格納された数を取得する。<p>
+     *
+     * @return これまでにキューに格納された数
+     */
+    public long getCount();
+    
+    /**
+     * 前回問い合わせからキューに格納された数を取得する。<p>
+     *
+     * @return 前回問い合わせからキューに格納された数
+     */
+    public long getCountDelta();
+    
+    /**
+     * 最後にキューに格納された時刻を取得する。<p>
+     *
+     * @return 最後にキューに格納された時刻
+     */
+    public long getLastPushedTimeMillis();
+    
+    /**
+     * 最後にキューに格納された時刻を取得する。<p>
+     *
+     * @return 最後にキューに格納された時刻
+     */
+    public Date getLastPushedTime();
+    
+    /**
+     * 現在のキューの深さを取得する。<p>
+     *
+     * @return 現在のキューの深さ
+     */
+    public long getDepth();
+    
+    /**
+     * 前回問い合わせからのキューの深さを取得する。<p>
+     *
+     * @return 前回問い合わせからのキューの深さ
+     */
+    public long getDepthDelta();
+    
+    /**
+     * 最大到達時のキューの深さを取得する。<p>
+     *
+     * @return 最大到達時のキューの深さ
+     */
+    public long getMaxDepth();
+}
@@ -31,6 +31,8 @@
  */
 package jp.ossc.nimbus.service.queue;
 
+import java.util.concurrent.Semaphore;
+
 import jp.ossc.nimbus.core.*;
 import jp.ossc.nimbus.daemon.*;
 
@@ -62,6 +64,9 @@ public class DistributedQueueHandlerContainerService extends ServiceBase
     protected boolean isReleaseQueue = true;
     protected boolean isSuspend;
     protected boolean isIgnoreNullElement;
+    protected boolean isVirtualThreadMode;
+    protected int maxActiveQueueHandlerSize = -1;
+    protected Semaphore activeSemaphore;
 
     // DistributedQueueHandlerContainerServiceのJavaDoc
     public void setDistributedQueueSelectorServiceName(ServiceName name){
@@ -153,6 +158,29 @@ public class DistributedQueueHandlerContainerService extends ServiceBase
         return isIgnoreNullElement;
     }
 
+    // DistributedQueueHandlerContainerServiceのJavaDoc
+    public void setVirtualThreadMode(boolean isVirtual){
+        isVirtualThreadMode = isVirtual;
+    }
+    // DistributedQueueHandlerContainerServiceのJavaDoc
+    public boolean isVirtualThreadMode(){
+        return isVirtualThreadMode;
+    }
+
+    // DistributedQueueHandlerContainerServiceのJavaDoc
+    public boolean isVirtualThreadSupported(){
+        return VirtualThreadFactory.isSupported();
+    }
+
+    // DistributedQueueHandlerContainerServiceのJavaDoc
+    public void setMaxActiveQueueHandlerSize(int size){
+        maxActiveQueueHandlerSize = size;
+    }
+    // DistributedQueueHandlerContainerServiceのJavaDoc
+    public int getMaxActiveQueueHandlerSize(){
+        return maxActiveQueueHandlerSize;
+    }
+
     // DistributedQueueHandlerContainerServiceのJavaDoc
     public int getQueueHandlerSize(){
         return invokers == null ? 0 : invokers.length;
@@ -267,6 +295,12 @@ public class DistributedQueueHandlerContainerService extends ServiceBase
 
         final Queue[] queues = distributedQueueSelector.getQueues();
         if(!(queues[0] instanceof QueueHandlerContainer)){
+            if(maxActiveQueueHandlerSize > 0){
+                activeSemaphore = new Semaphore(maxActiveQueueHandlerSize);
+            }
+            // 仮想スレッドモードでは、分散キュー毎の受信デーモンを仮想スレッドで動かす
+            final VirtualThreadFactory threadFactory = isVirtualThreadMode
+                ? new VirtualThreadFactory(null) : null;
             invokers = new QueueReceiver[queues.length];
             daemons = new Daemon[invokers.length];
             for(int i = 0; i < invokers.length; i++){
@@ -274,6 +308,7 @@ public class DistributedQueueHandlerContainerService extends ServiceBase
                 invokers[i].handler = getQueueHandler();
 
                 daemons[i] = new Daemon(invokers[i]);
+                daemons[i].setThreadFactory(threadFactory);
                 daemons[i].setDaemon(isDaemonQueueHandler);
                 daemons[i].setName(getServiceNameObject() + " QueueReceiver" + (i + 1));
                 if(queueHandlerThreadPriority > 0){
@@ -310,6 +345,7 @@ public class DistributedQueueHandlerContainerService extends ServiceBase
         distributedQueueSelector = null;
         daemons = null;
         invokers = null;
+        activeSemaphore = null;
     }
 
     public synchronized void resume(){
@@ -472,6 +508,35 @@ public class DistributedQueueHandlerContainerService extends ServiceBase
             if(dequeued == null && isIgnoreNullElement){
                 return;
             }
+            final Semaphore semaphore = activeSemaphore;
+            boolean isInterrupted = false;
+            if(semaphore != null){
+                try{
+                    semaphore.acquire();
+                }catch(InterruptedException e){
+                    isInterrupted = true;
+                    semaphore.acquireUninterruptibly();
+                }
+            }
+            try{
+                consumeWithRetry(dequeued, ctrl);
+            }finally{
+                if(semaphore != null){
+                    semaphore.release();
+                }
+                if(isInterrupted){
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * 引数dequeuedで渡されたオブジェクトを引数にQueueHandlerを呼び出し、例外が発生した場合はリトライする。<p>
+         *
+         * @param dequeued キューから取り出されたオブジェクト
+         * @param ctrl DaemonControlオブジェクト
+         */
+        protected void consumeWithRetry(Object dequeued, DaemonControl ctrl){
             boolean isRetry = false;
             int retryCount = 0;
             receiveCount++;
@@ -531,6 +596,7 @@ public class DistributedQueueHandlerContainerService extends ServiceBase
                         Thread.sleep(retryInterval);
                     }catch(InterruptedException e){
                         isRetry = false;
+                        Thread.currentThread().interrupt();
                     }
                 }
                 retryCount++;
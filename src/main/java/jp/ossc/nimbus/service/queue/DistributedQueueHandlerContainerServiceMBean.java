@@ -217,6 +217,46 @@ public interface DistributedQueueHandlerContainerServiceMBean extends ServiceBas
      */
     public boolean isIgnoreNullElement();
     
+    /**
+     * 仮想スレッドモードにするかどうかを設定する。<p>
+     * trueを設定すると、分散キュー毎にキューを待ち受ける{@link QueueHandler}スレッドを仮想スレッドで生成する。分散キュー毎の処理順序は保証されたまま、分散キューの数を増やしてもスレッドスタックのメモリを消費しない。<br>
+     * 仮想スレッドをサポートしていないJava(Java21未満)で実行した場合は、仮想スレッドの代わりにデーモンスレッドを使用する。<br>
+     * デフォルトは、falseで、通常のスレッドを使用する。<br>
+     *
+     * @param isVirtual 仮想スレッドモードにする場合true
+     */
+    public void setVirtualThreadMode(boolean isVirtual);
+    
+    /**
+     * 仮想スレッドモードかどうかを判定する。<p>
+     *
+     * @return trueの場合、仮想スレッドモード
+     */
+    public boolean isVirtualThreadMode();
+    
+    /**
+     * 実行環境のJavaが仮想スレッドをサポートしているかどうかを判定する。<p>
+     *
+     * @return サポートしている場合true
+     */
+    public boolean isVirtualThreadSupported();
+    
+    /**
+     * 同時に{@link QueueHandler}を実行する数の上限を設定する。<p>
+     * 分散キューの数が多い場合に、QueueHandlerが使用するリソースへの同時アクセス数を制限するために使用する。<br>
+     * デフォルトは、-1で、上限なし(分散キューの数)。<br>
+     *
+     * @param size 同時実行数の上限
+     */
+    public void setMaxActiveQueueHandlerSize(int size);
+    
+    /**
+     * 同時に{@link QueueHandler}を実行する数の上限を取得する。<p>
+     *
+     * @return 同時実行数の上限
+     */
+    public int getMaxActiveQueueHandlerSize();
+    
     /**
      * キューを初期化する。<p>
      */
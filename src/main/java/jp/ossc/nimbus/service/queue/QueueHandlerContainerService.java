@@ -31,6 +31,12 @@
  */
 package jp.ossc.nimbus.service.queue;
 
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
 import jp.ossc.nimbus.core.*;
 import jp.ossc.nimbus.daemon.*;
 import jp.ossc.nimbus.util.SynchronizeMonitor;
@@ -69,6 +75,14 @@ public class QueueHandlerContainerService extends ServiceBase
     protected SynchronizeMonitor suspendMonitor = new WaitSynchronizeMonitor();
     protected boolean isIgnoreNullElement;
     protected long stopWaitTimeout = -1;
+    protected int batchSize = 1;
+    protected long batchLingerTime = 0;
+    protected AtomicLong batchCount = new AtomicLong();
+    protected AtomicLong batchElementCount = new AtomicLong();
+    protected AtomicLongArray batchSizeDistribution = new AtomicLongArray(32);
+    protected boolean isVirtualThreadMode;
+    protected VirtualThreadFactory virtualThreadFactory;
+    protected Semaphore virtualThreadSemaphore;
     
     // QueueHandlerContainerServiceMBeanのJavaDoc
     public void setQueueServiceName(ServiceName name){
@@ -178,11 +192,28 @@ public class QueueHandlerContainerService extends ServiceBase
         return isIgnoreNullElement;
     }
     
+    // QueueHandlerContainerServiceMBeanのJavaDoc
+    public void setVirtualThreadMode(boolean isVirtual){
+        isVirtualThreadMode = isVirtual;
+    }
+    // QueueHandlerContainerServiceMBeanのJavaDoc
+    public boolean isVirtualThreadMode(){
+        return isVirtualThreadMode;
+    }
+    
+    // QueueHandlerContainerServiceMBeanのJavaDoc
+    public boolean isVirtualThreadSupported(){
+        return VirtualThreadFactory.isSupported();
+    }
+    
     // QueueHandlerContainerのJavaDoc
     public int getActiveQueueHandlerSize(){
         if(invokers == null){
             return 0;
         }
+        if(virtualThreadSemaphore != null){
+            return queueHandlerSize - virtualThreadSemaphore.availablePermits();
+        }
         int count = 0;
         for(int i = 0; i < invokers.length; i++){
             if(invokers[i].isActive){
@@ -197,6 +228,9 @@ public class QueueHandlerContainerService extends ServiceBase
         if(invokers == null){
             return 0;
         }
+        if(virtualThreadSemaphore != null){
+            return virtualThreadSemaphore.availablePermits();
+        }
         int count = 0;
         for(int i = 0; i < invokers.length; i++){
             if(!invokers[i].isActive){
@@ -245,6 +279,70 @@ public class QueueHandlerContainerService extends ServiceBase
         return stopWaitTimeout;
     }
     
+    // QueueHandlerContainerServiceMBeanのJavaDoc
+    public void setBatchSize(int size){
+        batchSize = size;
+    }
+    
+    // QueueHandlerContainerServiceMBeanのJavaDoc
+    public int getBatchSize(){
+        return batchSize;
+    }
+    
+    // QueueHandlerContainerServiceMBeanのJavaDoc
+    public void setBatchLingerTime(long time){
+        batchLingerTime = time;
+    }
+    
+    // QueueHandlerContainerServiceMBeanのJavaDoc
+    public long getBatchLingerTime(){
+        return batchLingerTime;
+    }
+    
+    // QueueHandlerContainerServiceMBeanのJavaDoc
+    public long getBatchCount(){
+        return batchCount.get();
+    }
+    
+    // QueueHandlerContainerServiceMBeanのJavaDoc
+    public double getAverageBatchSize(){
+        final long batches = batchCount.get();
+        return batches == 0 ? 0d : ((double)batchElementCount.get() / (double)batches);
+    }
+    
+    // QueueHandlerContainerServiceMBeanのJavaDoc
+    public Map getBatchSizeDistribution(){
+        final Map result = new LinkedHashMap();
+        for(int i = 0, imax = batchSizeDistribution.length(); i < imax; i++){
+            final long num = batchSizeDistribution.get(i);
+            if(num == 0){
+                continue;
+            }
+            final long from = 1l << i;
+            final long to = (1l << (i + 1)) - 1;
+            result.put(from == to ? Long.toString(from) : (from + "-" + to), new Long(num));
+        }
+        return result;
+    }
+    
+    // QueueHandlerContainerServiceMBeanのJavaDoc
+    public void resetBatchStatistics(){
+        batchCount.set(0);
+        batchElementCount.set(0);
+        for(int i = 0, imax = batchSizeDistribution.length(); i < imax; i++){
+            batchSizeDistribution.set(i, 0);
+        }
+    }
+    
+    /**
+     * バッチモードかどうかを判定する。<p>
+     *
+     * @return バッチサイズが2以上の場合true
+     */
+    protected boolean isBatchMode(){
+        return batchSize > 1;
+    }
+    
     // QueueHandlerContainerServiceMBeanのJavaDoc
     public double getAverageHandleProcessTime(){
         if(invokers == null){
@@ -289,6 +387,28 @@ public class QueueHandlerContainerService extends ServiceBase
             if(queueHandlerSize < 0){
                 throw new IllegalArgumentException("queueHandlerSize < 0.");
             }
+            if(isVirtualThreadMode){
+                // 仮想スレッドモードでは、QueueHandlerSizeを同時実行数の上限とし、
+                // 1つのデーモンがキューから取り出した要素を仮想スレッドに振り分ける
+                virtualThreadFactory = new VirtualThreadFactory(
+                    getServiceNameObject() + " QueueHandler"
+                );
+                virtualThreadSemaphore = new Semaphore(queueHandlerSize);
+                invokers = new QueueReceiver[]{new VirtualThreadDispatcher()};
+                invokers[0].handler = getQueueHandler();
+                daemons = new Daemon[1];
+                daemons[0] = new Daemon(invokers[0]);
+                daemons[0].setDaemon(isDaemonQueueHandler);
+                daemons[0].setName(getServiceNameObject() + " QueueDispatcher");
+                if(queueHandlerThreadPriority > 0){
+                    daemons[0].setPriority(queueHandlerThreadPriority);
+                }
+                if(invokers[0].handler == null){
+                    daemons[0].suspend();
+                }
+                daemons[0].start();
+                return;
+            }
             invokers = new QueueReceiver[queueHandlerSize];
             daemons = new Daemon[queueHandlerSize];
             for(int i = 0; i < queueHandlerSize; i++){
@@ -316,9 +436,9 @@ public class QueueHandlerContainerService extends ServiceBase
      */
     public void stopService() throws Exception{
         
+        final long startTime = System.currentTimeMillis();
         if(daemons != null){
             // デーモン停止
-            final long startTime = System.currentTimeMillis();
             for(int i = 0; i < daemons.length; i++){
                 if(isQueueHandlerNowaitOnStop){
                     daemons[i].stopNoWait();
@@ -337,6 +457,29 @@ public class QueueHandlerContainerService extends ServiceBase
             }
         }
         
+        // 仮想スレッドで処理中の要素の完了を待つ
+        if(virtualThreadSemaphore != null && !isQueueHandlerNowaitOnStop){
+            try{
+                if(stopWaitTimeout < 0){
+                    virtualThreadSemaphore.acquire(queueHandlerSize);
+                }else{
+                    // デーモンの停止待ちで経過した時間を差し引いた残り時間だけ待つ
+                    final long currentStopWaitTime = stopWaitTimeout - (System.currentTimeMillis() - startTime);
+                    if(currentStopWaitTime > 0){
+                        virtualThreadSemaphore.tryAcquire(
+                            queueHandlerSize,
+                            currentStopWaitTime,
+                            TimeUnit.MILLISECONDS
+                        );
+                    }
+                }
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        }
+        virtualThreadSemaphore = null;
+        virtualThreadFactory = null;
+        
         // キュー受付停止
         if(getQueueService() != null && isReleaseQueue){
             getQueueService().release();
@@ -563,6 +706,45 @@ public class QueueHandlerContainerService extends ServiceBase
         if(handler == null){
             return;
         }
+        handleWithRetry(handler, dequeued, false, receiver, ctrl);
+    }
+    
+    /**
+     * キューから取り出したオブジェクトのリストをまとめて処理する。<p>
+     * QueueHandlerが{@link BatchQueueHandler}の場合は、リスト単位でリトライを行う。そうでない場合は、1件ずつ{@link #handleDequeuedObject(QueueHandler, Object, QueueReceiver, DaemonControl)}で処理する。<br>
+     *
+     * @param handler QueueHandler
+     * @param dequeued キューから取り出したオブジェクトのリスト
+     * @param receiver キュー受信者
+     * @param ctrl DaemonControlオブジェクト
+     */
+    protected void handleDequeuedObjects(QueueHandler handler, List dequeued, QueueReceiver receiver, DaemonControl ctrl){
+        if(handler == null || dequeued.size() == 0){
+            return;
+        }
+        final int size = dequeued.size();
+        batchCount.incrementAndGet();
+        batchElementCount.addAndGet(size);
+        batchSizeDistribution.incrementAndGet(31 - Integer.numberOfLeadingZeros(size));
+        if(!(handler instanceof BatchQueueHandler)){
+            for(int i = 0; i < size; i++){
+                handleDequeuedObject(handler, dequeued.get(i), receiver, ctrl);
+            }
+            return;
+        }
+        handleWithRetry(handler, dequeued, true, receiver, ctrl);
+    }
+    
+    /**
+     * QueueHandlerを呼び出し、例外が発生した場合は、最大リトライ回数までリトライする。<p>
+     *
+     * @param handler QueueHandler
+     * @param dequeued キューから取り出したオブジェクト、またはオブジェクトのリスト
+     * @param isBatch {@link BatchQueueHandler}でオブジェクトのリストをまとめて処理する場合true
+     * @param receiver キュー受信者
+     * @param ctrl DaemonControlオブジェクト
+     */
+    private void handleWithRetry(QueueHandler handler, Object dequeued, boolean isBatch, QueueReceiver receiver, DaemonControl ctrl){
         boolean isRetry = false;
         int retryCount = 0;
         do{
@@ -571,25 +753,25 @@ public class QueueHandlerContainerService extends ServiceBase
                     receiver.isActive = true;
                 }
                 try{
-                    handler.handleDequeuedObject(dequeued);
+                    if(isBatch){
+                        ((BatchQueueHandler)handler).handleDequeuedObjects((List)dequeued);
+                    }else{
+                        handler.handleDequeuedObject(dequeued);
+                    }
                     isRetry = false;
                 }catch(Throwable th){
                     if(maxRetryCount > 0){
                         if(retryCount >= maxRetryCount){
                             isRetry = false;
-                            try{
-                                handler.handleRetryOver(dequeued, th);
-                            }catch(Throwable th2){
-                                getLogger().write(
-                                    retryOverErrorMessageId,
-                                    dequeued,
-                                    th
-                                );
-                            }
+                            handleRetryOver(handler, dequeued, isBatch, th);
                         }else{
                             isRetry = true;
                             try{
-                                isRetry = handler.handleError(dequeued, th);
+                                if(isBatch){
+                                    isRetry = ((BatchQueueHandler)handler).handleError((List)dequeued, th);
+                                }else{
+                                    isRetry = handler.handleError(dequeued, th);
+                                }
                             }catch(Throwable th2){
                                 isRetry = false;
                                 getLogger().write(
@@ -601,15 +783,7 @@ public class QueueHandlerContainerService extends ServiceBase
                         }
                     }else{
                         isRetry = false;
-                        try{
-                            handler.handleRetryOver(dequeued, th);
-                        }catch(Throwable th2){
-                            getLogger().write(
-                                retryOverErrorMessageId,
-                                dequeued,
-                                th
-                            );
-                        }
+                        handleRetryOver(handler, dequeued, isBatch, th);
                     }
                 }
             }finally{
@@ -625,12 +799,29 @@ public class QueueHandlerContainerService extends ServiceBase
                     Thread.sleep(retryInterval);
                 }catch(InterruptedException e){
                     isRetry = false;
+                    Thread.currentThread().interrupt();
                 }
             }
             retryCount++;
         }while(isRetry);
     }
     
+    private void handleRetryOver(QueueHandler handler, Object dequeued, boolean isBatch, Throwable th){
+        try{
+            if(isBatch){
+                ((BatchQueueHandler)handler).handleRetryOver((List)dequeued, th);
+            }else{
+                handler.handleRetryOver(dequeued, th);
+            }
+        }catch(Throwable th2){
+            getLogger().write(
+                retryOverErrorMessageId,
+                dequeued,
+                th
+            );
+        }
+    }
+    
     protected class QueueReceiver implements DaemonRunnable{
         
         protected QueueHandler handler;
@@ -700,7 +891,45 @@ public class QueueHandlerContainerService extends ServiceBase
                     return null;
                 }
             }
-            return getQueueService().get(waitTimeout);
+            final Object first = getQueueService().get(waitTimeout);
+            if(!isBatchMode() || first == null){
+                // 先頭がnullの場合は、バッチを組まずに1件として扱い、isIgnoreNullElementに従って処理する
+                return first;
+            }
+            final List batch = new ArrayList(batchSize);
+            batch.add(first);
+            collectBatch(batch, ctrl);
+            return batch;
+        }
+        
+        /**
+         * バッチサイズに達するか、最大滞留時間が経過するまで、キューから取り出したオブジェクトを指定されたリストに追加する。<p>
+         * キューが{@link ConcurrentQueueService}の場合は、{@link ConcurrentQueueService#drainTo(Collection, int, long)}でまとめて取り出す。<br>
+         *
+         * @param batch キューから取り出したオブジェクトを追加するリスト
+         * @param ctrl DaemonControlオブジェクト
+         */
+        protected void collectBatch(List batch, DaemonControl ctrl){
+            final Queue queue = getQueueService();
+            final long start = batchLingerTime > 0 ? System.currentTimeMillis() : 0;
+            while(batch.size() < batchSize && (ctrl == null || ctrl.isRunning())){
+                final long remain = batchLingerTime > 0
+                    ? batchLingerTime - (System.currentTimeMillis() - start) : 0;
+                if(queue instanceof ConcurrentQueueService){
+                    if(((ConcurrentQueueService)queue).drainTo(batch, batchSize - batch.size(), remain > 0 ? remain : 0) == 0){
+                        break;
+                    }
+                }else{
+                    if(remain <= 0 && queue.size() == 0){
+                        break;
+                    }
+                    final Object dequeued = queue.get(remain > 0 ? remain : 0);
+                    if(dequeued == null){
+                        break;
+                    }
+                    batch.add(dequeued);
+                }
+            }
         }
         
         /**
@@ -710,6 +939,23 @@ public class QueueHandlerContainerService extends ServiceBase
          * @param ctrl DaemonControlオブジェクト
          */
         public void consume(Object dequeued, DaemonControl ctrl){
+            if(isBatchMode() && dequeued instanceof List){
+                final List batch = (List)dequeued;
+                if(isIgnoreNullElement){
+                    batch.removeAll(Collections.singleton(null));
+                }
+                if(batch.size() == 0){
+                    return;
+                }
+                receiveCount += batch.size();
+                long start = System.currentTimeMillis();
+                try{
+                    handleDequeuedObjects(handler, batch, this, ctrl);
+                }finally{
+                    receiveProcessTime += (System.currentTimeMillis() - start);
+                }
+                return;
+            }
             if(dequeued == null && isIgnoreNullElement){
                 return;
             }
@@ -728,8 +974,117 @@ public class QueueHandlerContainerService extends ServiceBase
         public void garbage(){
             if(getQueueService() != null && isGarbageQueueOnStop){
                 while(getQueueService().size() > 0){
-                    consume(getQueueService().get(0), null);
+                    if(isBatchMode()){
+                        final List batch = new ArrayList(batchSize);
+                        while(batch.size() < batchSize && getQueueService().size() > 0){
+                            batch.add(getQueueService().get(0));
+                        }
+                        consume(batch, null);
+                    }else{
+                        consume(getQueueService().get(0), null);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * キューから取り出した要素を仮想スレッドに振り分けて処理させるキュー受信者。<p>
+     * 同時に処理する要素の数は、{@link #setQueueHandlerSize(int)}で設定した数に制限する。<br>
+     *
+     * @author M.Takata
+     */
+    protected class VirtualThreadDispatcher extends QueueReceiver{
+        
+        protected final AtomicLong dispatchedCount = new AtomicLong();
+        protected final AtomicLong dispatchedProcessTime = new AtomicLong();
+        
+        public long getReceiveCount(){
+            return dispatchedCount.get();
+        }
+        
+        public double getAverageReceiveProcessTime(){
+            final long receiveCount = dispatchedCount.get();
+            return receiveCount == 0 ? 0d : ((double)dispatchedProcessTime.get() / (double)receiveCount);
+        }
+        
+        /**
+         * 引数dequeuedで渡されたオブジェクトを、仮想スレッドでQueueHandlerに渡す。<p>
+         * 同時実行数の上限に達している場合は、空きができるまで待つ。待っている間に割り込まれた場合は、このスレッドで処理する。<br>
+         *
+         * @param dequeued キューから取り出されたオブジェクト
+         * @param ctrl DaemonControlオブジェクト
+         */
+        public void consume(final Object dequeued, DaemonControl ctrl){
+            if(isBatchMode() && dequeued instanceof List){
+                final List batch = (List)dequeued;
+                if(isIgnoreNullElement){
+                    batch.removeAll(Collections.singleton(null));
+                }
+                if(batch.size() == 0){
+                    return;
+                }
+            }else if(dequeued == null && isIgnoreNullElement){
+                return;
+            }
+            final Semaphore semaphore = virtualThreadSemaphore;
+            final VirtualThreadFactory factory = virtualThreadFactory;
+            boolean isAcquired = false;
+            boolean isInterrupted = false;
+            if(semaphore != null && factory != null){
+                try{
+                    semaphore.acquire();
+                    isAcquired = true;
+                }catch(InterruptedException e){
+                    isInterrupted = true;
+                }
+            }
+            if(!isAcquired){
+                try{
+                    handle(dequeued);
+                }finally{
+                    if(isInterrupted){
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return;
+            }
+            try{
+                factory.newThread(
+                    new Runnable(){
+                        public void run(){
+                            try{
+                                handle(dequeued);
+                            }finally{
+                                semaphore.release();
+                            }
+                        }
+                    }
+                ).start();
+            }catch(RuntimeException e){
+                semaphore.release();
+                throw e;
+            }
+        }
+        
+        /**
+         * 引数dequeuedで渡されたオブジェクトを引数にQueueHandlerを呼び出す。<p>
+         *
+         * @param dequeued キューから取り出されたオブジェクト
+         */
+        protected void handle(Object dequeued){
+            final long start = System.currentTimeMillis();
+            int size = 1;
+            try{
+                if(isBatchMode() && dequeued instanceof List){
+                    size = ((List)dequeued).size();
+                    handleDequeuedObjects(handler, (List)dequeued, null, null);
+                }else{
+                    handleDequeuedObject(handler, dequeued, null, null);
                 }
+            }finally{
+                dispatchedCount.addAndGet(size);
+                dispatchedProcessTime.addAndGet(System.currentTimeMillis() - start);
             }
         }
     }
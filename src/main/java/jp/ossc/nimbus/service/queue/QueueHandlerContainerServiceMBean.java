@@ -31,6 +31,8 @@
  */
 package jp.ossc.nimbus.service.queue;
 
+import java.util.Map;
+
 import jp.ossc.nimbus.core.*;
 
 /**
@@ -282,6 +284,90 @@ public interface QueueHandlerContainerServiceMBean extends ServiceBaseMBean{
      */
     public boolean isIgnoreNullElement();
     
+    /**
+     * 仮想スレッドモードにするかどうかを設定する。<p>
+     * trueを設定すると、1つのスレッドがキューから取り出した要素を、要素毎に生成した仮想スレッドで{@link QueueHandler}に渡す。{@link #setQueueHandlerSize(int)}で設定した値は、スレッド数ではなく同時に処理する要素数の上限となる。<br>
+     * 仮想スレッドをサポートしていないJava(Java21未満)で実行した場合は、仮想スレッドの代わりにデーモンスレッドを使用する。<br>
+     * リトライや停止時のキューの解放などの動作は、通常のモードと同じである。<br>
+     * デフォルトは、falseで、QueueHandlerSize分のスレッドがキューを待ち受ける。<br>
+     *
+     * @param isVirtual 仮想スレッドモードにする場合true
+     */
+    public void setVirtualThreadMode(boolean isVirtual);
+    
+    /**
+     * 仮想スレッドモードかどうかを判定する。<p>
+     *
+     * @return trueの場合、仮想スレッドモード
+     */
+    public boolean isVirtualThreadMode();
+    
+    /**
+     * 実行環境のJavaが仮想スレッドをサポートしているかどうかを判定する。<p>
+     *
+     * @return サポートしている場合true
+     */
+    public boolean isVirtualThreadSupported();
+    
+    /**
+     * バッチモードで、一度に{@link QueueHandler}に渡すキュー要素の最大数を設定する。<p>
+     * 2以上を指定するとバッチモードになり、キューから取り出した要素をリストにまとめて、{@link BatchQueueHandler#handleDequeuedObjects(java.util.List)}に渡す。リトライは、リスト単位で行う。<br>
+     * QueueHandlerが{@link BatchQueueHandler}でない場合は、まとめて取り出した要素を1件ずつ{@link QueueHandler#handleDequeuedObject(Object)}に渡す。<br>
+     * デフォルトは、1で、バッチモードではない。<br>
+     *
+     * @param size バッチサイズ
+     */
+    public void setBatchSize(int size);
+    
+    /**
+     * バッチモードで、一度に{@link QueueHandler}に渡すキュー要素の最大数を取得する。<p>
+     *
+     * @return バッチサイズ
+     */
+    public int getBatchSize();
+    
+    /**
+     * バッチモードで、最初の要素を取り出してから、後続の要素がバッチサイズに達するまで待つ最大時間を設定する。<p>
+     * デフォルトは、0で、待たずにその時点でキューにある要素だけをまとめる。<br>
+     *
+     * @param time 最大滞留時間[ms]
+     */
+    public void setBatchLingerTime(long time);
+    
+    /**
+     * バッチモードで、最初の要素を取り出してから、後続の要素がバッチサイズに達するまで待つ最大時間を取得する。<p>
+     *
+     * @return 最大滞留時間[ms]
+     */
+    public long getBatchLingerTime();
+    
+    /**
+     * バッチモードで処理したバッチの数を取得する。<p>
+     *
+     * @return バッチ数
+     */
+    public long getBatchCount();
+    
+    /**
+     * バッチモードで処理したバッチの平均要素数を取得する。<p>
+     *
+     * @return 平均バッチサイズ
+     */
+    public double getAverageBatchSize();
+    
+    /**
+     * バッチモードで処理したバッチの要素数の分布を取得する。<p>
+     * キーは、"1"、"2-3"、"4-7"のような2のべき乗で区切った要素数の範囲、値は、その範囲の要素数だったバッチの数である。<br>
+     *
+     * @return バッチサイズの分布
+     */
+    public Map getBatchSizeDistribution();
+    
+    /**
+     * バッチモードの統計情報を初期化する。<p>
+     */
+    public void resetBatchStatistics();
+    
     /**
      * キューから引き抜いた後の処理時間の平均を取得する。<p>
      *
@@ -0,0 +1,631 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.writer.prometheus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import jp.ossc.nimbus.core.ServiceBase;
+import jp.ossc.nimbus.core.ServiceName;
+import jp.ossc.nimbus.core.ServiceManagerFactory;
+import jp.ossc.nimbus.service.aop.interceptor.MetricsInfo;
+import jp.ossc.nimbus.service.aop.interceptor.ConcurrentMetricsInfo;
+import jp.ossc.nimbus.service.aop.interceptor.MethodMetricsInterceptorServiceMBean;
+import jp.ossc.nimbus.service.aop.interceptor.BeanFlowMetricsInterceptorServiceMBean;
+import jp.ossc.nimbus.service.cache.CacheMap;
+import jp.ossc.nimbus.service.cache.AbstractCacheMapServiceMBean;
+import jp.ossc.nimbus.service.context.SharedContextServiceMBean;
+import jp.ossc.nimbus.service.performance.LogLinearHistogram;
+import jp.ossc.nimbus.service.performance.HistogramKeys;
+import jp.ossc.nimbus.service.queue.Queue;
+import jp.ossc.nimbus.service.queue.DefaultQueueServiceMBean;
+import jp.ossc.nimbus.service.queue.ConcurrentQueueServiceMBean;
+
+/**
+ * Nimbusのサービスが保持する統計を、Prometheusのスクレイプ時に直接収集する{@link Collector}を登録するサービス。<p>
+ * {@link GaugeWriterService}のように{@link jp.ossc.nimbus.service.writer.WritableRecord WritableRecord}を経由せず、スクレイプの度に各サービスのアクセサを直接呼び出してメトリクスを生成する。<br>
+ * 収集対象のサービスの種類はサービスの開始時に判定するため、スクレイプ時にリフレクションは行わない。<br>
+ * 全てのメトリクスには、収集元のサービス名が"service"ラベルとして付与される。<br>
+ * 以下に、サービス定義例を示す。<br>
+ * <pre>
+ * &lt;?xml version="1.0" encoding="Shift_JIS"?&gt;
+ * 
+ * &lt;server&gt;
+ *     
+ *     &lt;manager name="Sample"&gt;
+ *         
+ *         &lt;service name="MetricsCollector"
+ *                  code="jp.ossc.nimbus.service.writer.prometheus.MetricsCollectorService"&gt;
+ *             &lt;attribute name="MethodMetricsInterceptorServiceNames"&gt;#MethodMetricsInterceptor&lt;/attribute&gt;
+ *             &lt;attribute name="QueueServiceNames"&gt;#Queue&lt;/attribute&gt;
+ *             &lt;depends&gt;MethodMetricsInterceptor&lt;/depends&gt;
+ *             &lt;depends&gt;Queue&lt;/depends&gt;
+ *         &lt;/service&gt;
+ *         
+ *         &lt;service name="HTTPServer"
+ *                  code="jp.ossc.nimbus.service.writer.prometheus.HTTPServerService"&gt;
+ *             &lt;attribute name="Port"&gt;9100&lt;/attribute&gt;
+ *         &lt;/service&gt;
+ *         
+ *     &lt;/manager&gt;
+ *     
+ * &lt;/server&gt;
+ * </pre>
+ *
+ * @author M.Takata
+ */
+public class MetricsCollectorService extends ServiceBase implements MetricsCollectorServiceMBean{
+    
+    private static final long serialVersionUID = 4420135960186153541L;
+    
+    private static final String LABEL_SERVICE = "service";
+    private static final List SERVICE_LABEL_NAMES = Arrays.asList(new String[]{LABEL_SERVICE});
+    private static final List RESULTS = Arrays.asList(new String[]{"normal", "exception", "error"});
+    
+    protected String namespace = DEFAULT_NAMESPACE;
+    protected ServiceName[] methodMetricsInterceptorServiceNames;
+    protected ServiceName[] beanFlowMetricsInterceptorServiceNames;
+    protected ServiceName[] queueServiceNames;
+    protected ServiceName[] cacheMapServiceNames;
+    protected ServiceName[] sharedContextServiceNames;
+    protected ServiceName[] connectionFactoryServiceNames;
+    protected CollectorRegistry registry;
+    
+    protected MetricsSource[] sources;
+    protected NimbusCollector collector;
+    
+    // MetricsCollectorServiceMBeanのJavaDoc
+    public void setNamespace(String namespace){
+        this.namespace = namespace;
+    }
+    // MetricsCollectorServiceMBeanのJavaDoc
+    public String getNamespace(){
+        return namespace;
+    }
+    
+    // MetricsCollectorServiceMBeanのJavaDoc
+    public void setMethodMetricsInterceptorServiceNames(ServiceName[] names){
+        methodMetricsInterceptorServiceNames = names;
+    }
+    // MetricsCollectorServiceMBeanのJavaDoc
+    public ServiceName[] getMethodMetricsInterceptorServiceNames(){
+        return methodMetricsInterceptorServiceNames;
+    }
+    
+    // MetricsCollectorServiceMBeanのJavaDoc
+    public void setBeanFlowMetricsInterceptorServiceNames(ServiceName[] names){
+        beanFlowMetricsInterceptorServiceNames = names;
+    }
+    // MetricsCollectorServiceMBeanのJavaDoc
+    public ServiceName[] getBeanFlowMetricsInterceptorServiceNames(){
+        return beanFlowMetricsInterceptorServiceNames;
+    }
+    
+    // MetricsCollectorServiceMBeanのJavaDoc
+    public void setQueueServiceNames(ServiceName[] names){
+        queueServiceNames = names;
+    }
+    // MetricsCollectorServiceMBeanのJavaDoc
+    public ServiceName[] getQueueServiceNames(){
+        return queueServiceNames;
+    }
+    
+    // MetricsCollectorServiceMBeanのJavaDoc
+    public void setCacheMapServiceNames(ServiceName[] names){
+        cacheMapServiceNames = names;
+    }
+    // MetricsCollectorServiceMBeanのJavaDoc
+    public ServiceName[] getCacheMapServiceNames(){
+        return cacheMapServiceNames;
+    }
+    
+    // MetricsCollectorServiceMBeanのJavaDoc
+    public void setSharedContextServiceNames(ServiceName[] names){
+        sharedContextServiceNames = names;
+    }
+    // MetricsCollectorServiceMBeanのJavaDoc
+    public ServiceName[] getSharedContextServiceNames(){
+        return sharedContextServiceNames;
+    }
+    
+    // MetricsCollectorServiceMBeanのJavaDoc
+    public void setConnectionFactoryServiceNames(ServiceName[] names){
+        connectionFactoryServiceNames = names;
+    }
+    // MetricsCollectorServiceMBeanのJavaDoc
+    public ServiceName[] getConnectionFactoryServiceNames(){
+        return connectionFactoryServiceNames;
+    }
+    
+    /**
+     * Collectorを登録するCollectorRegistryを設定する。<p>
+     * 設定しない場合は、{@link CollectorRegistry#defaultRegistry}に登録する。<br>
+     *
+     * @param registry CollectorRegistry
+     */
+    public void setCollectorRegistry(CollectorRegistry registry){
+        this.registry = registry;
+    }
+    
+    /**
+     * Collectorを登録するCollectorRegistryを取得する。<p>
+     *
+     * @return CollectorRegistry
+     */
+    public CollectorRegistry getCollectorRegistry(){
+        return registry;
+    }
+    
+    /**
+     * サービスの開始処理を行う。<p>
+     * 収集対象のサービスを取得して種類を判定し、Collectorを登録する。<br>
+     *
+     * @exception Exception 収集対象のサービスの取得に失敗した場合、または収集対象として扱えない型のサービスが指定された場合
+     */
+    public void startService() throws Exception{
+        if(namespace == null || namespace.length() == 0){
+            throw new IllegalArgumentException("Namespace is null or empty.");
+        }
+        final List sourceList = new ArrayList();
+        if(methodMetricsInterceptorServiceNames != null){
+            for(int i = 0; i < methodMetricsInterceptorServiceNames.length; i++){
+                final MethodMetricsInterceptorServiceMBean service = (MethodMetricsInterceptorServiceMBean)getService(
+                    methodMetricsInterceptorServiceNames[i],
+                    MethodMetricsInterceptorServiceMBean.class
+                );
+                sourceList.add(
+                    new MetricsInfoSource(methodMetricsInterceptorServiceNames[i], "method", "method"){
+                        protected MetricsInfo[] getMetricsInfos(){
+                            return service.getMetricsInfoArray();
+                        }
+                        protected long[] getWindows(){
+                            return service.isHistogramEnabled() ? service.getHistogramWindows() : null;
+                        }
+                        protected double[] getPercentiles(){
+                            return service.getPercentiles();
+                        }
+                    }
+                );
+            }
+        }
+        if(beanFlowMetricsInterceptorServiceNames != null){
+            for(int i = 0; i < beanFlowMetricsInterceptorServiceNames.length; i++){
+                final BeanFlowMetricsInterceptorServiceMBean service = (BeanFlowMetricsInterceptorServiceMBean)getService(
+                    beanFlowMetricsInterceptorServiceNames[i],
+                    BeanFlowMetricsInterceptorServiceMBean.class
+                );
+                sourceList.add(
+                    new MetricsInfoSource(beanFlowMetricsInterceptorServiceNames[i], "beanflow", "flow"){
+                        protected MetricsInfo[] getMetricsInfos(){
+                            return service.getMetricsInfoArray();
+                        }
+                        protected long[] getWindows(){
+                            return service.isHistogramEnabled() ? service.getHistogramWindows() : null;
+                        }
+                        protected double[] getPercentiles(){
+                            return service.getPercentiles();
+                        }
+                    }
+                );
+            }
+        }
+        if(queueServiceNames != null){
+            for(int i = 0; i < queueServiceNames.length; i++){
+                sourceList.add(
+                    new QueueSource(
+                        queueServiceNames[i],
+                        (Queue)getService(queueServiceNames[i], Queue.class)
+                    )
+                );
+            }
+        }
+        if(cacheMapServiceNames != null){
+            for(int i = 0; i < cacheMapServiceNames.length; i++){
+                sourceList.add(
+                    new CacheMapSource(
+                        cacheMapServiceNames[i],
+                        (CacheMap)getService(cacheMapServiceNames[i], CacheMap.class)
+                    )
+                );
+            }
+        }
+        if(sharedContextServiceNames != null){
+            for(int i = 0; i < sharedContextServiceNames.length; i++){
+                sourceList.add(
+                    new SharedContextSource(
+                        sharedContextServiceNames[i],
+                        (SharedContextServiceMBean)getService(sharedContextServiceNames[i], SharedContextServiceMBean.class)
+                    )
+                );
+            }
+        }
+        if(connectionFactoryServiceNames != null){
+            for(int i = 0; i < connectionFactoryServiceNames.length; i++){
+                sourceList.add(createConnectionFactorySource(connectionFactoryServiceNames[i]));
+            }
+        }
+        sources = (MetricsSource[])sourceList.toArray(new MetricsSource[sourceList.size()]);
+        if(registry == null){
+            registry = CollectorRegistry.defaultRegistry;
+        }
+        collector = new NimbusCollector();
+        registry.register(collector);
+    }
+    
+    /**
+     * サービスの停止処理を行う。<p>
+     * 登録したCollectorを登録解除する。<br>
+     *
+     * @exception Exception 停止処理に失敗した場合
+     */
+    public void stopService() throws Exception{
+        if(collector != null){
+            registry.unregister(collector);
+            collector = null;
+        }
+        sources = null;
+    }
+    
+    private Object getService(ServiceName name, Class type){
+        final Object service = ServiceManagerFactory.getServiceObject(name);
+        if(!type.isInstance(service)){
+            throw new IllegalArgumentException(name + " is not " + type.getName() + ". class=" + service.getClass().getName());
+        }
+        return service;
+    }
+    
+    private MetricsSource createConnectionFactorySource(ServiceName name){
+        final Object service = ServiceManagerFactory.getServiceObject(name);
+        if(service instanceof jp.ossc.nimbus.service.publish.tcp.ConnectionFactoryServiceMBean){
+            final jp.ossc.nimbus.service.publish.tcp.ConnectionFactoryServiceMBean factory
+                 = (jp.ossc.nimbus.service.publish.tcp.ConnectionFactoryServiceMBean)service;
+            return new ConnectionFactorySource(name){
+                protected long getSendCount(){
+                    return factory.getSendCount();
+                }
+                protected int getClientSize(){
+                    return factory.getClientSize();
+                }
+                protected double getAverageSendProcessTime(){
+                    return factory.getAverageSendProcessTime();
+                }
+            };
+        }else if(service instanceof jp.ossc.nimbus.service.publish.udp.ConnectionFactoryServiceMBean){
+            final jp.ossc.nimbus.service.publish.udp.ConnectionFactoryServiceMBean factory
+                 = (jp.ossc.nimbus.service.publish.udp.ConnectionFactoryServiceMBean)service;
+            return new ConnectionFactorySource(name){
+                protected long getSendCount(){
+                    return factory.getSendCount();
+                }
+                protected int getClientSize(){
+                    return factory.getClientSize();
+                }
+                protected double getAverageSendProcessTime(){
+                    return factory.getAverageSendProcessTime();
+                }
+            };
+        }else if(service instanceof jp.ossc.nimbus.service.publish.local.ConnectionFactoryServiceMBean){
+            final jp.ossc.nimbus.service.publish.local.ConnectionFactoryServiceMBean factory
+                 = (jp.ossc.nimbus.service.publish.local.ConnectionFactoryServiceMBean)service;
+            return new ConnectionFactorySource(name){
+                protected long getSendCount(){
+                    return factory.getSendCount();
+                }
+                protected int getClientSize(){
+                    return factory.getClientSize();
+                }
+                protected double getAverageSendProcessTime(){
+                    return Double.NaN;
+                }
+            };
+        }
+        throw new IllegalArgumentException(name + " is not supported ConnectionFactoryService. class=" + (service == null ? null : service.getClass().getName()));
+    }
+    
+    /**
+     * スクレイプ1回分のメトリクスファミリを、名前毎にまとめる。<p>
+     */
+    protected static class FamilyBuilder{
+        
+        private final Map families = new LinkedHashMap();
+        
+        public void add(String name, Collector.Type type, String help, String sampleName, List labelNames, List labelValues, double value){
+            Collector.MetricFamilySamples family = (Collector.MetricFamilySamples)families.get(name);
+            if(family == null){
+                family = new Collector.MetricFamilySamples(name, type, help, new ArrayList());
+                families.put(name, family);
+            }
+            family.samples.add(new Collector.MetricFamilySamples.Sample(sampleName, labelNames, labelValues, value));
+        }
+        
+        public void gauge(String name, String help, List labelNames, List labelValues, double value){
+            add(name, Collector.Type.GAUGE, help, name, labelNames, labelValues, value);
+        }
+        
+        public void counter(String name, String help, List labelNames, List labelValues, double value){
+            add(name, Collector.Type.COUNTER, help, name + "_total", labelNames, labelValues, value);
+        }
+        
+        public List toList(){
+            return new ArrayList(families.values());
+        }
+    }
+    
+    /**
+     * 収集対象の1サービス分のメトリクスを生成する。<p>
+     */
+    protected abstract class MetricsSource{
+        
+        protected final String serviceLabel;
+        protected final List serviceLabelValues;
+        
+        protected MetricsSource(ServiceName name){
+            serviceLabel = name.toString();
+            serviceLabelValues = Arrays.asList(new String[]{serviceLabel});
+        }
+        
+        public abstract void collect(FamilyBuilder builder);
+    }
+    
+    /**
+     * {@link MetricsInfo}のメトリクスを生成する。<p>
+     */
+    protected abstract class MetricsInfoSource extends MetricsSource{
+        
+        private final String prefix;
+        private final List keyLabelNames;
+        private final List resultLabelNames;
+        private final List summaryLabelNames;
+        private final List quantileLabelNames;
+        
+        protected MetricsInfoSource(ServiceName name, String type, String keyLabel){
+            super(name);
+            prefix = namespace + '_' + type;
+            keyLabelNames = Arrays.asList(new String[]{LABEL_SERVICE, keyLabel});
+            resultLabelNames = Arrays.asList(new String[]{LABEL_SERVICE, keyLabel, "result"});
+            summaryLabelNames = Arrays.asList(new String[]{LABEL_SERVICE, keyLabel, "window"});
+            quantileLabelNames = Arrays.asList(new String[]{LABEL_SERVICE, keyLabel, "window", "quantile"});
+        }
+        
+        protected abstract MetricsInfo[] getMetricsInfos();
+        protected abstract long[] getWindows();
+        protected abstract double[] getPercentiles();
+        
+        public void collect(FamilyBuilder builder){
+            final MetricsInfo[] infos = getMetricsInfos();
+            final long[] windows = getWindows();
+            final double[] percentiles = windows == null ? null : getPercentiles();
+            String[] windowLabels = null;
+            String[] quantileLabels = null;
+            if(windows != null){
+                windowLabels = new String[windows.length];
+                for(int i = 0; i < windows.length; i++){
+                    windowLabels[i] = HistogramKeys.toWindowKey(windows[i]);
+                }
+                quantileLabels = new String[percentiles == null ? 0 : percentiles.length];
+                for(int i = 0; i < quantileLabels.length; i++){
+                    quantileLabels[i] = Collector.doubleToGoString(percentiles[i] / 100.0d);
+                }
+            }
+            final long now = System.currentTimeMillis();
+            for(int i = 0; i < infos.length; i++){
+                final MetricsInfo info = infos[i];
+                final String key = info.getKey();
+                final long[] counts = new long[]{
+                    info.getCount(),
+                    info.getExceptionCount(),
+                    info.getErrorCount()
+                };
+                for(int j = 0; j < counts.length; j++){
+                    builder.counter(
+                        prefix + "_calls",
+                        "call count",
+                        resultLabelNames,
+                        Arrays.asList(new String[]{serviceLabel, key, (String)RESULTS.get(j)}),
+                        counts[j]
+                    );
+                }
+                final long best = info.getBestPerformance();
+                final long worst = info.getWorstPerformance();
+                final List keyLabelValues = Arrays.asList(new String[]{serviceLabel, key});
+                if(best <= worst){
+                    builder.gauge(prefix + "_best_milliseconds", "best performance[ms]", keyLabelNames, keyLabelValues, best);
+                    builder.gauge(prefix + "_worst_milliseconds", "worst performance[ms]", keyLabelNames, keyLabelValues, worst);
+                    builder.gauge(prefix + "_average_milliseconds", "average performance[ms]", keyLabelNames, keyLabelValues, info.getAveragePerformance());
+                }
+                if(windows == null || !(info instanceof ConcurrentMetricsInfo)){
+                    continue;
+                }
+                final LogLinearHistogram[] histograms = ((ConcurrentMetricsInfo)info).getHistograms(now, windows);
+                if(histograms == null){
+                    continue;
+                }
+                final String summaryName = prefix + "_duration_milliseconds";
+                for(int j = 0; j < histograms.length; j++){
+                    for(int k = 0; k < quantileLabels.length; k++){
+                        builder.add(
+                            summaryName,
+                            Collector.Type.SUMMARY,
+                            "performance[ms] in window",
+                            summaryName,
+                            quantileLabelNames,
+                            Arrays.asList(new String[]{serviceLabel, key, windowLabels[j], quantileLabels[k]}),
+                            histograms[j].getValueAtPercentile(percentiles[k])
+                        );
+                    }
+                    final List summaryLabelValues = Arrays.asList(new String[]{serviceLabel, key, windowLabels[j]});
+                    builder.add(
+                        summaryName,
+                        Collector.Type.SUMMARY,
+                        "performance[ms] in window",
+                        summaryName + "_count",
+                        summaryLabelNames,
+                        summaryLabelValues,
+                        histograms[j].getCount()
+                    );
+                    builder.add(
+                        summaryName,
+                        Collector.Type.SUMMARY,
+                        "performance[ms] in window",
+                        summaryName + "_sum",
+                        summaryLabelNames,
+                        summaryLabelValues,
+                        histograms[j].getSum()
+                    );
+                }
+            }
+        }
+    }
+    
+    /**
+     * {@link Queue}のメトリクスを生成する。<p>
+     */
+    protected class QueueSource extends MetricsSource{
+        
+        private final Queue queue;
+        
+        protected QueueSource(ServiceName name, Queue queue){
+            super(name);
+            this.queue = queue;
+        }
+        
+        public void collect(FamilyBuilder builder){
+            final String prefix = namespace + "_queue";
+            builder.gauge(prefix + "_depth", "queue depth", SERVICE_LABEL_NAMES, serviceLabelValues, queue.size());
+            if(queue instanceof DefaultQueueServiceMBean){
+                final DefaultQueueServiceMBean mbean = (DefaultQueueServiceMBean)queue;
+                builder.gauge(prefix + "_max_depth", "max queue depth", SERVICE_LABEL_NAMES, serviceLabelValues, mbean.getMaxDepth());
+                builder.counter(prefix + "_pushed", "pushed count", SERVICE_LABEL_NAMES, serviceLabelValues, mbean.getCount());
+            }else if(queue instanceof ConcurrentQueueServiceMBean){
+                final ConcurrentQueueServiceMBean mbean = (ConcurrentQueueServiceMBean)queue;
+                builder.gauge(prefix + "_max_depth", "max queue depth", SERVICE_LABEL_NAMES, serviceLabelValues, mbean.getMaxDepth());
+                builder.counter(prefix + "_pushed", "pushed count", SERVICE_LABEL_NAMES, serviceLabelValues, mbean.getCount());
+            }
+        }
+    }
+    
+    /**
+     * {@link CacheMap}のメトリクスを生成する。<p>
+     */
+    protected class CacheMapSource extends MetricsSource{
+        
+        private final CacheMap cache;
+        
+        protected CacheMapSource(ServiceName name, CacheMap cache){
+            super(name);
+            this.cache = cache;
+        }
+        
+        public void collect(FamilyBuilder builder){
+            final String prefix = namespace + "_cache";
+            builder.gauge(prefix + "_size", "cache size", SERVICE_LABEL_NAMES, serviceLabelValues, cache.size());
+            if(cache instanceof AbstractCacheMapServiceMBean){
+                final AbstractCacheMapServiceMBean mbean = (AbstractCacheMapServiceMBean)cache;
+                builder.counter(prefix + "_hits", "cache hit count", SERVICE_LABEL_NAMES, serviceLabelValues, mbean.getHitCount());
+                builder.counter(prefix + "_misses", "cache miss count", SERVICE_LABEL_NAMES, serviceLabelValues, mbean.getMissCount());
+            }
+        }
+    }
+    
+    /**
+     * {@link jp.ossc.nimbus.service.context.SharedContextService SharedContextService}のメトリクスを生成する。<p>
+     */
+    protected class SharedContextSource extends MetricsSource{
+        
+        private final SharedContextServiceMBean context;
+        
+        protected SharedContextSource(ServiceName name, SharedContextServiceMBean context){
+            super(name);
+            this.context = context;
+        }
+        
+        public void collect(FamilyBuilder builder){
+            final String prefix = namespace + "_shared_context";
+            builder.gauge(prefix + "_size", "local entry count", SERVICE_LABEL_NAMES, serviceLabelValues, context.sizeLocal());
+            builder.gauge(prefix + "_locked", "locked key count", SERVICE_LABEL_NAMES, serviceLabelValues, context.getLockedCount());
+            builder.gauge(prefix + "_lock_time_average_milliseconds", "average lock time[ms]", SERVICE_LABEL_NAMES, serviceLabelValues, context.getAverageLockTime());
+            builder.counter(prefix + "_near_cache_hits", "near cache hit count", SERVICE_LABEL_NAMES, serviceLabelValues, context.getNearCacheHitCount());
+            builder.counter(prefix + "_near_cache_misses", "near cache miss count", SERVICE_LABEL_NAMES, serviceLabelValues, context.getNearCacheMissCount());
+            builder.counter(prefix + "_near_cache_evictions", "near cache eviction count", SERVICE_LABEL_NAMES, serviceLabelValues, context.getNearCacheEvictCount());
+            builder.counter(prefix + "_near_cache_invalidations", "near cache invalidation count", SERVICE_LABEL_NAMES, serviceLabelValues, context.getNearCacheInvalidateCount());
+            builder.counter(prefix + "_asynch_batches", "asynchronous update batch count", SERVICE_LABEL_NAMES, serviceLabelValues, context.getAsynchBatchCount());
+            builder.counter(prefix + "_asynch_batched_events", "asynchronous update count sent in batches", SERVICE_LABEL_NAMES, serviceLabelValues, context.getAsynchBatchedEventCount());
+            builder.counter(prefix + "_asynch_batch_coalesced", "asynchronous update count coalesced in batches", SERVICE_LABEL_NAMES, serviceLabelValues, context.getAsynchBatchCoalescedCount());
+        }
+    }
+    
+    /**
+     * ConnectionFactoryServiceのメトリクスを生成する。<p>
+     */
+    protected abstract class ConnectionFactorySource extends MetricsSource{
+        
+        protected ConnectionFactorySource(ServiceName name){
+            super(name);
+        }
+        
+        protected abstract long getSendCount();
+        protected abstract int getClientSize();
+        protected abstract double getAverageSendProcessTime();
+        
+        public void collect(FamilyBuilder builder){
+            final String prefix = namespace + "_publish";
+            builder.counter(prefix + "_sent", "sent message count", SERVICE_LABEL_NAMES, serviceLabelValues, getSendCount());
+            builder.gauge(prefix + "_clients", "connected client count", SERVICE_LABEL_NAMES, serviceLabelValues, getClientSize());
+            final double averageSendProcessTime = getAverageSendProcessTime();
+            if(!Double.isNaN(averageSendProcessTime)){
+                builder.gauge(prefix + "_send_time_average_milliseconds", "average send time[ms]", SERVICE_LABEL_NAMES, serviceLabelValues, averageSendProcessTime);
+            }
+        }
+    }
+    
+    /**
+     * 収集対象のサービスからメトリクスを収集するCollector。<p>
+     */
+    protected class NimbusCollector extends Collector{
+        
+        public List collect(){
+            final MetricsSource[] current = sources;
+            final FamilyBuilder builder = new FamilyBuilder();
+            if(current != null){
+                for(int i = 0; i < current.length; i++){
+                    current[i].collect(builder);
+                }
+            }
+            return builder.toList();
+        }
+    }
+}
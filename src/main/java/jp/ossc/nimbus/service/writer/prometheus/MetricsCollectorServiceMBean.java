@@ -0,0 +1,152 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.writer.prometheus;
+
+import jp.ossc.nimbus.core.ServiceName;
+import jp.ossc.nimbus.core.ServiceBaseMBean;
+
+/**
+ * {@link MetricsCollectorService}サービスMBeanインタフェース。<p>
+ *
+ * @author M.Takata
+ */
+public interface MetricsCollectorServiceMBean extends ServiceBaseMBean{
+    
+    /**
+     * デフォルトのメトリクス名の接頭辞。<p>
+     */
+    public static final String DEFAULT_NAMESPACE = "nimbus";
+    
+    /**
+     * Prometheusに出力するメトリクス名の接頭辞を設定する。<p>
+     * デフォルトは、{@link #DEFAULT_NAMESPACE}。<br>
+     *
+     * @param namespace メトリクス名の接頭辞
+     */
+    public void setNamespace(String namespace);
+    
+    /**
+     * Prometheusに出力するメトリクス名の接頭辞を取得する。<p>
+     *
+     * @return メトリクス名の接頭辞
+     */
+    public String getNamespace();
+    
+    /**
+     * メトリクスを収集する{@link jp.ossc.nimbus.service.aop.interceptor.MethodMetricsInterceptorService MethodMetricsInterceptorService}のサービス名を設定する。<p>
+     * 呼び出し回数、最高・最低・平均処理時間に加えて、ヒストグラムを記録している場合は時間窓毎のパーセンタイルをSummaryとして出力する。<br>
+     *
+     * @param names MethodMetricsInterceptorServiceのサービス名の配列
+     */
+    public void setMethodMetricsInterceptorServiceNames(ServiceName[] names);
+    
+    /**
+     * メトリクスを収集する{@link jp.ossc.nimbus.service.aop.interceptor.MethodMetricsInterceptorService MethodMetricsInterceptorService}のサービス名を取得する。<p>
+     *
+     * @return MethodMetricsInterceptorServiceのサービス名の配列
+     */
+    public ServiceName[] getMethodMetricsInterceptorServiceNames();
+    
+    /**
+     * メトリクスを収集する{@link jp.ossc.nimbus.service.aop.interceptor.BeanFlowMetricsInterceptorService BeanFlowMetricsInterceptorService}のサービス名を設定する。<p>
+     *
+     * @param names BeanFlowMetricsInterceptorServiceのサービス名の配列
+     */
+    public void setBeanFlowMetricsInterceptorServiceNames(ServiceName[] names);
+    
+    /**
+     * メトリクスを収集する{@link jp.ossc.nimbus.service.aop.interceptor.BeanFlowMetricsInterceptorService BeanFlowMetricsInterceptorService}のサービス名を取得する。<p>
+     *
+     * @return BeanFlowMetricsInterceptorServiceのサービス名の配列
+     */
+    public ServiceName[] getBeanFlowMetricsInterceptorServiceNames();
+    
+    /**
+     * メトリクスを収集する{@link jp.ossc.nimbus.service.queue.Queue Queue}サービスのサービス名を設定する。<p>
+     * キューの深さを出力し、{@link jp.ossc.nimbus.service.queue.DefaultQueueService DefaultQueueService}または{@link jp.ossc.nimbus.service.queue.ConcurrentQueueService ConcurrentQueueService}の場合は、投入件数と最大深さも出力する。<br>
+     *
+     * @param names Queueサービスのサービス名の配列
+     */
+    public void setQueueServiceNames(ServiceName[] names);
+    
+    /**
+     * メトリクスを収集する{@link jp.ossc.nimbus.service.queue.Queue Queue}サービスのサービス名を取得する。<p>
+     *
+     * @return Queueサービスのサービス名の配列
+     */
+    public ServiceName[] getQueueServiceNames();
+    
+    /**
+     * メトリクスを収集する{@link jp.ossc.nimbus.service.cache.CacheMap CacheMap}サービスのサービス名を設定する。<p>
+     * キャッシュの件数を出力し、{@link jp.ossc.nimbus.service.cache.AbstractCacheMapService AbstractCacheMapService}の場合は、ヒット回数とミス回数も出力する。<br>
+     *
+     * @param names CacheMapサービスのサービス名の配列
+     */
+    public void setCacheMapServiceNames(ServiceName[] names);
+    
+    /**
+     * メトリクスを収集する{@link jp.ossc.nimbus.service.cache.CacheMap CacheMap}サービスのサービス名を取得する。<p>
+     *
+     * @return CacheMapサービスのサービス名の配列
+     */
+    public ServiceName[] getCacheMapServiceNames();
+    
+    /**
+     * メトリクスを収集する{@link jp.ossc.nimbus.service.context.SharedContextService SharedContextService}のサービス名を設定する。<p>
+     * ローカルに保持している件数、ロック、ニアキャッシュ、非同期更新のバッチに関する統計を出力する。<br>
+     *
+     * @param names SharedContextServiceのサービス名の配列
+     */
+    public void setSharedContextServiceNames(ServiceName[] names);
+    
+    /**
+     * メトリクスを収集する{@link jp.ossc.nimbus.service.context.SharedContextService SharedContextService}のサービス名を取得する。<p>
+     *
+     * @return SharedContextServiceのサービス名の配列
+     */
+    public ServiceName[] getSharedContextServiceNames();
+    
+    /**
+     * メトリクスを収集するtcp、udp、localの各パッケージのConnectionFactoryServiceのサービス名を設定する。<p>
+     * 送信件数と接続中のクライアント数を出力し、tcpとudpの場合は平均送信時間も出力する。<br>
+     *
+     * @param names ConnectionFactoryServiceのサービス名の配列
+     */
+    public void setConnectionFactoryServiceNames(ServiceName[] names);
+    
+    /**
+     * メトリクスを収集するConnectionFactoryServiceのサービス名を取得する。<p>
+     *
+     * @return ConnectionFactoryServiceのサービス名の配列
+     */
+    public ServiceName[] getConnectionFactoryServiceNames();
+}
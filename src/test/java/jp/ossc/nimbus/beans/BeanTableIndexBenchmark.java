@@ -0,0 +1,153 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.beans;
+
+import java.util.*;
+
+/**
+ * {@link BeanTableIndex}のベンチマーク。<p>
+ * 範囲検索を行うスレッドと、要素の置換を行うスレッドを同時に動かして、通常の同期化インデックスと並行モードのインデックスのスループットを比較する。<br>
+ * 単体テストとしては実行されないため、{@link #main(String[])}で実行する。引数で要素数、検索スレッド数、更新スレッド数、計測時間[ms]を指定できる。<br>
+ *
+ * @author M.Takata
+ */
+public class BeanTableIndexBenchmark{
+    
+    public static void main(String[] theArgs) throws Exception{
+        final int size = theArgs.length > 0 ? Integer.parseInt(theArgs[0]) : 100000;
+        final int searchThreadSize = theArgs.length > 1 ? Integer.parseInt(theArgs[1]) : 8;
+        final int updateThreadSize = theArgs.length > 2 ? Integer.parseInt(theArgs[2]) : 2;
+        final long time = theArgs.length > 3 ? Long.parseLong(theArgs[3]) : 10000l;
+        for(int i = 0; i < 2; i++){
+            final boolean isConcurrent = i == 1;
+            final long[] result = measureThroughput(isConcurrent, size, searchThreadSize, updateThreadSize, time);
+            System.out.println(
+                (isConcurrent ? "concurrent" : "synchronized")
+                    + " : search=" + result[0] + "[ops/s], update=" + result[1] + "[ops/s]"
+            );
+        }
+    }
+    
+    private static long[] measureThroughput(
+        boolean isConcurrent,
+        final int size,
+        int searchThreadSize,
+        final int updateThreadSize,
+        long time
+    ) throws Exception{
+        final BeanTableIndex index = new BeanTableIndex("value", true, isConcurrent, BeanTableIndexTest.Item.class, new String[]{"value"});
+        final BeanTableIndexTest.Item[] items = new BeanTableIndexTest.Item[size];
+        for(int i = 0; i < size; i++){
+            items[i] = new BeanTableIndexTest.Item(new Integer(i));
+            index.add(items[i]);
+        }
+        final long[] searchCounts = new long[searchThreadSize];
+        final long[] updateCounts = new long[updateThreadSize];
+        final Throwable[] errors = new Throwable[1];
+        final long endTime = System.currentTimeMillis() + time;
+        final List threads = new ArrayList();
+        final long startTime = System.currentTimeMillis();
+        for(int i = 0; i < searchThreadSize; i++){
+            final int threadIndex = i;
+            threads.add(
+                new Thread(){
+                    public void run(){
+                        final Random random = new Random(threadIndex);
+                        final int range = Math.max(1, size / 100);
+                        long count = 0;
+                        try{
+                            while(System.currentTimeMillis() < endTime){
+                                for(int j = 0; j < 10; j++){
+                                    final int from = random.nextInt(size);
+                                    index.searchRange(new Integer(from), true, new Integer(from + range), false);
+                                }
+                                count += 10;
+                            }
+                        }catch(Throwable th){
+                            errors[0] = th;
+                        }
+                        searchCounts[threadIndex] = count;
+                    }
+                }
+            );
+        }
+        for(int i = 0; i < updateThreadSize; i++){
+            final int threadIndex = i;
+            threads.add(
+                new Thread(){
+                    public void run(){
+                        final Random random = new Random(threadIndex);
+                        long count = 0;
+                        try{
+                            while(System.currentTimeMillis() < endTime){
+                                for(int j = 0; j < 100; j++){
+                                    int slot = random.nextInt(size);
+                                    slot -= slot % updateThreadSize;
+                                    slot = Math.min(slot + threadIndex, size - 1);
+                                    if(slot % updateThreadSize != threadIndex){
+                                        continue;
+                                    }
+                                    final BeanTableIndexTest.Item newItem = new BeanTableIndexTest.Item(new Integer(random.nextInt(size)));
+                                    index.replace(items[slot], newItem);
+                                    items[slot] = newItem;
+                                }
+                                count += 100;
+                            }
+                        }catch(Throwable th){
+                            errors[0] = th;
+                        }
+                        updateCounts[threadIndex] = count;
+                    }
+                }
+            );
+        }
+        for(int i = 0; i < threads.size(); i++){
+            ((Thread)threads.get(i)).start();
+        }
+        for(int i = 0; i < threads.size(); i++){
+            ((Thread)threads.get(i)).join();
+        }
+        final long elapsed = System.currentTimeMillis() - startTime;
+        if(errors[0] != null){
+            throw new Exception(errors[0]);
+        }
+        long search = 0;
+        for(int i = 0; i < searchCounts.length; i++){
+            search += searchCounts[i];
+        }
+        long update = 0;
+        for(int i = 0; i < updateCounts.length; i++){
+            update += updateCounts[i];
+        }
+        return new long[]{search * 1000l / elapsed, update * 1000l / elapsed};
+    }
+}
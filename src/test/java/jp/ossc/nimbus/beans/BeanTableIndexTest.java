@@ -0,0 +1,290 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.beans;
+
+import java.util.*;
+import java.io.*;
+
+import junit.framework.*;
+
+/**
+ * {@link BeanTableIndex}の並行モードテスト。<p>
+ *
+ * @author M.Takata
+ */
+public class BeanTableIndexTest extends TestCase{
+    
+    public BeanTableIndexTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{BeanTableIndexTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(BeanTableIndexTest.class);
+    }
+    
+    public void testSearch() throws Exception{
+        final BeanTableIndex index = createIndex(true, 1000);
+        final BeanTableIndex expected = createIndex(false, 1000);
+        assertTrue(index.isConcurrent());
+        assertEquals(
+            values(expected.searchRange(new Integer(100), true, new Integer(199), true)),
+            values(index.searchRange(new Integer(100), true, new Integer(199), true))
+        );
+        assertEquals(
+            values(expected.searchFrom(new Integer(900), false)),
+            values(index.searchFrom(new Integer(900), false))
+        );
+        assertEquals(
+            values(expected.searchTo(new Integer(10))),
+            values(index.searchTo(new Integer(10)))
+        );
+        assertEquals(values(expected.searchBy(new Integer(5))), values(index.searchBy(new Integer(5))));
+        assertEquals(values(expected.searchNotNull()), values(index.searchNotNull()));
+        assertEquals(0, index.searchNull().size());
+        assertEquals(1000, index.searchKeyElement().size());
+        
+        final Item nullItem = new Item(null);
+        index.add(nullItem);
+        assertEquals(Collections.singleton(nullItem), index.searchNull());
+        index.remove(nullItem);
+        assertEquals(0, index.searchNull().size());
+        
+        Item item = (Item)index.searchByPrimaryElement(new Item(new Integer(10)));
+        final Item newItem = new Item(new Integer(-1));
+        index.replace(item, newItem);
+        assertNull(index.searchBy(new Integer(10)));
+        assertEquals(Collections.singleton(newItem), index.searchBy(new Integer(-1)));
+        
+        final BeanTableIndex clone = index.cloneEmpty(false);
+        assertTrue(clone.isConcurrent());
+        assertEquals(0, clone.searchNotNull(new HashSet()).size());
+        index.clear();
+        assertEquals(0, index.searchKeyElement().size());
+    }
+    
+    public void testConcurrentUpdate() throws Exception{
+        final int size = 1000;
+        final BeanTableIndex index = new BeanTableIndex("value", true, true, Item.class, new String[]{"value"});
+        final Item[] items = new Item[size];
+        for(int i = 0; i < size; i++){
+            items[i] = new Item(new Integer(i));
+            index.add(items[i]);
+        }
+        final List errors = Collections.synchronizedList(new ArrayList());
+        final List threads = new ArrayList();
+        for(int i = 0; i < 4; i++){
+            final int threadIndex = i;
+            threads.add(
+                new Thread(){
+                    public void run(){
+                        final Random random = new Random(threadIndex);
+                        try{
+                            for(int j = 0; j < 2000; j++){
+                                final int from = random.nextInt(size);
+                                final Iterator itr = index.searchRange(new Integer(from), true, new Integer(from + 10), false).iterator();
+                                while(itr.hasNext()){
+                                    final int value = ((Item)itr.next()).getValue().intValue();
+                                    if(value < from || value >= from + 10){
+                                        throw new AssertionFailedError("from=" + from + ", value=" + value);
+                                    }
+                                }
+                            }
+                        }catch(Throwable th){
+                            errors.add(th);
+                        }
+                    }
+                }
+            );
+        }
+        for(int i = 0; i < 2; i++){
+            final int threadIndex = i;
+            threads.add(
+                new Thread(){
+                    public void run(){
+                        final Random random = new Random(threadIndex);
+                        try{
+                            // 更新スレッド毎に担当する要素を分けて、同じ要素を同時に置換しないようにする
+                            for(int j = 0; j < 5000; j++){
+                                final int slot = (random.nextInt(size / 2) * 2) + threadIndex;
+                                final Item newItem = new Item(new Integer(random.nextInt(size)));
+                                index.replace(items[slot], newItem);
+                                items[slot] = newItem;
+                            }
+                        }catch(Throwable th){
+                            errors.add(th);
+                        }
+                    }
+                }
+            );
+        }
+        for(int i = 0; i < threads.size(); i++){
+            ((Thread)threads.get(i)).start();
+        }
+        for(int i = 0; i < threads.size(); i++){
+            ((Thread)threads.get(i)).join();
+        }
+        if(errors.size() != 0){
+            final Throwable th = (Throwable)errors.get(0);
+            final AssertionFailedError error = new AssertionFailedError(th.toString());
+            error.initCause(th);
+            throw error;
+        }
+        assertEquals(new HashSet(Arrays.asList(items)), index.searchNotNull());
+    }
+    
+    public void testExternalize() throws Exception{
+        final BeanTableIndex index = createIndex(true, 100);
+        index.add(new Item(null));
+        final BeanTableIndex copy = (BeanTableIndex)deserialize(serialize(index));
+        assertTrue(copy.isConcurrent());
+        assertEquals(
+            values(index.searchRange(new Integer(10), true, new Integer(20), false)),
+            values(copy.searchRange(new Integer(10), true, new Integer(20), false))
+        );
+        assertEquals(1, copy.searchNull().size());
+        copy.add(new Item(new Integer(200)));
+        assertEquals(1, copy.searchBy(new Integer(200)).size());
+        
+        final BeanTable table = new BeanTable(Item.class, true, true);
+        table.setIndex("value", new String[]{"value"});
+        for(int i = 0; i < 100; i++){
+            table.add(new Item(new Integer(i)));
+        }
+        final BeanTable tableCopy = (BeanTable)deserialize(serialize(table));
+        assertTrue(tableCopy.indexManager.isConcurrent());
+        assertEquals(
+            10,
+            tableCopy.createView().searchRange(new Integer(10), true, new Integer(20), false, "value", null).getResultSet().size()
+        );
+    }
+    
+    public void testReadLegacyStream() throws Exception{
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject("value");
+        oos.writeObject(Item.class);
+        oos.writeBoolean(true);
+        oos.writeObject(null);
+        oos.writeObject(null);
+        oos.writeObject("next");
+        oos.close();
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        final BeanTableIndex index = new BeanTableIndex();
+        index.readExternal(ois, false);
+        assertFalse(index.isConcurrent());
+        assertEquals("next", ois.readObject());
+        ois.close();
+        
+        baos = new ByteArrayOutputStream();
+        oos = new ObjectOutputStream(baos);
+        oos.writeObject(Item.class);
+        oos.writeBoolean(true);
+        oos.writeInt(0);
+        oos.writeObject("next");
+        oos.close();
+        ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        final BeanTableIndexManager manager = new BeanTableIndexManager();
+        manager.readExternal(ois, false);
+        assertFalse(manager.isConcurrent());
+        assertEquals("next", ois.readObject());
+        ois.close();
+    }
+    
+    public void testWriteReadableAsLegacyStream() throws Exception{
+        final BeanTableIndexManager manager = new BeanTableIndexManager(Item.class, true, true);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final ObjectOutputStream oos = new ObjectOutputStream(baos);
+        manager.writeExternal(oos, false);
+        oos.close();
+        final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        assertEquals(Item.class, ois.readObject());
+        assertTrue(ois.readBoolean());
+        assertEquals(0, ois.readInt());
+        ois.close();
+    }
+    
+    private static byte[] serialize(Object obj) throws IOException{
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(obj);
+        oos.close();
+        return baos.toByteArray();
+    }
+    
+    private static Object deserialize(byte[] bytes) throws Exception{
+        final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try{
+            return ois.readObject();
+        }finally{
+            ois.close();
+        }
+    }
+    
+    private static Set values(Set items){
+        final Set result = new HashSet();
+        final Iterator itr = items.iterator();
+        while(itr.hasNext()){
+            result.add(((Item)itr.next()).getValue());
+        }
+        return result;
+    }
+    
+    private static BeanTableIndex createIndex(boolean isConcurrent, int size) throws Exception{
+        final BeanTableIndex index = new BeanTableIndex("value", true, isConcurrent, Item.class, new String[]{"value"});
+        for(int i = 0; i < size; i++){
+            index.add(new Item(new Integer(i)));
+        }
+        return index;
+    }
+    
+    public static class Item implements Serializable{
+        private static final long serialVersionUID = 2907524736287631164L;
+        private Integer value;
+        public Item(){
+        }
+        public Item(Integer value){
+            this.value = value;
+        }
+        public Integer getValue(){
+            return value;
+        }
+        public void setValue(Integer value){
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.beans;
+
+import java.util.*;
+
+import junit.framework.*;
+
+/**
+ * {@link BeanTableView}テスト。<p>
+ *
+ * @author M.Takata
+ */
+public class BeanTableViewTest extends TestCase{
+    
+    private BeanTable table;
+    
+    public BeanTableViewTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{BeanTableViewTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(BeanTableViewTest.class);
+    }
+    
+    protected void setUp() throws Exception{
+        table = new BeanTable(Item.class);
+        table.setIndex("group", new String[]{"group"});
+        table.setIndex("value", new String[]{"value"});
+        for(int i = 0; i < 100; i++){
+            table.add(new Item("G" + (i % 4), i));
+        }
+    }
+    
+    public void testAnd() throws Exception{
+        Set result = table.createView()
+            .searchBy("G1", "group", null)
+            .and().searchRange(new Integer(10), true, new Integer(30), true, "value", null)
+            .getResultSet();
+        assertEquals(expected(1, 10, 30), result);
+    }
+    
+    public void testOr() throws Exception{
+        Set result = table.createView()
+            .searchBy("G1", "group", null)
+            .or().searchBy("G2", "group", null)
+            .getResultSet();
+        Set expected = expected(1, 0, 99);
+        expected.addAll(expected(2, 0, 99));
+        assertEquals(expected, result);
+    }
+    
+    public void testNot() throws Exception{
+        Set result = table.createView()
+            .searchBy("G1", "group", null)
+            .not()
+            .getResultSet();
+        Set expected = new HashSet(table);
+        expected.removeAll(expected(1, 0, 99));
+        assertEquals(expected, result);
+        assertEquals(0, table.createView().not().getResultSet().size());
+    }
+    
+    public void testXorAndNimp() throws Exception{
+        Set result = table.createView()
+            .searchBy("G1", "group", null)
+            .xor().searchRange(new Integer(0), true, new Integer(49), true, "value", null)
+            .getResultSet();
+        Set expected = expected(-1, 0, 49);
+        expected.removeAll(expected(1, 0, 49));
+        expected.addAll(expected(1, 50, 99));
+        assertEquals(expected, result);
+        
+        result = table.createView()
+            .searchBy("G1", "group", null)
+            .nimp().searchRange(new Integer(0), true, new Integer(49), true, "value", null)
+            .getResultSet();
+        assertEquals(expected(1, 50, 99), result);
+    }
+    
+    public void testViewComposition() throws Exception{
+        BeanTableView g1 = table.createView().searchBy("G1", "group", null);
+        BeanTableView low = table.createView().searchRange(new Integer(0), true, new Integer(49), true, "value", null);
+        Set result = ((BeanTableView)g1.clone()).and(low).getResultSet();
+        assertEquals(expected(1, 0, 49), result);
+        result = ((BeanTableView)g1.clone()).cnimp(low).getResultSet();
+        Set expected = expected(-1, 0, 49);
+        expected.removeAll(expected(1, 0, 49));
+        assertEquals(expected, result);
+        assertEquals(expected(1, 0, 99), g1.getResultSet());
+    }
+    
+    public void testRemoveAndReuse() throws Exception{
+        for(int i = 0; i < 20; i++){
+            table.remove(0);
+        }
+        for(int i = 100; i < 120; i++){
+            table.add(new Item("G" + (i % 4), i));
+        }
+        Set result = table.createView()
+            .searchBy("G3", "group", null)
+            .getResultSet();
+        assertEquals(expected(3, 20, 119), result);
+        result = table.createView()
+            .searchBy("G3", "group", null)
+            .not()
+            .getResultSet();
+        assertEquals(75, result.size());
+    }
+    
+    public void testViewAfterRemoveAndAdd() throws Exception{
+        BeanTableView g1 = table.createView().searchBy("G1", "group", null);
+        Set before = g1.getResultSet();
+        Item removed = null;
+        Iterator itr = table.iterator();
+        while(itr.hasNext()){
+            Item item = (Item)itr.next();
+            if(item.getGroup().equals("G1")){
+                removed = item;
+                break;
+            }
+        }
+        table.remove(removed);
+        Item added = new Item("G2", 200);
+        table.add(added);
+        Set result = g1.getResultSet();
+        assertFalse(result.contains(added));
+        assertFalse(result.contains(removed));
+        before.remove(removed);
+        assertEquals(before, result);
+    }
+    
+    public void testNotAfterRemoveAndAdd() throws Exception{
+        BeanTableView g1 = table.createView().searchBy("G1", "group", null);
+        g1.getResultSet();
+        Item removed = (Item)expected(1, 0, 99).iterator().next();
+        table.remove(removed);
+        Item added = new Item("G2", 200);
+        table.add(added);
+        Set result = g1.not().getResultSet();
+        assertTrue(result.contains(added));
+        assertFalse(result.contains(removed));
+        Set expected = new HashSet(table);
+        expected.removeAll(expected(1, 0, 99));
+        assertEquals(expected, result);
+    }
+    
+    public void testIdReusedAfterChurn() throws Exception{
+        ElementIdMap map = new ElementIdMap();
+        for(int i = 0; i < 10; i++){
+            map.add("e" + i);
+        }
+        ElementBitmap before = map.toBitmap(Arrays.asList(new String[]{"e3", "e4"}));
+        for(int i = 0; i < 10000; i++){
+            map.remove("e" + (i % 10));
+            map.add("n" + i);
+            map.remove("n" + i);
+            map.add("e" + (i % 10));
+        }
+        assertEquals(10, map.size());
+        assertTrue(map.bitmap().getBits().length() <= 10);
+        assertEquals(Collections.EMPTY_SET, map.toSet(before, null));
+        ElementBitmap all = map.bitmap().andNot(before);
+        assertEquals(10, all.size());
+    }
+    
+    private Set expected(int group, int from, int to){
+        Set result = new HashSet();
+        Iterator itr = table.iterator();
+        while(itr.hasNext()){
+            Item item = (Item)itr.next();
+            if((group < 0 || item.getGroup().equals("G" + group))
+                && item.getValue() >= from && item.getValue() <= to){
+                result.add(item);
+            }
+        }
+        return result;
+    }
+    
+    public static class Item{
+        private String group;
+        private int value;
+        public Item(){
+        }
+        public Item(String group, int value){
+            this.group = group;
+            this.value = value;
+        }
+        public String getGroup(){
+            return group;
+        }
+        public void setGroup(String group){
+            this.group = group;
+        }
+        public int getValue(){
+            return value;
+        }
+        public void setValue(int value){
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.aop.interceptor;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.InvocationHandler;
+
+import junit.framework.TestCase;
+
+import jp.ossc.nimbus.core.ServiceManagerFactory;
+import jp.ossc.nimbus.service.aop.Invoker;
+import jp.ossc.nimbus.service.aop.Interceptor;
+import jp.ossc.nimbus.service.aop.InvocationContext;
+import jp.ossc.nimbus.service.aop.DefaultMethodInvocationContext;
+import jp.ossc.nimbus.service.aop.DefaultInterceptorChain;
+import jp.ossc.nimbus.service.aop.DefaultInterceptorChainList;
+import jp.ossc.nimbus.service.beancontrol.interfaces.BeanFlowInvoker;
+
+public class BeanFlowMetricsInterceptorServiceTest extends TestCase{
+    
+    public BeanFlowMetricsInterceptorServiceTest(String arg0) {
+        super(arg0);
+    }
+    
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(BeanFlowMetricsInterceptorServiceTest.class);
+    }
+    
+    public void testHistogram() throws Throwable{
+        ServiceManagerFactory.registerManager("Test");
+        final BeanFlowMetricsInterceptorService interceptor
+             = new BeanFlowMetricsInterceptorService();
+        interceptor.setHistogramEnabled(true);
+        interceptor.setPercentiles(new double[]{50.0d, 99.9d});
+        ServiceManagerFactory.registerService(
+            "Test",
+            "BeanFlowMetricsInterceptor",
+            interceptor
+        );
+        try{
+            ServiceManagerFactory.findManager("Test").createAllService();
+            ServiceManagerFactory.findManager("Test").startAllService();
+            final int[] sleeps = new int[]{10, 10, 10, 10, 10, 10, 10, 10, 10, 200};
+            for(int i = 0; i < sleeps.length; i++){
+                invokeFlow(interceptor, "flow1", sleeps[i]);
+            }
+            final long p50 = interceptor.getValueAtPercentile("flow1", 60000L, 50.0d);
+            final long p999 = interceptor.getValueAtPercentile("flow1", 900000L, 99.9d);
+            assertTrue("p50=" + p50, p50 >= 10 && p50 < 100);
+            assertTrue("p999=" + p999, p999 >= 200);
+            assertEquals(0L, interceptor.getValueAtPercentile("flow2", 60000L, 50.0d));
+            assertEquals(10L, interceptor.getMetricsInfo("flow1").getCount());
+            assertEquals("50.0 percentile performance[ms] in last 1m", interceptor.getHelp("P50_1m"));
+            assertEquals("99.9 percentile performance[ms] in last 15m", interceptor.getHelp("P999_15m"));
+            assertTrue(interceptor.displayMetricsInfo().indexOf("P999_15m") != -1);
+        }finally{
+            ServiceManagerFactory.findManager("Test").stopAllService();
+            ServiceManagerFactory.findManager("Test").destroyAllService();
+            ServiceManagerFactory.unregisterManager("Test");
+        }
+    }
+    
+    public void testHistogramDisabled() throws Throwable{
+        ServiceManagerFactory.registerManager("Test");
+        final BeanFlowMetricsInterceptorService interceptor
+             = new BeanFlowMetricsInterceptorService();
+        interceptor.setPercentiles(new double[]{50.0d, 99.9d});
+        ServiceManagerFactory.registerService(
+            "Test",
+            "BeanFlowMetricsInterceptor",
+            interceptor
+        );
+        try{
+            ServiceManagerFactory.findManager("Test").createAllService();
+            ServiceManagerFactory.findManager("Test").startAllService();
+            invokeFlow(interceptor, "flow1", 10);
+            assertEquals(1L, interceptor.getMetricsInfo("flow1").getCount());
+            assertEquals(0L, interceptor.getValueAtPercentile("flow1", 60000L, 50.0d));
+            assertEquals("P50_1m", interceptor.getHelp("P50_1m"));
+            assertTrue(interceptor.displayMetricsInfo().indexOf("P50_1m") == -1);
+        }finally{
+            ServiceManagerFactory.findManager("Test").stopAllService();
+            ServiceManagerFactory.findManager("Test").destroyAllService();
+            ServiceManagerFactory.unregisterManager("Test");
+        }
+    }
+    
+    private static void invokeFlow(
+        Interceptor interceptor,
+        final String flow,
+        final long sleep
+    ) throws Throwable{
+        final BeanFlowInvoker invoker = (BeanFlowInvoker)Proxy.newProxyInstance(
+            BeanFlowInvoker.class.getClassLoader(),
+            new Class[]{BeanFlowInvoker.class},
+            new InvocationHandler(){
+                public Object invoke(Object proxy, Method method, Object[] args){
+                    if("getFlowName".equals(method.getName())){
+                        return flow;
+                    }
+                    return null;
+                }
+            }
+        );
+        final Method method = BeanFlowInvoker.class.getMethod("invokeFlow", new Class[]{Object.class});
+        new DefaultInterceptorChain(
+            new DefaultInterceptorChainList(
+                new Interceptor[]{interceptor}
+            ),
+            new Invoker(){
+                public Object invoke(InvocationContext context)
+                 throws Throwable{
+                    Thread.sleep(sleep);
+                    return null;
+                }
+            }
+        ).invokeNext(
+            new DefaultMethodInvocationContext(invoker, method, new Object[]{null})
+        );
+    }
+}
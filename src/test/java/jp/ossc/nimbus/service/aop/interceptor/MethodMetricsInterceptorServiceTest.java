@@ -36,8 +36,13 @@ import java.util.Date;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Properties;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.lang.reflect.Method;
 
 import junit.framework.TestCase;
+import junit.framework.AssertionFailedError;
 
 import jp.ossc.nimbus.core.ServiceManagerFactory;
 import jp.ossc.nimbus.core.ServiceName;
@@ -698,4 +703,112 @@ public class MethodMetricsInterceptorServiceTest extends TestCase{
             ServiceManagerFactory.unregisterManager("Test");
         }
     }
-}
\ No newline at end of file
+    
+    public void test7() throws Throwable{
+        ServiceManagerFactory.registerManager("Test");
+        final MethodMetricsInterceptorService interceptor
+             = new MethodMetricsInterceptorService();
+        interceptor.setHistogramEnabled(true);
+        interceptor.setPercentiles(new double[]{50.0d, 99.9d});
+        ServiceManagerFactory.registerService(
+            "Test",
+            "MethodMetricsInterceptor",
+            interceptor
+        );
+        try{
+            ServiceManagerFactory.findManager("Test").createAllService();
+            ServiceManagerFactory.findManager("Test").startAllService();
+            final Method method = HashMap.class.getMethod("get", new Class[]{Object.class});
+            final int[] sleeps = new int[]{10, 10, 10, 10, 10, 10, 10, 10, 10, 200};
+            for(int i = 0; i < sleeps.length; i++){
+                final int sleep = sleeps[i];
+                new DefaultInterceptorChain(
+                    new DefaultInterceptorChainList(
+                        new Interceptor[]{interceptor}
+                    ),
+                    new Invoker(){
+                        public Object invoke(InvocationContext context)
+                         throws Throwable{
+                            Thread.sleep(sleep);
+                            return null;
+                        }
+                    }
+                ).invokeNext(
+                    new DefaultMethodInvocationContext(null, method, null)
+                );
+            }
+            final long p50 = interceptor.getValueAtPercentile(method, 60000L, 50.0d);
+            final long p999 = interceptor.getValueAtPercentile(method, 900000L, 99.9d);
+            assertTrue("p50=" + p50, p50 >= 10 && p50 < 100);
+            assertTrue("p999=" + p999, p999 >= 200);
+            assertEquals("50.0 percentile performance[ms] in last 1m", interceptor.getHelp("P50_1m"));
+            assertNotNull(interceptor.displayMetricsInfo());
+            assertTrue(interceptor.displayMetricsInfo().indexOf("P999_15m") != -1);
+        }finally{
+            ServiceManagerFactory.findManager("Test").stopAllService();
+            ServiceManagerFactory.findManager("Test").destroyAllService();
+            ServiceManagerFactory.unregisterManager("Test");
+        }
+    }
+    
+    public void test8() throws Throwable{
+        ServiceManagerFactory.registerManager("Test");
+        final MethodMetricsInterceptorService interceptor
+             = new MethodMetricsInterceptorService();
+        ServiceManagerFactory.registerService(
+            "Test",
+            "MethodMetricsInterceptor",
+            interceptor
+        );
+        try{
+            ServiceManagerFactory.findManager("Test").createAllService();
+            ServiceManagerFactory.findManager("Test").startAllService();
+            final Method method = HashMap.class.getMethod("get", new Class[]{Object.class});
+            final List errors = Collections.synchronizedList(new ArrayList());
+            final Thread[] threads = new Thread[8];
+            for(int i = 0; i < threads.length; i++){
+                threads[i] = new Thread(){
+                    public void run(){
+                        try{
+                            for(int j = 0; j < 1000; j++){
+                                new DefaultInterceptorChain(
+                                    new DefaultInterceptorChainList(
+                                        new Interceptor[]{interceptor}
+                                    ),
+                                    new Invoker(){
+                                        public Object invoke(InvocationContext context)
+                                         throws Throwable{
+                                            return null;
+                                        }
+                                    }
+                                ).invokeNext(
+                                    new DefaultMethodInvocationContext(null, method, null)
+                                );
+                            }
+                        }catch(Throwable th){
+                            errors.add(th);
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            for(int i = 0; i < threads.length; i++){
+                threads[i].join();
+            }
+            if(errors.size() != 0){
+                final Throwable th = (Throwable)errors.get(0);
+                final AssertionFailedError error = new AssertionFailedError(th.toString());
+                error.initCause(th);
+                throw error;
+            }
+            MetricsInfo info = interceptor.getMetricsInfo(method);
+            assertEquals(8000L, info.getCount());
+            assertEquals(8000L, info.getTotalCount());
+            assertTrue(info.getBestPerformance() <= info.getWorstPerformance());
+        }finally{
+            ServiceManagerFactory.findManager("Test").stopAllService();
+            ServiceManagerFactory.findManager("Test").destroyAllService();
+            ServiceManagerFactory.unregisterManager("Test");
+        }
+    }
+}
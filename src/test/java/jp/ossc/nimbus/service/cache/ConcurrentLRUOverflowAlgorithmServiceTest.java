@@ -0,0 +1,197 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.cache;
+
+import java.util.*;
+
+import junit.framework.*;
+
+/**
+ * 並行LRUあふれアルゴリズムサービステスト。<p>
+ *
+ * @author M.Takata
+ */
+public class ConcurrentLRUOverflowAlgorithmServiceTest extends TestCase{
+    
+    public ConcurrentLRUOverflowAlgorithmServiceTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{ConcurrentLRUOverflowAlgorithmServiceTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(ConcurrentLRUOverflowAlgorithmServiceTest.class);
+    }
+    
+    public void testDefault1() throws Exception{
+        final ConcurrentLRUOverflowAlgorithmService algorithm
+             = new ConcurrentLRUOverflowAlgorithmService();
+        algorithm.create();
+        algorithm.start();
+        for(int i = 0; i < 10; i++){
+            final String str = "TEST" + i;
+            final CachedReference ref = new DefaultCachedReference(str);
+            algorithm.add(ref);
+            if(i > 4){
+                final CachedReference overflow = algorithm.overflow();
+                assertNotNull(overflow);
+                assertEquals("TEST" + (i - 5), overflow.get(this));
+            }
+        }
+        assertEquals(5, algorithm.getOverflowCount());
+        algorithm.stop();
+        algorithm.destroy();
+    }
+    
+    public void testOverflowSize() throws Exception{
+        final ConcurrentLRUOverflowAlgorithmService algorithm
+             = new ConcurrentLRUOverflowAlgorithmService();
+        algorithm.create();
+        algorithm.start();
+        for(int i = 0; i < 10; i++){
+            algorithm.add(new DefaultCachedReference("TEST" + i));
+        }
+        final CachedReference[] overflows = algorithm.overflow(3);
+        assertEquals(3, overflows.length);
+        for(int i = 0; i < overflows.length; i++){
+            assertEquals("TEST" + i, overflows[i].get(this));
+        }
+        assertEquals(7, algorithm.size());
+        assertEquals(7, algorithm.overflow(20).length);
+        assertEquals(0, algorithm.size());
+        algorithm.stop();
+        algorithm.destroy();
+    }
+    
+    public void testAccess() throws Exception{
+        final ConcurrentLRUOverflowAlgorithmService algorithm
+             = new ConcurrentLRUOverflowAlgorithmService();
+        algorithm.create();
+        algorithm.start();
+        final List list = new ArrayList();
+        for(int i = 0; i < 10; i++){
+            final CachedReference ref = new DefaultCachedReference("TEST" + i);
+            algorithm.add(ref);
+            list.add(ref);
+        }
+        for(int i = 0; i < 5; i++){
+            ((CachedReference)list.get(i)).get(this);
+        }
+        for(int i = 0; i < 10; i++){
+            final CachedReference overflow = algorithm.overflow();
+            assertNotNull(overflow);
+            final Object obj = overflow.get(this);
+            if(i < 5){
+                assertEquals("TEST" + (i + 5), obj);
+            }else{
+                assertEquals("TEST" + (i - 5), obj);
+            }
+        }
+        assertNull(algorithm.overflow());
+        algorithm.stop();
+        algorithm.destroy();
+    }
+    
+    public void testRemove() throws Exception{
+        final ConcurrentLRUOverflowAlgorithmService algorithm
+             = new ConcurrentLRUOverflowAlgorithmService();
+        algorithm.create();
+        algorithm.start();
+        final List list = new ArrayList();
+        for(int i = 0; i < 3; i++){
+            final CachedReference ref = new DefaultCachedReference("TEST" + i);
+            algorithm.add(ref);
+            list.add(ref);
+        }
+        ((CachedReference)list.get(0)).remove(this);
+        assertEquals(2, algorithm.size());
+        assertEquals("TEST1", algorithm.overflow().get(this));
+        algorithm.stop();
+        algorithm.destroy();
+    }
+    
+    public void testReset() throws Exception{
+        final ConcurrentLRUOverflowAlgorithmService algorithm
+             = new ConcurrentLRUOverflowAlgorithmService();
+        algorithm.create();
+        algorithm.start();
+        for(int i = 0; i < 10; i++){
+            algorithm.add(new DefaultCachedReference("TEST" + i));
+        }
+        algorithm.reset();
+        assertEquals(0, algorithm.size());
+        assertNull(algorithm.overflow());
+        algorithm.add(new DefaultCachedReference("TEST10"));
+        assertEquals("TEST10", algorithm.overflow().get(this));
+        algorithm.stop();
+        algorithm.destroy();
+    }
+    
+    public void testConcurrentAccess() throws Exception{
+        final ConcurrentLRUOverflowAlgorithmService algorithm
+             = new ConcurrentLRUOverflowAlgorithmService();
+        algorithm.setAccessBufferSize(16);
+        algorithm.create();
+        algorithm.start();
+        final CachedReference[] refs = new CachedReference[100];
+        for(int i = 0; i < refs.length; i++){
+            refs[i] = new DefaultCachedReference("TEST" + i);
+            algorithm.add(refs[i]);
+        }
+        final Thread[] threads = new Thread[8];
+        for(int i = 0; i < threads.length; i++){
+            threads[i] = new Thread(){
+                public void run(){
+                    for(int j = 0; j < 10000; j++){
+                        refs[j % refs.length].get(this);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for(int i = 0; i < threads.length; i++){
+            threads[i].join();
+        }
+        final Set overflows = new HashSet();
+        CachedReference overflow = null;
+        while((overflow = algorithm.overflow()) != null){
+            overflows.add(overflow);
+        }
+        assertEquals(refs.length, overflows.size());
+        algorithm.stop();
+        algorithm.destroy();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.cache;
+
+import java.util.*;
+
+import junit.framework.*;
+
+/**
+ * 並行メモリキャッシュマップサービステスト。<p>
+ *
+ * @author M.Takata
+ */
+public class ConcurrentMemoryCacheMapServiceTest extends AbstractCacheMapServiceTest{
+    
+    public ConcurrentMemoryCacheMapServiceTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{ConcurrentMemoryCacheMapServiceTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(ConcurrentMemoryCacheMapServiceTest.class);
+    }
+    
+    protected AbstractCacheMapService createCacheMapService(){
+        return new ConcurrentMemoryCacheMapService();
+    }
+    
+    public void testConcurrentPut() throws Exception{
+        final AbstractCacheMapService cacheMap = createCacheMapService();
+        final int keySize = 10;
+        final int threadSize = 8;
+        final int putCount = 2000;
+        final List newKeyPuts = Collections.synchronizedList(new ArrayList());
+        final Set oldValues = Collections.synchronizedSet(new HashSet());
+        final List duplicateValues = Collections.synchronizedList(new ArrayList());
+        try{
+            cacheMap.create();
+            cacheMap.start();
+            Thread[] threads = new Thread[threadSize];
+            for(int i = 0; i < threadSize; i++){
+                final int threadNo = i;
+                threads[i] = new Thread(){
+                    public void run(){
+                        for(int j = 0; j < putCount; j++){
+                            Integer key = new Integer(j % keySize);
+                            Object oldVal = cacheMap.put(key, threadNo + "-" + j);
+                            if(oldVal == null){
+                                newKeyPuts.add(key);
+                            }else if(!oldValues.add(oldVal)){
+                                duplicateValues.add(oldVal);
+                            }
+                        }
+                    }
+                };
+            }
+            for(int i = 0; i < threadSize; i++){
+                threads[i].start();
+            }
+            for(int i = 0; i < threadSize; i++){
+                threads[i].join();
+            }
+            assertEquals(keySize, cacheMap.size());
+            assertEquals(keySize, newKeyPuts.size());
+            assertEquals(0, duplicateValues.size());
+            assertEquals(threadSize * putCount - keySize, oldValues.size());
+        }finally{
+            cacheMap.stop();
+            cacheMap.destroy();
+        }
+    }
+}
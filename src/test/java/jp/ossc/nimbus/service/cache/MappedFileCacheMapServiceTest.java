@@ -0,0 +1,356 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.cache;
+
+import java.io.*;
+import java.util.*;
+
+import junit.framework.*;
+
+import jp.ossc.nimbus.core.*;
+
+/**
+ * メモリマップドファイルキャッシュマップサービステスト。<p>
+ *
+ * @author M.Takata
+ */
+public class MappedFileCacheMapServiceTest extends AbstractCacheMapServiceTest{
+    
+    public MappedFileCacheMapServiceTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{MappedFileCacheMapServiceTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(MappedFileCacheMapServiceTest.class);
+    }
+    
+    protected AbstractCacheMapService createCacheMapService(){
+        MappedFileCacheMapService cacheMap = new MappedFileCacheMapService();
+        cacheMap.setOutputDirectory("target/temp/cache/mappedfilecache");
+        cacheMap.setSegmentSize(64 * 1024);
+        return cacheMap;
+    }
+    
+    public void testOutputDirectory() throws Exception{
+        final MappedFileCacheMapService cacheMap
+             = (MappedFileCacheMapService)createCacheMapService();
+        try{
+            cacheMap.create();
+            cacheMap.setOutputPrefix("testOutputDirectory_");
+            cacheMap.start();
+            for(int i = 0; i < 100; i++){
+                cacheMap.put(new Integer(i), "TEST" + i);
+            }
+            assertEquals(1, cacheMap.getSegmentCount());
+            assertEquals(1, listSegmentFiles("testOutputDirectory_").length);
+            assertEquals("TEST50", cacheMap.get(new Integer(50)));
+            cacheMap.stop();
+            assertTrue(cacheMap.containsKey(new Integer(0)));
+            cacheMap.destroy();
+            assertFalse(cacheMap.containsKey(new Integer(0)));
+            assertEquals(0, listSegmentFiles("testOutputDirectory_").length);
+        }finally{
+            cacheMap.destroy();
+        }
+    }
+    
+    public void testSegmentAllocation() throws Exception{
+        final MappedFileCacheMapService cacheMap
+             = (MappedFileCacheMapService)createCacheMapService();
+        try{
+            cacheMap.create();
+            cacheMap.setSegmentSize(4 * 1024);
+            cacheMap.setCompactionThreshold(0.0f);
+            cacheMap.start();
+            final byte[] value = new byte[1000];
+            for(int i = 0; i < 10; i++){
+                value[0] = (byte)i;
+                cacheMap.put(new Integer(i), value.clone());
+            }
+            assertTrue(cacheMap.getSegmentCount() > 1);
+            for(int i = 0; i < 10; i++){
+                assertEquals((byte)i, ((byte[])cacheMap.get(new Integer(i)))[0]);
+            }
+            final byte[] large = new byte[10 * 1024];
+            cacheMap.put("large", large);
+            assertEquals(large.length, ((byte[])cacheMap.get("large")).length);
+            assertTrue(cacheMap.getMappedSize() >= 10 * 1024);
+        }finally{
+            cacheMap.destroy();
+        }
+    }
+    
+    public void testCompact() throws Exception{
+        final MappedFileCacheMapService cacheMap
+             = (MappedFileCacheMapService)createCacheMapService();
+        try{
+            cacheMap.create();
+            cacheMap.setSegmentSize(4 * 1024);
+            cacheMap.setCompactionThreshold(0.0f);
+            cacheMap.start();
+            final byte[] value = new byte[500];
+            for(int i = 0; i < 40; i++){
+                value[0] = (byte)i;
+                cacheMap.put(new Integer(i), value.clone());
+            }
+            final int segmentCount = cacheMap.getSegmentCount();
+            for(int i = 0; i < 40; i += 2){
+                cacheMap.remove(new Integer(i));
+            }
+            assertTrue(cacheMap.getUsedSize() > cacheMap.getLiveSize());
+            final long liveSize = cacheMap.getLiveSize();
+            cacheMap.compact();
+            assertEquals(1, cacheMap.getCompactionCount());
+            assertEquals(liveSize, cacheMap.getLiveSize());
+            assertEquals(segmentCount, cacheMap.getSegmentCount());
+            assertTrue(cacheMap.getUsedSize() < segmentCount * 4 * 1024);
+            for(int i = 1; i < 40; i += 2){
+                assertEquals((byte)i, ((byte[])cacheMap.get(new Integer(i)))[0]);
+            }
+            for(int i = 0; i < 40; i += 2){
+                value[0] = (byte)i;
+                cacheMap.put(new Integer(i), value.clone());
+            }
+            assertEquals(segmentCount, cacheMap.getSegmentCount());
+            for(int i = 0; i < 40; i++){
+                assertEquals((byte)i, ((byte[])cacheMap.get(new Integer(i)))[0]);
+            }
+        }finally{
+            cacheMap.destroy();
+        }
+    }
+    
+    public void testAutoCompaction() throws Exception{
+        final MappedFileCacheMapService cacheMap
+             = (MappedFileCacheMapService)createCacheMapService();
+        try{
+            cacheMap.create();
+            cacheMap.setSegmentSize(4 * 1024);
+            cacheMap.setCompactionThreshold(0.5f);
+            cacheMap.start();
+            final byte[] value = new byte[500];
+            for(int i = 0; i < 1000; i++){
+                value[0] = (byte)i;
+                cacheMap.put(new Integer(i % 10), value.clone());
+            }
+            assertTrue(cacheMap.getSegmentCount() <= 3);
+            for(int i = 0; i < 10; i++){
+                assertEquals((byte)(990 + i), ((byte[])cacheMap.get(new Integer(i)))[0]);
+            }
+        }finally{
+            cacheMap.destroy();
+        }
+    }
+    
+    public void testCompactionOnFree() throws Exception{
+        final MappedFileCacheMapService cacheMap
+             = (MappedFileCacheMapService)createCacheMapService();
+        try{
+            cacheMap.create();
+            cacheMap.setSegmentSize(4 * 1024);
+            cacheMap.setCompactionThreshold(0.5f);
+            cacheMap.start();
+            final byte[] value = new byte[500];
+            for(int i = 0; i < 6; i++){
+                value[0] = (byte)i;
+                cacheMap.put(new Integer(i), value.clone());
+            }
+            assertEquals(1, cacheMap.getSegmentCount());
+            assertEquals(0, cacheMap.getCompactionCount());
+            cacheMap.remove(new Integer(0));
+            cacheMap.remove(new Integer(1));
+            assertEquals(0, cacheMap.getCompactionCount());
+            // セグメントが一杯になる前でも、無効領域の割合が閾値に達した時点で回収される
+            cacheMap.remove(new Integer(2));
+            assertEquals(1, cacheMap.getCompactionCount());
+            assertEquals(cacheMap.getLiveSize(), cacheMap.getUsedSize());
+            for(int i = 3; i < 6; i++){
+                assertEquals((byte)i, ((byte[])cacheMap.get(new Integer(i)))[0]);
+            }
+        }finally{
+            cacheMap.destroy();
+        }
+    }
+    
+    public void testSerializeFailure() throws Exception{
+        final MappedFileCacheMapService cacheMap
+             = (MappedFileCacheMapService)createCacheMapService();
+        try{
+            cacheMap.create();
+            cacheMap.start();
+            cacheMap.put("KEY", "TEST");
+            cacheMap.put("NOT_SERIALIZABLE", new Object());
+            assertFalse(cacheMap.containsKey("NOT_SERIALIZABLE"));
+            assertNull(cacheMap.getCachedReference("NOT_SERIALIZABLE"));
+            assertEquals(1, cacheMap.size());
+            assertEquals("TEST", cacheMap.get("KEY"));
+        }finally{
+            cacheMap.destroy();
+        }
+    }
+    
+    public void testSet() throws Exception{
+        final MappedFileCacheMapService cacheMap
+             = (MappedFileCacheMapService)createCacheMapService();
+        try{
+            cacheMap.create();
+            cacheMap.start();
+            cacheMap.put("KEY", "TEST1");
+            final KeyCachedReference ref = cacheMap.getCachedReference("KEY");
+            final long liveSize = cacheMap.getLiveSize();
+            ref.set("TEST2");
+            assertEquals("TEST2", ref.get());
+            assertEquals(liveSize, cacheMap.getLiveSize());
+            ref.set(null);
+            assertEquals(0, cacheMap.getLiveSize());
+            ref.remove();
+            assertTrue(ref.isRemoved());
+            assertNull(ref.get());
+        }finally{
+            cacheMap.destroy();
+        }
+    }
+    
+    public void testSerialize() throws Exception{
+        final MappedFileCacheMapService cacheMap
+             = (MappedFileCacheMapService)createCacheMapService();
+        try{
+            cacheMap.create();
+            cacheMap.start();
+            cacheMap.put("KEY", "TEST");
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            final ObjectOutputStream oos = new ObjectOutputStream(baos);
+            oos.writeObject(cacheMap.getCachedReference("KEY"));
+            oos.flush();
+            final ObjectInputStream ois = new ObjectInputStream(
+                new ByteArrayInputStream(baos.toByteArray())
+            );
+            final KeyCachedReference ref = (KeyCachedReference)ois.readObject();
+            assertEquals("KEY", ref.getKey());
+            assertEquals("TEST", ref.get());
+        }finally{
+            cacheMap.destroy();
+        }
+    }
+    
+    public void testStoreCacheOverflowAction() throws Exception{
+        final MappedFileCacheMapService storeMap
+             = (MappedFileCacheMapService)createCacheMapService();
+        final MemoryCacheMapService cacheMap = new MemoryCacheMapService();
+        final CacheSizeOverflowValidatorService validator
+             = new CacheSizeOverflowValidatorService();
+        final LRUOverflowAlgorithmService algorithm
+             = new LRUOverflowAlgorithmService();
+        final StoreCacheOverflowActionService action
+             = new StoreCacheOverflowActionService();
+        final DefaultOverflowControllerService controller
+             = new DefaultOverflowControllerService();
+        final DefaultServiceManagerService manager
+            = new DefaultServiceManagerService();
+        manager.setServiceName("TestManager");
+        ServiceManagerFactory.registerManager(
+            "TestManager",
+            manager
+        );
+        ServiceManagerFactory.registerService(
+            "TestManager",
+            "StoreCacheOverflowAction",
+            action
+        );
+        try{
+            manager.create();
+            manager.start();
+            storeMap.create();
+            storeMap.start();
+            validator.create();
+            validator.setMaxSize(10);
+            validator.start();
+            algorithm.create();
+            algorithm.start();
+            action.create();
+            action.setCacheMap(storeMap);
+            action.start();
+            controller.create();
+            controller.setOverflowValidator(validator);
+            controller.setOverflowAlgorithm(algorithm);
+            controller.setOverflowActionServiceName(
+                new ServiceName("TestManager", "StoreCacheOverflowAction")
+            );
+            controller.start();
+            cacheMap.create();
+            final List controllers = new ArrayList();
+            controllers.add(controller);
+            cacheMap.setOverflowControllers(controllers);
+            cacheMap.start();
+            
+            for(int i = 0; i < 30; i++){
+                cacheMap.put(new Integer(i), "TEST" + i);
+            }
+            assertEquals(30, cacheMap.size());
+            assertEquals(20, storeMap.size());
+            assertTrue(storeMap.getLiveSize() > 0);
+            assertEquals("TEST0", cacheMap.get(new Integer(0)));
+            assertEquals(20, storeMap.size());
+            for(int i = 0; i < 30; i++){
+                assertEquals("TEST" + i, cacheMap.get(new Integer(i)));
+            }
+            cacheMap.remove(new Integer(1));
+            assertEquals(29, cacheMap.size());
+        }finally{
+            cacheMap.stop();
+            cacheMap.destroy();
+            controller.stop();
+            controller.destroy();
+            action.stop();
+            action.destroy();
+            storeMap.stop();
+            storeMap.destroy();
+            ServiceManagerFactory.unregisterManager("TestManager");
+        }
+    }
+    
+    private File[] listSegmentFiles(final String prefix){
+        return new File("target/temp/cache/mappedfilecache").listFiles(
+            new FilenameFilter(){
+                public boolean accept(File dir, String name){
+                    return name.startsWith(prefix);
+                }
+            }
+        );
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.cache;
+
+import java.util.*;
+
+/**
+ * あふれアルゴリズムサービスのベンチマーク。<p>
+ * Zipf分布に従うキーで複数スレッドからキャッシュマップにアクセスし、キャッシュが存在しない場合は追加する処理を行って、各あふれアルゴリズムのヒット率とスループットを比較する。<br>
+ * 単体テストとしては実行されないため、{@link #main(String[])}で実行する。引数でキー数、キャッシュサイズ、アクセス回数、スレッド数、計測時間[ms]を指定できる。<br>
+ *
+ * @author M.Takata
+ * @see OverflowAlgorithmHitRateTest
+ */
+public class OverflowAlgorithmBenchmark{
+    
+    public static void main(String[] theArgs) throws Exception{
+        final int keySize = theArgs.length > 0 ? Integer.parseInt(theArgs[0]) : 100000;
+        final int cacheSize = theArgs.length > 1 ? Integer.parseInt(theArgs[1]) : 1000;
+        final int accessCount = theArgs.length > 2 ? Integer.parseInt(theArgs[2]) : 1000000;
+        final int threadSize = theArgs.length > 3 ? Integer.parseInt(theArgs[3]) : 16;
+        final long time = theArgs.length > 4 ? Long.parseLong(theArgs[4]) : 10000l;
+        final OverflowAlgorithmHitRateTest.ZipfGenerator generator
+             = new OverflowAlgorithmHitRateTest.ZipfGenerator(keySize, 0.99d);
+        final String[] algorithms = OverflowAlgorithmHitRateTest.ALGORITHMS;
+        for(int i = 0; i < algorithms.length; i++){
+            final double hitRate = OverflowAlgorithmHitRateTest.measureHitRate(algorithms[i], generator, cacheSize, accessCount);
+            final double throughput = measureThroughput(algorithms[i], generator, cacheSize, threadSize, time);
+            System.out.println(
+                algorithms[i] + " : hitRate=" + hitRate
+                    + ", throughput=" + (long)throughput + "[ops/s]"
+            );
+        }
+    }
+    
+    private static double measureThroughput(
+        String algorithmName,
+        final OverflowAlgorithmHitRateTest.ZipfGenerator generator,
+        int cacheSize,
+        int threadSize,
+        long time
+    ) throws Exception{
+        final CacheMap cacheMap = OverflowAlgorithmHitRateTest.createCacheMap(algorithmName, cacheSize);
+        final long[] counts = new long[threadSize];
+        final Thread[] threads = new Thread[threadSize];
+        final long startTime = System.currentTimeMillis();
+        final long endTime = startTime + time;
+        for(int i = 0; i < threads.length; i++){
+            final int index = i;
+            threads[i] = new Thread(){
+                public void run(){
+                    final Random random = new Random(index);
+                    long count = 0;
+                    while(System.currentTimeMillis() < endTime){
+                        for(int j = 0; j < 100; j++){
+                            final Integer key = new Integer(generator.next(random));
+                            if(cacheMap.get(key) == null){
+                                cacheMap.put(key, key);
+                            }
+                        }
+                        count += 100;
+                    }
+                    counts[index] = count;
+                }
+            };
+            threads[i].start();
+        }
+        long total = 0;
+        for(int i = 0; i < threads.length; i++){
+            threads[i].join();
+            total += counts[i];
+        }
+        final long elapsed = System.currentTimeMillis() - startTime;
+        ((jp.ossc.nimbus.core.Service)cacheMap).destroy();
+        return total * 1000.0d / elapsed;
+    }
+}
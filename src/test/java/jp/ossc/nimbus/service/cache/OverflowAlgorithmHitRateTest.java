@@ -0,0 +1,207 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.cache;
+
+import java.util.*;
+
+import junit.framework.*;
+
+/**
+ * あふれアルゴリズムサービスのヒット率テスト。<p>
+ * Zipf分布に従うキーでキャッシュマップにアクセスし、キャッシュが存在しない場合は追加する処理を行って、各あふれアルゴリズムのヒット率と、複数スレッドでアクセスした場合のキャッシュサイズを検証する。<br>
+ *
+ * @author M.Takata
+ */
+public class OverflowAlgorithmHitRateTest extends TestCase{
+    
+    static final String[] ALGORITHMS = new String[]{
+        "FIFO", "LRU", "LFU", "ConcurrentLRU", "TinyLFU"
+    };
+    
+    public OverflowAlgorithmHitRateTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{OverflowAlgorithmHitRateTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(OverflowAlgorithmHitRateTest.class);
+    }
+    
+    public void testHitRate() throws Exception{
+        final ZipfGenerator generator = new ZipfGenerator(10000, 0.99d);
+        final Map hitRates = new HashMap();
+        for(int i = 0; i < ALGORITHMS.length; i++){
+            final double hitRate = measureHitRate(ALGORITHMS[i], generator, 100, 50000);
+            hitRates.put(ALGORITHMS[i], new Double(hitRate));
+            assertTrue(ALGORITHMS[i] + " : hitRate=" + hitRate, hitRate > 0.0d && hitRate < 1.0d);
+        }
+        // 頻度を考慮するTinyLFUは、到着順のFIFOや最終参照のLRUよりもヒット率が高くなる
+        final double tinyLFU = ((Double)hitRates.get("TinyLFU")).doubleValue();
+        assertTrue(hitRates.toString(), tinyLFU > ((Double)hitRates.get("FIFO")).doubleValue());
+        assertTrue(hitRates.toString(), tinyLFU > ((Double)hitRates.get("LRU")).doubleValue());
+    }
+    
+    public void testConcurrentAccess() throws Exception{
+        final ZipfGenerator generator = new ZipfGenerator(10000, 0.99d);
+        for(int i = 0; i < ALGORITHMS.length; i++){
+            final CacheMap cacheMap = createCacheMap(ALGORITHMS[i], 100);
+            final List errors = Collections.synchronizedList(new ArrayList());
+            final Thread[] threads = new Thread[4];
+            for(int j = 0; j < threads.length; j++){
+                final int index = j;
+                threads[j] = new Thread(){
+                    public void run(){
+                        try{
+                            final Random random = new Random(index);
+                            for(int k = 0; k < 20000; k++){
+                                final Integer key = new Integer(generator.next(random));
+                                final Object value = cacheMap.get(key);
+                                if(value == null){
+                                    cacheMap.put(key, key);
+                                }else if(!key.equals(value)){
+                                    throw new AssertionFailedError("key=" + key + ", value=" + value);
+                                }
+                            }
+                        }catch(Throwable th){
+                            errors.add(th);
+                        }
+                    }
+                };
+                threads[j].start();
+            }
+            for(int j = 0; j < threads.length; j++){
+                threads[j].join();
+            }
+            if(errors.size() != 0){
+                final Throwable th = (Throwable)errors.get(0);
+                final AssertionFailedError error = new AssertionFailedError(ALGORITHMS[i] + " : " + th);
+                error.initCause(th);
+                throw error;
+            }
+            assertTrue(ALGORITHMS[i] + " : size=" + cacheMap.size(), cacheMap.size() <= 100);
+            ((jp.ossc.nimbus.core.Service)cacheMap).destroy();
+        }
+    }
+    
+    private static OverflowAlgorithm createAlgorithm(String name) throws Exception{
+        OverflowAlgorithm algorithm = null;
+        if("FIFO".equals(name)){
+            algorithm = new FIFOOverflowAlgorithmService();
+        }else if("LRU".equals(name)){
+            algorithm = new LRUOverflowAlgorithmService();
+        }else if("LFU".equals(name)){
+            algorithm = new LFUOverflowAlgorithmService();
+        }else if("ConcurrentLRU".equals(name)){
+            algorithm = new ConcurrentLRUOverflowAlgorithmService();
+        }else{
+            algorithm = new TinyLFUOverflowAlgorithmService();
+        }
+        ((jp.ossc.nimbus.core.Service)algorithm).create();
+        ((jp.ossc.nimbus.core.Service)algorithm).start();
+        return algorithm;
+    }
+    
+    static CacheMap createCacheMap(String algorithmName, int cacheSize) throws Exception{
+        final CacheSizeOverflowValidatorService validator
+             = new CacheSizeOverflowValidatorService();
+        validator.create();
+        validator.setMaxSize(cacheSize);
+        validator.start();
+        final DefaultOverflowControllerService controller
+             = new DefaultOverflowControllerService();
+        controller.create();
+        controller.setOverflowValidator(validator);
+        controller.setOverflowAlgorithm(createAlgorithm(algorithmName));
+        controller.start();
+        final ConcurrentMemoryCacheMapService cacheMap
+             = new ConcurrentMemoryCacheMapService();
+        cacheMap.setLoadOnStart(false);
+        cacheMap.setSaveOnStop(false);
+        cacheMap.create();
+        final List controllers = new ArrayList();
+        controllers.add(controller);
+        cacheMap.setOverflowControllers(controllers);
+        cacheMap.start();
+        return cacheMap;
+    }
+    
+    static double measureHitRate(
+        String algorithmName,
+        ZipfGenerator generator,
+        int cacheSize,
+        int accessCount
+    ) throws Exception{
+        final CacheMap cacheMap = createCacheMap(algorithmName, cacheSize);
+        final Random random = new Random(0);
+        long hit = 0;
+        for(int i = 0; i < accessCount; i++){
+            final Integer key = new Integer(generator.next(random));
+            if(cacheMap.get(key) == null){
+                cacheMap.put(key, key);
+            }else{
+                hit++;
+            }
+        }
+        ((jp.ossc.nimbus.core.Service)cacheMap).destroy();
+        return (double)hit / accessCount;
+    }
+    
+    static class ZipfGenerator{
+        
+        private final double[] cumulative;
+        
+        public ZipfGenerator(int size, double skew){
+            cumulative = new double[size];
+            double sum = 0.0d;
+            for(int i = 0; i < size; i++){
+                sum += 1.0d / Math.pow(i + 1, skew);
+                cumulative[i] = sum;
+            }
+            for(int i = 0; i < size; i++){
+                cumulative[i] /= sum;
+            }
+        }
+        
+        public int next(Random random){
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            if(index < 0){
+                index = -index - 1;
+            }
+            return Math.min(index, cumulative.length - 1);
+        }
+    }
+}
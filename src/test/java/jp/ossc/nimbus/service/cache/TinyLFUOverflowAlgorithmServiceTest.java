@@ -0,0 +1,170 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.cache;
+
+import java.util.*;
+
+import junit.framework.*;
+
+/**
+ * TinyLFUあふれアルゴリズムサービステスト。<p>
+ *
+ * @author M.Takata
+ */
+public class TinyLFUOverflowAlgorithmServiceTest extends TestCase{
+    
+    public TinyLFUOverflowAlgorithmServiceTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{TinyLFUOverflowAlgorithmServiceTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(TinyLFUOverflowAlgorithmServiceTest.class);
+    }
+    
+    public void testDefault() throws Exception{
+        final TinyLFUOverflowAlgorithmService algorithm
+             = new TinyLFUOverflowAlgorithmService();
+        algorithm.create();
+        algorithm.start();
+        for(int i = 0; i < 10; i++){
+            algorithm.add(new DefaultKeyCachedReference("KEY" + i, "TEST" + i));
+        }
+        assertEquals(10, algorithm.size());
+        final Set overflows = new HashSet();
+        CachedReference overflow = null;
+        while((overflow = algorithm.overflow()) != null){
+            overflows.add(overflow.get(this));
+        }
+        assertEquals(10, overflows.size());
+        assertEquals(0, algorithm.size());
+        assertEquals(10, algorithm.getOverflowCount());
+        algorithm.stop();
+        algorithm.destroy();
+    }
+    
+    public void testFrequentlyAccessedSurvive() throws Exception{
+        final TinyLFUOverflowAlgorithmService algorithm
+             = new TinyLFUOverflowAlgorithmService();
+        algorithm.create();
+        algorithm.start();
+        final List hot = new ArrayList();
+        for(int i = 0; i < 10; i++){
+            final CachedReference ref
+                 = new DefaultKeyCachedReference("HOT" + i, "HOT" + i);
+            algorithm.add(ref);
+            hot.add(ref);
+        }
+        algorithm.add(new DefaultKeyCachedReference("COLD", "COLD"));
+        for(int j = 0; j < 5; j++){
+            for(int i = 0; i < hot.size(); i++){
+                ((CachedReference)hot.get(i)).get(this);
+            }
+        }
+        // 一度しかアクセスされないキャッシュを大量に追加しても、頻繁にアクセスされるキャッシュはあふれない
+        for(int i = 0; i < 1000; i++){
+            algorithm.add(new DefaultKeyCachedReference("COLD" + i, "COLD" + i));
+            final CachedReference overflow = algorithm.overflow();
+            assertNotNull(overflow);
+            assertTrue(
+                overflow.get(this).toString(),
+                overflow.get(this).toString().startsWith("COLD")
+            );
+        }
+        assertEquals(11, algorithm.size());
+        algorithm.stop();
+        algorithm.destroy();
+    }
+    
+    public void testFrequencyKeptOnExpand() throws Exception{
+        final TinyLFUOverflowAlgorithmService algorithm
+             = new TinyLFUOverflowAlgorithmService();
+        algorithm.setExpectedSize(16);
+        algorithm.create();
+        algorithm.start();
+        final CachedReference hot = new DefaultKeyCachedReference("HOT", "HOT");
+        algorithm.add(hot);
+        for(int i = 0; i < 8; i++){
+            hot.get(this);
+        }
+        // 想定キャッシュ数を超えて追加し、参照頻度の記録領域を拡張させる
+        for(int i = 0; i < 20; i++){
+            algorithm.add(new DefaultKeyCachedReference("COLD" + i, "COLD" + i));
+        }
+        algorithm.add(new DefaultKeyCachedReference("NEW", "NEW"));
+        // 拡張前の参照頻度が引き継がれていれば、受け入れ候補の方があふれる
+        final CachedReference overflow = algorithm.overflow();
+        assertNotNull(overflow);
+        assertEquals("COLD19", overflow.get(this));
+        assertEquals(21, algorithm.size());
+        algorithm.stop();
+        algorithm.destroy();
+    }
+    
+    public void testRemove() throws Exception{
+        final TinyLFUOverflowAlgorithmService algorithm
+             = new TinyLFUOverflowAlgorithmService();
+        algorithm.create();
+        algorithm.start();
+        final CachedReference ref1 = new DefaultKeyCachedReference("KEY1", "TEST1");
+        final CachedReference ref2 = new DefaultKeyCachedReference("KEY2", "TEST2");
+        algorithm.add(ref1);
+        algorithm.add(ref2);
+        ref1.remove(this);
+        assertEquals(1, algorithm.size());
+        assertEquals("TEST2", algorithm.overflow().get(this));
+        assertNull(algorithm.overflow());
+        algorithm.stop();
+        algorithm.destroy();
+    }
+    
+    public void testReset() throws Exception{
+        final TinyLFUOverflowAlgorithmService algorithm
+             = new TinyLFUOverflowAlgorithmService();
+        algorithm.create();
+        algorithm.start();
+        for(int i = 0; i < 10; i++){
+            algorithm.add(new DefaultKeyCachedReference("KEY" + i, "TEST" + i));
+        }
+        algorithm.reset();
+        assertEquals(0, algorithm.size());
+        assertEquals(0, algorithm.getWindowSize());
+        assertNull(algorithm.overflow());
+        algorithm.stop();
+        algorithm.destroy();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import junit.framework.*;
+
+/**
+ * {@link ConsistentHashSharedContextKeyDistributorService}テスト。<p>
+ *
+ * @author M.Takata
+ */
+public class ConsistentHashSharedContextKeyDistributorServiceTest extends TestCase{
+    
+    private static final int KEY_SIZE = 100000;
+    
+    public ConsistentHashSharedContextKeyDistributorServiceTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{ConsistentHashSharedContextKeyDistributorServiceTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(ConsistentHashSharedContextKeyDistributorServiceTest.class);
+    }
+    
+    public void testBalance() throws Exception{
+        ConsistentHashSharedContextKeyDistributorService distributor = createDistributor();
+        final int distributedSize = 10;
+        int[] counts = new int[distributedSize];
+        for(int i = 0; i < KEY_SIZE; i++){
+            counts[distributor.selectDataNodeIndex("key" + i, distributedSize)]++;
+        }
+        final int average = KEY_SIZE / distributedSize;
+        for(int i = 0; i < distributedSize; i++){
+            assertTrue("index=" + i + ", count=" + counts[i], Math.abs(counts[i] - average) < average * 0.2d);
+        }
+        assertEquals(0, distributor.selectDataNodeIndex("key", 1));
+    }
+    
+    public void testIncreaseDistributedSize() throws Exception{
+        ConsistentHashSharedContextKeyDistributorService distributor = createDistributor();
+        final int distributedSize = 10;
+        int moved = 0;
+        for(int i = 0; i < KEY_SIZE; i++){
+            final String key = "key" + i;
+            final int before = distributor.selectDataNodeIndex(key, distributedSize);
+            final int after = distributor.selectDataNodeIndex(key, distributedSize + 1);
+            if(before != after){
+                assertEquals(distributedSize, after);
+                moved++;
+            }
+        }
+        final int expected = KEY_SIZE / (distributedSize + 1);
+        assertTrue("moved=" + moved, Math.abs(moved - expected) < expected * 0.2d);
+    }
+    
+    public void testKeyProperty() throws Exception{
+        ConsistentHashSharedContextKeyDistributorService distributor = createDistributor();
+        distributor.setKeyProperty("length");
+        assertEquals(
+            distributor.selectDataNodeIndex("abc", 8),
+            distributor.selectDataNodeIndex("xyz", 8)
+        );
+    }
+    
+    private ConsistentHashSharedContextKeyDistributorService createDistributor() throws Exception{
+        ConsistentHashSharedContextKeyDistributorService distributor = new ConsistentHashSharedContextKeyDistributorService();
+        distributor.create();
+        distributor.start();
+        return distributor;
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import java.util.*;
+import java.sql.Connection;
+import java.lang.reflect.*;
+
+import junit.framework.*;
+
+import jp.ossc.nimbus.service.connection.ConnectionFactory;
+import jp.ossc.nimbus.service.connection.PersistentManager;
+import jp.ossc.nimbus.service.connection.PersistentException;
+
+/**
+ * {@link DatabaseContextStoreService}のパーティション読み込みテスト。<p>
+ *
+ * @author M.Takata
+ */
+public class DatabaseContextStoreServiceTest extends TestCase{
+    
+    private static final int ROW_COUNT = 10;
+    
+    public DatabaseContextStoreServiceTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{DatabaseContextStoreServiceTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(DatabaseContextStoreServiceTest.class);
+    }
+    
+    private static ConnectionFactory createConnectionFactory(){
+        final Connection con = (Connection)Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class[]{Connection.class},
+            new InvocationHandler(){
+                public Object invoke(Object proxy, Method method, Object[] args){
+                    if("isClosed".equals(method.getName())){
+                        return Boolean.FALSE;
+                    }
+                    return null;
+                }
+            }
+        );
+        return new ConnectionFactory(){
+            public Connection getConnection(){
+                return con;
+            }
+        };
+    }
+    
+    private static Context createContext() throws Exception{
+        DefaultContextService context = new DefaultContextService();
+        context.create();
+        context.start();
+        return context;
+    }
+    
+    private static DatabaseContextStoreService.DatabaseMapping createMapping(){
+        DatabaseContextStoreService.DatabaseMapping mapping = new DatabaseContextStoreService.DatabaseMapping();
+        mapping.setPartitionSelectQuery("select * from T where ...");
+        mapping.setKeyLoadPropertyName("id");
+        mapping.setUniqueKey(true);
+        return mapping;
+    }
+    
+    public void testLoadPartitionByRangeBounds() throws Exception{
+        TestPersistentManager pm = new TestPersistentManager(-1);
+        DatabaseContextStoreService.DatabaseMapping mapping = createMapping();
+        mapping.setPartitionRangeBounds(new Object[]{new Integer(0), new Integer(3), new Integer(7), new Integer(ROW_COUNT)});
+        Context context = createContext();
+        mapping.load(context, createConnectionFactory(), pm.createProxy());
+        
+        assertEquals(3, mapping.getLoadPartitionCount());
+        assertEquals(3, mapping.getLoadedPartitionCount());
+        assertEquals(ROW_COUNT, context.size());
+        for(int i = 0; i < ROW_COUNT; i++){
+            assertEquals(new Integer(i), ((Map)context.get(new Integer(i))).get("id"));
+        }
+        assertEquals(3, pm.inputs.size());
+        Map[] inputs = pm.sortedInputs();
+        int[][] bounds = new int[][]{{0, 3}, {3, 7}, {7, ROW_COUNT}};
+        for(int i = 0; i < inputs.length; i++){
+            assertEquals(new Integer(i), inputs[i].get(DatabaseContextStoreService.DatabaseMapping.PARTITION_INPUT_PARTITION));
+            assertEquals(new Integer(3), inputs[i].get(DatabaseContextStoreService.DatabaseMapping.PARTITION_INPUT_PARTITION_SIZE));
+            assertEquals(new Integer(bounds[i][0]), inputs[i].get(DatabaseContextStoreService.DatabaseMapping.PARTITION_INPUT_FROM));
+            assertEquals(new Integer(bounds[i][1]), inputs[i].get(DatabaseContextStoreService.DatabaseMapping.PARTITION_INPUT_TO));
+        }
+    }
+    
+    public void testLoadPartitionByRangeBoundsParallel() throws Exception{
+        TestPersistentManager pm = new TestPersistentManager(-1);
+        DatabaseContextStoreService.DatabaseMapping mapping = createMapping();
+        mapping.setPartitionRangeBounds(new Object[]{new Integer(0), new Integer(3), new Integer(7), new Integer(ROW_COUNT)});
+        mapping.setParallelSize(3);
+        Context context = createContext();
+        mapping.load(context, createConnectionFactory(), pm.createProxy());
+        
+        assertEquals(3, mapping.getLoadPartitionCount());
+        assertEquals(3, mapping.getLoadedPartitionCount());
+        assertEquals(ROW_COUNT, context.size());
+        assertEquals(3, pm.inputs.size());
+    }
+    
+    public void testLoadPartitionBySize() throws Exception{
+        TestPersistentManager pm = new TestPersistentManager(-1);
+        DatabaseContextStoreService.DatabaseMapping mapping = createMapping();
+        mapping.setPartitionSize(4);
+        mapping.setParallelSize(2);
+        Context context = createContext();
+        mapping.load(context, createConnectionFactory(), pm.createProxy());
+        
+        assertEquals(4, mapping.getLoadPartitionCount());
+        assertEquals(4, mapping.getLoadedPartitionCount());
+        assertEquals(ROW_COUNT, context.size());
+        Map[] inputs = pm.sortedInputs();
+        assertEquals(4, inputs.length);
+        for(int i = 0; i < inputs.length; i++){
+            assertEquals(new Integer(i), inputs[i].get(DatabaseContextStoreService.DatabaseMapping.PARTITION_INPUT_PARTITION));
+            assertEquals(new Integer(4), inputs[i].get(DatabaseContextStoreService.DatabaseMapping.PARTITION_INPUT_PARTITION_SIZE));
+            assertFalse(inputs[i].containsKey(DatabaseContextStoreService.DatabaseMapping.PARTITION_INPUT_FROM));
+        }
+    }
+    
+    public void testLoadEmptyPartition() throws Exception{
+        TestPersistentManager pm = new TestPersistentManager(-1);
+        DatabaseContextStoreService.DatabaseMapping mapping = createMapping();
+        mapping.setPartitionRangeBounds(new Object[]{new Integer(0), new Integer(5), new Integer(100), new Integer(200)});
+        mapping.setParallelSize(3);
+        Context context = createContext();
+        mapping.load(context, createConnectionFactory(), pm.createProxy());
+        
+        assertEquals(3, mapping.getLoadPartitionCount());
+        assertEquals(3, mapping.getLoadedPartitionCount());
+        assertEquals(ROW_COUNT, context.size());
+    }
+    
+    public void testLoadFailedPartition() throws Exception{
+        TestPersistentManager pm = new TestPersistentManager(1);
+        DatabaseContextStoreService.DatabaseMapping mapping = createMapping();
+        mapping.setPartitionRangeBounds(new Object[]{new Integer(0), new Integer(3), new Integer(7), new Integer(ROW_COUNT)});
+        Context context = createContext();
+        try{
+            mapping.load(context, createConnectionFactory(), pm.createProxy());
+            fail("PersistentException must be thrown.");
+        }catch(PersistentException e){
+        }
+        assertEquals(3, mapping.getLoadPartitionCount());
+        assertEquals(1, mapping.getLoadedPartitionCount());
+        assertNull(context.get(new Integer(3)));
+    }
+    
+    public void testLoadFailedPartitionParallel() throws Exception{
+        TestPersistentManager pm = new TestPersistentManager(1);
+        DatabaseContextStoreService.DatabaseMapping mapping = createMapping();
+        mapping.setPartitionRangeBounds(new Object[]{new Integer(0), new Integer(3), new Integer(7), new Integer(ROW_COUNT)});
+        mapping.setParallelSize(3);
+        Context context = createContext();
+        try{
+            mapping.load(context, createConnectionFactory(), pm.createProxy());
+            fail("PersistentException must be thrown.");
+        }catch(PersistentException e){
+        }
+        assertEquals(3, mapping.getLoadPartitionCount());
+        assertTrue(mapping.getLoadedPartitionCount() < 3);
+        assertNull(context.get(new Integer(3)));
+    }
+    
+    public void testStartInvalidPartition() throws Exception{
+        DatabaseContextStoreService.DatabaseMapping mapping = createMapping();
+        assertStartFailed(mapping);
+        mapping.setPartitionRangeBounds(new Object[]{new Integer(0)});
+        assertStartFailed(mapping);
+        mapping.setPartitionRangeBounds(new Object[]{new Integer(0), new Integer(7), new Integer(3)});
+        assertStartFailed(mapping);
+        mapping.setPartitionRangeBounds(null);
+        mapping.setPartitionSize(4);
+        createService(mapping).start();
+    }
+    
+    private static DatabaseContextStoreService createService(DatabaseContextStoreService.DatabaseMapping mapping) throws Exception{
+        DatabaseContextStoreService service = new DatabaseContextStoreService();
+        service.create();
+        service.setConnectionFactory(createConnectionFactory());
+        service.setPersistentManager(new TestPersistentManager(-1).createProxy());
+        service.addDatabaseMapping(mapping);
+        return service;
+    }
+    
+    private static void assertStartFailed(DatabaseContextStoreService.DatabaseMapping mapping) throws Exception{
+        try{
+            createService(mapping).start();
+            fail("IllegalArgumentException must be thrown.");
+        }catch(IllegalArgumentException e){
+        }
+    }
+    
+    private static class TestPersistentManager implements InvocationHandler{
+        
+        private final int failPartition;
+        private final List inputs = Collections.synchronizedList(new ArrayList());
+        
+        public TestPersistentManager(int failPartition){
+            this.failPartition = failPartition;
+        }
+        
+        public PersistentManager createProxy(){
+            return (PersistentManager)Proxy.newProxyInstance(
+                PersistentManager.class.getClassLoader(),
+                new Class[]{PersistentManager.class},
+                this
+            );
+        }
+        
+        public Map[] sortedInputs(){
+            Map[] result = (Map[])inputs.toArray(new Map[inputs.size()]);
+            Arrays.sort(result, new Comparator(){
+                public int compare(Object o1, Object o2){
+                    return ((Integer)((Map)o1).get(DatabaseContextStoreService.DatabaseMapping.PARTITION_INPUT_PARTITION)).compareTo(
+                        (Integer)((Map)o2).get(DatabaseContextStoreService.DatabaseMapping.PARTITION_INPUT_PARTITION)
+                    );
+                }
+            });
+            return result;
+        }
+        
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable{
+            if(!"createQueryCursor".equals(method.getName())){
+                throw new UnsupportedOperationException(method.getName());
+            }
+            final Map input = (Map)args[2];
+            inputs.add(input);
+            final int partition = ((Integer)input.get(DatabaseContextStoreService.DatabaseMapping.PARTITION_INPUT_PARTITION)).intValue();
+            if(partition == failPartition){
+                throw new PersistentException("partition=" + partition);
+            }
+            final int size = ((Integer)input.get(DatabaseContextStoreService.DatabaseMapping.PARTITION_INPUT_PARTITION_SIZE)).intValue();
+            final Integer from = (Integer)input.get(DatabaseContextStoreService.DatabaseMapping.PARTITION_INPUT_FROM);
+            final Integer to = (Integer)input.get(DatabaseContextStoreService.DatabaseMapping.PARTITION_INPUT_TO);
+            final List rows = new ArrayList();
+            for(int i = 0; i < ROW_COUNT; i++){
+                boolean isTarget = from == null
+                    ? i % size == partition : (i >= from.intValue() && i < to.intValue());
+                if(isTarget){
+                    Map row = new HashMap();
+                    row.put("id", new Integer(i));
+                    row.put("name", "name" + i);
+                    rows.add(row);
+                }
+            }
+            return Proxy.newProxyInstance(
+                PersistentManager.Cursor.class.getClassLoader(),
+                new Class[]{PersistentManager.Cursor.class},
+                new InvocationHandler(){
+                    private int index = -1;
+                    private boolean isClosed;
+                    public Object invoke(Object proxy, Method method, Object[] args){
+                        String name = method.getName();
+                        if("next".equals(name)){
+                            return ++index < rows.size() ? Boolean.TRUE : Boolean.FALSE;
+                        }else if("load".equals(name)){
+                            return rows.get(index);
+                        }else if("close".equals(name)){
+                            isClosed = true;
+                            return null;
+                        }else if("isClosed".equals(name)){
+                            return isClosed ? Boolean.TRUE : Boolean.FALSE;
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                }
+            );
+        }
+    }
+}
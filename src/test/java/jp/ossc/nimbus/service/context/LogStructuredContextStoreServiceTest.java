@@ -0,0 +1,478 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.*;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.*;
+
+import jp.ossc.nimbus.service.io.Externalizer;
+import jp.ossc.nimbus.service.io.NimbusExternalizerService;
+
+/**
+ * {@link LogStructuredContextStoreService}テスト。<p>
+ *
+ * @author M.Takata
+ */
+public class LogStructuredContextStoreServiceTest extends TestCase{
+    
+    private File dir;
+    
+    public LogStructuredContextStoreServiceTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{LogStructuredContextStoreServiceTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(LogStructuredContextStoreServiceTest.class);
+    }
+    
+    protected void setUp() throws Exception{
+        dir = new File(System.getProperty("java.io.tmpdir"), "LogStructuredContextStoreServiceTest" + System.currentTimeMillis());
+    }
+    
+    protected void tearDown() throws Exception{
+        File[] files = dir.listFiles();
+        if(files != null){
+            for(int i = 0; i < files.length; i++){
+                files[i].delete();
+            }
+        }
+        dir.delete();
+    }
+    
+    public void testSaveAndLoad() throws Exception{
+        LogStructuredContextStoreService store = createStore(1024L * 1024L, 1);
+        DefaultContextService context = createContext();
+        for(int i = 0; i < 100; i++){
+            context.put("key" + i, "value" + i);
+            store.save(context, "key" + i);
+        }
+        context.put("key0", "updated");
+        store.save(context, "key0");
+        context.remove("key1");
+        store.save(context, "key1");
+        assertEquals(99, store.getKeySize());
+        
+        DefaultContextService loaded = createContext();
+        assertTrue(store.load(loaded, "key0"));
+        assertEquals("updated", loaded.get("key0"));
+        assertFalse(store.load(loaded, "key1"));
+        store.stop();
+        
+        store = createStore(1024L * 1024L, 1);
+        assertEquals(99, store.getKeySize());
+        loaded = createContext();
+        store.load(loaded);
+        assertEquals(99, loaded.size());
+        assertEquals("updated", loaded.get("key0"));
+        assertFalse(loaded.containsKey("key1"));
+        assertEquals("value99", loaded.get("key99"));
+        store.stop();
+    }
+    
+    public void testCompaction() throws Exception{
+        LogStructuredContextStoreService store = createStore(512L, 1);
+        DefaultContextService context = createContext();
+        for(int j = 0; j < 10; j++){
+            for(int i = 0; i < 20; i++){
+                context.put("key" + i, new Integer(i * j));
+                store.save(context, "key" + i);
+            }
+        }
+        assertTrue(store.getSegmentCount() > 1);
+        store.compact();
+        assertEquals(1, store.getSegmentCount());
+        assertEquals(1, store.getCompactionCount());
+        
+        context.put("key0", "after");
+        store.save(context, "key0");
+        DefaultContextService loaded = createContext();
+        assertTrue(store.load(loaded, "key5"));
+        assertEquals(new Integer(45), loaded.get("key5"));
+        store.stop();
+        
+        store = createStore(512L, 4);
+        loaded = createContext();
+        store.load(loaded);
+        assertEquals(20, loaded.size());
+        assertEquals("after", loaded.get("key0"));
+        assertEquals(new Integer(19 * 9), loaded.get("key19"));
+        store.stop();
+    }
+    
+    public void testTruncateCorruptedTail() throws Exception{
+        LogStructuredContextStoreService store = createStore(1024L * 1024L, 1);
+        DefaultContextService context = createContext();
+        for(int i = 0; i < 10; i++){
+            context.put("key" + i, "value" + i);
+            store.save(context, "key" + i);
+        }
+        store.stop();
+        
+        File[] files = dir.listFiles();
+        File segment = null;
+        for(int i = 0; i < files.length; i++){
+            if(files[i].getName().endsWith(".log") && files[i].length() != 0){
+                segment = files[i];
+            }
+        }
+        assertNotNull(segment);
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        try{
+            raf.setLength(raf.length() - 3);
+        }finally{
+            raf.close();
+        }
+        
+        store = createStore(1024L * 1024L, 1);
+        DefaultContextService loaded = createContext();
+        store.load(loaded);
+        assertEquals(9, loaded.size());
+        assertFalse(loaded.containsKey("key9"));
+        store.stop();
+    }
+    
+    public void testDifference() throws Exception{
+        LogStructuredContextStoreService store = createStore(1024L * 1024L, 1);
+        DefaultContextService context = createContext();
+        SharedContextRecord record = new SharedContextRecord(":A,java.lang.String\n:B,int");
+        record.setProperty("A", "a");
+        record.setProperty("B", new Integer(1));
+        context.put("key", record);
+        store.save(context, "key");
+        store.saveDifference("key", record.updateProperty("B", 2, null));
+        
+        DefaultContextService loaded = createContext();
+        assertTrue(store.load(loaded, "key"));
+        assertEquals(2, ((SharedContextRecord)loaded.get("key")).getIntProperty("B"));
+        store.compact();
+        store.stop();
+        
+        store = createStore(1024L * 1024L, 1);
+        loaded = createContext();
+        store.load(loaded);
+        assertEquals("a", ((SharedContextRecord)loaded.get("key")).getProperty("A"));
+        assertEquals(2, ((SharedContextRecord)loaded.get("key")).getIntProperty("B"));
+        store.stop();
+    }
+    
+    public void testSaveContext() throws Exception{
+        LogStructuredContextStoreService store = createStore(1024L * 1024L, 1);
+        DefaultContextService context = createContext();
+        context.put("old", "old");
+        store.save(context, "old");
+        context.clear();
+        for(int i = 0; i < 10; i++){
+            context.put("key" + i, "value" + i);
+        }
+        store.save(context);
+        assertEquals(10, store.getKeySize());
+        DefaultContextService loaded = createContext();
+        assertTrue(store.load(loaded, "key3"));
+        assertFalse(store.load(loaded, "old"));
+        store.clear();
+        assertEquals(0, store.getKeySize());
+        store.stop();
+    }
+    
+    public void testWriteFailureTruncated() throws Exception{
+        LogStructuredContextStoreService store = createStore(1024L * 1024L, 1);
+        DefaultContextService context = createContext();
+        context.put("key0", "value0");
+        store.save(context, "key0");
+        final long position = store.writePosition;
+        
+        store.writeChannel = new FailingChannel(store.writeChannel);
+        context.put("key1", "value1");
+        try{
+            store.save(context, "key1");
+            fail();
+        }catch(IOException e){
+        }
+        assertEquals(position, store.writePosition);
+        assertEquals(position, store.writeChannel.size());
+        
+        ((FailingChannel)store.writeChannel).isFail = false;
+        context.put("key2", "value2");
+        store.save(context, "key2");
+        DefaultContextService loaded = createContext();
+        assertTrue(store.load(loaded, "key2"));
+        assertEquals("value2", loaded.get("key2"));
+        store.stop();
+        
+        store = createStore(1024L * 1024L, 1);
+        loaded = createContext();
+        store.load(loaded);
+        assertEquals(2, loaded.size());
+        assertEquals("value0", loaded.get("key0"));
+        assertEquals("value2", loaded.get("key2"));
+        store.stop();
+    }
+    
+    public void testUpdateListener() throws Exception{
+        LogStructuredContextStoreService store = createStore(1024L * 1024L, 1);
+        SharedContextRecord record = new SharedContextRecord(":A,java.lang.String\n:B,int");
+        record.setProperty("A", "a");
+        record.setProperty("B", new Integer(1));
+        store.onPutAfter(null, true, "key", record, null);
+        store.onUpdateAfter(null, false, "key", record.updateProperty("B", 2, null));
+        store.onPutAfter(null, true, "removed", "value", null);
+        store.onRemoveAfter(null, false, "removed", "value");
+        store.stop();
+        
+        store = createStore(1024L * 1024L, 1);
+        DefaultContextService loaded = createContext();
+        store.load(loaded);
+        assertEquals(1, loaded.size());
+        assertEquals("a", ((SharedContextRecord)loaded.get("key")).getProperty("A"));
+        assertEquals(2, ((SharedContextRecord)loaded.get("key")).getIntProperty("B"));
+        store.stop();
+    }
+    
+    public void testLoadNotBlockWrite() throws Exception{
+        final BlockingExternalizer externalizer = new BlockingExternalizer();
+        final LogStructuredContextStoreService store = new LogStructuredContextStoreService();
+        store.setRootDirectory(dir);
+        store.setExternalizer(externalizer);
+        store.create();
+        store.start();
+        final DefaultContextService context = createContext();
+        for(int i = 0; i < 10; i++){
+            context.put("key" + i, "value" + i);
+            store.save(context, "key" + i);
+        }
+        externalizer.latch = new CountDownLatch(1);
+        final DefaultContextService loaded = createContext();
+        final Throwable[] error = new Throwable[1];
+        final Thread loadThread = new Thread(){
+            public void run(){
+                try{
+                    store.load(loaded);
+                }catch(Throwable th){
+                    error[0] = th;
+                }
+            }
+        };
+        loadThread.start();
+        for(int i = 0; i < 100 && !externalizer.isBlocked; i++){
+            Thread.sleep(50);
+        }
+        assertTrue(externalizer.isBlocked);
+        final Thread saveThread = new Thread(){
+            public void run(){
+                try{
+                    context.put("key10", "value10");
+                    store.save(context, "key10");
+                }catch(Throwable th){
+                    error[0] = th;
+                }
+            }
+        };
+        saveThread.start();
+        saveThread.join(5000);
+        final boolean isSaved = !saveThread.isAlive();
+        externalizer.latch.countDown();
+        loadThread.join(5000);
+        saveThread.join(5000);
+        if(error[0] != null){
+            throw new Exception(error[0]);
+        }
+        assertTrue(isSaved);
+        assertEquals(10, loaded.size());
+        assertEquals(11, store.getKeySize());
+        store.stop();
+    }
+    
+    private LogStructuredContextStoreService createStore(long maxSegmentSize, int threadSize) throws Exception{
+        LogStructuredContextStoreService store = new LogStructuredContextStoreService();
+        store.setRootDirectory(dir);
+        store.setMaxSegmentSize(maxSegmentSize);
+        store.setRecoveryThreadSize(threadSize);
+        store.create();
+        store.start();
+        return store;
+    }
+    
+    private static DefaultContextService createContext() throws Exception{
+        DefaultContextService context = new DefaultContextService();
+        context.create();
+        context.start();
+        return context;
+    }
+    
+    private static class BlockingExternalizer implements Externalizer{
+        
+        private final NimbusExternalizerService externalizer = new NimbusExternalizerService();
+        public volatile CountDownLatch latch;
+        public volatile boolean isBlocked;
+        
+        public BlockingExternalizer() throws Exception{
+            externalizer.create();
+            externalizer.start();
+        }
+        
+        private void block() throws IOException{
+            final CountDownLatch current = latch;
+            if(current != null){
+                isBlocked = true;
+                try{
+                    current.await();
+                }catch(InterruptedException e){
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+        
+        public void writeExternal(Object obj, OutputStream out) throws IOException{
+            externalizer.writeExternal(obj, out);
+        }
+        
+        public void writeExternal(Object obj, ObjectOutput out) throws IOException{
+            externalizer.writeExternal(obj, out);
+        }
+        
+        public Object readExternal(InputStream in) throws IOException, ClassNotFoundException{
+            block();
+            return externalizer.readExternal(in);
+        }
+        
+        public Object readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+            block();
+            return externalizer.readExternal(in);
+        }
+        
+        public ObjectOutput createObjectOutput(OutputStream out) throws IOException{
+            return externalizer.createObjectOutput(out);
+        }
+        
+        public ObjectInput createObjectInput(InputStream in) throws IOException{
+            return externalizer.createObjectInput(in);
+        }
+    }
+    
+    private static class FailingChannel extends FileChannel{
+        
+        private final FileChannel channel;
+        public volatile boolean isFail = true;
+        
+        public FailingChannel(FileChannel channel){
+            this.channel = channel;
+        }
+        
+        public int write(ByteBuffer src) throws IOException{
+            if(!isFail){
+                return channel.write(src);
+            }
+            final ByteBuffer half = src.duplicate();
+            half.limit(src.position() + src.remaining() / 2);
+            final int written = channel.write(half);
+            src.position(src.position() + written);
+            throw new IOException("fail");
+        }
+        
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException{
+            throw new IOException("fail");
+        }
+        
+        public int write(ByteBuffer src, long position) throws IOException{
+            throw new IOException("fail");
+        }
+        
+        public int read(ByteBuffer dst) throws IOException{
+            return channel.read(dst);
+        }
+        
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException{
+            return channel.read(dsts, offset, length);
+        }
+        
+        public int read(ByteBuffer dst, long position) throws IOException{
+            return channel.read(dst, position);
+        }
+        
+        public long position() throws IOException{
+            return channel.position();
+        }
+        
+        public FileChannel position(long newPosition) throws IOException{
+            channel.position(newPosition);
+            return this;
+        }
+        
+        public long size() throws IOException{
+            return channel.size();
+        }
+        
+        public FileChannel truncate(long size) throws IOException{
+            channel.truncate(size);
+            return this;
+        }
+        
+        public void force(boolean metaData) throws IOException{
+            channel.force(metaData);
+        }
+        
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException{
+            return channel.transferTo(position, count, target);
+        }
+        
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException{
+            return channel.transferFrom(src, position, count);
+        }
+        
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException{
+            return channel.map(mode, position, size);
+        }
+        
+        public FileLock lock(long position, long size, boolean shared) throws IOException{
+            return channel.lock(position, size, shared);
+        }
+        
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException{
+            return channel.tryLock(position, size, shared);
+        }
+        
+        protected void implCloseChannel() throws IOException{
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import java.util.*;
+import java.math.BigDecimal;
+
+import junit.framework.*;
+
+/**
+ * {@link SharedContextAggregate}テスト。<p>
+ *
+ * @author M.Takata
+ */
+public class SharedContextAggregateTest extends TestCase{
+    
+    public SharedContextAggregateTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{SharedContextAggregateTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(SharedContextAggregateTest.class);
+    }
+    
+    public void testAggregate() throws Exception{
+        List values = new ArrayList();
+        values.add(new Item("A", "X", new Integer(1)));
+        values.add(new Item("A", "Y", new Integer(5)));
+        values.add(new Item("B", "X", new Integer(3)));
+        values.add(new Item("B", "X", null));
+        
+        Map result = SharedContextAggregate.aggregate(values.iterator(), "value", null);
+        assertEquals(1, result.size());
+        SharedContextAggregate total = (SharedContextAggregate)result.get(null);
+        assertEquals(4, total.getCount());
+        assertEquals(3, total.getValueCount());
+        assertEquals(new BigDecimal(9), total.getSum());
+        assertEquals(new Integer(1), total.getMin());
+        assertEquals(new Integer(5), total.getMax());
+        assertEquals(3.0d, total.getAverage(), 0.0d);
+        
+        result = SharedContextAggregate.aggregate(values.iterator(), "value", new String[]{"group"});
+        assertEquals(2, result.size());
+        assertEquals(new BigDecimal(6), ((SharedContextAggregate)result.get("A")).getSum());
+        assertEquals(2, ((SharedContextAggregate)result.get("B")).getCount());
+        
+        result = SharedContextAggregate.aggregate(values.iterator(), null, new String[]{"group", "type"});
+        assertEquals(3, result.size());
+        assertEquals(2, ((SharedContextAggregate)result.get(Arrays.asList(new Object[]{"B", "X"}))).getCount());
+        assertNull(((SharedContextAggregate)result.get(Arrays.asList(new Object[]{"A", "X"}))).getSum());
+    }
+    
+    public void testMerge() throws Exception{
+        List node1 = new ArrayList();
+        node1.add(new Item("A", "X", new Integer(1)));
+        node1.add(new Item("B", "X", new Integer(7)));
+        List node2 = new ArrayList();
+        node2.add(new Item("A", "X", new Integer(10)));
+        node2.add(new Item("C", "X", new Integer(2)));
+        
+        Map result = new HashMap();
+        SharedContextAggregate.merge(result, SharedContextAggregate.aggregate(node1.iterator(), "value", new String[]{"group"}));
+        SharedContextAggregate.merge(result, SharedContextAggregate.aggregate(node2.iterator(), "value", new String[]{"group"}));
+        assertEquals(3, result.size());
+        SharedContextAggregate a = (SharedContextAggregate)result.get("A");
+        assertEquals(2, a.getCount());
+        assertEquals(new BigDecimal(11), a.getSum());
+        assertEquals(new Integer(1), a.getMin());
+        assertEquals(new Integer(10), a.getMax());
+        assertEquals(new Integer(2), ((SharedContextAggregate)result.get("C")).getMax());
+    }
+    
+    public static class Item{
+        private String group;
+        private String type;
+        private Integer value;
+        public Item(){
+        }
+        public Item(String group, String type, Integer value){
+            this.group = group;
+            this.type = type;
+            this.value = value;
+        }
+        public String getGroup(){
+            return group;
+        }
+        public String getType(){
+            return type;
+        }
+        public Integer getValue(){
+            return value;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import java.util.*;
+import java.lang.reflect.*;
+
+import junit.framework.*;
+
+import jp.ossc.nimbus.service.publish.Message;
+import jp.ossc.nimbus.service.publish.RequestServerConnection;
+
+/**
+ * {@link SharedContextService}の非同期更新のバッチ化テスト。<p>
+ *
+ * @author M.Takata
+ */
+public class SharedContextAsynchBatchTest extends TestCase{
+    
+    public SharedContextAsynchBatchTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{SharedContextAsynchBatchTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(SharedContextAsynchBatchTest.class);
+    }
+    
+    private SharedContextService createService(){
+        SharedContextService service = new SharedContextService();
+        service.setAsynchBatchSize(0);
+        service.asynchBatchMap = new LinkedHashMap();
+        service.asynchBatchSendLock = new Object();
+        return service;
+    }
+    
+    private List getEvents(SharedContextService service, Object key){
+        return (List)service.asynchBatchMap.get(key);
+    }
+    
+    public void testPutReplacesPendingEvents() throws Exception{
+        SharedContextService service = createService();
+        service.addAsynchBatch(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_PUT, "A", "1"), null);
+        service.addAsynchBatch(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_PUT, "B", "1"), null);
+        service.addAsynchBatch(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_PUT, "A", "2"), null);
+        assertEquals(2, service.getAsynchBatchPendingCount());
+        assertEquals(1, service.getAsynchBatchCoalescedCount());
+        List events = getEvents(service, "A");
+        assertEquals(1, events.size());
+        assertEquals("2", ((SharedContextService.SharedContextEvent)events.get(0)).value);
+        
+        service.addAsynchBatch(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_REMOVE, "B"), null);
+        assertEquals(2, service.getAsynchBatchPendingCount());
+        events = getEvents(service, "B");
+        assertEquals(1, events.size());
+        assertEquals(SharedContextService.SharedContextEvent.EVENT_REMOVE, ((SharedContextService.SharedContextEvent)events.get(0)).type);
+        
+        Iterator keys = service.asynchBatchMap.keySet().iterator();
+        assertEquals("A", keys.next());
+        assertEquals("B", keys.next());
+    }
+    
+    public void testUpdateMergedIntoPendingPut() throws Exception{
+        SharedContextService service = createService();
+        SharedContextRecord value = new SharedContextRecord(":A,java.lang.String");
+        value.setProperty("A", "1");
+        service.addAsynchBatch(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_PUT, "A", value), null);
+        for(int i = 2; i <= 3; i++){
+            SharedContextValueDifference diff = value.updateProperty("A", Integer.toString(i), null);
+            service.addAsynchBatch(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_UPDATE, "A", new Object[]{diff, Boolean.FALSE}), value);
+            assertEquals(1, value.update(diff));
+        }
+        assertEquals(1, service.getAsynchBatchPendingCount());
+        assertEquals(2, service.getAsynchBatchCoalescedCount());
+        List events = getEvents(service, "A");
+        assertEquals(1, events.size());
+        SharedContextRecord queued = (SharedContextRecord)((SharedContextService.SharedContextEvent)events.get(0)).value;
+        assertNotSame(value, queued);
+        assertEquals("3", queued.getProperty("A"));
+        assertEquals(value.getUpdateVersion(), queued.getUpdateVersion());
+    }
+    
+    public void testPutValueCopiedAtQueueTime() throws Exception{
+        SharedContextService service = createService();
+        SharedContextRecord value = new SharedContextRecord(":A,java.lang.String");
+        value.setProperty("A", "1");
+        service.addAsynchBatch(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_PUT, "A", value), null);
+        value.setProperty("A", "2");
+        SharedContextRecord queued = (SharedContextRecord)((SharedContextService.SharedContextEvent)getEvents(service, "A").get(0)).value;
+        assertEquals("1", queued.getProperty("A"));
+        
+        service.addAsynchBatch(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_UPDATE, "A", new Object[]{value.updateProperty("A", "3", null), Boolean.FALSE}), new SharedContextRecord(":A,java.lang.String"));
+        assertEquals(2, getEvents(service, "A").size());
+        assertEquals(0, service.getAsynchBatchCoalescedCount());
+    }
+    
+    public void testUpdatesGroupedByKey() throws Exception{
+        SharedContextService service = createService();
+        service.addAsynchBatch(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_UPDATE, "A", new Object[]{null, Boolean.FALSE}), new Object());
+        service.addAsynchBatch(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_UPDATE, "B", new Object[]{null, Boolean.FALSE}), new Object());
+        service.addAsynchBatch(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_UPDATE, "A", new Object[]{null, Boolean.TRUE}), new Object());
+        assertEquals(3, service.getAsynchBatchPendingCount());
+        assertEquals(0, service.getAsynchBatchCoalescedCount());
+        List events = getEvents(service, "A");
+        assertEquals(2, events.size());
+        assertEquals(Boolean.TRUE, ((Object[])((SharedContextService.SharedContextEvent)events.get(1)).value)[1]);
+    }
+    
+    public void testFlushPerTarget() throws Exception{
+        SharedContextService service = createService();
+        service.clientSubject = "client";
+        final Map receivers = new HashMap();
+        receivers.put("A", new HashSet(Arrays.asList(new Object[]{"node1", "node2"})));
+        receivers.put("B", Collections.singleton("node2"));
+        final List sent = new ArrayList();
+        final String subject = service.subject;
+        service.serverConnection = (RequestServerConnection)Proxy.newProxyInstance(
+            RequestServerConnection.class.getClassLoader(),
+            new Class[]{RequestServerConnection.class},
+            new InvocationHandler(){
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable{
+                    if("createMessage".equals(method.getName())){
+                        Message message = new jp.ossc.nimbus.service.publish.tcp.MessageImpl();
+                        message.setSubject((String)args[0], (String)args[1]);
+                        return message;
+                    }else if("getReceiveClientIds".equals(method.getName())){
+                        Set ids = (Set)receivers.get(((Message)args[0]).getKey(subject));
+                        return ids == null ? new HashSet() : new HashSet(ids);
+                    }else if("sendAsynch".equals(method.getName())){
+                        sent.add(args[0]);
+                    }
+                    return null;
+                }
+            }
+        );
+        service.addAsynchBatch(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_PUT, "A", "1"), null);
+        service.addAsynchBatch(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_PUT, "B", "1"), null);
+        service.addAsynchBatch(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_PUT, "C", "1"), null);
+        service.flushAsynchBatch();
+        
+        assertEquals(0, service.getAsynchBatchPendingCount());
+        assertEquals(2, sent.size());
+        assertEquals(2, service.getAsynchBatchCount());
+        assertEquals(3, service.getAsynchBatchedEventCount());
+        Map eventsById = new HashMap();
+        for(int i = 0; i < sent.size(); i++){
+            Message message = (Message)sent.get(i);
+            assertEquals(1, message.getDestinationIds().size());
+            Object id = message.getDestinationIds().iterator().next();
+            assertEquals("A", message.getKey(subject));
+            assertEquals(message.getKey(subject), message.getKey("client"));
+            SharedContextService.SharedContextEvent batch = (SharedContextService.SharedContextEvent)message.getObject();
+            assertEquals(SharedContextService.SharedContextEvent.EVENT_BATCH, batch.type);
+            List keys = new ArrayList();
+            List events = (List)batch.value;
+            for(int j = 0; j < events.size(); j++){
+                keys.add(((SharedContextService.SharedContextEvent)events.get(j)).key);
+            }
+            eventsById.put(id, keys);
+        }
+        assertEquals(Arrays.asList(new Object[]{"A"}), eventsById.get("node1"));
+        assertEquals(Arrays.asList(new Object[]{"A", "B"}), eventsById.get("node2"));
+    }
+    
+    public void testBatchAppliedUnderOneLockUse() throws Exception{
+        final SharedContextService service = new SharedContextService(){
+            private static final long serialVersionUID = 1L;
+            protected boolean isMain(Object excludeId){
+                return true;
+            }
+        };
+        service.context = Collections.synchronizedMap(new HashMap());
+        service.indexManager = new SharedContextIndexManager();
+        service.updateLock = service.new SynchronizeLock();
+        service.referLock = service.new SynchronizeLock();
+        final List useCounts = new ArrayList();
+        service.addSharedContextUpdateListener(
+            (SharedContextUpdateListener)Proxy.newProxyInstance(
+                SharedContextUpdateListener.class.getClassLoader(),
+                new Class[]{SharedContextUpdateListener.class},
+                new InvocationHandler(){
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable{
+                        if(method.getName().endsWith("Before")){
+                            useCounts.add(new int[]{service.updateLock.useCount, service.referLock.useCount});
+                            return Boolean.TRUE;
+                        }
+                        return null;
+                    }
+                }
+            )
+        );
+        List events = new ArrayList();
+        events.add(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_PUT, "A", "1"));
+        events.add(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_PUT, "B", "1"));
+        events.add(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_REMOVE, "A"));
+        
+        service.updateLock.acquireForLock("other", -1);
+        service.onBatch(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_BATCH, null, events));
+        
+        assertEquals(3, useCounts.size());
+        for(int i = 0; i < useCounts.size(); i++){
+            assertEquals(1, ((int[])useCounts.get(i))[0]);
+            assertEquals(1, ((int[])useCounts.get(i))[1]);
+        }
+        assertEquals(0, service.updateLock.useCount);
+        assertEquals(0, service.referLock.useCount);
+        assertFalse(service.context.containsKey("A"));
+        assertEquals("1", service.context.get("B"));
+    }
+}
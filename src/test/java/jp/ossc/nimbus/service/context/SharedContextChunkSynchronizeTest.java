@@ -0,0 +1,463 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import java.util.*;
+import java.lang.reflect.*;
+
+import junit.framework.*;
+
+import jp.ossc.nimbus.service.keepalive.Cluster;
+import jp.ossc.nimbus.service.keepalive.ClusterUID;
+import jp.ossc.nimbus.service.publish.Message;
+import jp.ossc.nimbus.service.publish.MessageException;
+
+/**
+ * {@link SharedContextService}の分割同期テスト。<p>
+ *
+ * @author M.Takata
+ */
+public class SharedContextChunkSynchronizeTest extends TestCase{
+    
+    public SharedContextChunkSynchronizeTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{SharedContextChunkSynchronizeTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(SharedContextChunkSynchronizeTest.class);
+    }
+    
+    private static Cluster createCluster(final ClusterUID uid){
+        return (Cluster)Proxy.newProxyInstance(
+            Cluster.class.getClassLoader(),
+            new Class[]{Cluster.class},
+            new InvocationHandler(){
+                public Object invoke(Object proxy, Method method, Object[] args){
+                    if("getUID".equals(method.getName())){
+                        return uid;
+                    }
+                    return null;
+                }
+            }
+        );
+    }
+    
+    private static MainService createMain(int size) throws Exception{
+        MainService main = new MainService();
+        main.createService();
+        main.cluster = createCluster(new ClusterUID("127.0.0.1", "main"));
+        for(int i = 0; i < size; i++){
+            main.context.put("key" + i, "value" + i);
+        }
+        return main;
+    }
+    
+    private static ReplicaService createReplica(MainService main, int chunkSize) throws Exception{
+        ReplicaService replica = new ReplicaService(main);
+        replica.createService();
+        replica.cluster = createCluster(new ClusterUID("127.0.0.1", "replica"));
+        replica.updateLock = replica.new SynchronizeLock();
+        replica.referLock = replica.new SynchronizeLock();
+        replica.setSynchronizeChunkSize(chunkSize);
+        replica.setSynchronizeChunkRetryInterval(0);
+        replica.context.put("stale", "stale");
+        return replica;
+    }
+    
+    private static void assertSynchronized(MainService main, ReplicaService replica){
+        assertEquals(main.context.size(), replica.context.size());
+        Iterator entries = main.context.entrySet().iterator();
+        while(entries.hasNext()){
+            Map.Entry entry = (Map.Entry)entries.next();
+            assertEquals(entry.getValue(), replica.context.get(entry.getKey()));
+        }
+        assertFalse(replica.context.containsKey("stale"));
+    }
+    
+    public void testMultiChunk() throws Exception{
+        MainService main = createMain(25);
+        ReplicaService replica = createReplica(main, 10);
+        replica.synchronizeWithMain(1000);
+        assertSynchronized(main, replica);
+        assertEquals(Arrays.asList(new Integer[]{new Integer(0), new Integer(10), new Integer(20)}), replica.offsets);
+        assertEquals(3, replica.lockCount);
+        assertEquals(0, replica.updateLock.getOwners().length);
+        assertEquals(0, replica.referLock.getOwners().length);
+        assertFalse(replica.isSynchronizingByChunk);
+        // 最後のチャンクの応答が失われても再要求できるように、途中状態はタイムアウトまで保持する
+        assertEquals(1, main.synchronizeSessionMap.size());
+        Object[] chunk = main.getChunk(replica.cluster.getUID(), 20, 10);
+        assertEquals(new Integer(-1), chunk[0]);
+        assertEquals(5, ((Map)chunk[1]).size());
+    }
+    
+    public void testSessionRemovedWithoutTimeout() throws Exception{
+        MainService main = createMain(25);
+        main.setSynchronizeSessionTimeout(0);
+        ReplicaService replica = createReplica(main, 10);
+        replica.synchronizeWithMain(1000);
+        assertSynchronized(main, replica);
+        assertEquals(0, main.synchronizeSessionMap.size());
+    }
+    
+    public void testUpdateDuringSynchronize() throws Exception{
+        MainService main = createMain(25);
+        final ReplicaService replica = createReplica(main, 10);
+        final List responses = new ArrayList();
+        replica.probeOffset = 10;
+        replica.probe = new Runnable(){
+            public void run(){
+                responses.add(replica.update(replica.getNotSynchronizedKey()));
+            }
+        };
+        replica.synchronizeWithMain(1000);
+        assertSynchronized(main, replica);
+        assertEquals(1, responses.size());
+        assertNull(responses.get(0));
+        assertTrue(replica.update("unknown") instanceof SharedContextUpdateException);
+    }
+    
+    public void testReadBlockedDuringSynchronize() throws Exception{
+        MainService main = createMain(25);
+        final ReplicaService replica = createReplica(main, 10);
+        final List results = Collections.synchronizedList(new ArrayList());
+        final Object[] key = new Object[1];
+        replica.probeOffset = 10;
+        replica.probe = new Runnable(){
+            public void run(){
+                key[0] = replica.getNotSynchronizedKey();
+                Thread reader = new Thread(){
+                    public void run(){
+                        try{
+                            results.add(replica.get(key[0], 100));
+                        }catch(Throwable th){
+                            results.add(th);
+                        }
+                    }
+                };
+                reader.start();
+                try{
+                    reader.join();
+                }catch(InterruptedException e){
+                    results.add(e);
+                }
+            }
+        };
+        replica.synchronizeWithMain(1000);
+        assertSynchronized(main, replica);
+        assertEquals(1, results.size());
+        assertTrue(String.valueOf(results.get(0)), results.get(0) instanceof SharedContextTimeoutException);
+        assertEquals(main.context.get(key[0]), replica.get(key[0], 100));
+    }
+    
+    public void testUpdateDuringRebalance() throws Exception{
+        final ConsistentHashSharedContextKeyDistributorService distributor = new ConsistentHashSharedContextKeyDistributorService();
+        distributor.create();
+        distributor.start();
+        final int distributedSize = 4;
+        final int index = 1;
+        // リハッシュで新しいノードに移る分散コンテキストのキーと値を、移動元のノードに用意する
+        final MainService main = new MainService();
+        main.createService();
+        main.cluster = createCluster(new ClusterUID("127.0.0.1", "main"));
+        final List keys = new ArrayList();
+        for(int i = 0; keys.size() < 35; i++){
+            String key = "key" + i;
+            if(distributor.selectDataNodeIndex(key, distributedSize) == index){
+                SharedContextRecord value = new SharedContextRecord(":A,java.lang.String");
+                value.setProperty("A", "0");
+                main.context.put(key, value);
+                keys.add(key);
+            }
+        }
+        final ReplicaService replica = createReplica(main, 10);
+        replica.isCopyChunk = true;
+        final List responses = new ArrayList();
+        // チャンクの間で、反映済みのキーと、まだ反映していないキーの両方を更新する
+        replica.beforeChunkOffset = 20;
+        replica.beforeChunk = new Runnable(){
+            public void run(){
+                for(int i = 0; i < keys.size(); i++){
+                    responses.add(update(main, replica, keys.get(i), "1"));
+                }
+            }
+        };
+        replica.synchronizeWithMain(1000);
+        
+        assertEquals(keys.size(), responses.size());
+        for(int i = 0; i < responses.size(); i++){
+            assertNull(keys.get(i) + "=" + responses.get(i), responses.get(i));
+        }
+        assertEquals(keys.size(), replica.context.size());
+        assertFalse(replica.context.containsKey("stale"));
+        for(int i = 0; i < keys.size(); i++){
+            Object key = keys.get(i);
+            assertEquals(index, distributor.selectDataNodeIndex(key, distributedSize));
+            SharedContextRecord expected = (SharedContextRecord)main.context.get(key);
+            SharedContextRecord actual = (SharedContextRecord)replica.get(key, 100);
+            assertNotSame(expected, actual);
+            assertEquals("1", actual.getProperty("A"));
+            assertEquals(expected.getUpdateVersion(), actual.getUpdateVersion());
+        }
+        
+        // リハッシュ後の更新も、移動先のノードに反映される
+        for(int i = 0; i < keys.size(); i++){
+            assertNull(update(main, replica, keys.get(i), "2"));
+            assertEquals("2", ((SharedContextRecord)replica.get(keys.get(i), 100)).getProperty("A"));
+        }
+    }
+    
+    private static Object update(MainService main, ReplicaService replica, Object key, String value){
+        try{
+            SharedContextRecord record = (SharedContextRecord)main.context.get(key);
+            SharedContextValueDifference diff = record.updateProperty("A", value, null);
+            assertEquals(1, record.update(diff));
+            return replica.onUpdate(key, diff);
+        }catch(Exception e){
+            throw new RuntimeException(e);
+        }
+    }
+    
+    public void testEmpty() throws Exception{
+        MainService main = createMain(0);
+        ReplicaService replica = createReplica(main, 10);
+        replica.synchronizeWithMain(1000);
+        assertSynchronized(main, replica);
+        assertEquals(1, replica.offsets.size());
+    }
+    
+    public void testSessionExpired() throws Exception{
+        MainService main = createMain(25);
+        main.setSynchronizeSessionTimeout(10);
+        ReplicaService replica = createReplica(main, 10);
+        replica.expireAfterOffset = 10;
+        replica.synchronizeWithMain(1000);
+        assertSynchronized(main, replica);
+        assertEquals(
+            Arrays.asList(new Integer[]{new Integer(0), new Integer(10), new Integer(20), new Integer(0), new Integer(10), new Integer(20)}),
+            replica.offsets
+        );
+        assertEquals(0, replica.updateLock.getOwners().length);
+    }
+    
+    public void testSessionLostRetryOver() throws Exception{
+        MainService main = createMain(25);
+        main.setSynchronizeSessionTimeout(10);
+        ReplicaService replica = createReplica(main, 10);
+        replica.setSynchronizeChunkRetryCount(0);
+        replica.expireAfterOffset = 0;
+        try{
+            replica.synchronizeWithMain(1000);
+            fail();
+        }catch(SharedContextSendException e){
+        }
+        assertEquals(0, replica.updateLock.getOwners().length);
+    }
+    
+    public void testExpireTask() throws Exception{
+        MainService main = createMain(25);
+        main.setSynchronizeSessionTimeout(60000);
+        Object id = new ClusterUID("127.0.0.1", "replica");
+        assertNotNull(main.getChunk(id, 0, 10));
+        assertEquals(1, main.synchronizeSessionMap.size());
+        main.new SynchronizeSessionExpireTask().run();
+        assertEquals(1, main.synchronizeSessionMap.size());
+        ((SharedContextService.SynchronizeSession)main.synchronizeSessionMap.get(id)).lastAccessTime = 0;
+        main.new SynchronizeSessionExpireTask().run();
+        assertEquals(0, main.synchronizeSessionMap.size());
+        assertNull(main.getChunk(id, 10, 10));
+    }
+    
+    public void testOffsetGreaterThanLength() throws Exception{
+        MainService main = createMain(25);
+        Object id = new ClusterUID("127.0.0.1", "replica");
+        Object[] chunk = main.getChunk(id, 0, 10);
+        assertEquals(new Integer(10), chunk[0]);
+        assertEquals(10, ((Map)chunk[1]).size());
+        assertNull(main.getChunk(id, 26, 10));
+        chunk = main.getChunk(id, 20, 10);
+        assertEquals(new Integer(-1), chunk[0]);
+        assertEquals(5, ((Map)chunk[1]).size());
+    }
+    
+    private static class MainService extends SharedContextService{
+        
+        private static final long serialVersionUID = 1L;
+        
+        protected boolean isMain(Object excludeId){
+            return true;
+        }
+        
+        protected Message createResponseMessage(String responseSubject, String responseKey, Object response){
+            Message message = new jp.ossc.nimbus.service.publish.tcp.MessageImpl();
+            try{
+                message.setObject(response);
+            }catch(MessageException e){
+                throw new RuntimeException(e);
+            }
+            return message;
+        }
+        
+        public Object[] getChunk(Object id, int offset, int size) throws MessageException{
+            Message response = onGetChunk(
+                new SharedContextEvent(
+                    SharedContextEvent.EVENT_GET_CHUNK,
+                    id,
+                    new Object[]{new Integer(offset), new Integer(size)}
+                ),
+                id,
+                0,
+                null,
+                null
+            );
+            return (Object[])response.getObject();
+        }
+    }
+    
+    private static class ReplicaService extends SharedContextService{
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final MainService main;
+        private final List offsets = new ArrayList();
+        private int lockCount;
+        private int expireAfterOffset = -1;
+        private int probeOffset = -1;
+        private Runnable probe;
+        private int beforeChunkOffset = -1;
+        private Runnable beforeChunk;
+        private boolean isRemoteLocked;
+        private boolean isCopyChunk;
+        
+        public ReplicaService(MainService main){
+            this.main = main;
+        }
+        
+        protected void acquireUpdateLockAll(Object id, long timeout) throws SharedContextSendException, SharedContextTimeoutException{
+            // 前のチャンクの他ノードのロックは、解放済みである事
+            assertFalse(isRemoteLocked);
+            // 自ノードのロックは、同期の間保持している事
+            assertEquals(Arrays.asList(new Object[]{id}), Arrays.asList(updateLock.getOwners()));
+            assertEquals(Arrays.asList(new Object[]{id}), Arrays.asList(referLock.getOwners()));
+            lockCount++;
+            isRemoteLocked = true;
+        }
+        
+        protected void releaseUpdateLockAll(Object id, boolean isReleaseLocal) throws SharedContextSendException{
+            isRemoteLocked = false;
+            if(isReleaseLocal){
+                updateLock.releaseForLock(id);
+            }
+        }
+        
+        protected Message createResponseMessage(String responseSubject, String responseKey, Object response){
+            return main.createResponseMessage(responseSubject, responseKey, response);
+        }
+        
+        public Object getNotSynchronizedKey(){
+            Iterator keys = main.context.keySet().iterator();
+            while(keys.hasNext()){
+                Object key = keys.next();
+                if(!context.containsKey(key)){
+                    return key;
+                }
+            }
+            throw new AssertionFailedError("All keys are synchronized.");
+        }
+        
+        public Object update(Object key){
+            return onUpdate(key, null);
+        }
+        
+        public Object onUpdate(Object key, SharedContextValueDifference diff){
+            Message response = onUpdate(
+                new SharedContextEvent(
+                    SharedContextEvent.EVENT_UPDATE,
+                    key,
+                    new Object[]{diff, Boolean.FALSE}
+                ),
+                cluster.getUID(),
+                0,
+                null,
+                null
+            );
+            try{
+                return response.getObject();
+            }catch(MessageException e){
+                throw new RuntimeException(e);
+            }
+        }
+        
+        protected Object[] requestChunk(Object id, int offset, long timeout) throws SharedContextSendException, SharedContextTimeoutException{
+            offsets.add(new Integer(offset));
+            if(offset == beforeChunkOffset){
+                beforeChunkOffset = -1;
+                beforeChunk.run();
+            }
+            try{
+                Object[] chunk = main.getChunk(id, offset, getSynchronizeChunkSize());
+                if(offset == expireAfterOffset){
+                    expireAfterOffset = -1;
+                    SynchronizeSession session = (SynchronizeSession)main.synchronizeSessionMap.get(id);
+                    if(session != null){
+                        session.lastAccessTime = 0;
+                    }
+                    main.new SynchronizeSessionExpireTask().run();
+                }
+                if(isCopyChunk && chunk != null){
+                    // 実際の同期と同じく、移動元の値とは別のインスタンスを受け取る
+                    Map values = new LinkedHashMap();
+                    Iterator entries = ((Map)chunk[1]).entrySet().iterator();
+                    while(entries.hasNext()){
+                        Map.Entry entry = (Map.Entry)entries.next();
+                        Object value = entry.getValue();
+                        values.put(entry.getKey(), value instanceof SharedContextRecord ? ((SharedContextRecord)value).clone() : value);
+                    }
+                    chunk = new Object[]{chunk[0], values};
+                }
+                if(offset == probeOffset){
+                    probeOffset = -1;
+                    probe.run();
+                }
+                return chunk;
+            }catch(MessageException e){
+                throw new SharedContextSendException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import java.util.*;
+
+import junit.framework.*;
+
+/**
+ * {@link SharedContextService}のニアキャッシュテスト。<p>
+ *
+ * @author M.Takata
+ */
+public class SharedContextNearCacheTest extends TestCase{
+    
+    public SharedContextNearCacheTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{SharedContextNearCacheTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(SharedContextNearCacheTest.class);
+    }
+    
+    private SharedContextService createService(int size, long expireTime) throws Exception{
+        SharedContextService service = new SharedContextService();
+        service.createService();
+        service.setClient(true);
+        service.setThinClient(true);
+        service.setNearCacheSize(size);
+        service.setNearCacheExpireTime(expireTime);
+        service.nearCacheMap = new LinkedHashMap(16, 0.75f, true);
+        return service;
+    }
+    
+    private void fetch(SharedContextService service, Object key, Object value){
+        service.context.put(key, value);
+        service.addNearCache(key);
+    }
+    
+    public void testEvictLeastRecentlyUsed() throws Exception{
+        SharedContextService service = createService(2, -1L);
+        fetch(service, "A", "1");
+        fetch(service, "B", "2");
+        assertTrue(service.isValidNearCache("A"));
+        fetch(service, "C", "3");
+        assertEquals(2, service.getNearCacheCount());
+        assertEquals(1, service.getNearCacheEvictCount());
+        assertTrue(service.context.containsKey("A"));
+        assertFalse(service.context.containsKey("B"));
+        assertTrue(service.context.containsKey("C"));
+        assertFalse(service.isValidNearCache("B"));
+        assertEquals(1, service.getNearCacheHitCount());
+    }
+    
+    public void testExpire() throws Exception{
+        SharedContextService service = createService(10, 50L);
+        fetch(service, "A", "1");
+        assertTrue(service.isValidNearCache("A"));
+        Thread.sleep(100L);
+        assertFalse(service.isValidNearCache("A"));
+        assertFalse(service.context.containsKey("A"));
+        assertEquals(0, service.getNearCacheCount());
+    }
+    
+    public void testStaleVersion() throws Exception{
+        SharedContextService service = createService(10, -1L);
+        SharedContextRecord current = new SharedContextRecord();
+        current.setUpdateVersion(5);
+        fetch(service, "A", current);
+        SharedContextRecord older = new SharedContextRecord();
+        older.setUpdateVersion(4);
+        SharedContextRecord newer = new SharedContextRecord();
+        newer.setUpdateVersion(6);
+        assertTrue(service.isStaleNearCache("A", older));
+        assertFalse(service.isStaleNearCache("A", newer));
+        assertFalse(service.isStaleNearCache("A", "other"));
+        
+        service.onPut(new SharedContextService.SharedContextEvent(SharedContextService.SharedContextEvent.EVENT_PUT, "A", older));
+        assertFalse(service.context.containsKey("A"));
+        assertEquals(1, service.getNearCacheInvalidateCount());
+    }
+    
+    public void testHitRatio() throws Exception{
+        SharedContextService service = createService(10, -1L);
+        service.nearCacheMissCount = 1;
+        fetch(service, "A", "1");
+        service.isValidNearCache("A");
+        service.isValidNearCache("A");
+        service.isValidNearCache("A");
+        assertEquals(0.75f, service.getNearCacheHitRatio(), 0.0f);
+        service.resetNearCacheHitRatio();
+        assertEquals(0.0f, service.getNearCacheHitRatio(), 0.0f);
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import java.util.*;
+import java.lang.reflect.*;
+
+import junit.framework.*;
+
+import jp.ossc.nimbus.service.publish.Message;
+import jp.ossc.nimbus.service.publish.MessageException;
+
+/**
+ * {@link SharedContextView}のソート、件数の絞り込みのテスト。<p>
+ *
+ * @author M.Takata
+ */
+public class SharedContextViewMergeTest extends TestCase{
+    
+    public SharedContextViewMergeTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{SharedContextViewMergeTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(SharedContextViewMergeTest.class);
+    }
+    
+    private static SharedContextService createNode(int[] scores, int offset) throws Exception{
+        SharedContextService node = new MainService();
+        node.createService();
+        node.referLock = node.new SynchronizeLock();
+        for(int i = 0; i < scores.length; i++){
+            node.context.put("key" + (offset + i), new Item("item" + (offset + i), scores[i]));
+        }
+        return node;
+    }
+    
+    private static DistributedSharedContextService.DistributedSharedContextView createDistributedView(SharedContextService[] nodes) throws Exception{
+        DistributedSharedContextService service = new DistributedSharedContextService();
+        Field field = DistributedSharedContextService.class.getDeclaredField("sharedContextArray");
+        field.setAccessible(true);
+        field.set(service, new SharedContextService[0]);
+        DistributedSharedContextService.DistributedSharedContextView view = service.new DistributedSharedContextView();
+        view.views = new SharedContextView[nodes.length];
+        for(int i = 0; i < nodes.length; i++){
+            view.views[i] = nodes[i].createView();
+        }
+        return view;
+    }
+    
+    private static List scores(List items){
+        List result = new ArrayList();
+        for(int i = 0; i < items.size(); i++){
+            result.add(new Integer(((Item)items.get(i)).getScore()));
+        }
+        return result;
+    }
+    
+    private static List expected(int[][] nodeScores, boolean isAsc, int limit){
+        List result = new ArrayList();
+        for(int i = 0; i < nodeScores.length; i++){
+            for(int j = 0; j < nodeScores[i].length; j++){
+                result.add(new Integer(nodeScores[i][j]));
+            }
+        }
+        Collections.sort(result);
+        if(!isAsc){
+            Collections.reverse(result);
+        }
+        return limit > 0 && limit < result.size() ? result.subList(0, limit) : result;
+    }
+    
+    public void testNodeTopN() throws Exception{
+        SharedContextService node = createNode(new int[]{50, 10, 40, 20, 30, 60}, 0);
+        SharedContextView view = node.createView();
+        assertEquals(
+            Arrays.asList(new Integer[]{new Integer(10), new Integer(20), new Integer(30)}),
+            scores(view.getResultValueList(1000, new String[]{"score"}, new boolean[]{true}, 3))
+        );
+        assertEquals(
+            Arrays.asList(new Integer[]{new Integer(60), new Integer(50)}),
+            scores(view.getResultValueList(1000, new String[]{"score"}, new boolean[]{false}, 2))
+        );
+        assertEquals(6, view.getResultValueList(1000, new String[]{"score"}, new boolean[]{true}, 0).size());
+        assertEquals(6, view.getResultValueList(1000, new String[]{"score"}, new boolean[]{true}, 10).size());
+    }
+    
+    public void testMergeAcrossNodes() throws Exception{
+        final int[][] nodeScores = new int[][]{
+            {5, 17, 1, 33, 9},
+            {2, 8, 40, 16},
+            {30, 3, 12, 25, 7, 11}
+        };
+        SharedContextService[] nodes = new SharedContextService[nodeScores.length];
+        for(int i = 0; i < nodes.length; i++){
+            nodes[i] = createNode(nodeScores[i], i * 100);
+        }
+        SharedContextView view = createDistributedView(nodes);
+        final int[] limits = new int[]{0, 1, 4, 7, 15, 100};
+        for(int i = 0; i < limits.length; i++){
+            assertEquals(
+                "asc limit=" + limits[i],
+                expected(nodeScores, true, limits[i]),
+                scores(view.getResultValueList(1000, new String[]{"score"}, new boolean[]{true}, limits[i]))
+            );
+            assertEquals(
+                "desc limit=" + limits[i],
+                expected(nodeScores, false, limits[i]),
+                scores(view.getResultValueList(1000, new String[]{"score"}, new boolean[]{false}, limits[i]))
+            );
+        }
+        assertEquals(
+            expected(nodeScores, false, 0),
+            scores(view.getResultValueList(1000, new String[]{"score"}, new boolean[]{false}))
+        );
+    }
+    
+    public void testMergeWithEmptyNode() throws Exception{
+        SharedContextService[] nodes = new SharedContextService[]{
+            createNode(new int[0], 0),
+            createNode(new int[]{4, 2}, 100),
+            createNode(new int[0], 200),
+            createNode(new int[]{3, 1}, 300)
+        };
+        SharedContextView view = createDistributedView(nodes);
+        assertEquals(
+            Arrays.asList(new Integer[]{new Integer(1), new Integer(2), new Integer(3)}),
+            scores(view.getResultValueList(1000, new String[]{"score"}, new boolean[]{true}, 3))
+        );
+        assertEquals(4, view.getResultValueList(1000, null, null, 0).size());
+        assertEquals(2, view.getResultValueList(1000, null, null, 2).size());
+        
+        view = createDistributedView(new SharedContextService[]{createNode(new int[0], 0), createNode(new int[0], 100)});
+        assertEquals(0, view.getResultValueList(1000, new String[]{"score"}, new boolean[]{true}, 3).size());
+    }
+    
+    public void testClientPushdown() throws Exception{
+        final MainService main = (MainService)createNode(new int[]{50, 10, 40, 20, 30, 60}, 0);
+        ClientService client = new ClientService(main);
+        client.createService();
+        client.setClient(true);
+        SharedContextView view = client.createView();
+        assertEquals(
+            Arrays.asList(new Integer[]{new Integer(60), new Integer(50), new Integer(40)}),
+            scores(view.getResultValueList(1000, new String[]{"score"}, new boolean[]{false}, 3))
+        );
+        assertEquals(1, client.requestCount);
+        // 主ノードで絞り込むため、クライアントには件数分しか送られない
+        assertEquals(3, client.lastResponseSize);
+    }
+    
+    public static class Item implements java.io.Serializable{
+        
+        private static final long serialVersionUID = 1L;
+        
+        private String name;
+        private int score;
+        
+        public Item(){
+        }
+        
+        public Item(String name, int score){
+            this.name = name;
+            this.score = score;
+        }
+        
+        public String getName(){
+            return name;
+        }
+        public void setName(String name){
+            this.name = name;
+        }
+        
+        public int getScore(){
+            return score;
+        }
+        public void setScore(int score){
+            this.score = score;
+        }
+    }
+    
+    private static class MainService extends SharedContextService{
+        
+        private static final long serialVersionUID = 1L;
+        
+        protected boolean isMain(Object excludeId){
+            return true;
+        }
+        
+        protected Message createResponseMessage(String responseSubject, String responseKey, Object response){
+            Message message = new jp.ossc.nimbus.service.publish.tcp.MessageImpl();
+            try{
+                message.setObject(response);
+            }catch(MessageException e){
+                throw new RuntimeException(e);
+            }
+            return message;
+        }
+    }
+    
+    private static class ClientService extends SharedContextService{
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final MainService main;
+        private int requestCount;
+        private int lastResponseSize = -1;
+        
+        public ClientService(MainService main){
+            this.main = main;
+        }
+        
+        protected Object requestViewQuery(SharedContextEvent event, long timeout) throws SharedContextSendException, SharedContextTimeoutException{
+            requestCount++;
+            assertEquals(SharedContextEvent.EVENT_GET_VIEW_VALUES, event.type);
+            try{
+                Object ret = main.onGetViewValues(event, null, 0, null, null).getObject();
+                if(ret instanceof List){
+                    lastResponseSize = ((List)ret).size();
+                }
+                return ret;
+            }catch(MessageException e){
+                throw new SharedContextSendException(e);
+            }
+        }
+    }
+}
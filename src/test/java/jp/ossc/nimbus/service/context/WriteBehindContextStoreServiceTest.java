@@ -0,0 +1,378 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.context;
+
+import java.io.File;
+import java.util.*;
+import java.lang.reflect.*;
+
+import junit.framework.*;
+
+import jp.ossc.nimbus.service.log.Logger;
+
+/**
+ * {@link WriteBehindContextStoreService}テスト。<p>
+ *
+ * @author M.Takata
+ */
+public class WriteBehindContextStoreServiceTest extends TestCase{
+    
+    public WriteBehindContextStoreServiceTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{WriteBehindContextStoreServiceTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(WriteBehindContextStoreServiceTest.class);
+    }
+    
+    public void testCoalesce() throws Exception{
+        MemoryContextStore store = new MemoryContextStore();
+        WriteBehindContextStoreService writeBehind = createStore(store, 100, 60000L);
+        try{
+            DefaultContextService context = createContext();
+            for(int i = 0; i < 10; i++){
+                for(int j = 0; j < 5; j++){
+                    context.put("key" + j, new Integer(i));
+                    writeBehind.save(context, "key" + j);
+                }
+            }
+            assertEquals(5, writeBehind.getQueueDepth());
+            assertEquals(50, writeBehind.getSaveCount());
+            assertEquals(45, writeBehind.getCoalescedCount());
+            assertEquals(0, store.values.size());
+            
+            DefaultContextService loaded = createContext();
+            assertTrue(writeBehind.load(loaded, "key0"));
+            assertEquals(new Integer(9), loaded.get("key0"));
+            
+            writeBehind.flush();
+            assertEquals(0, writeBehind.getQueueDepth());
+            assertEquals(1, store.batchCount);
+            assertEquals(5, writeBehind.getFlushedKeyCount());
+            for(int j = 0; j < 5; j++){
+                assertEquals(new Integer(9), store.values.get("key" + j));
+            }
+            
+            context.remove("key0");
+            writeBehind.save(context, "key0");
+            loaded = createContext();
+            assertFalse(writeBehind.load(loaded, "key0"));
+            writeBehind.flush();
+            assertFalse(store.values.containsKey("key0"));
+        }finally{
+            writeBehind.stop();
+        }
+    }
+    
+    public void testFlushOnBatchSize() throws Exception{
+        MemoryContextStore store = new MemoryContextStore();
+        WriteBehindContextStoreService writeBehind = createStore(store, 10, 60000L);
+        try{
+            DefaultContextService context = createContext();
+            for(int i = 0; i < 10; i++){
+                context.put("key" + i, new Integer(i));
+                writeBehind.save(context, "key" + i);
+            }
+            for(int i = 0; i < 100 && writeBehind.getFlushCount() == 0; i++){
+                Thread.sleep(50);
+            }
+            assertEquals(1, writeBehind.getFlushCount());
+            assertEquals(10, store.values.size());
+        }finally{
+            writeBehind.stop();
+        }
+    }
+    
+    public void testFlushOnStop() throws Exception{
+        MemoryContextStore store = new MemoryContextStore();
+        WriteBehindContextStoreService writeBehind = createStore(store, 100, 60000L);
+        DefaultContextService context = createContext();
+        context.put("key", "value");
+        writeBehind.save(context, "key");
+        writeBehind.stop();
+        assertEquals("value", store.values.get("key"));
+    }
+    
+    public void testFlushErrorLogged() throws Exception{
+        MemoryContextStore store = new MemoryContextStore();
+        store.isFail = true;
+        final List messageIds = Collections.synchronizedList(new ArrayList());
+        WriteBehindContextStoreService writeBehind = new WriteBehindContextStoreService();
+        writeBehind.setContextStore(store);
+        writeBehind.setBatchSize(100);
+        writeBehind.setFlushInterval(50L);
+        writeBehind.setLogger(
+            (Logger)Proxy.newProxyInstance(
+                Logger.class.getClassLoader(),
+                new Class[]{Logger.class},
+                new InvocationHandler(){
+                    public Object invoke(Object proxy, Method method, Object[] args){
+                        if("write".equals(method.getName()) && args != null && args[0] instanceof String){
+                            messageIds.add(args[0]);
+                        }
+                        return method.getReturnType() == Boolean.TYPE ? Boolean.TRUE : null;
+                    }
+                }
+            )
+        );
+        writeBehind.create();
+        writeBehind.start();
+        DefaultContextService context = createContext();
+        context.put("key", "value");
+        writeBehind.save(context, "key");
+        for(int i = 0; i < 100 && !messageIds.contains("WBCS_00001"); i++){
+            Thread.sleep(50);
+        }
+        assertTrue(messageIds.toString(), messageIds.contains("WBCS_00001"));
+        assertTrue(writeBehind.getFlushErrorCount() > 0);
+        
+        writeBehind.stop();
+        assertTrue(messageIds.toString(), messageIds.contains("WBCS_00002"));
+        assertEquals(1, writeBehind.getQueueDepth());
+        assertEquals(0, store.values.size());
+    }
+    
+    public void testFileContextStore() throws Exception{
+        File dir = new File(System.getProperty("java.io.tmpdir"), "WriteBehindContextStoreServiceTest" + System.currentTimeMillis());
+        FileContextStoreService fileStore = new FileContextStoreService();
+        fileStore.setRootDirectory(dir);
+        fileStore.setSupportByKey(true);
+        fileStore.create();
+        fileStore.start();
+        try{
+            WriteBehindContextStoreService writeBehind = createStore(fileStore, 100, 60000L);
+            DefaultContextService context = createContext();
+            for(int i = 0; i < 20; i++){
+                context.put("key" + i, "value" + i);
+                writeBehind.save(context, "key" + i);
+            }
+            writeBehind.stop();
+            
+            DefaultContextService loaded = createContext();
+            fileStore.loadKey(loaded);
+            assertEquals(20, loaded.size());
+            for(int i = 0; i < 20; i++){
+                assertTrue(fileStore.load(loaded, "key" + i));
+                assertEquals("value" + i, loaded.get("key" + i));
+            }
+        }finally{
+            fileStore.clear();
+            fileStore.stop();
+            new File(dir, fileStore.getValueDirectoryName()).delete();
+            dir.delete();
+        }
+    }
+    
+    public void testFileContextStoreSegment() throws Exception{
+        File dir = new File(System.getProperty("java.io.tmpdir"), "WriteBehindContextStoreServiceTest" + System.currentTimeMillis());
+        FileContextStoreService fileStore = createFileStore(dir);
+        FileContextStoreService reopened = null;
+        try{
+            File valueDir = new File(dir, fileStore.getValueDirectoryName());
+            DefaultContextService context = createContext();
+            for(int i = 0; i < 20; i++){
+                context.put("key" + i, "value" + i);
+            }
+            fileStore.saveAll(new WriteBehindContextStoreService.SnapshotContext(context), context.keySet());
+            assertEquals(1, valueDir.listFiles().length);
+            
+            context.put("key0", "new0");
+            fileStore.save(context, "key0");
+            assertEquals(2, valueDir.listFiles().length);
+            for(int i = 0; i < 20; i++){
+                context.put("key" + i, "new" + i);
+            }
+            fileStore.saveAll(new WriteBehindContextStoreService.SnapshotContext(context), context.keySet());
+            assertEquals(1, valueDir.listFiles().length);
+            context.remove("key1");
+            fileStore.saveAll(new WriteBehindContextStoreService.SnapshotContext(context), Collections.singleton("key1"));
+            assertEquals(2, valueDir.listFiles().length);
+            
+            reopened = createFileStore(dir);
+            DefaultContextService loaded = createContext();
+            reopened.loadKey(loaded);
+            assertEquals(20, loaded.size());
+            for(int i = 0; i < 20; i++){
+                if(i == 1){
+                    assertFalse(reopened.load(loaded, "key" + i));
+                }else{
+                    assertTrue(reopened.load(loaded, "key" + i));
+                    assertEquals("new" + i, loaded.get("key" + i));
+                }
+            }
+        }finally{
+            fileStore.clear();
+            fileStore.stop();
+            if(reopened != null){
+                reopened.stop();
+            }
+            new File(dir, fileStore.getValueDirectoryName()).delete();
+            dir.delete();
+        }
+    }
+    
+    public void testSaveDuringStopNotOverwritten() throws Exception{
+        final MemoryContextStore store = new MemoryContextStore();
+        store.blockLatch = new java.util.concurrent.CountDownLatch(1);
+        final WriteBehindContextStoreService writeBehind = createStore(store, 100, 60000L);
+        final DefaultContextService context = createContext();
+        context.put("key", "old");
+        writeBehind.save(context, "key");
+        final Thread stopThread = new Thread(){
+            public void run(){
+                writeBehind.stop();
+            }
+        };
+        stopThread.start();
+        for(int i = 0; i < 100 && store.blockedCount == 0; i++){
+            Thread.sleep(50);
+        }
+        assertEquals(1, store.blockedCount);
+        final DefaultContextService newContext = createContext();
+        newContext.put("key", "new");
+        final Thread saveThread = new Thread(){
+            public void run(){
+                try{
+                    writeBehind.save(newContext, "key");
+                }catch(Exception e){
+                }
+            }
+        };
+        saveThread.start();
+        saveThread.join(200);
+        store.blockLatch.countDown();
+        stopThread.join(5000);
+        saveThread.join(5000);
+        assertEquals("new", store.values.get("key"));
+    }
+    
+    private static FileContextStoreService createFileStore(File dir) throws Exception{
+        FileContextStoreService fileStore = new FileContextStoreService();
+        fileStore.setRootDirectory(dir);
+        fileStore.setSupportByKey(true);
+        fileStore.create();
+        fileStore.start();
+        return fileStore;
+    }
+    
+    private static WriteBehindContextStoreService createStore(ContextStore store, int batchSize, long interval) throws Exception{
+        WriteBehindContextStoreService writeBehind = new WriteBehindContextStoreService();
+        writeBehind.setContextStore(store);
+        writeBehind.setBatchSize(batchSize);
+        writeBehind.setFlushInterval(interval);
+        writeBehind.create();
+        writeBehind.start();
+        return writeBehind;
+    }
+    
+    private static DefaultContextService createContext() throws Exception{
+        DefaultContextService context = new DefaultContextService();
+        context.create();
+        context.start();
+        return context;
+    }
+    
+    private static class MemoryContextStore implements BatchContextStore{
+        
+        public final Map values = Collections.synchronizedMap(new HashMap());
+        public int batchCount;
+        public volatile boolean isFail;
+        public volatile java.util.concurrent.CountDownLatch blockLatch;
+        public volatile int blockedCount;
+        
+        public void clear(){
+            values.clear();
+        }
+        
+        public void save(Context context){
+            values.putAll(context);
+        }
+        
+        public void save(Context context, Object key){
+            Object value = context.get(key);
+            if(value == null){
+                values.remove(key);
+            }else{
+                values.put(key, value);
+            }
+        }
+        
+        public void saveAll(Context context, Set keys) throws Exception{
+            if(isFail){
+                throw new Exception("fail");
+            }
+            if(blockLatch != null){
+                blockedCount++;
+                blockLatch.await();
+            }
+            batchCount++;
+            Iterator itr = keys.iterator();
+            while(itr.hasNext()){
+                save(context, itr.next());
+            }
+        }
+        
+        public void load(Context context){
+            context.putAll(values);
+        }
+        
+        public void loadKey(Context context){
+            Iterator itr = values.keySet().iterator();
+            while(itr.hasNext()){
+                context.put(itr.next(), null);
+            }
+        }
+        
+        public boolean load(Context context, Object key){
+            Object value = values.get(key);
+            if(value == null){
+                return false;
+            }
+            context.put(key, value);
+            return true;
+        }
+        
+        public boolean isSupportSaveByKey(){
+            return true;
+        }
+        
+        public boolean isSupportLoadByKey(){
+            return true;
+        }
+    }
+}
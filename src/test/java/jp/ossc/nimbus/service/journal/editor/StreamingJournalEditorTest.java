@@ -0,0 +1,242 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.journal.editor;
+
+import java.util.*;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import jp.ossc.nimbus.service.journal.JournalEditor;
+import jp.ossc.nimbus.service.journal.editorfinder.EditorFinder;
+
+public class StreamingJournalEditorTest extends TestCase{
+    
+    public StreamingJournalEditorTest(String arg0){
+        super(arg0);
+    }
+    
+    public static void main(String[] args){
+        junit.swingui.TestRunner.main(new String[]{StreamingJournalEditorTest.class.getName()});
+    }
+    
+    public static TestSuite suite(){
+        return new TestSuite(StreamingJournalEditorTest.class);
+    }
+    
+    private static class TestEditorFinder implements EditorFinder{
+        private final Map editors = new LinkedHashMap();
+        public void put(Class type, JournalEditor editor){
+            editors.put(type, editor);
+        }
+        public JournalEditor findEditor(Class paramClass){
+            if(paramClass == null){
+                return null;
+            }
+            final Iterator entries = editors.entrySet().iterator();
+            while(entries.hasNext()){
+                final Map.Entry entry = (Map.Entry)entries.next();
+                if(((Class)entry.getKey()).isAssignableFrom(paramClass)){
+                    return (JournalEditor)entry.getValue();
+                }
+            }
+            return null;
+        }
+        public JournalEditor findEditor(Object paramObj){
+            return findEditor(paramObj == null ? null : paramObj.getClass());
+        }
+        public JournalEditor findEditor(Object key, Class paramClass){
+            return findEditor(paramClass);
+        }
+        public JournalEditor findEditor(Object key, Object paramObj){
+            return findEditor(paramObj);
+        }
+    }
+    
+    private static Map createNestedMap(){
+        final Map child = new LinkedHashMap();
+        child.put("c", new Integer(2));
+        child.put("d", "x\"y\nz");
+        final Map map = new LinkedHashMap();
+        map.put("a", new Integer(1));
+        map.put("b", child);
+        return map;
+    }
+    
+    public void testMapAppendTo() throws Exception{
+        final MapJournalEditorService editor = new MapJournalEditorService();
+        editor.create();
+        editor.start();
+        final TestEditorFinder finder = new TestEditorFinder();
+        finder.put(Map.class, editor);
+        final Map map = createNestedMap();
+        
+        final String str = editor.toString(finder, null, map);
+        assertEquals("{a=1, b={c=2, d=x\"y\nz}}", str);
+        
+        final StringBuilder buf = new StringBuilder("prefix:");
+        assertSame(buf, editor.appendTo(finder, null, map, buf));
+        assertEquals("prefix:" + str, buf.toString());
+        
+        editor.setOutputKey(true);
+        buf.setLength(0);
+        editor.appendTo(finder, "key", map, buf);
+        assertEquals(editor.toString(finder, "key", map), buf.toString());
+    }
+    
+    public void testAppendIndent() throws Exception{
+        final MapJournalEditorService editor = new MapJournalEditorService();
+        editor.setLineSeparator("\n");
+        final String[] values = new String[]{
+            "",
+            "a",
+            "a\n",
+            "a\nb",
+            "a\nb\n",
+            "\n\na\n\nb",
+            "a\r\nb"
+        };
+        final int[] indents = new int[]{-1, 0, 1, 2};
+        for(int i = 0; i < values.length; i++){
+            for(int j = 0; j < indents.length; j++){
+                final StringBuilder buf = new StringBuilder("P");
+                editor.appendIndent(buf, new StringBuilder(values[i]), indents[j]);
+                assertEquals(
+                    "value=" + i + ", indent=" + indents[j],
+                    "P" + editor.setIndent(values[i], indents[j]),
+                    buf.toString()
+                );
+            }
+        }
+        editor.setOutputIndent(false);
+        final StringBuilder buf = new StringBuilder();
+        editor.appendIndent(buf, new StringBuilder("a\nb"), 1);
+        assertEquals("a\nb", buf.toString());
+    }
+    
+    public void testJSONNested() throws Exception{
+        final JSONJournalEditorService json = new JSONJournalEditorService();
+        json.create();
+        json.start();
+        final MapJournalEditorService mapEditor = new MapJournalEditorService();
+        mapEditor.create();
+        mapEditor.start();
+        final TestEditorFinder finder = new TestEditorFinder();
+        finder.put(Map.class, mapEditor);
+        finder.put(Object.class, json);
+        
+        final Map map = createNestedMap();
+        final List list = new ArrayList();
+        list.add(map);
+        final String expected = "\"" + json.escape(mapEditor.toString(finder, null, map)) + "\"";
+        assertEquals(expected, json.toObject(finder, null, map));
+        
+        final StringBuilder buf = new StringBuilder("[");
+        json.appendTo(finder, null, map, buf);
+        assertEquals("[" + expected, buf.toString());
+        
+        assertEquals("\"a\\\"b\\nc\\/\"", json.toObject(finder, null, "a\"b\nc/"));
+        final String noEscape = "abc";
+        assertSame(noEscape, json.escape(noEscape));
+    }
+    
+    public void testJSONNestedJSON() throws Exception{
+        final JSONJournalEditorService json = new JSONJournalEditorService();
+        json.create();
+        json.start();
+        final JSONJournalEditorService mapJson = new JSONJournalEditorService();
+        mapJson.setExpandMapValue(true);
+        mapJson.create();
+        mapJson.start();
+        final TestEditorFinder finder = new TestEditorFinder();
+        finder.put(Map.class, mapJson);
+        finder.put(Object.class, json);
+        
+        final Map map = createNestedMap();
+        assertEquals(
+            "{\"a\":1,\"b\":{\"c\":2,\"d\":\"x\\\"y\\nz\"}}",
+            json.toObject(finder, null, map)
+        );
+    }
+    
+    public void testCSV() throws Exception{
+        final MapJournalEditorService mapEditor = new MapJournalEditorService();
+        mapEditor.create();
+        mapEditor.start();
+        final CSVJournalEditorServiceBase csv = new CSVJournalEditorServiceBase(){
+            protected void processCSV(
+                EditorFinder finder,
+                Object key,
+                Object value
+            ){
+                addElements((Object[])value);
+            }
+        };
+        csv.create();
+        csv.start();
+        final TestEditorFinder finder = new TestEditorFinder();
+        finder.put(Map.class, mapEditor);
+        finder.put(Object[].class, csv);
+        
+        final Map map = new LinkedHashMap();
+        map.put("k", "v");
+        final Object[] inner = new Object[]{"i1", "i2"};
+        final Object[] values = new Object[]{"a\"b", "x\r\ny", "", map, inner};
+        final String expected = "\"a\"\"b\",\"x\\r\\ny\",\"\",\"{k=v}\",\"i1\",\"i2\"";
+        assertEquals(expected, csv.toString(finder, null, values));
+        
+        final StringBuilder buf = new StringBuilder("head,");
+        csv.appendTo(finder, null, values, buf);
+        assertEquals("head," + expected, buf.toString());
+        assertEquals("a\"\"b", csv.escape(null, "a\"b"));
+    }
+    
+    public void testStringBuilderPool() throws Exception{
+        final StringBuilder buf1 = StringBuilderPool.borrow();
+        final StringBuilder buf2 = StringBuilderPool.borrow();
+        assertNotSame(buf1, buf2);
+        buf1.append("abc");
+        StringBuilderPool.release(buf1);
+        StringBuilderPool.release(buf2);
+        final StringBuilder buf3 = StringBuilderPool.borrow();
+        assertSame(buf2, buf3);
+        final StringBuilder buf4 = StringBuilderPool.borrow();
+        assertSame(buf1, buf4);
+        assertEquals(0, buf4.length());
+        
+        buf4.ensureCapacity(StringBuilderPool.MAX_RETAIN_CAPACITY + 1);
+        StringBuilderPool.release(buf4);
+        StringBuilderPool.release(buf3);
+        assertSame(buf3, StringBuilderPool.borrow());
+        assertNotSame(buf4, StringBuilderPool.borrow());
+    }
+}
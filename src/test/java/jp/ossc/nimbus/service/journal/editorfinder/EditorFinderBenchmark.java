@@ -0,0 +1,204 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.journal.editorfinder;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.math.BigDecimal;
+
+import jp.ossc.nimbus.service.journal.JournalEditor;
+
+/**
+ * エディターファインダーサービスのベンチマーク。<p>
+ * 業務アプリケーションのジャーナルに現れる典型的なクラス階層のオブジェクトで、{@link ObjectMappedEditorFinderService}と{@link RegexClassMappedEditorFinderService}のエディタ検索を行い、検索結果キャッシュの有無によるスループットを比較する。<br>
+ * 計測の前に、キャッシュの有無で同じエディタが見つかる事を確認する。<br>
+ * 単体テストとしては実行されないため、{@link #main(String[])}で実行する。引数でスレッド数、計測時間[ms]を指定できる。<br>
+ *
+ * @author M.Takata
+ */
+public class EditorFinderBenchmark{
+    
+    private static final Object[] VALUES = new Object[]{
+        "value",
+        new StringBuilder("value"),
+        new Integer(1),
+        new Long(1L),
+        new BigDecimal("1.5"),
+        Boolean.TRUE,
+        new Date(),
+        new java.sql.Timestamp(0L),
+        new ArrayList(),
+        new LinkedList(),
+        new HashSet(),
+        new HashMap(),
+        new LinkedHashMap(),
+        new TreeMap(),
+        new ConcurrentHashMap(),
+        new Properties(),
+        new Object[0],
+        new String[0],
+        new IllegalArgumentException(),
+        new java.io.IOException(),
+        new Object()
+    };
+    
+    private static final String[] KEYS = new String[]{
+        null, "Request", "Response", "password"
+    };
+    
+    public static void main(String[] theArgs) throws Exception{
+        final int threadSize = theArgs.length > 0 ? Integer.parseInt(theArgs[0]) : 16;
+        final long time = theArgs.length > 1 ? Long.parseLong(theArgs[1]) : 10000l;
+        assertSameEditors(createObjectMappedEditorFinder(false), createObjectMappedEditorFinder(true));
+        assertSameEditors(createRegexClassMappedEditorFinder(false), createRegexClassMappedEditorFinder(true));
+        final boolean[] cacheEnabled = new boolean[]{false, true};
+        for(int i = 0; i < cacheEnabled.length; i++){
+            System.out.println(
+                "ObjectMapped cache=" + cacheEnabled[i] + " : throughput="
+                    + (long)measureThroughput(createObjectMappedEditorFinder(cacheEnabled[i]), threadSize, time)
+                    + "[ops/s]"
+            );
+            System.out.println(
+                "RegexClassMapped cache=" + cacheEnabled[i] + " : throughput="
+                    + (long)measureThroughput(createRegexClassMappedEditorFinder(cacheEnabled[i]), threadSize, time)
+                    + "[ops/s]"
+            );
+        }
+    }
+    
+    private static void assertSameEditors(EditorFinder expected, EditorFinder actual){
+        for(int i = 0; i < KEYS.length; i++){
+            for(int j = 0; j < VALUES.length; j++){
+                for(int k = 0; k < 2; k++){
+                    final JournalEditor expectedEditor = expected.findEditor(KEYS[i], VALUES[j]);
+                    final JournalEditor actualEditor = actual.findEditor(KEYS[i], VALUES[j]);
+                    final Object expectedName = expectedEditor == null ? null : expectedEditor.toObject(null, null, null);
+                    final Object actualName = actualEditor == null ? null : actualEditor.toObject(null, null, null);
+                    if(expectedName == null ? actualName != null : !expectedName.equals(actualName)){
+                        throw new IllegalStateException(
+                            "Editor mismatch. key=" + KEYS[i] + ", class=" + VALUES[j].getClass().getName()
+                                + ", expected=" + expectedName + ", actual=" + actualName
+                        );
+                    }
+                }
+            }
+        }
+    }
+    
+    private static JournalEditor createEditor(final String name){
+        return new JournalEditor(){
+            public Object toObject(EditorFinder finder, Object key, Object value){
+                return name;
+            }
+        };
+    }
+    
+    private static ObjectMappedEditorFinderService createObjectMappedEditorFinder(boolean isCacheEnabled) throws Exception{
+        final Properties props = new Properties();
+        props.put("java.lang.Object", createEditor("Object"));
+        props.put("java.lang.String", createEditor("String"));
+        props.put("java.lang.String,password", createEditor("Secret"));
+        props.put("java.lang.Number", createEditor("Number"));
+        props.put("java.util.Date", createEditor("Date"));
+        props.put("java.util.Collection", createEditor("Collection"));
+        props.put("java.util.Map", createEditor("Map"));
+        props.put("java.util.Map,Request", createEditor("RequestMap"));
+        props.put("java.lang.Object[]", createEditor("ObjectArray"));
+        props.put("java.lang.Throwable", createEditor("Throwable"));
+        final ObjectMappedEditorFinderService finder = new ObjectMappedEditorFinderService();
+        finder.setEditorProperties(props);
+        finder.setEditorCacheEnabled(isCacheEnabled);
+        finder.create();
+        finder.start();
+        return finder;
+    }
+    
+    private static RegexClassMappedEditorFinderService createRegexClassMappedEditorFinder(boolean isCacheEnabled) throws Exception{
+        final Map mapping = new LinkedHashMap();
+        mapping.put("java\\.lang\\.String", createEditor("String"));
+        mapping.put("java\\.lang\\.String,password", createEditor("Secret"));
+        mapping.put("java\\.lang\\.Number", createEditor("Number"));
+        mapping.put("java\\.util\\.Date", createEditor("Date"));
+        mapping.put("java\\.util\\.(Collection|List|Set)", createEditor("Collection"));
+        mapping.put("java\\.util\\.Map", createEditor("Map"));
+        mapping.put("java\\.util\\.Map,Request", createEditor("RequestMap"));
+        mapping.put("\\[L.*;", createEditor("ObjectArray"));
+        mapping.put("java\\.lang\\.Throwable", createEditor("Throwable"));
+        mapping.put("java\\.lang\\.Object", createEditor("Object"));
+        final RegexClassMappedEditorFinderService finder = new RegexClassMappedEditorFinderService();
+        finder.setEditorMapping(mapping);
+        finder.setEditorCacheEnabled(isCacheEnabled);
+        finder.create();
+        finder.start();
+        return finder;
+    }
+    
+    private static double measureThroughput(
+        final EditorFinder finder,
+        int threadSize,
+        long time
+    ) throws Exception{
+        final long[] counts = new long[threadSize];
+        final Thread[] threads = new Thread[threadSize];
+        final long startTime = System.currentTimeMillis();
+        final long endTime = startTime + time;
+        for(int i = 0; i < threads.length; i++){
+            final int index = i;
+            threads[i] = new Thread(){
+                public void run(){
+                    final Random random = new Random(index);
+                    long count = 0;
+                    while(System.currentTimeMillis() < endTime){
+                        for(int j = 0; j < 100; j++){
+                            finder.findEditor(
+                                KEYS[random.nextInt(KEYS.length)],
+                                VALUES[random.nextInt(VALUES.length)]
+                            );
+                        }
+                        count += 100;
+                    }
+                    counts[index] = count;
+                }
+            };
+            threads[i].start();
+        }
+        long total = 0;
+        for(int i = 0; i < threads.length; i++){
+            threads[i].join();
+            total += counts[i];
+        }
+        final long elapsed = System.currentTimeMillis() - startTime;
+        ((jp.ossc.nimbus.core.Service)finder).stop();
+        ((jp.ossc.nimbus.core.Service)finder).destroy();
+        return (double)total * 1000.0d / elapsed;
+    }
+}
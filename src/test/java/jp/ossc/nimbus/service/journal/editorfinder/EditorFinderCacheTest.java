@@ -0,0 +1,204 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.journal.editorfinder;
+
+import java.util.*;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import jp.ossc.nimbus.service.journal.JournalEditor;
+
+public class EditorFinderCacheTest extends TestCase{
+    
+    public EditorFinderCacheTest(String arg0){
+        super(arg0);
+    }
+    
+    public static void main(String[] args){
+        junit.swingui.TestRunner.main(new String[]{EditorFinderCacheTest.class.getName()});
+    }
+    
+    public static TestSuite suite(){
+        return new TestSuite(EditorFinderCacheTest.class);
+    }
+    
+    private static class TestEditor implements JournalEditor{
+        private final String name;
+        public TestEditor(String name){
+            this.name = name;
+        }
+        public Object toObject(EditorFinder finder, Object key, Object value){
+            return name;
+        }
+        public String toString(){
+            return name;
+        }
+    }
+    
+    public void testCache() throws Exception{
+        final EditorFinderCache cache = new EditorFinderCache();
+        assertSame(EditorFinderCache.NOT_CACHED, cache.get(null, String.class));
+        cache.put(null, String.class, null);
+        assertNull(cache.get(null, String.class));
+        final JournalEditor editor = new TestEditor("string");
+        cache.put("key", String.class, editor);
+        assertSame(editor, cache.get("key", String.class));
+        assertNull(cache.get(null, String.class));
+        assertSame(EditorFinderCache.NOT_CACHED, cache.get("other", String.class));
+        assertEquals(3L, cache.getHitCount());
+        assertEquals(2L, cache.getMissCount());
+        
+        cache.setMaxSize(2);
+        cache.put(null, Integer.class, editor);
+        assertEquals(2, cache.size());
+        cache.put(null, Long.class, editor);
+        assertEquals(1, cache.size());
+        assertSame(EditorFinderCache.NOT_CACHED, cache.get(null, String.class));
+        
+        cache.setMaxKeySize(2);
+        cache.put("key1", Long.class, editor);
+        cache.put("key1", Long.class, editor);
+        assertSame(editor, cache.get("key1", Long.class));
+        assertSame(editor, cache.get(null, Long.class));
+        cache.put("key2", Long.class, editor);
+        assertSame(EditorFinderCache.NOT_CACHED, cache.get(null, Long.class));
+        assertSame(EditorFinderCache.NOT_CACHED, cache.get("key1", Long.class));
+        assertSame(editor, cache.get("key2", Long.class));
+        
+        cache.clear();
+        assertEquals(0, cache.size());
+        cache.resetCount();
+        assertEquals(0L, cache.getHitCount());
+        assertEquals(0L, cache.getMissCount());
+    }
+    
+    public void testObjectMappedEditorFinder() throws Exception{
+        final JournalEditor objectEditor = new TestEditor("object");
+        final JournalEditor collectionEditor = new TestEditor("collection");
+        final JournalEditor stringEditor = new TestEditor("string");
+        final JournalEditor secretEditor = new TestEditor("secret");
+        final Properties props = new Properties();
+        props.put("java.lang.Object", objectEditor);
+        props.put("java.util.Collection", collectionEditor);
+        props.put("java.lang.String", stringEditor);
+        props.put("java.lang.String,password", secretEditor);
+        final ObjectMappedEditorFinderService finder = new ObjectMappedEditorFinderService();
+        finder.setEditorProperties(props);
+        finder.create();
+        finder.start();
+        try{
+            for(int i = 0; i < 2; i++){
+                assertSame(collectionEditor, finder.findEditor(new ArrayList()));
+                assertSame(collectionEditor, finder.findEditor(HashSet.class));
+                assertSame(stringEditor, finder.findEditor("a"));
+                assertSame(stringEditor, finder.findEditor("user", "a"));
+                assertSame(secretEditor, finder.findEditor("password", "a"));
+                assertSame(objectEditor, finder.findEditor(new Date()));
+            }
+            assertEquals(4, finder.getEditorCacheSize());
+            assertEquals(8L, finder.getEditorCacheHitCount());
+            assertEquals(4L, finder.getEditorCacheMissCount());
+            
+            finder.setEditorCacheEnabled(false);
+            assertEquals(0, finder.getEditorCacheSize());
+            assertSame(collectionEditor, finder.findEditor(new ArrayList()));
+            assertSame(secretEditor, finder.findEditor("password", "a"));
+            assertEquals(0, finder.getEditorCacheSize());
+            finder.setEditorCacheEnabled(true);
+            
+            props.put("java.util.List", objectEditor);
+            finder.stop();
+            finder.start();
+            assertEquals(0, finder.getEditorCacheSize());
+            assertSame(objectEditor, finder.findEditor(new ArrayList()));
+        }finally{
+            finder.stop();
+            finder.destroy();
+        }
+    }
+    
+    public void testRegexClassMappedEditorFinder() throws Exception{
+        final JournalEditor mapEditor = new TestEditor("map");
+        final JournalEditor collectionEditor = new TestEditor("collection");
+        final JournalEditor secretEditor = new TestEditor("secret");
+        final JournalEditor parentEditor = new TestEditor("parent");
+        final Map mapping = new LinkedHashMap();
+        mapping.put("java\\.util\\..*Map", mapEditor);
+        mapping.put("java\\.util\\.Collection", collectionEditor);
+        mapping.put("java\\.lang\\.String,password", secretEditor);
+        final Properties parentProps = new Properties();
+        parentProps.put("java.lang.Object", parentEditor);
+        final ObjectMappedEditorFinderService parent = new ObjectMappedEditorFinderService();
+        parent.setEditorProperties(parentProps);
+        parent.create();
+        parent.start();
+        final RegexClassMappedEditorFinderService finder = new RegexClassMappedEditorFinderService();
+        finder.setEditorMapping(mapping);
+        finder.setEditorfinder(parent);
+        finder.create();
+        finder.start();
+        try{
+            for(int i = 0; i < 2; i++){
+                assertSame(mapEditor, finder.findEditor(HashMap.class));
+                assertSame(mapEditor, finder.findEditor(TreeMap.class));
+                assertSame(collectionEditor, finder.findEditor(ArrayList.class));
+                assertSame(secretEditor, finder.findEditor("password", String.class));
+                assertSame(parentEditor, finder.findEditor("user", String.class));
+            }
+            final long hitCount = finder.getEditorCacheHitCount();
+            assertTrue(hitCount >= 5L);
+            final long missCount = finder.getEditorCacheMissCount();
+            assertSame(mapEditor, finder.findEditor(HashMap.class));
+            assertEquals(hitCount + 1, finder.getEditorCacheHitCount());
+            assertEquals(missCount, finder.getEditorCacheMissCount());
+            
+            // 親のEditorFinderの検索結果はキャッシュしないため、親のマッピングの変更がすぐに反映される
+            final JournalEditor newParentEditor = new TestEditor("newParent");
+            parentProps.put("java.lang.Object", newParentEditor);
+            parent.stop();
+            parent.start();
+            assertSame(newParentEditor, finder.findEditor("user", String.class));
+            assertSame(mapEditor, finder.findEditor(HashMap.class));
+            
+            finder.clearEditorCache();
+            assertEquals(0, finder.getEditorCacheSize());
+            assertSame(collectionEditor, finder.findEditor(ArrayList.class));
+            assertTrue(finder.getEditorCacheSize() > 0);
+        }finally{
+            finder.stop();
+            finder.destroy();
+            parent.stop();
+            parent.destroy();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.performance;
+
+import java.util.*;
+
+import junit.framework.*;
+
+import jp.ossc.nimbus.service.writer.Category;
+
+/**
+ * {@link HistogramPerformanceRecorderService}テスト。<p>
+ *
+ * @author M.Takata
+ */
+public class HistogramPerformanceRecorderServiceTest extends TestCase{
+    
+    public HistogramPerformanceRecorderServiceTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{HistogramPerformanceRecorderServiceTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(HistogramPerformanceRecorderServiceTest.class);
+    }
+    
+    public void testBucketIndex() throws Exception{
+        final int bits = LogLinearHistogram.DEFAULT_SUB_BUCKET_BITS;
+        final int size = LogLinearHistogram.getBucketSize(bits);
+        int prev = -1;
+        for(long value = 0; value < 100000; value++){
+            int index = LogLinearHistogram.getBucketIndex(value, bits);
+            assertTrue(index == prev || index == prev + 1);
+            assertTrue(LogLinearHistogram.getHighestEquivalentValue(index, bits) >= value);
+            assertTrue(LogLinearHistogram.getLowestEquivalentValue(index, bits) <= value);
+            if(index != prev){
+                assertEquals(value, LogLinearHistogram.getLowestEquivalentValue(index, bits));
+            }
+            prev = index;
+        }
+        assertEquals(size - 1, LogLinearHistogram.getBucketIndex(Long.MAX_VALUE, bits));
+        assertEquals(Long.MAX_VALUE, LogLinearHistogram.getHighestEquivalentValue(size - 1, bits));
+    }
+    
+    public void testPercentile() throws Exception{
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for(int i = 1; i <= 10000; i++){
+            histogram.recordValue(i);
+        }
+        assertEquals(10000, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(10000, histogram.getMax());
+        assertEquals(5000.5d, histogram.getMean(), 0.0d);
+        assertEquals(50005000L, histogram.getSum());
+        assertNear(5000, histogram.getValueAtPercentile(50.0d));
+        assertNear(9900, histogram.getValueAtPercentile(99.0d));
+        assertNear(9990, histogram.getValueAtPercentile(99.9d));
+        assertEquals(10000, histogram.getValueAtPercentile(100.0d));
+        assertEquals(1, histogram.getValueAtPercentile(0.0d));
+    }
+    
+    public void testAdjustSummary() throws Exception{
+        final int bits = LogLinearHistogram.DEFAULT_SUB_BUCKET_BITS;
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        histogram.addBucketCount(LogLinearHistogram.getBucketIndex(10, bits), 1);
+        histogram.addBucketCount(LogLinearHistogram.getBucketIndex(5000, bits), 1);
+        histogram.addSummary(Long.MAX_VALUE, Long.MIN_VALUE, 0);
+        histogram.adjustSummary();
+        assertEquals(10, histogram.getMin());
+        assertTrue(histogram.getMax() >= 5000);
+        assertTrue(histogram.getMin() <= histogram.getMax());
+        assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100.0d));
+        
+        histogram = new LogLinearHistogram();
+        histogram.addBucketCount(LogLinearHistogram.getBucketIndex(10, bits), 1);
+        histogram.addBucketCount(LogLinearHistogram.getBucketIndex(5000, bits), 1);
+        histogram.addSummary(10, 10, 10);
+        histogram.adjustSummary();
+        assertEquals(10, histogram.getMin());
+        assertTrue(histogram.getMax() >= 5000);
+        
+        histogram = new LogLinearHistogram();
+        histogram.recordValue(3);
+        histogram.recordValue(7000);
+        histogram.adjustSummary();
+        assertEquals(3, histogram.getMin());
+        assertEquals(7000, histogram.getMax());
+    }
+    
+    public void testMerge() throws Exception{
+        LogLinearHistogram h1 = new LogLinearHistogram();
+        LogLinearHistogram h2 = new LogLinearHistogram();
+        for(int i = 1; i <= 5000; i++){
+            h1.recordValue(i);
+            h2.recordValue(i + 5000);
+        }
+        h1.add(h2);
+        assertEquals(10000, h1.getCount());
+        assertEquals(1, h1.getMin());
+        assertEquals(10000, h1.getMax());
+        assertNear(5000, h1.getValueAtPercentile(50.0d));
+        try{
+            h1.add(new LogLinearHistogram(5));
+            fail();
+        }catch(IllegalArgumentException e){
+        }
+    }
+    
+    public void testRecord() throws Exception{
+        final List records = Collections.synchronizedList(new ArrayList());
+        HistogramPerformanceRecorderService service = new HistogramPerformanceRecorderService();
+        service.setResetInterval(200L);
+        service.setStripeSize(4);
+        service.setOutputNoAccessTime(false);
+        service.setCategory(
+            new Category(){
+                public boolean isEnabled(){return true;}
+                public void setEnabled(boolean enable){}
+                public void write(Object elements){
+                    records.add(elements);
+                }
+            }
+        );
+        service.create();
+        service.start();
+        try{
+            Thread[] threads = new Thread[4];
+            for(int i = 0; i < threads.length; i++){
+                final HistogramPerformanceRecorderService recorder = service;
+                threads[i] = new Thread(){
+                    public void run(){
+                        for(int j = 1; j <= 1000; j++){
+                            recorder.recordValue(System.currentTimeMillis(), j);
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            for(int i = 0; i < threads.length; i++){
+                threads[i].join();
+            }
+            assertTrue(service.getHistogram().getCount() <= 4000);
+            assertTrue(service.display().indexOf("P999=") != -1);
+            
+            long start = System.currentTimeMillis();
+            while(getRecordedCount(records) < 4000 && System.currentTimeMillis() - start < 5000){
+                Thread.sleep(50L);
+            }
+        }finally{
+            service.stop();
+            service.destroy();
+        }
+        assertEquals(4000, getRecordedCount(records));
+        long sum = 0;
+        for(int i = 0; i < records.size(); i++){
+            Map record = (Map)records.get(i);
+            assertTrue(record.containsKey("P50"));
+            assertTrue(record.containsKey("P90"));
+            assertTrue(record.containsKey("P99"));
+            assertTrue(record.containsKey("P999"));
+            sum += ((Long)record.get(HistogramPerformanceRecorderServiceMBean.RECORD_KEY_SUM)).longValue();
+        }
+        assertEquals(2002000L, sum);
+    }
+    
+    public void testRecordAfterDestroy() throws Exception{
+        final boolean[] isStarted = new boolean[1];
+        HistogramPerformanceRecorderService service = new HistogramPerformanceRecorderService(){
+            public int getState(){
+                // 状態を確認した直後に破棄された場合を再現する
+                return isStarted[0] ? STARTED : super.getState();
+            }
+        };
+        service.create();
+        service.start();
+        service.recordValue(System.currentTimeMillis(), 1);
+        service.stop();
+        service.destroy();
+        isStarted[0] = true;
+        service.record(0L, 1L);
+        service.recordValue(System.currentTimeMillis(), 1);
+        assertEquals(0, service.getHistogram().getCount());
+    }
+    
+    private long getRecordedCount(List records){
+        long count = 0;
+        synchronized(records){
+            for(int i = 0; i < records.size(); i++){
+                count += ((Long)((Map)records.get(i)).get(HistogramPerformanceRecorderServiceMBean.RECORD_KEY_COUNT)).longValue();
+            }
+        }
+        return count;
+    }
+    
+    private void assertNear(long expected, long actual){
+        assertTrue("expected=" + expected + ", actual=" + actual, Math.abs(expected - actual) <= expected / 50 + 1);
+    }
+}
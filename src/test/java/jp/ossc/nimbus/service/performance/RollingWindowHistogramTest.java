@@ -0,0 +1,122 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.performance;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+public class RollingWindowHistogramTest extends TestCase{
+    
+    public RollingWindowHistogramTest(String arg0){
+        super(arg0);
+    }
+    
+    public static void main(String[] args){
+        junit.swingui.TestRunner.main(new String[]{RollingWindowHistogramTest.class.getName()});
+    }
+    
+    public static TestSuite suite(){
+        return new TestSuite(RollingWindowHistogramTest.class);
+    }
+    
+    public void testWindow() throws Exception{
+        RollingWindowHistogram histogram = new RollingWindowHistogram(300000L, 60000L, 5);
+        assertEquals(300000L, histogram.getMaxWindow());
+        final long base = 6000000L;
+        histogram.recordValue(base, 100);
+        histogram.recordValue(base + 60000L, 200);
+        histogram.recordValue(base + 120000L, 300);
+        
+        LogLinearHistogram result = histogram.getHistogram(base + 120000L, 60000L);
+        assertEquals(1L, result.getCount());
+        assertEquals(300L, result.getMax());
+        
+        result = histogram.getHistogram(base + 120000L, 180000L);
+        assertEquals(3L, result.getCount());
+        assertEquals(100L, result.getMin());
+        assertEquals(600L, result.getSum());
+        
+        result = histogram.getHistogram(base + 120000L, 600000L);
+        assertEquals(3L, result.getCount());
+        
+        result = histogram.getHistogram(base + 300000L, 180000L);
+        assertEquals(0L, result.getCount());
+    }
+    
+    public void testRotation() throws Exception{
+        RollingWindowHistogram histogram = new RollingWindowHistogram(120000L, 60000L, 5);
+        final long base = 6000000L;
+        histogram.recordValue(base, 100);
+        histogram.recordValue(base + 60000L, 200);
+        histogram.recordValue(base + 120000L, 300);
+        
+        LogLinearHistogram result = histogram.getHistogram(base + 120000L, 120000L);
+        assertEquals(2L, result.getCount());
+        assertEquals(200L, result.getMin());
+        assertEquals(300L, result.getMax());
+        
+        histogram.reset();
+        assertEquals(0L, histogram.getHistogram(base + 120000L, 120000L).getCount());
+    }
+    
+    public void testPercentile() throws Exception{
+        RollingWindowHistogram histogram = new RollingWindowHistogram(60000L, 15000L, 7);
+        final long now = System.currentTimeMillis();
+        for(int i = 1; i <= 1000; i++){
+            histogram.recordValue(now, i);
+        }
+        LogLinearHistogram result = histogram.getHistogram(now, 60000L);
+        assertEquals(1000L, result.getCount());
+        long p99 = result.getValueAtPercentile(99.0d);
+        assertTrue("p99=" + p99, p99 >= 990 && p99 <= 1000);
+    }
+    
+    public void testConcurrent() throws Exception{
+        final RollingWindowHistogram histogram = new RollingWindowHistogram(60000L, 60000L, 4);
+        final long now = System.currentTimeMillis();
+        Thread[] threads = new Thread[4];
+        for(int i = 0; i < threads.length; i++){
+            threads[i] = new Thread(){
+                public void run(){
+                    for(int j = 0; j < 10000; j++){
+                        histogram.recordValue(now, j % 100);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for(int i = 0; i < threads.length; i++){
+            threads[i].join();
+        }
+        assertEquals(40000L, histogram.getHistogram(now, 60000L).getCount());
+    }
+}
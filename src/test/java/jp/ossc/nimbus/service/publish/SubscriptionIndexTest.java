@@ -0,0 +1,121 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.publish;
+
+import java.util.*;
+
+import junit.framework.*;
+
+import jp.ossc.nimbus.service.publish.tcp.MessageImpl;
+
+/**
+ * {@link SubscriptionIndex}テスト。<p>
+ *
+ * @author M.Takata
+ */
+public class SubscriptionIndexTest extends TestCase{
+    
+    public SubscriptionIndexTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{SubscriptionIndexTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(SubscriptionIndexTest.class);
+    }
+    
+    public void testKey() throws Exception{
+        final SubscriptionIndex index = new SubscriptionIndex();
+        assertTrue(index.add("subject1", "key1", "client1"));
+        assertFalse(index.add("subject1", "key1", "client1"));
+        assertTrue(index.add("subject1", "key2", "client2"));
+        assertTrue(index.add("subject2", "key1", "client3"));
+        assertEquals(set(new Object[]{"client1"}), index.getClients(message("subject1", "key1")));
+        assertEquals(set(new Object[]{"client2"}), index.getClients(message("subject1", "key2")));
+        assertEquals(set(new Object[]{"client3"}), index.getClients(message("subject2", "key1")));
+        assertEquals(0, index.getClients(message("subject1", "key3")).size());
+        assertEquals(0, index.getClients(message("subject3", "key1")).size());
+        assertEquals(0, index.getClients(message("subject1", null)).size());
+    }
+    
+    public void testWildcard() throws Exception{
+        final SubscriptionIndex index = new SubscriptionIndex();
+        index.add("subject1", null, "client1");
+        index.add("subject1", "key1", "client2");
+        index.add("subject1", "key1", "client1");
+        assertEquals(set(new Object[]{"client1", "client2"}), index.getClients(message("subject1", "key1")));
+        assertEquals(set(new Object[]{"client1"}), index.getClients(message("subject1", "key2")));
+        assertEquals(set(new Object[]{"client1"}), index.getClients(message("subject1", null)));
+    }
+    
+    public void testMultiSubject() throws Exception{
+        final SubscriptionIndex index = new SubscriptionIndex();
+        index.add("subject1", "key1", "client1");
+        index.add("subject2", "key2", "client2");
+        index.add("subject2", null, "client1");
+        final Message message = message("subject1", "key1");
+        message.setSubject("subject2", "key2");
+        assertEquals(set(new Object[]{"client1", "client2"}), index.getClients(message));
+    }
+    
+    public void testRemove() throws Exception{
+        final SubscriptionIndex index = new SubscriptionIndex();
+        index.add("subject1", "key1", "client1");
+        index.add("subject1", "key1", "client2");
+        index.add("subject1", null, "client2");
+        index.add("subject2", "key1", "client2");
+        final Set shared = index.getClients(message("subject1", "key1"));
+        assertTrue(index.remove("subject1", "key1", "client1"));
+        assertFalse(index.remove("subject1", "key1", "client1"));
+        assertEquals(set(new Object[]{"client1", "client2"}), shared);
+        assertEquals(set(new Object[]{"client2"}), index.getClients(message("subject1", "key1")));
+        index.remove("client2");
+        assertEquals(0, index.getClients(message("subject1", "key1")).size());
+        assertEquals(0, index.getClients(message("subject2", "key1")).size());
+        assertEquals(0, index.getSubjectCount());
+    }
+    
+    private static Message message(String subject, String key){
+        final MessageImpl message = new MessageImpl();
+        message.setSubject(subject, key);
+        return message;
+    }
+    
+    private static Set set(Object[] values){
+        return new HashSet(Arrays.asList(values));
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.publish.tcp;
+
+import java.util.*;
+
+import junit.framework.*;
+
+import jp.ossc.nimbus.service.publish.*;
+
+/**
+ * TCPプロトコル用のConnectionFactoryServiceテスト。<p>
+ *
+ * @author M.Takata
+ */
+public class ConnectionFactoryServiceTest extends TestCase{
+    
+    private long sendBatchCount;
+    
+    public ConnectionFactoryServiceTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{ConnectionFactoryServiceTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(ConnectionFactoryServiceTest.class);
+    }
+    
+    public void testSerializedFraming() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        factory.setNIO(true);
+        sendAndReceive(factory, 100, 10);
+    }
+    
+    public void testBinaryFramingNIO() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        factory.setNIO(true);
+        factory.setBinaryFraming(true);
+        sendAndReceive(factory, 100, 10);
+    }
+    
+    public void testBinaryFramingSocket() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        factory.setBinaryFraming(true);
+        sendAndReceive(factory, 100, 10);
+    }
+    
+    public void testBinaryFramingLargeMessage() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        factory.setNIO(true);
+        factory.setBinaryFraming(true);
+        factory.setFrameBufferSize(256);
+        sendAndReceive(factory, 20, 100000);
+    }
+    
+    public void testBinaryFramingSendBuffer() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        factory.setNIO(true);
+        factory.setBinaryFraming(true);
+        factory.setSendBufferTime(50);
+        factory.setSendBufferTimeoutInterval(20);
+        sendAndReceive(factory, 200, 10);
+    }
+    
+    public void testBinaryFramingRecycle() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        factory.setNIO(true);
+        factory.setBinaryFraming(true);
+        factory.setSendMessageCacheTime(0);
+        sendAndReceive(factory, 50, 10);
+        assertTrue(factory.getFrameBufferAllocateCount() < 50);
+    }
+    
+    public void testCoalescingSerialized() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        factory.setNIO(true);
+        factory.setCoalescing(true);
+        factory.setSendBufferTime(50);
+        factory.setSendBufferTimeoutInterval(20);
+        sendAndReceive(factory, 200, 10);
+        assertTrue(sendBatchCount > 0);
+    }
+    
+    public void testCoalescingBinaryNIO() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        factory.setNIO(true);
+        factory.setBinaryFraming(true);
+        factory.setCoalescing(true);
+        factory.setSendBufferTime(50);
+        factory.setSendBufferTimeoutInterval(20);
+        sendAndReceive(factory, 200, 10);
+        assertTrue(sendBatchCount > 0);
+    }
+    
+    public void testCoalescingBinarySocket() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        factory.setBinaryFraming(true);
+        factory.setCoalescing(true);
+        factory.setSendBufferSize(1024);
+        factory.setSendBufferTimeoutInterval(20);
+        sendAndReceive(factory, 200, 10);
+        assertTrue(sendBatchCount > 0);
+    }
+    
+    public void testCoalescingWithoutSendBuffer() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        factory.setCoalescing(true);
+        factory.create();
+        try{
+            factory.startService();
+            fail();
+        }catch(IllegalArgumentException e){
+        }finally{
+            factory.destroy();
+        }
+    }
+    
+    public void testFrameRoundTrip() throws Exception{
+        final ByteBufferPool pool = new ByteBufferPool(64, 10, false);
+        final MessageImpl message = new MessageImpl();
+        message.setSubject("subject1", "key1");
+        message.setSubject("subject2", null);
+        message.setObject("テスト");
+        message.setSendTime(12345L);
+        final MessageFrame frame = message.getFrame(null, pool);
+        assertSame(frame, message.getFrame(null, pool));
+        final java.nio.ByteBuffer buf = frame.duplicate();
+        final int length = buf.getInt();
+        assertEquals(frame.length() - 4, length);
+        final byte[] bytes = new byte[length];
+        buf.get(bytes);
+        final ClientConnectionImpl cc = new ClientConnectionImpl("localhost", 0, null, null, null);
+        final MessageImpl read = MessageImpl.readFrame(bytes, 0, length, cc);
+        assertEquals(MessageImpl.MESSAGE_TYPE_APPLICATION, read.getMessageType());
+        assertEquals(12345L, read.getSendTime());
+        assertEquals(Arrays.asList(new String[]{"subject1", "subject2"}), new ArrayList(read.getSubjects()));
+        assertEquals("key1", read.getKey("subject1"));
+        assertNull(read.getKey("subject2"));
+        assertEquals("テスト", read.getObject());
+        
+        final int poolSize = pool.getPoolSize();
+        assertTrue(frame.retain());
+        message.clear();
+        assertEquals(poolSize, pool.getPoolSize());
+        frame.release();
+        assertEquals(poolSize, pool.getPoolSize());
+        assertFalse(frame.retain());
+    }
+    
+    private void sendAndReceive(ConnectionFactoryService factory, int count, int size) throws Exception{
+        final List clients = new ArrayList();
+        try{
+            factory.create();
+            factory.start();
+            final ServerConnection server = factory.getServerConnection();
+            final MyMessageListener[] listeners = new MyMessageListener[3];
+            for(int i = 0; i < listeners.length; i++){
+                final ClientConnection client = factory.getClientConnection();
+                listeners[i] = new MyMessageListener();
+                client.setMessageListener(listeners[i]);
+                client.connect();
+                client.addSubject("test", new String[]{"key" + i});
+                client.startReceive();
+                clients.add(client);
+            }
+            final long start = System.currentTimeMillis();
+            for(int i = 0; i < listeners.length; i++){
+                while(server.getReceiveClientIds(createMessage(server, i, size)).size() == 0){
+                    if(System.currentTimeMillis() - start > 5000){
+                        fail("clients not ready.");
+                    }
+                    Thread.sleep(10);
+                }
+            }
+            for(int i = 0; i < count; i++){
+                server.send(createMessage(server, i, size));
+            }
+            for(int i = 0; i < listeners.length; i++){
+                final List received = listeners[i].waitFor(count / listeners.length + (i < count % listeners.length ? 1 : 0), 10000);
+                for(int j = 0; j < received.size(); j++){
+                    final Object[] value = (Object[])received.get(j);
+                    final int index = ((Integer)value[0]).intValue();
+                    assertEquals(i, index % listeners.length);
+                    assertEquals("key" + i, value[1]);
+                    assertEquals(size, ((byte[])value[2]).length);
+                    if(j != 0){
+                        assertTrue(index > ((Integer)((Object[])received.get(j - 1))[0]).intValue());
+                    }
+                }
+            }
+            sendBatchCount = factory.getSendBatchCount();
+        }finally{
+            for(int i = 0; i < clients.size(); i++){
+                ((ClientConnection)clients.get(i)).close();
+            }
+            factory.stop();
+            factory.destroy();
+        }
+    }
+    
+    private Message createMessage(ServerConnection server, int index, int size) throws Exception{
+        final Message message = server.createMessage("test", "key" + (index % 3));
+        message.setObject(new Object[]{new Integer(index), "key" + (index % 3), new byte[size]});
+        return message;
+    }
+    
+    private static class MyMessageListener implements MessageListener{
+        final List received = new ArrayList();
+        public synchronized void onMessage(Message message){
+            try{
+                received.add(message.getObject());
+            }catch(MessageException e){
+                received.add(e);
+            }
+            notifyAll();
+        }
+        public synchronized List waitFor(int size, long timeout) throws InterruptedException{
+            final long start = System.currentTimeMillis();
+            while(received.size() < size){
+                final long wait = timeout - (System.currentTimeMillis() - start);
+                if(wait <= 0){
+                    break;
+                }
+                wait(wait);
+            }
+            assertEquals(size, received.size());
+            return new ArrayList(received);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.publish.udp;
+
+import java.util.*;
+
+import junit.framework.*;
+
+import jp.ossc.nimbus.service.publish.*;
+
+/**
+ * UDPプロトコル用のConnectionFactoryServiceテスト。<p>
+ *
+ * @author M.Takata
+ */
+public class ConnectionFactoryServiceTest extends TestCase{
+    
+    private long sendBatchCount;
+    private double averageSendBatchSize;
+    
+    public ConnectionFactoryServiceTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{ConnectionFactoryServiceTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(ConnectionFactoryServiceTest.class);
+    }
+    
+    public void testNoCoalescing() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        sendAndReceive(factory, 100, 10);
+        assertEquals(0, sendBatchCount);
+    }
+    
+    public void testCoalescingDefaultMaxSize() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        factory.setCoalescing(true);
+        factory.setCoalescingLingerTime(50);
+        sendAndReceive(factory, 100, 10);
+        assertTrue(sendBatchCount > 0);
+        assertTrue(averageSendBatchSize > 1.0d);
+    }
+    
+    public void testCoalescingMaxSize() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        factory.setCoalescing(true);
+        factory.setCoalescingLingerTime(1000);
+        factory.setCoalescingMaxSize(factory.getWindowSize() * 2 + 2);
+        sendAndReceive(factory, 100, 10);
+        assertTrue(sendBatchCount > 0);
+        assertTrue(averageSendBatchSize > 1.0d);
+    }
+    
+    public void testCoalescingLingerTime() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        factory.setCoalescing(true);
+        factory.setCoalescingLingerTime(100);
+        sendAndReceive(factory, 1, 10);
+        assertEquals(1, sendBatchCount);
+    }
+    
+    public void testCoalescingMaxSizeTooSmall() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        factory.setCoalescing(true);
+        factory.setCoalescingMaxSize(factory.getWindowSize());
+        factory.create();
+        try{
+            factory.startService();
+            fail();
+        }catch(IllegalArgumentException e){
+        }finally{
+            factory.destroy();
+        }
+    }
+    
+    public void testDeltaEncoding() throws Exception{
+        final ConnectionFactoryService factory = new ConnectionFactoryService();
+        factory.setMulticastGroupAddress("224.1.1.1");
+        factory.setDeltaEncoding(true);
+        factory.setDeltaSnapshotInterval(3);
+        factory.setDeltaSnapshotTime(0);
+        ClientConnection client = null;
+        try{
+            factory.create();
+            factory.start();
+            final ServerConnection server = factory.getServerConnection();
+            final MyMessageListener listener = new MyMessageListener();
+            client = factory.getClientConnection();
+            // クライアント側は1件しか保持しないため、別のキーのスナップショットを受信すると、前のキーのスナップショットを失う
+            ((ClientConnectionImpl)client).setDeltaSnapshotMaxSize(1);
+            client.setMessageListener(listener);
+            client.connect();
+            client.addSubject("test", new String[]{"A", "B"});
+            client.startReceive();
+            waitForReady(server, createMessage(server, "A", 0));
+            
+            // A0、B0はスナップショット。A1～A3は、Aのスナップショットを失っているため破棄され、A4のスナップショットで復帰して、A5、A6は差分から復元される
+            final String[] keys = new String[]{"A", "B", "A", "A", "A", "A", "A", "A"};
+            final int[] indexes = new int[]{0, 0, 1, 2, 3, 4, 5, 6};
+            for(int i = 0; i < keys.length; i++){
+                server.send(createMessage(server, keys[i], indexes[i]));
+            }
+            final List received = listener.waitFor(5, 10000);
+            final String[] expectedKeys = new String[]{"A", "B", "A", "A", "A"};
+            final int[] expectedIndexes = new int[]{0, 0, 4, 5, 6};
+            for(int i = 0; i < received.size(); i++){
+                final Object[] value = (Object[])received.get(i);
+                assertEquals(expectedKeys[i], value[2]);
+                assertEquals(expectedIndexes[i], ((Integer)value[0]).intValue());
+                assertEquals(200, ((byte[])value[1]).length);
+            }
+            assertEquals(3, factory.getSnapshotCount());
+            assertEquals(5, factory.getDeltaCount());
+        }finally{
+            if(client != null){
+                client.close();
+            }
+            factory.stop();
+            factory.destroy();
+        }
+    }
+    
+    private void waitForReady(ServerConnection server, Message message) throws Exception{
+        final long start = System.currentTimeMillis();
+        while(server.getReceiveClientIds(message).size() == 0){
+            if(System.currentTimeMillis() - start > 5000){
+                fail("client not ready.");
+            }
+            Thread.sleep(10);
+        }
+    }
+    
+    private Message createMessage(ServerConnection server, String key, int index) throws Exception{
+        final Message message = server.createMessage("test", key);
+        final byte[] bytes = new byte[200];
+        Arrays.fill(bytes, (byte)key.charAt(0));
+        message.setObject(new Object[]{new Integer(index), bytes, key});
+        return message;
+    }
+    
+    private void sendAndReceive(ConnectionFactoryService factory, int count, int size) throws Exception{
+        ClientConnection client = null;
+        try{
+            factory.create();
+            factory.start();
+            final ServerConnection server = factory.getServerConnection();
+            final MyMessageListener listener = new MyMessageListener();
+            client = factory.getClientConnection();
+            client.setMessageListener(listener);
+            client.connect();
+            client.addSubject("test");
+            client.startReceive();
+            final long start = System.currentTimeMillis();
+            while(server.getReceiveClientIds(createMessage(server, 0, size)).size() == 0){
+                if(System.currentTimeMillis() - start > 5000){
+                    fail("client not ready.");
+                }
+                Thread.sleep(10);
+            }
+            for(int i = 0; i < count; i++){
+                server.send(createMessage(server, i, size));
+            }
+            final List received = listener.waitFor(count, 10000);
+            for(int i = 0; i < received.size(); i++){
+                final Object[] value = (Object[])received.get(i);
+                assertEquals(i, ((Integer)value[0]).intValue());
+                assertEquals(size, ((byte[])value[1]).length);
+            }
+            sendBatchCount = factory.getSendBatchCount();
+            averageSendBatchSize = factory.getAverageSendBatchSize();
+        }finally{
+            if(client != null){
+                client.close();
+            }
+            factory.stop();
+            factory.destroy();
+        }
+    }
+    
+    private Message createMessage(ServerConnection server, int index, int size) throws Exception{
+        final Message message = server.createMessage("test", null);
+        message.setObject(new Object[]{new Integer(index), new byte[size]});
+        return message;
+    }
+    
+    private static class MyMessageListener implements MessageListener{
+        final List received = new ArrayList();
+        public synchronized void onMessage(Message message){
+            try{
+                received.add(message.getObject());
+            }catch(MessageException e){
+                received.add(e);
+            }
+            notifyAll();
+        }
+        public synchronized List waitFor(int size, long timeout) throws InterruptedException{
+            final long start = System.currentTimeMillis();
+            while(received.size() < size){
+                final long wait = timeout - (System.currentTimeMillis() - start);
+                if(wait <= 0){
+                    break;
+                }
+                wait(wait);
+            }
+            assertEquals(size, received.size());
+            return new ArrayList(received);
+        }
+    }
+}
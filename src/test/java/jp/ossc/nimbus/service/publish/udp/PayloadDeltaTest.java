@@ -0,0 +1,102 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.publish.udp;
+
+import java.util.*;
+
+import junit.framework.*;
+
+/**
+ * {@link PayloadDelta}テスト。<p>
+ *
+ * @author M.Takata
+ */
+public class PayloadDeltaTest extends TestCase{
+    
+    public PayloadDeltaTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{PayloadDeltaTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(PayloadDeltaTest.class);
+    }
+    
+    public void testSmallChange() throws Exception{
+        final byte[] base = bytes(1024, 1);
+        final byte[] bytes = (byte[])base.clone();
+        bytes[100] = (byte)~bytes[100];
+        bytes[900] = (byte)~bytes[900];
+        final byte[] delta = PayloadDelta.diff(base, bytes);
+        assertTrue(delta.length < bytes.length / 10);
+        assertTrue(Arrays.equals(bytes, PayloadDelta.patch(base, delta)));
+    }
+    
+    public void testLengthChange() throws Exception{
+        final byte[] base = bytes(512, 2);
+        final byte[] longer = new byte[600];
+        System.arraycopy(base, 0, longer, 0, base.length);
+        final byte[] shorter = new byte[300];
+        System.arraycopy(base, 0, shorter, 0, shorter.length);
+        assertTrue(Arrays.equals(longer, PayloadDelta.patch(base, PayloadDelta.diff(base, longer))));
+        assertTrue(Arrays.equals(shorter, PayloadDelta.patch(base, PayloadDelta.diff(base, shorter))));
+    }
+    
+    public void testUnrelated() throws Exception{
+        final byte[] base = bytes(256, 3);
+        final byte[] bytes = bytes(256, 4);
+        assertTrue(Arrays.equals(bytes, PayloadDelta.patch(base, PayloadDelta.diff(base, bytes))));
+        assertTrue(Arrays.equals(bytes, PayloadDelta.patch(new byte[0], PayloadDelta.diff(new byte[0], bytes))));
+    }
+    
+    public void testCodec() throws Exception{
+        final CompressPayloadCodecService codec = new CompressPayloadCodecService();
+        codec.create();
+        codec.start();
+        final byte[] bytes = new byte[4096];
+        Arrays.fill(bytes, (byte)'a');
+        final byte[] encoded = codec.encode(bytes);
+        assertTrue(encoded.length < bytes.length);
+        assertTrue(Arrays.equals(bytes, codec.decode(encoded)));
+    }
+    
+    private static byte[] bytes(int length, long seed){
+        final byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.queue;
+
+import java.util.*;
+
+import junit.framework.*;
+
+/**
+ * 並行Queueサービステスト。<p>
+ *
+ * @author M.Takata
+ */
+public class ConcurrentQueueServiceTest extends TestCase{
+    
+    public ConcurrentQueueServiceTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{ConcurrentQueueServiceTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(ConcurrentQueueServiceTest.class);
+    }
+    
+    private ConcurrentQueueService createQueue(int capacity, String strategy) throws Exception{
+        final ConcurrentQueueService queue = new ConcurrentQueueService();
+        queue.create();
+        queue.setCapacity(capacity);
+        queue.setWaitStrategy(strategy);
+        queue.start();
+        return queue;
+    }
+    
+    public void testPushGet() throws Exception{
+        final ConcurrentQueueService queue = createQueue(10, ConcurrentQueueServiceMBean.WAIT_STRATEGY_PARK);
+        try{
+            assertEquals(16, queue.getCapacity());
+            for(int i = 0; i < 16; i++){
+                queue.push(new Integer(i));
+            }
+            assertEquals(16, queue.size());
+            assertEquals(16, queue.getMaxDepth());
+            assertEquals(16, queue.getCount());
+            assertEquals(16, queue.getCountDelta());
+            assertEquals(0, queue.getCountDelta());
+            assertFalse(queue.push("over", 0));
+            assertFalse(queue.push("over", 50));
+            assertEquals(new Integer(0), queue.peek());
+            for(int i = 0; i < 16; i++){
+                assertEquals(new Integer(i), queue.get(0));
+            }
+            assertNull(queue.get(0));
+            assertNull(queue.get(50));
+            assertEquals(0, queue.size());
+        }finally{
+            queue.stop();
+            queue.destroy();
+        }
+    }
+    
+    public void testNullElement() throws Exception{
+        final ConcurrentQueueService queue = createQueue(4, ConcurrentQueueServiceMBean.WAIT_STRATEGY_YIELD);
+        try{
+            queue.push(null);
+            queue.push("A");
+            assertEquals(2, queue.size());
+            final List list = new ArrayList();
+            assertEquals(2, queue.drainTo(list, 10, 0));
+            assertEquals(Arrays.asList(new Object[]{null, "A"}), list);
+        }finally{
+            queue.stop();
+            queue.destroy();
+        }
+    }
+    
+    public void testRemove() throws Exception{
+        final ConcurrentQueueService queue = createQueue(8, ConcurrentQueueServiceMBean.WAIT_STRATEGY_PARK);
+        try{
+            queue.push("A");
+            queue.push("B");
+            queue.push("C");
+            assertEquals("B", queue.remove("B"));
+            assertNull(queue.remove("D"));
+            assertEquals(Arrays.asList(new Object[]{"A", "C"}), queue.elements());
+            assertEquals(2, queue.size());
+            assertEquals(2, queue.getDepth());
+            assertEquals("A", queue.get(0));
+            assertEquals(1, queue.size());
+            assertEquals("C", queue.get(0));
+            assertEquals(0, queue.size());
+            assertNull(queue.get(0));
+            
+            // 削除済みの要素は、最大深さにも数えない
+            queue.push("B");
+            queue.push("C");
+            queue.push("E");
+            queue.remove("B");
+            queue.remove("C");
+            queue.remove("E");
+            queue.push("D");
+            assertEquals(1, queue.size());
+            assertEquals(3, queue.getMaxDepth());
+            assertEquals("D", queue.get(0));
+            assertEquals(0, queue.size());
+            queue.push("A");
+            queue.push("B");
+            queue.clear();
+            assertEquals(0, queue.size());
+        }finally{
+            queue.stop();
+            queue.destroy();
+        }
+    }
+    
+    public void testDrainTo() throws Exception{
+        final ConcurrentQueueService queue = createQueue(64, ConcurrentQueueServiceMBean.WAIT_STRATEGY_PARK);
+        try{
+            for(int i = 0; i < 10; i++){
+                queue.push(new Integer(i));
+            }
+            final List list = new ArrayList();
+            assertEquals(4, queue.drainTo(list, 4, -1));
+            assertEquals(6, queue.drainTo(list, 100, -1));
+            assertEquals(10, list.size());
+            for(int i = 0; i < 10; i++){
+                assertEquals(new Integer(i), list.get(i));
+            }
+            list.clear();
+            final long start = System.currentTimeMillis();
+            assertEquals(0, queue.drainTo(list, 4, 100));
+            assertTrue(System.currentTimeMillis() - start >= 90);
+        }finally{
+            queue.stop();
+            queue.destroy();
+        }
+    }
+    
+    public void testRelease() throws Exception{
+        final ConcurrentQueueService queue = createQueue(8, ConcurrentQueueServiceMBean.WAIT_STRATEGY_PARK);
+        try{
+            final Object[] result = new Object[]{"NOT_RETURNED"};
+            final Thread thread = new Thread(){
+                public void run(){
+                    result[0] = queue.get();
+                }
+            };
+            thread.start();
+            Thread.sleep(200);
+            assertEquals(1, queue.getWaitCount());
+            queue.release();
+            thread.join(1000);
+            assertFalse(thread.isAlive());
+            assertNull(result[0]);
+            assertEquals(0, queue.getWaitCount());
+        }finally{
+            queue.stop();
+            queue.destroy();
+        }
+    }
+    
+    public void testWakeUp() throws Exception{
+        final ConcurrentQueueService queue = createQueue(8, ConcurrentQueueServiceMBean.WAIT_STRATEGY_PARK);
+        try{
+            final Object[] result = new Object[1];
+            final Thread thread = new Thread(){
+                public void run(){
+                    result[0] = queue.get();
+                }
+            };
+            thread.start();
+            Thread.sleep(200);
+            queue.push("A");
+            thread.join(1000);
+            assertFalse(thread.isAlive());
+            assertEquals("A", result[0]);
+        }finally{
+            queue.stop();
+            queue.destroy();
+        }
+    }
+    
+    public void testMultiProducerMultiConsumerSpin() throws Exception{
+        multiProducerMultiConsumer(ConcurrentQueueServiceMBean.WAIT_STRATEGY_SPIN);
+    }
+    
+    public void testMultiProducerMultiConsumerYield() throws Exception{
+        multiProducerMultiConsumer(ConcurrentQueueServiceMBean.WAIT_STRATEGY_YIELD);
+    }
+    
+    public void testMultiProducerMultiConsumerPark() throws Exception{
+        multiProducerMultiConsumer(ConcurrentQueueServiceMBean.WAIT_STRATEGY_PARK);
+    }
+    
+    private void multiProducerMultiConsumer(String strategy) throws Exception{
+        final int producerNum = 4;
+        final int consumerNum = 4;
+        final int perProducer = 50000;
+        final ConcurrentQueueService queue = createQueue(256, strategy);
+        try{
+            final Thread[] producers = new Thread[producerNum];
+            for(int i = 0; i < producerNum; i++){
+                final int base = i * perProducer;
+                producers[i] = new Thread(){
+                    public void run(){
+                        for(int j = 0; j < perProducer; j++){
+                            queue.push(new Integer(base + j));
+                        }
+                    }
+                };
+            }
+            final boolean[] received = new boolean[producerNum * perProducer];
+            final int[] duplicate = new int[1];
+            final Thread[] consumers = new Thread[consumerNum];
+            for(int i = 0; i < consumerNum; i++){
+                consumers[i] = new Thread(){
+                    public void run(){
+                        final List list = new ArrayList();
+                        while(true){
+                            list.clear();
+                            if(queue.drainTo(list, 16, 1000) == 0){
+                                return;
+                            }
+                            synchronized(received){
+                                for(int j = 0, jmax = list.size(); j < jmax; j++){
+                                    final int value = ((Integer)list.get(j)).intValue();
+                                    if(received[value]){
+                                        duplicate[0]++;
+                                    }
+                                    received[value] = true;
+                                }
+                            }
+                        }
+                    }
+                };
+            }
+            for(int i = 0; i < consumerNum; i++){
+                consumers[i].start();
+            }
+            for(int i = 0; i < producerNum; i++){
+                producers[i].start();
+            }
+            for(int i = 0; i < producerNum; i++){
+                producers[i].join();
+            }
+            for(int i = 0; i < consumerNum; i++){
+                consumers[i].join();
+            }
+            assertEquals(0, duplicate[0]);
+            for(int i = 0; i < received.length; i++){
+                assertTrue("missing " + i, received[i]);
+            }
+            assertEquals(producerNum * perProducer, queue.getCount());
+            assertEquals(0, queue.size());
+        }finally{
+            queue.stop();
+            queue.destroy();
+        }
+    }
+    
+    public void testQueueHandlerContainer() throws Exception{
+        final ConcurrentQueueService queue = createQueue(1024, ConcurrentQueueServiceMBean.WAIT_STRATEGY_PARK);
+        final QueueHandlerContainerService container = new QueueHandlerContainerService();
+        final int[] handled = new int[1];
+        try{
+            container.create();
+            container.setQueueService(queue);
+            container.setQueueHandlerSize(4);
+            container.setQueueHandler(
+                new QueueHandler(){
+                    public void handleDequeuedObject(Object obj){
+                        synchronized(handled){
+                            handled[0]++;
+                        }
+                    }
+                    public boolean handleError(Object obj, Throwable th){
+                        return false;
+                    }
+                    public void handleRetryOver(Object obj, Throwable th){
+                    }
+                }
+            );
+            container.start();
+            for(int i = 0; i < 1000; i++){
+                container.push(new Integer(i));
+            }
+            final long start = System.currentTimeMillis();
+            while(System.currentTimeMillis() - start < 5000){
+                synchronized(handled){
+                    if(handled[0] == 1000){
+                        break;
+                    }
+                }
+                Thread.sleep(10);
+            }
+            synchronized(handled){
+                assertEquals(1000, handled[0]);
+            }
+        }finally{
+            container.stop();
+            container.destroy();
+            queue.stop();
+            queue.destroy();
+        }
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.queue;
+
+import java.util.*;
+
+import junit.framework.*;
+
+/**
+ * QueueHandlerコンテナサービステスト。<p>
+ *
+ * @author M.Takata
+ */
+public class QueueHandlerContainerServiceTest extends TestCase{
+    
+    public QueueHandlerContainerServiceTest(String theName){
+        super(theName);
+    }
+    
+    public static void main(String[] theArgs){
+        junit.swingui.TestRunner.main(
+            new String[]{QueueHandlerContainerServiceTest.class.getName()}
+        );
+    }
+    
+    public static Test suite(){
+        return new TestSuite(QueueHandlerContainerServiceTest.class);
+    }
+    
+    public void testBatchWithDefaultQueue() throws Exception{
+        final DefaultQueueService queue = new DefaultQueueService();
+        queue.create();
+        queue.start();
+        batch(queue);
+    }
+    
+    public void testBatchWithConcurrentQueue() throws Exception{
+        final ConcurrentQueueService queue = new ConcurrentQueueService();
+        queue.create();
+        queue.start();
+        batch(queue);
+    }
+    
+    private void batch(Queue queue) throws Exception{
+        final QueueHandlerContainerService container = new QueueHandlerContainerService();
+        final MyBatchQueueHandler handler = new MyBatchQueueHandler();
+        try{
+            container.create();
+            container.setQueueService(queue);
+            container.setBatchSize(10);
+            container.setBatchLingerTime(200);
+            container.setQueueHandler(handler);
+            container.start();
+            for(int i = 0; i < 25; i++){
+                container.push(new Integer(i));
+            }
+            handler.waitFor(25, 5000);
+            assertEquals(25, handler.elements.size());
+            for(int i = 0; i < 25; i++){
+                assertEquals(new Integer(i), handler.elements.get(i));
+            }
+            for(int i = 0; i < handler.batches.size(); i++){
+                assertTrue(((List)handler.batches.get(i)).size() <= 10);
+            }
+            assertEquals(handler.batches.size(), container.getBatchCount());
+            assertTrue(container.getAverageBatchSize() > 1.0d);
+            long total = 0;
+            final Iterator values = container.getBatchSizeDistribution().values().iterator();
+            while(values.hasNext()){
+                total += ((Long)values.next()).longValue();
+            }
+            assertEquals(container.getBatchCount(), total);
+            container.resetBatchStatistics();
+            assertEquals(0, container.getBatchCount());
+            assertEquals(0, container.getBatchSizeDistribution().size());
+        }finally{
+            container.stop();
+            container.destroy();
+        }
+    }
+    
+    public void testBatchLingerTime() throws Exception{
+        final QueueHandlerContainerService container = new QueueHandlerContainerService();
+        final MyBatchQueueHandler handler = new MyBatchQueueHandler();
+        try{
+            container.create();
+            container.setBatchSize(100);
+            container.setBatchLingerTime(500);
+            container.setQueueHandler(handler);
+            container.start();
+            container.push("A");
+            Thread.sleep(100);
+            container.push("B");
+            handler.waitFor(2, 5000);
+            assertEquals(1, handler.batches.size());
+            assertEquals(Arrays.asList(new Object[]{"A", "B"}), handler.batches.get(0));
+            assertEquals(new Long(1), container.getBatchSizeDistribution().get("2-3"));
+        }finally{
+            container.stop();
+            container.destroy();
+        }
+    }
+    
+    public void testBatchRetry() throws Exception{
+        final QueueHandlerContainerService container = new QueueHandlerContainerService();
+        final MyBatchQueueHandler handler = new MyBatchQueueHandler();
+        handler.failCount = 2;
+        try{
+            container.create();
+            container.setBatchSize(10);
+            container.setBatchLingerTime(200);
+            container.setMaxRetryCount(3);
+            container.setRetryInterval(10);
+            container.setQueueHandler(handler);
+            container.start();
+            for(int i = 0; i < 5; i++){
+                container.push(new Integer(i));
+            }
+            handler.waitFor(5, 5000);
+            assertEquals(2, handler.errorCount);
+            assertEquals(0, handler.retryOverCount);
+            assertEquals(1, handler.batches.size());
+            assertEquals(5, ((List)handler.batches.get(0)).size());
+        }finally{
+            container.stop();
+            container.destroy();
+        }
+    }
+    
+    public void testBatchRetryOver() throws Exception{
+        final QueueHandlerContainerService container = new QueueHandlerContainerService();
+        final MyBatchQueueHandler handler = new MyBatchQueueHandler();
+        handler.failCount = 10;
+        try{
+            container.create();
+            container.setBatchSize(10);
+            container.setBatchLingerTime(200);
+            container.setMaxRetryCount(2);
+            container.setRetryInterval(10);
+            container.setQueueHandler(handler);
+            container.start();
+            for(int i = 0; i < 5; i++){
+                container.push(new Integer(i));
+            }
+            final long start = System.currentTimeMillis();
+            while(handler.retryOverCount == 0 && System.currentTimeMillis() - start < 5000){
+                Thread.sleep(10);
+            }
+            assertEquals(2, handler.errorCount);
+            assertEquals(1, handler.retryOverCount);
+            assertEquals(5, handler.retryOverElements.size());
+        }finally{
+            container.stop();
+            container.destroy();
+        }
+    }
+    
+    public void testBatchNullElement() throws Exception{
+        final QueueHandlerContainerService container = new QueueHandlerContainerService();
+        final MyBatchQueueHandler handler = new MyBatchQueueHandler();
+        try{
+            container.create();
+            container.setBatchSize(10);
+            container.setWaitTimeout(20);
+            container.setQueueHandler(handler);
+            container.start();
+            // 待ち受けがタイムアウトした場合は、バッチを組まずに1件としてnullを渡す
+            handler.waitFor(2, 5000);
+            assertEquals(0, handler.batches.size());
+            assertNull(handler.elements.get(0));
+            container.stop();
+            
+            final MyBatchQueueHandler ignoreHandler = new MyBatchQueueHandler();
+            container.setQueueHandler(ignoreHandler);
+            container.setIgnoreNullElement(true);
+            container.start();
+            Thread.sleep(200);
+            assertEquals(0, ignoreHandler.elements.size());
+            container.push("A");
+            ignoreHandler.waitFor(1, 5000);
+            assertEquals(1, ignoreHandler.batches.size());
+            assertEquals(Arrays.asList(new Object[]{"A"}), ignoreHandler.batches.get(0));
+        }finally{
+            container.stop();
+            container.destroy();
+        }
+    }
+    
+    public void testBatchWithQueueHandler() throws Exception{
+        final QueueHandlerContainerService container = new QueueHandlerContainerService();
+        final List handled = Collections.synchronizedList(new ArrayList());
+        try{
+            container.create();
+            container.setBatchSize(10);
+            container.setQueueHandler(
+                new QueueHandler(){
+                    public void handleDequeuedObject(Object obj){
+                        handled.add(obj);
+                    }
+                    public boolean handleError(Object obj, Throwable th){
+                        return false;
+                    }
+                    public void handleRetryOver(Object obj, Throwable th){
+                    }
+                }
+            );
+            container.start();
+            for(int i = 0; i < 30; i++){
+                container.push(new Integer(i));
+            }
+            final long start = System.currentTimeMillis();
+            while(handled.size() < 30 && System.currentTimeMillis() - start < 5000){
+                Thread.sleep(10);
+            }
+            assertEquals(30, handled.size());
+            for(int i = 0; i < 30; i++){
+                assertEquals(new Integer(i), handled.get(i));
+            }
+        }finally{
+            container.stop();
+            container.destroy();
+        }
+    }
+    
+    public void testVirtualThreadMode() throws Exception{
+        final QueueHandlerContainerService container = new QueueHandlerContainerService();
+        final int[] active = new int[1];
+        final int[] maxActive = new int[1];
+        final List handled = Collections.synchronizedList(new ArrayList());
+        try{
+            container.create();
+            container.setVirtualThreadMode(true);
+            container.setQueueHandlerSize(5);
+            container.setQueueHandler(
+                new QueueHandler(){
+                    public void handleDequeuedObject(Object obj) throws Throwable{
+                        synchronized(active){
+                            active[0]++;
+                            if(maxActive[0] < active[0]){
+                                maxActive[0] = active[0];
+                            }
+                        }
+                        Thread.sleep(5);
+                        synchronized(active){
+                            active[0]--;
+                        }
+                        handled.add(obj);
+                    }
+                    public boolean handleError(Object obj, Throwable th){
+                        return false;
+                    }
+                    public void handleRetryOver(Object obj, Throwable th){
+                    }
+                }
+            );
+            container.start();
+            assertTrue(container.isVirtualThreadMode());
+            for(int i = 0; i < 200; i++){
+                container.push(new Integer(i));
+            }
+            final long start = System.currentTimeMillis();
+            while(handled.size() < 200 && System.currentTimeMillis() - start < 10000){
+                Thread.sleep(10);
+            }
+            assertEquals(200, handled.size());
+            assertTrue(maxActive[0] <= 5);
+            assertEquals(200L, container.getCount());
+        }finally{
+            container.stop();
+            container.destroy();
+        }
+    }
+    
+    public void testVirtualThreadModeWaitOnStop() throws Exception{
+        final QueueHandlerContainerService container = new QueueHandlerContainerService();
+        final List handled = Collections.synchronizedList(new ArrayList());
+        container.create();
+        container.setVirtualThreadMode(true);
+        container.setQueueHandlerSize(10);
+        container.setIgnoreNullElement(true);
+        container.setQueueHandler(
+            new QueueHandler(){
+                public void handleDequeuedObject(Object obj) throws Throwable{
+                    Thread.sleep(200);
+                    handled.add(obj);
+                }
+                public boolean handleError(Object obj, Throwable th){
+                    return false;
+                }
+                public void handleRetryOver(Object obj, Throwable th){
+                }
+            }
+        );
+        container.start();
+        for(int i = 0; i < 10; i++){
+            container.push(new Integer(i));
+        }
+        Thread.sleep(50);
+        container.stop();
+        container.destroy();
+        assertEquals(10, handled.size());
+    }
+    
+    private static class MyBatchQueueHandler implements BatchQueueHandler{
+        final List batches = new ArrayList();
+        final List elements = new ArrayList();
+        final List retryOverElements = new ArrayList();
+        int failCount;
+        int errorCount;
+        int retryOverCount;
+        public synchronized void handleDequeuedObjects(List objs) throws Throwable{
+            if(failCount > 0){
+                failCount--;
+                throw new Exception("fail");
+            }
+            batches.add(new ArrayList(objs));
+            elements.addAll(objs);
+            notifyAll();
+        }
+        public synchronized boolean handleError(List objs, Throwable th){
+            errorCount++;
+            return true;
+        }
+        public synchronized void handleRetryOver(List objs, Throwable th){
+            retryOverCount++;
+            retryOverElements.addAll(objs);
+        }
+        public synchronized void handleDequeuedObject(Object obj){
+            elements.add(obj);
+            notifyAll();
+        }
+        public boolean handleError(Object obj, Throwable th){
+            return false;
+        }
+        public void handleRetryOver(Object obj, Throwable th){
+        }
+        public synchronized void waitFor(int size, long timeout) throws InterruptedException{
+            final long start = System.currentTimeMillis();
+            while(elements.size() < size){
+                final long wait = timeout - (System.currentTimeMillis() - start);
+                if(wait <= 0){
+                    return;
+                }
+                wait(wait);
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * This software is distributed under following license based on modified BSD
+ * style license.
+ * ----------------------------------------------------------------------
+ * 
+ * Copyright 2003 The Nimbus Project. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer. 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE NIMBUS PROJECT ``AS IS'' AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN
+ * NO EVENT SHALL THE NIMBUS PROJECT OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of the Nimbus Project.
+ */
+package jp.ossc.nimbus.service.writer.prometheus;
+
+import java.util.HashMap;
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import io.prometheus.client.CollectorRegistry;
+import jp.ossc.nimbus.core.ServiceManagerFactory;
+import jp.ossc.nimbus.core.ServiceName;
+import jp.ossc.nimbus.service.aop.Invoker;
+import jp.ossc.nimbus.service.aop.Interceptor;
+import jp.ossc.nimbus.service.aop.InvocationContext;
+import jp.ossc.nimbus.service.aop.DefaultMethodInvocationContext;
+import jp.ossc.nimbus.service.aop.DefaultInterceptorChain;
+import jp.ossc.nimbus.service.aop.DefaultInterceptorChainList;
+import jp.ossc.nimbus.service.aop.interceptor.MethodMetricsInterceptorService;
+import jp.ossc.nimbus.service.cache.MemoryCacheMapService;
+import jp.ossc.nimbus.service.queue.DefaultQueueService;
+
+public class MetricsCollectorServiceTest extends TestCase{
+    
+    public MetricsCollectorServiceTest(String arg0){
+        super(arg0);
+    }
+    
+    public static void main(String[] args){
+        junit.swingui.TestRunner.main(new String[]{MetricsCollectorServiceTest.class.getName()});
+    }
+    
+    public static TestSuite suite(){
+        return new TestSuite(MetricsCollectorServiceTest.class);
+    }
+    
+    public void testCollect() throws Throwable{
+        ServiceManagerFactory.registerManager("Test");
+        final MethodMetricsInterceptorService interceptor = new MethodMetricsInterceptorService();
+        interceptor.setHistogramEnabled(true);
+        interceptor.setHistogramWindows(new long[]{60000L});
+        interceptor.setPercentiles(new double[]{50.0d, 99.0d});
+        ServiceManagerFactory.registerService("Test", "MethodMetrics", interceptor);
+        final DefaultQueueService queue = new DefaultQueueService();
+        ServiceManagerFactory.registerService("Test", "Queue", queue);
+        final MemoryCacheMapService cache = new MemoryCacheMapService();
+        ServiceManagerFactory.registerService("Test", "Cache", cache);
+        final MetricsCollectorService collector = new MetricsCollectorService();
+        final CollectorRegistry registry = new CollectorRegistry();
+        collector.setCollectorRegistry(registry);
+        collector.setMethodMetricsInterceptorServiceNames(new ServiceName[]{new ServiceName("Test", "MethodMetrics")});
+        collector.setQueueServiceNames(new ServiceName[]{new ServiceName("Test", "Queue")});
+        collector.setCacheMapServiceNames(new ServiceName[]{new ServiceName("Test", "Cache")});
+        ServiceManagerFactory.registerService("Test", "Collector", collector);
+        try{
+            ServiceManagerFactory.findManager("Test").createAllService();
+            ServiceManagerFactory.findManager("Test").startAllService();
+            
+            final Method method = HashMap.class.getMethod("get", new Class[]{Object.class});
+            for(int i = 0; i < 3; i++){
+                new DefaultInterceptorChain(
+                    new DefaultInterceptorChainList(new Interceptor[]{interceptor}),
+                    new Invoker(){
+                        public Object invoke(InvocationContext context) throws Throwable{
+                            Thread.sleep(5);
+                            return null;
+                        }
+                    }
+                ).invokeNext(new DefaultMethodInvocationContext(null, method, null));
+            }
+            queue.push("A");
+            queue.push("B");
+            cache.put("A", "a");
+            cache.get("A");
+            cache.get("B");
+            
+            final String key = "java.util.HashMap#get(java.lang.Object)";
+            assertEquals(
+                new Double(3),
+                registry.getSampleValue(
+                    "nimbus_method_calls_total",
+                    new String[]{"service", "method", "result"},
+                    new String[]{"Test#MethodMetrics", key, "normal"}
+                )
+            );
+            assertEquals(
+                new Double(3),
+                registry.getSampleValue(
+                    "nimbus_method_duration_milliseconds_count",
+                    new String[]{"service", "method", "window"},
+                    new String[]{"Test#MethodMetrics", key, "1m"}
+                )
+            );
+            final Double p99 = registry.getSampleValue(
+                "nimbus_method_duration_milliseconds",
+                new String[]{"service", "method", "window", "quantile"},
+                new String[]{"Test#MethodMetrics", key, "1m", "0.99"}
+            );
+            assertNotNull(p99);
+            assertTrue(p99.doubleValue() >= 5.0d);
+            assertEquals(
+                new Double(2),
+                registry.getSampleValue("nimbus_queue_depth", new String[]{"service"}, new String[]{"Test#Queue"})
+            );
+            assertEquals(
+                new Double(2),
+                registry.getSampleValue("nimbus_queue_pushed_total", new String[]{"service"}, new String[]{"Test#Queue"})
+            );
+            assertEquals(
+                new Double(1),
+                registry.getSampleValue("nimbus_cache_size", new String[]{"service"}, new String[]{"Test#Cache"})
+            );
+            assertEquals(
+                new Double(1),
+                registry.getSampleValue("nimbus_cache_hits_total", new String[]{"service"}, new String[]{"Test#Cache"})
+            );
+            assertEquals(
+                new Double(1),
+                registry.getSampleValue("nimbus_cache_misses_total", new String[]{"service"}, new String[]{"Test#Cache"})
+            );
+            assertEquals(0.5d, cache.getHitRatio(), 0.0d);
+        }finally{
+            ServiceManagerFactory.findManager("Test").stopAllService();
+            ServiceManagerFactory.findManager("Test").destroyAllService();
+            ServiceManagerFactory.unregisterManager("Test");
+        }
+        assertNull(
+            registry.getSampleValue("nimbus_queue_depth", new String[]{"service"}, new String[]{"Test#Queue"})
+        );
+    }
+}